@@ -622,7 +622,7 @@ public class RTML22Create
 		Element dateTimeElement = null;
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		// schedule element
 		timeConstraintElement = (Element)document.createElement("TimeConstraint");
 		// start date time element
@@ -900,7 +900,7 @@ public class RTML22Create
 		String dateString = null;
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		e = (Element)document.createElement("CompletionTime");
 		dateString = dateFormat.format(completionTime);
 		e.appendChild(document.createTextNode(dateString));
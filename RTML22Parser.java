@@ -126,7 +126,11 @@ public class RTML22Parser extends RTMLParser
 			
 			if(childNode.getNodeType() == Node.ELEMENT_NODE)
 			{
-				if(childNode.getNodeName() == "Contact")
+				if(parseProfileIncludes(parseProfile,childNode.getNodeName()) == false)
+				{
+					// skipped by parse profile
+				}
+				else if(childNode.getNodeName() == "Contact")
 					parseContactNode(rtmlDocument,childNode);
 				else if(childNode.getNodeName() == "Project")
 					parseProjectNode(rtmlDocument,childNode);
@@ -1267,7 +1271,10 @@ public class RTML22Parser extends RTMLParser
 				else if(childNode.getNodeName() == "Schedule")
 					parseScheduleNode(observation,childNode);
 				else if(childNode.getNodeName() == "ImageData")
-					parseImageDataNode(observation,childNode);
+				{
+					if(parseProfileIncludes(parseProfile,"ImageData"))
+						parseImageDataNode(observation,childNode);
+				}
 				else
 					System.err.println("parseObservationNode:ELEMENT:"+childNode);
 			}
@@ -1877,7 +1884,7 @@ public class RTML22Parser extends RTMLParser
 		RTMLDateFormat dateFormat = null;
 		String s = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		childList = dateTimeNode.getChildNodes();
 		for(int i = 0; i < childList.getLength(); i++)
 		{
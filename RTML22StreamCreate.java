@@ -0,0 +1,667 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTML22StreamCreate.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import org.estar.astrometry.*;
+
+/**
+ * This class serializes an RTMLDocument (Java object tree) straight to an RTML 2.2 XML stream, using an
+ * RTMLXMLWriter, without building a DOM tree. Each method writes the same elements, attributes and text as
+ * the equivalent RTML22Create method, so the output is the same as serializing RTML22Create's DOM tree
+ * with RTMLCreate.toXMLString.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTML22Create
+ * @see org.estar.rtml.RTMLXMLWriter
+ * @see org.estar.rtml.RTMLCreate#write
+ */
+public class RTML22StreamCreate
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The writer the document is written to.
+	 */
+	private RTMLXMLWriter writer = null;
+	/**
+	 * Number format used for telescope and constraint values ("#####0.0#").
+	 */
+	private DecimalFormat valueFormat = null;
+	/**
+	 * Number format used for target offsets ("###0.0#").
+	 */
+	private DecimalFormat offsetFormat = null;
+	/**
+	 * Number format used for sky brightness flux ("#0.0##").
+	 */
+	private DecimalFormat fluxFormat = null;
+	/**
+	 * Number format used for the document score ("#0.0#####").
+	 */
+	private DecimalFormat scoreFormat = null;
+	/**
+	 * Number format used for the scores list ("#####0.0#####").
+	 */
+	private DecimalFormat scoresFormat = null;
+
+	/**
+	 * Default constructor. The number formats are the same as those used by RTML22Create.
+	 */
+	public RTML22StreamCreate()
+	{
+		super();
+		valueFormat = new DecimalFormat("#####0.0#");
+		offsetFormat = new DecimalFormat("###0.0#");
+		fluxFormat = new DecimalFormat("#0.0##");
+		scoreFormat = new DecimalFormat("#0.0#####");
+		scoresFormat = new DecimalFormat("#####0.0#####");
+	}
+
+	/**
+	 * Write the RTML element of the document (the XML declaration and DOCTYPE are written by the caller).
+	 * @param rtmlDocument The Java representation of an RTML document.
+	 * @param w The writer to write the document to.
+	 * @exception RTMLException Thrown if writing fails.
+	 * @see #writer
+	 * @see #createRTML
+	 */
+	public void create(RTMLDocument rtmlDocument,RTMLXMLWriter w) throws RTMLException
+	{
+		writer = w;
+		try
+		{
+			createRTML(rtmlDocument);
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":create:",e);
+		}
+	}
+
+	/**
+	 * Set the writer used by the package level create methods, which write parts of a document.
+	 * @param w The writer.
+	 * @see #writer
+	 * @see #createScores
+	 * @see #createScore
+	 * @see #createCompletionTime
+	 */
+	void setWriter(RTMLXMLWriter w)
+	{
+		writer = w;
+	}
+
+	// private methods
+	/**
+	 * Write the RTML element.
+	 * @param d The Java representation of an RTML document.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #createContact
+	 * @see #createProject
+	 * @see #createTelescope
+	 * @see #createIntelligentAgent
+	 * @see #createDevice
+	 * @see #createObservation
+	 * @see #createScore
+	 * @see #createScores
+	 * @see #createCompletionTime
+	 */
+	private void createRTML(RTMLDocument d) throws IOException
+	{
+		writer.writeStartElement("RTML");
+		writer.writeAttribute("version",d.getVersion());
+		writer.writeAttribute("type",d.getType());
+		if(d.getContact() != null)
+			createContact(d.getContact());
+		if(d.getProject() != null)
+			createProject(d.getProject());
+		if(d.getTelescope() != null)
+			createTelescope(d.getTelescope());
+		if(d.getIntelligentAgent() != null)
+			createIntelligentAgent(d.getIntelligentAgent());
+		if(d.getDevice() != null)
+			createDevice(d.getDevice());
+		for(int i = 0; i < d.getObservationListCount(); i++)
+			createObservation(d.getObservation(i));
+		if(d.getScore() != null)
+			createScore(d.getScore());
+		if(d.getScoresListCount() > 0)
+			createScores(d);
+		if(d.getCompletionTime() != null)
+			createCompletionTime(d.getCompletionTime());
+		if((d.getType().equals("reject") || d.getType().equals("fail") || d.getType().equals("abort")) && 
+		   (d.getErrorString() != null))
+			writer.writeCharacters(d.getErrorString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Contact element.
+	 * @param contact The Java object containing the contact data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLContact
+	 */
+	private void createContact(RTMLContact contact) throws IOException
+	{
+		writer.writeStartElement("Contact");
+		if(contact.getName() != null)
+			writer.writeTextElement("Name",contact.getName());
+		if(contact.getUser() != null)
+			writer.writeTextElement("User",contact.getUser());
+		if(contact.getInstitution() != null)
+			writer.writeTextElement("Institution",contact.getInstitution());
+		if(contact.getAddress() != null)
+			writer.writeTextElement("Address",contact.getAddress());
+		if(contact.getTelephone() != null)
+			writer.writeTextElement("Telephone",contact.getTelephone());
+		if(contact.getFax() != null)
+			writer.writeTextElement("Fax",contact.getFax());
+		if(contact.getEmail() != null)
+			writer.writeTextElement("Email",contact.getEmail());
+		if(contact.getUrl() != null)
+			writer.writeTextElement("Url",contact.getUrl().toString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Project element.
+	 * @param project The Java object containing the project data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLProject
+	 */
+	private void createProject(RTMLProject project) throws IOException
+	{
+		writer.writeTextElement("Project",project.getProject());
+	}
+
+	/**
+	 * Write a Telescope element.
+	 * @param telescope The Java object containing the telescope data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLTelescope
+	 * @see #createTelescopeLocation
+	 */
+	private void createTelescope(RTMLTelescope telescope) throws IOException
+	{
+		writer.writeStartElement("Telescope");
+		if(telescope.getName() != null)
+			writer.writeTextElement("Name",telescope.getName());
+		if((telescope.getAperture() != 0.0)&&(telescope.getApertureUnits() != null))
+		{
+			createUnitsElement("Aperture",telescope.getApertureUnits(),
+					   valueFormat.format(telescope.getAperture()));
+		}
+		if(telescope.getFocalRatio() != null)
+			writer.writeTextElement("FocalRatio",telescope.getFocalRatio());
+		if((telescope.getFocalLength() != 0.0)&&(telescope.getFocalLengthUnits() != null))
+		{
+			createUnitsElement("FocalLength",telescope.getFocalLengthUnits(),
+					   valueFormat.format(telescope.getFocalLength()));
+		}
+		if(telescope.getLocation() != null)
+			createTelescopeLocation(telescope.getLocation());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a telescope Location element.
+	 * @param telescopeLocation The Java object containing the telescope location data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLTelescopeLocation
+	 */
+	private void createTelescopeLocation(RTMLTelescopeLocation telescopeLocation) throws IOException
+	{
+		writer.writeStartElement("Location");
+		if(telescopeLocation.getName() != null)
+			writer.writeTextElement("Name",telescopeLocation.getName());
+		if(telescopeLocation.getLongitude() != 0.0)
+		{
+			writer.writeStartElement("Longitude");
+			writer.writeAttribute("format","dddddd.dd E");
+			writer.writeCharacters(valueFormat.format(telescopeLocation.getLongitude())+" E");
+			writer.writeEndElement();
+		}
+		if(telescopeLocation.getLatitude() != 0.0)
+			createUnitsElement("Latitude","degrees",valueFormat.format(telescopeLocation.getLatitude()));
+		if(telescopeLocation.getAltitude() != 0.0)
+			createUnitsElement("Altitude","meters",valueFormat.format(telescopeLocation.getAltitude()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an IntelligentAgent element.
+	 * @param rtmlIA The Java object containing the intelligent agent data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLIntelligentAgent
+	 */
+	private void createIntelligentAgent(RTMLIntelligentAgent rtmlIA) throws IOException
+	{
+		writer.writeStartElement("IntelligentAgent");
+		if(rtmlIA.getHostname() != null)
+			writer.writeAttribute("host",rtmlIA.getHostname());
+		if(rtmlIA.getPort() != 0)
+			writer.writeAttribute("port",""+rtmlIA.getPort());
+		if(rtmlIA.getId() != null)
+			writer.writeCharacters(rtmlIA.getId());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Device element. As in RTML22Create, the device name is written as text after the
+	 * sub-elements.
+	 * @param device The Java object containing the device (instrument) data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDevice
+	 * @see #createDetector
+	 * @see #createGrating
+	 */
+	private void createDevice(RTMLDevice device) throws IOException
+	{
+		writer.writeStartElement("Device");
+		if(device.getType() != null)
+			writer.writeAttribute("type",device.getType());
+		if(device.getSpectralRegion() != null)
+			writer.writeAttribute("region",""+device.getSpectralRegion());
+		if(device.getFilterType() != null)
+		{
+			writer.writeStartElement("Filter");
+			writer.writeTextElement("FilterType",device.getFilterType());
+			writer.writeEndElement();
+		}
+		if(device.getDetector() != null)
+			createDetector(device.getDetector());
+		if(device.getGrating() != null)
+			createGrating(device.getGrating());
+		if(device.getName() != null)
+			writer.writeCharacters(device.getName());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Detector element.
+	 * @param detector The Java object containing the detector data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDetector
+	 */
+	private void createDetector(RTMLDetector detector) throws IOException
+	{
+		writer.writeStartElement("Detector");
+		writer.writeStartElement("Binning");
+		writer.writeAttribute("rows",""+detector.getRowBinning());
+		writer.writeAttribute("columns",""+detector.getColumnBinning());
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Grating element.
+	 * @param grating The Java object containing the grating data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLGrating
+	 */
+	private void createGrating(RTMLGrating grating) throws IOException
+	{
+		writer.writeStartElement("Grating");
+		if(grating.getName() != null)
+			writer.writeAttribute("name",grating.getName());
+		if(grating.getWavelength() != 0.0)
+			writer.writeAttribute("wavelength",grating.getWavelengthString());
+		if(grating.getWavelengthUnits() != null)
+			writer.writeAttribute("units",grating.getWavelengthUnits());
+		if(grating.getResolution() != 0.0)
+			writer.writeAttribute("resolution",grating.getResolutionString());
+		if(grating.getAngle() != 0.0)
+			writer.writeAttribute("angle",grating.getAngleString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an Observation element.
+	 * @param observation The Java object containing the observation data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #createTarget
+	 * @see #createDevice
+	 * @see #createSchedule
+	 * @see #createImageData
+	 */
+	private void createObservation(RTMLObservation observation) throws IOException
+	{
+		writer.writeStartElement("Observation");
+		if(observation.getTarget() != null)
+			createTarget(observation.getTarget());
+		if(observation.getDevice() != null)
+			createDevice(observation.getDevice());
+		if(observation.getSchedule() != null)
+			createSchedule(observation.getSchedule());
+		for(int i = 0; i < observation.getImageDataCount(); i++)
+			createImageData(observation.getImageData(i));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Target element.
+	 * @param target The Java object containing the target data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLTarget
+	 * @see #createAngleOffset
+	 */
+	private void createTarget(RTMLTarget target) throws IOException
+	{
+		writer.writeStartElement("Target");
+		writer.writeAttribute("type",target.getType());
+		if(target.getIdent() != null)
+			writer.writeAttribute("ident",target.getIdent());
+		if(target.getName() != null)
+			writer.writeTextElement("TargetName",target.getName());
+		writer.writeStartElement("Coordinates");
+		if(target.getRA() != null)
+		{
+			writer.writeStartElement("RightAscension");
+			writer.writeAttribute("units","hms");
+			writer.writeAttribute("format","hh mm ss.ss");
+			writer.writeCharacters(target.getRA().toString(' '));
+			if(target.getRAOffset() != 0.0)
+				createAngleOffset(target.getRAOffset());
+			writer.writeEndElement();
+		}
+		if(target.getDec() != null)
+		{
+			writer.writeStartElement("Declination");
+			writer.writeAttribute("units","dms");
+			writer.writeAttribute("format","sdd mm ss.ss");
+			writer.writeCharacters(target.getDec().toString(' '));
+			if(target.getDecOffset() != 0.0)
+				createAngleOffset(target.getDecOffset());
+			writer.writeEndElement();
+		}
+		if(target.getEquinox() != null)
+			writer.writeTextElement("Equinox",target.getEquinox());
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an AngleOffset element, in arcseconds.
+	 * @param offset The offset in arcseconds.
+	 * @exception IOException Thrown if writing fails.
+	 */
+	private void createAngleOffset(double offset) throws IOException
+	{
+		createUnitsElement("AngleOffset","arcseconds",offsetFormat.format(offset));
+	}
+
+	/**
+	 * Write a Schedule element.
+	 * @param schedule The Java object containing the schedule data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSchedule
+	 * @see #createTimeConstraint
+	 * @see #createSeriesConstraint
+	 * @see #createSeeingConstraint
+	 * @see #createMoonConstraint
+	 * @see #createSkyConstraint
+	 */
+	private void createSchedule(RTMLSchedule schedule) throws IOException
+	{
+		writer.writeStartElement("Schedule");
+		writer.writeAttribute("priority",""+schedule.getPriority());
+		writer.writeStartElement("Exposure");
+		if(schedule.getExposureType() != null)
+			writer.writeAttribute("type",schedule.getExposureType());
+		if(schedule.getExposureUnits() != null)
+			writer.writeAttribute("units",schedule.getExposureUnits());
+		if(schedule.getExposureCount() != 1)
+			writer.writeTextElement("Count",""+schedule.getExposureCount());
+		writer.writeCharacters(""+schedule.getExposureLength());
+		writer.writeEndElement();
+		if((schedule.getStartDate() != null) || (schedule.getEndDate() != null))
+			createTimeConstraint(schedule);
+		if(schedule.getSeriesConstraint() != null)
+			createSeriesConstraint(schedule.getSeriesConstraint());
+		if(schedule.getSeeingConstraint() != null)
+			createSeeingConstraint(schedule.getSeeingConstraint());
+		if(schedule.getMoonConstraint() != null)
+			createMoonConstraint(schedule.getMoonConstraint());
+		if(schedule.getSkyConstraint() != null)
+			createSkyConstraint(schedule.getSkyConstraint());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a TimeConstraint element.
+	 * @param schedule The Java object containing the schedule data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDateFormat#format
+	 */
+	private void createTimeConstraint(RTMLSchedule schedule) throws IOException
+	{
+		RTMLDateFormat dateFormat = null;
+
+		dateFormat = RTMLDateFormat.getInstance();
+		writer.writeStartElement("TimeConstraint");
+		if(schedule.getStartDate() != null)
+			writer.writeTextElement("StartDateTime",dateFormat.format(schedule.getStartDate()));
+		if(schedule.getEndDate() != null)
+			writer.writeTextElement("EndDateTime",dateFormat.format(schedule.getEndDate()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SeriesConstraint element.
+	 * @param seriesConstraint The Java object containing the series constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSeriesConstraint
+	 */
+	private void createSeriesConstraint(RTMLSeriesConstraint seriesConstraint) throws IOException
+	{
+		writer.writeStartElement("SeriesConstraint");
+		if(seriesConstraint.getCount() != 0)
+			writer.writeTextElement("Count",""+seriesConstraint.getCount());
+		if(seriesConstraint.getInterval() != null)
+			writer.writeTextElement("Interval",seriesConstraint.getInterval().toString());
+		if(seriesConstraint.getTolerance() != null)
+			writer.writeTextElement("Tolerance",seriesConstraint.getTolerance().toString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SeeingConstraint element.
+	 * @param seeingConstraint The Java object containing the seeing constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSeeingConstraint
+	 */
+	private void createSeeingConstraint(RTMLSeeingConstraint seeingConstraint) throws IOException
+	{
+		writer.writeStartElement("SeeingConstraint");
+		writer.writeAttribute("minimum",valueFormat.format(seeingConstraint.getMinimum()));
+		writer.writeAttribute("maximum",valueFormat.format(seeingConstraint.getMaximum()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a MoonConstraint element.
+	 * @param moonConstraint The Java object containing the moon constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLMoonConstraint
+	 */
+	private void createMoonConstraint(RTMLMoonConstraint moonConstraint) throws IOException
+	{
+		writer.writeStartElement("MoonConstraint");
+		writer.writeAttribute("distance",valueFormat.format(moonConstraint.getDistance()));
+		writer.writeAttribute("units",moonConstraint.getUnits());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SkyConstraint element.
+	 * @param skyConstraint The Java object containing the sky constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSkyConstraint
+	 */
+	private void createSkyConstraint(RTMLSkyConstraint skyConstraint) throws IOException
+	{
+		writer.writeStartElement("SkyConstraint");
+		if(skyConstraint.getSky() != null)
+			writer.writeAttribute("sky",skyConstraint.getSky());
+		if(skyConstraint.getUseValue())
+		{
+			writer.writeAttribute("flux",fluxFormat.format(skyConstraint.getValue()));
+			writer.writeAttribute("units",skyConstraint.getUnits());
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an ImageData element. As in RTML22Create, the image data URL is written as text after the
+	 * sub-elements, and the type attribute is deduced from the URL if it is not set.
+	 * @param imageData The Java object containing the image data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLImageData
+	 */
+	private void createImageData(RTMLImageData imageData) throws IOException
+	{
+		String imageDataType = null;
+		String s = null;
+
+		// get image data type, if no imageDataType has been set, we can deduce this from the end of the URL
+		imageDataType = imageData.getImageDataType();
+		if(imageData.getImageDataURL() != null)
+		{
+			s = imageData.getImageDataURL().toString();
+			if(imageDataType == null)
+			{
+				if(s.endsWith(".fits"))
+					imageDataType = new String("FITS16");
+				else if(s.endsWith(".jpg"))
+					imageDataType = new String("jpg");
+			}
+		}
+		writer.writeStartElement("ImageData");
+		if(imageDataType != null)
+			writer.writeAttribute("type",imageDataType);
+		writer.writeAttribute("delivery","url");
+		writer.writeAttribute("reduced","true");
+		if(imageData.getFITSHeader() != null)
+		{
+			writer.writeStartElement("FITSHeader");
+			writer.writeAttribute("type","all");// all fits headers
+			writer.writeCharacters(imageData.getFITSHeader());
+			writer.writeEndElement();
+		}
+		if(imageData.isObjectListTypeCluster())
+		{
+			writer.writeStartElement("ObjectList");
+			writer.writeAttribute("type",imageData.getObjectListType());
+			writer.writeAttribute("format"," fn sn rah ram ras decd decm decs xpos ypos mag magerror magflag");
+			writer.writeCharacters(imageData.getObjectListCluster());
+			writer.writeEndElement();
+		}
+		if(imageData.isObjectListTypeVOTableURL())
+		{
+			writer.writeStartElement("ObjectList");
+			writer.writeAttribute("type",imageData.getObjectListType());
+			writer.writeCharacters(imageData.getObjectListVOTableURL().toString());
+			writer.writeEndElement();
+		}
+		if(s != null)
+			writer.writeCharacters(s);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Score element.
+	 * @param score The document score.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLReplyPatcher
+	 */
+	void createScore(Double score) throws IOException
+	{
+		writer.writeTextElement("Score",scoreFormat.format(score.doubleValue()));
+	}
+
+	/**
+	 * Write a Scores element, and it's Score sub-elements.
+	 * @param rtmlDocument The RTML document.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDocument#getScore
+	 */
+	private void createScores(RTMLDocument rtmlDocument) throws IOException
+	{
+		writer.writeStartElement("Scores");
+		for(int i = 0; i < rtmlDocument.getScoresListCount(); i++)
+			createScore(rtmlDocument.getScore(i));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Scores Score element.
+	 * @param score The score.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLReplyPatcher
+	 */
+	void createScore(RTMLScore score) throws IOException
+	{
+		writer.writeStartElement("Score");
+		writer.writeAttribute("delay",score.getDelay().toString());
+		if(Double.isNaN(score.getProbability()))
+			writer.writeAttribute("probability","NaN");
+		else
+			writer.writeAttribute("probability",scoresFormat.format(score.getProbability()));
+		if(Double.isNaN(score.getCumulative()))
+			writer.writeAttribute("cumulative","NaN");
+		else
+			writer.writeAttribute("cumulative",scoresFormat.format(score.getCumulative()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a CompletionTime element.
+	 * @param completionTime The completion time.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDateFormat#format
+	 * @see org.estar.rtml.RTMLReplyPatcher
+	 */
+	void createCompletionTime(Date completionTime) throws IOException
+	{
+		writer.writeTextElement("CompletionTime",RTMLDateFormat.getInstance().format(completionTime));
+	}
+
+	/**
+	 * Write an element with a units attribute and text content.
+	 * @param name The element name.
+	 * @param units The value of the units attribute.
+	 * @param s The text content.
+	 * @exception IOException Thrown if writing fails.
+	 */
+	private void createUnitsElement(String name,String units,String s) throws IOException
+	{
+		writer.writeStartElement(name);
+		writer.writeAttribute("units",units);
+		writer.writeCharacters(s);
+		writer.writeEndElement();
+	}
+}
@@ -0,0 +1,1347 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTML22StreamParser.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import java.net.URL;
+import java.net.MalformedURLException;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.estar.astrometry.*;
+
+/**
+ * This class provides the capability of parsing an RTML 2.2 document using a StAX stream reader,
+ * extracting the relevant eSTAR data directly into an RTMLDocument without building a DOM tree.
+ * Each parseXElement method mirrors the equivalent parseXNode method in RTML22Parser, so the resultant
+ * RTMLDocument is the same as the one produced by RTML22Parser.parseRTMLNode.
+ * Each method is called with the reader positioned at the start element it parses, and leaves the reader
+ * positioned at the matching end element.
+ * Many RTML 2.2 elements have mixed content (e.g. the RTML element contains the error string
+ * of a reject document), these are walked using nextChildNode.
+ * Extends RTMLStreamParser to make use of methods common to the stream parsers (parseIntegerElement etc).
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTML22Parser
+ * @see org.estar.rtml.RTMLStreamParser
+ * @see org.estar.rtml.RTMLStreamParser#nextChildNode
+ */
+public class RTML22StreamParser extends RTMLStreamParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+
+	/**
+	 * Default constructor.
+	 */
+	public RTML22StreamParser()
+	{
+		super();
+	}
+
+	/**
+	 * Method to parse the RTML element.
+	 * @param reader The stream reader, positioned at the RTML start element.
+	 * @param rtmlDocument The RTMLDocument instance to fill with the parsed data.
+	 * @exception RTMLException Thrown if a strange child is in the element,
+	 *            or the score/completion time fails to parse.
+	 * @exception ParseException Thrown if parsing a date fails.
+	 * @see RTMLDocument#setVersion
+	 * @see RTMLDocument#setType
+	 * @see RTMLDocument#setErrorString
+	 * @see #parseContactElement
+	 * @see #parseProjectElement
+	 * @see #parseIntelligentAgentElement
+	 * @see #parseDeviceElement
+	 * @see #parseObservationElement
+	 * @see #parseScoreElement
+	 * @see #parseScoresElement
+	 * @see #parseTelescopeElement
+	 * @see #parseCompletionTimeElement
+	 * @see org.estar.rtml.RTML22Parser#parseRTMLNode
+	 */
+	protected void parseRTMLElement(XMLStreamReader reader,RTMLDocument rtmlDocument) throws RTMLException,
+											       ParseException
+	{
+		String elementName = null;
+		String type = null;
+		String version = null;
+		int childType;
+
+		// check current element is correct
+		checkElement("parseRTMLElement",reader,"RTML");
+		// check version
+		version = reader.getAttributeValue(null,"version");
+		if(version == null)
+			throw new RTMLException(this.getClass().getName()+":parseRTMLElement:Version was null.");
+		rtmlDocument.setVersion(version);
+		if(version.equals(RTMLDocument.RTML_VERSION_22) == false)
+		{
+			throw new RTMLException(this.getClass().getName()+":parseRTMLElement:Unsupported Version:"+
+						version);
+		}
+		// type (mode in RTML 3.1)
+		type = getRequiredAttribute("parseRTMLElement",reader,"type");
+		rtmlDocument.setType(type);
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_ELEMENT)
+			{
+				elementName = getElementName(reader);
+				if(RTMLParser.parseProfileIncludes(parseProfile,elementName) == false)
+					skipElement(reader);
+				else if(elementName.equals("Contact"))
+					parseContactElement(rtmlDocument,reader);
+				else if(elementName.equals("Project"))
+					parseProjectElement(rtmlDocument,reader);
+				else if(elementName.equals("IntelligentAgent"))
+					parseIntelligentAgentElement(rtmlDocument,reader);
+				else if(elementName.equals("Device"))
+					parseDeviceElement(rtmlDocument,reader);
+				else if(elementName.equals("Observation"))
+					parseObservationElement(rtmlDocument,reader);
+				else if(elementName.equals("Score"))
+					parseScoreElement(rtmlDocument,reader);
+				else if(elementName.equals("Scores"))
+					parseScoresElement(rtmlDocument,reader);
+				else if(elementName.equals("Telescope"))
+					parseTelescopeElement(rtmlDocument,reader);
+				else if(elementName.equals("CompletionTime"))
+					parseCompletionTimeElement(rtmlDocument,reader);
+				else
+					skipElement(reader);
+			}
+			else
+			{
+				if((type.equals("reject"))||(type.equals("fail"))||(type.equals("abort")))
+					rtmlDocument.setErrorString(childText);
+			}
+		}
+	}
+
+	// private methods
+	/**
+	 * Internal method to parse the text children of an element, returning the last text node that is
+	 * not all whitespace. The text is not trimmed. This is the pattern used by most of the RTML22Parser
+	 * parseXNode methods for elements containing a simple string.
+	 * @param reader The stream reader, positioned at the start element. Left at the matching end element.
+	 * @return The last non-whitespace text node, or null if there is none.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see #parseTextNodes
+	 */
+	private String parseNonBlankText(XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String s = null;
+		String valueString = null;
+
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			// ensure it is not all whitespace
+			if(s.trim().length() > 0)
+				valueString = s;
+		}
+		return valueString;
+	}
+
+	/**
+	 * Internal method to parse a Contact element.
+	 * @param rtmlDocument The document to add the contact to.
+	 * @param reader The stream reader, positioned at the Contact start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a URL is illegal.
+	 * @see #parseNonBlankText
+	 * @see org.estar.rtml.RTML22Parser
+	 */
+	private void parseContactElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLContact contact = null;
+		URL url = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseContactElement",reader,"Contact");
+		// add contact
+		contact = new RTMLContact();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("User"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setUser(s);
+			}
+			else if(elementName.equals("Name"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setName(s);
+			}
+			else if(elementName.equals("Institution"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setInstitution(s);
+			}
+			else if(elementName.equals("Address"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setAddress(s);
+			}
+			else if(elementName.equals("Telephone"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setTelephone(s);
+			}
+			else if(elementName.equals("Fax"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setFax(s);
+			}
+			else if(elementName.equals("Email"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					contact.setEmail(s);
+			}
+			else if(elementName.equals("Url"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+				{
+					try
+					{
+						url = new URL(s);
+					}
+					catch(MalformedURLException e)
+					{
+						throw new RTMLException(this.getClass().getName()+
+									":parseContactElement:Illegal URL ["+s+"]",e);
+					}
+					contact.setUrl(url);
+				}
+			}
+			else
+			{
+				System.err.println("parseContactElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set contact in RTML document.
+		rtmlDocument.setContact(contact);
+	}
+
+	/**
+	 * Internal method to parse a Project element.
+	 * @param rtmlDocument The document to add the project to.
+	 * @param reader The stream reader, positioned at the Project start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 */
+	private void parseProjectElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLProject project = null;
+		int childType;
+
+		// check current element is correct
+		checkElement("parseProjectElement",reader,"Project");
+		// add project
+		project = new RTMLProject();
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_TEXT)
+			{
+				// ensure it is not all whitespace
+				if(childText.trim().length() > 0)
+					project.setProject(childText);
+			}
+			else
+			{
+				System.err.println("parseProjectElement:ELEMENT:"+getElementName(reader));
+				skipElement(reader);
+			}
+		}
+		// Set project in RTML document.
+		rtmlDocument.setProject(project);
+	}
+
+	/**
+	 * Internal method to parse a Telescope element.
+	 * @param rtmlDocument The document to add the telescope to.
+	 * @param reader The stream reader, positioned at the Telescope start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseApertureElement
+	 * @see #parseFocalLengthElement
+	 * @see #parseTelescopeLocationElement
+	 */
+	private void parseTelescopeElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLTelescope telescope = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseTelescopeElement",reader,"Telescope");
+		// add telescope
+		telescope = new RTMLTelescope();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Name"))
+				telescope.setName(parseStringElement("Name",reader));
+			else if(elementName.equals("Aperture"))
+				parseApertureElement(telescope,reader);
+			else if(elementName.equals("FocalLength"))
+				parseFocalLengthElement(telescope,reader);
+			else if(elementName.equals("FocalRatio"))
+				telescope.setFocalRatio(parseStringElement("FocalRatio",reader));
+			else if(elementName.equals("Location"))
+				parseTelescopeLocationElement(telescope,reader);
+			else
+			{
+				System.err.println("parseTelescopeElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set telescope in RTML document.
+		rtmlDocument.setTelescope(telescope);
+	}
+
+	/**
+	 * Internal method to parse a Telescope's Aperture element.
+	 * @param telescope The telescope to set the aperture of.
+	 * @param reader The stream reader, positioned at the Aperture start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the aperture is illegal.
+	 * @see #parseNonBlankText
+	 */
+	private void parseApertureElement(RTMLTelescope telescope,XMLStreamReader reader) throws RTMLException
+	{
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseApertureElement",reader,"Aperture");
+		// units
+		telescope.setApertureUnits(reader.getAttributeValue(null,"units"));
+		// aperture
+		s = parseNonBlankText(reader);
+		if(s != null)
+			telescope.setAperture(s);
+	}
+
+	/**
+	 * Internal method to parse a Telescope's FocalLength element.
+	 * @param telescope The telescope to set the focal length of.
+	 * @param reader The stream reader, positioned at the FocalLength start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the focal length is illegal.
+	 * @see #parseNonBlankText
+	 */
+	private void parseFocalLengthElement(RTMLTelescope telescope,XMLStreamReader reader) throws RTMLException
+	{
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseFocalLengthElement",reader,"FocalLength");
+		// units
+		telescope.setFocalLengthUnits(reader.getAttributeValue(null,"units"));
+		// focal length
+		s = parseNonBlankText(reader);
+		if(s != null)
+			telescope.setFocalLength(s);
+	}
+
+	/**
+	 * Internal method to parse a Telescope's Location element.
+	 * @param telescope The telescope to set the location of.
+	 * @param reader The stream reader, positioned at the Location start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 */
+	private void parseTelescopeLocationElement(RTMLTelescope telescope,XMLStreamReader reader)
+		throws RTMLException
+	{
+		RTMLTelescopeLocation location = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseTelescopeLocationElement",reader,"Location");
+		// add location data to telescope
+		location = new RTMLTelescopeLocation();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Name"))
+				location.setName(parseStringElement("Name",reader));
+			else if(elementName.equals("Longitude"))
+			{
+				// assume value is a double in degrees, east of Greenwich, in the format "d.ddd E"
+				s = parseStringElement("Longitude",reader);
+				// if string ends with " E" strip this to get parsable double
+				if(s.endsWith(" E"))
+					s = s.substring(0,s.length()-2);
+				location.setLongitude(s);
+			}
+			else if(elementName.equals("Latitude"))
+				location.setLatitude(parseStringElement("Latitude",reader));
+			else if(elementName.equals("Altitude"))
+				location.setAltitude(parseStringElement("Altitude",reader));
+			else
+			{
+				System.err.println("parseTelescopeLocationElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set location in telescope.
+		telescope.setLocation(location);
+	}
+
+	/**
+	 * Internal method to parse an IntelligentAgent element. The host and port attributes are parsed,
+	 * and the element text is the agent's id.
+	 * @param rtmlDocument The document to add the intelligent agent to.
+	 * @param reader The stream reader, positioned at the IntelligentAgent start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the port is not a number.
+	 * @see #parseNonBlankText
+	 * @see org.estar.rtml.RTMLIntelligentAgent
+	 */
+	private void parseIntelligentAgentElement(RTMLDocument rtmlDocument,XMLStreamReader reader)
+		throws RTMLException
+	{
+		RTMLIntelligentAgent intelligentAgent = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseIntelligentAgentElement",reader,"IntelligentAgent");
+		// add intelligentAgent
+		intelligentAgent = new RTMLIntelligentAgent();
+		// host
+		intelligentAgent.setHostname(reader.getAttributeValue(null,"host"));
+		// port
+		s = reader.getAttributeValue(null,"port");
+		if(s != null)
+			intelligentAgent.setPort(s);
+		else
+			intelligentAgent.setPort(0);
+		// id
+		s = parseNonBlankText(reader);
+		if(s != null)
+			intelligentAgent.setId(s);
+		// set intelligentAgent in RTML document.
+		rtmlDocument.setIntelligentAgent(intelligentAgent);
+	}
+
+	/**
+	 * Internal method to parse a Device element.
+	 * @param rtmlDeviceHolder The document or observation to set the device of.
+	 * @param reader The stream reader, positioned at the Device start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseFilterElement
+	 * @see #parseDetectorElement
+	 * @see #parseGratingElement
+	 */
+	private void parseDeviceElement(RTMLDeviceHolder rtmlDeviceHolder,XMLStreamReader reader)
+		throws RTMLException
+	{
+		RTMLDevice device = null;
+		String elementName = null;
+		String s = null;
+		int childType;
+
+		// check current element is correct
+		checkElement("parseDeviceElement",reader,"Device");
+		// add device
+		device = new RTMLDevice();
+		// type
+		s = reader.getAttributeValue(null,"type");
+		if(s != null)
+			device.setType(s);
+		// spectral region
+		s = reader.getAttributeValue(null,"region");
+		if(s != null)
+			device.setSpectralRegion(s);
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_ELEMENT)
+			{
+				elementName = getElementName(reader);
+				if(elementName.equals("Filter"))
+					parseFilterElement(device,reader);
+				else if(elementName.equals("Detector"))
+					parseDetectorElement(device,reader);
+				else if(elementName.equals("Grating"))
+					parseGratingElement(device,reader);
+				else
+					skipElement(reader);
+			}
+			else
+			{
+				if(childText.trim().length() > 0)
+					device.setName(childText);
+			}
+		}
+		// set device in device holder (RTML document/RTML Observation).
+		rtmlDeviceHolder.setDevice(device);
+	}
+
+	/**
+	 * Internal method to parse a Device's Filter element.
+	 * @param device The device to set the filter type of.
+	 * @param reader The stream reader, positioned at the Filter start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseNonBlankText
+	 */
+	private void parseFilterElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseFilterElement",reader,"Filter");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			if(getElementName(reader).equals("FilterType"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					device.setFilterType(s);
+			}
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a Device's Detector element.
+	 * @param device The device to set the detector of.
+	 * @param reader The stream reader, positioned at the Detector start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the binning is illegal.
+	 * @see org.estar.rtml.RTMLDetector
+	 */
+	private void parseDetectorElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLDetector detector = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseDetectorElement",reader,"Detector");
+		// add detector
+		detector = new RTMLDetector();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			if(getElementName(reader).equals("Binning"))
+			{
+				// row binning
+				s = reader.getAttributeValue(null,"rows");
+				if(s != null)
+					detector.setRowBinning(s);
+				// column binning
+				s = reader.getAttributeValue(null,"columns");
+				if(s != null)
+					detector.setColumnBinning(s);
+			}
+			skipElement(reader);
+		}
+		// set detector in device.
+		device.setDetector(detector);
+	}
+
+	/**
+	 * Internal method to parse a Device's Grating element.
+	 * @param device The device to set the grating of.
+	 * @param reader The stream reader, positioned at the Grating start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or an attribute is illegal.
+	 * @see org.estar.rtml.RTMLGrating
+	 */
+	private void parseGratingElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLGrating grating = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseGratingElement",reader,"Grating");
+		// add grating
+		grating = new RTMLGrating();
+		// name
+		s = reader.getAttributeValue(null,"name");
+		if(s != null)
+			grating.setName(s);
+		// wavelength
+		s = reader.getAttributeValue(null,"wavelength");
+		if(s != null)
+			grating.setWavelength(s);
+		// wavelength units
+		s = reader.getAttributeValue(null,"units");
+		if(s != null)
+			grating.setWavelengthUnits(s);
+		// resolution
+		s = reader.getAttributeValue(null,"resolution");
+		if(s != null)
+			grating.setResolution(s);
+		// angle
+		s = reader.getAttributeValue(null,"angle");
+		if(s != null)
+			grating.setAngle(s);
+		skipElement(reader);
+		// set grating in device.
+		device.setGrating(grating);
+	}
+
+	/**
+	 * Internal method to parse an Observation element.
+	 * @param rtmlDocument The document to add the observation to.
+	 * @param reader The stream reader, positioned at the Observation start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseDeviceElement
+	 * @see #parseTargetElement
+	 * @see #parseScheduleElement
+	 * @see #parseImageDataElement
+	 */
+	private void parseObservationElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLObservation observation = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseObservationElement",reader,"Observation");
+		// add observation
+		observation = new RTMLObservation();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Device"))
+				parseDeviceElement(observation,reader);
+			else if(elementName.equals("Target"))
+				parseTargetElement(observation,reader);
+			else if(elementName.equals("Schedule"))
+				parseScheduleElement(observation,reader);
+			else if(elementName.equals("ImageData"))
+			{
+				if(RTMLParser.parseProfileIncludes(parseProfile,"ImageData"))
+					parseImageDataElement(observation,reader);
+				else
+					skipElement(reader);
+			}
+			else
+			{
+				System.err.println("parseObservationElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// add observation to RTML document.
+		rtmlDocument.addObservation(observation);
+	}
+
+	/**
+	 * Internal method to parse a Target element.
+	 * @param observation The observation to set the target of.
+	 * @param reader The stream reader, positioned at the Target start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the type attribute is missing.
+	 * @see #parseCoordinatesElement
+	 */
+	private void parseTargetElement(RTMLObservation observation,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLTarget target = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseTargetElement",reader,"Target");
+		// add target
+		target = new RTMLTarget();
+		// type
+		target.setType(getRequiredAttribute("parseTargetElement",reader,"type"));
+		// ident
+		target.setIdent(reader.getAttributeValue(null,"ident"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("TargetName"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					target.setName(s);
+			}
+			else if(elementName.equals("Coordinates"))
+				parseCoordinatesElement(target,reader);
+			else
+			{
+				System.err.println("parseTargetElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// add target to observation.
+		observation.setTarget(target);
+	}
+
+	/**
+	 * Internal method to parse a Target's Coordinates element.
+	 * @param target The target to set the coordinates of.
+	 * @param reader The stream reader, positioned at the Coordinates start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseRightAscensionElement
+	 * @see #parseDeclinationElement
+	 */
+	private void parseCoordinatesElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseCoordinatesElement",reader,"Coordinates");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("RightAscension"))
+				parseRightAscensionElement(target,reader);
+			else if(elementName.equals("Declination"))
+				parseDeclinationElement(target,reader);
+			else if(elementName.equals("Equinox"))
+			{
+				s = parseNonBlankText(reader);
+				if(s != null)
+					target.setEquinox(s);
+			}
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a RightAscension element. The units attribute should be "radians" or "hms".
+	 * @param target The target to set the right ascension of.
+	 * @param reader The stream reader, positioned at the RightAscension start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the units are illegal.
+	 * @see #parseAngleOffsetElement
+	 */
+	private void parseRightAscensionElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		RA ra = null;
+		String units = null;
+		int childType;
+
+		// check current element is correct
+		checkElement("parseRightAscensionElement",reader,"RightAscension");
+		// units
+		units = getRequiredAttribute("parseRightAscensionElement",reader,"units");
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_ELEMENT)
+			{
+				if(getElementName(reader).equals("AngleOffset"))
+					target.setRAOffset(parseAngleOffsetElement(reader));
+				else
+					skipElement(reader);
+			}
+			else if(childText.trim().length() > 0)
+			{
+				if(units.equals("radians"))
+				{
+					ra = new RA();
+					ra.fromRadians(Double.parseDouble(childText));
+					target.setRA(ra);
+				}
+				else if(units.equals("hms"))
+				{
+					ra = new RA();
+					ra.parseSpace(childText);
+					target.setRA(ra);
+				}
+				else
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseRightAscensionElement:Illegal Units:"+units+
+								":value:"+childText);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Declination element. The units attribute should be "radians" or "dms".
+	 * @param target The target to set the declination of.
+	 * @param reader The stream reader, positioned at the Declination start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the units are illegal.
+	 * @see #parseAngleOffsetElement
+	 */
+	private void parseDeclinationElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		Dec dec = null;
+		String units = null;
+		int childType;
+
+		// check current element is correct
+		checkElement("parseDeclinationElement",reader,"Declination");
+		// units
+		units = getRequiredAttribute("parseDeclinationElement",reader,"units");
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_ELEMENT)
+			{
+				if(getElementName(reader).equals("AngleOffset"))
+					target.setDecOffset(parseAngleOffsetElement(reader));
+				else
+					skipElement(reader);
+			}
+			else if(childText.trim().length() > 0)
+			{
+				if(units.equals("radians"))
+				{
+					dec = new Dec();
+					dec.fromRadians(Double.parseDouble(childText));
+					target.setDec(dec);
+				}
+				else if(units.equals("dms"))
+				{
+					dec = new Dec();
+					dec.parseSpace(childText);
+					target.setDec(dec);
+				}
+				else
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseDeclinationElement:Illegal Units:"+units+
+								":value:"+childText);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse an AngleOffset element. The units check is the same as
+	 * RTML22Parser.parseAngleOffsetNode.
+	 * @param reader The stream reader, positioned at the AngleOffset start element.
+	 * @return The offset, in arcseconds.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the units are illegal.
+	 * @see #parseTextNodes
+	 * @see org.estar.rtml.RTML22Parser
+	 */
+	private double parseAngleOffsetElement(XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String units = null;
+		double value = 0.0;
+
+		// check current element is correct
+		checkElement("parseAngleOffsetElement",reader,"AngleOffset");
+		// units
+		units = getRequiredAttribute("parseAngleOffsetElement",reader,"units");
+		if(units.equals("arcsec")||units.equals("arcsecs")||units.equals("arcseconds") == false)
+		{
+			throw new RTMLException(this.getClass().getName()+
+						":parseAngleOffsetElement:Units are not arcseconds:"+units);
+		}
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+			value = Double.parseDouble((String)(textList.get(i)));
+		return value;
+	}
+
+	/**
+	 * Internal method to parse a Schedule element.
+	 * @param observation The observation to set the schedule of.
+	 * @param reader The stream reader, positioned at the Schedule start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a date fails to parse.
+	 * @see #parseExposureElement
+	 * @see #parseTimeConstraintElement
+	 * @see #parseSeriesConstraintElement
+	 * @see #parseSeeingConstraintElement
+	 * @see #parseMoonConstraintElement
+	 * @see #parseSkyConstraintElement
+	 */
+	private void parseScheduleElement(RTMLObservation observation,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLSchedule schedule = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseScheduleElement",reader,"Schedule");
+		// add schedule
+		schedule = new RTMLSchedule();
+		// priority
+		s = reader.getAttributeValue(null,"priority");
+		if(s != null)
+			schedule.setPriority(s);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Exposure"))
+				parseExposureElement(schedule,reader);
+			else if(elementName.equals("TimeConstraint"))
+				parseTimeConstraintElement(schedule,reader);
+			else if(elementName.equals("SeriesConstraint"))
+				parseSeriesConstraintElement(schedule,reader);
+			else if(elementName.equals("SeeingConstraint"))
+				parseSeeingConstraintElement(schedule,reader);
+			else if(elementName.equals("MoonConstraint"))
+				parseMoonConstraintElement(schedule,reader);
+			else if(elementName.equals("SkyConstraint"))
+				parseSkyConstraintElement(schedule,reader);
+			else
+				skipElement(reader);
+		}
+		// add schedule to observation
+		observation.setSchedule(schedule);
+	}
+
+	/**
+	 * Internal method to parse an Exposure element. The element text is the exposure length,
+	 * and it may contain a Count element.
+	 * @param schedule The schedule to set the exposure of.
+	 * @param reader The stream reader, positioned at the Exposure start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a required attribute is missing.
+	 * @see #parseIntegerElement
+	 */
+	private void parseExposureElement(RTMLSchedule schedule,XMLStreamReader reader) throws RTMLException
+	{
+		int childType;
+
+		// check current element is correct
+		checkElement("parseExposureElement",reader,"Exposure");
+		// exposure type
+		schedule.setExposureType(getRequiredAttribute("parseExposureElement",reader,"type"));
+		// exposure units
+		schedule.setExposureUnits(getRequiredAttribute("parseExposureElement",reader,"units"));
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_ELEMENT)
+			{
+				if(getElementName(reader).equals("Count"))
+					schedule.setExposureCount(parseIntegerElement(reader));
+				else
+					skipElement(reader);
+			}
+			else if(childText.trim().length() > 0)
+				schedule.setExposureLength(childText);
+		}
+	}
+
+	/**
+	 * Internal method to parse a TimeConstraint element.
+	 * @param schedule The schedule to set the start and end dates of.
+	 * @param reader The stream reader, positioned at the TimeConstraint start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a date is illegal.
+	 * @see #parseDateTimeElement
+	 */
+	private void parseTimeConstraintElement(RTMLSchedule schedule,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseTimeConstraintElement",reader,"TimeConstraint");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("StartDateTime"))
+				schedule.setStartDate(parseDateTimeElement(reader));
+			else if(elementName.equals("EndDateTime"))
+				schedule.setEndDate(parseDateTimeElement(reader));
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse an element containing a date. The text "never" is parsed as a null date.
+	 * @param reader The stream reader, positioned at the start element. Left at the matching end element.
+	 * @return The parsed date, or null.
+	 * @exception RTMLException Thrown if the date is illegal.
+	 * @see RTMLDateFormat
+	 */
+	private Date parseDateTimeElement(XMLStreamReader reader) throws RTMLException
+	{
+		RTMLDateFormat dateFormat = null;
+		List textList = null;
+		Date date = null;
+		String s = null;
+
+		dateFormat = RTMLDateFormat.getInstance();
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			if(s.equals("never"))
+				date = null;
+			else
+			{
+				try
+				{
+					date = dateFormat.parse(s);
+				}
+				catch(ParseException e)
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseDateTimeElement:Illegal Date/Time:"+s+":",e);
+				}
+			}
+		}
+		return date;
+	}
+
+	/**
+	 * Internal method to parse a SeriesConstraint element.
+	 * @param schedule The schedule to set the series constraint of.
+	 * @param reader The stream reader, positioned at the SeriesConstraint start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a period is illegal.
+	 * @see #parseIntegerElement
+	 * @see #parsePeriodElement
+	 */
+	private void parseSeriesConstraintElement(RTMLSchedule schedule,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLSeriesConstraint seriesConstraint = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseSeriesConstraintElement",reader,"SeriesConstraint");
+		// add series constraint
+		seriesConstraint = new RTMLSeriesConstraint();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Count"))
+				seriesConstraint.setCount(parseIntegerElement(reader));
+			else if(elementName.equals("Interval"))
+				seriesConstraint.setInterval(parsePeriodElement(reader));
+			else if(elementName.equals("Tolerance"))
+				seriesConstraint.setTolerance(parsePeriodElement(reader));
+			else
+				skipElement(reader);
+		}
+		// add series constraint to schedule
+		schedule.setSeriesConstraint(seriesConstraint);
+	}
+
+	/**
+	 * Internal method to parse a SeeingConstraint element.
+	 * @param schedule The schedule to set the seeing constraint of.
+	 * @param reader The stream reader, positioned at the SeeingConstraint start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @exception NumberFormatException Thrown if the minimum or maximum is not a number.
+	 */
+	private void parseSeeingConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLSeeingConstraint seeingConstraint = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseSeeingConstraintElement",reader,"SeeingConstraint");
+		// add seeing constraint
+		seeingConstraint = new RTMLSeeingConstraint();
+		// minimum
+		s = reader.getAttributeValue(null,"minimum");
+		if(s != null)
+			seeingConstraint.setMinimum(s);
+		// maximum
+		s = reader.getAttributeValue(null,"maximum");
+		if(s != null)
+			seeingConstraint.setMaximum(s);
+		// ExposureFactor children are not used atm
+		skipElement(reader);
+		// add seeing constraint to schedule
+		schedule.setSeeingConstraint(seeingConstraint);
+	}
+
+	/**
+	 * Internal method to parse a MoonConstraint element.
+	 * @param schedule The schedule to set the moon constraint of.
+	 * @param reader The stream reader, positioned at the MoonConstraint start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @exception NumberFormatException Thrown if the distance is not a number.
+	 */
+	private void parseMoonConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLMoonConstraint moonConstraint = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseMoonConstraintElement",reader,"MoonConstraint");
+		// add moon constraint
+		moonConstraint = new RTMLMoonConstraint();
+		// distance
+		s = reader.getAttributeValue(null,"distance");
+		if(s != null)
+			moonConstraint.setDistance(s);
+		// units
+		s = reader.getAttributeValue(null,"units");
+		if(s != null)
+			moonConstraint.setUnits(s);
+		skipElement(reader);
+		// add moon constraint to schedule
+		schedule.setMoonConstraint(moonConstraint);
+	}
+
+	/**
+	 * Internal method to parse a SkyConstraint element.
+	 * @param schedule The schedule to set the sky constraint of.
+	 * @param reader The stream reader, positioned at the SkyConstraint start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @exception NumberFormatException Thrown if the flux is not a number.
+	 */
+	private void parseSkyConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLSkyConstraint skyConstraint = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseSkyConstraintElement",reader,"SkyConstraint");
+		// add sky constraint
+		skyConstraint = new RTMLSkyConstraint();
+		// sky
+		s = reader.getAttributeValue(null,"sky");
+		if(s != null)
+			skyConstraint.setSky(s);
+		// value flux
+		s = reader.getAttributeValue(null,"flux");
+		if(s != null)
+			skyConstraint.setValue(s);
+		// value units
+		s = reader.getAttributeValue(null,"units");
+		if(s != null)
+			skyConstraint.setUnits(s);
+		skipElement(reader);
+		// add sky constraint to schedule
+		schedule.setSkyConstraint(skyConstraint);
+	}
+
+	/**
+	 * Internal method to parse an ImageData element. The element text is the image data URL.
+	 * @param observation The observation to add the image data to.
+	 * @param reader The stream reader, positioned at the ImageData start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the type attribute is missing.
+	 * @see #parseFITSHeaderElement
+	 * @see #parseObjectListElement
+	 */
+	private void parseImageDataElement(RTMLObservation observation,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLImageData imageData = null;
+		String elementName = null;
+		int childType;
+
+		// check current element is correct
+		checkElement("parseImageDataElement",reader,"ImageData");
+		// create new image data
+		imageData = new RTMLImageData();
+		// type
+		imageData.setImageDataType(getRequiredAttribute("parseImageDataElement",reader,"type"));
+		// go through child nodes
+		while((childType = nextChildNode(reader)) != CHILD_END)
+		{
+			if(childType == CHILD_ELEMENT)
+			{
+				elementName = getElementName(reader);
+				if(elementName.equals("ObjectList"))
+					parseObjectListElement(imageData,reader);
+				else if(elementName.equals("FITSHeader"))
+					parseFITSHeaderElement(imageData,reader);
+				else
+					skipElement(reader);
+			}
+			else if(childText.trim().length() > 0)
+				imageData.setImageDataURL(childText);
+		}
+		// add image data to observation
+		observation.addImageData(imageData);
+	}
+
+	/**
+	 * Internal method to parse a FITSHeader element.
+	 * @param imageData The image data to set the FITS header of.
+	 * @param reader The stream reader, positioned at the FITSHeader start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the type attribute is missing.
+	 * @see #parseTextNodes
+	 */
+	private void parseFITSHeaderElement(RTMLImageData imageData,XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+
+		// check current element is correct
+		checkElement("parseFITSHeaderElement",reader,"FITSHeader");
+		// type
+		getRequiredAttribute("parseFITSHeaderElement",reader,"type");
+		// go through text nodes
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+			imageData.setFITSHeader((String)(textList.get(i)));
+	}
+
+	/**
+	 * Internal method to parse an ObjectList element.
+	 * @param imageData The image data to set the object list of.
+	 * @param reader The stream reader, positioned at the ObjectList start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the type attribute is missing.
+	 * @see #parseTextNodes
+	 */
+	private void parseObjectListElement(RTMLImageData imageData,XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String type = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseObjectListElement",reader,"ObjectList");
+		// type
+		type = getRequiredAttribute("parseObjectListElement",reader,"type");
+		imageData.setObjectListType(type);
+		// go through text nodes
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			if(type.equals("cluster"))
+				imageData.setObjectListCluster(s);
+			if(type.equals("votable-url"))
+			{
+				// ensure it is not all whitespace
+				if(s.trim().length() > 0)
+					imageData.setObjectListVOTableURL(s);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse the document's "simple" Score element.
+	 * @param rtmlDocument The document to set the score of.
+	 * @param reader The stream reader, positioned at the Score start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the score is not a number.
+	 * @see #parseTextNodes
+	 * @see RTMLDocument#setScore(java.lang.String)
+	 */
+	private void parseScoreElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+
+		// check current element is correct
+		checkElement("parseScoreElement",reader,"Score");
+		// go through text nodes
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+			rtmlDocument.setScore((String)(textList.get(i)));
+	}
+
+	/**
+	 * Internal method to parse a Scores element, a list of Score elements each with a delay,
+	 * probability and cumulative attribute.
+	 * @param rtmlDocument The document to add the scores to.
+	 * @param reader The stream reader, positioned at the Scores start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a score is illegal.
+	 * @see #parseScoresScoreElement
+	 * @see RTMLDocument#clearScoresList
+	 */
+	private void parseScoresElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseScoresElement",reader,"Scores");
+		// clear scores list
+		rtmlDocument.clearScoresList();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Score"))
+				parseScoresScoreElement(rtmlDocument,reader);
+			else
+			{
+				System.err.println("parseScoresElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Score element, within a Scores element.
+	 * @param rtmlDocument The document to add the score to.
+	 * @param reader The stream reader, positioned at the Score start element.
+	 * @exception RTMLException Thrown if an attribute is missing, or the score is illegal.
+	 * @see RTMLDocument#addScore(java.lang.String,java.lang.String,java.lang.String)
+	 */
+	private void parseScoresScoreElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		String delayString = null;
+		String probabilityString = null;
+		String cumulativeString = null;
+
+		// check current element is correct
+		checkElement("parseScoresScoreElement",reader,"Score");
+		delayString = getRequiredAttribute("parseScoresScoreElement",reader,"delay");
+		probabilityString = getRequiredAttribute("parseScoresScoreElement",reader,"probability");
+		cumulativeString = getRequiredAttribute("parseScoresScoreElement",reader,"cumulative");
+		skipElement(reader);
+		// parse and add score data to list
+		rtmlDocument.addScore(delayString,probabilityString,cumulativeString);
+	}
+
+	/**
+	 * Internal method to parse a CompletionTime element. The text "never" is parsed as a null completion time.
+	 * @param rtmlDocument The document to set the completion time of.
+	 * @param reader The stream reader, positioned at the CompletionTime start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the time is illegal.
+	 * @see #parseTextNodes
+	 * @see RTMLDocument#setCompletionTime(java.lang.String)
+	 */
+	private void parseCompletionTimeElement(RTMLDocument rtmlDocument,XMLStreamReader reader)
+		throws RTMLException
+	{
+		List textList = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseCompletionTimeElement",reader,"CompletionTime");
+		// go through text nodes
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			if(s.equals("never"))
+				rtmlDocument.setCompletionTime((Date)null);
+			else
+				rtmlDocument.setCompletionTime(s);
+		}
+	}
+}
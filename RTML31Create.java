@@ -78,6 +78,18 @@ public class RTML31Create
 	 * @see #DEFAULT_SCHEMA_URL_STRING
 	 */
 	private static String schemaURLString = new String(DEFAULT_SCHEMA_URL_STRING); 
+	/**
+	 * The namespace of the EphemerisTrack element, used to hold a target's ephemeris track.
+	 * RTML 3.1a has no ephemeris element, but the Target element can contain any element from another namespace.
+	 */
+	public final static String EPHEMERIS_TRACK_NAMESPACE = "http://www.estar.org.uk/rtml/ephemeris-track-v1.0";
+	/**
+	 * The Schema location (URL) of the EphemerisTrack element. A copy of the schema is bundled with this
+	 * package, and served by RTMLEntityResolver.
+	 * @see #EPHEMERIS_TRACK_NAMESPACE
+	 */
+	public final static String EPHEMERIS_TRACK_SCHEMA_URL_STRING =
+		"http://telescope.livjm.ac.uk/rtml/rtml-ephemeris-track-v1.0.xsd";
 	/**
 	 * Private reference to org.w3c.dom.Document, the head of the DOM tree.
 	 */
@@ -95,6 +107,16 @@ public class RTML31Create
 		schemaURLString = s;
 	}
 
+	/**
+	 * Method to get the Schema URL String. This is the URL of the RTML Schema.
+	 * @return The URL of the RTML Schema.
+	 * @see #schemaURLString
+	 */
+	public static String getSchemaURLString()
+	{
+		return schemaURLString;
+	}
+
 	/**
 	 * Default constructor.
 	 * @exception Exception Thrown if init fails.
@@ -210,7 +232,7 @@ public class RTML31Create
 		RTMLHistoryEntry entry = null;
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		// create History
 		historyElement = (Element)document.createElement("History");
 		if(history != null)
@@ -739,6 +761,7 @@ public class RTML31Create
 	 *        or could be an RTML element.
 	 * @param target The RTMLTarget object containing target information.
 	 * @see RTMLTarget
+	 * @see #createEphemerisTrack
 	 */
 	private void createTarget(Element parentElement,RTMLTarget target)
 	{
@@ -855,11 +878,48 @@ public class RTML31Create
 			// append TargetBrightness to Target
 			targetElement.appendChild(brightnessElement);
 		}
+		// ephemeris track
+		if((target.getEphemerisTrack() != null)&&(target.getEphemerisTrack().size() > 0))
+			createEphemerisTrack(targetElement,target.getEphemerisTrack());
 		// add target to the parent
 		parentElement.appendChild(targetElement);
 		
 	}
 
+	/**
+	 * Create an EphemerisTrack element and append it to the specified Target element.
+	 * The element is in the EPHEMERIS_TRACK_NAMESPACE namespace. The track is held as a single text node,
+	 * one line per track node, rather than an element per node.
+	 * @param targetElement The Target element to append the EphemerisTrack element to.
+	 * @param track The ephemeris track.
+	 * @see #EPHEMERIS_TRACK_NAMESPACE
+	 * @see #EPHEMERIS_TRACK_SCHEMA_URL_STRING
+	 * @see org.estar.rtml.RTMLEphemerisTrack#write
+	 */
+	private void createEphemerisTrack(Element targetElement,RTMLEphemerisTrack track)
+	{
+		Element trackElement = null;
+		StringWriter writer = null;
+
+		trackElement = (Element)document.createElement("EphemerisTrack");
+		trackElement.setAttribute("xmlns",EPHEMERIS_TRACK_NAMESPACE);
+		trackElement.setAttribute("xsi:schemaLocation",EPHEMERIS_TRACK_NAMESPACE+" "+
+					  EPHEMERIS_TRACK_SCHEMA_URL_STRING);
+		trackElement.setAttribute("count",""+track.size());
+		writer = new StringWriter(track.size()*80);
+		writer.write('\n');
+		try
+		{
+			track.write(writer);
+		}
+		catch(IOException e)
+		{
+			// StringWriter does not throw IOException
+		}
+		trackElement.appendChild(document.createTextNode(writer.toString()));
+		targetElement.appendChild(trackElement);
+	}
+
 	/**
 	 * Create a Schedule tag details. The Schedule element itself was created in createObservation.
 	 * This is because the document object model has Observation containing Schedule, whilst in RTML 3.1a
@@ -963,7 +1023,7 @@ public class RTML31Create
 		Element dateTimeElement = null;
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		// schedule element
 		timeConstraintElement = (Element)document.createElement("DateTimeConstraint");
 		timeConstraintElement.setAttribute("type","include");
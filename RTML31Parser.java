@@ -141,7 +141,11 @@ public class RTML31Parser extends RTMLParser
 			if(childNode.getNodeType() == Node.ELEMENT_NODE)
 			{
 
-				if(childNode.getNodeName() == "Device")
+				if(parseProfileIncludes(parseProfile,childNode.getNodeName()) == false)
+				{
+					// skipped by parse profile
+				}
+				else if(childNode.getNodeName() == "Device")
 					parseDeviceNode(rtmlDocument,childNode);
 				else if(childNode.getNodeName() == "History")
 					parseHistoryNode(rtmlDocument,childNode);
@@ -1322,7 +1326,11 @@ public class RTML31Parser extends RTMLParser
 			
 			if(childNode.getNodeType() == Node.ELEMENT_NODE)
 			{
-				if(childNode.getNodeName() == "ImageData")
+				if(parseProfileIncludes(parseProfile,childNode.getNodeName()) == false)
+				{
+					// skipped by parse profile
+				}
+				else if(childNode.getNodeName() == "ImageData")
 				{
 					// if we havn't started parsing image data create object
 					if(imageData == null)
@@ -1389,6 +1397,7 @@ public class RTML31Parser extends RTMLParser
 	 * @see org.estar.rtml.RTMLTargetHolder
 	 * @see #parseCoordinatesNode
 	 * @see #parseTargetBrightnessNode
+	 * @see #parseEphemerisTrackNode
 	 */
 	private void parseTargetNode(RTMLTargetHolder parent,Node targetNode) throws RTMLException
 	{
@@ -1439,6 +1448,9 @@ public class RTML31Parser extends RTMLParser
 					parseCoordinatesNode(target,childNode);
 				else if(childNode.getNodeName() == "TargetBrightness")
 					parseTargetBrightnessNode(target,childNode);
+				else if((childNode.getLocalName() == "EphemerisTrack")&&
+					RTML31Create.EPHEMERIS_TRACK_NAMESPACE.equals(childNode.getNamespaceURI()))
+					parseEphemerisTrackNode(target,childNode);
 				else
 					System.err.println("parseTargetNode:ELEMENT:"+childNode);
 			}
@@ -1712,6 +1724,45 @@ public class RTML31Parser extends RTMLParser
 		}
 	}
 
+	/**
+	 * Internal method to parse an EphemerisTrack node (in the RTML31Create.EPHEMERIS_TRACK_NAMESPACE namespace).
+	 * The node's text is parsed by an RTMLEphemerisTrackParser, the timestamps are in UTC.
+	 * @param target The instance of RTMLTarget to set the ephemeris track of.
+	 * @param ephemerisTrackNode The XML DOM node for the EphemerisTrack tag node.
+	 * @exception RTMLException Thrown if a line of the track fails to parse.
+	 * @see org.estar.rtml.RTML31Create#EPHEMERIS_TRACK_NAMESPACE
+	 * @see org.estar.rtml.RTMLEphemerisTrackParser
+	 */
+	private void parseEphemerisTrackNode(RTMLTarget target,Node ephemerisTrackNode) throws RTMLException
+	{
+		RTMLEphemerisTrackParser trackParser = null;
+		SortedSet track = null;
+		StringBuffer sb = null;
+		Node childNode;
+		NodeList childList;
+
+		// get the text of the track
+		sb = new StringBuffer();
+		childList = ephemerisTrackNode.getChildNodes();
+		for(int i = 0; i < childList.getLength(); i++)
+		{
+			childNode = childList.item(i);
+			if((childNode.getNodeType() == Node.TEXT_NODE)||(childNode.getNodeType() == Node.CDATA_SECTION_NODE))
+				sb.append(childNode.getNodeValue());
+		}
+		// parse the track
+		trackParser = new RTMLEphemerisTrackParser();
+		trackParser.setTimeZone(TimeZone.getTimeZone("UTC"));
+		track = trackParser.parse(sb.toString());
+		if(trackParser.getErrorList().size() > 0)
+		{
+			throw new RTMLException(this.getClass().getName()+":parseEphemerisTrackNode:"+
+						trackParser.getErrorList().size()+" illegal lines:"+
+						trackParser.getErrorList().get(0));
+		}
+		target.setEphemerisTrack(track);
+	}
+
 	/**
 	 * Internal method to parse an TargetBrightness node.
 	 * @param target The instance of RTMLTarget to set the target brightness.
@@ -1962,7 +2013,7 @@ public class RTML31Parser extends RTMLParser
 		String error = null;
 		Date date = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		// check current XML node is correct
 		if(dateTimeConstraintNode.getNodeType() != Node.ELEMENT_NODE)
 		{
@@ -2062,7 +2113,7 @@ public class RTML31Parser extends RTMLParser
 		RTMLDateFormat dateFormat = null;
 		String s = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		childList = dateTimeNode.getChildNodes();
 		for(int i = 0; i < childList.getLength(); i++)
 		{
@@ -0,0 +1,861 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTML31StreamCreate.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import org.estar.astrometry.*;
+
+/**
+ * This class serializes an RTMLDocument (Java object tree) straight to an RTML 3.1a XML stream, using an
+ * RTMLXMLWriter, without building a DOM tree. Each method writes the same elements, attributes and text as
+ * the equivalent RTML31Create method, so the output is the same as serializing RTML31Create's DOM tree
+ * with RTMLCreate.toXMLString.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTML31Create
+ * @see org.estar.rtml.RTMLXMLWriter
+ * @see org.estar.rtml.RTMLCreate#write
+ */
+public class RTML31StreamCreate
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The writer the document is written to.
+	 */
+	private RTMLXMLWriter writer = null;
+	/**
+	 * Number format used for target coordinates and brightness ("##0.0#").
+	 */
+	private DecimalFormat targetFormat = null;
+	/**
+	 * Number format used for telescope and constraint values ("#####0.0#").
+	 */
+	private DecimalFormat valueFormat = null;
+	/**
+	 * Number format used for the detector gain ("###0.0#").
+	 */
+	private DecimalFormat gainFormat = null;
+	/**
+	 * Number format used for exposure lengths ("#####0.0##").
+	 */
+	private DecimalFormat exposureFormat = null;
+	/**
+	 * Number format used for sky brightness flux ("#0.0##").
+	 */
+	private DecimalFormat fluxFormat = null;
+	/**
+	 * Number format used for scores ("#####0.0#####").
+	 */
+	private DecimalFormat scoreFormat = null;
+
+	/**
+	 * Default constructor. The number formats are the same as those used by RTML31Create.
+	 */
+	public RTML31StreamCreate()
+	{
+		super();
+		targetFormat = new DecimalFormat("##0.0#");
+		valueFormat = new DecimalFormat("#####0.0#");
+		gainFormat = new DecimalFormat("###0.0#");
+		exposureFormat = new DecimalFormat("#####0.0##");
+		fluxFormat = new DecimalFormat("#0.0##");
+		scoreFormat = new DecimalFormat("#####0.0#####");
+	}
+
+	/**
+	 * Write the RTML element of the document (the XML declaration is written by the caller).
+	 * @param rtmlDocument The Java representation of an RTML document.
+	 * @param w The writer to write the document to.
+	 * @exception RTMLException Thrown if writing fails.
+	 * @see #writer
+	 * @see #createRTML
+	 */
+	public void create(RTMLDocument rtmlDocument,RTMLXMLWriter w) throws RTMLException
+	{
+		writer = w;
+		try
+		{
+			createRTML(rtmlDocument);
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":create:",e);
+		}
+	}
+
+	/**
+	 * Set the writer used by the package level create methods, which write parts of a document.
+	 * @param w The writer.
+	 * @see #writer
+	 * @see #createHistoryEntry
+	 * @see #createScore
+	 */
+	void setWriter(RTMLXMLWriter w)
+	{
+		writer = w;
+	}
+
+	// private methods
+	/**
+	 * Write the RTML element.
+	 * @param d The Java representation of an RTML document.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTML31Create#getSchemaURLString
+	 * @see #createHistory
+	 * @see #createDevice
+	 * @see #createTarget
+	 * @see #createTelescope
+	 * @see #createProject
+	 * @see #createObservation
+	 * @see #createScoring
+	 */
+	private void createRTML(RTMLDocument d) throws IOException
+	{
+		RTMLIntelligentAgent ia = null;
+
+		writer.writeStartElement("RTML");
+		writer.writeAttribute("version",d.getVersion());
+		if(d.getMode() != null)
+			writer.writeAttribute("mode",d.getMode());
+		// add various scheme namespaces
+		writer.writeAttribute("xmlns","http://www.rtml.org/v3.1a");
+		writer.writeAttribute("xmlns:xsi","http://www.w3.org/2001/XMLSchema-instance");
+		writer.writeAttribute("xsi:schemaLocation","http://www.rtml.org/v3.1a "+
+				      RTML31Create.getSchemaURLString());
+		// uid - must exist in RTML
+		if(d.getUId() != null)
+			writer.writeAttribute("uid",d.getUId());
+		else
+			writer.writeAttribute("uid","");
+		createHistory(d.getHistory());
+		if(d.getDevice() != null)
+			createDevice(d.getDevice());
+		if(d.getTarget() != null)
+			createTarget(d.getTarget());
+		if(d.getTelescope() != null)
+			createTelescope(d.getTelescope());
+		// Project (which contains Contact in RTML 3.1a
+		if(d.getProject() != null)
+			createProject(d);
+		// RespondTo (from Intelligent Agent URI)
+		if(d.getIntelligentAgent() != null)
+		{
+			ia = d.getIntelligentAgent();
+			if(ia.getUri() != null)
+				writer.writeTextElement("RespondTo",ia.getUri());
+			else if(ia.getHostname() != null)
+			{
+				writer.writeTextElement("RespondTo","http://"+ia.getHostname()+":"+
+							ia.getPort()+"/");
+			}
+		}
+		for(int i = 0; i < d.getObservationListCount(); i++)
+			createObservation(d.getObservation(i));
+		// Scoring
+		if(d.getScoresListCount() > 0)
+			createScoring(d);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a History element and it's entries.
+	 * @param history The Java object containing the history data, or null.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLHistory
+	 */
+	private void createHistory(RTMLHistory history) throws IOException
+	{
+		writer.writeStartElement("History");
+		if(history != null)
+		{
+			for(int i = 0; i< history.getEntryListCount(); i++)
+				createHistoryEntry(history.getEntry(i));
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a History Entry element.
+	 * @param entry The Java object containing the history entry data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLHistoryEntry
+	 * @see org.estar.rtml.RTMLReplyPatcher
+	 */
+	void createHistoryEntry(RTMLHistoryEntry entry) throws IOException
+	{
+		RTMLDateFormat dateFormat = null;
+
+		dateFormat = RTMLDateFormat.getInstance();
+		writer.writeStartElement("Entry");
+		// time stamp
+		if(entry.getTimeStamp() != null)
+		{
+			writer.writeAttribute("timeStamp",dateFormat.formatWithColonTimezone(entry.getTimeStamp()));
+		}
+		// agent
+		if(entry.getAgent() != null)
+		{
+			writer.writeStartElement("Agent");
+			if(entry.getAgent().getId() != null)
+				writer.writeAttribute("name",entry.getAgent().getId());
+			if(entry.getAgent().getUri() != null)
+				writer.writeAttribute("uri",entry.getAgent().getUri());
+			writer.writeEndElement();
+		}
+		// description
+		if(entry.getDescription() != null)
+			writer.writeTextElement("Description",entry.getDescription());
+		// error
+		if(entry.getError() != null)
+			writer.writeTextElement("Error",entry.getError());
+		// rejection
+		if(entry.getRejectionReason() != null)
+		{
+			writer.writeStartElement("Rejection");
+			writer.writeAttribute("reason",entry.getRejectionReason());
+			if(entry.getRejectionDescription() != null)
+				writer.writeTextElement("Description",entry.getRejectionDescription());
+			writer.writeEndElement();
+		}
+		// version
+		if(entry.getVersion() != 0)
+			writer.writeTextElement("Version",""+entry.getVersion());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Project element.
+	 * @param rtmlDocument The Java document object containing the project data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLProject
+	 * @see #createContact
+	 */
+	private void createProject(RTMLDocument rtmlDocument) throws IOException
+	{
+		RTMLProject project = null;
+
+		project = rtmlDocument.getProject();
+		writer.writeStartElement("Project");
+		if((project != null) && (project.getProject() != null))
+			writer.writeAttribute("ProjectID",project.getProject());
+		// if contact exists, add to project
+		if(rtmlDocument.getContact() != null)
+			createContact(rtmlDocument.getContact());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Contact element.
+	 * @param contact The Java object containing the contact data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLContact
+	 */
+	private void createContact(RTMLContact contact) throws IOException
+	{
+		writer.writeStartElement("Contact");
+		// Contact->Username must be reserved for the Contact User.
+		if(contact.getUser() != null)
+			writer.writeTextElement("Username",contact.getUser());
+		if(contact.getName() != null)
+			writer.writeTextElement("Name",contact.getName());
+		if(contact.getInstitution() != null)
+		{
+			writer.writeStartElement("Institution");
+			writer.writeAttribute("name",contact.getInstitution());
+			writer.writeEndElement();
+		}
+		// communication
+		writer.writeStartElement("Communication");
+		if(contact.getAddress() != null)
+			writer.writeTextElement("AddressLine",contact.getAddress());
+		if(contact.getTelephone() != null)
+			writer.writeTextElement("Telephone",contact.getTelephone());
+		if(contact.getFax() != null)
+			writer.writeTextElement("Fax",contact.getFax());
+		if(contact.getEmail() != null)
+			writer.writeTextElement("Email",contact.getEmail());
+		if(contact.getUrl() != null)
+			writer.writeTextElement("Uri",contact.getUrl().toString());
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Telescope element.
+	 * @param telescope The Java object containing the telescope data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLTelescope
+	 * @see #createTelescopeLocation
+	 */
+	private void createTelescope(RTMLTelescope telescope) throws IOException
+	{
+		writer.writeStartElement("Telescope");
+		if(telescope.getName() != null)
+			writer.writeAttribute("name",telescope.getName());
+		if((telescope.getAperture() != 0.0)&&(telescope.getApertureUnits() != null))
+		{
+			// NB Aperture units are fixed to "meters" in RTML 3.1a.
+			writer.writeStartElement("Aperture");
+			writer.writeAttribute("units","meters");
+			if(telescope.getApertureType() != null)
+				writer.writeAttribute("type",telescope.getApertureType());
+			writer.writeCharacters(valueFormat.format(telescope.getApertureMeters()));
+			writer.writeEndElement();
+		}
+		if(telescope.getFocalRatio() != null)
+			writer.writeTextElement("FocalRatio",telescope.getFocalRatio());
+		if((telescope.getFocalLength() != 0.0)&&(telescope.getFocalLengthUnits() != null))
+		{
+			// NB FocalLength units are fixed to "meters" in RTML 3.1a.
+			writer.writeStartElement("FocalLength");
+			writer.writeAttribute("units","meters");
+			writer.writeCharacters(valueFormat.format(telescope.getFocalLengthMeters()));
+			writer.writeEndElement();
+		}
+		if(telescope.getLocation() != null)
+			createTelescopeLocation(telescope.getLocation());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a telescope Location element.
+	 * @param telescopeLocation The Java object containing the telescope location data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLTelescopeLocation
+	 * @see #createUnitsElement
+	 */
+	private void createTelescopeLocation(RTMLTelescopeLocation telescopeLocation) throws IOException
+	{
+		writer.writeStartElement("Location");
+		if(telescopeLocation.getName() != null)
+			writer.writeAttribute("name",telescopeLocation.getName());
+		if(telescopeLocation.getLongitude() != 0.0)
+		{
+			createUnitsElement("EastLongitude","degrees",
+					   valueFormat.format(telescopeLocation.getLongitude()));
+		}
+		if(telescopeLocation.getLatitude() != 0.0)
+			createUnitsElement("Latitude","degrees",valueFormat.format(telescopeLocation.getLatitude()));
+		if(telescopeLocation.getAltitude() != 0.0)
+			createUnitsElement("Height","meters",valueFormat.format(telescopeLocation.getAltitude()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Device element.
+	 * @param device The Java object containing the device (instrument) data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDevice
+	 * @see #createDetector
+	 * @see #createGrating
+	 * @see #createHalfWavePlateSubDevice
+	 */
+	private void createDevice(RTMLDevice device) throws IOException
+	{
+		writer.writeStartElement("Device");
+		// RTML 3.1a name and type (DeviceTypes)
+		if(device.getType() != null)
+			writer.writeAttribute("type",device.getType());
+		if(device.getName() != null)
+			writer.writeAttribute("name",device.getName());
+		// spectral region
+		if(device.getSpectralRegion() != null)
+			writer.writeTextElement("SpectralRegion",device.getSpectralRegion());
+		// setup containing filter/detector/grating etc
+		writer.writeStartElement("Setup");
+		if(device.getFilterType() != null)
+		{
+			writer.writeStartElement("Filter");
+			writer.writeAttribute("type",device.getFilterType());
+			writer.writeEndElement();
+		}
+		if(device.getDetector() != null)
+			createDetector(device.getDetector());
+		if(device.getGrating() != null)
+		{
+			// For FrodoSpec we can use the Grating name.
+			if(device.getGrating().getName() != null)
+				createGrating(device.getGrating());
+			// for Meaburn we want to encapsulate the central wavelength data in a Filter
+			if(device.getGrating().getWavelength() != 0.0f)
+			{
+				writer.writeStartElement("Filter");
+				createUnitsElement("Center",device.getGrating().getWavelengthUnits(),
+						   ""+device.getGrating().getWavelengthString());
+				writer.writeEndElement();
+			}
+		}
+		// half-wave plate (Moptop rotor speed)
+		if(device.getHalfWavePlate() != null)
+			createHalfWavePlateSubDevice(device.getHalfWavePlate());
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Detector element.
+	 * @param detector The Java object containing the detector data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDetector
+	 */
+	private void createDetector(RTMLDetector detector) throws IOException
+	{
+		writer.writeStartElement("Detector");
+		writer.writeStartElement("Binning");
+		createUnitsElement("X","pixels",""+detector.getColumnBinning());
+		createUnitsElement("Y","pixels",""+detector.getRowBinning());
+		writer.writeEndElement();
+		if(detector.getUseGain())
+		{
+			// The gain value is put in the Description element, see RTML31Create.createDetector
+			writer.writeStartElement("Gain");
+			writer.writeTextElement("Description",""+gainFormat.format(detector.getGain()));
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Grating element.
+	 * @param grating The Java object containing the grating data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLGrating
+	 */
+	private void createGrating(RTMLGrating grating) throws IOException
+	{
+		writer.writeStartElement("Grating");
+		if(grating.getName() != null)
+			writer.writeAttribute("name",grating.getName());
+		if(grating.getWavelength() != 0.0)
+			writer.writeAttribute("wavelength",grating.getWavelengthString());
+		if(grating.getWavelengthUnits() != null)
+			writer.writeAttribute("units",grating.getWavelengthUnits());
+		if(grating.getResolution() != 0.0)
+			writer.writeAttribute("resolution",grating.getResolutionString());
+		if(grating.getAngle() != 0.0)
+			writer.writeAttribute("angle",grating.getAngleString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a half-wave plate sub-Device element, with a rotorSpeed attribute.
+	 * @param halfWavePlate The Java object containing the half-wave plate data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLHalfWavePlate#rotorSpeedToString
+	 */
+	private void createHalfWavePlateSubDevice(RTMLHalfWavePlate halfWavePlate) throws IOException
+	{
+		writer.writeStartElement("Device");
+		writer.writeAttribute("type","half-wave_plate");
+		writer.writeAttribute("rotorSpeed",halfWavePlate.rotorSpeedToString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Schedule element for an observation. As in RTML31Create, the Schedule contains the target,
+	 * device and schedule details, and an Observation element for each ImageData.
+	 * @param observation The Java object containing the observation data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #createTarget
+	 * @see #createDevice
+	 * @see #createSchedule
+	 * @see #createImageData
+	 * @see #createSourceCatalogue
+	 */
+	private void createObservation(RTMLObservation observation) throws IOException
+	{
+		RTMLImageData imageData = null;
+
+		writer.writeStartElement("Schedule");
+		if(observation.getTarget() != null)
+			createTarget(observation.getTarget());
+		if(observation.getDevice() != null)
+			createDevice(observation.getDevice());
+		if(observation.getSchedule() != null)
+			createSchedule(observation.getSchedule());
+		for(int i = 0; i < observation.getImageDataCount(); i++)
+		{
+			imageData = observation.getImageData(i);
+			writer.writeStartElement("Observation");
+			createImageData(imageData);
+			createSourceCatalogue(imageData);
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Target element.
+	 * @param target The RTMLTarget object containing target information.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLTarget
+	 * @see #createEphemerisTrack
+	 */
+	private void createTarget(RTMLTarget target) throws IOException
+	{
+		writer.writeStartElement("Target");
+		if(target.getIdent() != null)
+			writer.writeAttribute("id",target.getIdent());
+		if(target.getName() != null)
+			writer.writeAttribute("name",target.getName());
+		writer.writeStartElement("Coordinates");
+		if(target.getRA() != null)
+		{
+			writer.writeStartElement("RightAscension");
+			writer.writeTextElement("Hours",""+target.getRA().getHours());
+			writer.writeTextElement("Minutes",""+target.getRA().getMinutes());
+			writer.writeTextElement("Seconds",targetFormat.format(target.getRA().getSeconds()));
+			createUnitsElement("Offset","arcseconds",targetFormat.format(target.getRAOffset()));
+			writer.writeEndElement();
+		}
+		if(target.getDec() != null)
+		{
+			writer.writeStartElement("Declination");
+			// getDegrees always returns +'ve, we use getNegative to determine the sign
+			writer.writeTextElement("Degrees",(target.getDec().getNegative() ? "-" : "+")+
+						target.getDec().getDegrees());
+			writer.writeTextElement("Arcminutes",""+target.getDec().getMinutes());
+			writer.writeTextElement("Arcseconds",targetFormat.format(target.getDec().getSeconds()));
+			createUnitsElement("Offset","arcseconds",targetFormat.format(target.getDecOffset()));
+			writer.writeEndElement();
+		}
+		if(target.getEquinox() != null)
+			writer.writeTextElement("Equinox",target.getEquinox());
+		writer.writeEndElement();
+		// target magnitude
+		if(target.getMagnitudeFilterType() != null)
+		{
+			writer.writeStartElement("TargetBrightness");
+			writer.writeTextElement("Magnitude",targetFormat.format(target.getMagnitude()));
+			writer.writeTextElement("Type",target.getMagnitudeFilterType());
+			if(target.getMagnitudeError() != 0.0)
+				writer.writeTextElement("Error",targetFormat.format(target.getMagnitudeError()));
+			writer.writeEndElement();
+		}
+		// ephemeris track
+		if((target.getEphemerisTrack() != null)&&(target.getEphemerisTrack().size() > 0))
+			createEphemerisTrack(target.getEphemerisTrack());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an EphemerisTrack element (in the RTML31Create.EPHEMERIS_TRACK_NAMESPACE namespace).
+	 * The track lines are streamed straight into the element's text.
+	 * @param track The ephemeris track.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTML31Create#EPHEMERIS_TRACK_NAMESPACE
+	 * @see org.estar.rtml.RTMLEphemerisTrack#write
+	 * @see org.estar.rtml.RTMLXMLWriter#getCharactersWriter
+	 */
+	private void createEphemerisTrack(RTMLEphemerisTrack track) throws IOException
+	{
+		Writer textWriter = null;
+
+		writer.writeStartElement("EphemerisTrack");
+		writer.writeAttribute("xmlns",RTML31Create.EPHEMERIS_TRACK_NAMESPACE);
+		writer.writeAttribute("xsi:schemaLocation",RTML31Create.EPHEMERIS_TRACK_NAMESPACE+" "+
+				      RTML31Create.EPHEMERIS_TRACK_SCHEMA_URL_STRING);
+		writer.writeAttribute("count",""+track.size());
+		textWriter = writer.getCharactersWriter();
+		textWriter.write('\n');
+		track.write(textWriter);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write the schedule details (priority, exposure and constraints) into the current Schedule element.
+	 * @param schedule The RTML schedule data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSchedule
+	 * @see #createTimeConstraint
+	 * @see #createSeriesConstraint
+	 * @see #createSeeingConstraint
+	 * @see #createMoonConstraint
+	 * @see #createSkyConstraint
+	 * @see #createExtinctionConstraint
+	 * @see #createAirmassConstraint
+	 */
+	private void createSchedule(RTMLSchedule schedule) throws IOException
+	{
+		writer.writeTextElement("Priority",""+schedule.getPriority());
+		if(schedule.isExposureTypeSNR())
+		{
+			// As in RTML31Create, the signal to noise is written as text beside empty elements
+			writer.writeStartElement("ExposureConstraint");
+			writer.writeTextElement("Count",""+schedule.getExposureCount());
+			writer.writeCharacters(exposureFormat.format(schedule.getExposureLength()));
+			writer.writeStartElement("MinimumSignalToNoise");
+			writer.writeEndElement();
+			writer.writeCharacters(exposureFormat.format(schedule.getExposureLength()));
+			writer.writeStartElement("MaximumSignalToNoise");
+			writer.writeEndElement();
+			writer.writeEndElement();
+		}
+		else
+		{
+			writer.writeStartElement("Exposure");
+			writer.writeAttribute("count",""+schedule.getExposureCount());
+			// exposure units are fixed as "seconds" in RTML 3.1
+			createUnitsElement("Value","seconds",exposureFormat.format(schedule.getExposureLengthSeconds()));
+			writer.writeEndElement();
+		}
+		if((schedule.getStartDate() != null) || (schedule.getEndDate() != null))
+			createTimeConstraint(schedule);
+		if(schedule.getSeriesConstraint() != null)
+			createSeriesConstraint(schedule.getSeriesConstraint());
+		if(schedule.getSeeingConstraint() != null)
+			createSeeingConstraint(schedule.getSeeingConstraint());
+		if(schedule.getMoonConstraint() != null)
+			createMoonConstraint(schedule.getMoonConstraint());
+		if(schedule.getSkyConstraint() != null)
+			createSkyConstraint(schedule.getSkyConstraint());
+		if(schedule.getExtinctionConstraint() != null)
+			createExtinctionConstraint(schedule.getExtinctionConstraint());
+		if(schedule.getAirmassConstraint() != null)
+			createAirmassConstraint(schedule.getAirmassConstraint());
+	}
+
+	/**
+	 * Write a DateTimeConstraint element.
+	 * @param schedule The RTML schedule data (which contains the time constraint data).
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDateFormat#formatWithColonTimezone
+	 */
+	private void createTimeConstraint(RTMLSchedule schedule) throws IOException
+	{
+		RTMLDateFormat dateFormat = null;
+
+		dateFormat = RTMLDateFormat.getInstance();
+		writer.writeStartElement("DateTimeConstraint");
+		writer.writeAttribute("type","include");
+		if(schedule.getStartDate() != null)
+		{
+			writer.writeStartElement("DateTimeStart");
+			writer.writeAttribute("value",dateFormat.formatWithColonTimezone(schedule.getStartDate()));
+			writer.writeAttribute("system","UT");
+			writer.writeEndElement();
+		}
+		if(schedule.getEndDate() != null)
+		{
+			writer.writeStartElement("DateTimeEnd");
+			writer.writeAttribute("value",dateFormat.formatWithColonTimezone(schedule.getEndDate()));
+			writer.writeAttribute("system","UT");
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SeriesConstraint element.
+	 * @param seriesConstraint The RTML series constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSeriesConstraint
+	 */
+	private void createSeriesConstraint(RTMLSeriesConstraint seriesConstraint) throws IOException
+	{
+		writer.writeStartElement("SeriesConstraint");
+		if(seriesConstraint.getCount() != 0)
+			writer.writeTextElement("Count",""+seriesConstraint.getCount());
+		if(seriesConstraint.getInterval() != null)
+			writer.writeTextElement("Interval",seriesConstraint.getInterval().toString());
+		if(seriesConstraint.getTolerance() != null)
+			writer.writeTextElement("Tolerance",seriesConstraint.getTolerance().toString());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an AirmassConstraint element.
+	 * @param airmassConstraint The RTML airmass constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLAirmassConstraint
+	 */
+	private void createAirmassConstraint(RTMLAirmassConstraint airmassConstraint) throws IOException
+	{
+		writer.writeStartElement("AirmassConstraint");
+		writer.writeAttribute("minimum",valueFormat.format(airmassConstraint.getMinimum()));
+		writer.writeAttribute("maximum",valueFormat.format(airmassConstraint.getMaximum()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SeeingConstraint element.
+	 * @param seeingConstraint The RTML seeing constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSeeingConstraint
+	 */
+	private void createSeeingConstraint(RTMLSeeingConstraint seeingConstraint) throws IOException
+	{
+		writer.writeStartElement("SeeingConstraint");
+		writer.writeAttribute("minimum",valueFormat.format(seeingConstraint.getMinimum()));
+		writer.writeAttribute("maximum",valueFormat.format(seeingConstraint.getMaximum()));
+		writer.writeAttribute("units","arcseconds");
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a MoonConstraint element.
+	 * @param moonConstraint The RTML moon constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLMoonConstraint
+	 */
+	private void createMoonConstraint(RTMLMoonConstraint moonConstraint) throws IOException
+	{
+		writer.writeStartElement("MoonConstraint");
+		createUnitsElement("Distance","degrees",valueFormat.format(moonConstraint.getDistance()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SkyConstraint element.
+	 * @param skyConstraint The RTML sky constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLSkyConstraint
+	 */
+	private void createSkyConstraint(RTMLSkyConstraint skyConstraint) throws IOException
+	{
+		writer.writeStartElement("SkyConstraint");
+		if(skyConstraint.getSky() != null)
+			writer.writeTextElement("Brightness",skyConstraint.getSky());
+		if(skyConstraint.getUseValue())
+		{
+			writer.writeTextElement("Flux",fluxFormat.format(skyConstraint.getValue()));
+			writer.writeTextElement("Units",skyConstraint.getUnits());
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an ExtinctionConstraint element.
+	 * @param extinctionConstraint The RTML extinction constraint data.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLExtinctionConstraint
+	 */
+	private void createExtinctionConstraint(RTMLExtinctionConstraint extinctionConstraint) throws IOException
+	{
+		writer.writeStartElement("ExtinctionConstraint");
+		if(extinctionConstraint.getClouds() != null)
+			writer.writeTextElement("Clouds",extinctionConstraint.getClouds());
+		if(extinctionConstraint.getValue() != 0.0)
+			writer.writeTextElement("Magnitudes",""+extinctionConstraint.getValue());
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an ImageData element.
+	 * @param imageData The object to construct the ImageData element from.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLImageData
+	 */
+	private void createImageData(RTMLImageData imageData) throws IOException
+	{
+		writer.writeStartElement("ImageData");
+		if(imageData.getFITSHeader() != null)
+			writer.writeTextElement("FITSHeader",imageData.getFITSHeader());
+		if(imageData.getImageDataURL() != null)
+			writer.writeTextElement("Uri",imageData.getImageDataURL().toString());
+		writer.writeTextElement("Delivery","uri");
+		writer.writeTextElement("CompressionTypes","none");
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a SourceCatalogue element, if the image data's object list type is set.
+	 * @param imageData The object to construct the SourceCatalogue element from.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLImageData#getObjectListType
+	 */
+	private void createSourceCatalogue(RTMLImageData imageData) throws IOException
+	{
+		// Only create SourceCatalogue if the object list type is set,
+		// otherwise you get a blank SourceCatalogue which fails to parse.
+		if(imageData.getObjectListType() != null)
+		{
+			writer.writeStartElement("SourceCatalogue");
+			if(imageData.isObjectListTypeCluster())
+			{
+				writer.writeAttribute("type","text");
+				writer.writeCharacters(imageData.getObjectListCluster());
+			}
+			if(imageData.isObjectListTypeVOTableURL())
+			{
+				writer.writeAttribute("type","other");
+				writer.writeCharacters(imageData.getObjectListVOTableURL().toString());
+			}
+			writer.writeEndElement();
+		}
+	}
+
+	/**
+	 * Write a Scoring element, and it's Score sub-elements.
+	 * @param rtmlDocument The RTML document.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLDocument#getScore
+	 */
+	private void createScoring(RTMLDocument rtmlDocument) throws IOException
+	{
+		writer.writeStartElement("Scoring");
+		for(int i = 0; i < rtmlDocument.getScoresListCount(); i++)
+			createScore(rtmlDocument.getScore(i));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a Scoring Score element.
+	 * @param score The score.
+	 * @exception IOException Thrown if writing fails.
+	 * @see org.estar.rtml.RTMLReplyPatcher
+	 */
+	void createScore(RTMLScore score) throws IOException
+	{
+		writer.writeStartElement("Score");
+		writer.writeAttribute("delay",score.getDelay().toString());
+		if(Double.isNaN(score.getProbability()))
+			writer.writeAttribute("probability","NaN");
+		else
+			writer.writeAttribute("probability",scoreFormat.format(score.getProbability()));
+		if(Double.isNaN(score.getCumulative()))
+			writer.writeAttribute("cumulative","NaN");
+		else
+			writer.writeAttribute("cumulative",scoreFormat.format(score.getCumulative()));
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write an element with a units attribute and text content.
+	 * @param name The element name.
+	 * @param units The value of the units attribute.
+	 * @param s The text content.
+	 * @exception IOException Thrown if writing fails.
+	 */
+	private void createUnitsElement(String name,String units,String s) throws IOException
+	{
+		writer.writeStartElement(name);
+		writer.writeAttribute("units",units);
+		writer.writeCharacters(s);
+		writer.writeEndElement();
+	}
+}
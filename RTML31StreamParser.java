@@ -0,0 +1,1776 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTML31StreamParser.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import java.net.URL;
+import java.net.MalformedURLException;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.estar.astrometry.*;
+
+/**
+ * This class provides the capability of parsing an RTML 3.1a document using a StAX stream reader,
+ * extracting the relevant eSTAR data directly into an RTMLDocument without building a DOM tree.
+ * Each parseXElement method mirrors the equivalent parseXNode method in RTML31Parser, so the resultant
+ * RTMLDocument is the same as the one produced by RTML31Parser.parseRTMLNode.
+ * Each method is called with the reader positioned at the start element it parses, and leaves the reader
+ * positioned at the matching end element.
+ * Extends RTMLStreamParser to make use of methods common to the stream parsers (parseIntegerElement etc).
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTML31Parser
+ * @see org.estar.rtml.RTMLStreamParser
+ */
+public class RTML31StreamParser extends RTMLStreamParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+
+	/**
+	 * Default constructor.
+	 */
+	public RTML31StreamParser()
+	{
+		super();
+	}
+
+	/**
+	 * Method to parse the RTML element.
+	 * @param reader The stream reader, positioned at the RTML start element.
+	 * @param rtmlDocument The RTMLDocument instance to fill with the parsed data.
+	 * @exception RTMLException Thrown if a strange child is in the element,
+	 *            or the score/completion time fails to parse.
+	 * @exception ParseException Thrown if parsing the time stamp fails.
+	 * @see RTMLDocument#setVersion
+	 * @see RTMLDocument#setMode
+	 * @see RTMLIntelligentAgent
+	 * @see #parseDeviceElement
+	 * @see #parseScheduleElement
+	 * @see #parseScoringElement
+	 * @see #parseProjectElement
+	 * @see #parseHistoryElement
+	 * @see #parseTelescopeElement
+	 * @see org.estar.rtml.RTML31Parser#parseRTMLNode
+	 */
+	protected void parseRTMLElement(XMLStreamReader reader,RTMLDocument rtmlDocument) throws RTMLException,
+											       ParseException
+	{
+		RTMLIntelligentAgent intelligenAgent = null;
+		String elementName = null;
+		String version = null;
+		String uriString = null;
+
+		// check current element is correct
+		checkElement("parseRTMLElement",reader,"RTML");
+		// check version
+		version = reader.getAttributeValue(null,"version");
+		if(version == null)
+			throw new RTMLException(this.getClass().getName()+":parseRTMLElement:Version was null.");
+		rtmlDocument.setVersion(version);
+		if(version.equals(RTMLDocument.RTML_VERSION_31) == false)
+		{
+			throw new RTMLException(this.getClass().getName()+":parseRTMLElement:Unsupported Version:"+
+						version);
+		}
+		// uid
+		rtmlDocument.setUId(getRequiredAttribute("parseRTMLElement",reader,"uid"));
+		// mode = type in RTML 2.2
+		rtmlDocument.setMode(getRequiredAttribute("parseRTMLElement",reader,"mode"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(RTMLParser.parseProfileIncludes(parseProfile,elementName) == false)
+				skipElement(reader);
+			else if(elementName.equals("Device"))
+				parseDeviceElement(rtmlDocument,reader);
+			else if(elementName.equals("History"))
+				parseHistoryElement(rtmlDocument,reader);
+			else if(elementName.equals("Project"))
+				parseProjectElement(rtmlDocument,reader);
+			else if(elementName.equals("RespondTo"))
+			{
+				uriString = parseStringElement("RespondTo",reader);
+				intelligenAgent = new RTMLIntelligentAgent();
+				intelligenAgent.setUri(uriString);
+				rtmlDocument.setIntelligentAgent(intelligenAgent);
+			}
+			else if(elementName.equals("Schedule"))
+				parseScheduleElement(rtmlDocument,reader);
+			else if(elementName.equals("Scoring"))
+				parseScoringElement(rtmlDocument,reader);
+			else if(elementName.equals("Target"))
+				parseTargetElement(rtmlDocument,reader);
+			else if(elementName.equals("Telescope"))
+				parseTelescopeElement(rtmlDocument,reader);
+			else
+			{
+				System.err.println("parseRTMLElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	// private methods
+	/**
+	 * Internal method to parse a History element.
+	 * @param rtmlDocument The document to add the History to.
+	 * @param reader The stream reader, positioned at the History start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @exception ParseException Thrown if parsing the time stamp fails.
+	 * @see #parseHistoryEntryElement
+	 */
+	private void parseHistoryElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException,
+												ParseException
+	{
+		RTMLHistory history = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseHistoryElement",reader,"History");
+		// add history
+		history = new RTMLHistory();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Entry"))
+				parseHistoryEntryElement(history,reader);
+			else
+			{
+				System.err.println("parseHistoryElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set history in RTML document.
+		rtmlDocument.setHistory(history);
+	}
+
+	/**
+	 * Internal method to parse a History Entry element.
+	 * @param history The History to add the Entry to.
+	 * @param reader The stream reader, positioned at the Entry start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @exception ParseException Thrown if parsing the time stamp fails.
+	 * @see #parseStringElement
+	 * @see #parseIntegerElement
+	 * @see #parseAgentElement
+	 * @see #parseRejectionElement
+	 */
+	private void parseHistoryEntryElement(RTMLHistory history,XMLStreamReader reader) throws RTMLException,
+												    ParseException
+	{
+		RTMLHistoryEntry entry = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseHistoryEntryElement",reader,"Entry");
+		// create entry
+		entry = new RTMLHistoryEntry();
+		// timeStamp
+		entry.setTimeStamp(getRequiredAttribute("parseHistoryEntryElement",reader,"timeStamp"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Agent"))
+				parseAgentElement(entry,reader);
+			else if(elementName.equals("Description"))
+				entry.setDescription(parseStringElement("Description",reader));
+			else if(elementName.equals("Error"))
+				entry.setError(parseStringElement("Error",reader));
+			else if(elementName.equals("Rejection"))
+				parseRejectionElement(entry,reader);
+			else if(elementName.equals("Version"))
+				entry.setVersion(parseIntegerElement(reader));
+			else
+			{
+				System.err.println("parseHistoryEntryElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// add entry to history
+		history.addEntry(entry);
+	}
+
+	/**
+	 * Internal method to parse an Agent element.
+	 * @param entry The history entry to add the agent to.
+	 * @param reader The stream reader, positioned at the Agent start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 */
+	private void parseAgentElement(RTMLHistoryEntry entry,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLIntelligentAgent intelligentAgent = null;
+
+		// check current element is correct
+		checkElement("parseAgentElement",reader,"Agent");
+		// add intelligentAgent
+		intelligentAgent = new RTMLIntelligentAgent();
+		// name
+		intelligentAgent.setId(reader.getAttributeValue(null,"name"));
+		// uri
+		intelligentAgent.setUri(reader.getAttributeValue(null,"uri"));
+		// hostname/port not used in RTML3.1
+		intelligentAgent.setHostname(null);
+		intelligentAgent.setPort(0);
+		// children are not used
+		skipElement(reader);
+		// set intelligentAgent in history entry.
+		entry.setAgent(intelligentAgent);
+	}
+
+	/**
+	 * Internal method to parse a Rejection element.
+	 * @param entry The history entry to add the rejection information to.
+	 * @param reader The stream reader, positioned at the Rejection start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLHistoryEntry#setRejectionReason
+	 * @see org.estar.rtml.RTMLHistoryEntry#setRejectionDescription
+	 */
+	private void parseRejectionElement(RTMLHistoryEntry entry,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseRejectionElement",reader,"Rejection");
+		// reason
+		s = reader.getAttributeValue(null,"reason");
+		if(s != null)
+			entry.setRejectionReason(s);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Description"))
+				entry.setRejectionDescription(parseStringElement("Description",reader));
+			else
+			{
+				System.err.println("parseRejectionElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Contact element. In RTML 3.1a, these are contained within a Project element,
+	 * but as the document object model reflects RTML 2.2 the RTMLContact is in the top level RTMLDocument.
+	 * @param rtmlDocument The document to add the Contact to.
+	 * @param reader The stream reader, positioned at the Contact start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseRTMLAttributes
+	 * @see #parseStringElement
+	 * @see #parseElementAttribute
+	 * @see #parseCommunicationElement
+	 */
+	private void parseContactElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLContact contact = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseContactElement",reader,"Contact");
+		// add contact
+		contact = new RTMLContact();
+		// get standard RTML attributes id,ref,uref
+		parseRTMLAttributes(contact,reader);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Username"))
+				contact.setUser(parseStringElement("Username",reader));
+			else if(elementName.equals("Name"))
+				contact.setName(parseStringElement("Name",reader));
+			else if(elementName.equals("Institution"))
+			{
+				contact.setInstitution(parseElementAttribute("Institution",reader,"name"));
+				skipElement(reader);
+			}
+			else if(elementName.equals("Communication"))
+				parseCommunicationElement(contact,reader);
+			else
+			{
+				System.err.println("parseContactElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set contact in RTML document.
+		rtmlDocument.setContact(contact);
+	}
+
+	/**
+	 * Internal method to parse a Communication element.
+	 * @param contact The contact to add the communication data to.
+	 * @param reader The stream reader, positioned at the Communication start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the Uri is not a legal URL.
+	 * @see #parseStringElement
+	 */
+	private void parseCommunicationElement(RTMLContact contact,XMLStreamReader reader) throws RTMLException
+	{
+		URL url = null;
+		String elementName = null;
+		String urlString = null;
+
+		// check current element is correct
+		checkElement("parseCommunicationElement",reader,"Communication");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("AddressLine"))
+				contact.setAddress(parseStringElement("AddressLine",reader));
+			else if(elementName.equals("Telephone"))
+				contact.setTelephone(parseStringElement("Telephone",reader));
+			else if(elementName.equals("Fax"))
+				contact.setFax(parseStringElement("Fax",reader));
+			else if(elementName.equals("Email"))
+				contact.setEmail(parseStringElement("Email",reader));
+			else if(elementName.equals("Uri"))
+			{
+				urlString = parseStringElement("Uri",reader);
+				try
+				{
+					url = new URL(urlString);
+				}
+				catch(MalformedURLException e)
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseCommunicationElement:Illegal URL ["+
+								urlString+"]", e);
+				}
+				contact.setUrl(url);
+			}
+			else
+			{
+				System.err.println("parseCommunicationElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Project element.
+	 * @param rtmlDocument The document to add the Project to.
+	 * @param reader The stream reader, positioned at the Project start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseContactElement
+	 * @see #parseRTMLAttributes
+	 */
+	private void parseProjectElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLProject project = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseProjectElement",reader,"Project");
+		// add project
+		project = new RTMLProject();
+		// get standard RTML attributes id,ref,uref
+		parseRTMLAttributes(project,reader);
+		// name
+		project.setProject(reader.getAttributeValue(null,"ProjectID"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Contact"))
+				parseContactElement(rtmlDocument,reader);
+			else
+			{
+				System.err.println("parseProjectElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set project in RTML document.
+		rtmlDocument.setProject(project);
+	}
+
+	/**
+	 * Internal method to parse a Telescope element.
+	 * @param rtmlDocument The document to add the Telescope to.
+	 * @param reader The stream reader, positioned at the Telescope start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseRTMLAttributes
+	 * @see #parseApertureElement
+	 * @see #parseFocalLengthElement
+	 * @see #parseTelescopeLocationElement
+	 * @see org.estar.rtml.RTMLDocument#setTelescope
+	 */
+	private void parseTelescopeElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLTelescope telescope = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseTelescopeElement",reader,"Telescope");
+		// add telescope
+		telescope = new RTMLTelescope();
+		// get standard RTML attributes id,ref,uref
+		parseRTMLAttributes(telescope,reader);
+		// name
+		telescope.setName(reader.getAttributeValue(null,"name"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Aperture"))
+				parseApertureElement(telescope,reader);
+			else if(elementName.equals("FocalLength"))
+				parseFocalLengthElement(telescope,reader);
+			else if(elementName.equals("FocalRatio"))
+				telescope.setFocalRatio(parseStringElement("FocalRatio",reader));
+			else if(elementName.equals("Location"))
+				parseTelescopeLocationElement(telescope,reader);
+			else
+			{
+				System.err.println("parseTelescopeElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set telescope in RTML document.
+		rtmlDocument.setTelescope(telescope);
+	}
+
+	/**
+	 * Internal method to parse an Aperture element.
+	 * @param telescope The instance of Telescope to set the aperture data for.
+	 * @param reader The stream reader, positioned at the Aperture start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a parse error occurs.
+	 * @exception NumberFormatException Thrown if parsing the aperture value fails.
+	 * @see org.estar.rtml.RTMLTelescope#setApertureUnits
+	 * @see org.estar.rtml.RTMLTelescope#setApertureType
+	 * @see org.estar.rtml.RTMLTelescope#setAperture(java.lang.String)
+	 */
+	private void parseApertureElement(RTMLTelescope telescope,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		List textList = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseApertureElement",reader,"Aperture");
+		// units
+		telescope.setApertureUnits(reader.getAttributeValue(null,"units"));
+		// type
+		s = reader.getAttributeValue(null,"type");
+		if(s != null)
+			telescope.setApertureType(s);
+		else
+			telescope.setApertureType("geometric"); // default is geometric
+		// go through text
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			// ensure it is not all whitespace
+			if(s.trim().length() > 0)
+				telescope.setAperture(s);
+		}
+	}
+
+	/**
+	 * Internal method to parse a FocalLength element.
+	 * @param telescope The instance of Telescope to set the focal length data for.
+	 * @param reader The stream reader, positioned at the FocalLength start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a parse error occurs.
+	 * @exception NumberFormatException Thrown if parsing the focal length value fails.
+	 * @see org.estar.rtml.RTMLTelescope#setFocalLengthUnits
+	 * @see org.estar.rtml.RTMLTelescope#setFocalLength(java.lang.String)
+	 */
+	private void parseFocalLengthElement(RTMLTelescope telescope,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		List textList = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseFocalLengthElement",reader,"FocalLength");
+		// units
+		telescope.setFocalLengthUnits(reader.getAttributeValue(null,"units"));
+		// go through text
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			// ensure it is not all whitespace
+			if(s.trim().length() > 0)
+				telescope.setFocalLength(s);
+		}
+	}
+
+	/**
+	 * Internal method to parse a telescope Location element.
+	 * @param telescope The instance of Telescope to set the location data for.
+	 * @param reader The stream reader, positioned at the Location start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a parse error occurs.
+	 * @see #parseRTMLAttributes
+	 * @see org.estar.rtml.RTMLTelescopeLocation
+	 */
+	private void parseTelescopeLocationElement(RTMLTelescope telescope,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLTelescopeLocation location = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseTelescopeLocationElement",reader,"Location");
+		// add location data to telescope
+		location = new RTMLTelescopeLocation();
+		// get standard RTML attributes id,ref,uref
+		parseRTMLAttributes(location,reader);
+		// name
+		location.setName(reader.getAttributeValue(null,"name"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("EastLongitude"))
+				location.setLongitude(parseStringElement("EastLongitude",reader));
+			else if(elementName.equals("Latitude"))
+				location.setLatitude(parseStringElement("Latitude",reader));
+			else if(elementName.equals("Height"))
+				location.setAltitude(parseStringElement("Height",reader));
+			else
+			{
+				System.err.println("parseTelescopeLocationElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// Set location in telescope.
+		telescope.setLocation(location);
+	}
+
+	/**
+	 * Internal method to parse a Device element.
+	 * @param rtmlDeviceHolder The document/observation to add the Device to.
+	 * @param reader The stream reader, positioned at the Device start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseRTMLAttributes
+	 * @see #parseSetupElement
+	 */
+	private void parseDeviceElement(RTMLDeviceHolder rtmlDeviceHolder,XMLStreamReader reader)
+		throws RTMLException
+	{
+		RTMLDevice device = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseDeviceElement",reader,"Device");
+		// add Device
+		device = new RTMLDevice();
+		// get standard RTML attributes id,ref,uref
+		parseRTMLAttributes(device,reader);
+		// type
+		s = reader.getAttributeValue(null,"type");
+		if(s != null)
+			device.setType(s);
+		// name
+		s = reader.getAttributeValue(null,"name");
+		if(s != null)
+			device.setName(s);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Setup"))
+				parseSetupElement(device,reader);
+			else if(elementName.equals("SpectralRegion"))
+				device.setSpectralRegion(parseStringElement("SpectralRegion",reader));
+			else
+			{
+				System.err.println("parseDeviceElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// set device in device holder (RTML document/RTML Observation).
+		rtmlDeviceHolder.setDevice(device);
+	}
+
+	/**
+	 * Internal method to parse a Device Setup element.
+	 * @param device The device to fill in.
+	 * @param reader The stream reader, positioned at the Setup start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseDetectorElement
+	 * @see #parseFilterElement
+	 * @see #parseGratingElement
+	 * @see #parseHalfWavePlateSubDeviceElement
+	 */
+	private void parseSetupElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseSetupElement",reader,"Setup");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Detector"))
+				parseDetectorElement(device,reader);
+			else if(elementName.equals("Filter"))
+				parseFilterElement(device,reader);
+			else if(elementName.equals("Grating"))
+				parseGratingElement(device,reader);
+			else if(elementName.equals("Device"))
+				parseHalfWavePlateSubDeviceElement(device,reader);
+			else
+			{
+				System.err.println("parseSetupElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Filter element.
+	 * The Filter Center element is currently used to represent the central wavelength of a spectrograph.
+	 * @param device The device to fill in.
+	 * @param reader The stream reader, positioned at the Filter start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLDevice#setFilterType
+	 * @see org.estar.rtml.RTMLGrating
+	 */
+	private void parseFilterElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLGrating grating = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseFilterElement",reader,"Filter");
+		// type
+		s = reader.getAttributeValue(null,"type");
+		if(s != null)
+			device.setFilterType(s);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Center"))
+			{
+				// currently used to respresent central wavelength of spectrograph.
+				// This is wrong!
+				if(device.getGrating() != null)
+					grating = device.getGrating();
+				else
+					grating = new RTMLGrating();
+				// wavelengthUnits
+				s = reader.getAttributeValue(null,"units");
+				if(s != null)
+					grating.setWavelengthUnits(s);
+				// wavelength is double value of element
+				grating.setWavelength(parseDoubleElement(reader));
+				// set grating in device.
+				device.setGrating(grating);
+			}
+			else
+			{
+				System.err.println("parseFilterElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Detector element.
+	 * @param device The device to add the detector to.
+	 * @param reader The stream reader, positioned at the Detector start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseBinningElement
+	 * @see #parseGainElement
+	 */
+	private void parseDetectorElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLDetector detector = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseDetectorElement",reader,"Detector");
+		// add Detector
+		detector = new RTMLDetector();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Binning"))
+				parseBinningElement(detector,reader);
+			else if(elementName.equals("Gain"))
+				parseGainElement(detector,reader);
+			else
+			{
+				System.err.println("parseDetectorElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// set detector in device.
+		device.setDetector(detector);
+	}
+
+	/**
+	 * Internal method to parse a Binning element.
+	 * @param detector The detector to set the binning of.
+	 * @param reader The stream reader, positioned at the Binning start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the units are not pixels.
+	 * @see org.estar.rtml.RTMLDetector#setColumnBinning
+	 * @see org.estar.rtml.RTMLDetector#setRowBinning
+	 */
+	private void parseBinningElement(RTMLDetector detector,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseBinningElement",reader,"Binning");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("X"))
+			{
+				s = reader.getAttributeValue(null,"units");
+				if((s != null)&&(s.equals("pixels") == false))
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseBinningElement:Illegal X units:"+s);
+				}
+				detector.setColumnBinning(parseIntegerElement(reader));
+			}
+			else if(elementName.equals("Y"))
+			{
+				s = reader.getAttributeValue(null,"units");
+				if((s != null)&&(s.equals("pixels") == false))
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseBinningElement:Illegal Y units:"+s);
+				}
+				detector.setRowBinning(parseIntegerElement(reader));
+			}
+			else
+			{
+				System.err.println("parseBinningElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Gain element. The gain is retrieved from the Description sub-element,
+	 * where RTML31Create.createDetector puts it.
+	 * @param detector The detector to set the gain of.
+	 * @param reader The stream reader, positioned at the Gain start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLDetector#setGain
+	 */
+	private void parseGainElement(RTMLDetector detector,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseGainElement",reader,"Gain");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Description"))
+				detector.setGain(parseDoubleElement(reader));
+			else
+			{
+				System.err.println("parseGainElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Grating element.
+	 * @param device The device to add the grating to.
+	 * @param reader The stream reader, positioned at the Grating start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLGrating
+	 */
+	private void parseGratingElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLGrating grating = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseGratingElement",reader,"Grating");
+		if(device.getGrating() != null)
+			grating = device.getGrating();
+		else
+			grating = new RTMLGrating();
+		// name
+		s = reader.getAttributeValue(null,"name");
+		if(s != null)
+			grating.setName(s);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			System.err.println("parseGratingElement:ELEMENT:"+getElementName(reader));
+			skipElement(reader);
+		}
+		// set grating in device.
+		device.setGrating(grating);
+	}
+
+	/**
+	 * Internal method to parse a sub-Device element of a Device Setup. Currently only half-wave plate
+	 * sub-devices are supported.
+	 * @param device The device to add the half-wave plate to.
+	 * @param reader The stream reader, positioned at the Device start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLHalfWavePlate
+	 */
+	private void parseHalfWavePlateSubDeviceElement(RTMLDevice device,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLHalfWavePlate halfWavePlate = null;
+		String type = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseHalfWavePlateSubDeviceElement",reader,"Device");
+		// type
+		type = reader.getAttributeValue(null,"type");
+		if(type != null)
+		{
+			if(type.equals("half-wave_plate"))
+			{
+				if(device.getHalfWavePlate() != null)
+					halfWavePlate = device.getHalfWavePlate();
+				else
+					halfWavePlate = new RTMLHalfWavePlate();
+				s = reader.getAttributeValue(null,"rotorSpeed");
+				if(s != null)
+					halfWavePlate.setRotorSpeed(s);
+			}
+			else
+			{
+				System.err.println("parseHalfWavePlateSubDeviceElement:"+
+						   "type attribute was not half-wave_plate:"+type);
+			}
+		}
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			System.err.println("parseHalfWavePlateSubDeviceElement:ELEMENT:"+getElementName(reader));
+			skipElement(reader);
+		}
+		// set half-wave plate in device.
+		device.setHalfWavePlate(halfWavePlate);
+	}
+
+	/**
+	 * Internal method to parse an Observation element. ImageData and SourceCatalogue elements are paired into
+	 * RTMLImageData instances.
+	 * @param observation The observation to add the image data to.
+	 * @param reader The stream reader, positioned at the Observation start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseImageDataElement
+	 * @see #parseSourceCatalogueElement
+	 */
+	private void parseObservationElement(RTMLObservation observation,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLImageData imageData = null;
+		String elementName = null;
+		boolean parsedImageData = false;
+		boolean parsedSourceCatalogue = false;
+
+		// check current element is correct
+		checkElement("parseObservationElement",reader,"Observation");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(RTMLParser.parseProfileIncludes(parseProfile,elementName) == false)
+				skipElement(reader);
+			else if(elementName.equals("ImageData")||elementName.equals("SourceCatalogue"))
+			{
+				// if we havn't started parsing image data create object
+				if(imageData == null)
+				{
+					imageData = new RTMLImageData();
+					parsedImageData = false;
+					parsedSourceCatalogue = false;
+				}
+				if(elementName.equals("ImageData"))
+				{
+					parseImageDataElement(imageData,reader);
+					parsedImageData = true;
+				}
+				else
+				{
+					parseSourceCatalogueElement(imageData,reader);
+					parsedSourceCatalogue = true;
+				}
+				// if we have parsed image data and source catalogue, this
+				// imageData entry is finished. Add and reset
+				if(parsedImageData && parsedSourceCatalogue)
+				{
+					observation.addImageData(imageData);
+					imageData = null;
+				}
+			}
+			else
+			{
+				System.err.println("parseObservationElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// If theres some image data we havn't added to the observation yet, lets do that now
+		if((imageData != null) && (parsedImageData || parsedSourceCatalogue))
+			observation.addImageData(imageData);
+	}
+
+	/**
+	 * Internal method to parse a Target element.
+	 * @param parent The document/observation to add the target to.
+	 * @param reader The stream reader, positioned at the Target start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseCoordinatesElement
+	 * @see #parseTargetBrightnessElement
+	 * @see #parseEphemerisTrackElement
+	 */
+	private void parseTargetElement(RTMLTargetHolder parent,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLTarget target = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseTargetElement",reader,"Target");
+		// add target
+		target = new RTMLTarget();
+		// The target type is set from the schedule priority later...
+		// ident
+		target.setIdent(reader.getAttributeValue(null,"id"));
+		// name
+		target.setName(reader.getAttributeValue(null,"name"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Coordinates"))
+				parseCoordinatesElement(target,reader);
+			else if(elementName.equals("TargetBrightness"))
+				parseTargetBrightnessElement(target,reader);
+			else if(reader.getLocalName().equals("EphemerisTrack")&&
+				RTML31Create.EPHEMERIS_TRACK_NAMESPACE.equals(reader.getNamespaceURI()))
+				parseEphemerisTrackElement(target,reader);
+			else
+			{
+				System.err.println("parseTargetElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+		// add target to parent document/observation.
+		parent.setTarget(target);
+	}
+
+	/**
+	 * Internal method to parse an EphemerisTrack element (in the RTML31Create.EPHEMERIS_TRACK_NAMESPACE namespace).
+	 * The element's text is streamed into an RTMLEphemerisTrackParser, so the track is never held as a String
+	 * or as per-node XML objects. The timestamps are in UTC.
+	 * @param target The target to set the ephemeris track of.
+	 * @param reader The stream reader, positioned at the EphemerisTrack start element.
+	 * @exception RTMLException Thrown if reading the element fails, or a line of the track fails to parse.
+	 * @see org.estar.rtml.RTML31Create#EPHEMERIS_TRACK_NAMESPACE
+	 * @see org.estar.rtml.RTMLEphemerisTrackParser
+	 * @see org.estar.rtml.RTMLStreamParser.ElementTextReader
+	 */
+	private void parseEphemerisTrackElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLEphemerisTrackParser trackParser = null;
+		ElementTextReader textReader = null;
+		SortedSet track = null;
+
+		trackParser = new RTMLEphemerisTrackParser();
+		trackParser.setTimeZone(TimeZone.getTimeZone("UTC"));
+		textReader = new ElementTextReader(reader);
+		try
+		{
+			track = trackParser.parse(textReader);
+			textReader.close();
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":parseEphemerisTrackElement:",e);
+		}
+		if(trackParser.getErrorList().size() > 0)
+		{
+			throw new RTMLException(this.getClass().getName()+":parseEphemerisTrackElement:"+
+						trackParser.getErrorList().size()+" illegal lines:"+
+						trackParser.getErrorList().get(0));
+		}
+		target.setEphemerisTrack(track);
+	}
+
+	/**
+	 * Internal method to parse a Coordinates element.
+	 * @param target The target to fill in.
+	 * @param reader The stream reader, positioned at the Coordinates start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseRightAscensionElement
+	 * @see #parseDeclinationElement
+	 * @see #parseEquinoxElement
+	 */
+	private void parseCoordinatesElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseCoordinatesElement",reader,"Coordinates");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("RightAscension"))
+				parseRightAscensionElement(target,reader);
+			else if(elementName.equals("Declination"))
+				parseDeclinationElement(target,reader);
+			else if(elementName.equals("Equinox"))
+				parseEquinoxElement(target,reader);
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a RightAscension element. The RA is either specified as Hours/Minutes/Seconds
+	 * or as a Value in decimal hours.
+	 * @param target The target to set the RA of.
+	 * @param reader The stream reader, positioned at the RightAscension start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLTarget#setRA
+	 * @see org.estar.rtml.RTMLTarget#setRAOffset
+	 */
+	private void parseRightAscensionElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		RA ra = null;
+		String elementName = null;
+		double dvalue;
+
+		// check current element is correct
+		checkElement("parseRightAscensionElement",reader,"RightAscension");
+		// initialise RA object
+		ra = new RA();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Hours"))
+				ra.setHours(parseIntegerElement(reader));
+			else if(elementName.equals("Minutes"))
+				ra.setMinutes(parseIntegerElement(reader));
+			else if(elementName.equals("Seconds"))
+			{
+				ra.setSeconds(parseDoubleElement(reader));
+				target.setRA(ra);
+			}
+			else if(elementName.equals("Offset"))
+				target.setRAOffset(parseDoubleElement(reader));
+			else if(elementName.equals("Value"))
+			{
+				// value has fixed units hours
+				dvalue = parseDoubleElement(reader);
+				ra.setHours((int)(Math.floor(dvalue)));
+				// calculate remaining minutes
+				dvalue -= Math.floor(dvalue);
+				dvalue *= 60.0;
+				ra.setMinutes((int)(Math.floor(dvalue)));
+				// calculate remaining seconds
+				dvalue -= Math.floor(dvalue);
+				dvalue *= 60.0;
+				ra.setSeconds(dvalue);
+				target.setRA(ra);
+			}
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a Declination element. The declination is either specified as
+	 * Degrees/Arcminutes/Arcseconds or as a Value in decimal degrees.
+	 * @param target The target to set the declination of.
+	 * @param reader The stream reader, positioned at the Declination start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the Degrees are not signed.
+	 * @see org.estar.rtml.RTMLTarget#setDec
+	 * @see org.estar.rtml.RTMLTarget#setDecOffset
+	 */
+	private void parseDeclinationElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		Dec dec = null;
+		String elementName = null;
+		String valueString = null;
+		double dvalue;
+
+		// check current element is correct
+		checkElement("parseDeclinationElement",reader,"Declination");
+		// initialise Dec object
+		dec = new Dec();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Degrees"))
+			{
+				// complicated, this could be "-00".
+				// setDegrees and setNegative must be called as appropriate
+				valueString = parseStringElement("Degrees",reader);
+				if(valueString.startsWith("+"))
+					dec.setNegative(false);
+				else if(valueString.startsWith("-"))
+					dec.setNegative(true);
+				else
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseDeclinationElement:Illegal Degrees value:"+
+								valueString+" does not start with a '+' or '-'.");
+				}
+				// parse (positive) rest of value after +/-
+				dec.setDegrees(Integer.parseInt(valueString.substring(1)));
+			}
+			else if(elementName.equals("Arcminutes"))
+				dec.setMinutes(parseIntegerElement(reader));
+			else if(elementName.equals("Arcseconds"))
+			{
+				dec.setSeconds(parseDoubleElement(reader));
+				target.setDec(dec);
+			}
+			else if(elementName.equals("Offset"))
+				target.setDecOffset(parseDoubleElement(reader));
+			else if(elementName.equals("Value"))
+			{
+				// value has fixed units degrees
+				dvalue = parseDoubleElement(reader);
+				// set negative
+				if(dvalue < 0.0)
+					dec.setNegative(true);
+				else
+					dec.setNegative(false);
+				dvalue = Math.abs(dvalue);
+				// degrees
+				dec.setDegrees((int)(Math.floor(dvalue)));
+				// calculate remaining minutes
+				dvalue -= Math.floor(dvalue);
+				dvalue *= 60.0;
+				dec.setMinutes((int)(Math.floor(dvalue)));
+				// calculate remaining seconds
+				dvalue -= Math.floor(dvalue);
+				dvalue *= 60.0;
+				dec.setSeconds(dvalue);
+				target.setDec(dec);
+			}
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse an Equinox element.
+	 * @param target The target to set the equinox of.
+	 * @param reader The stream reader, positioned at the Equinox start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see org.estar.rtml.RTMLTarget#setEquinox
+	 */
+	private void parseEquinoxElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseEquinoxElement",reader,"Equinox");
+		// go through text
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			if(s.trim().length() > 0)
+				target.setEquinox(s.trim());
+		}
+	}
+
+	/**
+	 * Internal method to parse a TargetBrightness element.
+	 * @param target The target to set the brightness of.
+	 * @param reader The stream reader, positioned at the TargetBrightness start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see org.estar.rtml.RTMLTarget#setMagnitude
+	 * @see org.estar.rtml.RTMLTarget#setMagnitudeFilterType
+	 * @see org.estar.rtml.RTMLTarget#setMagnitudeError
+	 */
+	private void parseTargetBrightnessElement(RTMLTarget target,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseTargetBrightnessElement",reader,"TargetBrightness");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Magnitude"))
+				target.setMagnitude(parseDoubleElement(reader));
+			else if(elementName.equals("Type"))
+				target.setMagnitudeFilterType(parseStringElement("Type",reader));
+			else if(elementName.equals("Error"))
+				target.setMagnitudeError(parseDoubleElement(reader));
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a Schedule element. In RTML 3.1 Schedule contains Observation, whereas
+	 * in the org.estar.rtml document model Observation contains Schedule. Therefore an Observation is created
+	 * for the Schedule to be in.
+	 * @param document The document to add the observation to.
+	 * @param reader The stream reader, positioned at the Schedule start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @exception NumberFormatException Thrown if a number fails to parse.
+	 * @exception ParseException Thrown if a date fails to parse.
+	 * @see org.estar.rtml.RTML31Parser#parseScheduleNode
+	 */
+	private void parseScheduleElement(RTMLDocument document,XMLStreamReader reader) throws RTMLException,
+									  NumberFormatException, ParseException
+	{
+		RTMLObservation observation = null;
+		RTMLSchedule schedule = null;
+		String elementName = null;
+		int priority = RTMLSchedule.SCHEDULE_PRIORITY_NORMAL;
+
+		// check current element is correct
+		checkElement("parseScheduleElement",reader,"Schedule");
+		// This assumes one observation per schedule at the moment!
+		observation = new RTMLObservation();
+		document.addObservation(observation);
+		// add schedule
+		schedule = new RTMLSchedule();
+		observation.setSchedule(schedule);
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("AirmassConstraint"))
+				parseAirmassConstraintElement(schedule,reader);
+			else if(elementName.equals("DateTimeConstraint"))
+				parseDateTimeConstraintElement(schedule,reader);
+			else if(elementName.equals("Device"))
+				parseDeviceElement(observation,reader);
+			else if(elementName.equals("Exposure"))
+				parseExposureElement(schedule,reader);
+			else if(elementName.equals("ExtinctionConstraint"))
+				parseExtinctionConstraintElement(schedule,reader);
+			else if(elementName.equals("MoonConstraint"))
+				parseMoonConstraintElement(schedule,reader);
+			else if(elementName.equals("Observation"))
+				parseObservationElement(observation,reader);
+			else if(elementName.equals("Priority"))
+			{
+				priority = parseIntegerElement(reader);
+				schedule.setPriority(priority);
+			}
+			else if(elementName.equals("SeriesConstraint"))
+				parseSeriesConstraintElement(schedule,reader);
+			else if(elementName.equals("SeeingConstraint"))
+				parseSeeingConstraintElement(schedule,reader);
+			else if(elementName.equals("SkyConstraint"))
+				parseSkyConstraintElement(schedule,reader);
+			else if(elementName.equals("Target"))
+				parseTargetElement(observation,reader);
+			else
+				skipElement(reader);
+		}
+		// based on the schedule priority, we have to set the target type to "toop" or "normal"
+		if(observation.getTarget() != null)
+		{
+			if(priority == RTMLSchedule.SCHEDULE_PRIORITY_TOOP)
+				observation.getTarget().setType("toop");
+			else
+				observation.getTarget().setType("normal");
+		}
+	}
+
+	/**
+	 * Internal method to parse an Exposure element.
+	 * @param schedule The schedule to set the exposure data of.
+	 * @param reader The stream reader, positioned at the Exposure start element.
+	 * @exception RTMLException Thrown if a strange child is in the element, or a required attribute is missing.
+	 * @see org.estar.rtml.RTMLSchedule#setExposureCount(java.lang.String)
+	 * @see org.estar.rtml.RTMLSchedule#setExposureLength(double)
+	 */
+	private void parseExposureElement(RTMLSchedule schedule,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+		String units = null;
+
+		// check current element is correct
+		checkElement("parseExposureElement",reader,"Exposure");
+		// exposure count
+		schedule.setExposureCount(getRequiredAttribute("parseExposureElement",reader,"count"));
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Value"))
+			{
+				// get units attribute before the value is read
+				units = getRequiredAttribute("parseExposureElement",reader,"units");
+				schedule.setExposureLength(parseDoubleElement(reader));
+				schedule.setExposureUnits(units);
+				// type is time rather than snr
+				schedule.setExposureType("time");
+			}
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a DateTimeConstraint element. Only include constraints are allowed.
+	 * @param schedule The schedule to set the start and end date of.
+	 * @param reader The stream reader, positioned at the DateTimeConstraint start element.
+	 * @exception RTMLException Thrown if the constraint is an exclude, or the time system is not UT.
+	 * @exception ParseException Thrown if a date fails to parse.
+	 * @see org.estar.rtml.RTMLDateFormat
+	 * @see org.estar.rtml.RTMLSchedule#setStartDate
+	 * @see org.estar.rtml.RTMLSchedule#setEndDate
+	 */
+	private void parseDateTimeConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, ParseException
+	{
+		RTMLDateFormat dateFormat = null;
+		String elementName = null;
+		String type = null;
+		String value = null;
+		String system = null;
+
+		dateFormat = RTMLDateFormat.getInstance();
+		// check current element is correct
+		checkElement("parseDateTimeConstraintElement",reader,"DateTimeConstraint");
+		// type, include or exclude
+		type = reader.getAttributeValue(null,"type");
+		if((type != null)&&type.equals("exclude"))
+		{
+			throw new RTMLException(this.getClass().getName()+
+			  ":parseDateTimeConstraintElement:Time constraint is an exclude: We only allow include.");
+		}
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("DateTimeStart")||elementName.equals("DateTimeEnd"))
+			{
+				// value
+				value = getRequiredAttribute("parseDateTimeConstraintElement",reader,"value");
+				// system must be UT
+				system = reader.getAttributeValue(null,"system");
+				if((system != null)&&(system.equals("UT") == false))
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parseDateTimeConstraintElement:"+elementName+
+								" system was not UT.");
+				}
+				// parse value into date
+				if(elementName.equals("DateTimeStart"))
+					schedule.setStartDate(dateFormat.parse(value));
+				else
+					schedule.setEndDate(dateFormat.parse(value));
+			}
+			skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse an AirmassConstraint element.
+	 * @param schedule The schedule to set the constraint of.
+	 * @param reader The stream reader, positioned at the AirmassConstraint start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @exception NumberFormatException Thrown if the minimum/maximum fail to parse.
+	 * @see org.estar.rtml.RTMLAirmassConstraint
+	 */
+	private void parseAirmassConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLAirmassConstraint airmassConstraint = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseAirmassConstraintElement",reader,"AirmassConstraint");
+		// add airmass constraint object
+		airmassConstraint = new RTMLAirmassConstraint();
+		// minimum
+		s = reader.getAttributeValue(null,"minimum");
+		if(s != null)
+			airmassConstraint.setMinimum(s);
+		// maximum
+		s = reader.getAttributeValue(null,"maximum");
+		if(s != null)
+			airmassConstraint.setMaximum(s);
+		skipElement(reader);
+		// add airmass constraint to schedule
+		schedule.setAirmassConstraint(airmassConstraint);
+	}
+
+	/**
+	 * Internal method to parse a SeriesConstraint element.
+	 * @param schedule The schedule to set the constraint of.
+	 * @param reader The stream reader, positioned at the SeriesConstraint start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see org.estar.rtml.RTMLSeriesConstraint
+	 * @see #parsePeriodElement
+	 */
+	private void parseSeriesConstraintElement(RTMLSchedule schedule,XMLStreamReader reader) throws RTMLException
+	{
+		RTMLSeriesConstraint seriesConstraint = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseSeriesConstraintElement",reader,"SeriesConstraint");
+		// add series constraint object
+		seriesConstraint = new RTMLSeriesConstraint();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Count"))
+				seriesConstraint.setCount(parseIntegerElement(reader));
+			else if(elementName.equals("Interval"))
+				seriesConstraint.setInterval(parsePeriodElement(reader));
+			else if(elementName.equals("Tolerance"))
+				seriesConstraint.setTolerance(parsePeriodElement(reader));
+			else
+				skipElement(reader);
+		}
+		// add series constraint to schedule
+		schedule.setSeriesConstraint(seriesConstraint);
+	}
+
+	/**
+	 * Internal method to parse a SeeingConstraint element.
+	 * @param schedule The schedule to set the constraint of.
+	 * @param reader The stream reader, positioned at the SeeingConstraint start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @exception NumberFormatException Thrown if the minimum/maximum fail to parse.
+	 * @see org.estar.rtml.RTMLSeeingConstraint
+	 */
+	private void parseSeeingConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLSeeingConstraint seeingConstraint = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseSeeingConstraintElement",reader,"SeeingConstraint");
+		// add seeing constraint object
+		seeingConstraint = new RTMLSeeingConstraint();
+		// minimum
+		s = reader.getAttributeValue(null,"minimum");
+		if(s != null)
+			seeingConstraint.setMinimum(s);
+		// maximum
+		s = reader.getAttributeValue(null,"maximum");
+		if(s != null)
+			seeingConstraint.setMaximum(s);
+		// ExposureFactor is not used atm
+		skipElement(reader);
+		// add seeing constraint to schedule
+		schedule.setSeeingConstraint(seeingConstraint);
+	}
+
+	/**
+	 * Internal method to parse a MoonConstraint element.
+	 * @param schedule The schedule to set the constraint of.
+	 * @param reader The stream reader, positioned at the MoonConstraint start element.
+	 * @exception RTMLException Thrown if a parse error occurs, or the Distance units are not degrees.
+	 * @exception NumberFormatException Thrown if the distance fails to parse.
+	 * @see org.estar.rtml.RTMLMoonConstraint
+	 */
+	private void parseMoonConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLMoonConstraint moonConstraint = null;
+		String elementName = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseMoonConstraintElement",reader,"MoonConstraint");
+		// add moon constraint object
+		moonConstraint = new RTMLMoonConstraint();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Distance"))
+			{
+				// units
+				s = reader.getAttributeValue(null,"units");
+				// value
+				moonConstraint.setDistance(parseDoubleElement(reader));
+				if(s != null)
+				{
+					if(s.equals("degrees"))
+						moonConstraint.setUnits(s);
+					else
+					{
+						throw new RTMLException(this.getClass().getName()+
+									":parseMoonConstraintElement:Illegal Distance units:"+
+									s+":Should be 'degrees'.");
+					}
+				}
+			}
+			else
+				skipElement(reader);
+		}
+		// add moon constraint to schedule
+		schedule.setMoonConstraint(moonConstraint);
+	}
+
+	/**
+	 * Internal method to parse a SkyConstraint element.
+	 * @param schedule The schedule to set the constraint of.
+	 * @param reader The stream reader, positioned at the SkyConstraint start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @exception NumberFormatException Thrown if the flux fails to parse.
+	 * @see org.estar.rtml.RTMLSkyConstraint
+	 */
+	private void parseSkyConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLSkyConstraint skyConstraint = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseSkyConstraintElement",reader,"SkyConstraint");
+		// add sky constraint object
+		skyConstraint = new RTMLSkyConstraint();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Brightness"))
+				skyConstraint.setSky(parseStringElement("Brightness",reader));
+			else if(elementName.equals("Flux"))
+				skyConstraint.setValue(parseDoubleElement(reader));
+			else if(elementName.equals("Units"))
+				skyConstraint.setUnits(parseStringElement("Units",reader));
+			else
+				skipElement(reader);
+		}
+		// add sky constraint to schedule
+		schedule.setSkyConstraint(skyConstraint);
+	}
+
+	/**
+	 * Internal method to parse an ExtinctionConstraint element.
+	 * @param schedule The schedule to set the constraint of.
+	 * @param reader The stream reader, positioned at the ExtinctionConstraint start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @exception NumberFormatException Thrown if the magnitudes fail to parse.
+	 * @see org.estar.rtml.RTMLExtinctionConstraint
+	 */
+	private void parseExtinctionConstraintElement(RTMLSchedule schedule,XMLStreamReader reader)
+		throws RTMLException, NumberFormatException
+	{
+		RTMLExtinctionConstraint extinctionConstraint = null;
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseExtinctionConstraintElement",reader,"ExtinctionConstraint");
+		// add extinction constraint object
+		extinctionConstraint = new RTMLExtinctionConstraint();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Clouds"))
+				extinctionConstraint.setClouds(parseStringElement("Clouds",reader));
+			else if(elementName.equals("Magnitudes"))
+				extinctionConstraint.setValue(parseDoubleElement(reader));
+			else
+				skipElement(reader);
+		}
+		// add extinction constraint to schedule
+		schedule.setExtinctionConstraint(extinctionConstraint);
+	}
+
+	/**
+	 * Internal method to parse an ImageData element.
+	 * @param imageData The image data to fill in.
+	 * @param reader The stream reader, positioned at the ImageData start element.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see org.estar.rtml.RTMLImageData#setFITSHeader
+	 * @see org.estar.rtml.RTMLImageData#setImageDataURL
+	 */
+	private void parseImageDataElement(RTMLImageData imageData,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseImageDataElement",reader,"ImageData");
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("FITSHeader"))
+				imageData.setFITSHeader(parseStringElement("FITSHeader",reader));
+			else if(elementName.equals("Uri"))
+			{
+				imageData.setImageDataURL(parseStringElement("Uri",reader));
+				imageData.setImageDataType("FITS16");
+			}
+			else
+				skipElement(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse a SourceCatalogue element.
+	 * According to RTML 3.1a schema, SourceCatalogue type can be "text" (cluster) or "other" (votable-url).
+	 * @param imageData The image data to fill in.
+	 * @param reader The stream reader, positioned at the SourceCatalogue start element.
+	 * @exception RTMLException Thrown if the type attribute is missing or unknown.
+	 * @see org.estar.rtml.RTMLImageData#setObjectListType
+	 * @see org.estar.rtml.RTMLImageData#setObjectListCluster
+	 * @see org.estar.rtml.RTMLImageData#setObjectListVOTableURL(java.lang.String)
+	 */
+	private void parseSourceCatalogueElement(RTMLImageData imageData,XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String type = null;
+		String s = null;
+
+		// check current element is correct
+		checkElement("parseSourceCatalogueElement",reader,"SourceCatalogue");
+		// type
+		type = reader.getAttributeValue(null,"type");
+		if(type == null)
+		{
+			throw new RTMLException(this.getClass().getName()+
+					 ":parseSourceCatalogueElement:SourceCatalogue has no type attribute.");
+		}
+		// imageData.setObjectListType accepts "cluster" (=text) or "votable-url" (=other)
+		if(type.equals("text"))
+			imageData.setObjectListType("cluster");
+		else if(type.equals("other"))
+			imageData.setObjectListType("votable-url");
+		else
+		{
+			throw new RTMLException(this.getClass().getName()+
+						":parseSourceCatalogueElement:Unknown SourceCatalogue type attribute:"+
+						type);
+		}
+		// go through text
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			// ensure it is not all whitespace
+			if(s.trim().length() > 0)
+			{
+				if(type.equals("text"))// cluster
+					imageData.setObjectListCluster(s);
+				else if(type.equals("other"))// votable-url
+					imageData.setObjectListVOTableURL(s);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Scoring element. The document's scores list is cleared, and each
+	 * Score element added to it.
+	 * @param rtmlDocument The document to add the scores to.
+	 * @param reader The stream reader, positioned at the Scoring start element.
+	 * @exception RTMLException Thrown if a strange child is in the element.
+	 * @see #parseScoreElement
+	 * @see org.estar.rtml.RTMLDocument#clearScoresList
+	 */
+	private void parseScoringElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		String elementName = null;
+
+		// check current element is correct
+		checkElement("parseScoringElement",reader,"Scoring");
+		// clear scores list
+		rtmlDocument.clearScoresList();
+		// go through child elements
+		while(nextChildElement(reader))
+		{
+			elementName = getElementName(reader);
+			if(elementName.equals("Score"))
+				parseScoreElement(rtmlDocument,reader);
+			else
+			{
+				System.err.println("parseScoringElement:ELEMENT:"+elementName);
+				skipElement(reader);
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse a Score element.
+	 * @param rtmlDocument The document to add the score to.
+	 * @param reader The stream reader, positioned at the Score start element.
+	 * @exception RTMLException Thrown if a required attribute is missing, or fails to parse.
+	 * @see org.estar.rtml.RTMLDocument#addScore(java.lang.String,java.lang.String,java.lang.String)
+	 */
+	private void parseScoreElement(RTMLDocument rtmlDocument,XMLStreamReader reader) throws RTMLException
+	{
+		String delayString,probabilityString,cumulativeString;
+
+		// check current element is correct
+		checkElement("parseScoreElement",reader,"Score");
+		// delay
+		delayString = reader.getAttributeValue(null,"delay");
+		if(delayString == null)
+		{
+			throw new RTMLException(this.getClass().getName()+
+						":parseScoreElement:delay attribute does not exist.");
+		}
+		// probability
+		probabilityString = reader.getAttributeValue(null,"probability");
+		if(probabilityString == null)
+		{
+			throw new RTMLException(this.getClass().getName()+
+						":parseScoreElement:probability attribute does not exist.");
+		}
+		// cumulative
+		cumulativeString = reader.getAttributeValue(null,"cumulative");
+		if(cumulativeString == null)
+		{
+			throw new RTMLException(this.getClass().getName()+
+						":parseScoreElement:cumulative attribute does not exist.");
+		}
+		skipElement(reader);
+		// parse and add score data to list
+		rtmlDocument.addScore(delayString,probabilityString,cumulativeString);
+	}
+}
@@ -63,6 +63,17 @@ public class RTMLAirmassConstraint implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param constraint The constraint to copy.
+	 */
+	public RTMLAirmassConstraint(RTMLAirmassConstraint constraint)
+	{
+		super();
+		minimum = constraint.minimum;
+		maximum = constraint.maximum;
+	}
+
 	/**
 	 * Set the minimum airmass.
 	 * @param s The minimum value specified as a string representation of a double.
@@ -146,6 +157,17 @@ public class RTMLAirmassConstraint implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the airmass constraint, consistent with equals.
+	 * The limits are compared with a tolerance, so are not used.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		return getClass().getName().hashCode();
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
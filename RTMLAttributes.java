@@ -62,6 +62,18 @@ public class RTMLAttributes implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param attributes The attributes to copy.
+	 */
+	public RTMLAttributes(RTMLAttributes attributes)
+	{
+		super();
+		id = attributes.id;
+		ref = attributes.ref;
+		uref = attributes.uref;
+	}
+
 	/**
 	 * Set the Id of this element (RTML 3.1a).
 	 * @param s The id.
@@ -122,6 +134,44 @@ public class RTMLAttributes implements Serializable
 		return uref;
 	}
 
+	/**
+	 * Test whether one set of attributes is equal to another: the objects are of the same class, and the
+	 * id, ref and uref are the same. Subclasses call this first, and then compare their own fields.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #id
+	 * @see #ref
+	 * @see #uref
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLAttributes other = null;
+
+		if(obj == this)
+			return true;
+		if((obj == null)||(obj.getClass() != getClass()))
+			return false;
+		other = (RTMLAttributes)obj;
+		return RTMLEquality.same(id,other.id)&&RTMLEquality.same(ref,other.ref)&&
+			RTMLEquality.same(uref,other.uref);
+	}
+
+	/**
+	 * Return a hash code for the set of attributes, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = getClass().getName().hashCode();
+		hash = RTMLEquality.hash(hash,id);
+		hash = RTMLEquality.hash(hash,ref);
+		hash = RTMLEquality.hash(hash,uref);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of the attributes.
 	 * @see #toString(java.lang.String)
@@ -0,0 +1,545 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLBatchParser.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class parses a batch of RTML documents in parallel, using a fixed size pool of worker threads.
+ * The documents can be all the files in a directory, a list of files, or a sequence of input streams.
+ * Each worker thread uses it's own RTMLParser, from an RTMLParserPool created for the batch.
+ * A list of results is returned, one per document in input order, each holding either the parsed
+ * RTMLDocument or the RTMLException that caused the document's parse to fail.
+ * A failed document does not stop the rest of the batch being parsed.
+ * <pre>
+ * RTMLBatchParser batchParser = new RTMLBatchParser();
+ * batchParser.setParallelism(4);
+ * List resultList = batchParser.parse(new File("/data/rtml/2026-10-16"));
+ * for(int i = 0; i < resultList.size(); i++)
+ * {
+ * 	RTMLBatchParser.Result result = (RTMLBatchParser.Result)(resultList.get(i));
+ * 	if(result.isSuccess())
+ * 		process(result.getDocument());
+ * }
+ * </pre>
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParserPool
+ * @see RTMLBatchParser.Result
+ */
+public class RTMLBatchParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The maximum number of documents submitted to the worker threads (and not yet collected) at once,
+	 * per worker thread. Two, so each worker has a document waiting whilst it parses one.
+	 * @see #parseBatch
+	 */
+	public final static int MAX_QUEUED_PER_THREAD = 2;
+	/**
+	 * The maximum number of documents parsed at once (the number of worker threads).
+	 * Defaults to the number of available processors.
+	 */
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Whether documents are parsed (validated) using Schema. Only works for RTML3.1a.
+	 */
+	private boolean parseSchema = false;
+	/**
+	 * Which engine is used to parse the documents.
+	 * @see org.estar.rtml.RTMLParser#PARSE_ENGINE_DOM
+	 * @see org.estar.rtml.RTMLParser#PARSE_ENGINE_STREAM
+	 */
+	private int parseEngine = RTMLParser.PARSE_ENGINE_DOM;
+	/**
+	 * Which parts of the documents are parsed.
+	 * @see org.estar.rtml.RTMLParser#PARSE_PROFILE_FULL
+	 * @see org.estar.rtml.RTMLParser#PARSE_PROFILE_SCHEDULING
+	 * @see org.estar.rtml.RTMLParser#PARSE_PROFILE_ROUTING
+	 */
+	private int parseProfile = RTMLParser.PARSE_PROFILE_FULL;
+
+	/**
+	 * Default constructor.
+	 */
+	public RTMLBatchParser()
+	{
+		super();
+	}
+
+	/**
+	 * Set the maximum number of documents parsed at once.
+	 * @param n The number of worker threads, must be at least one.
+	 * @exception IllegalArgumentException Thrown if n is less than one.
+	 * @see #parallelism
+	 */
+	public void setParallelism(int n) throws IllegalArgumentException
+	{
+		if(n < 1)
+			throw new IllegalArgumentException(this.getClass().getName()+":setParallelism:Illegal value:"+n);
+		parallelism = n;
+	}
+
+	/**
+	 * Get the maximum number of documents parsed at once.
+	 * @return The number of worker threads.
+	 * @see #parallelism
+	 */
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Set whether documents are parsed using Schema. Only works for RTML3.1a.
+	 * @param b If true, documents are validated against the RTML Schema.
+	 * @see #parseSchema
+	 */
+	public void setParseSchema(boolean b)
+	{
+		parseSchema = b;
+	}
+
+	/**
+	 * Get whether documents are parsed using Schema.
+	 * @return true if documents are validated against the RTML Schema.
+	 * @see #parseSchema
+	 */
+	public boolean getParseSchema()
+	{
+		return parseSchema;
+	}
+
+	/**
+	 * Set which engine is used to parse the documents.
+	 * @param e The parse engine, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @exception IllegalArgumentException Thrown if e is not a legal parse engine.
+	 * @see #parseEngine
+	 */
+	public void setParseEngine(int e) throws IllegalArgumentException
+	{
+		if((e != RTMLParser.PARSE_ENGINE_DOM)&&(e != RTMLParser.PARSE_ENGINE_STREAM))
+			throw new IllegalArgumentException(this.getClass().getName()+":setParseEngine:Illegal engine:"+e);
+		parseEngine = e;
+	}
+
+	/**
+	 * Get which engine is used to parse the documents.
+	 * @return The parse engine.
+	 * @see #parseEngine
+	 */
+	public int getParseEngine()
+	{
+		return parseEngine;
+	}
+
+	/**
+	 * Set which parts of the documents are parsed.
+	 * @param p The parse profile, one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or PARSE_PROFILE_ROUTING.
+	 * @exception IllegalArgumentException Thrown if p is not a legal parse profile.
+	 * @see #parseProfile
+	 */
+	public void setParseProfile(int p) throws IllegalArgumentException
+	{
+		if(RTMLParser.isParseProfile(p) == false)
+			throw new IllegalArgumentException(this.getClass().getName()+":setParseProfile:Illegal profile:"+p);
+		parseProfile = p;
+	}
+
+	/**
+	 * Get which parts of the documents are parsed.
+	 * @return The parse profile.
+	 * @see #parseProfile
+	 */
+	public int getParseProfile()
+	{
+		return parseProfile;
+	}
+
+	/**
+	 * Parse all the files in a directory. Sub-directories are not searched.
+	 * @param directory The directory.
+	 * @return A list of Result, one per file, in filename order.
+	 * @exception RTMLException Thrown if the directory cannot be listed, or the batch is interrupted.
+	 * @see #parse(java.io.File,java.io.FileFilter)
+	 */
+	public List parse(File directory) throws RTMLException
+	{
+		return parse(directory,null);
+	}
+
+	/**
+	 * Parse the files in a directory accepted by a filter. Sub-directories are not searched.
+	 * @param directory The directory.
+	 * @param filter The filter files must be accepted by, or null to parse all files.
+	 * @return A list of Result, one per file, in filename order.
+	 * @exception RTMLException Thrown if the directory cannot be listed, or the batch is interrupted.
+	 * @see #parseFiles
+	 */
+	public List parse(File directory,FileFilter filter) throws RTMLException
+	{
+		List fileList = null;
+		File fileArray[] = null;
+
+		fileArray = directory.listFiles();
+		if(fileArray == null)
+		{
+			throw new RTMLException(this.getClass().getName()+":parse:Failed to list directory:"+
+						directory);
+		}
+		Arrays.sort(fileArray);
+		fileList = new Vector();
+		for(int i = 0; i < fileArray.length; i++)
+		{
+			if(fileArray[i].isFile() && ((filter == null)||filter.accept(fileArray[i])))
+				fileList.add(fileArray[i]);
+		}
+		return parseFiles(fileList);
+	}
+
+	/**
+	 * Parse a list of files.
+	 * @param fileList A list of File, the files to parse.
+	 * @return A list of Result, one per file, in the same order as fileList.
+	 * @exception RTMLException Thrown if the batch is interrupted.
+	 * @see #parseBatch
+	 */
+	public List parseFiles(List fileList) throws RTMLException
+	{
+		return parseBatch(fileList.iterator());
+	}
+
+	/**
+	 * Parse a sequence of input streams. Each stream is closed after it has been parsed.
+	 * The iterator is read as the batch progresses, rather than all at once, so it can open each stream
+	 * (e.g. a FileInputStream) when next is called, and at most MAX_QUEUED_PER_THREAD*parallelism
+	 * streams are open at once.
+	 * @param inputStreamIterator An iterator over the InputStreams to parse.
+	 * @return A list of Result, one per stream, in iteration order.
+	 * @exception RTMLException Thrown if the batch is interrupted.
+	 * @see #parseBatch
+	 */
+	public List parseStreams(Iterator inputStreamIterator) throws RTMLException
+	{
+		return parseBatch(inputStreamIterator);
+	}
+
+	/**
+	 * Internal method to parse a batch of documents. A new RTMLParserPool and a fixed size thread pool
+	 * of parallelism threads are created. Documents are taken from the iterator as the batch progresses:
+	 * at most MAX_QUEUED_PER_THREAD*parallelism documents are submitted (and not yet collected) at once,
+	 * so a batch of hundreds of thousands of streams does not have them all open (or all queued) at once.
+	 * The results are collected in order, the next document being submitted as each result is collected.
+	 * The threads (and their parsers) are discarded at the end of the batch. If the batch ends abnormally
+	 * (it is interrupted, or the iterator throws an exception), any stream submitted but not yet parsed
+	 * is closed.
+	 * @param sourceIterator An iterator over File or InputStream, the documents to parse.
+	 * @return A list of Result, one per document, in iteration order.
+	 * @exception RTMLException Thrown if the batch is interrupted.
+	 * @see #MAX_QUEUED_PER_THREAD
+	 * @see #parallelism
+	 * @see #parseSchema
+	 * @see #parseEngine
+	 * @see #parseProfile
+	 * @see #submit
+	 * @see #parseDocument
+	 */
+	protected List parseBatch(Iterator sourceIterator) throws RTMLException
+	{
+		RTMLParserPool pool = null;
+		ExecutorService executor = null;
+		LinkedList futureQueue = null;
+		LinkedList sourceQueue = null;
+		List resultList = null;
+		Object source = null;
+		int maxQueuedCount,index;
+		boolean done = false;
+
+		pool = new RTMLParserPool(parseSchema,parseEngine,parseProfile);
+		executor = Executors.newFixedThreadPool(parallelism,new ThreadFactory()
+		{
+			private int threadNumber = 0;
+
+			public synchronized Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r,"RTMLBatchParser-"+(threadNumber++));
+
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// the futures and sources submitted but not yet collected, in submission order
+		futureQueue = new LinkedList();
+		sourceQueue = new LinkedList();
+		resultList = new Vector();
+		maxQueuedCount = MAX_QUEUED_PER_THREAD*parallelism;
+		index = 0;
+		try
+		{
+			while(sourceIterator.hasNext() && (futureQueue.size() < maxQueuedCount))
+				submit(executor,pool,index++,sourceIterator.next(),futureQueue,sourceQueue);
+			while(futureQueue.size() > 0)
+			{
+				source = sourceQueue.removeFirst();
+				try
+				{
+					resultList.add(((Future)(futureQueue.removeFirst())).get());
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new RTMLException(this.getClass().getName()+":parseBatch:Interrupted.",e);
+				}
+				catch(ExecutionException e)
+				{
+					// parseDocument catches all exceptions, so this should not happen
+					resultList.add(new Result(resultList.size(),source,null,
+					    new RTMLException(this.getClass().getName()+":parseBatch:"+source+
+							      ":Parse failed.",e)));
+				}
+				if(sourceIterator.hasNext())
+					submit(executor,pool,index++,sourceIterator.next(),futureQueue,sourceQueue);
+			}
+			done = true;
+		}
+		finally
+		{
+			if(done == false)
+				cancel(futureQueue,sourceQueue);
+			executor.shutdownNow();
+		}
+		return resultList;
+	}
+
+	/**
+	 * Internal method to submit a document to the executor, and add it's future and source to the queues.
+	 * @param executor The executor to submit the document's parse to.
+	 * @param pool The parser pool the worker threads get their parsers from.
+	 * @param index The index of the document in the batch.
+	 * @param source The document to parse, a File or an InputStream.
+	 * @param futureQueue The queue to add the parse's Future to.
+	 * @param sourceQueue The queue to add the source to.
+	 * @see #parseDocument
+	 */
+	private void submit(ExecutorService executor,final RTMLParserPool pool,final int index,final Object source,
+			    List futureQueue,List sourceQueue)
+	{
+		futureQueue.add(executor.submit(new Callable()
+		{
+			public Object call()
+			{
+				return parseDocument(pool,index,source);
+			}
+		}));
+		sourceQueue.add(source);
+	}
+
+	/**
+	 * Internal method to cancel the documents submitted but not collected, when a batch ends abnormally.
+	 * Input streams of documents whose parse had not started are closed (a started parse closes it's own
+	 * stream).
+	 * @param futureQueue The Futures of the documents submitted but not collected.
+	 * @param sourceQueue The sources of the documents submitted but not collected, in the same order.
+	 */
+	private void cancel(List futureQueue,List sourceQueue)
+	{
+		Object source = null;
+
+		for(int i = 0; i < futureQueue.size(); i++)
+		{
+			source = sourceQueue.get(i);
+			if(((Future)(futureQueue.get(i))).cancel(false) && (source instanceof InputStream))
+			{
+				try
+				{
+					((InputStream)source).close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method, called by a worker thread, to parse a single document using the worker's parser.
+	 * Any exception is returned in the result, rather than thrown.
+	 * @param pool The parser pool to get the worker thread's parser from.
+	 * @param index The index of the document in the batch.
+	 * @param source The document to parse, a File or an InputStream. An InputStream is closed after parsing.
+	 * @return The result of the parse.
+	 * @see org.estar.rtml.RTMLParserPool#parse(java.io.File)
+	 * @see org.estar.rtml.RTMLParserPool#parse(java.io.InputStream)
+	 */
+	protected Result parseDocument(RTMLParserPool pool,int index,Object source)
+	{
+		RTMLDocument document = null;
+		InputStream is = null;
+
+		try
+		{
+			if(source instanceof File)
+				document = pool.parse((File)source);
+			else if(source instanceof InputStream)
+			{
+				is = (InputStream)source;
+				try
+				{
+					document = pool.parse(is);
+				}
+				finally
+				{
+					try
+					{
+						is.close();
+					}
+					catch(IOException e)
+					{
+					}
+				}
+			}
+			else
+			{
+				throw new RTMLException(this.getClass().getName()+":parseDocument:Illegal source:"+
+							source);
+			}
+		}
+		catch(RTMLException e)
+		{
+			return new Result(index,source,null,e);
+		}
+		catch(Exception e)
+		{
+			//ParseException,RuntimeException
+			return new Result(index,source,null,
+					  new RTMLException(this.getClass().getName()+":parseDocument:"+source+
+							    ":Parse failed.",e));
+		}
+		return new Result(index,source,document,null);
+	}
+
+	/**
+	 * The result of parsing one document in a batch. Holds either the parsed document,
+	 * or the exception that caused the parse to fail.
+	 * @see RTMLBatchParser#parseBatch
+	 */
+	public static class Result
+	{
+		/**
+		 * The index of the document in the batch.
+		 */
+		private int index = 0;
+		/**
+		 * Where the document was parsed from, a File or an InputStream.
+		 */
+		private Object source = null;
+		/**
+		 * The parsed document, or null if the parse failed.
+		 */
+		private RTMLDocument document = null;
+		/**
+		 * The exception thrown by the parse, or null if the parse succeeded.
+		 */
+		private RTMLException exception = null;
+
+		/**
+		 * Constructor.
+		 * @param index The index of the document in the batch.
+		 * @param source Where the document was parsed from.
+		 * @param document The parsed document, or null.
+		 * @param exception The exception thrown by the parse, or null.
+		 */
+		public Result(int index,Object source,RTMLDocument document,RTMLException exception)
+		{
+			super();
+			this.index = index;
+			this.source = source;
+			this.document = document;
+			this.exception = exception;
+		}
+
+		/**
+		 * Get the index of the document in the batch.
+		 * @return The index.
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+
+		/**
+		 * Get where the document was parsed from.
+		 * @return A File or an InputStream.
+		 */
+		public Object getSource()
+		{
+			return source;
+		}
+
+		/**
+		 * Get the parsed document.
+		 * @return The document, or null if the parse failed.
+		 */
+		public RTMLDocument getDocument()
+		{
+			return document;
+		}
+
+		/**
+		 * Get the exception that caused the parse to fail.
+		 * @return The exception, or null if the parse succeeded.
+		 */
+		public RTMLException getException()
+		{
+			return exception;
+		}
+
+		/**
+		 * Return whether the document was parsed successfully.
+		 * @return true if the document was parsed, false if the parse failed.
+		 */
+		public boolean isSuccess()
+		{
+			return (exception == null);
+		}
+
+		/**
+		 * Return a string representation of this result.
+		 * @return The index, source, and either "parsed" or the exception.
+		 */
+		public String toString()
+		{
+			if(exception == null)
+				return index+":"+source+":parsed";
+			return index+":"+source+":"+exception;
+		}
+	}
+}
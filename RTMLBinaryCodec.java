@@ -0,0 +1,1738 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLBinaryCodec.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.net.*;
+import java.security.*;
+import java.util.*;
+
+import org.estar.astrometry.*;
+
+/**
+ * This class encodes an RTMLDocument (Java object tree) into a compact binary form, and decodes it again.
+ * It is intended for passing documents between our own processes (e.g. from the node agent to the
+ * TEA and back), where both ends use this library and the document does not need to be human readable or
+ * validated against the schema. The whole document graph is encoded: observations, schedules and their
+ * constraints, targets (including ephemeris tracks), devices (with detector, grating and half-wave plate),
+ * contact, project, telescope, history, scores and image data.
+ * <p>The encoding starts with the four bytes MAGIC followed by a FORMAT_VERSION byte, and the decoder
+ * rejects data with a different magic number or version. Each object is preceded by a presence byte
+ * (so null references survive the round trip), strings are written as a variable length
+ * (length+1, 0 meaning null) followed by their UTF-8 bytes, integers and counts as variable length
+ * (7 bits per byte) integers, doubles as 8 bytes and dates as milliseconds since the epoch.
+ * Ephemeris tracks are written column by column, with each timestamp written as the difference from the
+ * previous one.
+ * <p>Document patches (RTMLDocumentPatch) are encoded in the same way, starting with PATCH_MAGIC instead.
+ * <p>As the encoding is canonical (it depends only on the document's contents), it is also used to compute
+ * document fingerprints (fingerprint), without writing the document as XML.
+ * <p>An instance keeps its encode buffer between calls, and so is not thread-safe: use one instance per
+ * thread.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLDocument
+ * @see org.estar.rtml.RTMLEphemerisTrack#writeBinary
+ * @see org.estar.rtml.RTMLEphemerisTrack#readBinary
+ * @see org.estar.rtml.RTMLDocumentPatch
+ * @see org.estar.rtml.RTMLDocumentFingerprint
+ */
+public class RTMLBinaryCodec
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The magic number at the start of every encoded document ("RTMB" in ASCII).
+	 */
+	public final static int MAGIC = 0x52544d42;
+	/**
+	 * The magic number at the start of every encoded document patch ("RTMP" in ASCII).
+	 * @see org.estar.rtml.RTMLDocumentPatch
+	 */
+	public final static int PATCH_MAGIC = 0x52544d50;
+	/**
+	 * The version of the encoding written by encode. Increment this whenever the encoding changes.
+	 */
+	public final static int FORMAT_VERSION = 1;
+	/**
+	 * The initial size of the encode buffer.
+	 */
+	private final static int DEFAULT_BUFFER_SIZE = 1024;
+	/**
+	 * The buffer encoded documents are built in, or the data being decoded.
+	 */
+	private byte buffer[] = null;
+	/**
+	 * The current position in the buffer.
+	 */
+	private int position = 0;
+	/**
+	 * The number of bytes of valid data in the buffer, when decoding.
+	 */
+	private int limit = 0;
+	/**
+	 * The message digest used to compute fingerprints, created when first used.
+	 * @see #fingerprint
+	 */
+	private MessageDigest digest = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public RTMLBinaryCodec()
+	{
+		super();
+	}
+
+	/**
+	 * Encode a document.
+	 * @param d The document to encode.
+	 * @return A new byte array containing the encoded document.
+	 * @exception RTMLException Thrown if the document cannot be encoded.
+	 * @see #encodeDocument
+	 */
+	public byte[] encode(RTMLDocument d) throws RTMLException
+	{
+		byte data[] = null;
+
+		encodeDocument(d);
+		data = new byte[position];
+		System.arraycopy(buffer,0,data,0,position);
+		return data;
+	}
+
+	/**
+	 * Encode a document to an output stream. The stream is flushed but not closed.
+	 * @param d The document to encode.
+	 * @param os The stream to write the encoded document to.
+	 * @exception RTMLException Thrown if the document cannot be encoded, or writing to the stream fails.
+	 * @see #encodeDocument
+	 */
+	public void encode(RTMLDocument d,OutputStream os) throws RTMLException
+	{
+		encodeDocument(d);
+		try
+		{
+			os.write(buffer,0,position);
+			os.flush();
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":encode:",e);
+		}
+	}
+
+	/**
+	 * Compute the fingerprint of a document: the MD5 digest of it's encoding. The document is encoded into
+	 * the codec's buffer, so no XML is written and (once the buffer has grown to the size of the documents
+	 * being fingerprinted) nothing is allocated apart from the fingerprint.
+	 * @param d The document.
+	 * @return A new fingerprint.
+	 * @exception RTMLException Thrown if the document cannot be encoded.
+	 * @see #encodeDocument
+	 * @see #digest
+	 * @see org.estar.rtml.RTMLDocumentFingerprint
+	 */
+	public RTMLDocumentFingerprint fingerprint(RTMLDocument d) throws RTMLException
+	{
+		encodeDocument(d);
+		if(digest == null)
+		{
+			try
+			{
+				digest = MessageDigest.getInstance("MD5");
+			}
+			catch(NoSuchAlgorithmException e)
+			{
+				// MD5 is always supported
+				throw new IllegalStateException(e.toString());
+			}
+		}
+		digest.update(buffer,0,position);
+		return new RTMLDocumentFingerprint(digest.digest());
+	}
+
+	/**
+	 * Decode a document.
+	 * @param data The encoded document, as returned by encode.
+	 * @return A new document.
+	 * @exception RTMLException Thrown if the data is not an encoded document, was encoded with a different
+	 *            FORMAT_VERSION, or is truncated or corrupt.
+	 * @see #decode(byte[],int,int)
+	 */
+	public RTMLDocument decode(byte data[]) throws RTMLException
+	{
+		return decode(data,0,data.length);
+	}
+
+	/**
+	 * Decode a document from part of a byte array.
+	 * @param data The array containing the encoded document.
+	 * @param offset The index in the array the encoded document starts at.
+	 * @param length The length of the encoded document.
+	 * @return A new document.
+	 * @exception RTMLException Thrown if the data is not an encoded document, was encoded with a different
+	 *            FORMAT_VERSION, or is truncated or corrupt.
+	 * @see #decodeDocument
+	 */
+	public RTMLDocument decode(byte data[],int offset,int length) throws RTMLException
+	{
+		RTMLDocument d = null;
+		byte encodeBuffer[] = null;
+
+		// keep the encode buffer for the next encode
+		encodeBuffer = buffer;
+		buffer = data;
+		position = offset;
+		limit = offset+length;
+		try
+		{
+			d = decodeDocument();
+		}
+		finally
+		{
+			buffer = encodeBuffer;
+		}
+		return d;
+	}
+
+	/**
+	 * Decode a document read from an input stream. The stream is read to the end of the stream,
+	 * but not closed.
+	 * @param is The stream to read the encoded document from.
+	 * @return A new document.
+	 * @exception RTMLException Thrown if reading the stream fails, or the data read is not a valid
+	 *            encoded document.
+	 * @see #decode(byte[],int,int)
+	 */
+	public RTMLDocument decode(InputStream is) throws RTMLException
+	{
+		byte data[] = null;
+		int length,count;
+
+		data = new byte[DEFAULT_BUFFER_SIZE];
+		length = 0;
+		try
+		{
+			while((count = is.read(data,length,data.length-length)) >= 0)
+			{
+				length += count;
+				if(length == data.length)
+				{
+					byte newData[] = new byte[data.length*2];
+
+					System.arraycopy(data,0,newData,0,length);
+					data = newData;
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:",e);
+		}
+		return decode(data,0,length);
+	}
+
+	/**
+	 * Encode a document patch. The encoding starts with PATCH_MAGIC and FORMAT_VERSION, followed by the
+	 * patch's changes, encoded as documents are.
+	 * @param p The patch to encode.
+	 * @return A new byte array containing the encoded patch.
+	 * @exception RTMLException Thrown if the patch is null.
+	 * @see #PATCH_MAGIC
+	 * @see org.estar.rtml.RTMLDocumentPatch#writeBinary
+	 */
+	public byte[] encode(RTMLDocumentPatch p) throws RTMLException
+	{
+		byte data[] = null;
+
+		if(p == null)
+			throw new RTMLException(this.getClass().getName()+":encode:Patch was null.");
+		reset();
+		writeInt(PATCH_MAGIC);
+		writeByte(FORMAT_VERSION);
+		p.writeBinary(this);
+		data = new byte[position];
+		System.arraycopy(buffer,0,data,0,position);
+		return data;
+	}
+
+	/**
+	 * Decode a document patch.
+	 * @param data The encoded patch, as returned by encode.
+	 * @return A new patch.
+	 * @exception RTMLException Thrown if the data is not an encoded patch, was encoded with a different
+	 *            FORMAT_VERSION, or is truncated or corrupt.
+	 * @see #decodePatch(byte[],int,int)
+	 */
+	public RTMLDocumentPatch decodePatch(byte data[]) throws RTMLException
+	{
+		return decodePatch(data,0,data.length);
+	}
+
+	/**
+	 * Decode a document patch from part of a byte array.
+	 * @param data The array containing the encoded patch.
+	 * @param offset The index in the array the encoded patch starts at.
+	 * @param length The length of the encoded patch.
+	 * @return A new patch.
+	 * @exception RTMLException Thrown if the data is not an encoded patch, was encoded with a different
+	 *            FORMAT_VERSION, or is truncated or corrupt.
+	 * @see #PATCH_MAGIC
+	 * @see org.estar.rtml.RTMLDocumentPatch#readBinary
+	 */
+	public RTMLDocumentPatch decodePatch(byte data[],int offset,int length) throws RTMLException
+	{
+		RTMLDocumentPatch p = null;
+		byte encodeBuffer[] = null;
+		int magic,version;
+
+		// keep the encode buffer for the next encode
+		encodeBuffer = buffer;
+		buffer = data;
+		position = offset;
+		limit = offset+length;
+		try
+		{
+			magic = readInt();
+			if(magic != PATCH_MAGIC)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":decodePatch:Not an encoded RTML document patch:magic number 0x"+
+							Integer.toHexString(magic)+" should be 0x"+
+							Integer.toHexString(PATCH_MAGIC)+".");
+			}
+			version = readByte();
+			if(version != FORMAT_VERSION)
+			{
+				throw new RTMLException(this.getClass().getName()+":decodePatch:Format version "+version+
+							" not supported (should be "+FORMAT_VERSION+").");
+			}
+			p = new RTMLDocumentPatch();
+			p.readBinary(this);
+			if(position != limit)
+			{
+				throw new RTMLException(this.getClass().getName()+":decodePatch:"+(limit-position)+
+							" bytes of unexpected data after the patch.");
+			}
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":decodePatch:Illegal value at offset "+
+						position+":",e);
+		}
+		catch(MalformedURLException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":decodePatch:Illegal URL at offset "+
+						position+":",e);
+		}
+		finally
+		{
+			buffer = encodeBuffer;
+		}
+		return p;
+	}
+
+	// encode methods
+	/**
+	 * Start encoding into the buffer from position 0, allocating the buffer if needed.
+	 * This is also used by RTMLDocumentPatch to encode objects in order to compare them.
+	 * @see #getPosition
+	 * @see #regionsEqual
+	 */
+	void reset()
+	{
+		if(buffer == null)
+			buffer = new byte[DEFAULT_BUFFER_SIZE];
+		position = 0;
+	}
+
+	/**
+	 * Get the current position in the buffer (the number of bytes encoded since reset).
+	 * @return The position.
+	 * @see #position
+	 */
+	int getPosition()
+	{
+		return position;
+	}
+
+	/**
+	 * Return whether two regions of the encode buffer contain the same bytes.
+	 * @param start1 The index of the start of the first region.
+	 * @param end1 The index just after the end of the first region.
+	 * @param start2 The index of the start of the second region.
+	 * @param end2 The index just after the end of the second region.
+	 * @return true if the regions are the same length, and contain the same bytes.
+	 */
+	boolean regionsEqual(int start1,int end1,int start2,int end2)
+	{
+		if((end1-start1) != (end2-start2))
+			return false;
+		for(int i = 0; i < end1-start1; i++)
+		{
+			if(buffer[start1+i] != buffer[start2+i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Encode a document into the buffer, starting at position 0. The buffer is allocated (or grown) as
+	 * needed, and position is left at the end of the encoded document.
+	 * @param d The document to encode.
+	 * @exception RTMLException Thrown if the document is null.
+	 * @see #reset
+	 */
+	private void encodeDocument(RTMLDocument d) throws RTMLException
+	{
+		if(d == null)
+			throw new RTMLException(this.getClass().getName()+":encode:Document was null.");
+		reset();
+		writeInt(MAGIC);
+		writeByte(FORMAT_VERSION);
+		writeString(d.version);
+		writeString(d.type);
+		writeString(d.mode);
+		writeString(d.uid);
+		writeIntelligentAgent(d.getIntelligentAgent());
+		writeHistory(d.getHistory());
+		writeContact(d.getContact());
+		writeProject(d.getProject());
+		writeTelescope(d.getTelescope());
+		writeDevice(d.getDevice());
+		writeTarget(d.getTarget());
+		writeListCount(d.observationList);
+		if(d.observationList != null)
+		{
+			for(int i = 0; i < d.getObservationListCount(); i++)
+				writeObservation(d.getObservation(i));
+		}
+		writeBoolean(d.score != null);
+		if(d.score != null)
+			writeDouble(d.score.doubleValue());
+		writeListCount(d.scoresList);
+		if(d.scoresList != null)
+		{
+			for(int i = 0; i < d.getScoresListCount(); i++)
+				writeScore(d.getScore(i));
+		}
+		writeDate(d.completionTime);
+		writeString(d.errorString);
+	}
+
+	/**
+	 * Write the id, ref and uref attributes of an object.
+	 * @param a The object.
+	 */
+	private void writeAttributes(RTMLAttributes a)
+	{
+		writeString(a.getId());
+		writeString(a.getRef());
+		writeString(a.getURef());
+	}
+
+	/**
+	 * Write an intelligent agent.
+	 * @param ia The intelligent agent, or null.
+	 */
+	void writeIntelligentAgent(RTMLIntelligentAgent ia)
+	{
+		writeBoolean(ia != null);
+		if(ia == null)
+			return;
+		writeString(ia.getId());
+		writeString(ia.getHostname());
+		writeVarInt(ia.getPort());
+		writeString(ia.getUri());
+	}
+
+	/**
+	 * Write a history, and each of its entries.
+	 * @param h The history, or null.
+	 * @see #writeHistoryEntry
+	 */
+	void writeHistory(RTMLHistory h)
+	{
+		writeBoolean(h != null);
+		if(h == null)
+			return;
+		writeListCount(h.entryList);
+		if(h.entryList == null)
+			return;
+		for(int i = 0; i < h.getEntryListCount(); i++)
+			writeHistoryEntry(h.getEntry(i));
+	}
+
+	/**
+	 * Write a history entry.
+	 * @param e The history entry, or null.
+	 */
+	void writeHistoryEntry(RTMLHistoryEntry e)
+	{
+		writeBoolean(e != null);
+		if(e == null)
+			return;
+		writeDate(e.getTimeStamp());
+		writeIntelligentAgent(e.getAgent());
+		writeString(e.getDescription());
+		writeString(e.getError());
+		writeString(e.getRejectionReason());
+		writeString(e.getRejectionDescription());
+		writeVarInt(e.getVersion());
+	}
+
+	/**
+	 * Write a contact.
+	 * @param c The contact, or null.
+	 */
+	void writeContact(RTMLContact c)
+	{
+		writeBoolean(c != null);
+		if(c == null)
+			return;
+		writeAttributes(c);
+		writeString(c.getUser());
+		writeString(c.getName());
+		writeString(c.getInstitution());
+		writeString(c.getAddress());
+		writeString(c.getTelephone());
+		writeString(c.getFax());
+		writeString(c.getEmail());
+		writeURL(c.getUrl());
+	}
+
+	/**
+	 * Write a project.
+	 * @param p The project, or null.
+	 */
+	void writeProject(RTMLProject p)
+	{
+		writeBoolean(p != null);
+		if(p == null)
+			return;
+		writeAttributes(p);
+		writeString(p.getProject());
+	}
+
+	/**
+	 * Write a telescope, and its location.
+	 * @param t The telescope, or null.
+	 */
+	void writeTelescope(RTMLTelescope t)
+	{
+		RTMLTelescopeLocation l = null;
+
+		writeBoolean(t != null);
+		if(t == null)
+			return;
+		writeAttributes(t);
+		writeString(t.getName());
+		writeDouble(t.getAperture());
+		writeString(t.getApertureUnits());
+		writeString(t.getApertureType());
+		writeString(t.getFocalRatio());
+		writeDouble(t.getFocalLength());
+		writeString(t.getFocalLengthUnits());
+		l = t.getLocation();
+		writeBoolean(l != null);
+		if(l == null)
+			return;
+		writeAttributes(l);
+		writeString(l.getName());
+		writeDouble(l.getLongitude());
+		writeDouble(l.getLatitude());
+		writeDouble(l.getAltitude());
+	}
+
+	/**
+	 * Write a device, with its detector, grating and half-wave plate.
+	 * @param d The device, or null.
+	 */
+	void writeDevice(RTMLDevice d)
+	{
+		RTMLDetector detector = null;
+		RTMLGrating grating = null;
+		RTMLHalfWavePlate halfWavePlate = null;
+
+		writeBoolean(d != null);
+		if(d == null)
+			return;
+		writeAttributes(d);
+		writeString(d.getType());
+		writeString(d.getSpectralRegion());
+		writeString(d.getName());
+		writeString(d.getFilterType());
+		detector = d.getDetector();
+		writeBoolean(detector != null);
+		if(detector != null)
+		{
+			writeAttributes(detector);
+			writeVarInt(detector.getRowBinning());
+			writeVarInt(detector.getColumnBinning());
+			writeBoolean(detector.getUseGain());
+			writeDouble(detector.getGain());
+		}
+		grating = d.getGrating();
+		writeBoolean(grating != null);
+		if(grating != null)
+		{
+			writeString(grating.getName());
+			writeDouble(grating.getWavelength());
+			writeString(grating.getWavelengthUnits());
+			writeDouble(grating.getResolution());
+			writeDouble(grating.getAngle());
+		}
+		halfWavePlate = d.getHalfWavePlate();
+		writeBoolean(halfWavePlate != null);
+		if(halfWavePlate != null)
+			writeVarInt(halfWavePlate.getRotorSpeed());
+	}
+
+	/**
+	 * Write a target. The ephemeris track (if any) is written by the track itself, column by column.
+	 * @param t The target, or null.
+	 * @see org.estar.rtml.RTMLEphemerisTrack#writeBinary
+	 */
+	void writeTarget(RTMLTarget t)
+	{
+		RA ra = null;
+		Dec dec = null;
+		RTMLEphemerisTrack track = null;
+
+		writeBoolean(t != null);
+		if(t == null)
+			return;
+		writeAttributes(t);
+		writeString(t.getType());
+		writeString(t.getIdent());
+		writeString(t.getName());
+		ra = t.getRA();
+		writeBoolean(ra != null);
+		if(ra != null)
+		{
+			writeVarInt(ra.getHours());
+			writeVarInt(ra.getMinutes());
+			writeDouble(ra.getSeconds());
+		}
+		dec = t.getDec();
+		writeBoolean(dec != null);
+		if(dec != null)
+		{
+			writeBoolean(dec.getNegative());
+			writeVarInt(dec.getDegrees());
+			writeVarInt(dec.getMinutes());
+			writeDouble(dec.getSeconds());
+		}
+		writeString(t.getEquinox());
+		track = t.getEphemerisTrack();
+		writeBoolean(track != null);
+		if(track != null)
+			track.writeBinary(this);
+		writeDouble(t.getRAOffset());
+		writeDouble(t.getDecOffset());
+		writeDouble(t.getMagnitude());
+		writeString(t.getMagnitudeFilterType());
+		writeDouble(t.getMagnitudeError());
+	}
+
+	/**
+	 * Write an observation, with its device, target, schedule and image data.
+	 * @param o The observation, or null.
+	 */
+	void writeObservation(RTMLObservation o)
+	{
+		writeBoolean(o != null);
+		if(o == null)
+			return;
+		writeDevice(o.getDevice());
+		writeTarget(o.getTarget());
+		writeSchedule(o.getSchedule());
+		writeUnsignedVarInt(o.getImageDataCount());
+		for(int i = 0; i < o.getImageDataCount(); i++)
+			writeImageData(o.getImageData(i));
+	}
+
+	/**
+	 * Write a schedule, with all its constraints.
+	 * @param s The schedule, or null.
+	 */
+	void writeSchedule(RTMLSchedule s)
+	{
+		RTMLAirmassConstraint airmass = null;
+		RTMLExtinctionConstraint extinction = null;
+		RTMLSeriesConstraint series = null;
+		RTMLSeeingConstraint seeing = null;
+		RTMLMoonConstraint moon = null;
+		RTMLSkyConstraint sky = null;
+
+		writeBoolean(s != null);
+		if(s == null)
+			return;
+		writeAttributes(s);
+		writeVarInt(s.getPriority());
+		writeString(s.getExposureType());
+		writeString(s.getExposureUnits());
+		writeDouble(s.getExposureLength());
+		writeVarInt(s.getExposureCount());
+		writeDate(s.getStartDate());
+		writeDate(s.getEndDate());
+		airmass = s.getAirmassConstraint();
+		writeBoolean(airmass != null);
+		if(airmass != null)
+		{
+			writeDouble(airmass.getMinimum());
+			writeDouble(airmass.getMaximum());
+		}
+		extinction = s.getExtinctionConstraint();
+		writeBoolean(extinction != null);
+		if(extinction != null)
+		{
+			writeString(extinction.getClouds());
+			writeDouble(extinction.getValue());
+		}
+		series = s.getSeriesConstraint();
+		writeBoolean(series != null);
+		if(series != null)
+		{
+			writeVarInt(series.getCount());
+			writePeriod(series.getInterval());
+			writePeriod(series.getTolerance());
+		}
+		seeing = s.getSeeingConstraint();
+		writeBoolean(seeing != null);
+		if(seeing != null)
+		{
+			writeDouble(seeing.getMinimum());
+			writeDouble(seeing.getMaximum());
+		}
+		moon = s.getMoonConstraint();
+		writeBoolean(moon != null);
+		if(moon != null)
+		{
+			writeDouble(moon.getDistance());
+			writeString(moon.getUnits());
+		}
+		sky = s.getSkyConstraint();
+		writeBoolean(sky != null);
+		if(sky != null)
+		{
+			writeString(sky.getSky());
+			writeBoolean(sky.getUseValue());
+			writeDouble(sky.getValue());
+			writeString(sky.getUnits());
+		}
+	}
+
+	/**
+	 * Write an image data.
+	 * @param id The image data, or null.
+	 */
+	void writeImageData(RTMLImageData id)
+	{
+		writeBoolean(id != null);
+		if(id == null)
+			return;
+		writeString(id.getObjectListType());
+		writeString(id.getObjectListCluster());
+		writeURL(id.getObjectListVOTableURL());
+		writeString(id.getImageDataType());
+		writeURL(id.getImageDataURL());
+		writeString(id.getFITSHeader());
+	}
+
+	/**
+	 * Write a score.
+	 * @param s The score, or null.
+	 */
+	void writeScore(RTMLScore s)
+	{
+		writeBoolean(s != null);
+		if(s == null)
+			return;
+		writeDouble(s.getScore());
+		writeDouble(s.getProbability());
+		writeDouble(s.getCumulative());
+		writePeriod(s.getDelay());
+	}
+
+	/**
+	 * Write a period.
+	 * @param p The period, or null.
+	 */
+	private void writePeriod(RTMLPeriodFormat p)
+	{
+		writeBoolean(p != null);
+		if(p == null)
+			return;
+		writeVarInt(p.getYears());
+		writeVarInt(p.getMonths());
+		writeVarInt(p.getDays());
+		writeVarInt(p.getHours());
+		writeVarInt(p.getMinutes());
+		writeDouble(p.getSeconds());
+	}
+
+	/**
+	 * Write a URL, as its string form.
+	 * @param u The URL, or null.
+	 */
+	private void writeURL(URL u)
+	{
+		if(u == null)
+			writeString(null);
+		else
+			writeString(u.toString());
+	}
+
+	/**
+	 * Write a date, as a presence byte followed by the milliseconds since the epoch.
+	 * @param d The date, or null.
+	 */
+	void writeDate(Date d)
+	{
+		writeBoolean(d != null);
+		if(d != null)
+			writeLong(d.getTime());
+	}
+
+	/**
+	 * Write the size of a list, as size+1, or 0 if the list is null.
+	 * @param l The list, or null.
+	 */
+	void writeListCount(List l)
+	{
+		if(l == null)
+			writeUnsignedVarInt(0);
+		else
+			writeUnsignedVarInt(l.size()+1);
+	}
+
+	/**
+	 * Write a string, as (length+1) followed by the UTF-8 bytes of the string, or 0 if the string is null.
+	 * Strings that are all ASCII (the usual case) are copied straight into the buffer.
+	 * @param s The string, or null.
+	 */
+	void writeString(String s)
+	{
+		byte data[] = null;
+		int length;
+		char ch;
+
+		if(s == null)
+		{
+			writeUnsignedVarInt(0);
+			return;
+		}
+		length = s.length();
+		for(int i = 0; i < length; i++)
+		{
+			ch = s.charAt(i);
+			if(ch >= 0x80)
+			{
+				try
+				{
+					data = s.getBytes("UTF-8");
+				}
+				catch(UnsupportedEncodingException e)
+				{
+					// UTF-8 is always supported
+					throw new IllegalStateException(e.toString());
+				}
+				writeUnsignedVarInt(data.length+1);
+				ensureCapacity(data.length);
+				System.arraycopy(data,0,buffer,position,data.length);
+				position += data.length;
+				return;
+			}
+		}
+		writeUnsignedVarInt(length+1);
+		ensureCapacity(length);
+		for(int i = 0; i < length; i++)
+			buffer[position++] = (byte)(s.charAt(i));
+	}
+
+	/**
+	 * Write a signed integer as a variable length integer. The value is zig-zag encoded first, so small
+	 * negative values are also short.
+	 * @param i The integer.
+	 * @see #writeUnsignedVarInt
+	 */
+	void writeVarInt(int i)
+	{
+		writeUnsignedVarInt((i << 1)^(i >> 31));
+	}
+
+	/**
+	 * Write an integer as a variable length integer, 7 bits per byte, least significant first, with the
+	 * top bit set on all bytes but the last.
+	 * @param i The integer, treated as unsigned.
+	 */
+	void writeUnsignedVarInt(int i)
+	{
+		ensureCapacity(5);
+		while((i & ~0x7f) != 0)
+		{
+			buffer[position++] = (byte)((i & 0x7f)|0x80);
+			i >>>= 7;
+		}
+		buffer[position++] = (byte)i;
+	}
+
+	/**
+	 * Write a long as a variable length integer, 7 bits per byte, least significant first.
+	 * @param l The long, treated as unsigned.
+	 */
+	void writeUnsignedVarLong(long l)
+	{
+		ensureCapacity(10);
+		while((l & ~0x7fL) != 0)
+		{
+			buffer[position++] = (byte)((l & 0x7f)|0x80);
+			l >>>= 7;
+		}
+		buffer[position++] = (byte)l;
+	}
+
+	/**
+	 * Write a boolean, as a single byte.
+	 * @param b The boolean.
+	 */
+	void writeBoolean(boolean b)
+	{
+		writeByte(b ? 1 : 0);
+	}
+
+	/**
+	 * Write a byte.
+	 * @param b The byte, in the bottom 8 bits.
+	 */
+	private void writeByte(int b)
+	{
+		ensureCapacity(1);
+		buffer[position++] = (byte)b;
+	}
+
+	/**
+	 * Write an int, as 4 bytes, most significant first.
+	 * @param i The int.
+	 */
+	private void writeInt(int i)
+	{
+		ensureCapacity(4);
+		buffer[position++] = (byte)(i >>> 24);
+		buffer[position++] = (byte)(i >>> 16);
+		buffer[position++] = (byte)(i >>> 8);
+		buffer[position++] = (byte)i;
+	}
+
+	/**
+	 * Write a long, as 8 bytes, most significant first.
+	 * @param l The long.
+	 */
+	void writeLong(long l)
+	{
+		ensureCapacity(8);
+		for(int shift = 56; shift >= 0; shift -= 8)
+			buffer[position++] = (byte)(l >>> shift);
+	}
+
+	/**
+	 * Write a double, as the 8 bytes of its IEEE 754 bit pattern, so the value is preserved exactly.
+	 * @param d The double.
+	 */
+	void writeDouble(double d)
+	{
+		writeLong(Double.doubleToLongBits(d));
+	}
+
+	/**
+	 * Make sure there is room in the buffer for the specified number of bytes after position,
+	 * growing the buffer if needed.
+	 * @param count The number of bytes.
+	 */
+	private void ensureCapacity(int count)
+	{
+		byte newBuffer[] = null;
+
+		if(position+count <= buffer.length)
+			return;
+		newBuffer = new byte[Math.max(buffer.length*2,position+count)];
+		System.arraycopy(buffer,0,newBuffer,0,position);
+		buffer = newBuffer;
+	}
+
+	// decode methods
+	/**
+	 * Decode a document from the buffer, between position and limit.
+	 * @return A new document.
+	 * @exception RTMLException Thrown if the magic number or format version is wrong, the data is
+	 *            truncated or corrupt, or a decoded value is not accepted by the document.
+	 */
+	private RTMLDocument decodeDocument() throws RTMLException
+	{
+		RTMLDocument d = null;
+		int magic,version,count;
+
+		magic = readInt();
+		if(magic != MAGIC)
+		{
+			throw new RTMLException(this.getClass().getName()+
+						":decode:Not an encoded RTML document:magic number 0x"+
+						Integer.toHexString(magic)+" should be 0x"+Integer.toHexString(MAGIC)+".");
+		}
+		version = readByte();
+		if(version != FORMAT_VERSION)
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:Format version "+version+
+						" not supported (should be "+FORMAT_VERSION+").");
+		}
+		d = new RTMLDocument();
+		try
+		{
+			d.version = readString();
+			d.type = readString();
+			d.mode = readString();
+			d.uid = readString();
+			d.setIntelligentAgent(readIntelligentAgent());
+			d.setHistory(readHistory());
+			d.setContact(readContact());
+			d.setProject(readProject());
+			d.setTelescope(readTelescope());
+			d.setDevice(readDevice());
+			d.setTarget(readTarget());
+			count = readListCount();
+			if(count < 0)
+				d.clearObservationList();
+			for(int i = 0; i < count; i++)
+				d.addObservation(readObservation());
+			if(readBoolean())
+				d.setScore(readDouble());
+			count = readListCount();
+			if(count < 0)
+				d.scoresList = null;
+			for(int i = 0; i < count; i++)
+				d.addScore(readScore());
+			d.completionTime = readDate();
+			// set directly, setErrorString also changes the document type
+			d.errorString = readString();
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:Illegal value at offset "+
+						position+":",e);
+		}
+		catch(MalformedURLException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:Illegal URL at offset "+
+						position+":",e);
+		}
+		if(position != limit)
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:"+(limit-position)+
+						" bytes of unexpected data after the document.");
+		}
+		return d;
+	}
+
+	/**
+	 * Read the id, ref and uref attributes of an object.
+	 * @param a The object to set the attributes of.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	private void readAttributes(RTMLAttributes a) throws RTMLException
+	{
+		a.setId(readString());
+		a.setRef(readString());
+		a.setURef(readString());
+	}
+
+	/**
+	 * Read an intelligent agent.
+	 * @return A new intelligent agent, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	RTMLIntelligentAgent readIntelligentAgent() throws RTMLException
+	{
+		RTMLIntelligentAgent ia = null;
+
+		if(readBoolean() == false)
+			return null;
+		ia = new RTMLIntelligentAgent();
+		ia.setId(readString());
+		ia.setHostname(readString());
+		ia.setPort(readVarInt());
+		ia.setUri(readString());
+		return ia;
+	}
+
+	/**
+	 * Read a history, and its entries.
+	 * @return A new history, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @see #readHistoryEntry
+	 */
+	RTMLHistory readHistory() throws RTMLException
+	{
+		RTMLHistory h = null;
+		int count;
+
+		if(readBoolean() == false)
+			return null;
+		h = new RTMLHistory();
+		count = readListCount();
+		if(count < 0)
+			h.clearEntryList();
+		for(int i = 0; i < count; i++)
+			h.addEntry(readHistoryEntry());
+		return h;
+	}
+
+	/**
+	 * Read a history entry.
+	 * @return A new history entry, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	RTMLHistoryEntry readHistoryEntry() throws RTMLException
+	{
+		RTMLHistoryEntry e = null;
+
+		if(readBoolean() == false)
+			return null;
+		e = new RTMLHistoryEntry();
+		e.setTimeStamp(readDate());
+		e.setAgent(readIntelligentAgent());
+		e.setDescription(readString());
+		e.setError(readString());
+		e.setRejectionReason(readString());
+		e.setRejectionDescription(readString());
+		e.setVersion(readVarInt());
+		return e;
+	}
+
+	/**
+	 * Read a contact.
+	 * @return A new contact, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @exception MalformedURLException Thrown if the contact URL is not valid.
+	 */
+	RTMLContact readContact() throws RTMLException, MalformedURLException
+	{
+		RTMLContact c = null;
+
+		if(readBoolean() == false)
+			return null;
+		c = new RTMLContact();
+		readAttributes(c);
+		c.setUser(readString());
+		c.setName(readString());
+		c.setInstitution(readString());
+		c.setAddress(readString());
+		c.setTelephone(readString());
+		c.setFax(readString());
+		c.setEmail(readString());
+		c.setUrl(readURL());
+		return c;
+	}
+
+	/**
+	 * Read a project.
+	 * @return A new project, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	RTMLProject readProject() throws RTMLException
+	{
+		RTMLProject p = null;
+
+		if(readBoolean() == false)
+			return null;
+		p = new RTMLProject();
+		readAttributes(p);
+		p.setProject(readString());
+		return p;
+	}
+
+	/**
+	 * Read a telescope, and its location.
+	 * @return A new telescope, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	RTMLTelescope readTelescope() throws RTMLException
+	{
+		RTMLTelescope t = null;
+		RTMLTelescopeLocation l = null;
+
+		if(readBoolean() == false)
+			return null;
+		t = new RTMLTelescope();
+		readAttributes(t);
+		t.setName(readString());
+		t.setAperture(readDouble());
+		t.setApertureUnits(readString());
+		t.setApertureType(readString());
+		t.setFocalRatio(readString());
+		t.setFocalLength(readDouble());
+		t.setFocalLengthUnits(readString());
+		if(readBoolean())
+		{
+			l = new RTMLTelescopeLocation();
+			readAttributes(l);
+			l.setName(readString());
+			l.setLongitude(readDouble());
+			l.setLatitude(readDouble());
+			l.setAltitude(readDouble());
+			t.setLocation(l);
+		}
+		return t;
+	}
+
+	/**
+	 * Read a device, with its detector, grating and half-wave plate.
+	 * @return A new device, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @exception IllegalArgumentException Thrown if a value is not accepted by the device.
+	 */
+	RTMLDevice readDevice() throws RTMLException, IllegalArgumentException
+	{
+		RTMLDevice d = null;
+		RTMLDetector detector = null;
+		RTMLGrating grating = null;
+		RTMLHalfWavePlate halfWavePlate = null;
+		String s = null;
+		boolean useGain;
+		double gain;
+		int rotorSpeed;
+
+		if(readBoolean() == false)
+			return null;
+		d = new RTMLDevice();
+		readAttributes(d);
+		if((s = readString()) != null)
+			d.setType(s);
+		if((s = readString()) != null)
+			d.setSpectralRegion(s);
+		d.setName(readString());
+		d.setFilterType(readString());
+		if(readBoolean())
+		{
+			detector = new RTMLDetector();
+			readAttributes(detector);
+			detector.setRowBinning(readVarInt());
+			detector.setColumnBinning(readVarInt());
+			useGain = readBoolean();
+			gain = readDouble();
+			// setGain also sets useGain
+			if(useGain)
+				detector.setGain(gain);
+			d.setDetector(detector);
+		}
+		if(readBoolean())
+		{
+			grating = new RTMLGrating();
+			grating.setName(readString());
+			grating.setWavelength(readDouble());
+			if((s = readString()) != null)
+				grating.setWavelengthUnits(s);
+			grating.setResolution(readDouble());
+			grating.setAngle(readDouble());
+			d.setGrating(grating);
+		}
+		if(readBoolean())
+		{
+			halfWavePlate = new RTMLHalfWavePlate();
+			rotorSpeed = readVarInt();
+			if(rotorSpeed != RTMLHalfWavePlate.ROTOR_SPEED_UNKNOWN)
+				halfWavePlate.setRotorSpeed(rotorSpeed);
+			d.setHalfWavePlate(halfWavePlate);
+		}
+		return d;
+	}
+
+	/**
+	 * Read a target, including its ephemeris track.
+	 * @return A new target, or null.
+	 * @exception RTMLException Thrown if the data is truncated or the ephemeris track is corrupt.
+	 * @exception IllegalArgumentException Thrown if a value is not accepted by the target.
+	 * @see org.estar.rtml.RTMLEphemerisTrack#readBinary
+	 */
+	RTMLTarget readTarget() throws RTMLException, IllegalArgumentException
+	{
+		RTMLTarget t = null;
+		RTMLEphemerisTrack track = null;
+		RA ra = null;
+		Dec dec = null;
+		String s = null;
+
+		if(readBoolean() == false)
+			return null;
+		t = new RTMLTarget();
+		readAttributes(t);
+		if((s = readString()) != null)
+			t.setType(s);
+		t.setIdent(readString());
+		t.setName(readString());
+		if(readBoolean())
+		{
+			ra = new RA();
+			ra.setHours(readVarInt());
+			ra.setMinutes(readVarInt());
+			ra.setSeconds(readDouble());
+			t.setRA(ra);
+		}
+		if(readBoolean())
+		{
+			dec = new Dec();
+			dec.setNegative(readBoolean());
+			dec.setDegrees(readVarInt());
+			dec.setMinutes(readVarInt());
+			dec.setSeconds(readDouble());
+			t.setDec(dec);
+		}
+		t.setEquinox(readString());
+		if(readBoolean())
+		{
+			track = new RTMLEphemerisTrack();
+			track.readBinary(this);
+			t.setEphemerisTrack(track);
+		}
+		t.setRAOffset(readDouble());
+		t.setDecOffset(readDouble());
+		t.setMagnitude(readDouble());
+		if((s = readString()) != null)
+			t.setMagnitudeFilterType(s);
+		t.setMagnitudeError(readDouble());
+		return t;
+	}
+
+	/**
+	 * Read an observation, with its device, target, schedule and image data.
+	 * @return A new observation, or null.
+	 * @exception RTMLException Thrown if the data is truncated or corrupt.
+	 * @exception IllegalArgumentException Thrown if a value is not accepted by the observation.
+	 * @exception MalformedURLException Thrown if an image data URL is not valid.
+	 */
+	RTMLObservation readObservation() throws RTMLException, IllegalArgumentException,
+							 MalformedURLException
+	{
+		RTMLObservation o = null;
+		int count;
+
+		if(readBoolean() == false)
+			return null;
+		o = new RTMLObservation();
+		o.setDevice(readDevice());
+		o.setTarget(readTarget());
+		o.setSchedule(readSchedule());
+		count = readCount();
+		for(int i = 0; i < count; i++)
+			o.addImageData(readImageData());
+		return o;
+	}
+
+	/**
+	 * Read a schedule, with its constraints.
+	 * @return A new schedule, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @exception IllegalArgumentException Thrown if a value is not accepted by the schedule.
+	 */
+	RTMLSchedule readSchedule() throws RTMLException, IllegalArgumentException
+	{
+		RTMLSchedule s = null;
+		RTMLAirmassConstraint airmass = null;
+		RTMLExtinctionConstraint extinction = null;
+		RTMLSeriesConstraint series = null;
+		RTMLSeeingConstraint seeing = null;
+		RTMLMoonConstraint moon = null;
+		RTMLSkyConstraint sky = null;
+		String str = null;
+		boolean useValue;
+		double value;
+
+		if(readBoolean() == false)
+			return null;
+		s = new RTMLSchedule();
+		readAttributes(s);
+		s.setPriority(readVarInt());
+		if((str = readString()) != null)
+			s.setExposureType(str);
+		s.setExposureUnits(readString());
+		s.setExposureLength(readDouble());
+		s.setExposureCount(readVarInt());
+		s.setStartDate(readDate());
+		s.setEndDate(readDate());
+		if(readBoolean())
+		{
+			airmass = new RTMLAirmassConstraint();
+			airmass.setMinimum(readDouble());
+			airmass.setMaximum(readDouble());
+			s.setAirmassConstraint(airmass);
+		}
+		if(readBoolean())
+		{
+			extinction = new RTMLExtinctionConstraint();
+			if((str = readString()) != null)
+				extinction.setClouds(str);
+			extinction.setValue(readDouble());
+			s.setExtinctionConstraint(extinction);
+		}
+		if(readBoolean())
+		{
+			series = new RTMLSeriesConstraint();
+			series.setCount(readVarInt());
+			series.setInterval(readPeriod());
+			series.setTolerance(readPeriod());
+			s.setSeriesConstraint(series);
+		}
+		if(readBoolean())
+		{
+			seeing = new RTMLSeeingConstraint();
+			seeing.setMinimum(readDouble());
+			seeing.setMaximum(readDouble());
+			s.setSeeingConstraint(seeing);
+		}
+		if(readBoolean())
+		{
+			moon = new RTMLMoonConstraint();
+			moon.setDistance(readDouble());
+			if((str = readString()) != null)
+				moon.setUnits(str);
+			s.setMoonConstraint(moon);
+		}
+		if(readBoolean())
+		{
+			sky = new RTMLSkyConstraint();
+			if((str = readString()) != null)
+				sky.setSky(str);
+			useValue = readBoolean();
+			value = readDouble();
+			// setValue also sets useValue
+			if(useValue)
+				sky.setValue(value);
+			if((str = readString()) != null)
+				sky.setUnits(str);
+			s.setSkyConstraint(sky);
+		}
+		return s;
+	}
+
+	/**
+	 * Read an image data.
+	 * @return A new image data, or null.
+	 * @exception RTMLException Thrown if the data is truncated, or the image data type or URL is not valid.
+	 * @exception IllegalArgumentException Thrown if the object list type is not valid.
+	 * @exception MalformedURLException Thrown if the object list VOTable URL is not valid.
+	 */
+	RTMLImageData readImageData() throws RTMLException, IllegalArgumentException, MalformedURLException
+	{
+		RTMLImageData id = null;
+		String s = null;
+
+		if(readBoolean() == false)
+			return null;
+		id = new RTMLImageData();
+		if((s = readString()) != null)
+			id.setObjectListType(s);
+		id.setObjectListCluster(readString());
+		id.setObjectListVOTableURL(readURL());
+		if((s = readString()) != null)
+			id.setImageDataType(s);
+		if((s = readString()) != null)
+			id.setImageDataURL(s);
+		id.setFITSHeader(readString());
+		return id;
+	}
+
+	/**
+	 * Read a score.
+	 * @return A new score, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	RTMLScore readScore() throws RTMLException
+	{
+		RTMLScore s = null;
+
+		if(readBoolean() == false)
+			return null;
+		s = new RTMLScore();
+		// setScore clears the delay, so must be called first
+		s.setScore(readDouble());
+		s.setProbability(readDouble());
+		s.setCumulative(readDouble());
+		s.setDelay(readPeriod());
+		return s;
+	}
+
+	/**
+	 * Read a period.
+	 * @return A new (modifiable) period, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @exception IllegalArgumentException Thrown if a field of the period is not valid.
+	 */
+	private RTMLPeriodFormat readPeriod() throws RTMLException, IllegalArgumentException
+	{
+		RTMLPeriodFormat p = null;
+
+		if(readBoolean() == false)
+			return null;
+		p = new RTMLPeriodFormat();
+		p.setYears(readVarInt());
+		p.setMonths(readVarInt());
+		p.setDays(readVarInt());
+		p.setHours(readVarInt());
+		p.setMinutes(readVarInt());
+		p.setSeconds(readDouble());
+		return p;
+	}
+
+	/**
+	 * Read a URL.
+	 * @return A new URL, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @exception MalformedURLException Thrown if the string read is not a valid URL.
+	 */
+	private URL readURL() throws RTMLException, MalformedURLException
+	{
+		String s = null;
+
+		s = readString();
+		if(s == null)
+			return null;
+		return new URL(s);
+	}
+
+	/**
+	 * Read a date.
+	 * @return A new date, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	Date readDate() throws RTMLException
+	{
+		if(readBoolean() == false)
+			return null;
+		return new Date(readLong());
+	}
+
+	/**
+	 * Read the size of a list written by writeListCount.
+	 * @return The size of the list, or -1 if the list was null.
+	 * @exception RTMLException Thrown if the data is truncated, or the size is too large.
+	 * @see #writeListCount
+	 */
+	int readListCount() throws RTMLException
+	{
+		return readCount()-1;
+	}
+
+	/**
+	 * Read a string.
+	 * @return A new string, or null.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	String readString() throws RTMLException
+	{
+		char chars[] = null;
+		String s = null;
+		int length;
+
+		length = readCount()-1;
+		if(length < 0)
+			return null;
+		for(int i = position; i < position+length; i++)
+		{
+			if(buffer[i] < 0)
+			{
+				try
+				{
+					s = new String(buffer,position,length,"UTF-8");
+				}
+				catch(UnsupportedEncodingException e)
+				{
+					// UTF-8 is always supported
+					throw new IllegalStateException(e.toString());
+				}
+				position += length;
+				return s;
+			}
+		}
+		chars = new char[length];
+		for(int i = 0; i < length; i++)
+			chars[i] = (char)(buffer[position++]);
+		return new String(chars);
+	}
+
+	/**
+	 * Read an unsigned variable length integer that is a count of following items (or bytes), and check it
+	 * is not larger than the data remaining, so corrupt data does not cause a huge allocation.
+	 * Every item is at least one byte long.
+	 * @return The count.
+	 * @exception RTMLException Thrown if the data is truncated, or the count is larger than the data
+	 *            remaining.
+	 */
+	int readCount() throws RTMLException
+	{
+		int count;
+
+		count = readUnsignedVarInt();
+		if((count < 0)||(count > (limit-position)+1))
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:Count "+count+" at offset "+
+						position+" larger than the remaining data.");
+		}
+		return count;
+	}
+
+	/**
+	 * Read a signed (zig-zag encoded) variable length integer.
+	 * @return The integer.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 * @see #writeVarInt
+	 */
+	int readVarInt() throws RTMLException
+	{
+		int i;
+
+		i = readUnsignedVarInt();
+		return (i >>> 1)^(-(i & 1));
+	}
+
+	/**
+	 * Read an unsigned variable length integer.
+	 * @return The integer.
+	 * @exception RTMLException Thrown if the data is truncated, or the integer is more than 5 bytes long.
+	 * @see #writeUnsignedVarInt
+	 */
+	int readUnsignedVarInt() throws RTMLException
+	{
+		int i,b;
+
+		i = 0;
+		for(int shift = 0; shift < 35; shift += 7)
+		{
+			b = readByte();
+			i |= (b & 0x7f) << shift;
+			if((b & 0x80) == 0)
+				return i;
+		}
+		throw new RTMLException(this.getClass().getName()+":decode:Variable length integer at offset "+
+					position+" too long.");
+	}
+
+	/**
+	 * Read an unsigned variable length long.
+	 * @return The long.
+	 * @exception RTMLException Thrown if the data is truncated, or the long is more than 10 bytes long.
+	 * @see #writeUnsignedVarLong
+	 */
+	long readUnsignedVarLong() throws RTMLException
+	{
+		long l;
+		int b;
+
+		l = 0;
+		for(int shift = 0; shift < 70; shift += 7)
+		{
+			b = readByte();
+			l |= ((long)(b & 0x7f)) << shift;
+			if((b & 0x80) == 0)
+				return l;
+		}
+		throw new RTMLException(this.getClass().getName()+":decode:Variable length long at offset "+
+					position+" too long.");
+	}
+
+	/**
+	 * Read a boolean.
+	 * @return The boolean.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	boolean readBoolean() throws RTMLException
+	{
+		return (readByte() != 0);
+	}
+
+	/**
+	 * Read a byte.
+	 * @return The byte, as an unsigned value 0..255.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	private int readByte() throws RTMLException
+	{
+		checkRemaining(1);
+		return buffer[position++] & 0xff;
+	}
+
+	/**
+	 * Read a 4 byte int.
+	 * @return The int.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	private int readInt() throws RTMLException
+	{
+		int i;
+
+		checkRemaining(4);
+		i = ((buffer[position] & 0xff) << 24)|((buffer[position+1] & 0xff) << 16)|
+			((buffer[position+2] & 0xff) << 8)|(buffer[position+3] & 0xff);
+		position += 4;
+		return i;
+	}
+
+	/**
+	 * Read an 8 byte long.
+	 * @return The long.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	long readLong() throws RTMLException
+	{
+		long l;
+
+		checkRemaining(8);
+		l = 0;
+		for(int i = 0; i < 8; i++)
+			l = (l << 8)|(buffer[position++] & 0xff);
+		return l;
+	}
+
+	/**
+	 * Read a double.
+	 * @return The double.
+	 * @exception RTMLException Thrown if the data is truncated.
+	 */
+	double readDouble() throws RTMLException
+	{
+		return Double.longBitsToDouble(readLong());
+	}
+
+	/**
+	 * Check there is at least the specified number of bytes left to decode.
+	 * @param count The number of bytes.
+	 * @exception RTMLException Thrown if there are fewer bytes left.
+	 */
+	void checkRemaining(long count) throws RTMLException
+	{
+		if(position+count > limit)
+		{
+			throw new RTMLException(this.getClass().getName()+":decode:Data truncated at offset "+
+						position+".");
+		}
+	}
+}
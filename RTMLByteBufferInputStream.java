@@ -0,0 +1,144 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLByteBufferInputStream.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream that reads directly from a ByteBuffer (e.g. a MappedByteBuffer or a direct buffer),
+ * so the buffer's contents can be parsed without first being copied into a byte array.
+ * The stream reads from a duplicate of the buffer, from it's position to it's limit when the stream was
+ * created. The original buffer's position, limit and mark are not changed.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParser#parse(java.nio.ByteBuffer)
+ */
+public class RTMLByteBufferInputStream extends InputStream
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The buffer to read from (a duplicate of the buffer passed to the constructor).
+	 */
+	private ByteBuffer buffer = null;
+
+	/**
+	 * Constructor.
+	 * @param b The buffer to read from.
+	 * @see #buffer
+	 */
+	public RTMLByteBufferInputStream(ByteBuffer b)
+	{
+		super();
+		buffer = b.duplicate();
+	}
+
+	/**
+	 * Read a byte.
+	 * @return The next byte, or -1 if the end of the buffer has been reached.
+	 */
+	public int read()
+	{
+		if(buffer.hasRemaining() == false)
+			return -1;
+		return buffer.get()&0xff;
+	}
+
+	/**
+	 * Read bytes into an array.
+	 * @param b The array to read into.
+	 * @param offset The offset in the array to start storing bytes at.
+	 * @param length The maximum number of bytes to read.
+	 * @return The number of bytes read, or -1 if the end of the buffer has been reached.
+	 */
+	public int read(byte b[],int offset,int length)
+	{
+		if(length == 0)
+			return 0;
+		if(buffer.hasRemaining() == false)
+			return -1;
+		length = Math.min(length,buffer.remaining());
+		buffer.get(b,offset,length);
+		return length;
+	}
+
+	/**
+	 * Skip bytes.
+	 * @param n The number of bytes to skip.
+	 * @return The number of bytes skipped.
+	 */
+	public long skip(long n)
+	{
+		int count;
+
+		if(n <= 0)
+			return 0;
+		count = (int)Math.min(n,(long)buffer.remaining());
+		buffer.position(buffer.position()+count);
+		return count;
+	}
+
+	/**
+	 * Return the number of bytes that can be read without blocking.
+	 * @return The number of bytes remaining in the buffer.
+	 */
+	public int available()
+	{
+		return buffer.remaining();
+	}
+
+	/**
+	 * Return whether mark is supported.
+	 * @return true.
+	 */
+	public boolean markSupported()
+	{
+		return true;
+	}
+
+	/**
+	 * Mark the current position.
+	 * @param readLimit Ignored, the whole buffer is always available.
+	 */
+	public synchronized void mark(int readLimit)
+	{
+		buffer.mark();
+	}
+
+	/**
+	 * Reset to the marked position.
+	 * @exception IOException Thrown if mark has not been called.
+	 */
+	public synchronized void reset() throws IOException
+	{
+		try
+		{
+			buffer.reset();
+		}
+		catch(java.nio.InvalidMarkException e)
+		{
+			throw new IOException(this.getClass().getName()+":reset:mark not called.");
+		}
+	}
+}
@@ -83,6 +83,23 @@ public class RTMLContact extends RTMLAttributes implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param contact The contact to copy.
+	 */
+	public RTMLContact(RTMLContact contact)
+	{
+		super(contact);
+		user = contact.user;
+		name = contact.name;
+		institution = contact.institution;
+		address = contact.address;
+		telephone = contact.telephone;
+		fax = contact.fax;
+		email = contact.email;
+		url = contact.url;
+	}
+
 	/**
 	 * Method to set the User.
 	 * @param newUser the new User to set
@@ -236,6 +253,55 @@ public class RTMLContact extends RTMLAttributes implements Serializable
 		return(url);
 	}
 
+	/**
+	 * Test whether one contact is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #user
+	 * @see #name
+	 * @see #institution
+	 * @see #address
+	 * @see #telephone
+	 * @see #fax
+	 * @see #email
+	 * @see #url
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLContact other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLContact)obj;
+		return RTMLEquality.same(user,other.user)&&RTMLEquality.same(name,other.name)&&
+			RTMLEquality.same(institution,other.institution)&&
+			RTMLEquality.same(address,other.address)&&
+			RTMLEquality.same(telephone,other.telephone)&&RTMLEquality.same(fax,other.fax)&&
+			RTMLEquality.same(email,other.email)&&RTMLEquality.same(url,other.url);
+	}
+
+	/**
+	 * Return a hash code for the contact, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,user);
+		hash = RTMLEquality.hash(hash,name);
+		hash = RTMLEquality.hash(hash,institution);
+		hash = RTMLEquality.hash(hash,address);
+		hash = RTMLEquality.hash(hash,telephone);
+		hash = RTMLEquality.hash(hash,fax);
+		hash = RTMLEquality.hash(hash,email);
+		hash = RTMLEquality.hash(hash,url);
+		return hash;
+	}
+
 	/**
 	 * String representation of this Conatct.
 	 * 'see #toString(java.lang.String)
@@ -37,9 +37,13 @@ import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.dom.DOMSource; 
 import javax.xml.transform.stream.StreamResult; 
+import javax.xml.transform.stream.StreamSource; 
 import javax.xml.transform.OutputKeys;
 
+import javax.xml.validation.Validator;
+
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;  
 import org.xml.sax.SAXParseException;  
 
@@ -84,6 +88,12 @@ public class RTMLCreate
 	 * The instance of DocumentBuilder, used to build the document tree.
 	 */
 	private DocumentBuilder builder = null;
+	/**
+	 * The DTD validating DocumentBuilder used by validate for RTML 2.2 documents, or null if it has not
+	 * been created yet. It is reset and re-used for each validation.
+	 * @see #validate
+	 */
+	private DocumentBuilder validatingBuilder = null;
 	/**
 	 * The instance of RTMLErrorHandler, attached to the DocumentBuilder to handle DOM errors.
 	 */
@@ -97,6 +107,35 @@ public class RTMLCreate
 	 * (DTD declaration for RTML v2.2).
 	 */
 	private String rtmlVersion = null;
+	/**
+	 * Whether the output is indented (2 spaces per level, the default), or compact.
+	 * @see #setIndent
+	 */
+	private boolean indent = true;
+	/**
+	 * The output character encoding, ISO-8859-1 (the default) or UTF-8.
+	 * @see #setEncoding
+	 * @see org.estar.rtml.RTMLXMLWriter#DEFAULT_ENCODING
+	 */
+	private String encoding = RTMLXMLWriter.DEFAULT_ENCODING;
+	/**
+	 * Whether the output starts with an XML declaration (the default).
+	 * @see #setXMLDeclaration
+	 */
+	private boolean xmlDeclaration = true;
+	/**
+	 * The TransformerFactory used to create the output transformers. A class-wide (static) variable,
+	 * created on first use by getTransformerFactory. Access is synchronized on the RTMLCreate class.
+	 * @see #getTransformerFactory
+	 */
+	private static TransformerFactory transformerFactory = null;
+	/**
+	 * Per-thread storage of each thread's output (identity) Transformer. Transformers are not thread-safe,
+	 * so each thread creates one on first use, which is then reset and re-used by all RTMLCreate instances
+	 * on that thread.
+	 * @see #getTransformer
+	 */
+	private static ThreadLocal threadTransformer = new ThreadLocal();
 
 	/**
 	 * Default constructor.
@@ -129,6 +168,81 @@ public class RTMLCreate
 		doctypeSystemID = s;
 	}
 
+	/**
+	 * Set whether the output is indented, 2 spaces per level (the default), or compact. Compact output has
+	 * no whitespace added between elements, and is typically 20-30% smaller.
+	 * @param b true to indent the output, false for compact output.
+	 * @see #indent
+	 */
+	public void setIndent(boolean b)
+	{
+		indent = b;
+	}
+
+	/**
+	 * Get whether the output is indented.
+	 * @return true if the output is indented, false if it is compact.
+	 * @see #indent
+	 */
+	public boolean getIndent()
+	{
+		return indent;
+	}
+
+	/**
+	 * Set the output character encoding. This is the encoding put in the XML declaration, and used to encode
+	 * the document when writing to an output stream (toStream, write).
+	 * Characters that cannot be encoded are written as character references.
+	 * @param s The encoding, one of RTMLXMLWriter.ENCODING_ISO_8859_1 (the default) or
+	 *        RTMLXMLWriter.ENCODING_UTF_8.
+	 * @exception IllegalArgumentException Thrown if the encoding is not supported.
+	 * @see #encoding
+	 * @see org.estar.rtml.RTMLXMLWriter#ENCODING_ISO_8859_1
+	 * @see org.estar.rtml.RTMLXMLWriter#ENCODING_UTF_8
+	 */
+	public void setEncoding(String s) throws IllegalArgumentException
+	{
+		if(RTMLXMLWriter.ENCODING_ISO_8859_1.equalsIgnoreCase(s))
+			encoding = RTMLXMLWriter.ENCODING_ISO_8859_1;
+		else if(RTMLXMLWriter.ENCODING_UTF_8.equalsIgnoreCase(s))
+			encoding = RTMLXMLWriter.ENCODING_UTF_8;
+		else
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":setEncoding:Unsupported encoding:"+s);
+		}
+	}
+
+	/**
+	 * Get the output character encoding.
+	 * @return The encoding.
+	 * @see #encoding
+	 */
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+	/**
+	 * Set whether the output starts with an XML declaration (the default).
+	 * @param b true to write an XML declaration, false to omit it.
+	 * @see #xmlDeclaration
+	 */
+	public void setXMLDeclaration(boolean b)
+	{
+		xmlDeclaration = b;
+	}
+
+	/**
+	 * Get whether the output starts with an XML declaration.
+	 * @return true if an XML declaration is written.
+	 * @see #xmlDeclaration
+	 */
+	public boolean getXMLDeclaration()
+	{
+		return xmlDeclaration;
+	}
+
 	/**
 	 * Create an XML representation (DOM tree) from the RTMLDocument (Java object tree).
 	 * @param rtmlDocument The Java representation of an RTML document.
@@ -166,42 +280,22 @@ public class RTMLCreate
 	}
 
 	/**
-	 * Method to send the created XML to a stream.
-	 * @see #doctypeSystemID
-	 * @see #rtmlVersion
-	 * @see org.estar.rtml.RTMLDocument#RTML_VERSION_22
+	 * Method to send the created XML to a stream. The document is encoded using the output encoding.
+	 * @param os The output stream to write to. The stream is flushed but not closed.
+	 * @exception RTMLException Thrown if the transform fails.
+	 * @see #encoding
+	 * @see #getTransformer
 	 */
 	public void toStream(OutputStream os) throws RTMLException
 	{
+		Writer writer = null;
+
 		try
 		{
-			// Use a Transformer for output
-			TransformerFactory factory = TransformerFactory.newInstance();
-			// Java 1.5
-			try
-			{
-				factory.setAttribute("indent-number",new Integer(2));
-			}
-			catch(Exception e)
-			{
-				//Throw Java 1.4 errors away
-			}
-			Transformer transformer = factory.newTransformer();
-			
-			// setup DOCTYPE if RTML v2.2.
-			if(rtmlVersion.equals(RTMLDocument.RTML_VERSION_22))
-				transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,doctypeSystemID);
-			transformer.setOutputProperty(OutputKeys.ENCODING,"ISO-8859-1");
-			transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-			transformer.setOutputProperty(OutputKeys.INDENT,"yes");
-			// This is the Java 1.4 equivalent of the factory setting above
-			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-			DOMSource source = new DOMSource(document);
-			//StreamResult result = new StreamResult(os);
 			// Java 1.5 requires OutputStreamWriter wrapping for indentation to work!
-			StreamResult result = new StreamResult(new OutputStreamWriter(os));
-			transformer.transform(source, result);
-			os.flush();
+			writer = new BufferedWriter(new OutputStreamWriter(os,encoding));
+			getTransformer().transform(new DOMSource(document),new StreamResult(writer));
+			writer.flush();
 		}
 		catch (Exception e)
 		{
@@ -212,9 +306,8 @@ public class RTMLCreate
 	/**
 	 * Method to send the created XML to a string.
 	 * @return A string.
-	 * @see #doctypeSystemID
-	 * @see #rtmlVersion
-	 * @see org.estar.rtml.RTMLDocument#RTML_VERSION_22
+	 * @exception RTMLException Thrown if the transform fails.
+	 * @see #getTransformer
 	 */
 	public String toXMLString() throws RTMLException
 	{
@@ -222,21 +315,8 @@ public class RTMLCreate
 
 		try
 		{
-			// Use a Transformer for output
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer transformer = tFactory.newTransformer();
-			
-			// setup DOCTYPE
-			if(rtmlVersion.equals(RTMLDocument.RTML_VERSION_22))
-				transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,doctypeSystemID);
-			transformer.setOutputProperty(OutputKeys.ENCODING,"ISO-8859-1");
-			transformer.setOutputProperty(OutputKeys.INDENT,"yes");
-			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-			DOMSource source = new DOMSource(document);
-
 			stringWriter = new StringWriter();
-			StreamResult result = new StreamResult(new BufferedWriter(stringWriter));
-			transformer.transform(source, result);
+			getTransformer().transform(new DOMSource(document),new StreamResult(stringWriter));
 		}
 		catch (Exception e)
 		{
@@ -245,6 +325,155 @@ public class RTMLCreate
 		return stringWriter.toString();
 	}
 
+	/**
+	 * Serialize an RTMLDocument (Java object tree) straight to a writer, without building a DOM tree.
+	 * The document is written in one pass by RTML31StreamCreate (RTML 3.1a) or RTML22StreamCreate
+	 * (RTML 2.2, with a DOCTYPE declaration using doctypeSystemID), producing the same characters as
+	 * calling create and then toXMLString. This method does not change the DOM tree created by a previous
+	 * call to create.
+	 * @param rtmlDocument The Java representation of an RTML document.
+	 * @param w The writer to write the XML document to. The writer is flushed but not closed.
+	 * @exception RTMLException Thrown if the version is not supported, or writing fails.
+	 * @see #create
+	 * @see #toXMLString
+	 * @see #doctypeSystemID
+	 * @see org.estar.rtml.RTMLXMLWriter
+	 * @see org.estar.rtml.RTML22StreamCreate
+	 * @see org.estar.rtml.RTML31StreamCreate
+	 */
+	public void write(RTMLDocument rtmlDocument,Writer w) throws RTMLException
+	{
+		RTML22StreamCreate create22 = null;
+		RTML31StreamCreate create31 = null;
+		RTMLXMLWriter xmlWriter = null;
+
+		if(rtmlDocument.getVersion() == null)
+		{
+			throw new RTMLException(this.getClass().getName()+":write:"+"document version was null.");
+		}
+		try
+		{
+			xmlWriter = new RTMLXMLWriter(w);
+			xmlWriter.setEncoding(encoding);
+			xmlWriter.setIndent(indent);
+			if(rtmlDocument.getVersion().equals(RTMLDocument.RTML_VERSION_22))
+			{
+				if(xmlDeclaration)
+					xmlWriter.writeStartDocument();
+				xmlWriter.writeDoctype("RTML",doctypeSystemID);
+				create22 = new RTML22StreamCreate();
+				create22.create(rtmlDocument,xmlWriter);
+			}
+			else if(rtmlDocument.getVersion().equals(RTMLDocument.RTML_VERSION_31))
+			{
+				if(xmlDeclaration)
+					xmlWriter.writeStartDocument();
+				create31 = new RTML31StreamCreate();
+				create31.create(rtmlDocument,xmlWriter);
+			}
+			else
+			{
+				throw new RTMLException(this.getClass().getName()+":write:"+
+							"Unsupported document version:"+rtmlDocument.getVersion());
+			}
+			xmlWriter.writeEndDocument();
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":write:Failed.",e);
+		}
+	}
+
+	/**
+	 * Serialize an RTMLDocument (Java object tree) straight to an output stream, without building a DOM tree.
+	 * The document is encoded using the output encoding, the encoding given in the XML declaration.
+	 * @param rtmlDocument The Java representation of an RTML document.
+	 * @param os The output stream to write the XML document to. The stream is flushed but not closed.
+	 * @exception RTMLException Thrown if the version is not supported, or writing fails.
+	 * @see #write(org.estar.rtml.RTMLDocument,java.io.Writer)
+	 * @see #encoding
+	 */
+	public void write(RTMLDocument rtmlDocument,OutputStream os) throws RTMLException
+	{
+		Writer w = null;
+
+		try
+		{
+			w = new BufferedWriter(new OutputStreamWriter(os,encoding));
+		}
+		catch(UnsupportedEncodingException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":write:Failed.",e);
+		}
+		write(rtmlDocument,w);
+	}
+
+	/**
+	 * Method to validate the created document against the RTML grammar, the RTML 3.1a Schema or the
+	 * RTML 2.2 DTD, using the grammars shared with RTMLParser in RTMLGrammarCache (the compiled Schema, and
+	 * the DTD's grammar pool if one is available, see RTMLGrammarCache#getGrammarPool).
+	 * The document is serialized (toXMLString) and the result validated, so the namespace and
+	 * DOCTYPE are the ones written out. Validation errors are reported to the error handler.
+	 * RTML 2.2 documents are validated by a DocumentBuilder created on the first call, and re-used after that.
+	 * Must be called after create.
+	 * @return true if the document is valid, false if validation errors were reported.
+	 * @exception RTMLException Thrown if create has not been called, or validation fails to run.
+	 * @see #create
+	 * @see #toXMLString
+	 * @see #errorHandler
+	 * @see #validatingBuilder
+	 * @see RTMLGrammarCache#getSchema
+	 * @see RTMLEntityResolver#getInstance
+	 * @see RTMLParser#getDocumentBuilderFactory
+	 */
+	public boolean validate() throws RTMLException
+	{
+		DocumentBuilderFactory factory = null;
+		Validator validator = null;
+		String xmlString = null;
+		int errorLength;
+
+		if(rtmlVersion == null)
+			throw new RTMLException(this.getClass().getName()+":validate:create not called.");
+		xmlString = toXMLString();
+		errorLength = errorHandler.getErrorString().length();
+		try
+		{
+			if(rtmlVersion.equals(RTMLDocument.RTML_VERSION_31))
+			{
+				validator = RTMLGrammarCache.getSchema().newValidator();
+				validator.setErrorHandler(errorHandler);
+				validator.validate(new StreamSource(new StringReader(xmlString)));
+			}
+			else
+			{
+				if(validatingBuilder == null)
+				{
+					factory = RTMLParser.getDocumentBuilderFactory(false);
+					synchronized(factory)
+					{
+						validatingBuilder = factory.newDocumentBuilder();
+					}
+				}
+				else
+					validatingBuilder.reset();
+				validatingBuilder.setEntityResolver(RTMLEntityResolver.getInstance());
+				validatingBuilder.setErrorHandler(errorHandler);
+				validatingBuilder.parse(new InputSource(new StringReader(xmlString)));
+			}
+		}
+		catch(RTMLException e)
+		{
+			throw e;
+		}
+		catch(Exception e)
+		{
+			//SAXException,ParserConfigurationException,IOException
+			throw new RTMLException(this.getClass().getName()+":validate:Failed.",e);
+		}
+		return (errorHandler.getErrorString().length() == errorLength);
+	}
+
 	/**
 	 * Method to set a custom error handler. Should be called after init (constructor), before create is called.
 	 * @param e The error handler to use. Must be a sub-class of RTMLErrorHandler, this
@@ -270,19 +499,76 @@ public class RTMLCreate
 
 	// private methods
 	/**
-	 * Initialisation method.
+	 * Return the class-wide TransformerFactory, creating it if this is the first call.
+	 * @return The TransformerFactory.
+	 * @see #transformerFactory
+	 */
+	private static synchronized TransformerFactory getTransformerFactory()
+	{
+		if(transformerFactory == null)
+			transformerFactory = TransformerFactory.newInstance();
+		return transformerFactory;
+	}
+
+	/**
+	 * Return this thread's output Transformer, configured with this instance's output options.
+	 * The Transformer is created on the thread's first call, otherwise it is reset before being re-configured.
+	 * @return The configured Transformer.
+	 * @exception TransformerConfigurationException Thrown if the Transformer cannot be created.
+	 * @see #threadTransformer
+	 * @see #getTransformerFactory
+	 * @see #doctypeSystemID
+	 * @see #rtmlVersion
+	 * @see #indent
+	 * @see #encoding
+	 * @see #xmlDeclaration
+	 * @see org.estar.rtml.RTMLDocument#RTML_VERSION_22
+	 */
+	private Transformer getTransformer() throws TransformerConfigurationException
+	{
+		Transformer transformer = null;
+		TransformerFactory factory = null;
+
+		transformer = (Transformer)(threadTransformer.get());
+		if(transformer == null)
+		{
+			factory = getTransformerFactory();
+			synchronized(factory)
+			{
+				transformer = factory.newTransformer();
+			}
+			threadTransformer.set(transformer);
+		}
+		else
+			transformer.reset();
+		// setup DOCTYPE if RTML v2.2.
+		if(rtmlVersion.equals(RTMLDocument.RTML_VERSION_22))
+			transformer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM,doctypeSystemID);
+		transformer.setOutputProperty(OutputKeys.ENCODING,encoding);
+		transformer.setOutputProperty(OutputKeys.METHOD,"xml");
+		transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION,(xmlDeclaration ? "no" : "yes"));
+		transformer.setOutputProperty(OutputKeys.INDENT,(indent ? "yes" : "no"));
+		if(indent)
+			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount","2");
+		return transformer;
+	}
+
+	/**
+	 * Initialisation method. The builder is created from the factory shared with RTMLParser.
 	 * @exception ParserConfigurationException Thrown if DocumentBuilderFactory.newDocumentBuilder fails.
 	 * @see #builder
 	 * @see #errorHandler
+	 * @see RTMLParser#getDocumentBuilderFactory
 	 */
 	private void init() throws ParserConfigurationException
 	{
 		DocumentBuilderFactory factory = null;
 
-		factory = DocumentBuilderFactory.newInstance();
-		factory.setValidating(true);   
-		factory.setNamespaceAware(true);
-		builder = factory.newDocumentBuilder();
+		factory = RTMLParser.getDocumentBuilderFactory(false);
+		synchronized(factory)
+		{
+			builder = factory.newDocumentBuilder();
+		}
 		errorHandler = new RTMLErrorHandler(this);
 		builder.setErrorHandler(errorHandler);
 	}
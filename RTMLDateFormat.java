@@ -23,18 +23,59 @@ package org.estar.rtml;
 
 import java.io.*;
 import java.text.*;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.chrono.IsoChronology;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
 import java.util.*;
 
 /**
- * This class is a wrapper for SimpleDateFormat to allow the parsing and formating of ISO8601 dates,
+ * This class allows the parsing and formating of ISO8601 dates,
  * as used by the RTML standard for DateTimeConstraint s etc.
- * This is needed as SimpleDateFormat does not allow optional time zone parsing, so we need two instances
- * of SimpleDateFormat to cover both cases.
+ * Dates are parsed from strings of the form "yyyy-MM-dd'T'HH:mm:ss", optionally followed by a timezone.
+ * The parsing and formatting is done by immutable java.time DateTimeFormatter s, whether a timezone is present
+ * (and which form it takes) is determined by looking at the characters following the seconds field, rather than
+ * by trying to parse the string twice. Dates are formatted as "yyyy-MM-dd'T'HH:mm:ssZ"
+ * (e.g. 2006-02-28T18:00:00+1100), or with a colon in the timezone as needed by xsd:dateTime
+ * (e.g. 2006-02-28T18:00:00+11:00).
+ * <p>
+ * The strings accepted are those accepted by the SimpleDateFormat s this class used to wrap, with the
+ * same meaning: out of range fields (e.g. a month of 13) roll over into the next larger field, numeric fields
+ * can have any number of digits, whitespace before the date and before the timezone is ignored, text following
+ * the date (and timezone) is ignored, a "+HHMM"/"-HHMM" timezone or a general timezone ("GMT+hh:mm",
+ * "GMT", "UTC", "PST") is used if present, and a local time that occurs twice (at the end of daylight saving time)
+ * is taken to be the later (standard time) one. The differences are:
+ * <ul>
+ * <li>A "+HH:MM" timezone (as written by formatWithColonTimezone, and used by xsd:dateTime) and a "Z" timezone
+ *     are used. Previously they were ignored, and the date was parsed in the local timezone.
+ * <li>Fractional seconds ("18:00:00.5") are used, to millisecond precision. Previously the fraction,
+ *     and any timezone after it, were ignored.
+ * <li>Whitespace within the date and time fields (e.g. "2006-02-28T 18:00:00") is no longer accepted.
+ * <li>Timezones with an offset of more than 18 hours are ignored.
+ * <li>Region based timezone ids ("Europe/London") are used. Previously they were ignored.
+ * <li>Dates before the Gregorian calendar was adopted (1582-10-15) are in the proleptic Gregorian calendar,
+ *     as specified for xsd:dateTime, rather than the Julian calendar.
+ * </ul>
+ * <p>
+ * Instances of this class hold no parsing/formatting state, and can be shared between threads.
+ * See getInstance for a shared instance using the default timezone.
+ * <p>
  * <b>NB This class does not follow the RTML standard or ISO8601 at the present time.</b> It differs in that
  * ISO8601 dates without a timezone should be parsed as being UTC dates, but we currently parse them in the parser's
  * locale timezone , which makes specifying local-relative dates easy.
  * @author Chris Mottram
  * @version $Revision$
+ * @see #getInstance
  */
 public class RTMLDateFormat implements Serializable
 {
@@ -47,86 +88,365 @@ public class RTMLDateFormat implements Serializable
 	 */
 	static final long serialVersionUID = 1276512555252464615L;
 	/**
-	 * This is the index in a string of the form '2006-02-28T18:00:00+1100' of the first minute
-	 * position in the TimeZone. Used to support xsd:dateTime Schema which should be of the form:
-	 * '2006-02-28T18:00:00+11:00', i.e. the colon is the 22nd letter.
+	 * Formatter used to parse the date and time fields "yyyy-MM-dd'T'HH:mm:ss{.s..}", without a timezone.
+	 * Numeric fields can have any number of digits, and out of range fields roll over (lenient resolving).
 	 */
-	protected final static int XSD_COLON_INDEX = 22;
+	private final static DateTimeFormatter LOCAL_PARSE_FORMATTER = new DateTimeFormatterBuilder().
+		appendValue(ChronoField.YEAR,1,10,SignStyle.NORMAL).appendLiteral('-').
+		appendValue(ChronoField.MONTH_OF_YEAR,1,10,SignStyle.NORMAL).appendLiteral('-').
+		appendValue(ChronoField.DAY_OF_MONTH,1,10,SignStyle.NORMAL).appendLiteral('T').
+		appendValue(ChronoField.HOUR_OF_DAY,1,10,SignStyle.NORMAL).appendLiteral(':').
+		appendValue(ChronoField.MINUTE_OF_HOUR,1,10,SignStyle.NORMAL).appendLiteral(':').
+		appendValue(ChronoField.SECOND_OF_MINUTE,1,10,SignStyle.NORMAL).
+		optionalStart().appendFraction(ChronoField.NANO_OF_SECOND,0,9,true).optionalEnd().
+		toFormatter(Locale.ROOT).withChronology(IsoChronology.INSTANCE).withResolverStyle(ResolverStyle.LENIENT);
 	/**
-	 * Instance of SimpleDateFormat setup to parse ISO8601 dates with a timezone field e.g.:
-	 * 2006-02-28T18:00:00+1100
+	 * Formatter used to parse a timezone of the form "+HHMM".
 	 */
-	protected SimpleDateFormat timezoneDateFormat = null;
+	private final static DateTimeFormatter OFFSET_PARSE_FORMATTER = new DateTimeFormatterBuilder().
+		appendOffset("+HHMM","+0000").toFormatter(Locale.ROOT);
 	/**
-	 * Instance of SimpleDateFormat setup to parse ISO8601 dates <b>without</b> a timezone field e.g.:
-	 * 2006-02-28T18:00:00. The fields are parsed as if they are specified in the parser's local timezone.
+	 * Formatter used to parse a timezone of the form "+HH:MM".
 	 */
-	protected SimpleDateFormat localDateFormat = null;
+	private final static DateTimeFormatter COLON_OFFSET_PARSE_FORMATTER = new DateTimeFormatterBuilder().
+		appendOffset("+HH:MM","+00:00").toFormatter(Locale.ROOT);
+	/**
+	 * Formatter used to parse the offset of a general timezone of the form "GMT+H:MM" or "GMT+HH:MM",
+	 * starting at the sign.
+	 */
+	private final static DateTimeFormatter GMT_OFFSET_PARSE_FORMATTER = new DateTimeFormatterBuilder().
+		appendOffset("+H:MM","Z").toFormatter(Locale.ROOT);
+	/**
+	 * Formatters used to parse a general timezone given as a zone name, in full ("Pacific Standard Time") or
+	 * abbreviated ("PST", "UTC"), or a zone id ("Europe/London").
+	 * Zone names are in the default locale, as with SimpleDateFormat. The formatters are tried in order.
+	 */
+	private final static DateTimeFormatter ZONE_PARSE_FORMATTER_LIST[] =
+	{
+		new DateTimeFormatterBuilder().appendZoneText(TextStyle.FULL).toFormatter(),
+		new DateTimeFormatterBuilder().appendZoneText(TextStyle.SHORT).toFormatter()
+	};
+	/**
+	 * Formatter used by format, of the form "yyyy-MM-dd'T'HH:mm:ss+HHMM".
+	 * @see #format
+	 */
+	private final static DateTimeFormatter FORMATTER = createFormatter("+HHMM","+0000");
+	/**
+	 * Formatter used by formatWithColonTimezone, of the form "yyyy-MM-dd'T'HH:mm:ss+HH:MM".
+	 * @see #formatWithColonTimezone
+	 */
+	private final static DateTimeFormatter COLON_TIMEZONE_FORMATTER = createFormatter("+HH:MM","+00:00");
+	/**
+	 * Shared instance, using the default timezone.
+	 * @see #getInstance
+	 */
+	private static RTMLDateFormat instance = new RTMLDateFormat();
+	/**
+	 * The timezone dates without a timezone field are parsed in, and dates are formatted in.
+	 * If null, the default timezone (at the time of the parse or format) is used.
+	 */
+	protected TimeZone timeZone = null;
 
 	/**
-	 * Default constructor.
+	 * Default constructor. The default timezone is used for parsing dates without a timezone field,
+	 * and for formatting.
+	 * @see #timeZone
 	 */
 	public RTMLDateFormat()
 	{
 		super();
-		timezoneDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-		localDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+		timeZone = null;
+	}
+
+	/**
+	 * Constructor.
+	 * @param tz The timezone to parse dates without a timezone field in, and to format dates in.
+	 *        If null, the default timezone is used.
+	 * @see #timeZone
+	 */
+	public RTMLDateFormat(TimeZone tz)
+	{
+		super();
+		timeZone = tz;
+	}
+
+	/**
+	 * Return a shared instance, using the default timezone. As instances hold no parsing/formatting state,
+	 * the shared instance can be used by many threads at once.
+	 * @return The shared instance.
+	 * @see #instance
+	 */
+	public static RTMLDateFormat getInstance()
+	{
+		return instance;
 	}
 
 	/**
-	 * Parse a string of the form:"yyyy-MM-dd'T'HH:mm:ssZ" or "yyyy-MM-dd'T'HH:mm:ss" into a date.
+	 * Parse a string of the form:"yyyy-MM-dd'T'HH:mm:ss{.s..}{+HHMM|+HH:MM|Z|general timezone}" into a date.
+	 * If there is no timezone field, the fields are interpreted in the timezone of this instance
+	 * (by default the parser's local timezone). See the class comment for the strings accepted.
 	 * @param s The string to parse.
 	 * @return An instance of Date containing the parsed date.
-	 * @see #timezoneDateFormat
-	 * @see #localDateFormat
+	 * @exception ParseException Thrown if the string is not a valid date, the error offset is the
+	 *            index of the character that could not be parsed.
+	 * @see #LOCAL_PARSE_FORMATTER
+	 * @see #parseZone
+	 * @see #getTime
+	 * @see #getTimeZone
 	 */
 	public Date parse(String s) throws ParseException
 	{
-		Date date = null;
+		ParsePosition position = null;
+		LocalDateTime localDateTime = null;
+		ZoneId zone = null;
+		int index;
 
-		// First, try parsing as if there is a timezone present.
-		// If there is not this will throw a ParseException, see the catch to see what happens next.
+		position = new ParsePosition(skipWhitespace(s,0));
+		try
+		{
+			localDateTime = LocalDateTime.from(LOCAL_PARSE_FORMATTER.parse(s,position));
+		}
+		catch(DateTimeException e)
+		{
+			throw createParseException(s,position,e);
+		}
+		catch(ArithmeticException e)
+		{
+			throw createParseException(s,position,e);
+		}
+		// timezone, if present, identified from the characters after the seconds field
+		index = skipWhitespace(s,position.getIndex());
+		zone = parseZone(s,index);
+		if(zone == null)
+			zone = getZoneId();
 		try
 		{
-			date = timezoneDateFormat.parse(s);
+			return new Date(getTime(localDateTime,zone));
+		}
+		catch(DateTimeException e)
+		{
+			throw createParseException(s,position,e);
 		}
-		catch(ParseException e)
+		catch(ArithmeticException e)
 		{
-			// retry parsing without a timezone
-			// The other fields are interpreted using the locale timezone
-			// If this fails the method throws an exception.
-			date = localDateFormat.parse(s);
+			throw createParseException(s,position,e);
 		}
-		return date;
 	}
 
 	/**
-	 * Method to format a Date into an acceptable ISO8601 String.
-	 * Currently uses timezoneDateFormat to get timezone information.
-	 * @see #timezoneDateFormat
+	 * Method to format a Date into an acceptable ISO8601 String. This is of the form
+	 * "yyyy-MM-dd'T'HH:mm:ssZ" (e.g. 2006-02-28T18:00:00+1100), in the timezone of this instance.
+	 * @param d The date to format.
+	 * @return The formatted date.
+	 * @see #FORMATTER
 	 */
 	public String format(Date d)
 	{
-		return timezoneDateFormat.format(d);
+		return FORMATTER.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(d.getTime()),getZoneId()));
 	}
 
 	/**
 	 * Method to format a Date into an acceptable String for use with the XML Schema xsd:dateTime.
-	 * Currently uses timezoneDateFormat to get timezone information.
-	 * Unfortunately, xsd:dateTime and SimpleDateFormat are incompatible in the TimeZone format,
-	 * Java/SimpleDateFormat requires +|-HHMM whilst XML Schema xsd:dateTime requires +|-HH:MM.
-	 * 
-	 * @see #timezoneDateFormat
-	 * @see #XSD_COLON_INDEX
-	 * @link http://www.objectdefinitions.com/odblog/2007/converting-java-dates-to-xml-schema-datetime-with-timezone/
+	 * This is of the form "yyyy-MM-dd'T'HH:mm:ss+HH:MM" (e.g. 2006-02-28T18:00:00+11:00), as
+	 * XML Schema xsd:dateTime requires a colon in the timezone.
+	 * @param d The date to format.
+	 * @return The formatted date.
+	 * @see #COLON_TIMEZONE_FORMATTER
 	 * @link http://www.w3schools.com/Schema/schema_dtypes_date.asp
 	 */
 	public String formatWithColonTimezone(Date d)
 	{
-		String s = null;
+		return COLON_TIMEZONE_FORMATTER.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(d.getTime()),
+										getZoneId()));
+	}
+
+	/**
+	 * Get the timezone used by this instance.
+	 * @return The timezone, or the default timezone if none was specified.
+	 * @see #timeZone
+	 */
+	public TimeZone getTimeZone()
+	{
+		if(timeZone == null)
+			return TimeZone.getDefault();
+		return timeZone;
+	}
+
+	/**
+	 * Get the timezone used by this instance, as a ZoneId.
+	 * @return The zone, or the default zone if no timezone was specified.
+	 * @see #timeZone
+	 */
+	protected ZoneId getZoneId()
+	{
+		if(timeZone == null)
+			return ZoneId.systemDefault();
+		return timeZone.toZoneId();
+	}
+
+	/**
+	 * Return the number of milliseconds since 1970-01-01T00:00:00 UTC of a local date and time in a zone.
+	 * A local time that occurs twice (at the end of daylight saving time) is taken to be the later one, and
+	 * a local time that does not occur (at the start of daylight saving time) is moved later by the length
+	 * of the gap, as a lenient Calendar does.
+	 * @param localDateTime The local date and time.
+	 * @param zone The zone.
+	 * @return The number of milliseconds since 1970-01-01T00:00:00 UTC.
+	 */
+	static long getTime(LocalDateTime localDateTime,ZoneId zone)
+	{
+		return ZonedDateTime.ofLocal(localDateTime,zone,null).withLaterOffsetAtOverlap().toInstant().
+			toEpochMilli();
+	}
+
+	/**
+	 * Parse the timezone at the specified index in a string. The form of the timezone is determined from the
+	 * characters at the index: "Z", a sign followed by 4 digits ("+HHMM"), a sign followed by "HH:MM", "GMT"
+	 * optionally followed by a sign and "H:MM" or "HH:MM", "UTC", or a letter (a zone name or id). Anything else (including a timezone that does not parse) is not a timezone,
+	 * and is ignored.
+	 * @param s The string.
+	 * @param index The index of the start of the timezone.
+	 * @return The zone, or null if there is no timezone at the index.
+	 * @see #OFFSET_PARSE_FORMATTER
+	 * @see #COLON_OFFSET_PARSE_FORMATTER
+	 * @see #GMT_OFFSET_PARSE_FORMATTER
+	 * @see #ZONE_PARSE_FORMATTER_LIST
+	 */
+	private static ZoneId parseZone(String s,int index)
+	{
+		DateTimeFormatter formatter = null;
+		int length;
+		char ch;
+
+		length = s.length();
+		if(index >= length)
+			return null;
+		ch = s.charAt(index);
+		if(ch == 'Z')
+			return ZoneOffset.UTC;
+		if((ch == '+')||(ch == '-'))
+		{
+			if(isDigits(s,index+1,2) && isDigits(s,index+3,2))
+				formatter = OFFSET_PARSE_FORMATTER;
+			else if(isDigits(s,index+1,2) && (index+3 < length) && (s.charAt(index+3) == ':') &&
+				isDigits(s,index+4,2))
+				formatter = COLON_OFFSET_PARSE_FORMATTER;
+			else
+				return null;
+			try
+			{
+				return ZoneOffset.from(formatter.parse(s,new ParsePosition(index)));
+			}
+			catch(DateTimeException e)
+			{
+				return null;
+			}
+		}
+		if(Character.isLetter(ch))
+		{
+			if(s.startsWith("GMT",index))
+			{
+				index += 3;
+				if((index >= length)||((s.charAt(index) != '+')&&(s.charAt(index) != '-')))
+					return ZoneOffset.UTC;
+				try
+				{
+					return ZoneOffset.from(GMT_OFFSET_PARSE_FORMATTER.parse(s,new ParsePosition(index)));
+				}
+				catch(DateTimeException e)
+				{
+					return null;
+				}
+			}
+			// the zone name UTC, any offset following it is ignored (as SimpleDateFormat does)
+			if(s.startsWith("UTC",index))
+				return ZoneOffset.UTC;
+			for(int i = 0; i < ZONE_PARSE_FORMATTER_LIST.length; i++)
+			{
+				try
+				{
+					return ZoneId.from(ZONE_PARSE_FORMATTER_LIST[i].parse(s,new ParsePosition(index)));
+				}
+				catch(DateTimeException e)
+				{
+					// not a zone name in this style, try the next
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return whether the specified number of characters starting at an index in a string are all ASCII digits.
+	 * @param s The string.
+	 * @param index The index of the first character.
+	 * @param count The number of characters.
+	 * @return true if the string has count characters at the index, and they are all digits.
+	 */
+	private static boolean isDigits(String s,int index,int count)
+	{
+		if(index+count > s.length())
+			return false;
+		for(int i = index; i < index+count; i++)
+		{
+			if((s.charAt(i) < '0')||(s.charAt(i) > '9'))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the index of the first non-whitespace character at or after an index in a string.
+	 * @param s The string.
+	 * @param index The index to start at.
+	 * @return The index of the first non-whitespace character, or the length of the string if there is none.
+	 */
+	private static int skipWhitespace(String s,int index)
+	{
+		while((index < s.length()) && Character.isWhitespace(s.charAt(index)))
+			index++;
+		return index;
+	}
+
+	/**
+	 * Create a ParseException for a string that failed to parse.
+	 * @param s The string.
+	 * @param position The parse position, the error index (or index) is used as the error offset.
+	 * @param e The exception thrown by java.time, used as the cause.
+	 * @return A new ParseException.
+	 */
+	private static ParseException createParseException(String s,ParsePosition position,RuntimeException e)
+	{
+		ParseException pe = null;
+		int errorIndex;
 
-		s = timezoneDateFormat.format(d);
-		return s.substring(0,XSD_COLON_INDEX) + ":" + s.substring(XSD_COLON_INDEX);
+		if(e instanceof DateTimeParseException)
+			errorIndex = ((DateTimeParseException)e).getErrorIndex();
+		else if(position.getErrorIndex() >= 0)
+			errorIndex = position.getErrorIndex();
+		else
+			errorIndex = position.getIndex();
+		pe = new ParseException("Unparseable date: \""+s+"\"",errorIndex);
+		pe.initCause(e);
+		return pe;
+	}
+
+	/**
+	 * Create a formatter of the form "yyyy-MM-dd'T'HH:mm:ss" followed by a timezone.
+	 * @param offsetPattern The pattern of the timezone, as used by DateTimeFormatterBuilder.appendOffset.
+	 * @param noOffsetText The text to use for a zero offset.
+	 * @return The formatter.
+	 */
+	private static DateTimeFormatter createFormatter(String offsetPattern,String noOffsetText)
+	{
+		return new DateTimeFormatterBuilder().
+			appendValue(ChronoField.YEAR,4,10,SignStyle.NORMAL).appendLiteral('-').
+			appendValue(ChronoField.MONTH_OF_YEAR,2).appendLiteral('-').
+			appendValue(ChronoField.DAY_OF_MONTH,2).appendLiteral('T').
+			appendValue(ChronoField.HOUR_OF_DAY,2).appendLiteral(':').
+			appendValue(ChronoField.MINUTE_OF_HOUR,2).appendLiteral(':').
+			appendValue(ChronoField.SECOND_OF_MINUTE,2).
+			appendOffset(offsetPattern,noOffsetText).toFormatter(Locale.ROOT);
 	}
 }
 //
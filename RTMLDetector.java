@@ -67,6 +67,19 @@ public class RTMLDetector extends RTMLAttributes implements Serializable
 		useGain = false;
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param detector The detector to copy.
+	 */
+	public RTMLDetector(RTMLDetector detector)
+	{
+		super(detector);
+		rowBinning = detector.rowBinning;
+		columnBinning = detector.columnBinning;
+		gain = detector.gain;
+		useGain = detector.useGain;
+	}
+
 	/**
 	 * Method to set the row binning.
 	 * @param i The row binning.
@@ -198,6 +211,44 @@ public class RTMLDetector extends RTMLAttributes implements Serializable
 		return useGain;
 	}
 
+	/**
+	 * Test whether one detector is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #rowBinning
+	 * @see #columnBinning
+	 * @see #gain
+	 * @see #useGain
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLDetector other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLDetector)obj;
+		return (rowBinning == other.rowBinning)&&(columnBinning == other.columnBinning)&&
+			RTMLEquality.same(gain,other.gain)&&(useGain == other.useGain);
+	}
+
+	/**
+	 * Return a hash code for the detector, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,rowBinning);
+		hash = RTMLEquality.hash(hash,columnBinning);
+		hash = RTMLEquality.hash(hash,gain);
+		hash = RTMLEquality.hash(hash,useGain);
+		return hash;
+	}
+
 	/**
 	 * String representation of this Detector.
 	 * @see #toString(java.lang.String)
@@ -80,6 +80,25 @@ public class RTMLDevice extends RTMLAttributes implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor. The detector, grating and half-wave plate are also copied.
+	 * @param device The device to copy.
+	 */
+	public RTMLDevice(RTMLDevice device)
+	{
+		super(device);
+		type = device.type;
+		spectralRegion = device.spectralRegion;
+		name = device.name;
+		filterType = device.filterType;
+		if(device.detector != null)
+			detector = new RTMLDetector(device.detector);
+		if(device.grating != null)
+			grating = new RTMLGrating(device.grating);
+		if(device.halfWavePlate != null)
+			halfWavePlate = new RTMLHalfWavePlate(device.halfWavePlate);
+	}
+
 	/**
 	 * Set the type of instrument. This should be one of the types defined in the RTML v 2.2 DTD,
 	 * entity %deviceTypes;. 
@@ -205,6 +224,53 @@ public class RTMLDevice extends RTMLAttributes implements Serializable
 		return halfWavePlate;
 	}
 
+	/**
+	 * Test whether one device is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #type
+	 * @see #spectralRegion
+	 * @see #name
+	 * @see #filterType
+	 * @see #detector
+	 * @see #grating
+	 * @see #halfWavePlate
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLDevice other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLDevice)obj;
+		return RTMLEquality.same(type,other.type)&&
+			RTMLEquality.same(spectralRegion,other.spectralRegion)&&
+			RTMLEquality.same(name,other.name)&&RTMLEquality.same(filterType,other.filterType)&&
+			RTMLEquality.same(detector,other.detector)&&RTMLEquality.same(grating,other.grating)&&
+			RTMLEquality.same(halfWavePlate,other.halfWavePlate);
+	}
+
+	/**
+	 * Return a hash code for the device, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,type);
+		hash = RTMLEquality.hash(hash,spectralRegion);
+		hash = RTMLEquality.hash(hash,name);
+		hash = RTMLEquality.hash(hash,filterType);
+		hash = RTMLEquality.hash(hash,detector);
+		hash = RTMLEquality.hash(hash,grating);
+		hash = RTMLEquality.hash(hash,halfWavePlate);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @see #toString(java.lang.String)
@@ -140,6 +140,63 @@ public class RTMLDocument implements Serializable, RTMLDeviceHolder, RTMLTargetH
 		scoresList = new Vector();
 	}
 
+	/**
+	 * Copy constructor. The document and all it's sub elements are copied (a deep copy), so the new document can be
+	 * modified without changing the original.
+	 * @param document The document to copy.
+	 */
+	public RTMLDocument(RTMLDocument document)
+	{
+		super();
+		RTMLObservation ob = null;
+		RTMLScore sc = null;
+
+		version = document.version;
+		type = document.type;
+		mode = document.mode;
+		uid = document.uid;
+		if(document.intelligentAgent != null)
+			intelligentAgent = new RTMLIntelligentAgent(document.intelligentAgent);
+		if(document.history != null)
+			history = new RTMLHistory(document.history);
+		if(document.contact != null)
+			contact = new RTMLContact(document.contact);
+		if(document.project != null)
+			project = new RTMLProject(document.project);
+		if(document.telescope != null)
+			telescope = new RTMLTelescope(document.telescope);
+		if(document.device != null)
+			device = new RTMLDevice(document.device);
+		if(document.target != null)
+			target = new RTMLTarget(document.target);
+		if(document.observationList != null)
+		{
+			observationList = new Vector(document.observationList.size());
+			for(int i = 0; i < document.observationList.size(); i++)
+			{
+				ob = (RTMLObservation)(document.observationList.get(i));
+				if(ob != null)
+					ob = new RTMLObservation(ob);
+				observationList.add(ob);
+			}
+		}
+		score = document.score;
+		if(document.scoresList != null)
+		{
+			scoresList = new Vector(document.scoresList.size());
+			for(int i = 0; i < document.scoresList.size(); i++)
+			{
+				sc = (RTMLScore)(document.scoresList.get(i));
+				if(sc != null)
+					sc = new RTMLScore(sc);
+				scoresList.add(sc);
+			}
+		}
+		if(document.completionTime != null)
+			completionTime = new Date(document.completionTime.getTime());
+		errorString = document.errorString;
+	}
+
 	/**
 	 * Set the RTML version of the document.
 	 * @param s The version.
@@ -1351,8 +1408,8 @@ public class RTMLDocument implements Serializable, RTMLDeviceHolder, RTMLTargetH
 
 		newScore = new RTMLScore();
 		// delay
-		delay = new RTMLPeriodFormat();
-		delay.parse(delayString); // throws RTMLException/NumberFormatException
+		// throws RTMLException/NumberFormatException
+		delay = RTMLPeriodFormat.valueOf(delayString);
 		newScore.setDelay(delay);
 		// probability
 		try
@@ -1448,7 +1505,7 @@ public class RTMLDocument implements Serializable, RTMLDeviceHolder, RTMLTargetH
 	{
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		try
 		{
 			completionTime = dateFormat.parse(s);
@@ -1510,22 +1567,107 @@ public class RTMLDocument implements Serializable, RTMLDeviceHolder, RTMLTargetH
 	}
 
 	/**
-	 * Clone the document and all it's sub elements.
+	 * Clone the document and all it's sub elements. This used to serialize the document through an
+	 * ObjectOutputStream and read it back, it now uses the copy constructor.
 	 * @return a deep clone of the document.
+	 * @see #RTMLDocument(org.estar.rtml.RTMLDocument)
 	 */
 	public Object deepClone() throws Exception
 	{
-		ByteArrayOutputStream b = new ByteArrayOutputStream();
-		ObjectOutputStream out = new ObjectOutputStream(b);
-		out.writeObject(this);
-		out.close();
-		ByteArrayInputStream bIn = new ByteArrayInputStream(b.toByteArray());
-		ObjectInputStream oi = new ObjectInputStream(bIn);
-		oi.close();
-		return oi.readObject();
+		return new RTMLDocument(this);
 	}
  
 
+	/**
+	 * Compute the fingerprint of the document's contents. This creates a new RTMLBinaryCodec each time: to
+	 * fingerprint many documents (e.g. every inbound message), call RTMLBinaryCodec.fingerprint with a codec
+	 * kept per thread, which reuses it's buffer.
+	 * @return A new fingerprint.
+	 * @exception RTMLException Thrown if the document cannot be encoded.
+	 * @see org.estar.rtml.RTMLBinaryCodec#fingerprint
+	 * @see org.estar.rtml.RTMLDocumentFingerprint
+	 */
+	public RTMLDocumentFingerprint getFingerprint() throws RTMLException
+	{
+		return new RTMLBinaryCodec().fingerprint(this);
+	}
+
+	/**
+	 * Test whether one document is equal to another: the contents are the same. The whole document tree is
+	 * compared, each model class comparing it's own fields. Documents are mutable, so a document should not
+	 * be changed while it is in a hashed collection. To check cheaply whether a document has been seen
+	 * before, keep it's fingerprint instead.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #version
+	 * @see #type
+	 * @see #mode
+	 * @see #uid
+	 * @see #intelligentAgent
+	 * @see #history
+	 * @see #contact
+	 * @see #project
+	 * @see #telescope
+	 * @see #device
+	 * @see #target
+	 * @see #observationList
+	 * @see #score
+	 * @see #scoresList
+	 * @see #completionTime
+	 * @see #errorString
+	 * @see #getFingerprint
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLDocument other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLDocument) == false)
+			return false;
+		other = (RTMLDocument)obj;
+		return RTMLEquality.same(version,other.version)&&RTMLEquality.same(type,other.type)&&
+			RTMLEquality.same(mode,other.mode)&&RTMLEquality.same(uid,other.uid)&&
+			RTMLEquality.same(intelligentAgent,other.intelligentAgent)&&
+			RTMLEquality.same(history,other.history)&&RTMLEquality.same(contact,other.contact)&&
+			RTMLEquality.same(project,other.project)&&
+			RTMLEquality.same(telescope,other.telescope)&&RTMLEquality.same(device,other.device)&&
+			RTMLEquality.same(target,other.target)&&
+			RTMLEquality.same(observationList,other.observationList)&&
+			RTMLEquality.same(score,other.score)&&RTMLEquality.same(scoresList,other.scoresList)&&
+			RTMLEquality.same(completionTime,other.completionTime)&&
+			RTMLEquality.same(errorString,other.errorString);
+	}
+
+	/**
+	 * Return a hash code for the document, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,version);
+		hash = RTMLEquality.hash(hash,type);
+		hash = RTMLEquality.hash(hash,mode);
+		hash = RTMLEquality.hash(hash,uid);
+		hash = RTMLEquality.hash(hash,intelligentAgent);
+		hash = RTMLEquality.hash(hash,history);
+		hash = RTMLEquality.hash(hash,contact);
+		hash = RTMLEquality.hash(hash,project);
+		hash = RTMLEquality.hash(hash,telescope);
+		hash = RTMLEquality.hash(hash,device);
+		hash = RTMLEquality.hash(hash,target);
+		hash = RTMLEquality.hash(hash,observationList);
+		hash = RTMLEquality.hash(hash,score);
+		hash = RTMLEquality.hash(hash,scoresList);
+		hash = RTMLEquality.hash(hash,completionTime);
+		hash = RTMLEquality.hash(hash,errorString);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @see #toString(java.lang.String)
@@ -0,0 +1,685 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLDocumentBuilder.java
+package org.estar.rtml;
+
+import java.util.*;
+
+/**
+ * This class derives new RTMLDocumentSnapshot s from an existing one (or from scratch). The builder starts
+ * with a shallow copy of the snapshot's document: the with methods replace the changed fields, and only copy
+ * the lists they change (the history, observations and scores lists are copied, sharing their unchanged
+ * entries, the first time they are changed). Everything else (device, target, schedules, image data etc)
+ * is shared with the original snapshot, so deriving a reply (add a history entry, change the mode) costs in
+ * proportion to what changed, rather than the size of the document.
+ * <p>Objects passed to the with methods are copied, so they can be modified afterwards without changing the
+ * built snapshots. The builder can be used to build more than one snapshot: changes made after a call to build
+ * do not change the snapshots already built. Builders are not thread-safe.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLDocumentSnapshot
+ */
+public class RTMLDocumentBuilder
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The document being built. This is a shallow copy of the source document: the objects it contains may be
+	 * shared with snapshots, and so must be replaced, not modified.
+	 */
+	private RTMLDocument document = null;
+	/**
+	 * Whether the document's history (and its entry list) is shared with a snapshot, and so must be copied
+	 * before an entry is added.
+	 */
+	private boolean historyShared = true;
+	/**
+	 * Whether the document's observation list is shared with a snapshot, and so must be copied before it is
+	 * changed.
+	 */
+	private boolean observationListShared = true;
+	/**
+	 * Whether the document's scores list is shared with a snapshot, and so must be copied before it is changed.
+	 */
+	private boolean scoresListShared = true;
+
+	/**
+	 * Default constructor. The builder starts with an empty document.
+	 */
+	public RTMLDocumentBuilder()
+	{
+		super();
+		document = new RTMLDocument();
+		historyShared = false;
+		observationListShared = false;
+		scoresListShared = false;
+	}
+
+	/**
+	 * Constructor. The builder starts with the snapshot's document.
+	 * @param snapshot The snapshot to derive new snapshots from.
+	 * @see #shallowCopy
+	 */
+	public RTMLDocumentBuilder(RTMLDocumentSnapshot snapshot)
+	{
+		super();
+		document = shallowCopy(snapshot.getDocument());
+	}
+
+	/**
+	 * Build a snapshot of the document as it currently is. The builder can continue to be used afterwards,
+	 * further changes do not change the built snapshot.
+	 * @return A new snapshot.
+	 * @see #shallowCopy
+	 */
+	public RTMLDocumentSnapshot build()
+	{
+		RTMLDocumentSnapshot snapshot = null;
+
+		snapshot = new RTMLDocumentSnapshot(document);
+		document = shallowCopy(document);
+		historyShared = true;
+		observationListShared = true;
+		scoresListShared = true;
+		return snapshot;
+	}
+
+	/**
+	 * Set the RTML version of the document.
+	 * @param s The version.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setVersion
+	 */
+	public RTMLDocumentBuilder withVersion(String s)
+	{
+		document.setVersion(s);
+		return this;
+	}
+
+	/**
+	 * Set the type of the document (RTML 2.2).
+	 * @param s The type.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setType
+	 */
+	public RTMLDocumentBuilder withType(String s)
+	{
+		document.setType(s);
+		return this;
+	}
+
+	/**
+	 * Set the mode of the document (RTML 3.1a).
+	 * @param s The mode.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setMode
+	 */
+	public RTMLDocumentBuilder withMode(String s)
+	{
+		document.setMode(s);
+		return this;
+	}
+
+	/**
+	 * Set the Unique ID of the document (RTML 3.1).
+	 * @param s The uid.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setUId
+	 */
+	public RTMLDocumentBuilder withUId(String s)
+	{
+		document.setUId(s);
+		return this;
+	}
+
+	/**
+	 * Make the document a score request document. See RTMLDocument.setScoreRequest.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setScoreRequest
+	 */
+	public RTMLDocumentBuilder withScoreRequest() throws NullPointerException, IllegalArgumentException
+	{
+		document.setScoreRequest();
+		return this;
+	}
+
+	/**
+	 * Make the document a score reject document. See RTMLDocument.setScoreReject.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setScoreReject
+	 */
+	public RTMLDocumentBuilder withScoreReject() throws NullPointerException, IllegalArgumentException
+	{
+		document.setScoreReject();
+		return this;
+	}
+
+	/**
+	 * Make the document a score reply document. See RTMLDocument.setScoreReply.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setScoreReply
+	 */
+	public RTMLDocumentBuilder withScoreReply() throws NullPointerException, IllegalArgumentException
+	{
+		document.setScoreReply();
+		return this;
+	}
+
+	/**
+	 * Make the document an observation request document. See RTMLDocument.setRequest.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setRequest
+	 */
+	public RTMLDocumentBuilder withRequest() throws NullPointerException, IllegalArgumentException
+	{
+		document.setRequest();
+		return this;
+	}
+
+	/**
+	 * Make the document an observation request reply document. See RTMLDocument.setRequestReply.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setRequestReply
+	 */
+	public RTMLDocumentBuilder withRequestReply() throws NullPointerException, IllegalArgumentException
+	{
+		document.setRequestReply();
+		return this;
+	}
+
+	/**
+	 * Make the document an observation update document. See RTMLDocument.setUpdate.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setUpdate
+	 */
+	public RTMLDocumentBuilder withUpdate() throws NullPointerException, IllegalArgumentException
+	{
+		document.setUpdate();
+		return this;
+	}
+
+	/**
+	 * Make the document a fail document. See RTMLDocument.setFail.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setFail
+	 */
+	public RTMLDocumentBuilder withFail() throws NullPointerException, IllegalArgumentException
+	{
+		document.setFail();
+		return this;
+	}
+
+	/**
+	 * Make the document a reject document. See RTMLDocument.setReject.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setReject
+	 */
+	public RTMLDocumentBuilder withReject() throws NullPointerException, IllegalArgumentException
+	{
+		document.setReject();
+		return this;
+	}
+
+	/**
+	 * Make the document an abort document. See RTMLDocument.setAbort.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setAbort
+	 */
+	public RTMLDocumentBuilder withAbort() throws NullPointerException, IllegalArgumentException
+	{
+		document.setAbort();
+		return this;
+	}
+
+	/**
+	 * Make the document an abort reply document. See RTMLDocument.setAbortReply.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setAbortReply
+	 */
+	public RTMLDocumentBuilder withAbortReply() throws NullPointerException, IllegalArgumentException
+	{
+		document.setAbortReply();
+		return this;
+	}
+
+	/**
+	 * Make the document an incomplete document. See RTMLDocument.setIncomplete.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setIncomplete
+	 */
+	public RTMLDocumentBuilder withIncomplete() throws NullPointerException, IllegalArgumentException
+	{
+		document.setIncomplete();
+		return this;
+	}
+
+	/**
+	 * Make the document a complete document. See RTMLDocument.setComplete.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setComplete
+	 */
+	public RTMLDocumentBuilder withComplete() throws NullPointerException, IllegalArgumentException
+	{
+		document.setComplete();
+		return this;
+	}
+
+	/**
+	 * Make the document a target of opportunity document. See RTMLDocument.setTOOP. This changes each
+	 * observation's target (RTML 2.2) or schedule (RTML 3.1a), so each observation (and the document's
+	 * target) is copied first.
+	 * @return This builder.
+	 * @exception NullPointerException Thrown if the version has not been set, or an observation has no
+	 *            target or schedule.
+	 * @exception IllegalArgumentException Thrown if the version is not supported.
+	 * @see org.estar.rtml.RTMLDocument#setTOOP
+	 * @see #copyObservationList
+	 */
+	public RTMLDocumentBuilder withTOOP() throws NullPointerException, IllegalArgumentException
+	{
+		copyObservationList();
+		for(int i = 0; i < document.getObservationListCount(); i++)
+		{
+			if(document.getObservation(i) != null)
+				document.observationList.set(i,new RTMLObservation(document.getObservation(i)));
+		}
+		if(document.getTarget() != null)
+			document.setTarget(new RTMLTarget(document.getTarget()));
+		document.setTOOP();
+		return this;
+	}
+
+	/**
+	 * Set the document's intelligent agent. A copy of the intelligent agent is stored, so it can be modified after this call
+	 * without changing the built snapshots.
+	 * @param intelligentAgent The intelligent agent, or null to remove it.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setIntelligentAgent
+	 */
+	public RTMLDocumentBuilder withIntelligentAgent(RTMLIntelligentAgent intelligentAgent)
+	{
+		if(intelligentAgent == null)
+			document.setIntelligentAgent(null);
+		else
+			document.setIntelligentAgent(new RTMLIntelligentAgent(intelligentAgent));
+		return this;
+	}
+
+	/**
+	 * Set the document's contact. A copy of the contact is stored, so it can be modified after this call
+	 * without changing the built snapshots.
+	 * @param contact The contact, or null to remove it.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setContact
+	 */
+	public RTMLDocumentBuilder withContact(RTMLContact contact)
+	{
+		if(contact == null)
+			document.setContact(null);
+		else
+			document.setContact(new RTMLContact(contact));
+		return this;
+	}
+
+	/**
+	 * Set the document's project. A copy of the project is stored, so it can be modified after this call
+	 * without changing the built snapshots.
+	 * @param project The project, or null to remove it.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setProject
+	 */
+	public RTMLDocumentBuilder withProject(RTMLProject project)
+	{
+		if(project == null)
+			document.setProject(null);
+		else
+			document.setProject(new RTMLProject(project));
+		return this;
+	}
+
+	/**
+	 * Set the document's telescope. A copy of the telescope is stored, so it can be modified after this call
+	 * without changing the built snapshots.
+	 * @param telescope The telescope, or null to remove it.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setTelescope
+	 */
+	public RTMLDocumentBuilder withTelescope(RTMLTelescope telescope)
+	{
+		if(telescope == null)
+			document.setTelescope(null);
+		else
+			document.setTelescope(new RTMLTelescope(telescope));
+		return this;
+	}
+
+	/**
+	 * Set the document's device. A copy of the device is stored, so it can be modified after this call
+	 * without changing the built snapshots.
+	 * @param device The device, or null to remove it.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setDevice
+	 */
+	public RTMLDocumentBuilder withDevice(RTMLDevice device)
+	{
+		if(device == null)
+			document.setDevice(null);
+		else
+			document.setDevice(new RTMLDevice(device));
+		return this;
+	}
+
+	/**
+	 * Set the document's target. A copy of the target is stored, so it can be modified after this call
+	 * without changing the built snapshots.
+	 * @param target The target, or null to remove it.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setTarget
+	 */
+	public RTMLDocumentBuilder withTarget(RTMLTarget target)
+	{
+		if(target == null)
+			document.setTarget(null);
+		else
+			document.setTarget(new RTMLTarget(target));
+		return this;
+	}
+
+	/**
+	 * Add a normal history entry, timestamped now. See RTMLDocument.addHistoryEntry.
+	 * @param agentName The name of the agent adding the history.
+	 * @param agentUri The agent URI.
+	 * @param description A description of the changes made to the document.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#addHistoryEntry
+	 * @see #copyHistory
+	 */
+	public RTMLDocumentBuilder withHistoryEntry(String agentName,String agentUri,String description)
+	{
+		copyHistory();
+		document.addHistoryEntry(agentName,agentUri,description);
+		return this;
+	}
+
+	/**
+	 * Add a rejection history entry, timestamped now. See RTMLDocument.addHistoryRejection.
+	 * @param agentName The name of the agent adding the history.
+	 * @param agentUri The agent URI.
+	 * @param rejectionReason The reason for rejection.
+	 * @param rejectionDescription A description of why the document was rejected.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#addHistoryRejection
+	 * @see #copyHistory
+	 */
+	public RTMLDocumentBuilder withHistoryRejection(String agentName,String agentUri,String rejectionReason,
+							String rejectionDescription)
+	{
+		copyHistory();
+		document.addHistoryRejection(agentName,agentUri,rejectionReason,rejectionDescription);
+		return this;
+	}
+
+	/**
+	 * Add an error history entry, timestamped now. See RTMLDocument.addHistoryError.
+	 * @param agentName The name of the agent adding the history.
+	 * @param agentUri The agent URI.
+	 * @param errorString The error.
+	 * @param description A description of this entry.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#addHistoryError
+	 * @see #copyHistory
+	 */
+	public RTMLDocumentBuilder withHistoryError(String agentName,String agentUri,String errorString,
+						    String description)
+	{
+		copyHistory();
+		document.addHistoryError(agentName,agentUri,errorString,description);
+		return this;
+	}
+
+	/**
+	 * Add a history entry. A copy of the entry is added.
+	 * @param entry The entry.
+	 * @return This builder.
+	 * @see #copyHistory
+	 */
+	public RTMLDocumentBuilder withHistoryEntry(RTMLHistoryEntry entry)
+	{
+		copyHistory();
+		if(document.getHistory() == null)
+			document.setHistory(new RTMLHistory());
+		document.getHistory().addEntry(new RTMLHistoryEntry(entry));
+		return this;
+	}
+
+	/**
+	 * Add an observation. A copy of the observation is added.
+	 * @param observation The observation.
+	 * @return This builder.
+	 * @see #copyObservationList
+	 */
+	public RTMLDocumentBuilder withObservation(RTMLObservation observation)
+	{
+		copyObservationList();
+		document.addObservation(new RTMLObservation(observation));
+		return this;
+	}
+
+	/**
+	 * Replace an observation. A copy of the observation is stored.
+	 * @param index The index of the observation to replace.
+	 * @param observation The new observation.
+	 * @return This builder.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 * @see #copyObservationList
+	 */
+	public RTMLDocumentBuilder withObservation(int index,RTMLObservation observation)
+		throws IndexOutOfBoundsException
+	{
+		copyObservationList();
+		document.observationList.set(index,new RTMLObservation(observation));
+		return this;
+	}
+
+	/**
+	 * Remove all the observations.
+	 * @return This builder.
+	 */
+	public RTMLDocumentBuilder withoutObservations()
+	{
+		document.observationList = new Vector();
+		observationListShared = false;
+		return this;
+	}
+
+	/**
+	 * Set the document's overall score.
+	 * @param s The score.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setScore(double)
+	 */
+	public RTMLDocumentBuilder withScore(double s)
+	{
+		document.setScore(s);
+		return this;
+	}
+
+	/**
+	 * Add a score to the scores list. A copy of the score is added.
+	 * @param score The score.
+	 * @return This builder.
+	 * @see #copyScoresList
+	 */
+	public RTMLDocumentBuilder withScore(RTMLScore score)
+	{
+		copyScoresList();
+		document.addScore(new RTMLScore(score));
+		return this;
+	}
+
+	/**
+	 * Remove all the scores from the scores list.
+	 * @return This builder.
+	 */
+	public RTMLDocumentBuilder withoutScores()
+	{
+		document.scoresList = new Vector();
+		scoresListShared = false;
+		return this;
+	}
+
+	/**
+	 * Set the document's completion time. A copy of the date is stored.
+	 * @param d The completion time, or null.
+	 * @return This builder.
+	 * @see org.estar.rtml.RTMLDocument#setCompletionTime(java.util.Date)
+	 */
+	public RTMLDocumentBuilder withCompletionTime(Date d)
+	{
+		if(d == null)
+			document.setCompletionTime((Date)null);
+		else
+			document.setCompletionTime(new Date(d.getTime()));
+		return this;
+	}
+
+	/**
+	 * Set the document's error string. See RTMLDocument.setErrorString: for RTML 3.1a documents this adds
+	 * an error history entry.
+	 * @param s The error string.
+	 * @return This builder.
+	 * @exception RTMLException Thrown if the document is the wrong type or version.
+	 * @see org.estar.rtml.RTMLDocument#setErrorString
+	 * @see #copyHistory
+	 */
+	public RTMLDocumentBuilder withErrorString(String s) throws RTMLException
+	{
+		copyHistory();
+		document.setErrorString(s);
+		return this;
+	}
+
+	/**
+	 * Return a new document, sharing all the objects and lists of the specified document. The lists are
+	 * copied by copyHistory, copyObservationList and copyScoresList before they are changed.
+	 * @param d The document to copy.
+	 * @return A new document.
+	 */
+	private static RTMLDocument shallowCopy(RTMLDocument d)
+	{
+		RTMLDocument document = null;
+
+		document = new RTMLDocument();
+		document.version = d.version;
+		document.type = d.type;
+		document.mode = d.mode;
+		document.uid = d.uid;
+		document.intelligentAgent = d.intelligentAgent;
+		document.history = d.history;
+		document.contact = d.contact;
+		document.project = d.project;
+		document.telescope = d.telescope;
+		document.device = d.device;
+		document.setTarget(d.getTarget());
+		document.observationList = d.observationList;
+		document.score = d.score;
+		document.scoresList = d.scoresList;
+		document.completionTime = d.completionTime;
+		document.errorString = d.errorString;
+		return document;
+	}
+
+	/**
+	 * If the history is shared, replace it with a new history containing the same entries (the entries
+	 * themselves are shared, they are never modified).
+	 * @see #historyShared
+	 */
+	private void copyHistory()
+	{
+		RTMLHistory history = null;
+
+		if(historyShared == false)
+			return;
+		if(document.history != null)
+		{
+			history = new RTMLHistory();
+			if(document.history.entryList != null)
+				history.entryList = new Vector(document.history.entryList);
+			document.history = history;
+		}
+		historyShared = false;
+	}
+
+	/**
+	 * If the observation list is shared, replace it with a new list containing the same observations.
+	 * @see #observationListShared
+	 */
+	private void copyObservationList()
+	{
+		if(observationListShared == false)
+			return;
+		if(document.observationList == null)
+			document.observationList = new Vector();
+		else
+			document.observationList = new Vector(document.observationList);
+		observationListShared = false;
+	}
+
+	/**
+	 * If the scores list is shared, replace it with a new list containing the same scores.
+	 * @see #scoresListShared
+	 */
+	private void copyScoresList()
+	{
+		if(scoresListShared == false)
+			return;
+		if(document.scoresList == null)
+			document.scoresList = new Vector();
+		else
+			document.scoresList = new Vector(document.scoresList);
+		scoresListShared = false;
+	}
+}
@@ -0,0 +1,182 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLDocumentFingerprint.java
+package org.estar.rtml;
+
+import java.io.*;
+
+/**
+ * This class holds a 128 bit fingerprint of the contents of an RTMLDocument, as computed by
+ * RTMLBinaryCodec.fingerprint. Two documents with the same contents have the same fingerprint, so
+ * fingerprints of the documents already processed can be kept (e.g. in a HashSet) and used to detect
+ * retransmitted documents, without keeping the documents themselves.
+ * <p>The fingerprint is the MD5 digest of the document's RTMLBinaryCodec encoding, which is canonical:
+ * it does not depend on how the document was created (parsed from RTML 2.2 or 3.1a XML, decoded,
+ * or built in code), only on it's contents, in order (observations, history entries and scores are
+ * lists, so their order matters). Values are fingerprinted exactly, whereas some equals methods compare
+ * values with a tolerance (e.g. RTMLPeriodFormat's seconds), so equal documents can (rarely) have
+ * different fingerprints. The encoding includes RTMLBinaryCodec.FORMAT_VERSION, so fingerprints
+ * should not be compared across library versions that change the encoding.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLBinaryCodec#fingerprint
+ * @see org.estar.rtml.RTMLDocument#getFingerprint
+ */
+public final class RTMLDocumentFingerprint implements Serializable
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Serial version ID. Fixed as these fingerprints can be used as parameters in RMI calls across JVMs.
+	 */
+	static final long serialVersionUID = 6247311390652283148L;
+	/**
+	 * The length of the fingerprint in bytes.
+	 */
+	public final static int LENGTH = 16;
+	/**
+	 * The hexadecimal digits, used by toString.
+	 */
+	private final static char HEX_DIGIT_LIST[] = {'0','1','2','3','4','5','6','7','8','9','a','b','c','d',
+						      'e','f'};
+	/**
+	 * The most significant 64 bits of the fingerprint.
+	 */
+	private long high = 0L;
+	/**
+	 * The least significant 64 bits of the fingerprint.
+	 */
+	private long low = 0L;
+
+	/**
+	 * Constructor.
+	 * @param b A byte array of length LENGTH, containing the fingerprint (most significant byte first).
+	 * @exception IllegalArgumentException Thrown if the array is not of length LENGTH.
+	 * @see #LENGTH
+	 */
+	public RTMLDocumentFingerprint(byte b[]) throws IllegalArgumentException
+	{
+		super();
+		if(b.length != LENGTH)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":Fingerprint length "+b.length+
+							   " should be "+LENGTH+".");
+		}
+		for(int i = 0; i < 8; i++)
+		{
+			high = (high << 8)|(b[i] & 0xff);
+			low = (low << 8)|(b[i+8] & 0xff);
+		}
+	}
+
+	/**
+	 * Parse a fingerprint from a string, as returned by toString.
+	 * @param s A string of 32 hexadecimal digits.
+	 * @return A new fingerprint.
+	 * @exception RTMLException Thrown if the string is not 32 hexadecimal digits.
+	 * @see #toString
+	 */
+	public static RTMLDocumentFingerprint valueOf(String s) throws RTMLException
+	{
+		byte b[] = null;
+		int hi,lo;
+
+		if((s == null)||(s.length() != LENGTH*2))
+		{
+			throw new RTMLException("RTMLDocumentFingerprint:valueOf:Fingerprint '"+s+
+						"' should be "+(LENGTH*2)+" hexadecimal digits.");
+		}
+		b = new byte[LENGTH];
+		for(int i = 0; i < LENGTH; i++)
+		{
+			hi = Character.digit(s.charAt(i*2),16);
+			lo = Character.digit(s.charAt((i*2)+1),16);
+			if((hi < 0)||(lo < 0))
+			{
+				throw new RTMLException("RTMLDocumentFingerprint:valueOf:Fingerprint '"+s+
+							"' contains an illegal hexadecimal digit.");
+			}
+			b[i] = (byte)((hi << 4)|lo);
+		}
+		return new RTMLDocumentFingerprint(b);
+	}
+
+	/**
+	 * Get the fingerprint as a byte array.
+	 * @return A new byte array of length LENGTH, most significant byte first.
+	 * @see #LENGTH
+	 */
+	public byte[] getBytes()
+	{
+		byte b[] = null;
+
+		b = new byte[LENGTH];
+		for(int i = 0; i < 8; i++)
+		{
+			b[i] = (byte)(high >>> (56-(i*8)));
+			b[i+8] = (byte)(low >>> (56-(i*8)));
+		}
+		return b;
+	}
+
+	/**
+	 * Test whether one fingerprint is equal to another.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the fingerprints are the same, and false if they are not.
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLDocumentFingerprint other = null;
+
+		if((obj instanceof RTMLDocumentFingerprint) == false)
+			return false;
+		other = (RTMLDocumentFingerprint)obj;
+		return (high == other.high)&&(low == other.low);
+	}
+
+	/**
+	 * Return a hash code for the fingerprint (some of it's bits, which are evenly distributed).
+	 * @return The hash code.
+	 */
+	public int hashCode()
+	{
+		return (int)(low^(low >>> 32));
+	}
+
+	/**
+	 * Return the fingerprint as a string of 32 (lower case) hexadecimal digits.
+	 * @return The string.
+	 * @see #valueOf
+	 */
+	public String toString()
+	{
+		char chars[] = null;
+
+		chars = new char[LENGTH*2];
+		for(int i = 0; i < 16; i++)
+		{
+			chars[i] = HEX_DIGIT_LIST[(int)(high >>> (60-(i*4))) & 0xf];
+			chars[i+16] = HEX_DIGIT_LIST[(int)(low >>> (60-(i*4))) & 0xf];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,1161 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLDocumentPatch.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * This class holds the structural differences between two RTMLDocuments, a base document and a target
+ * document, such that applying the patch to (a copy of) the base document gives the target document.
+ * Update and incomplete messages usually differ from the request they follow by a little (an image data
+ * added to an observation, a history entry appended, the mode changed), so a patch is much smaller than the
+ * whole document, and can be sent or stored instead.
+ * <p>A patch is created with diff, and contains:
+ * <ul>
+ * <li>The document fields that changed (version, type, mode, uid, intelligent agent, contact, project,
+ *     telescope, device, target, score, completion time, error string), with their new values.
+ * <li>The history entries and scores appended (or removed from the end). Entries are compared from
+ *     the start: entries after the first difference are replaced.
+ * <li>For each observation that changed, it's new device, target and/or schedule (the schedule, with it's
+ *     constraints, is replaced as a whole), and the image data appended.
+ * <li>The observations appended (or removed from the end).
+ * </ul>
+ * Objects are compared by their RTMLBinaryCodec encoding. The patch holds copies of the target document's
+ * objects, and apply copies them again, so neither document shares objects with the patch.
+ * <p>The patch can be encoded in a compact binary form with RTMLBinaryCodec.encode, and decoded with
+ * RTMLBinaryCodec.decodePatch. It is also Serializable.
+ * <p>apply checks the base document has the list sizes the patch was created from, but does not
+ * otherwise check the patch is being applied to the document it was created from.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLDocument
+ * @see org.estar.rtml.RTMLBinaryCodec#encode(org.estar.rtml.RTMLDocumentPatch)
+ * @see org.estar.rtml.RTMLBinaryCodec#decodePatch(byte[])
+ */
+public class RTMLDocumentPatch implements Serializable
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Serial version ID. Fixed as these patches can be used as parameters in RMI calls across JVMs.
+	 */
+	static final long serialVersionUID = 3861309513794216802L;
+	/**
+	 * Field mask bit: the document version changed.
+	 */
+	public final static int FIELD_VERSION = 1<<0;
+	/**
+	 * Field mask bit: the document type changed.
+	 */
+	public final static int FIELD_TYPE = 1<<1;
+	/**
+	 * Field mask bit: the document mode changed.
+	 */
+	public final static int FIELD_MODE = 1<<2;
+	/**
+	 * Field mask bit: the document uid changed.
+	 */
+	public final static int FIELD_UID = 1<<3;
+	/**
+	 * Field mask bit: the intelligent agent changed.
+	 */
+	public final static int FIELD_INTELLIGENT_AGENT = 1<<4;
+	/**
+	 * Field mask bit: the history was replaced as a whole (it, or it's entry list, was added or removed).
+	 */
+	public final static int FIELD_HISTORY = 1<<5;
+	/**
+	 * Field mask bit: the contact changed.
+	 */
+	public final static int FIELD_CONTACT = 1<<6;
+	/**
+	 * Field mask bit: the project changed.
+	 */
+	public final static int FIELD_PROJECT = 1<<7;
+	/**
+	 * Field mask bit: the telescope changed.
+	 */
+	public final static int FIELD_TELESCOPE = 1<<8;
+	/**
+	 * Field mask bit: the document device changed.
+	 */
+	public final static int FIELD_DEVICE = 1<<9;
+	/**
+	 * Field mask bit: the document target changed.
+	 */
+	public final static int FIELD_TARGET = 1<<10;
+	/**
+	 * Field mask bit: the observation list was replaced as a whole (it was added or removed).
+	 */
+	public final static int FIELD_OBSERVATIONS = 1<<11;
+	/**
+	 * Field mask bit: the document score changed.
+	 */
+	public final static int FIELD_SCORE = 1<<12;
+	/**
+	 * Field mask bit: the scores list was replaced as a whole (it was added or removed).
+	 */
+	public final static int FIELD_SCORES = 1<<13;
+	/**
+	 * Field mask bit: the completion time changed.
+	 */
+	public final static int FIELD_COMPLETION_TIME = 1<<14;
+	/**
+	 * Field mask bit: the error string changed.
+	 */
+	public final static int FIELD_ERROR_STRING = 1<<15;
+	/**
+	 * Observation field mask bit: the observation's device changed.
+	 */
+	private final static int OBSERVATION_DEVICE = 1<<0;
+	/**
+	 * Observation field mask bit: the observation's target changed.
+	 */
+	private final static int OBSERVATION_TARGET = 1<<1;
+	/**
+	 * Observation field mask bit: the observation's schedule changed.
+	 */
+	private final static int OBSERVATION_SCHEDULE = 1<<2;
+	/**
+	 * Observation field mask bit: the observation was replaced as a whole (it was null in one document).
+	 */
+	private final static int OBSERVATION_REPLACE = 1<<3;
+	/**
+	 * Kind of object: RTMLIntelligentAgent.
+	 */
+	private final static int KIND_INTELLIGENT_AGENT = 0;
+	/**
+	 * Kind of object: RTMLHistory.
+	 */
+	private final static int KIND_HISTORY = 1;
+	/**
+	 * Kind of object: RTMLHistoryEntry.
+	 */
+	private final static int KIND_HISTORY_ENTRY = 2;
+	/**
+	 * Kind of object: RTMLContact.
+	 */
+	private final static int KIND_CONTACT = 3;
+	/**
+	 * Kind of object: RTMLProject.
+	 */
+	private final static int KIND_PROJECT = 4;
+	/**
+	 * Kind of object: RTMLTelescope.
+	 */
+	private final static int KIND_TELESCOPE = 5;
+	/**
+	 * Kind of object: RTMLDevice.
+	 */
+	private final static int KIND_DEVICE = 6;
+	/**
+	 * Kind of object: RTMLTarget.
+	 */
+	private final static int KIND_TARGET = 7;
+	/**
+	 * Kind of object: RTMLObservation.
+	 */
+	private final static int KIND_OBSERVATION = 8;
+	/**
+	 * Kind of object: RTMLSchedule.
+	 */
+	private final static int KIND_SCHEDULE = 9;
+	/**
+	 * Kind of object: RTMLImageData.
+	 */
+	private final static int KIND_IMAGE_DATA = 10;
+	/**
+	 * Kind of object: RTMLScore.
+	 */
+	private final static int KIND_SCORE = 11;
+	/**
+	 * A mask of the FIELD_ bits of the document fields that changed.
+	 */
+	private int fieldMask = 0;
+	/**
+	 * A document holding the new values of the fields in fieldMask. The other fields are not used.
+	 * @see #fieldMask
+	 */
+	private RTMLDocument values = null;
+	/**
+	 * The changes to the history's entry list, or null if it is unchanged (or replaced as a whole).
+	 */
+	private ListPatch historyPatch = null;
+	/**
+	 * The changes to the scores list, or null if it is unchanged (or replaced as a whole).
+	 */
+	private ListPatch scoresPatch = null;
+	/**
+	 * The observations that changed (ObservationPatch s), in index order.
+	 */
+	private List observationPatchList = null;
+	/**
+	 * The observations appended to (or removed from the end of) the observation list, or null if the number
+	 * of observations is unchanged (or the list is replaced as a whole).
+	 */
+	private ListPatch observationListPatch = null;
+
+	/**
+	 * Constructor, used by diff and RTMLBinaryCodec.decodePatch. The patch is empty.
+	 * @see #diff
+	 * @see org.estar.rtml.RTMLBinaryCodec#decodePatch(byte[],int,int)
+	 */
+	RTMLDocumentPatch()
+	{
+		super();
+		values = new RTMLDocument();
+		observationPatchList = new Vector();
+	}
+
+	/**
+	 * Create a patch containing the differences between two documents. Neither document is changed.
+	 * @param base The base document.
+	 * @param target The target document.
+	 * @return A new patch, which when applied to the base document gives the target document.
+	 * @see #apply
+	 */
+	public static RTMLDocumentPatch diff(RTMLDocument base,RTMLDocument target)
+	{
+		RTMLDocumentPatch patch = null;
+		RTMLBinaryCodec codec = null;
+		RTMLHistory baseHistory = null;
+		RTMLHistory targetHistory = null;
+
+		patch = new RTMLDocumentPatch();
+		codec = new RTMLBinaryCodec();
+		if(sameValue(base.version,target.version) == false)
+		{
+			patch.fieldMask |= FIELD_VERSION;
+			patch.values.version = target.version;
+		}
+		if(sameValue(base.type,target.type) == false)
+		{
+			patch.fieldMask |= FIELD_TYPE;
+			patch.values.type = target.type;
+		}
+		if(sameValue(base.mode,target.mode) == false)
+		{
+			patch.fieldMask |= FIELD_MODE;
+			patch.values.mode = target.mode;
+		}
+		if(sameValue(base.uid,target.uid) == false)
+		{
+			patch.fieldMask |= FIELD_UID;
+			patch.values.uid = target.uid;
+		}
+		if(same(codec,KIND_INTELLIGENT_AGENT,base.getIntelligentAgent(),target.getIntelligentAgent()) == false)
+		{
+			patch.fieldMask |= FIELD_INTELLIGENT_AGENT;
+			patch.values.setIntelligentAgent((RTMLIntelligentAgent)copy(KIND_INTELLIGENT_AGENT,
+									  target.getIntelligentAgent()));
+		}
+		// history, entries appended if possible
+		baseHistory = base.getHistory();
+		targetHistory = target.getHistory();
+		if((baseHistory != null)&&(targetHistory != null)&&(baseHistory.entryList != null)&&
+		   (targetHistory.entryList != null))
+		{
+			patch.historyPatch = diffList(codec,KIND_HISTORY_ENTRY,baseHistory.entryList,
+						      targetHistory.entryList);
+		}
+		else if(same(codec,KIND_HISTORY,baseHistory,targetHistory) == false)
+		{
+			patch.fieldMask |= FIELD_HISTORY;
+			patch.values.setHistory((RTMLHistory)copy(KIND_HISTORY,targetHistory));
+		}
+		if(same(codec,KIND_CONTACT,base.getContact(),target.getContact()) == false)
+		{
+			patch.fieldMask |= FIELD_CONTACT;
+			patch.values.setContact((RTMLContact)copy(KIND_CONTACT,target.getContact()));
+		}
+		if(same(codec,KIND_PROJECT,base.getProject(),target.getProject()) == false)
+		{
+			patch.fieldMask |= FIELD_PROJECT;
+			patch.values.setProject((RTMLProject)copy(KIND_PROJECT,target.getProject()));
+		}
+		if(same(codec,KIND_TELESCOPE,base.getTelescope(),target.getTelescope()) == false)
+		{
+			patch.fieldMask |= FIELD_TELESCOPE;
+			patch.values.setTelescope((RTMLTelescope)copy(KIND_TELESCOPE,target.getTelescope()));
+		}
+		if(same(codec,KIND_DEVICE,base.getDevice(),target.getDevice()) == false)
+		{
+			patch.fieldMask |= FIELD_DEVICE;
+			patch.values.setDevice((RTMLDevice)copy(KIND_DEVICE,target.getDevice()));
+		}
+		if(same(codec,KIND_TARGET,base.getTarget(),target.getTarget()) == false)
+		{
+			patch.fieldMask |= FIELD_TARGET;
+			patch.values.setTarget((RTMLTarget)copy(KIND_TARGET,target.getTarget()));
+		}
+		// observations, changed in place and appended if possible
+		if((base.observationList != null)&&(target.observationList != null))
+			patch.diffObservations(codec,base.observationList,target.observationList);
+		else if((base.observationList != null)||(target.observationList != null))
+		{
+			patch.fieldMask |= FIELD_OBSERVATIONS;
+			patch.values.observationList = copyList(KIND_OBSERVATION,target.observationList,0);
+		}
+		if(sameValue(base.score,target.score) == false)
+		{
+			patch.fieldMask |= FIELD_SCORE;
+			patch.values.score = target.score;
+		}
+		// scores, appended if possible
+		if((base.scoresList != null)&&(target.scoresList != null))
+			patch.scoresPatch = diffList(codec,KIND_SCORE,base.scoresList,target.scoresList);
+		else if((base.scoresList != null)||(target.scoresList != null))
+		{
+			patch.fieldMask |= FIELD_SCORES;
+			patch.values.scoresList = copyList(KIND_SCORE,target.scoresList,0);
+		}
+		if(sameValue(base.completionTime,target.completionTime) == false)
+		{
+			patch.fieldMask |= FIELD_COMPLETION_TIME;
+			patch.values.completionTime = (Date)copy(-1,target.completionTime);
+		}
+		if(sameValue(base.errorString,target.errorString) == false)
+		{
+			patch.fieldMask |= FIELD_ERROR_STRING;
+			patch.values.errorString = target.errorString;
+		}
+		return patch;
+	}
+
+	/**
+	 * Apply the patch to a document. The document is changed in place: to keep the base document, apply the
+	 * patch to a copy of it (new RTMLDocument(base)). The patch is not changed, so it can be applied to
+	 * more than one document. The document is checked before it is changed, so if an exception is thrown the
+	 * document is unchanged.
+	 * @param d The document to apply the patch to.
+	 * @exception RTMLException Thrown if the document's history, scores, observations or image data lists
+	 *            are not the size (or not present) as they were in the base document the patch was
+	 *            created from.
+	 * @see #check
+	 */
+	public void apply(RTMLDocument d) throws RTMLException
+	{
+		ObservationPatch observationPatch = null;
+		RTMLObservation observation = null;
+
+		check(d);
+		if((fieldMask & FIELD_VERSION) != 0)
+			d.version = values.version;
+		if((fieldMask & FIELD_TYPE) != 0)
+			d.type = values.type;
+		if((fieldMask & FIELD_MODE) != 0)
+			d.mode = values.mode;
+		if((fieldMask & FIELD_UID) != 0)
+			d.uid = values.uid;
+		if((fieldMask & FIELD_INTELLIGENT_AGENT) != 0)
+		{
+			d.setIntelligentAgent((RTMLIntelligentAgent)copy(KIND_INTELLIGENT_AGENT,
+									 values.getIntelligentAgent()));
+		}
+		if((fieldMask & FIELD_HISTORY) != 0)
+			d.setHistory((RTMLHistory)copy(KIND_HISTORY,values.getHistory()));
+		if((fieldMask & FIELD_CONTACT) != 0)
+			d.setContact((RTMLContact)copy(KIND_CONTACT,values.getContact()));
+		if((fieldMask & FIELD_PROJECT) != 0)
+			d.setProject((RTMLProject)copy(KIND_PROJECT,values.getProject()));
+		if((fieldMask & FIELD_TELESCOPE) != 0)
+			d.setTelescope((RTMLTelescope)copy(KIND_TELESCOPE,values.getTelescope()));
+		if((fieldMask & FIELD_DEVICE) != 0)
+			d.setDevice((RTMLDevice)copy(KIND_DEVICE,values.getDevice()));
+		if((fieldMask & FIELD_TARGET) != 0)
+			d.setTarget((RTMLTarget)copy(KIND_TARGET,values.getTarget()));
+		if((fieldMask & FIELD_OBSERVATIONS) != 0)
+			d.observationList = copyList(KIND_OBSERVATION,values.observationList,0);
+		if((fieldMask & FIELD_SCORE) != 0)
+			d.score = values.score;
+		if((fieldMask & FIELD_SCORES) != 0)
+			d.scoresList = copyList(KIND_SCORE,values.scoresList,0);
+		if((fieldMask & FIELD_COMPLETION_TIME) != 0)
+			d.completionTime = (Date)copy(-1,values.completionTime);
+		// set directly, setErrorString also changes the document type
+		if((fieldMask & FIELD_ERROR_STRING) != 0)
+			d.errorString = values.errorString;
+		if(historyPatch != null)
+			historyPatch.apply(d.getHistory().entryList);
+		if(scoresPatch != null)
+			scoresPatch.apply(d.scoresList);
+		for(int i = 0; i < observationPatchList.size(); i++)
+		{
+			observationPatch = (ObservationPatch)(observationPatchList.get(i));
+			if((observationPatch.fieldMask & OBSERVATION_REPLACE) != 0)
+			{
+				d.observationList.set(observationPatch.index,copy(KIND_OBSERVATION,observationPatch.values));
+				continue;
+			}
+			observation = d.getObservation(observationPatch.index);
+			if((observationPatch.fieldMask & OBSERVATION_DEVICE) != 0)
+				observation.setDevice((RTMLDevice)copy(KIND_DEVICE,observationPatch.values.getDevice()));
+			if((observationPatch.fieldMask & OBSERVATION_TARGET) != 0)
+				observation.setTarget((RTMLTarget)copy(KIND_TARGET,observationPatch.values.getTarget()));
+			if((observationPatch.fieldMask & OBSERVATION_SCHEDULE) != 0)
+			{
+				observation.setSchedule((RTMLSchedule)copy(KIND_SCHEDULE,
+									   observationPatch.values.getSchedule()));
+			}
+			if(observationPatch.imageDataPatch != null)
+				observationPatch.imageDataPatch.apply(observation.getImageDataList());
+		}
+		if(observationListPatch != null)
+			observationListPatch.apply(d.observationList);
+	}
+
+	/**
+	 * Return whether the patch is empty, i.e. the base and target documents were the same.
+	 * @return true if the patch makes no changes.
+	 */
+	public boolean isEmpty()
+	{
+		return (fieldMask == 0)&&(historyPatch == null)&&(scoresPatch == null)&&
+			(observationPatchList.size() == 0)&&(observationListPatch == null);
+	}
+
+	/**
+	 * Get the mask of document fields changed (replaced as a whole) by the patch.
+	 * @return The mask, a combination of the FIELD_ bits.
+	 * @see #fieldMask
+	 * @see #FIELD_VERSION
+	 * @see #FIELD_HISTORY
+	 * @see #FIELD_OBSERVATIONS
+	 */
+	public int getFieldMask()
+	{
+		return fieldMask;
+	}
+
+	/**
+	 * Method to print out a string representation of this patch.
+	 * @see #toString(java.lang.String)
+	 */
+	public String toString()
+	{
+		return toString("");
+	}
+
+	/**
+	 * Method to print out a string representation of this patch, with a prefix.
+	 * @param prefix A string to prefix to each line of data we print out.
+	 */
+	public String toString(String prefix)
+	{
+		StringBuffer sb = null;
+		ObservationPatch observationPatch = null;
+
+		sb = new StringBuffer();
+		sb.append(prefix+"Patch: field mask 0x"+Integer.toHexString(fieldMask)+"\n");
+		if(historyPatch != null)
+			sb.append(prefix+"\tHistory: "+historyPatch+"\n");
+		if(scoresPatch != null)
+			sb.append(prefix+"\tScores: "+scoresPatch+"\n");
+		for(int i = 0; i < observationPatchList.size(); i++)
+		{
+			observationPatch = (ObservationPatch)(observationPatchList.get(i));
+			sb.append(prefix+"\tObservation "+observationPatch.index+": field mask 0x"+
+				  Integer.toHexString(observationPatch.fieldMask));
+			if(observationPatch.imageDataPatch != null)
+				sb.append(": Image Data: "+observationPatch.imageDataPatch);
+			sb.append("\n");
+		}
+		if(observationListPatch != null)
+			sb.append(prefix+"\tObservations: "+observationListPatch+"\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Write the patch to a binary codec's buffer: the field mask and the new values of the fields in it,
+	 * followed by the history, scores, observation and observation list changes. The document's
+	 * objects are written as RTMLBinaryCodec writes them in a document.
+	 * @param codec The codec to write to.
+	 * @see #readBinary
+	 * @see org.estar.rtml.RTMLBinaryCodec#encode(org.estar.rtml.RTMLDocumentPatch)
+	 */
+	void writeBinary(RTMLBinaryCodec codec)
+	{
+		ObservationPatch observationPatch = null;
+
+		codec.writeUnsignedVarInt(fieldMask);
+		if((fieldMask & FIELD_VERSION) != 0)
+			codec.writeString(values.version);
+		if((fieldMask & FIELD_TYPE) != 0)
+			codec.writeString(values.type);
+		if((fieldMask & FIELD_MODE) != 0)
+			codec.writeString(values.mode);
+		if((fieldMask & FIELD_UID) != 0)
+			codec.writeString(values.uid);
+		if((fieldMask & FIELD_INTELLIGENT_AGENT) != 0)
+			codec.writeIntelligentAgent(values.getIntelligentAgent());
+		if((fieldMask & FIELD_HISTORY) != 0)
+			codec.writeHistory(values.getHistory());
+		if((fieldMask & FIELD_CONTACT) != 0)
+			codec.writeContact(values.getContact());
+		if((fieldMask & FIELD_PROJECT) != 0)
+			codec.writeProject(values.getProject());
+		if((fieldMask & FIELD_TELESCOPE) != 0)
+			codec.writeTelescope(values.getTelescope());
+		if((fieldMask & FIELD_DEVICE) != 0)
+			codec.writeDevice(values.getDevice());
+		if((fieldMask & FIELD_TARGET) != 0)
+			codec.writeTarget(values.getTarget());
+		if((fieldMask & FIELD_OBSERVATIONS) != 0)
+			writeList(codec,KIND_OBSERVATION,values.observationList);
+		if((fieldMask & FIELD_SCORE) != 0)
+		{
+			codec.writeBoolean(values.score != null);
+			if(values.score != null)
+				codec.writeDouble(values.score.doubleValue());
+		}
+		if((fieldMask & FIELD_SCORES) != 0)
+			writeList(codec,KIND_SCORE,values.scoresList);
+		if((fieldMask & FIELD_COMPLETION_TIME) != 0)
+			codec.writeDate(values.completionTime);
+		if((fieldMask & FIELD_ERROR_STRING) != 0)
+			codec.writeString(values.errorString);
+		ListPatch.writeBinary(codec,historyPatch);
+		ListPatch.writeBinary(codec,scoresPatch);
+		codec.writeUnsignedVarInt(observationPatchList.size());
+		for(int i = 0; i < observationPatchList.size(); i++)
+		{
+			observationPatch = (ObservationPatch)(observationPatchList.get(i));
+			codec.writeUnsignedVarInt(observationPatch.index);
+			codec.writeUnsignedVarInt(observationPatch.fieldMask);
+			if((observationPatch.fieldMask & OBSERVATION_REPLACE) != 0)
+				codec.writeObservation(observationPatch.values);
+			if((observationPatch.fieldMask & OBSERVATION_DEVICE) != 0)
+				codec.writeDevice(observationPatch.values.getDevice());
+			if((observationPatch.fieldMask & OBSERVATION_TARGET) != 0)
+				codec.writeTarget(observationPatch.values.getTarget());
+			if((observationPatch.fieldMask & OBSERVATION_SCHEDULE) != 0)
+				codec.writeSchedule(observationPatch.values.getSchedule());
+			ListPatch.writeBinary(codec,observationPatch.imageDataPatch);
+		}
+		ListPatch.writeBinary(codec,observationListPatch);
+	}
+
+	/**
+	 * Read the patch from a binary codec's buffer, as written by writeBinary.
+	 * @param codec The codec to read from.
+	 * @exception RTMLException Thrown if the data is truncated or corrupt.
+	 * @exception IllegalArgumentException Thrown if a value is not accepted by the object it is read into.
+	 * @exception MalformedURLException Thrown if a URL is not valid.
+	 * @see #writeBinary
+	 * @see org.estar.rtml.RTMLBinaryCodec#decodePatch(byte[],int,int)
+	 */
+	void readBinary(RTMLBinaryCodec codec) throws RTMLException, IllegalArgumentException,
+						      MalformedURLException
+	{
+		ObservationPatch observationPatch = null;
+		int count,index;
+
+		fieldMask = codec.readUnsignedVarInt();
+		if((fieldMask & FIELD_VERSION) != 0)
+			values.version = codec.readString();
+		if((fieldMask & FIELD_TYPE) != 0)
+			values.type = codec.readString();
+		if((fieldMask & FIELD_MODE) != 0)
+			values.mode = codec.readString();
+		if((fieldMask & FIELD_UID) != 0)
+			values.uid = codec.readString();
+		if((fieldMask & FIELD_INTELLIGENT_AGENT) != 0)
+			values.setIntelligentAgent(codec.readIntelligentAgent());
+		if((fieldMask & FIELD_HISTORY) != 0)
+			values.setHistory(codec.readHistory());
+		if((fieldMask & FIELD_CONTACT) != 0)
+			values.setContact(codec.readContact());
+		if((fieldMask & FIELD_PROJECT) != 0)
+			values.setProject(codec.readProject());
+		if((fieldMask & FIELD_TELESCOPE) != 0)
+			values.setTelescope(codec.readTelescope());
+		if((fieldMask & FIELD_DEVICE) != 0)
+			values.setDevice(codec.readDevice());
+		if((fieldMask & FIELD_TARGET) != 0)
+			values.setTarget(codec.readTarget());
+		if((fieldMask & FIELD_OBSERVATIONS) != 0)
+			values.observationList = readList(codec,KIND_OBSERVATION);
+		if((fieldMask & FIELD_SCORE) != 0)
+		{
+			if(codec.readBoolean())
+				values.score = Double.valueOf(codec.readDouble());
+			else
+				values.score = null;
+		}
+		if((fieldMask & FIELD_SCORES) != 0)
+			values.scoresList = readList(codec,KIND_SCORE);
+		if((fieldMask & FIELD_COMPLETION_TIME) != 0)
+			values.completionTime = codec.readDate();
+		if((fieldMask & FIELD_ERROR_STRING) != 0)
+			values.errorString = codec.readString();
+		historyPatch = ListPatch.readBinary(codec,KIND_HISTORY_ENTRY);
+		scoresPatch = ListPatch.readBinary(codec,KIND_SCORE);
+		count = codec.readCount();
+		index = -1;
+		for(int i = 0; i < count; i++)
+		{
+			observationPatch = new ObservationPatch();
+			observationPatch.index = codec.readUnsignedVarInt();
+			if(observationPatch.index <= index)
+			{
+				throw new RTMLException(this.getClass().getName()+":readBinary:Observation patch index "+
+							observationPatch.index+" not after "+index+".");
+			}
+			index = observationPatch.index;
+			observationPatch.fieldMask = codec.readUnsignedVarInt();
+			if((observationPatch.fieldMask & OBSERVATION_REPLACE) != 0)
+				observationPatch.values = codec.readObservation();
+			if((observationPatch.fieldMask & OBSERVATION_DEVICE) != 0)
+				observationPatch.values.setDevice(codec.readDevice());
+			if((observationPatch.fieldMask & OBSERVATION_TARGET) != 0)
+				observationPatch.values.setTarget(codec.readTarget());
+			if((observationPatch.fieldMask & OBSERVATION_SCHEDULE) != 0)
+				observationPatch.values.setSchedule(codec.readSchedule());
+			observationPatch.imageDataPatch = ListPatch.readBinary(codec,KIND_IMAGE_DATA);
+			observationPatchList.add(observationPatch);
+		}
+		observationListPatch = ListPatch.readBinary(codec,KIND_OBSERVATION);
+	}
+
+	/**
+	 * Find the differences between the observations of the base and target documents. Observations at the
+	 * same index are compared, and an ObservationPatch added for each that differs. If the number of
+	 * observations differs, observationListPatch is set to append (or remove) the extra observations.
+	 * @param codec The codec used to compare objects.
+	 * @param baseList The base document's observation list.
+	 * @param targetList The target document's observation list.
+	 * @see #observationPatchList
+	 * @see #observationListPatch
+	 */
+	private void diffObservations(RTMLBinaryCodec codec,List baseList,List targetList)
+	{
+		ObservationPatch observationPatch = null;
+		RTMLObservation baseObservation = null;
+		RTMLObservation targetObservation = null;
+		int count;
+
+		count = Math.min(baseList.size(),targetList.size());
+		for(int i = 0; i < count; i++)
+		{
+			baseObservation = (RTMLObservation)(baseList.get(i));
+			targetObservation = (RTMLObservation)(targetList.get(i));
+			observationPatch = new ObservationPatch();
+			observationPatch.index = i;
+			if((baseObservation == null)||(targetObservation == null)||
+			   (baseObservation.getImageDataList() == null)||(targetObservation.getImageDataList() == null))
+			{
+				if(same(codec,KIND_OBSERVATION,baseObservation,targetObservation) == false)
+				{
+					observationPatch.fieldMask = OBSERVATION_REPLACE;
+					observationPatch.values = (RTMLObservation)copy(KIND_OBSERVATION,targetObservation);
+				}
+			}
+			else
+			{
+				if(same(codec,KIND_DEVICE,baseObservation.getDevice(),targetObservation.getDevice()) == false)
+				{
+					observationPatch.fieldMask |= OBSERVATION_DEVICE;
+					observationPatch.values.setDevice((RTMLDevice)copy(KIND_DEVICE,
+											   targetObservation.getDevice()));
+				}
+				if(same(codec,KIND_TARGET,baseObservation.getTarget(),targetObservation.getTarget()) == false)
+				{
+					observationPatch.fieldMask |= OBSERVATION_TARGET;
+					observationPatch.values.setTarget((RTMLTarget)copy(KIND_TARGET,
+											   targetObservation.getTarget()));
+				}
+				if(same(codec,KIND_SCHEDULE,baseObservation.getSchedule(),
+					targetObservation.getSchedule()) == false)
+				{
+					observationPatch.fieldMask |= OBSERVATION_SCHEDULE;
+					observationPatch.values.setSchedule((RTMLSchedule)copy(KIND_SCHEDULE,
+											targetObservation.getSchedule()));
+				}
+				observationPatch.imageDataPatch = diffList(codec,KIND_IMAGE_DATA,
+									   baseObservation.getImageDataList(),
+									   targetObservation.getImageDataList());
+			}
+			if((observationPatch.fieldMask != 0)||(observationPatch.imageDataPatch != null))
+				observationPatchList.add(observationPatch);
+		}
+		if(baseList.size() != targetList.size())
+		{
+			observationListPatch = new ListPatch();
+			observationListPatch.kind = KIND_OBSERVATION;
+			observationListPatch.baseCount = baseList.size();
+			observationListPatch.keepCount = count;
+			observationListPatch.appendList = copyList(KIND_OBSERVATION,targetList,count);
+		}
+	}
+
+	/**
+	 * Check the patch can be applied to a document: the document's lists that the patch changes are the
+	 * same size as they were in the base document.
+	 * @param d The document.
+	 * @exception RTMLException Thrown if a list is not the right size.
+	 * @see #apply
+	 */
+	private void check(RTMLDocument d) throws RTMLException
+	{
+		ObservationPatch observationPatch = null;
+		RTMLObservation observation = null;
+
+		if(historyPatch != null)
+		{
+			if(d.getHistory() == null)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":apply:The document has no history to patch.");
+			}
+			historyPatch.check(d.getHistory().entryList,"history");
+		}
+		if(scoresPatch != null)
+			scoresPatch.check(d.scoresList,"scores");
+		if(observationListPatch != null)
+			observationListPatch.check(d.observationList,"observation");
+		for(int i = 0; i < observationPatchList.size(); i++)
+		{
+			observationPatch = (ObservationPatch)(observationPatchList.get(i));
+			if((d.observationList == null)||(observationPatch.index >= d.observationList.size()))
+			{
+				throw new RTMLException(this.getClass().getName()+":apply:The document has no observation "+
+							observationPatch.index+" to patch.");
+			}
+			if((observationPatch.fieldMask & OBSERVATION_REPLACE) != 0)
+				continue;
+			observation = d.getObservation(observationPatch.index);
+			if(observation == null)
+			{
+				throw new RTMLException(this.getClass().getName()+":apply:Observation "+
+							observationPatch.index+" to patch is null.");
+			}
+			if(observationPatch.imageDataPatch != null)
+			{
+				observationPatch.imageDataPatch.check(observation.getImageDataList(),
+								      "observation "+observationPatch.index+" image data");
+			}
+		}
+	}
+
+	/**
+	 * Find the differences between two lists, as the entries common to the start of both lists, and
+	 * the target list's entries after them.
+	 * @param codec The codec used to compare entries.
+	 * @param kind The kind of entries in the lists.
+	 * @param baseList The base list.
+	 * @param targetList The target list.
+	 * @return A new list patch, or null if the lists are the same.
+	 */
+	private static ListPatch diffList(RTMLBinaryCodec codec,int kind,List baseList,List targetList)
+	{
+		ListPatch listPatch = null;
+		int common;
+
+		common = 0;
+		while((common < baseList.size())&&(common < targetList.size())&&
+		      same(codec,kind,baseList.get(common),targetList.get(common)))
+			common++;
+		if((common == baseList.size())&&(common == targetList.size()))
+			return null;
+		listPatch = new ListPatch();
+		listPatch.kind = kind;
+		listPatch.baseCount = baseList.size();
+		listPatch.keepCount = common;
+		listPatch.appendList = copyList(kind,targetList,common);
+		return listPatch;
+	}
+
+	/**
+	 * Return whether two objects of the same kind are the same: both null, or with the same
+	 * RTMLBinaryCodec encoding.
+	 * @param codec The codec to encode the objects with.
+	 * @param kind The kind of the objects.
+	 * @param o1 The first object.
+	 * @param o2 The second object.
+	 * @return true if the objects are the same.
+	 * @see #write
+	 */
+	private static boolean same(RTMLBinaryCodec codec,int kind,Object o1,Object o2)
+	{
+		int middle;
+
+		if((o1 == null)||(o2 == null))
+			return (o1 == o2);
+		if(o1 == o2)
+			return true;
+		codec.reset();
+		write(codec,kind,o1);
+		middle = codec.getPosition();
+		write(codec,kind,o2);
+		return codec.regionsEqual(0,middle,middle,codec.getPosition());
+	}
+
+	/**
+	 * Return whether two values (strings, dates or doubles) are the same: both null, or equal.
+	 * @param o1 The first value.
+	 * @param o2 The second value.
+	 * @return true if the values are the same.
+	 */
+	private static boolean sameValue(Object o1,Object o2)
+	{
+		if((o1 == null)||(o2 == null))
+			return (o1 == o2);
+		return o1.equals(o2);
+	}
+
+	/**
+	 * Write an object to a codec.
+	 * @param codec The codec.
+	 * @param kind The kind of object.
+	 * @param o The object, or null.
+	 * @exception IllegalArgumentException Thrown if the kind is not known.
+	 */
+	private static void write(RTMLBinaryCodec codec,int kind,Object o) throws IllegalArgumentException
+	{
+		switch(kind)
+		{
+			case KIND_INTELLIGENT_AGENT:
+				codec.writeIntelligentAgent((RTMLIntelligentAgent)o);
+				break;
+			case KIND_HISTORY:
+				codec.writeHistory((RTMLHistory)o);
+				break;
+			case KIND_HISTORY_ENTRY:
+				codec.writeHistoryEntry((RTMLHistoryEntry)o);
+				break;
+			case KIND_CONTACT:
+				codec.writeContact((RTMLContact)o);
+				break;
+			case KIND_PROJECT:
+				codec.writeProject((RTMLProject)o);
+				break;
+			case KIND_TELESCOPE:
+				codec.writeTelescope((RTMLTelescope)o);
+				break;
+			case KIND_DEVICE:
+				codec.writeDevice((RTMLDevice)o);
+				break;
+			case KIND_TARGET:
+				codec.writeTarget((RTMLTarget)o);
+				break;
+			case KIND_OBSERVATION:
+				codec.writeObservation((RTMLObservation)o);
+				break;
+			case KIND_SCHEDULE:
+				codec.writeSchedule((RTMLSchedule)o);
+				break;
+			case KIND_IMAGE_DATA:
+				codec.writeImageData((RTMLImageData)o);
+				break;
+			case KIND_SCORE:
+				codec.writeScore((RTMLScore)o);
+				break;
+			default:
+				throw new IllegalArgumentException("RTMLDocumentPatch:write:Unknown kind "+kind+".");
+		}
+	}
+
+	/**
+	 * Read an object from a codec. Only the kinds of object that are list entries are supported.
+	 * @param codec The codec.
+	 * @param kind The kind of object.
+	 * @return A new object, or null.
+	 * @exception RTMLException Thrown if the data is truncated or corrupt.
+	 * @exception IllegalArgumentException Thrown if the kind is not known, or a value is not accepted.
+	 * @exception MalformedURLException Thrown if a URL is not valid.
+	 */
+	private static Object read(RTMLBinaryCodec codec,int kind) throws RTMLException, IllegalArgumentException,
+									 MalformedURLException
+	{
+		switch(kind)
+		{
+			case KIND_HISTORY_ENTRY:
+				return codec.readHistoryEntry();
+			case KIND_OBSERVATION:
+				return codec.readObservation();
+			case KIND_IMAGE_DATA:
+				return codec.readImageData();
+			case KIND_SCORE:
+				return codec.readScore();
+			default:
+				throw new IllegalArgumentException("RTMLDocumentPatch:read:Unknown kind "+kind+".");
+		}
+	}
+
+	/**
+	 * Copy an object, using it's copy constructor.
+	 * @param kind The kind of object, or -1 for a Date.
+	 * @param o The object, or null.
+	 * @return A new object, or null.
+	 * @exception IllegalArgumentException Thrown if the kind is not known.
+	 */
+	private static Object copy(int kind,Object o) throws IllegalArgumentException
+	{
+		if(o == null)
+			return null;
+		switch(kind)
+		{
+			case -1:
+				return new Date(((Date)o).getTime());
+			case KIND_INTELLIGENT_AGENT:
+				return new RTMLIntelligentAgent((RTMLIntelligentAgent)o);
+			case KIND_HISTORY:
+				return new RTMLHistory((RTMLHistory)o);
+			case KIND_HISTORY_ENTRY:
+				return new RTMLHistoryEntry((RTMLHistoryEntry)o);
+			case KIND_CONTACT:
+				return new RTMLContact((RTMLContact)o);
+			case KIND_PROJECT:
+				return new RTMLProject((RTMLProject)o);
+			case KIND_TELESCOPE:
+				return new RTMLTelescope((RTMLTelescope)o);
+			case KIND_DEVICE:
+				return new RTMLDevice((RTMLDevice)o);
+			case KIND_TARGET:
+				return new RTMLTarget((RTMLTarget)o);
+			case KIND_OBSERVATION:
+				return new RTMLObservation((RTMLObservation)o);
+			case KIND_SCHEDULE:
+				return new RTMLSchedule((RTMLSchedule)o);
+			case KIND_IMAGE_DATA:
+				return new RTMLImageData((RTMLImageData)o);
+			case KIND_SCORE:
+				return new RTMLScore((RTMLScore)o);
+			default:
+				throw new IllegalArgumentException("RTMLDocumentPatch:copy:Unknown kind "+kind+".");
+		}
+	}
+
+	/**
+	 * Copy the entries of a list, from an index to the end of the list.
+	 * @param kind The kind of entries in the list.
+	 * @param l The list, or null.
+	 * @param start The index of the first entry to copy.
+	 * @return A new list containing copies of the entries, or null if the list was null.
+	 * @see #copy
+	 */
+	private static List copyList(int kind,List l,int start)
+	{
+		List newList = null;
+
+		if(l == null)
+			return null;
+		newList = new Vector(l.size()-start);
+		for(int i = start; i < l.size(); i++)
+			newList.add(copy(kind,l.get(i)));
+		return newList;
+	}
+
+	/**
+	 * Write a list (that may be null) to a codec.
+	 * @param codec The codec.
+	 * @param kind The kind of entries in the list.
+	 * @param l The list, or null.
+	 * @see #readList
+	 */
+	private static void writeList(RTMLBinaryCodec codec,int kind,List l)
+	{
+		codec.writeListCount(l);
+		if(l == null)
+			return;
+		for(int i = 0; i < l.size(); i++)
+			write(codec,kind,l.get(i));
+	}
+
+	/**
+	 * Read a list written by writeList.
+	 * @param codec The codec.
+	 * @param kind The kind of entries in the list.
+	 * @return A new list, or null.
+	 * @exception RTMLException Thrown if the data is truncated or corrupt.
+	 * @exception IllegalArgumentException Thrown if a value is not accepted.
+	 * @exception MalformedURLException Thrown if a URL is not valid.
+	 * @see #writeList
+	 */
+	private static List readList(RTMLBinaryCodec codec,int kind) throws RTMLException, IllegalArgumentException,
+									  MalformedURLException
+	{
+		List l = null;
+		int count;
+
+		count = codec.readListCount();
+		if(count < 0)
+			return null;
+		l = new Vector(count);
+		for(int i = 0; i < count; i++)
+			l.add(read(codec,kind));
+		return l;
+	}
+
+	/**
+	 * The changes to a list: the base list's first keepCount entries are kept, and the entries in
+	 * appendList appended after them.
+	 */
+	private static class ListPatch implements Serializable
+	{
+		/**
+		 * Serial version ID.
+		 */
+		static final long serialVersionUID = -2446601316385315212L;
+		/**
+		 * The kind of entries in the list.
+		 */
+		int kind = 0;
+		/**
+		 * The size of the base list.
+		 */
+		int baseCount = 0;
+		/**
+		 * The number of entries at the start of the base list that are kept.
+		 */
+		int keepCount = 0;
+		/**
+		 * The entries appended after the kept entries.
+		 */
+		List appendList = null;
+
+		/**
+		 * Check the patch can be applied to a list.
+		 * @param l The list, or null.
+		 * @param name The name of the list, used in the exception message.
+		 * @exception RTMLException Thrown if the list is null, or not the size of the base list.
+		 */
+		void check(List l,String name) throws RTMLException
+		{
+			if(l == null)
+			{
+				throw new RTMLException("RTMLDocumentPatch:apply:The document has no "+name+
+							" list to patch.");
+			}
+			if(l.size() != baseCount)
+			{
+				throw new RTMLException("RTMLDocumentPatch:apply:The document's "+name+
+							" list has "+l.size()+" entries, the patch was created from one with "+
+							baseCount+" entries.");
+			}
+		}
+
+		/**
+		 * Apply the patch to a list: entries after the first keepCount are removed, and copies of the
+		 * appended entries added.
+		 * @param l The list.
+		 */
+		void apply(List l)
+		{
+			l.subList(keepCount,l.size()).clear();
+			for(int i = 0; i < appendList.size(); i++)
+				l.add(copy(kind,appendList.get(i)));
+		}
+
+		/**
+		 * Method to print out a string representation of this list patch.
+		 */
+		public String toString()
+		{
+			return "keep "+keepCount+" of "+baseCount+", append "+appendList.size()+".";
+		}
+
+		/**
+		 * Write a list patch (which may be null) to a codec.
+		 * @param codec The codec.
+		 * @param listPatch The list patch, or null.
+		 */
+		static void writeBinary(RTMLBinaryCodec codec,ListPatch listPatch)
+		{
+			codec.writeBoolean(listPatch != null);
+			if(listPatch == null)
+				return;
+			codec.writeUnsignedVarInt(listPatch.baseCount);
+			codec.writeUnsignedVarInt(listPatch.keepCount);
+			codec.writeUnsignedVarInt(listPatch.appendList.size());
+			for(int i = 0; i < listPatch.appendList.size(); i++)
+				write(codec,listPatch.kind,listPatch.appendList.get(i));
+		}
+
+		/**
+		 * Read a list patch written by writeBinary.
+		 * @param codec The codec.
+		 * @param kind The kind of entries in the list.
+		 * @return A new list patch, or null.
+		 * @exception RTMLException Thrown if the data is truncated or corrupt.
+		 * @exception IllegalArgumentException Thrown if a value is not accepted.
+		 * @exception MalformedURLException Thrown if a URL is not valid.
+		 */
+		static ListPatch readBinary(RTMLBinaryCodec codec,int kind) throws RTMLException,
+										 IllegalArgumentException,
+										 MalformedURLException
+		{
+			ListPatch listPatch = null;
+			int count;
+
+			if(codec.readBoolean() == false)
+				return null;
+			listPatch = new ListPatch();
+			listPatch.kind = kind;
+			listPatch.baseCount = codec.readUnsignedVarInt();
+			listPatch.keepCount = codec.readUnsignedVarInt();
+			if((listPatch.baseCount < 0)||(listPatch.keepCount < 0)||
+			   (listPatch.keepCount > listPatch.baseCount))
+			{
+				throw new RTMLException("RTMLDocumentPatch:readBinary:Illegal list patch keep count "+
+							listPatch.keepCount+" for base count "+listPatch.baseCount+".");
+			}
+			count = codec.readCount();
+			listPatch.appendList = new Vector(count);
+			for(int i = 0; i < count; i++)
+				listPatch.appendList.add(read(codec,kind));
+			return listPatch;
+		}
+	}
+
+	/**
+	 * The changes to an observation: it's new device, target and schedule (those in fieldMask), and the
+	 * changes to it's image data list.
+	 */
+	private static class ObservationPatch implements Serializable
+	{
+		/**
+		 * Serial version ID.
+		 */
+		static final long serialVersionUID = 7390518764213318590L;
+		/**
+		 * The index of the observation in the observation list.
+		 */
+		int index = 0;
+		/**
+		 * A mask of the OBSERVATION_ bits of the observation fields that changed.
+		 */
+		int fieldMask = 0;
+		/**
+		 * An observation holding the new values of the fields in fieldMask, or the replacement
+		 * observation (which may be null) if fieldMask is OBSERVATION_REPLACE.
+		 */
+		RTMLObservation values = new RTMLObservation();
+		/**
+		 * The changes to the image data list, or null if it is unchanged.
+		 */
+		ListPatch imageDataPatch = null;
+	}
+}
@@ -0,0 +1,539 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLDocumentSnapshot.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class is an immutable snapshot of an RTMLDocument. Snapshots are intended for pipelines where each
+ * hop derives a new document from the one it received (adds a history entry, changes the mode, and passes
+ * it on): a new snapshot is derived with an RTMLDocumentBuilder, and shares all the parts of the document
+ * it does not change (device, target, observations and their schedules and image data, etc) with the
+ * snapshot it was derived from, so deriving a snapshot costs in proportion to what changed rather than the
+ * size of the document.
+ * <p>To keep this safe the shared objects are never exposed: the get methods for parts of the document return
+ * copies, and toDocument returns a mutable deep copy of the whole document. A snapshot can be written as XML
+ * (write) or encoded (encode) without copying it.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLDocumentBuilder
+ * @see org.estar.rtml.RTMLDocument
+ */
+public class RTMLDocumentSnapshot implements Serializable
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Serial version ID. Fixed as these documents can be used as parameters in RMI calls across JVMs.
+	 */
+	static final long serialVersionUID = -5108532770913126741L;
+	/**
+	 * The document. Parts of this document may be shared with other snapshots and builders, so it, and
+	 * the objects it contains, must never be modified or returned.
+	 */
+	private RTMLDocument document = null;
+	/**
+	 * The fingerprint of the document, computed when first asked for, as the document never changes.
+	 * @see #getFingerprint
+	 */
+	private RTMLDocumentFingerprint fingerprint = null;
+
+	/**
+	 * Constructor, used by RTMLDocumentBuilder and valueOf. The document is not copied: the caller must not
+	 * modify it (or any object it contains) after this call.
+	 * @param d The document.
+	 * @see #document
+	 */
+	RTMLDocumentSnapshot(RTMLDocument d)
+	{
+		super();
+		document = d;
+	}
+
+	/**
+	 * Return a snapshot of a document. The document is deep copied (once), so later changes to it do not
+	 * change the snapshot.
+	 * @param d The document.
+	 * @return A new snapshot.
+	 * @see org.estar.rtml.RTMLDocument#RTMLDocument(org.estar.rtml.RTMLDocument)
+	 */
+	public static RTMLDocumentSnapshot valueOf(RTMLDocument d)
+	{
+		return new RTMLDocumentSnapshot(new RTMLDocument(d));
+	}
+
+	/**
+	 * Return a builder, initialised with this snapshot, which can be used to derive a new snapshot.
+	 * @return A new builder.
+	 * @see org.estar.rtml.RTMLDocumentBuilder
+	 */
+	public RTMLDocumentBuilder builder()
+	{
+		return new RTMLDocumentBuilder(this);
+	}
+
+	/**
+	 * Return a mutable deep copy of the document.
+	 * @return A new document.
+	 * @see org.estar.rtml.RTMLDocument#RTMLDocument(org.estar.rtml.RTMLDocument)
+	 */
+	public RTMLDocument toDocument()
+	{
+		return new RTMLDocument(document);
+	}
+
+	/**
+	 * Get the document's RTML version.
+	 * @return The version.
+	 * @see org.estar.rtml.RTMLDocument#getVersion
+	 */
+	public String getVersion()
+	{
+		return document.getVersion();
+	}
+
+	/**
+	 * Get the document's type (RTML 2.2).
+	 * @return The type.
+	 * @see org.estar.rtml.RTMLDocument#getType
+	 */
+	public String getType()
+	{
+		return document.getType();
+	}
+
+	/**
+	 * Get the document's mode (RTML 3.1a).
+	 * @return The mode.
+	 * @see org.estar.rtml.RTMLDocument#getMode
+	 */
+	public String getMode()
+	{
+		return document.getMode();
+	}
+
+	/**
+	 * Get the Unique ID of the document.
+	 * @return The uid.
+	 * @see org.estar.rtml.RTMLDocument#getUId
+	 */
+	public String getUId()
+	{
+		return document.getUId();
+	}
+
+	/**
+	 * Is this document a score request document?
+	 * @return true if the document is a score request document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isScoreRequest
+	 */
+	public boolean isScoreRequest()
+	{
+		return document.isScoreRequest();
+	}
+
+	/**
+	 * Is this document a reject document?
+	 * @return true if the document is a reject document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isReject
+	 */
+	public boolean isReject()
+	{
+		return document.isReject();
+	}
+
+	/**
+	 * Is this document a score reply document?
+	 * @return true if the document is a score reply document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isScoreReply
+	 */
+	public boolean isScoreReply()
+	{
+		return document.isScoreReply();
+	}
+
+	/**
+	 * Is this document an observation request document?
+	 * @return true if the document is an observation request document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isRequest
+	 */
+	public boolean isRequest()
+	{
+		return document.isRequest();
+	}
+
+	/**
+	 * Is this document a request confirmation document?
+	 * @return true if the document is a request confirmation document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isRequestConfirm
+	 */
+	public boolean isRequestConfirm()
+	{
+		return document.isRequestConfirm();
+	}
+
+	/**
+	 * Is this document an observation update document?
+	 * @return true if the document is an observation update document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isUpdate
+	 */
+	public boolean isUpdate()
+	{
+		return document.isUpdate();
+	}
+
+	/**
+	 * Is this document a fail document?
+	 * @return true if the document is a fail document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isFail
+	 */
+	public boolean isFail()
+	{
+		return document.isFail();
+	}
+
+	/**
+	 * Is this document an abort document?
+	 * @return true if the document is an abort document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isAbort
+	 */
+	public boolean isAbort()
+	{
+		return document.isAbort();
+	}
+
+	/**
+	 * Is this document an incomplete document?
+	 * @return true if the document is an incomplete document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isIncomplete
+	 */
+	public boolean isIncomplete()
+	{
+		return document.isIncomplete();
+	}
+
+	/**
+	 * Is this document a complete document?
+	 * @return true if the document is a complete document, false otherwise.
+	 * @see org.estar.rtml.RTMLDocument#isComplete
+	 */
+	public boolean isComplete()
+	{
+		return document.isComplete();
+	}
+
+	/**
+	 * Get a copy of the document's intelligent agent.
+	 * @return A new copy of the intelligent agent, or null if the document has no intelligent agent.
+	 * @see org.estar.rtml.RTMLDocument#getIntelligentAgent
+	 */
+	public RTMLIntelligentAgent getIntelligentAgent()
+	{
+		if(document.getIntelligentAgent() == null)
+			return null;
+		return new RTMLIntelligentAgent(document.getIntelligentAgent());
+	}
+
+	/**
+	 * Get a copy of the document's history.
+	 * @return A new copy of the history, or null if the document has no history.
+	 * @see org.estar.rtml.RTMLDocument#getHistory
+	 */
+	public RTMLHistory getHistory()
+	{
+		if(document.getHistory() == null)
+			return null;
+		return new RTMLHistory(document.getHistory());
+	}
+
+	/**
+	 * Get a copy of the document's contact.
+	 * @return A new copy of the contact, or null if the document has no contact.
+	 * @see org.estar.rtml.RTMLDocument#getContact
+	 */
+	public RTMLContact getContact()
+	{
+		if(document.getContact() == null)
+			return null;
+		return new RTMLContact(document.getContact());
+	}
+
+	/**
+	 * Get a copy of the document's project.
+	 * @return A new copy of the project, or null if the document has no project.
+	 * @see org.estar.rtml.RTMLDocument#getProject
+	 */
+	public RTMLProject getProject()
+	{
+		if(document.getProject() == null)
+			return null;
+		return new RTMLProject(document.getProject());
+	}
+
+	/**
+	 * Get a copy of the document's telescope.
+	 * @return A new copy of the telescope, or null if the document has no telescope.
+	 * @see org.estar.rtml.RTMLDocument#getTelescope
+	 */
+	public RTMLTelescope getTelescope()
+	{
+		if(document.getTelescope() == null)
+			return null;
+		return new RTMLTelescope(document.getTelescope());
+	}
+
+	/**
+	 * Get a copy of the document's device.
+	 * @return A new copy of the device, or null if the document has no device.
+	 * @see org.estar.rtml.RTMLDocument#getDevice
+	 */
+	public RTMLDevice getDevice()
+	{
+		if(document.getDevice() == null)
+			return null;
+		return new RTMLDevice(document.getDevice());
+	}
+
+	/**
+	 * Get a copy of the document's target.
+	 * @return A new copy of the target, or null if the document has no target.
+	 * @see org.estar.rtml.RTMLDocument#getTarget
+	 */
+	public RTMLTarget getTarget()
+	{
+		if(document.getTarget() == null)
+			return null;
+		return new RTMLTarget(document.getTarget());
+	}
+
+	/**
+	 * Get the number of entries in the document's history.
+	 * @return The number of entries.
+	 * @see org.estar.rtml.RTMLDocument#getHistoryEntryCount
+	 */
+	public int getHistoryEntryCount()
+	{
+		return document.getHistoryEntryCount();
+	}
+
+	/**
+	 * Get the number of observations in the document.
+	 * @return The number of observations.
+	 * @see org.estar.rtml.RTMLDocument#getObservationListCount
+	 */
+	public int getObservationListCount()
+	{
+		if(document.observationList == null)
+			return 0;
+		return document.getObservationListCount();
+	}
+
+	/**
+	 * Get a copy of one of the document's observations.
+	 * @param index The index of the observation.
+	 * @return A new copy of the observation (or null if the observation in the list is null).
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 * @see org.estar.rtml.RTMLDocument#getObservation
+	 */
+	public RTMLObservation getObservation(int index) throws IndexOutOfBoundsException
+	{
+		RTMLObservation observation = null;
+
+		if(document.observationList == null)
+			throw new IndexOutOfBoundsException(this.getClass().getName()+":getObservation:No observations.");
+		observation = document.getObservation(index);
+		if(observation == null)
+			return null;
+		return new RTMLObservation(observation);
+	}
+
+	/**
+	 * Get the document's overall score.
+	 * @return The score, or null if it has not been set. Double is immutable, so the score is not copied.
+	 * @see org.estar.rtml.RTMLDocument#getScore()
+	 */
+	public Double getScore()
+	{
+		return document.getScore();
+	}
+
+	/**
+	 * Get the number of scores in the document's scores list.
+	 * @return The number of scores.
+	 * @see org.estar.rtml.RTMLDocument#getScoresListCount
+	 */
+	public int getScoresListCount()
+	{
+		if(document.scoresList == null)
+			return 0;
+		return document.getScoresListCount();
+	}
+
+	/**
+	 * Get a copy of one of the document's scores.
+	 * @param index The index of the score.
+	 * @return A new copy of the score (or null if the score in the list is null).
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 * @see org.estar.rtml.RTMLDocument#getScore(int)
+	 */
+	public RTMLScore getScore(int index) throws IndexOutOfBoundsException
+	{
+		RTMLScore score = null;
+
+		if(document.scoresList == null)
+			throw new IndexOutOfBoundsException(this.getClass().getName()+":getScore:No scores.");
+		score = document.getScore(index);
+		if(score == null)
+			return null;
+		return new RTMLScore(score);
+	}
+
+	/**
+	 * Get the document's completion time.
+	 * @return A copy of the completion time, or null if it has not been set.
+	 * @see org.estar.rtml.RTMLDocument#getCompletionTime
+	 */
+	public Date getCompletionTime()
+	{
+		if(document.getCompletionTime() == null)
+			return null;
+		return new Date(document.getCompletionTime().getTime());
+	}
+
+	/**
+	 * Get the document's error string.
+	 * @return The error string.
+	 * @see org.estar.rtml.RTMLDocument#getErrorString
+	 */
+	public String getErrorString()
+	{
+		return document.getErrorString();
+	}
+
+	/**
+	 * Write the document as RTML, without copying it. See RTMLCreate.write.
+	 * @param create The RTMLCreate instance, configured with the output options to use.
+	 * @param w The writer to write the document to.
+	 * @exception RTMLException Thrown if writing the document fails.
+	 * @see org.estar.rtml.RTMLCreate#write(org.estar.rtml.RTMLDocument,java.io.Writer)
+	 */
+	public void write(RTMLCreate create,Writer w) throws RTMLException
+	{
+		create.write(document,w);
+	}
+
+	/**
+	 * Write the document as RTML to an output stream, without copying it. See RTMLCreate.write.
+	 * @param create The RTMLCreate instance, configured with the output options to use.
+	 * @param os The output stream to write the document to.
+	 * @exception RTMLException Thrown if writing the document fails.
+	 * @see org.estar.rtml.RTMLCreate#write(org.estar.rtml.RTMLDocument,java.io.OutputStream)
+	 */
+	public void write(RTMLCreate create,OutputStream os) throws RTMLException
+	{
+		create.write(document,os);
+	}
+
+	/**
+	 * Encode the document using a binary codec, without copying it.
+	 * @param codec The codec to use.
+	 * @return A new byte array containing the encoded document.
+	 * @exception RTMLException Thrown if encoding the document fails.
+	 * @see org.estar.rtml.RTMLBinaryCodec#encode(org.estar.rtml.RTMLDocument)
+	 */
+	public byte[] encode(RTMLBinaryCodec codec) throws RTMLException
+	{
+		return codec.encode(document);
+	}
+
+	/**
+	 * Get the fingerprint of the document. As the snapshot is immutable, the fingerprint is only computed
+	 * once.
+	 * @return The fingerprint.
+	 * @exception RTMLException Thrown if the document cannot be encoded.
+	 * @see #fingerprint
+	 * @see org.estar.rtml.RTMLDocument#getFingerprint
+	 */
+	public synchronized RTMLDocumentFingerprint getFingerprint() throws RTMLException
+	{
+		if(fingerprint == null)
+			fingerprint = document.getFingerprint();
+		return fingerprint;
+	}
+
+	/**
+	 * Test whether one snapshot is equal to another: the documents are equal.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see org.estar.rtml.RTMLDocument#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLDocumentSnapshot) == false)
+			return false;
+		return document.equals(((RTMLDocumentSnapshot)obj).document);
+	}
+
+	/**
+	 * Return a hash code for the snapshot, the document's hash code.
+	 * @return The hash code.
+	 * @see org.estar.rtml.RTMLDocument#hashCode
+	 */
+	public int hashCode()
+	{
+		return document.hashCode();
+	}
+
+	/**
+	 * Get the document this snapshot wraps, for use by RTMLDocumentBuilder. The returned document
+	 * must not be modified.
+	 * @return The document.
+	 * @see #document
+	 */
+	RTMLDocument getDocument()
+	{
+		return document;
+	}
+
+	/**
+	 * Method to print out a string representation of this snapshot.
+	 * @see org.estar.rtml.RTMLDocument#toString()
+	 */
+	public String toString()
+	{
+		return document.toString();
+	}
+
+	/**
+	 * Method to print out a string representation of this snapshot, with a prefix.
+	 * @param prefix A string to prefix to each line of data we print out.
+	 * @see org.estar.rtml.RTMLDocument#toString(java.lang.String)
+	 */
+	public String toString(String prefix)
+	{
+		return document.toString(prefix);
+	}
+}
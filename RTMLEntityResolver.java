@@ -0,0 +1,595 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLEntityResolver.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.util.*;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+
+/**
+ * This class resolves the external entities (DTDs) and schemas referenced by RTML documents
+ * from in-memory copies, so nothing is fetched over the network during parsing or validation.
+ * It is installed as the EntityResolver of RTMLParser's and RTMLCreate's DocumentBuilders,
+ * as the LSResourceResolver of the SchemaFactory used to compile the RTML 3.1a Schema,
+ * and as the XMLResolver of RTMLStreamParser's StAX input factory.
+ * <p>
+ * Resolution uses a catalog, mapping system IDs (URLs) to a location the grammar is read from.
+ * The location is either the name of a resource bundled in the org.estar.rtml package
+ * (e.g. "rtml2.2.dtd", copied from the docs directory into the jar), or a URL (e.g. "file:/etc/rtml/rtml2.2.dtd").
+ * Each entry is read once, and the contents cached. DTDs (locations ending in ".dtd") are cached
+ * without their comments (see RTMLGrammarCache.compactDTD). The default catalog contains:
+ * <ul>
+ * <li>RTMLCreate.DEFAULT_DOCTYPE_SYSTEM_ID - rtml2.2.dtd
+ * <li>The RTML 3.1a schema URLs - RTML-nightly.xsd
+ * <li>The IVOA STC v1.20 schemas imported by RTML-nightly.xsd - minimal stand-ins (stc-v1.20-stub.xsd,
+ *     coords-v1.20-stub.xsd, region-v1.20-stub.xsd), which declare only the STC types RTML uses.
+ * </ul>
+ * Extra entries can be added with addCatalogEntry, or loaded from a catalog file with loadCatalog.
+ * If the system property <b>org.estar.rtml.catalog</b> is set, the catalog file it names is loaded
+ * when this class is loaded.
+ * <p>
+ * System IDs that are local (file: or jar: URLs) and not in the catalog are opened by the parser as normal.
+ * Any other system ID that is not in the catalog is refused (an exception is thrown), rather than fetched.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParser
+ * @see org.estar.rtml.RTMLCreate
+ * @see org.estar.rtml.RTMLGrammarCache
+ * @see org.estar.rtml.RTMLStreamParser
+ */
+public class RTMLEntityResolver implements EntityResolver, LSResourceResolver, XMLResolver
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * System property, which if set is the filename of a catalog file loaded when this class is loaded.
+	 * @see #loadCatalog
+	 */
+	public final static String CATALOG_PROPERTY = "org.estar.rtml.catalog";
+	/**
+	 * The RTML 3.1a Schema URL used in older documents.
+	 */
+	public final static String RTML31_OLD_SCHEMA_URL = "http://monet.uni-sw.gwdg.de/XML/RTML/schemas/RTML-nightly.xsd";
+	/**
+	 * The single instance of this class.
+	 */
+	private static RTMLEntityResolver instance = new RTMLEntityResolver();
+	/**
+	 * A map of system IDs to the location (bundled resource name or URL) the entity is read from.
+	 * @see #addCatalogEntry
+	 */
+	private static Map catalogMap = new HashMap();
+	/**
+	 * A map of system IDs to the contents of the entity (a byte array), for entities that have been read.
+	 * @see #getContents
+	 */
+	private static Map contentsMap = new HashMap();
+
+	/**
+	 * Static initialisation. The default catalog is setup, and the catalog file named by
+	 * the CATALOG_PROPERTY system property loaded if it is set.
+	 * @see #addCatalogEntry
+	 * @see #loadCatalog
+	 * @see #CATALOG_PROPERTY
+	 */
+	static
+	{
+		String catalogFilename = null;
+
+		addCatalogEntry(RTMLCreate.DEFAULT_DOCTYPE_SYSTEM_ID,"rtml2.2.dtd");
+		addCatalogEntry(RTML31Create.getSchemaURLString(),"RTML-nightly.xsd");
+		addCatalogEntry(RTML31_OLD_SCHEMA_URL,"RTML-nightly.xsd");
+		addCatalogEntry("https://www.ivoa.net/xml/STC/stc-v1.20.xsd","stc-v1.20-stub.xsd");
+		addCatalogEntry("https://www.ivoa.net/xml/STC/STCcoords/coords-v1.20.xsd","coords-v1.20-stub.xsd");
+		addCatalogEntry("https://www.ivoa.net/xml/STC/STCregion/region-v1.20.xsd","region-v1.20-stub.xsd");
+		addCatalogEntry(RTML31Create.EPHEMERIS_TRACK_SCHEMA_URL_STRING,"rtml-ephemeris-track-v1.0.xsd");
+		catalogFilename = System.getProperty(CATALOG_PROPERTY);
+		if(catalogFilename != null)
+		{
+			try
+			{
+				loadCatalog(new File(catalogFilename));
+			}
+			catch(IOException e)
+			{
+				System.err.println("RTMLEntityResolver:Failed to load catalog "+catalogFilename+":"+e);
+			}
+		}
+	}
+
+	/**
+	 * Constructor. Private, use getInstance.
+	 * @see #getInstance
+	 */
+	private RTMLEntityResolver()
+	{
+		super();
+	}
+
+	/**
+	 * Return the single instance of this class, which can be set as the entity resolver of a DocumentBuilder,
+	 * or the resource resolver of a SchemaFactory.
+	 * @return The instance.
+	 * @see #instance
+	 */
+	public static RTMLEntityResolver getInstance()
+	{
+		return instance;
+	}
+
+	/**
+	 * Add an entry to the catalog. Any cached contents for the system ID are discarded.
+	 * @param systemId The system ID (URL) to resolve.
+	 * @param location Where to read the entity from, either the name of a resource bundled in the
+	 *        org.estar.rtml package, or a URL.
+	 * @see #catalogMap
+	 * @see #contentsMap
+	 */
+	public static void addCatalogEntry(String systemId,String location)
+	{
+		synchronized(catalogMap)
+		{
+			catalogMap.put(systemId,location);
+			contentsMap.remove(systemId);
+		}
+	}
+
+	/**
+	 * Load catalog entries from a file. Each line of the file contains a system ID and a location,
+	 * separated by whitespace. Blank lines, and lines starting with '#', are ignored.
+	 * A relative filename location is taken as relative to the directory containing the catalog file.
+	 * @param file The catalog file.
+	 * @exception IOException Thrown if the file cannot be read, or a line is malformed.
+	 * @see #addCatalogEntry
+	 */
+	public static void loadCatalog(File file) throws IOException
+	{
+		BufferedReader reader = null;
+		StringTokenizer st = null;
+		String line = null;
+		String systemId = null;
+		String location = null;
+		int lineNumber = 0;
+
+		reader = new BufferedReader(new FileReader(file));
+		try
+		{
+			while((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				line = line.trim();
+				if((line.length() == 0)||line.startsWith("#"))
+					continue;
+				st = new StringTokenizer(line);
+				if(st.countTokens() != 2)
+				{
+					throw new IOException("RTMLEntityResolver:loadCatalog:"+file+":line "+lineNumber+
+							      ":Illegal catalog entry:"+line);
+				}
+				systemId = st.nextToken();
+				location = st.nextToken();
+				if((location.indexOf(':') < 0)&&(new File(location).isAbsolute() == false))
+					location = new File(file.getAbsoluteFile().getParentFile(),location).toURI().toString();
+				else if(location.indexOf(':') < 0)
+					location = new File(location).toURI().toString();
+				addCatalogEntry(systemId,location);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Return whether the system ID has an entry in the catalog.
+	 * @param systemId The system ID (URL).
+	 * @return true if the system ID is in the catalog.
+	 * @see #catalogMap
+	 */
+	public static boolean isInCatalog(String systemId)
+	{
+		synchronized(catalogMap)
+		{
+			return catalogMap.containsKey(systemId);
+		}
+	}
+
+	/**
+	 * Return whether the system ID refers to a local resource (a file: or jar: URL, or a relative filename),
+	 * that can be opened without network access.
+	 * @param systemId The system ID (URL).
+	 * @return true if the system ID is local.
+	 */
+	public static boolean isLocal(String systemId)
+	{
+		if(systemId == null)
+			return true;
+		if(systemId.startsWith("file:")||systemId.startsWith("jar:"))
+			return true;
+		// no scheme, i.e. a filename
+		return (systemId.indexOf(':') < 0)||(new File(systemId).isAbsolute());
+	}
+
+	/**
+	 * Return the contents of the entity with the specified system ID, reading it from the catalog location
+	 * if this is the first call for that system ID.
+	 * @param systemId The system ID (URL) of the entity.
+	 * @return A byte array containing the entity, or null if the system ID is not in the catalog.
+	 * @exception IOException Thrown if the entity cannot be read from it's catalog location.
+	 * @see #catalogMap
+	 * @see #contentsMap
+	 */
+	public static byte[] getContents(String systemId) throws IOException
+	{
+		ByteArrayOutputStream bos = null;
+		InputStream is = null;
+		String location = null;
+		byte buffer[] = null;
+		byte contents[] = null;
+		int length;
+
+		synchronized(catalogMap)
+		{
+			contents = (byte[])(contentsMap.get(systemId));
+			location = (String)(catalogMap.get(systemId));
+		}
+		if((contents != null)||(location == null))
+			return contents;
+		// read outside the lock, if two threads do this at once the second copy replaces the first
+		if(location.indexOf(':') < 0)
+		{
+			is = RTMLEntityResolver.class.getResourceAsStream(location);
+			if(is == null)
+			{
+				throw new IOException("RTMLEntityResolver:getContents:Bundled resource "+location+
+						      " for "+systemId+" not found.");
+			}
+		}
+		else
+			is = new URL(location).openStream();
+		bos = new ByteArrayOutputStream();
+		buffer = new byte[8192];
+		try
+		{
+			while((length = is.read(buffer)) > 0)
+				bos.write(buffer,0,length);
+		}
+		finally
+		{
+			is.close();
+		}
+		contents = bos.toByteArray();
+		// DTDs are re-scanned for every document validated against them, so cache them without comments
+		if(location.endsWith(".dtd"))
+			contents = RTMLGrammarCache.compactDTD(contents);
+		synchronized(catalogMap)
+		{
+			contentsMap.put(systemId,contents);
+		}
+		return contents;
+	}
+
+	/**
+	 * Clear the cached contents. Entities are re-read from their catalog locations on next use.
+	 * @see #contentsMap
+	 */
+	public static void clear()
+	{
+		synchronized(catalogMap)
+		{
+			contentsMap.clear();
+		}
+	}
+
+	/**
+	 * Resolve a (possibly relative) system ID against a base URI.
+	 * @param systemId The system ID.
+	 * @param baseURI The base URI, or null.
+	 * @return The absolute system ID, or the original system ID if it cannot be resolved.
+	 */
+	protected static String resolveSystemId(String systemId,String baseURI)
+	{
+		if((systemId == null)||(baseURI == null))
+			return systemId;
+		try
+		{
+			if(new URI(systemId).isAbsolute())
+				return systemId;
+			return new URI(baseURI).resolve(systemId).toString();
+		}
+		catch(URISyntaxException e)
+		{
+			return systemId;
+		}
+	}
+
+	/**
+	 * EntityResolver method. If the system ID is in the catalog, the cached contents are returned.
+	 * If the system ID is local, null is returned and the parser opens the entity itself.
+	 * Otherwise an exception is thrown, as the entity would have to be fetched over the network.
+	 * @param publicId The public identifier of the external entity.
+	 * @param systemId The system identifier of the external entity.
+	 * @return An input source to read the entity from, or null.
+	 * @exception SAXException Thrown if the system ID is not in the catalog and is not local.
+	 * @exception IOException Thrown if the entity cannot be read from it's catalog location.
+	 * @see #getContents
+	 * @see #isLocal
+	 */
+	public InputSource resolveEntity(String publicId,String systemId) throws SAXException, IOException
+	{
+		InputSource inputSource = null;
+		byte contents[] = null;
+
+		contents = getContents(systemId);
+		if(contents == null)
+		{
+			if(isLocal(systemId))
+				return null;
+			throw new SAXException(this.getClass().getName()+":resolveEntity:"+systemId+
+					       " is not in the catalog, and will not be fetched from the network.");
+		}
+		inputSource = new InputSource(new ByteArrayInputStream(contents));
+		inputSource.setPublicId(publicId);
+		inputSource.setSystemId(systemId);
+		return inputSource;
+	}
+
+	/**
+	 * LSResourceResolver method, used when compiling schemas. The system ID is resolved against the base URI.
+	 * If the result is in the catalog, the cached contents are returned.
+	 * If it is local, null is returned and the schema factory opens the resource itself.
+	 * Otherwise an exception is thrown, as the resource would have to be fetched over the network.
+	 * @param type The type of the resource.
+	 * @param namespaceURI The namespace of the resource.
+	 * @param publicId The public identifier of the resource.
+	 * @param systemId The system identifier of the resource.
+	 * @param baseURI The base URI of the resource that references this one.
+	 * @return An LSInput to read the resource from, or null.
+	 * @exception IllegalStateException Thrown if the system ID is not in the catalog and is not local,
+	 *            or the resource cannot be read from it's catalog location.
+	 * @see #resolveSystemId
+	 * @see #getContents
+	 * @see #isLocal
+	 * @see RTMLEntityResolver.Input
+	 */
+	public LSInput resolveResource(String type,String namespaceURI,String publicId,String systemId,
+				       String baseURI) throws IllegalStateException
+	{
+		String absoluteSystemId = null;
+		byte contents[] = null;
+
+		// imports with no schemaLocation
+		if(systemId == null)
+			return null;
+		absoluteSystemId = resolveSystemId(systemId,baseURI);
+		try
+		{
+			contents = getContents(absoluteSystemId);
+		}
+		catch(IOException e)
+		{
+			throw new IllegalStateException(this.getClass().getName()+":resolveResource:"+
+							absoluteSystemId+":"+e);
+		}
+		if(contents == null)
+		{
+			if(isLocal(absoluteSystemId))
+				return null;
+			throw new IllegalStateException(this.getClass().getName()+":resolveResource:"+absoluteSystemId+
+							" is not in the catalog, and will not be fetched from the network.");
+		}
+		return new Input(publicId,absoluteSystemId,baseURI,contents);
+	}
+
+	/**
+	 * XMLResolver method, used by the StAX stream parser to resolve external entities.
+	 * The system ID is resolved against the base URI. If the result is in the catalog, the cached contents
+	 * are returned. If it is local, null is returned and the stream parser opens the entity itself.
+	 * Otherwise an exception is thrown, as the entity would have to be fetched over the network.
+	 * @param publicId The public identifier of the external entity.
+	 * @param systemId The system identifier of the external entity.
+	 * @param baseURI The base URI of the entity that references this one.
+	 * @param namespace The namespace of the entity.
+	 * @return An input stream to read the entity from, or null.
+	 * @exception XMLStreamException Thrown if the system ID is not in the catalog and is not local,
+	 *            or the entity cannot be read from it's catalog location.
+	 * @see #resolveSystemId
+	 * @see #getContents
+	 * @see #isLocal
+	 */
+	public Object resolveEntity(String publicId,String systemId,String baseURI,String namespace)
+		throws XMLStreamException
+	{
+		String absoluteSystemId = null;
+		byte contents[] = null;
+
+		absoluteSystemId = resolveSystemId(systemId,baseURI);
+		try
+		{
+			contents = getContents(absoluteSystemId);
+		}
+		catch(IOException e)
+		{
+			throw new XMLStreamException(this.getClass().getName()+":resolveEntity:"+
+						     absoluteSystemId+":"+e,e);
+		}
+		if(contents == null)
+		{
+			if(isLocal(absoluteSystemId))
+				return null;
+			throw new XMLStreamException(this.getClass().getName()+":resolveEntity:"+absoluteSystemId+
+						     " is not in the catalog, and will not be fetched from the network.");
+		}
+		return new ByteArrayInputStream(contents);
+	}
+
+	/**
+	 * Simple implementation of LSInput, returned by resolveResource, that reads a resource's cached contents.
+	 * @see RTMLEntityResolver#resolveResource
+	 */
+	public static class Input implements LSInput
+	{
+		/**
+		 * The public ID.
+		 */
+		private String publicId = null;
+		/**
+		 * The system ID.
+		 */
+		private String systemId = null;
+		/**
+		 * The base URI.
+		 */
+		private String baseURI = null;
+		/**
+		 * The encoding, or null to detect it from the byte stream.
+		 */
+		private String encoding = null;
+		/**
+		 * The byte stream.
+		 */
+		private InputStream byteStream = null;
+		/**
+		 * The character stream.
+		 */
+		private Reader characterStream = null;
+		/**
+		 * The string data.
+		 */
+		private String stringData = null;
+		/**
+		 * Whether the text is certified.
+		 */
+		private boolean certifiedText = false;
+
+		/**
+		 * Constructor.
+		 * @param publicId The public ID.
+		 * @param systemId The system ID.
+		 * @param baseURI The base URI.
+		 * @param contents The resource's contents, read from a byte stream.
+		 */
+		public Input(String publicId,String systemId,String baseURI,byte contents[])
+		{
+			super();
+			this.publicId = publicId;
+			this.systemId = systemId;
+			this.baseURI = baseURI;
+			this.byteStream = new ByteArrayInputStream(contents);
+		}
+
+		public Reader getCharacterStream()
+		{
+			return characterStream;
+		}
+
+		public void setCharacterStream(Reader characterStream)
+		{
+			this.characterStream = characterStream;
+		}
+
+		public InputStream getByteStream()
+		{
+			return byteStream;
+		}
+
+		public void setByteStream(InputStream byteStream)
+		{
+			this.byteStream = byteStream;
+		}
+
+		public String getStringData()
+		{
+			return stringData;
+		}
+
+		public void setStringData(String stringData)
+		{
+			this.stringData = stringData;
+		}
+
+		public String getSystemId()
+		{
+			return systemId;
+		}
+
+		public void setSystemId(String systemId)
+		{
+			this.systemId = systemId;
+		}
+
+		public String getPublicId()
+		{
+			return publicId;
+		}
+
+		public void setPublicId(String publicId)
+		{
+			this.publicId = publicId;
+		}
+
+		public String getBaseURI()
+		{
+			return baseURI;
+		}
+
+		public void setBaseURI(String baseURI)
+		{
+			this.baseURI = baseURI;
+		}
+
+		public String getEncoding()
+		{
+			return encoding;
+		}
+
+		public void setEncoding(String encoding)
+		{
+			this.encoding = encoding;
+		}
+
+		public boolean getCertifiedText()
+		{
+			return certifiedText;
+		}
+
+		public void setCertifiedText(boolean certifiedText)
+		{
+			this.certifiedText = certifiedText;
+		}
+	}
+}
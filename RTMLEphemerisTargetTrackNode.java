@@ -36,8 +36,10 @@ public class RTMLEphemerisTargetTrackNode extends RTMLAttributes implements Seri
 	public final static String EPHEMERIS_DATE_FORMAT = new String("yyyy-MMM-dd HH:mm");
 	/**
 	 * Serial version ID. Fixed as these documents can be used as parameters in RMI calls across JVMs.
+	 * This is the value computed for the class before the ID was fixed, so previously serialized nodes
+	 * can still be deserialized.
 	 */
-	//	static final long serialVersionUID = ;
+	static final long serialVersionUID = -5363506854914080314L;
 	/** 
 	 * The timestamp for this node.
 	 */
@@ -70,6 +72,23 @@ public class RTMLEphemerisTargetTrackNode extends RTMLAttributes implements Seri
 		super();
 	}
 
+	/**
+	 * Copy constructor. The RA and Dec are also copied.
+	 * @param node The node to copy.
+	 * @see RTMLTarget#copyRA
+	 * @see RTMLTarget#copyDec
+	 */
+	public RTMLEphemerisTargetTrackNode(RTMLEphemerisTargetTrackNode node)
+	{
+		super(node);
+		if(node.timestamp != null)
+			timestamp = new Date(node.timestamp.getTime());
+		ra = RTMLTarget.copyRA(node.ra);
+		dec = RTMLTarget.copyDec(node.dec);
+		trackRateRA = node.trackRateRA;
+		trackRateDec = node.trackRateDec;
+	}
+
 
 	/**
 	 * Set the timestamp of this track node.
@@ -286,7 +305,8 @@ public class RTMLEphemerisTargetTrackNode extends RTMLAttributes implements Seri
 								   ":",e);
 			}
 			// track rates are apparently optional
-			if(stringTokenizer.countTokens() >= 10)
+			// countTokens returns the number of tokens remaining, i.e. after the 8 already read
+			if(stringTokenizer.countTokens() >= 2)
 			{
 				String trackRateRAString = (String) stringTokenizer.nextElement();
 				try
@@ -326,6 +346,47 @@ public class RTMLEphemerisTargetTrackNode extends RTMLAttributes implements Seri
                 }
 	}
 
+	/**
+	 * Test whether one ephemeris target track node is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #timestamp
+	 * @see #ra
+	 * @see #dec
+	 * @see #trackRateRA
+	 * @see #trackRateDec
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLEphemerisTargetTrackNode other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLEphemerisTargetTrackNode)obj;
+		return RTMLEquality.same(timestamp,other.timestamp)&&RTMLEquality.same(ra,other.ra)&&
+			RTMLEquality.same(dec,other.dec)&&RTMLEquality.same(trackRateRA,other.trackRateRA)&&
+			RTMLEquality.same(trackRateDec,other.trackRateDec);
+	}
+
+	/**
+	 * Return a hash code for the ephemeris target track node, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,timestamp);
+		hash = RTMLEquality.hash(hash,ra);
+		hash = RTMLEquality.hash(hash,dec);
+		hash = RTMLEquality.hash(hash,trackRateRA);
+		hash = RTMLEquality.hash(hash,trackRateDec);
+		return hash;
+	}
+
 	/**
 	 * Print out the data contained in this instance of RTMLEphemerisTargetTrackNode as a 
 	 * formatted ephemeris target line as follows:
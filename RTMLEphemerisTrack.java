@@ -0,0 +1,1462 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLEphemerisTrack.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.util.*;
+import org.estar.astrometry.*;
+
+/**
+ * This class holds an ephemeris target track, a time ordered list of track nodes, as returned by
+ * RTMLTarget.getEphemerisTrack. Rather than holding an RTMLEphemerisTargetTrackNode (and it's Date, RA and Dec)
+ * per node, the track is held in parallel primitive arrays, indexed by node number in timestamp order.
+ * <p>
+ * The class implements SortedSet (ordered by RTMLTarget.NodeComparator, i.e. by timestamp), so it can be used
+ * wherever the SortedSet of RTMLEphemerisTargetTrackNode was used. Note that:
+ * <ul>
+ * <li>The RTMLEphemerisTargetTrackNode s returned (by the iterator, first, last etc) are created on demand.
+ *     Changing them does not change the track. Use remove and add to change a node.
+ * <li>headSet, tailSet and subSet return views of the relevant part of the track, backed by the track
+ *     (as for a TreeSet): changes to the view change the track, and vice versa.
+ * <li>equals and hashCode compare the nodes (timestamps, positions and track rates), so two tracks are equal
+ *     exactly when sameTrack is true. A track is also equal to any other Set containing equal nodes
+ *     (e.g. a TreeSet), with the same hash code. trackHashCode is a faster hash code consistent with sameTrack,
+ *     that does not create any nodes.
+ * <li>Every node must have a timestamp, RA and Dec: add throws an IllegalArgumentException (leaving the
+ *     track unchanged) for a node without one.
+ * </ul>
+ * The position of the target at any time within the track can be found using getPosition, which finds the
+ * bracketing nodes with a binary search and interpolates between them.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLTarget#getEphemerisTrack
+ * @see org.estar.rtml.RTMLEphemerisTargetTrackNode
+ */
+public class RTMLEphemerisTrack extends AbstractSet implements SortedSet, Serializable
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Serial version ID. Fixed as these documents can be used as parameters in RMI calls across JVMs.
+	 */
+	static final long serialVersionUID = -2306139584911452370L;
+	/**
+	 * Interpolation method: linear interpolation of RA and Dec between the bracketing nodes.
+	 * @see #getPosition
+	 */
+	public final static int INTERPOLATE_LINEAR = 0;
+	/**
+	 * Interpolation method: cubic (Hermite) interpolation between the bracketing nodes, using the track rates
+	 * at each node as the rate of change of position. The RA track rate is taken to be dRA*cos(Dec),
+	 * as supplied by JPL Horizons. Where either bracketing node has no track rates (both are zero),
+	 * linear interpolation is used.
+	 * @see #getPosition
+	 */
+	public final static int INTERPOLATE_RATE = 1;
+	/**
+	 * The initial capacity of the arrays.
+	 */
+	private final static int DEFAULT_CAPACITY = 16;
+	/**
+	 * The abbreviated English month names, used when writing a node's timestamp.
+	 * @see #TIMESTAMP_FORMATTER
+	 */
+	private final static String MONTH_NAME_LIST[] = {"Jan","Feb","Mar","Apr","May","Jun","Jul","Aug","Sep",
+							 "Oct","Nov","Dec"};
+	/**
+	 * Formatter used to write the date, hours and minutes of a node's timestamp, "yyyy-MMM-dd HH:mm".
+	 * @see #appendLine
+	 * @see #createTimestampFormatter
+	 */
+	private final static DateTimeFormatter TIMESTAMP_FORMATTER = createTimestampFormatter();
+	/**
+	 * Formatter used to write the seconds of a node's timestamp, if they are non-zero.
+	 * @see #appendLine
+	 */
+	private final static DateTimeFormatter SECOND_FORMATTER = DateTimeFormatter.ofPattern(":ss",Locale.ROOT);
+	/**
+	 * Formatter used to write the seconds and milliseconds of a node's timestamp, if the milliseconds are non-zero.
+	 * @see #appendLine
+	 */
+	private final static DateTimeFormatter MILLISECOND_FORMATTER = DateTimeFormatter.ofPattern(":ss.SSS",
+												   Locale.ROOT);
+	/**
+	 * The number of nodes in the track.
+	 */
+	private int size = 0;
+	/**
+	 * The timestamp of each node, in milliseconds since the epoch, in ascending order.
+	 */
+	private long timestampList[] = null;
+	/**
+	 * The RA of each node, as hours*60+minutes.
+	 */
+	private int raMinuteList[] = null;
+	/**
+	 * The seconds field of the RA of each node.
+	 */
+	private double raSecondList[] = null;
+	/**
+	 * The declination of each node, as degrees*60+arcminutes (unsigned).
+	 */
+	private int decMinuteList[] = null;
+	/**
+	 * The arcseconds field of the declination of each node.
+	 */
+	private double decSecondList[] = null;
+	/**
+	 * Whether the declination of each node is negative. Held separately so "-00 30 00" is preserved.
+	 */
+	private boolean decNegativeList[] = null;
+	/**
+	 * The RA track rate of each node, in arcsec/hour.
+	 */
+	private double trackRateRAList[] = null;
+	/**
+	 * The Dec track rate of each node, in arcsec/hour.
+	 */
+	private double trackRateDecList[] = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public RTMLEphemerisTrack()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 * @param capacity The number of nodes to allocate space for.
+	 */
+	public RTMLEphemerisTrack(int capacity)
+	{
+		super();
+		allocate(Math.max(capacity,1));
+	}
+
+	/**
+	 * Constructor. The track contains the RTMLEphemerisTargetTrackNode s in the collection. As with
+	 * RTMLTarget.addEphemerisTrackNode, only the first node with a particular timestamp is added.
+	 * @param c A collection of RTMLEphemerisTargetTrackNode.
+	 * @exception IllegalArgumentException Thrown if a node has no timestamp, RA or Dec.
+	 * @see #addAll
+	 * @see #add
+	 */
+	public RTMLEphemerisTrack(Collection c) throws IllegalArgumentException
+	{
+		this(c.size());
+		addAll(c);
+	}
+
+	/**
+	 * Copy constructor. The new track contains a copy of the nodes in the specified track.
+	 * @param track The track to copy.
+	 */
+	public RTMLEphemerisTrack(RTMLEphemerisTrack track)
+	{
+		this(track.size);
+		System.arraycopy(track.timestampList,0,timestampList,0,track.size);
+		System.arraycopy(track.raMinuteList,0,raMinuteList,0,track.size);
+		System.arraycopy(track.raSecondList,0,raSecondList,0,track.size);
+		System.arraycopy(track.decMinuteList,0,decMinuteList,0,track.size);
+		System.arraycopy(track.decSecondList,0,decSecondList,0,track.size);
+		System.arraycopy(track.decNegativeList,0,decNegativeList,0,track.size);
+		System.arraycopy(track.trackRateRAList,0,trackRateRAList,0,track.size);
+		System.arraycopy(track.trackRateDecList,0,trackRateDecList,0,track.size);
+		size = track.size;
+	}
+
+	/**
+	 * Return the number of nodes in the track.
+	 * @return The number of nodes.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Remove all the nodes from the track.
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * Add a node to the track. If the track already contains a node with the same timestamp, the track
+	 * is not changed. Adding a node after the last node (the usual case when building a track) does not
+	 * need to move any other nodes. The node is checked before the track is changed, so if it is illegal
+	 * the track is left unchanged.
+	 * @param o An instance of RTMLEphemerisTargetTrackNode.
+	 * @return true if the node was added, false if a node with the same timestamp was already in the track.
+	 * @exception ClassCastException Thrown if o is not an RTMLEphemerisTargetTrackNode.
+	 * @exception IllegalArgumentException Thrown if the node has no timestamp, RA or Dec.
+	 * @see #search
+	 * @see #checkNode
+	 */
+	public boolean add(Object o) throws ClassCastException, IllegalArgumentException
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+		long timestamp;
+		int index;
+
+		node = (RTMLEphemerisTargetTrackNode)o;
+		checkNode(node);
+		timestamp = node.getTimestamp().getTime();
+		if((size == 0) || (timestamp > timestampList[size-1]))
+			index = size;
+		else
+		{
+			index = search(timestamp);
+			if(index >= 0)
+				return false;
+			index = -(index+1);
+		}
+		if(size == timestampList.length)
+			allocate(size*2);
+		if(index < size)
+		{
+			System.arraycopy(timestampList,index,timestampList,index+1,size-index);
+			System.arraycopy(raMinuteList,index,raMinuteList,index+1,size-index);
+			System.arraycopy(raSecondList,index,raSecondList,index+1,size-index);
+			System.arraycopy(decMinuteList,index,decMinuteList,index+1,size-index);
+			System.arraycopy(decSecondList,index,decSecondList,index+1,size-index);
+			System.arraycopy(decNegativeList,index,decNegativeList,index+1,size-index);
+			System.arraycopy(trackRateRAList,index,trackRateRAList,index+1,size-index);
+			System.arraycopy(trackRateDecList,index,trackRateDecList,index+1,size-index);
+		}
+		set(index,node);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Remove the node with the same timestamp as the specified node from the track.
+	 * @param o An instance of RTMLEphemerisTargetTrackNode.
+	 * @return true if a node was removed.
+	 * @see #search
+	 */
+	public boolean remove(Object o)
+	{
+		int index;
+
+		if((o instanceof RTMLEphemerisTargetTrackNode) == false)
+			return false;
+		index = search(((RTMLEphemerisTargetTrackNode)o).getTimestamp().getTime());
+		if(index < 0)
+			return false;
+		removeIndex(index);
+		return true;
+	}
+
+	/**
+	 * Return whether the track contains a node with the same timestamp as the specified node.
+	 * @param o An instance of RTMLEphemerisTargetTrackNode.
+	 * @return true if the track contains a node with the same timestamp.
+	 * @see #search
+	 */
+	public boolean contains(Object o)
+	{
+		if((o instanceof RTMLEphemerisTargetTrackNode) == false)
+			return false;
+		return (search(((RTMLEphemerisTargetTrackNode)o).getTimestamp().getTime()) >= 0);
+	}
+
+	/**
+	 * Return an iterator over the nodes in the track, in timestamp order. The iterator creates a new
+	 * RTMLEphemerisTargetTrackNode for each node, and supports remove.
+	 * @return An iterator.
+	 */
+	public Iterator iterator()
+	{
+		return new Iterator()
+		{
+			private int index = 0;
+			private int lastIndex = -1;
+
+			public boolean hasNext()
+			{
+				return (index < size);
+			}
+
+			public Object next()
+			{
+				if(index >= size)
+					throw new NoSuchElementException();
+				lastIndex = index;
+				return getNode(index++);
+			}
+
+			public void remove()
+			{
+				if(lastIndex < 0)
+					throw new IllegalStateException();
+				removeIndex(lastIndex);
+				index = lastIndex;
+				lastIndex = -1;
+			}
+		};
+	}
+
+	/**
+	 * Return the comparator the track is ordered by.
+	 * @return A new instance of RTMLTarget.NodeComparator.
+	 * @see org.estar.rtml.RTMLTarget.NodeComparator
+	 */
+	public Comparator comparator()
+	{
+		return new RTMLTarget.NodeComparator();
+	}
+
+	/**
+	 * Test whether this track is equal to another object. Another RTMLEphemerisTrack is compared with sameTrack.
+	 * Any other Set is equal if it contains the same number of nodes, and each of them is equal
+	 * (RTMLEphemerisTargetTrackNode.equals, which compares the positions and track rates) to this track's node
+	 * with the same timestamp.
+	 * @param obj The object to compare with.
+	 * @return true if the object is an equal track, or Set of nodes, and false otherwise.
+	 * @see #sameTrack
+	 * @see #sameNodes
+	 * @see #hashCode
+	 */
+	public boolean equals(Object obj)
+	{
+		if(obj == this)
+			return true;
+		if(obj instanceof RTMLEphemerisTrack)
+			return sameTrack((RTMLEphemerisTrack)obj);
+		if((obj instanceof Set) == false)
+			return false;
+		return sameNodes((Set)obj,0,size);
+	}
+
+	/**
+	 * Return a hash code for the track, consistent with equals (and sameTrack). As required by the Set contract,
+	 * this is the sum of the hash codes of the nodes, so a node is created for each node in the track.
+	 * @return The hash code.
+	 * @see #equals
+	 * @see #nodeHashCode
+	 * @see #trackHashCode
+	 */
+	public int hashCode()
+	{
+		return nodeHashCode(0,size);
+	}
+
+	/**
+	 * Test whether this track contains the same nodes as another, with the same positions and track rates.
+	 * This is used by equals to compare tracks, without creating any nodes.
+	 * @param other The other track, or null.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #equals
+	 * @see #trackHashCode
+	 */
+	public boolean sameTrack(RTMLEphemerisTrack other)
+	{
+		if(other == this)
+			return true;
+		if(other == null)
+			return false;
+		if(other.size != size)
+			return false;
+		for(int i = 0; i < size; i++)
+		{
+			if((timestampList[i] != other.timestampList[i])||(raMinuteList[i] != other.raMinuteList[i])||
+			   (RTMLEquality.same(raSecondList[i],other.raSecondList[i]) == false)||
+			   (decMinuteList[i] != other.decMinuteList[i])||
+			   (RTMLEquality.same(decSecondList[i],other.decSecondList[i]) == false)||
+			   (decNegativeList[i] != other.decNegativeList[i])||
+			   (RTMLEquality.same(trackRateRAList[i],other.trackRateRAList[i]) == false)||
+			   (RTMLEquality.same(trackRateDecList[i],other.trackRateDecList[i]) == false))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return a hash code for the contents of the track, consistent with sameTrack (and equals). Unlike hashCode,
+	 * no nodes are created, but the value is different from hashCode's.
+	 * @return The hash code.
+	 * @see #sameTrack
+	 */
+	public int trackHashCode()
+	{
+		int hash;
+
+		hash = size;
+		for(int i = 0; i < size; i++)
+		{
+			hash = RTMLEquality.hash(hash,(int)(timestampList[i]^(timestampList[i] >>> 32)));
+			hash = RTMLEquality.hash(hash,raMinuteList[i]);
+			hash = RTMLEquality.hash(hash,raSecondList[i]);
+			hash = RTMLEquality.hash(hash,decMinuteList[i]);
+			hash = RTMLEquality.hash(hash,decSecondList[i]);
+			hash = RTMLEquality.hash(hash,decNegativeList[i]);
+			hash = RTMLEquality.hash(hash,trackRateRAList[i]);
+			hash = RTMLEquality.hash(hash,trackRateDecList[i]);
+		}
+		return hash;
+	}
+
+	/**
+	 * Return the first (earliest) node.
+	 * @return The first node.
+	 * @exception NoSuchElementException Thrown if the track is empty.
+	 */
+	public Object first() throws NoSuchElementException
+	{
+		if(size == 0)
+			throw new NoSuchElementException(this.getClass().getName()+":first:Track is empty.");
+		return getNode(0);
+	}
+
+	/**
+	 * Return the last (latest) node.
+	 * @return The last node.
+	 * @exception NoSuchElementException Thrown if the track is empty.
+	 */
+	public Object last() throws NoSuchElementException
+	{
+		if(size == 0)
+			throw new NoSuchElementException(this.getClass().getName()+":last:Track is empty.");
+		return getNode(size-1);
+	}
+
+	/**
+	 * Return a view of the part of the track from fromElement's timestamp (inclusive) to toElement's
+	 * timestamp (exclusive). The view is backed by this track, so changes to either are seen in both.
+	 * @param fromElement An RTMLEphemerisTargetTrackNode with the start timestamp.
+	 * @param toElement An RTMLEphemerisTargetTrackNode with the end timestamp.
+	 * @return A view of the track.
+	 * @exception ClassCastException Thrown if an element is not an RTMLEphemerisTargetTrackNode.
+	 * @exception NullPointerException Thrown if an element, or it's timestamp, is null.
+	 * @exception IllegalArgumentException Thrown if fromElement's timestamp is after toElement's.
+	 */
+	public SortedSet subSet(Object fromElement,Object toElement) throws ClassCastException,
+		NullPointerException, IllegalArgumentException
+	{
+		long fromTimestamp,toTimestamp;
+
+		fromTimestamp = getNodeTimestamp(fromElement);
+		toTimestamp = getNodeTimestamp(toElement);
+		if(fromTimestamp > toTimestamp)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":subSet:From timestamp "+
+							   fromTimestamp+" is after to timestamp "+toTimestamp+".");
+		}
+		return new TrackView(true,fromTimestamp,true,toTimestamp);
+	}
+
+	/**
+	 * Return a view of the part of the track before toElement's timestamp. The view is backed by this track,
+	 * so changes to either are seen in both.
+	 * @param toElement An RTMLEphemerisTargetTrackNode with the end timestamp.
+	 * @return A view of the track.
+	 * @exception ClassCastException Thrown if toElement is not an RTMLEphemerisTargetTrackNode.
+	 * @exception NullPointerException Thrown if toElement, or it's timestamp, is null.
+	 */
+	public SortedSet headSet(Object toElement) throws ClassCastException, NullPointerException
+	{
+		return new TrackView(false,0,true,getNodeTimestamp(toElement));
+	}
+
+	/**
+	 * Return a view of the part of the track from fromElement's timestamp (inclusive). The view is backed
+	 * by this track, so changes to either are seen in both.
+	 * @param fromElement An RTMLEphemerisTargetTrackNode with the start timestamp.
+	 * @return A view of the track.
+	 * @exception ClassCastException Thrown if fromElement is not an RTMLEphemerisTargetTrackNode.
+	 * @exception NullPointerException Thrown if fromElement, or it's timestamp, is null.
+	 */
+	public SortedSet tailSet(Object fromElement) throws ClassCastException, NullPointerException
+	{
+		return new TrackView(true,getNodeTimestamp(fromElement),false,0);
+	}
+
+	/**
+	 * Get the timestamp of a node.
+	 * @param index The node index, 0..size()-1.
+	 * @return The timestamp, in milliseconds since the epoch.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 */
+	public long getTimestamp(int index) throws IndexOutOfBoundsException
+	{
+		checkIndex(index);
+		return timestampList[index];
+	}
+
+	/**
+	 * Get a node.
+	 * @param index The node index, 0..size()-1.
+	 * @return A new instance of RTMLEphemerisTargetTrackNode, containing the node's data.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 */
+	public RTMLEphemerisTargetTrackNode getNode(int index) throws IndexOutOfBoundsException
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+		RA ra = null;
+		Dec dec = null;
+
+		checkIndex(index);
+		node = new RTMLEphemerisTargetTrackNode();
+		node.setTimestamp(new Date(timestampList[index]));
+		ra = new RA();
+		ra.setHours(raMinuteList[index]/60);
+		ra.setMinutes(raMinuteList[index]%60);
+		ra.setSeconds(raSecondList[index]);
+		node.setRA(ra);
+		dec = new Dec();
+		dec.setNegative(decNegativeList[index]);
+		dec.setDegrees(decMinuteList[index]/60);
+		dec.setMinutes(decMinuteList[index]%60);
+		dec.setSeconds(decSecondList[index]);
+		node.setDec(dec);
+		node.setTrackRateRA(trackRateRAList[index]);
+		node.setTrackRateDec(trackRateDecList[index]);
+		return node;
+	}
+
+	/**
+	 * Get the RA of a node.
+	 * @param index The node index, 0..size()-1.
+	 * @return The RA, in decimal hours.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 */
+	public double getRAHours(int index) throws IndexOutOfBoundsException
+	{
+		checkIndex(index);
+		return (raMinuteList[index]/60.0)+(raSecondList[index]/3600.0);
+	}
+
+	/**
+	 * Get the declination of a node.
+	 * @param index The node index, 0..size()-1.
+	 * @return The declination, in decimal degrees.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 */
+	public double getDecDegrees(int index) throws IndexOutOfBoundsException
+	{
+		double degrees;
+
+		checkIndex(index);
+		degrees = (decMinuteList[index]/60.0)+(decSecondList[index]/3600.0);
+		if(decNegativeList[index])
+			return -degrees;
+		return degrees;
+	}
+
+	/**
+	 * Get the RA track rate of a node.
+	 * @param index The node index, 0..size()-1.
+	 * @return The RA track rate, in arcsec/hour.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 */
+	public double getTrackRateRA(int index) throws IndexOutOfBoundsException
+	{
+		checkIndex(index);
+		return trackRateRAList[index];
+	}
+
+	/**
+	 * Get the Dec track rate of a node.
+	 * @param index The node index, 0..size()-1.
+	 * @return The Dec track rate, in arcsec/hour.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 */
+	public double getTrackRateDec(int index) throws IndexOutOfBoundsException
+	{
+		checkIndex(index);
+		return trackRateDecList[index];
+	}
+
+	/**
+	 * Append a node to a string buffer, as an ephemeris line of the form parsed by RTMLEphemerisTrackParser:
+	 * "yyyy-MMM-dd HH:mm[:ss] RAh RAm RAs Decd Decm Decs RATrackRate DecTrackRate". The timestamp is in UTC,
+	 * the seconds are only written if they are non-zero. No line terminator is appended.
+	 * @param sb The string buffer to append to.
+	 * @param index The node index, 0..size()-1.
+	 * @exception IndexOutOfBoundsException Thrown if the index is out of range.
+	 * @see #TIMESTAMP_FORMATTER
+	 * @see #SECOND_FORMATTER
+	 * @see #MILLISECOND_FORMATTER
+	 * @see org.estar.rtml.RTMLEphemerisTrackParser
+	 */
+	public void appendLine(StringBuffer sb,int index) throws IndexOutOfBoundsException
+	{
+		LocalDateTime localDateTime = null;
+		long millis;
+
+		checkIndex(index);
+		// timestamp
+		millis = timestampList[index];
+		localDateTime = LocalDateTime.ofEpochSecond(Math.floorDiv(millis,1000L),
+							    (int)Math.floorMod(millis,1000L)*1000000,ZoneOffset.UTC);
+		TIMESTAMP_FORMATTER.formatTo(localDateTime,sb);
+		if(Math.floorMod(millis,1000L) != 0)
+			MILLISECOND_FORMATTER.formatTo(localDateTime,sb);
+		else if(localDateTime.getSecond() != 0)
+			SECOND_FORMATTER.formatTo(localDateTime,sb);
+		// RA
+		sb.append(' ');
+		sb.append(raMinuteList[index]/60);
+		sb.append(' ');
+		sb.append(raMinuteList[index]%60);
+		sb.append(' ');
+		sb.append(raSecondList[index]);
+		// Dec
+		sb.append(' ');
+		sb.append(decNegativeList[index] ? '-' : '+');
+		sb.append(decMinuteList[index]/60);
+		sb.append(' ');
+		sb.append(decMinuteList[index]%60);
+		sb.append(' ');
+		sb.append(decSecondList[index]);
+		// track rates
+		sb.append(' ');
+		sb.append(trackRateRAList[index]);
+		sb.append(' ');
+		sb.append(trackRateDecList[index]);
+	}
+
+	/**
+	 * Write the track to a writer, one node per line (each terminated by a newline), in the format
+	 * described in appendLine. Nothing is written for an empty track.
+	 * @param writer The writer to write the track to.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #appendLine
+	 */
+	public void write(Writer writer) throws IOException
+	{
+		StringBuffer sb = null;
+
+		sb = new StringBuffer(80);
+		for(int i = 0; i < size; i++)
+		{
+			sb.setLength(0);
+			appendLine(sb,i);
+			sb.append('\n');
+			writer.write(sb.toString());
+		}
+	}
+
+	/**
+	 * Write the track to a binary codec's buffer, column by column: the number of nodes, the first timestamp,
+	 * then the difference between each subsequent timestamp and the previous one (as the timestamps are
+	 * in ascending order these are positive, and for a regularly spaced track short), then each of the other
+	 * columns in turn.
+	 * @param codec The codec to write to.
+	 * @see #readBinary
+	 * @see org.estar.rtml.RTMLBinaryCodec
+	 */
+	void writeBinary(RTMLBinaryCodec codec)
+	{
+		codec.writeUnsignedVarInt(size);
+		if(size == 0)
+			return;
+		codec.writeLong(timestampList[0]);
+		for(int i = 1; i < size; i++)
+			codec.writeUnsignedVarLong(timestampList[i]-timestampList[i-1]);
+		for(int i = 0; i < size; i++)
+			codec.writeVarInt(raMinuteList[i]);
+		for(int i = 0; i < size; i++)
+			codec.writeDouble(raSecondList[i]);
+		for(int i = 0; i < size; i++)
+			codec.writeVarInt(decMinuteList[i]);
+		for(int i = 0; i < size; i++)
+			codec.writeDouble(decSecondList[i]);
+		for(int i = 0; i < size; i++)
+			codec.writeBoolean(decNegativeList[i]);
+		for(int i = 0; i < size; i++)
+			codec.writeDouble(trackRateRAList[i]);
+		for(int i = 0; i < size; i++)
+			codec.writeDouble(trackRateDecList[i]);
+	}
+
+	/**
+	 * Replace the contents of the track with a track read from a binary codec, as written by writeBinary.
+	 * @param codec The codec to read from.
+	 * @exception RTMLException Thrown if the data is truncated, or the timestamps are not in
+	 *            strictly ascending order.
+	 * @see #writeBinary
+	 * @see org.estar.rtml.RTMLBinaryCodec
+	 */
+	void readBinary(RTMLBinaryCodec codec) throws RTMLException
+	{
+		long delta;
+		int count;
+
+		// each node is at least 35 bytes, so a corrupt count fails before a huge allocation
+		count = codec.readUnsignedVarInt();
+		codec.checkRemaining((long)count*35L);
+		size = 0;
+		allocate(Math.max(count,1));
+		if(count == 0)
+			return;
+		timestampList[0] = codec.readLong();
+		for(int i = 1; i < count; i++)
+		{
+			delta = codec.readUnsignedVarLong();
+			if(delta <= 0)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":readBinary:Timestamps not in ascending order at node "+i+".");
+			}
+			timestampList[i] = timestampList[i-1]+delta;
+		}
+		for(int i = 0; i < count; i++)
+			raMinuteList[i] = codec.readVarInt();
+		for(int i = 0; i < count; i++)
+			raSecondList[i] = codec.readDouble();
+		for(int i = 0; i < count; i++)
+			decMinuteList[i] = codec.readVarInt();
+		for(int i = 0; i < count; i++)
+			decSecondList[i] = codec.readDouble();
+		for(int i = 0; i < count; i++)
+			decNegativeList[i] = codec.readBoolean();
+		for(int i = 0; i < count; i++)
+			trackRateRAList[i] = codec.readDouble();
+		for(int i = 0; i < count; i++)
+			trackRateDecList[i] = codec.readDouble();
+		size = count;
+	}
+
+	/**
+	 * Find the node at or immediately before the specified time, using a binary search.
+	 * @param timestamp The time, in milliseconds since the epoch.
+	 * @return The index of the last node with a timestamp at or before the time, or -1 if the time
+	 *         is before the start of the track.
+	 * @see #search
+	 */
+	public int getFloorIndex(long timestamp)
+	{
+		int index;
+
+		index = search(timestamp);
+		if(index >= 0)
+			return index;
+		return -(index+1)-1;
+	}
+
+	/**
+	 * Return the position of the target at the specified time, interpolated between the nodes either
+	 * side of the time.
+	 * @param d The time.
+	 * @param method The interpolation method, one of INTERPOLATE_LINEAR or INTERPOLATE_RATE.
+	 * @return A new instance of RTMLEphemerisTargetTrackNode, with the specified timestamp and the
+	 *         interpolated position and track rates.
+	 * @exception IllegalArgumentException Thrown if the time is outside the track, or the method is illegal.
+	 * @see #getFloorIndex
+	 * @see #INTERPOLATE_LINEAR
+	 * @see #INTERPOLATE_RATE
+	 */
+	public RTMLEphemerisTargetTrackNode getPosition(Date d,int method) throws IllegalArgumentException
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+		RA ra = null;
+		Dec dec = null;
+		long timestamp;
+		double fraction,intervalHours,ra0,ra1,raDelta,dec0,dec1,cosDec,raHours,decDegrees;
+		double raRate0,raRate1,decRate0,decRate1,trackRateRA,trackRateDec;
+		double h00,h10,h01,h11;
+		int index;
+
+		if((method != INTERPOLATE_LINEAR) && (method != INTERPOLATE_RATE))
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":getPosition:Illegal interpolation method:"+method);
+		}
+		timestamp = d.getTime();
+		index = getFloorIndex(timestamp);
+		if((index < 0) || ((index == size-1) && (timestamp > timestampList[index])))
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":getPosition:Time "+d+
+							   " is outside the ephemeris track.");
+		}
+		if(timestamp == timestampList[index])
+			return getNode(index);
+		fraction = ((double)(timestamp-timestampList[index]))/
+			((double)(timestampList[index+1]-timestampList[index]));
+		intervalHours = ((double)(timestampList[index+1]-timestampList[index]))/3600000.0;
+		ra0 = getRAHours(index);
+		ra1 = getRAHours(index+1);
+		// take the shortest way round, if the track crosses 0h
+		raDelta = ra1-ra0;
+		if(raDelta > 12.0)
+			raDelta -= 24.0;
+		else if(raDelta < -12.0)
+			raDelta += 24.0;
+		dec0 = getDecDegrees(index);
+		dec1 = getDecDegrees(index+1);
+		trackRateRA = trackRateRAList[index]+(fraction*(trackRateRAList[index+1]-trackRateRAList[index]));
+		trackRateDec = trackRateDecList[index]+(fraction*(trackRateDecList[index+1]-trackRateDecList[index]));
+		if((method == INTERPOLATE_RATE) && hasTrackRates(index) && hasTrackRates(index+1))
+		{
+			// rates at each end, in the same units as the position (hours or degrees), per interval
+			cosDec = Math.cos(Math.toRadians(dec0));
+			raRate0 = (trackRateRAList[index]/(15.0*3600.0*Math.max(cosDec,1.0e-6)))*intervalHours;
+			cosDec = Math.cos(Math.toRadians(dec1));
+			raRate1 = (trackRateRAList[index+1]/(15.0*3600.0*Math.max(cosDec,1.0e-6)))*intervalHours;
+			decRate0 = (trackRateDecList[index]/3600.0)*intervalHours;
+			decRate1 = (trackRateDecList[index+1]/3600.0)*intervalHours;
+			// cubic Hermite basis functions
+			h00 = (2.0*fraction*fraction*fraction)-(3.0*fraction*fraction)+1.0;
+			h10 = (fraction*fraction*fraction)-(2.0*fraction*fraction)+fraction;
+			h01 = (-2.0*fraction*fraction*fraction)+(3.0*fraction*fraction);
+			h11 = (fraction*fraction*fraction)-(fraction*fraction);
+			raHours = ra0+(h10*raRate0)+(h01*raDelta)+(h11*raRate1);
+			decDegrees = (h00*dec0)+(h10*decRate0)+(h01*dec1)+(h11*decRate1);
+		}
+		else
+		{
+			raHours = ra0+(fraction*raDelta);
+			decDegrees = dec0+(fraction*(dec1-dec0));
+		}
+		// normalise RA into 0..24h
+		raHours = raHours-(24.0*Math.floor(raHours/24.0));
+		node = new RTMLEphemerisTargetTrackNode();
+		node.setTimestamp(new Date(timestamp));
+		ra = new RA();
+		ra.setHours((int)Math.floor(raHours));
+		raHours = (raHours-Math.floor(raHours))*60.0;
+		ra.setMinutes((int)Math.floor(raHours));
+		ra.setSeconds((raHours-Math.floor(raHours))*60.0);
+		node.setRA(ra);
+		dec = new Dec();
+		dec.setNegative(decDegrees < 0.0);
+		decDegrees = Math.abs(decDegrees);
+		dec.setDegrees((int)Math.floor(decDegrees));
+		decDegrees = (decDegrees-Math.floor(decDegrees))*60.0;
+		dec.setMinutes((int)Math.floor(decDegrees));
+		dec.setSeconds((decDegrees-Math.floor(decDegrees))*60.0);
+		node.setDec(dec);
+		node.setTrackRateRA(trackRateRA);
+		node.setTrackRateDec(trackRateDec);
+		return node;
+	}
+
+	/**
+	 * Return whether a node has track rates (i.e. they are not both zero).
+	 * @param index The node index.
+	 * @return true if the node has a non-zero track rate.
+	 */
+	private boolean hasTrackRates(int index)
+	{
+		return (trackRateRAList[index] != 0.0)||(trackRateDecList[index] != 0.0);
+	}
+
+	/**
+	 * Binary search for a timestamp.
+	 * @param timestamp The timestamp, in milliseconds since the epoch.
+	 * @return The index of the node with the timestamp, if there is one. Otherwise (-(insertion point)-1),
+	 *         as returned by Arrays.binarySearch.
+	 */
+	protected int search(long timestamp)
+	{
+		int low,high,middle;
+
+		low = 0;
+		high = size-1;
+		while(low <= high)
+		{
+			middle = (low+high) >>> 1;
+			if(timestampList[middle] < timestamp)
+				low = middle+1;
+			else if(timestampList[middle] > timestamp)
+				high = middle-1;
+			else
+				return middle;
+		}
+		return -(low+1);
+	}
+
+	/**
+	 * Return the index of the first node at or after the specified timestamp.
+	 * @param timestamp The timestamp, in milliseconds since the epoch.
+	 * @return The index, 0..size().
+	 * @see #search
+	 */
+	private int getCeilingIndex(long timestamp)
+	{
+		int index;
+
+		index = search(timestamp);
+		if(index >= 0)
+			return index;
+		return -(index+1);
+	}
+
+	/**
+	 * Return the timestamp of a node, as the track's comparator (RTMLTarget.NodeComparator) would use it.
+	 * @param o An RTMLEphemerisTargetTrackNode.
+	 * @return The timestamp, in milliseconds since the epoch.
+	 * @exception ClassCastException Thrown if o is not an RTMLEphemerisTargetTrackNode.
+	 * @exception NullPointerException Thrown if o, or it's timestamp, is null.
+	 */
+	private static long getNodeTimestamp(Object o) throws ClassCastException, NullPointerException
+	{
+		return ((RTMLEphemerisTargetTrackNode)o).getTimestamp().getTime();
+	}
+
+	/**
+	 * Test whether a set contains the same nodes as the part of the track from startIndex (inclusive) to
+	 * endIndex (exclusive): the set must be the same size, and each of it's elements must be equal to the
+	 * track's node with the same timestamp (which must be in the part of the track).
+	 * @param set The set.
+	 * @param startIndex The index of the first node.
+	 * @param endIndex The index after the last node.
+	 * @return true if the set contains the same nodes, false otherwise.
+	 * @see #search
+	 * @see #getNode
+	 */
+	private boolean sameNodes(Set set,int startIndex,int endIndex)
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+		Object o = null;
+		int index;
+
+		if(set.size() != Math.max(endIndex-startIndex,0))
+			return false;
+		for(Iterator i = set.iterator(); i.hasNext();)
+		{
+			o = i.next();
+			if((o instanceof RTMLEphemerisTargetTrackNode) == false)
+				return false;
+			node = (RTMLEphemerisTargetTrackNode)o;
+			if(node.getTimestamp() == null)
+				return false;
+			index = search(node.getTimestamp().getTime());
+			if((index < startIndex)||(index >= endIndex))
+				return false;
+			if(getNode(index).equals(node) == false)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the sum of the hash codes of the nodes from startIndex (inclusive) to endIndex (exclusive),
+	 * as the hash code of a Set containing those nodes.
+	 * @param startIndex The index of the first node.
+	 * @param endIndex The index after the last node.
+	 * @return The hash code.
+	 * @see #getNode
+	 */
+	private int nodeHashCode(int startIndex,int endIndex)
+	{
+		int hash;
+
+		hash = 0;
+		for(int i = startIndex; i < endIndex; i++)
+			hash += getNode(i).hashCode();
+		return hash;
+	}
+
+	/**
+	 * Check a node can be added to the track: the track holds positions in primitive arrays, so
+	 * it cannot hold a node without a timestamp, RA or Dec.
+	 * @param node The node.
+	 * @exception IllegalArgumentException Thrown if the node has no timestamp, RA or Dec.
+	 */
+	private void checkNode(RTMLEphemerisTargetTrackNode node) throws IllegalArgumentException
+	{
+		if(node.getTimestamp() == null)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":checkNode:Track node has no timestamp.");
+		}
+		if(node.getRA() == null)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":checkNode:Track node at "+
+							   node.getTimestamp()+" has no RA.");
+		}
+		if(node.getDec() == null)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":checkNode:Track node at "+
+							   node.getTimestamp()+" has no Dec.");
+		}
+	}
+
+	/**
+	 * Set the data of the node at index from an RTMLEphemerisTargetTrackNode. The node must have been
+	 * checked with checkNode.
+	 * @param index The index.
+	 * @param node The node.
+	 * @see #checkNode
+	 */
+	private void set(int index,RTMLEphemerisTargetTrackNode node)
+	{
+		RA ra = null;
+		Dec dec = null;
+
+		ra = node.getRA();
+		dec = node.getDec();
+		timestampList[index] = node.getTimestamp().getTime();
+		raMinuteList[index] = (ra.getHours()*60)+ra.getMinutes();
+		raSecondList[index] = ra.getSeconds();
+		decMinuteList[index] = (dec.getDegrees()*60)+dec.getMinutes();
+		decSecondList[index] = dec.getSeconds();
+		decNegativeList[index] = dec.getNegative();
+		trackRateRAList[index] = node.getTrackRateRA();
+		trackRateDecList[index] = node.getTrackRateDec();
+	}
+
+	/**
+	 * Remove the node at index.
+	 * @param index The index.
+	 * @see #removeRange
+	 */
+	private void removeIndex(int index)
+	{
+		removeRange(index,index+1);
+	}
+
+	/**
+	 * Remove the nodes from startIndex (inclusive) to endIndex (exclusive).
+	 * @param startIndex The index of the first node to remove.
+	 * @param endIndex The index after the last node to remove.
+	 */
+	private void removeRange(int startIndex,int endIndex)
+	{
+		int length;
+
+		if(endIndex <= startIndex)
+			return;
+		length = size-endIndex;
+		System.arraycopy(timestampList,endIndex,timestampList,startIndex,length);
+		System.arraycopy(raMinuteList,endIndex,raMinuteList,startIndex,length);
+		System.arraycopy(raSecondList,endIndex,raSecondList,startIndex,length);
+		System.arraycopy(decMinuteList,endIndex,decMinuteList,startIndex,length);
+		System.arraycopy(decSecondList,endIndex,decSecondList,startIndex,length);
+		System.arraycopy(decNegativeList,endIndex,decNegativeList,startIndex,length);
+		System.arraycopy(trackRateRAList,endIndex,trackRateRAList,startIndex,length);
+		System.arraycopy(trackRateDecList,endIndex,trackRateDecList,startIndex,length);
+		size -= endIndex-startIndex;
+	}
+
+	/**
+	 * Check an index is in range.
+	 * @param index The index.
+	 * @exception IndexOutOfBoundsException Thrown if the index is not in the range 0..size()-1.
+	 */
+	private void checkIndex(int index) throws IndexOutOfBoundsException
+	{
+		if((index < 0)||(index >= size))
+		{
+			throw new IndexOutOfBoundsException(this.getClass().getName()+":Index "+index+
+							    " out of range 0.."+(size-1)+".");
+		}
+	}
+
+	/**
+	 * (Re)allocate the arrays, copying any existing nodes.
+	 * @param capacity The new capacity.
+	 */
+	private void allocate(int capacity)
+	{
+		long newTimestampList[] = new long[capacity];
+		int newRAMinuteList[] = new int[capacity];
+		double newRASecondList[] = new double[capacity];
+		int newDecMinuteList[] = new int[capacity];
+		double newDecSecondList[] = new double[capacity];
+		boolean newDecNegativeList[] = new boolean[capacity];
+		double newTrackRateRAList[] = new double[capacity];
+		double newTrackRateDecList[] = new double[capacity];
+
+		if(size > 0)
+		{
+			System.arraycopy(timestampList,0,newTimestampList,0,size);
+			System.arraycopy(raMinuteList,0,newRAMinuteList,0,size);
+			System.arraycopy(raSecondList,0,newRASecondList,0,size);
+			System.arraycopy(decMinuteList,0,newDecMinuteList,0,size);
+			System.arraycopy(decSecondList,0,newDecSecondList,0,size);
+			System.arraycopy(decNegativeList,0,newDecNegativeList,0,size);
+			System.arraycopy(trackRateRAList,0,newTrackRateRAList,0,size);
+			System.arraycopy(trackRateDecList,0,newTrackRateDecList,0,size);
+		}
+		timestampList = newTimestampList;
+		raMinuteList = newRAMinuteList;
+		raSecondList = newRASecondList;
+		decMinuteList = newDecMinuteList;
+		decSecondList = newDecSecondList;
+		decNegativeList = newDecNegativeList;
+		trackRateRAList = newTrackRateRAList;
+		trackRateDecList = newTrackRateDecList;
+	}
+
+	/**
+	 * Create the formatter used to write the date, hours and minutes of a node's timestamp,
+	 * "yyyy-MMM-dd HH:mm" with English month names (as read by RTMLEphemerisTrackParser).
+	 * @return The formatter.
+	 * @see #TIMESTAMP_FORMATTER
+	 * @see #MONTH_NAME_LIST
+	 */
+	private static DateTimeFormatter createTimestampFormatter()
+	{
+		Map monthNameMap = null;
+
+		monthNameMap = new HashMap();
+		for(int i = 0; i < MONTH_NAME_LIST.length; i++)
+			monthNameMap.put(Long.valueOf(i+1),MONTH_NAME_LIST[i]);
+		return new DateTimeFormatterBuilder().appendValue(ChronoField.YEAR,4,10,SignStyle.NORMAL).
+			appendLiteral('-').appendText(ChronoField.MONTH_OF_YEAR,monthNameMap).appendLiteral('-').
+			appendValue(ChronoField.DAY_OF_MONTH,2).appendLiteral(' ').
+			appendValue(ChronoField.HOUR_OF_DAY,2).appendLiteral(':').
+			appendValue(ChronoField.MINUTE_OF_HOUR,2).toFormatter(Locale.ROOT);
+	}
+	/**
+	 * A view of part of the track, returned by subSet, headSet and tailSet. The view holds the timestamp range
+	 * (the start timestamp, inclusive, and the end timestamp, exclusive, either of which may be unbounded),
+	 * and the nodes are read from and written to the track's arrays, so the view always reflects the
+	 * current contents of the track. As for a TreeSet's views, adding a node outside the range
+	 * throws an IllegalArgumentException, and sub-views must be within the range.
+	 */
+	private class TrackView extends AbstractSet implements SortedSet
+	{
+		/**
+		 * Whether the view has a start timestamp.
+		 */
+		private boolean hasFrom = false;
+		/**
+		 * The start timestamp (inclusive), if hasFrom is true.
+		 */
+		private long fromTimestamp = 0;
+		/**
+		 * Whether the view has an end timestamp.
+		 */
+		private boolean hasTo = false;
+		/**
+		 * The end timestamp (exclusive), if hasTo is true.
+		 */
+		private long toTimestamp = 0;
+
+		/**
+		 * Constructor.
+		 * @param hasFrom Whether the view has a start timestamp.
+		 * @param fromTimestamp The start timestamp (inclusive).
+		 * @param hasTo Whether the view has an end timestamp.
+		 * @param toTimestamp The end timestamp (exclusive).
+		 */
+		TrackView(boolean hasFrom,long fromTimestamp,boolean hasTo,long toTimestamp)
+		{
+			super();
+			this.hasFrom = hasFrom;
+			this.fromTimestamp = fromTimestamp;
+			this.hasTo = hasTo;
+			this.toTimestamp = toTimestamp;
+		}
+
+		/**
+		 * Return the index of the first node in the view.
+		 * @return The index, 0..size.
+		 */
+		private int getStartIndex()
+		{
+			if(hasFrom)
+				return getCeilingIndex(fromTimestamp);
+			return 0;
+		}
+
+		/**
+		 * Return the index after the last node in the view.
+		 * @return The index, getStartIndex()..size.
+		 */
+		private int getEndIndex()
+		{
+			if(hasTo)
+				return Math.max(getCeilingIndex(toTimestamp),getStartIndex());
+			return size;
+		}
+
+		/**
+		 * Return whether a timestamp is in the view's range.
+		 * @param timestamp The timestamp, in milliseconds since the epoch.
+		 * @return true if the timestamp is in range.
+		 */
+		private boolean inRange(long timestamp)
+		{
+			return ((hasFrom == false)||(timestamp >= fromTimestamp))&&((hasTo == false)||(timestamp < toTimestamp));
+		}
+
+		/**
+		 * Return whether a timestamp is in the view's range, or is the view's end timestamp.
+		 * Used to check the bounds of sub-views.
+		 * @param timestamp The timestamp, in milliseconds since the epoch.
+		 * @return true if the timestamp is in the closed range.
+		 */
+		private boolean inClosedRange(long timestamp)
+		{
+			return ((hasFrom == false)||(timestamp >= fromTimestamp))&&((hasTo == false)||(timestamp <= toTimestamp));
+		}
+
+		/**
+		 * Return the number of nodes in the view.
+		 * @return The number of nodes.
+		 */
+		public int size()
+		{
+			return getEndIndex()-getStartIndex();
+		}
+
+		/**
+		 * Remove all the nodes in the view from the track.
+		 */
+		public void clear()
+		{
+			removeRange(getStartIndex(),getEndIndex());
+		}
+
+		/**
+		 * Add a node to the track. The node's timestamp must be in the view's range.
+		 * @param o An instance of RTMLEphemerisTargetTrackNode.
+		 * @return true if the node was added, false if a node with the same timestamp was already in the track.
+		 * @exception ClassCastException Thrown if o is not an RTMLEphemerisTargetTrackNode.
+		 * @exception IllegalArgumentException Thrown if the node's timestamp is out of range, or the node
+		 *            has no timestamp, RA or Dec.
+		 * @see RTMLEphemerisTrack#add
+		 */
+		public boolean add(Object o) throws ClassCastException, IllegalArgumentException
+		{
+			RTMLEphemerisTargetTrackNode node = null;
+
+			node = (RTMLEphemerisTargetTrackNode)o;
+			if((node.getTimestamp() != null)&&(inRange(node.getTimestamp().getTime()) == false))
+			{
+				throw new IllegalArgumentException(this.getClass().getName()+":add:Node timestamp "+
+								   node.getTimestamp()+" out of range.");
+			}
+			return RTMLEphemerisTrack.this.add(node);
+		}
+
+		/**
+		 * Remove the node with the same timestamp as the specified node from the track, if it is in
+		 * the view's range.
+		 * @param o An instance of RTMLEphemerisTargetTrackNode.
+		 * @return true if a node was removed.
+		 * @see RTMLEphemerisTrack#remove
+		 */
+		public boolean remove(Object o)
+		{
+			if(contains(o) == false)
+				return false;
+			return RTMLEphemerisTrack.this.remove(o);
+		}
+
+		/**
+		 * Return whether the view contains a node with the same timestamp as the specified node.
+		 * @param o An instance of RTMLEphemerisTargetTrackNode.
+		 * @return true if the view contains a node with the same timestamp.
+		 * @see RTMLEphemerisTrack#contains
+		 */
+		public boolean contains(Object o)
+		{
+			RTMLEphemerisTargetTrackNode node = null;
+
+			if((o instanceof RTMLEphemerisTargetTrackNode) == false)
+				return false;
+			node = (RTMLEphemerisTargetTrackNode)o;
+			return (node.getTimestamp() != null)&&inRange(node.getTimestamp().getTime())&&
+				RTMLEphemerisTrack.this.contains(node);
+		}
+
+		/**
+		 * Return an iterator over the nodes in the view, in timestamp order. The iterator supports remove.
+		 * @return An iterator.
+		 */
+		public Iterator iterator()
+		{
+			return new Iterator()
+			{
+				private int index = getStartIndex();
+				private int endIndex = getEndIndex();
+				private int lastIndex = -1;
+
+				public boolean hasNext()
+				{
+					return (index < endIndex);
+				}
+
+				public Object next()
+				{
+					if(index >= endIndex)
+						throw new NoSuchElementException();
+					lastIndex = index;
+					return getNode(index++);
+				}
+
+				public void remove()
+				{
+					if(lastIndex < 0)
+						throw new IllegalStateException();
+					removeIndex(lastIndex);
+					index = lastIndex;
+					endIndex--;
+					lastIndex = -1;
+				}
+			};
+		}
+
+		/**
+		 * Return the comparator the view is ordered by.
+		 * @return A new instance of RTMLTarget.NodeComparator.
+		 */
+		public Comparator comparator()
+		{
+			return RTMLEphemerisTrack.this.comparator();
+		}
+
+		/**
+		 * Return the first (earliest) node in the view.
+		 * @return The first node.
+		 * @exception NoSuchElementException Thrown if the view is empty.
+		 */
+		public Object first() throws NoSuchElementException
+		{
+			int index;
+
+			index = getStartIndex();
+			if(index >= getEndIndex())
+				throw new NoSuchElementException(this.getClass().getName()+":first:View is empty.");
+			return getNode(index);
+		}
+
+		/**
+		 * Return the last (latest) node in the view.
+		 * @return The last node.
+		 * @exception NoSuchElementException Thrown if the view is empty.
+		 */
+		public Object last() throws NoSuchElementException
+		{
+			int index;
+
+			index = getEndIndex();
+			if(index <= getStartIndex())
+				throw new NoSuchElementException(this.getClass().getName()+":last:View is empty.");
+			return getNode(index-1);
+		}
+
+		/**
+		 * Return a view of the part of this view from fromElement's timestamp (inclusive) to toElement's
+		 * timestamp (exclusive).
+		 * @param fromElement An RTMLEphemerisTargetTrackNode with the start timestamp.
+		 * @param toElement An RTMLEphemerisTargetTrackNode with the end timestamp.
+		 * @return A view of the track.
+		 * @exception IllegalArgumentException Thrown if fromElement's timestamp is after toElement's,
+		 *            or either is outside this view's range.
+		 */
+		public SortedSet subSet(Object fromElement,Object toElement) throws IllegalArgumentException
+		{
+			long newFromTimestamp,newToTimestamp;
+
+			newFromTimestamp = getNodeTimestamp(fromElement);
+			newToTimestamp = getNodeTimestamp(toElement);
+			if(newFromTimestamp > newToTimestamp)
+			{
+				throw new IllegalArgumentException(this.getClass().getName()+":subSet:From timestamp "+
+								   newFromTimestamp+" is after to timestamp "+
+								   newToTimestamp+".");
+			}
+			checkClosedRange("subSet",newFromTimestamp);
+			checkClosedRange("subSet",newToTimestamp);
+			return new TrackView(true,newFromTimestamp,true,newToTimestamp);
+		}
+
+		/**
+		 * Return a view of the part of this view before toElement's timestamp.
+		 * @param toElement An RTMLEphemerisTargetTrackNode with the end timestamp.
+		 * @return A view of the track.
+		 * @exception IllegalArgumentException Thrown if toElement's timestamp is outside this view's range.
+		 */
+		public SortedSet headSet(Object toElement) throws IllegalArgumentException
+		{
+			long newToTimestamp;
+
+			newToTimestamp = getNodeTimestamp(toElement);
+			checkClosedRange("headSet",newToTimestamp);
+			return new TrackView(hasFrom,fromTimestamp,true,newToTimestamp);
+		}
+
+		/**
+		 * Return a view of the part of this view from fromElement's timestamp (inclusive).
+		 * @param fromElement An RTMLEphemerisTargetTrackNode with the start timestamp.
+		 * @return A view of the track.
+		 * @exception IllegalArgumentException Thrown if fromElement's timestamp is outside this view's range.
+		 */
+		public SortedSet tailSet(Object fromElement) throws IllegalArgumentException
+		{
+			long newFromTimestamp;
+
+			newFromTimestamp = getNodeTimestamp(fromElement);
+			checkClosedRange("tailSet",newFromTimestamp);
+			return new TrackView(true,newFromTimestamp,hasTo,toTimestamp);
+		}
+
+		/**
+		 * Test whether this view is equal to another object, in the same way as RTMLEphemerisTrack.equals:
+		 * the object must be a Set of nodes, each equal to the view's node with the same timestamp.
+		 * @param obj The object to compare with.
+		 * @return true if the object is an equal Set of nodes, and false otherwise.
+		 * @see RTMLEphemerisTrack#equals
+		 */
+		public boolean equals(Object obj)
+		{
+			if(obj == this)
+				return true;
+			if((obj instanceof Set) == false)
+				return false;
+			return sameNodes((Set)obj,getStartIndex(),getEndIndex());
+		}
+
+		/**
+		 * Return a hash code for the view, consistent with equals: the sum of the hash codes of the nodes.
+		 * @return The hash code.
+		 * @see RTMLEphemerisTrack#hashCode
+		 */
+		public int hashCode()
+		{
+			return nodeHashCode(getStartIndex(),getEndIndex());
+		}
+
+		/**
+		 * Check a sub-view bound is within this view's range (the end timestamp is allowed).
+		 * @param methodName The name of the calling method, used in the exception message.
+		 * @param timestamp The bound's timestamp.
+		 * @exception IllegalArgumentException Thrown if the timestamp is out of range.
+		 */
+		private void checkClosedRange(String methodName,long timestamp) throws IllegalArgumentException
+		{
+			if(inClosedRange(timestamp) == false)
+			{
+				throw new IllegalArgumentException(this.getClass().getName()+":"+methodName+
+								   ":Timestamp "+timestamp+" out of range.");
+			}
+		}
+	}
+}
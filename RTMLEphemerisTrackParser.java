@@ -0,0 +1,755 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLEphemerisTrackParser.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import org.estar.astrometry.*;
+
+/**
+ * This class parses a block of ephemeris target lines (as parsed one at a time by
+ * RTMLEphemerisTargetTrackNode.parse) into a complete ephemeris target track, suitable for
+ * RTMLTarget.setEphemerisTrack. Each line is of the form:
+ * <pre>
+ * 2018-Sep-26 00:10 00 43 56.61 +11 08 37.2     -78.155203      65.006315
+ * </pre>
+ * The input is scanned a character at a time, using the same line and field buffers for every line, rather
+ * than tokenising each line into strings. The nodes are collected in input order, sorted once if the input was not
+ * already in time order, and then appended to an RTMLEphemerisTrack in a single pass. As with
+ * RTMLTarget.addEphemerisTrackNode, only the first node with a particular timestamp is kept.
+ * <p>
+ * A line that fails to parse does not stop the parse, it is recorded in the error list (see getErrorList),
+ * and the rest of the input is parsed. Blank lines are ignored.
+ * <p>
+ * Timestamps are interpreted in the same timezone as RTMLEphemerisTargetTrackNode.parseTimestamp (the
+ * default timezone) unless setTimeZone is called. Month names are the English month names, either
+ * abbreviated or in full. The time can optionally include seconds ("HH:mm:ss").
+ * <p>
+ * Instances are not thread-safe, but can be re-used for many parses.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLEphemerisTargetTrackNode#parse
+ * @see org.estar.rtml.RTMLTarget#setEphemerisTrack
+ */
+public class RTMLEphemerisTrackParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The minimum number of fields in a line (date, time, 3 RA fields, 3 Dec fields).
+	 */
+	public final static int MIN_FIELD_COUNT = 8;
+	/**
+	 * The number of fields in a line with track rates.
+	 */
+	public final static int MAX_FIELD_COUNT = 10;
+	/**
+	 * The size of the buffer used to read the input.
+	 */
+	private final static int READ_BUFFER_LENGTH = 8192;
+	/**
+	 * The English month names, in lower case, used to parse the timestamp's month field.
+	 */
+	private final static String MONTH_NAME_LIST[] = {"january","february","march","april","may","june","july",
+							 "august","september","october","november","december"};
+	/**
+	 * Exact powers of ten, used by parseDouble.
+	 */
+	private final static double POWER_OF_TEN_LIST[] = {1.0,1.0e1,1.0e2,1.0e3,1.0e4,1.0e5,1.0e6,1.0e7,1.0e8,
+								1.0e9,1.0e10,1.0e11,1.0e12,1.0e13,1.0e14,1.0e15};
+	/**
+	 * The timezone the timestamps are in. If null, the default timezone is used.
+	 */
+	protected TimeZone timeZone = null;
+	/**
+	 * The zone the timestamps are parsed in during a parse, timeZone (or the default timezone) as a ZoneId.
+	 * @see #timeZone
+	 */
+	private ZoneId zoneId = null;
+	/**
+	 * The list of errors (instances of LineError) from the last parse.
+	 * @see LineError
+	 */
+	protected List errorList = new Vector();
+	/**
+	 * The number of lines read by the last parse.
+	 */
+	protected int lineCount = 0;
+	/**
+	 * The number of duplicate timestamps (lines not added to the track) in the last parse.
+	 */
+	protected int duplicateCount = 0;
+	/**
+	 * Buffer used to read the input.
+	 */
+	private char readBuffer[] = new char[READ_BUFFER_LENGTH];
+	/**
+	 * Buffer holding the current line. Grown as needed.
+	 */
+	private char line[] = new char[256];
+	/**
+	 * The number of characters in the current line.
+	 */
+	private int lineLength = 0;
+	/**
+	 * The start index in line of each field.
+	 */
+	private int fieldStartList[] = new int[MAX_FIELD_COUNT];
+	/**
+	 * The end index (exclusive) in line of each field.
+	 */
+	private int fieldEndList[] = new int[MAX_FIELD_COUNT];
+	/**
+	 * The number of fields in the current line.
+	 */
+	private int fieldCount = 0;
+
+	/**
+	 * Default constructor.
+	 */
+	public RTMLEphemerisTrackParser()
+	{
+		super();
+	}
+
+	/**
+	 * Set the timezone the timestamps are in.
+	 * @param tz The timezone, or null to use the default timezone.
+	 * @see #timeZone
+	 */
+	public void setTimeZone(TimeZone tz)
+	{
+		timeZone = tz;
+	}
+
+	/**
+	 * Get the timezone the timestamps are in.
+	 * @return The timezone, or null if the default timezone is used.
+	 * @see #timeZone
+	 */
+	public TimeZone getTimeZone()
+	{
+		return timeZone;
+	}
+
+	/**
+	 * Parse an ephemeris file.
+	 * @param f The file.
+	 * @return An RTMLEphemerisTrack (a SortedSet of RTMLEphemerisTargetTrackNode), in timestamp order.
+	 * @exception IOException Thrown if reading the file fails.
+	 * @see #parse(java.nio.file.Path)
+	 */
+	public SortedSet parse(File f) throws IOException
+	{
+		return parse(f.toPath());
+	}
+
+	/**
+	 * Parse an ephemeris file. The file is read as ISO-8859-1 text.
+	 * @param path The path of the file.
+	 * @return An RTMLEphemerisTrack (a SortedSet of RTMLEphemerisTargetTrackNode), in timestamp order.
+	 * @exception IOException Thrown if reading the file fails.
+	 * @see #parse(java.io.Reader)
+	 */
+	public SortedSet parse(Path path) throws IOException
+	{
+		Reader reader = null;
+
+		reader = Files.newBufferedReader(path,StandardCharsets.ISO_8859_1);
+		try
+		{
+			return parse(reader);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Parse a block of ephemeris lines.
+	 * @param s A string containing the ephemeris lines.
+	 * @return An RTMLEphemerisTrack (a SortedSet of RTMLEphemerisTargetTrackNode), in timestamp order.
+	 * @see #parse(java.io.Reader)
+	 */
+	public SortedSet parse(String s)
+	{
+		try
+		{
+			return parse(new StringReader(s));
+		}
+		catch(IOException e)
+		{
+			// a StringReader does not throw IOException
+			throw new IllegalStateException(this.getClass().getName()+":parse:"+e);
+		}
+	}
+
+	/**
+	 * Parse ephemeris lines from a reader, until the end of the input. The reader is not closed.
+	 * Lines that fail to parse are added to the error list.
+	 * @param r The reader.
+	 * @return An RTMLEphemerisTrack (a SortedSet of RTMLEphemerisTargetTrackNode), in timestamp order.
+	 * @exception IOException Thrown if reading fails.
+	 * @see #getErrorList
+	 * @see #parseLine
+	 * @see #buildTrack
+	 */
+	public SortedSet parse(Reader r) throws IOException
+	{
+		List nodeList = null;
+		RTMLEphemerisTargetTrackNode node = null;
+		long lastTime;
+		boolean sorted;
+		int length;
+		char ch;
+
+		if(timeZone == null)
+			zoneId = ZoneId.systemDefault();
+		else
+			zoneId = timeZone.toZoneId();
+		errorList = new Vector();
+		lineCount = 0;
+		duplicateCount = 0;
+		lineLength = 0;
+		nodeList = new ArrayList();
+		sorted = true;
+		lastTime = Long.MIN_VALUE;
+		while((length = r.read(readBuffer,0,readBuffer.length)) >= 0)
+		{
+			for(int i = 0; i < length; i++)
+			{
+				ch = readBuffer[i];
+				if(ch == '\n')
+				{
+					node = endLine();
+					if(node != null)
+					{
+						if(node.getTimestamp().getTime() < lastTime)
+							sorted = false;
+						lastTime = node.getTimestamp().getTime();
+						nodeList.add(node);
+					}
+				}
+				else
+				{
+					if(lineLength == line.length)
+					{
+						char newLine[] = new char[line.length*2];
+
+						System.arraycopy(line,0,newLine,0,lineLength);
+						line = newLine;
+					}
+					line[lineLength++] = ch;
+				}
+			}
+		}
+		if(lineLength > 0)
+		{
+			node = endLine();
+			if(node != null)
+			{
+				if(node.getTimestamp().getTime() < lastTime)
+					sorted = false;
+				nodeList.add(node);
+			}
+		}
+		return buildTrack(nodeList,sorted);
+	}
+
+	/**
+	 * Get the list of errors from the last parse.
+	 * @return A list of LineError, one for each line that failed to parse.
+	 * @see #errorList
+	 * @see LineError
+	 */
+	public List getErrorList()
+	{
+		return errorList;
+	}
+
+	/**
+	 * Get the number of lines read by the last parse.
+	 * @return The number of lines.
+	 * @see #lineCount
+	 */
+	public int getLineCount()
+	{
+		return lineCount;
+	}
+
+	/**
+	 * Get the number of lines in the last parse that were not added to the track, as a node with the
+	 * same timestamp was already in the track.
+	 * @return The number of duplicate lines.
+	 * @see #duplicateCount
+	 */
+	public int getDuplicateCount()
+	{
+		return duplicateCount;
+	}
+
+	/**
+	 * Internal method called at the end of each line, to parse the line.
+	 * @return A node, or null if the line was blank or an error occured.
+	 * @see #parseLine
+	 * @see #errorList
+	 */
+	private RTMLEphemerisTargetTrackNode endLine()
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+
+		lineCount++;
+		if((lineLength > 0) && (line[lineLength-1] == '\r'))
+			lineLength--;
+		try
+		{
+			node = parseLine();
+		}
+		catch(Exception e)
+		{
+			errorList.add(new LineError(lineCount,new String(line,0,lineLength),e));
+			node = null;
+		}
+		lineLength = 0;
+		return node;
+	}
+
+	/**
+	 * Parse the current line.
+	 * @return A node, or null if the line was blank.
+	 * @exception IllegalArgumentException Thrown if the line is not a valid ephemeris line.
+	 * @see #splitFields
+	 * @see #parseTimestamp
+	 */
+	protected RTMLEphemerisTargetTrackNode parseLine() throws IllegalArgumentException
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+		RA ra = null;
+		Dec dec = null;
+		int start;
+
+		splitFields();
+		if(fieldCount == 0)
+			return null;
+		if(fieldCount < MIN_FIELD_COUNT)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":parseLine:Illegal Ephemeris target line "+
+							   new String(line,0,lineLength)+" only has "+fieldCount+" tokens.");
+		}
+		node = new RTMLEphemerisTargetTrackNode();
+		node.setTimestamp(new Date(parseTimestamp()));
+		ra = new RA();
+		ra.setHours(parseInt(2));
+		ra.setMinutes(parseInt(3));
+		ra.setSeconds(parseDouble(4));
+		node.setRA(ra);
+		// degrees could be "-00", so the sign is parsed separately
+		dec = new Dec();
+		start = fieldStartList[5];
+		dec.setNegative(line[start] == '-');
+		if((line[start] == '-')||(line[start] == '+'))
+			fieldStartList[5]++;
+		dec.setDegrees(parseInt(5));
+		dec.setMinutes(parseInt(6));
+		dec.setSeconds(parseDouble(7));
+		node.setDec(dec);
+		// track rates are optional
+		if(fieldCount >= MAX_FIELD_COUNT)
+		{
+			node.setTrackRateRA(parseDouble(8));
+			node.setTrackRateDec(parseDouble(9));
+		}
+		return node;
+	}
+
+	/**
+	 * Split the current line into whitespace (space or tab) separated fields.
+	 * The start and end of the first MAX_FIELD_COUNT fields are stored, fieldCount is set to the number
+	 * of fields in the line.
+	 * @see #fieldStartList
+	 * @see #fieldEndList
+	 * @see #fieldCount
+	 */
+	private void splitFields()
+	{
+		int index;
+
+		fieldCount = 0;
+		index = 0;
+		while(index < lineLength)
+		{
+			while((index < lineLength) && ((line[index] == ' ')||(line[index] == '\t')))
+				index++;
+			if(index == lineLength)
+				break;
+			if(fieldCount < MAX_FIELD_COUNT)
+				fieldStartList[fieldCount] = index;
+			while((index < lineLength) && (line[index] != ' ') && (line[index] != '\t'))
+				index++;
+			if(fieldCount < MAX_FIELD_COUNT)
+				fieldEndList[fieldCount] = index;
+			fieldCount++;
+		}
+	}
+
+	/**
+	 * Parse the timestamp from the first two fields, of the form "yyyy-MMM-dd" and "HH:mm" (or "HH:mm:ss").
+	 * Out of range fields roll over, as with a lenient SimpleDateFormat.
+	 * @return The timestamp, in milliseconds since 1970-01-01T00:00:00 UTC.
+	 * @exception IllegalArgumentException Thrown if the timestamp is not valid.
+	 * @see #timeZone
+	 * @see #zoneId
+	 * @see #parseMonth
+	 * @see org.estar.rtml.RTMLDateFormat#getTime
+	 */
+	private long parseTimestamp() throws IllegalArgumentException
+	{
+		LocalDateTime localDateTime = null;
+		int index,end,separatorIndex,year,month,day,hour,minute;
+		double second;
+
+		// date
+		index = fieldStartList[0];
+		end = fieldEndList[0];
+		separatorIndex = indexOf(index,end,'-');
+		year = parseInt(0,index,separatorIndex);
+		index = separatorIndex+1;
+		separatorIndex = indexOf(index,end,'-');
+		month = parseMonth(index,separatorIndex);
+		day = parseInt(0,separatorIndex+1,end);
+		// time
+		index = fieldStartList[1];
+		end = fieldEndList[1];
+		separatorIndex = indexOf(index,end,':');
+		hour = parseInt(1,index,separatorIndex);
+		index = separatorIndex+1;
+		separatorIndex = indexOf(index,end,':');
+		if(separatorIndex < end)
+		{
+			minute = parseInt(1,index,separatorIndex);
+			second = parseDouble(1,separatorIndex+1,end);
+		}
+		else
+		{
+			minute = parseInt(1,index,end);
+			second = 0.0;
+		}
+		try
+		{
+			// out of range days, hours etc roll over
+			localDateTime = LocalDate.of(year,month,1).atStartOfDay().plusDays(day-1).plusHours(hour).
+				plusMinutes(minute).plus(Math.round(second*1000.0),ChronoUnit.MILLIS);
+			return RTMLDateFormat.getTime(localDateTime,zoneId);
+		}
+		catch(DateTimeException e)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":parseTimestamp:Illegal timestamp:"+e);
+		}
+		catch(ArithmeticException e)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":parseTimestamp:Illegal timestamp:"+e);
+		}
+	}
+
+	/**
+	 * Parse an English month name (abbreviated or in full, any case) in the current line.
+	 * @param start The start index of the month name.
+	 * @param end The end index (exclusive) of the month name.
+	 * @return The month, 1..12.
+	 * @exception IllegalArgumentException Thrown if the month name is not recognised.
+	 * @see #MONTH_NAME_LIST
+	 */
+	private int parseMonth(int start,int end) throws IllegalArgumentException
+	{
+		String monthName = null;
+		int length;
+		boolean match;
+
+		length = end-start;
+		for(int m = 0; m < MONTH_NAME_LIST.length; m++)
+		{
+			monthName = MONTH_NAME_LIST[m];
+			if((length == 3) || (length == monthName.length()))
+			{
+				match = true;
+				for(int i = 0; match && (i < length); i++)
+					match = (Character.toLowerCase(line[start+i]) == monthName.charAt(i));
+				if(match)
+					return m+1;
+			}
+		}
+		throw new IllegalArgumentException(this.getClass().getName()+":parseMonth:Illegal month:"+
+						   new String(line,start,length)+" in timestamp "+fieldString(0)+" "+
+						   fieldString(1)+".");
+	}
+
+	/**
+	 * Return the index of a character in the current line, or end if it is not found.
+	 * @param start The index to start looking at.
+	 * @param end The end index (exclusive) to look up to.
+	 * @param ch The character to look for.
+	 * @return The index of the character, or end.
+	 */
+	private int indexOf(int start,int end,char ch)
+	{
+		while((start < end) && (line[start] != ch))
+			start++;
+		return start;
+	}
+
+	/**
+	 * Parse a field as an unsigned integer.
+	 * @param field The field index.
+	 * @return The value.
+	 * @exception IllegalArgumentException Thrown if the field is not a valid integer.
+	 * @see #parseInt(int,int,int)
+	 */
+	private int parseInt(int field) throws IllegalArgumentException
+	{
+		return parseInt(field,fieldStartList[field],fieldEndList[field]);
+	}
+
+	/**
+	 * Parse part of a field as an unsigned integer of up to 9 digits.
+	 * @param field The field index, used for error messages.
+	 * @param start The start index of the integer.
+	 * @param end The end index (exclusive) of the integer.
+	 * @return The value.
+	 * @exception IllegalArgumentException Thrown if the characters are not a valid integer.
+	 */
+	private int parseInt(int field,int start,int end) throws IllegalArgumentException
+	{
+		int value;
+		char ch;
+
+		if((end <= start)||((end-start) > 9))
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":parseInt:Illegal integer in field "+
+							   (field+1)+":"+fieldString(field)+".");
+		}
+		value = 0;
+		for(int i = start; i < end; i++)
+		{
+			ch = line[i];
+			if((ch < '0')||(ch > '9'))
+			{
+				throw new IllegalArgumentException(this.getClass().getName()+
+								   ":parseInt:Illegal integer in field "+(field+1)+":"+
+								   fieldString(field)+".");
+			}
+			value = (value*10)+(ch-'0');
+		}
+		return value;
+	}
+
+	/**
+	 * Parse a field as a double.
+	 * @param field The field index.
+	 * @return The value.
+	 * @exception IllegalArgumentException Thrown if the field is not a valid double.
+	 * @see #parseDouble(int,int,int)
+	 */
+	private double parseDouble(int field) throws IllegalArgumentException
+	{
+		return parseDouble(field,fieldStartList[field],fieldEndList[field]);
+	}
+
+	/**
+	 * Parse part of a field as a double. Values of up to 15 digits, with an optional sign and decimal point,
+	 * are parsed in place: the digits are accumulated exactly in a long, and divided by an exact power of
+	 * ten, which gives the same result as Double.parseDouble. Other values are passed to Double.parseDouble.
+	 * @param field The field index, used for error messages.
+	 * @param start The start index of the double.
+	 * @param end The end index (exclusive) of the double.
+	 * @return The value.
+	 * @exception IllegalArgumentException Thrown if the characters are not a valid double.
+	 * @see #POWER_OF_TEN_LIST
+	 */
+	private double parseDouble(int field,int start,int end) throws IllegalArgumentException
+	{
+		long mantissa;
+		int index,digitCount,fractionDigitCount;
+		boolean negative,inFraction,simple;
+		char ch;
+
+		index = start;
+		negative = false;
+		if((index < end) && ((line[index] == '-')||(line[index] == '+')))
+		{
+			negative = (line[index] == '-');
+			index++;
+		}
+		mantissa = 0;
+		digitCount = 0;
+		fractionDigitCount = 0;
+		inFraction = false;
+		simple = true;
+		for(; simple && (index < end); index++)
+		{
+			ch = line[index];
+			if((ch >= '0')&&(ch <= '9'))
+			{
+				mantissa = (mantissa*10)+(ch-'0');
+				digitCount++;
+				if(inFraction)
+					fractionDigitCount++;
+			}
+			else if((ch == '.')&&(inFraction == false))
+				inFraction = true;
+			else
+				simple = false;
+		}
+		if(simple && (digitCount > 0) && (digitCount <= 15))
+		{
+			if(negative)
+				return -(((double)mantissa)/POWER_OF_TEN_LIST[fractionDigitCount]);
+			return ((double)mantissa)/POWER_OF_TEN_LIST[fractionDigitCount];
+		}
+		try
+		{
+			return Double.parseDouble(new String(line,start,end-start));
+		}
+		catch(NumberFormatException e)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":parseDouble:Illegal number in field "+
+							   (field+1)+":"+fieldString(field)+".");
+		}
+	}
+
+	/**
+	 * Return a field of the current line as a string, for error messages.
+	 * @param field The field index.
+	 * @return The field.
+	 */
+	private String fieldString(int field)
+	{
+		return new String(line,fieldStartList[field],fieldEndList[field]-fieldStartList[field]);
+	}
+
+	/**
+	 * Build the track from the list of parsed nodes. The list is sorted (stably) if it is not already in
+	 * timestamp order, and the nodes appended to the track in order. Nodes with the same timestamp as the
+	 * previous node are not added.
+	 * @param nodeList The list of nodes, in input order.
+	 * @param sorted Whether the list is already in timestamp order.
+	 * @return An RTMLEphemerisTrack.
+	 * @see org.estar.rtml.RTMLEphemerisTrack
+	 * @see org.estar.rtml.RTMLTarget.NodeComparator
+	 */
+	protected SortedSet buildTrack(List nodeList,boolean sorted)
+	{
+		RTMLEphemerisTrack track = null;
+
+		if(sorted == false)
+			Collections.sort(nodeList,new RTMLTarget.NodeComparator());
+		track = new RTMLEphemerisTrack(nodeList.size());
+		for(int i = 0; i < nodeList.size(); i++)
+		{
+			// each node is after the last node in the track, or has the same timestamp
+			if(track.add(nodeList.get(i)) == false)
+				duplicateCount++;
+		}
+		return track;
+	}
+
+	/**
+	 * Class recording an ephemeris line that failed to parse.
+	 */
+	public static class LineError
+	{
+		/**
+		 * The line number, starting at 1.
+		 */
+		protected int lineNumber = 0;
+		/**
+		 * The line.
+		 */
+		protected String line = null;
+		/**
+		 * The exception thrown parsing the line.
+		 */
+		protected Exception exception = null;
+
+		/**
+		 * Constructor.
+		 * @param n The line number.
+		 * @param s The line.
+		 * @param e The exception thrown parsing the line.
+		 */
+		public LineError(int n,String s,Exception e)
+		{
+			super();
+			lineNumber = n;
+			line = s;
+			exception = e;
+		}
+
+		/**
+		 * Get the line number.
+		 * @return The line number, starting at 1.
+		 */
+		public int getLineNumber()
+		{
+			return lineNumber;
+		}
+
+		/**
+		 * Get the line.
+		 * @return The line.
+		 */
+		public String getLine()
+		{
+			return line;
+		}
+
+		/**
+		 * Get the exception thrown parsing the line.
+		 * @return The exception.
+		 */
+		public Exception getException()
+		{
+			return exception;
+		}
+
+		/**
+		 * Return a string describing the error.
+		 * @return A string.
+		 */
+		public String toString()
+		{
+			return "Line "+lineNumber+":"+exception.getMessage();
+		}
+	}
+}
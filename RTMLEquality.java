@@ -0,0 +1,219 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLEquality.java
+package org.estar.rtml;
+
+import java.net.*;
+
+import org.estar.astrometry.*;
+
+/**
+ * Static methods used by the model classes' equals and hashCode methods. Values may be null, and are
+ * compared as follows:
+ * <ul>
+ * <li>Objects are compared with their equals method.
+ * <li>URLs are compared by their external form (URL.equals resolves the host names).
+ * <li>Doubles are compared by their bit pattern (as Double.equals does), so equal values have equal
+ *     hash codes, and the comparison matches RTMLBinaryCodec's encoding.
+ * <li>RAs and Decs are compared by their fields.
+ * </ul>
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+final class RTMLEquality
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The multiplier used to combine hash codes.
+	 */
+	final static int HASH_MULTIPLIER = 31;
+
+	/**
+	 * Private constructor, this class only has static methods.
+	 */
+	private RTMLEquality()
+	{
+		super();
+	}
+
+	/**
+	 * Return whether two objects are the same: both null, or equal.
+	 * @param o1 The first object.
+	 * @param o2 The second object.
+	 * @return true if the objects are the same.
+	 */
+	static boolean same(Object o1,Object o2)
+	{
+		if(o1 == o2)
+			return true;
+		if((o1 == null)||(o2 == null))
+			return false;
+		return o1.equals(o2);
+	}
+
+	/**
+	 * Return whether two URLs are the same: both null, or with the same external form.
+	 * @param u1 The first URL.
+	 * @param u2 The second URL.
+	 * @return true if the URLs are the same.
+	 */
+	static boolean same(URL u1,URL u2)
+	{
+		if(u1 == u2)
+			return true;
+		if((u1 == null)||(u2 == null))
+			return false;
+		return u1.toExternalForm().equals(u2.toExternalForm());
+	}
+
+	/**
+	 * Return whether two doubles are the same, by comparing their bit patterns.
+	 * @param d1 The first double.
+	 * @param d2 The second double.
+	 * @return true if the doubles are the same.
+	 */
+	static boolean same(double d1,double d2)
+	{
+		return Double.doubleToLongBits(d1) == Double.doubleToLongBits(d2);
+	}
+
+	/**
+	 * Return whether two RAs are the same: both null, or with the same hours, minutes and seconds.
+	 * @param ra1 The first RA.
+	 * @param ra2 The second RA.
+	 * @return true if the RAs are the same.
+	 */
+	static boolean same(RA ra1,RA ra2)
+	{
+		if(ra1 == ra2)
+			return true;
+		if((ra1 == null)||(ra2 == null))
+			return false;
+		return (ra1.getHours() == ra2.getHours())&&(ra1.getMinutes() == ra2.getMinutes())&&
+			same(ra1.getSeconds(),ra2.getSeconds());
+	}
+
+	/**
+	 * Return whether two Decs are the same: both null, or with the same sign, degrees, minutes and seconds.
+	 * @param dec1 The first Dec.
+	 * @param dec2 The second Dec.
+	 * @return true if the Decs are the same.
+	 */
+	static boolean same(Dec dec1,Dec dec2)
+	{
+		if(dec1 == dec2)
+			return true;
+		if((dec1 == null)||(dec2 == null))
+			return false;
+		return (dec1.getNegative() == dec2.getNegative())&&(dec1.getDegrees() == dec2.getDegrees())&&
+			(dec1.getMinutes() == dec2.getMinutes())&&same(dec1.getSeconds(),dec2.getSeconds());
+	}
+
+	/**
+	 * Combine a hash code with the hash code of an object.
+	 * @param h The hash code so far.
+	 * @param o The object, which may be null (and then has a hash code of 0).
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,Object o)
+	{
+		if(o == null)
+			return HASH_MULTIPLIER*h;
+		return HASH_MULTIPLIER*h+o.hashCode();
+	}
+
+	/**
+	 * Combine a hash code with the hash code of a URL, the hash code of its external form.
+	 * @param h The hash code so far.
+	 * @param u The URL, which may be null.
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,URL u)
+	{
+		if(u == null)
+			return HASH_MULTIPLIER*h;
+		return HASH_MULTIPLIER*h+u.toExternalForm().hashCode();
+	}
+
+	/**
+	 * Combine a hash code with the hash code of a double (as Double.hashCode computes it).
+	 * @param h The hash code so far.
+	 * @param d The double.
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,double d)
+	{
+		long bits;
+
+		bits = Double.doubleToLongBits(d);
+		return HASH_MULTIPLIER*h+(int)(bits^(bits >>> 32));
+	}
+
+	/**
+	 * Combine a hash code with an integer.
+	 * @param h The hash code so far.
+	 * @param i The integer.
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,int i)
+	{
+		return HASH_MULTIPLIER*h+i;
+	}
+
+	/**
+	 * Combine a hash code with the hash code of a boolean (as Boolean.hashCode computes it).
+	 * @param h The hash code so far.
+	 * @param b The boolean.
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,boolean b)
+	{
+		return HASH_MULTIPLIER*h+(b ? 1231 : 1237);
+	}
+
+	/**
+	 * Combine a hash code with the hash code of an RA.
+	 * @param h The hash code so far.
+	 * @param ra The RA, which may be null.
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,RA ra)
+	{
+		if(ra == null)
+			return HASH_MULTIPLIER*h;
+		return hash(hash(hash(h,ra.getHours()),ra.getMinutes()),ra.getSeconds());
+	}
+
+	/**
+	 * Combine a hash code with the hash code of a Dec.
+	 * @param h The hash code so far.
+	 * @param dec The Dec, which may be null.
+	 * @return The combined hash code.
+	 */
+	static int hash(int h,Dec dec)
+	{
+		if(dec == null)
+			return HASH_MULTIPLIER*h;
+		return hash(hash(hash(hash(h,dec.getNegative()),dec.getDegrees()),dec.getMinutes()),dec.getSeconds());
+	}
+}
@@ -62,6 +62,17 @@ public class RTMLExtinctionConstraint implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param constraint The constraint to copy.
+	 */
+	public RTMLExtinctionConstraint(RTMLExtinctionConstraint constraint)
+	{
+		super();
+		clouds = constraint.clouds;
+		value = constraint.value;
+	}
+
 	/**
 	 * Set the value of extinction in magnitudes.
 	 * @param s The value specified as a string representation of a double.
@@ -256,6 +267,20 @@ public class RTMLExtinctionConstraint implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the extinction constraint, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,clouds);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
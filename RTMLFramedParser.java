@@ -0,0 +1,602 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLFramedParser.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * This class reads a continuous stream of RTML documents from one InputStream (or channel, e.g. a
+ * SocketChannel), and parses each document as it is completed. One RTMLParser is used for all the documents,
+ * so parser setup is paid once per connection rather than once per message.
+ * Two framing methods are supported:
+ * <ul>
+ * <li><b>FRAMING_LENGTH_PREFIXED</b> Each document is preceded by it's length in bytes, as a 4 byte
+ *     big-endian integer (DataOutputStream.writeInt). See writeFrame.
+ * <li><b>FRAMING_CONSECUTIVE</b> Documents are simply written one after another. The end of each document
+ *     is found by tracking element nesting, the document ends when it's root element is closed.
+ *     Whitespace, comments and processing instructions after the root element (up to the next
+ *     document's XML declaration, DOCTYPE or root element) are discarded. Only ASCII compatible encodings
+ *     (UTF-8, ISO-8859-1) are supported with this framing.
+ * </ul>
+ * <pre>
+ * RTMLParser parser = new RTMLParser();
+ * parser.init(false);
+ * RTMLFramedParser framedParser = new RTMLFramedParser(parser,socket.getInputStream(),
+ *                                                      RTMLFramedParser.FRAMING_CONSECUTIVE);
+ * RTMLDocument document = null;
+ * while((document = framedParser.next()) != null)
+ * 	process(document);
+ * </pre>
+ * An instance of RTMLFramedParser is not thread-safe.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParser
+ */
+public class RTMLFramedParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Framing constant. Each document is preceded by a 4 byte big-endian length.
+	 * @see #framing
+	 */
+	public final static int FRAMING_LENGTH_PREFIXED = 0;
+	/**
+	 * Framing constant. Documents follow each other, each ends when it's root element is closed.
+	 * @see #framing
+	 */
+	public final static int FRAMING_CONSECUTIVE = 1;
+	/**
+	 * The default maximum frame (document) length, in bytes.
+	 * @see #maxFrameLength
+	 */
+	public final static int DEFAULT_MAX_FRAME_LENGTH = 16*1024*1024;
+	/**
+	 * The start of an XML declaration, which starts a new document (when followed by whitespace).
+	 * @see #skipTrailingMisc
+	 */
+	private final static String XML_DECLARATION_START = "<?xml";
+	/**
+	 * The parser used to parse each document.
+	 */
+	private RTMLParser parser = null;
+	/**
+	 * The stream documents are read from.
+	 */
+	private InputStream inputStream = null;
+	/**
+	 * How documents are delimited in the stream, one of FRAMING_LENGTH_PREFIXED or FRAMING_CONSECUTIVE.
+	 * @see #FRAMING_LENGTH_PREFIXED
+	 * @see #FRAMING_CONSECUTIVE
+	 */
+	private int framing = FRAMING_CONSECUTIVE;
+	/**
+	 * The maximum length of a frame, in bytes. Longer frames cause an exception, rather than
+	 * reading an unbounded amount of data into memory.
+	 * @see #DEFAULT_MAX_FRAME_LENGTH
+	 */
+	private int maxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
+	/**
+	 * Buffer the current frame is read into. Re-used for each frame.
+	 * @see #nextConsecutiveFrame
+	 */
+	private ByteArrayOutputStream frameBuffer = null;
+	/**
+	 * The number of documents read so far.
+	 */
+	private int documentCount = 0;
+
+	/**
+	 * Constructor.
+	 * @param parser The parser to parse each document with. Must have been initialised (init), unless
+	 *        it uses the stream parse engine.
+	 * @param inputStream The stream to read documents from. If the stream is not buffered, it is wrapped
+	 *        in a BufferedInputStream.
+	 * @param framing How documents are delimited, one of FRAMING_LENGTH_PREFIXED or FRAMING_CONSECUTIVE.
+	 * @exception IllegalArgumentException Thrown if framing is not a legal framing.
+	 * @see #parser
+	 * @see #inputStream
+	 * @see #framing
+	 */
+	public RTMLFramedParser(RTMLParser parser,InputStream inputStream,int framing) throws IllegalArgumentException
+	{
+		super();
+		if((framing != FRAMING_LENGTH_PREFIXED)&&(framing != FRAMING_CONSECUTIVE))
+			throw new IllegalArgumentException(this.getClass().getName()+":Illegal framing:"+framing);
+		this.parser = parser;
+		if((inputStream instanceof BufferedInputStream)||(inputStream instanceof ByteArrayInputStream))
+			this.inputStream = inputStream;
+		else
+			this.inputStream = new BufferedInputStream(inputStream);
+		this.framing = framing;
+		frameBuffer = new ByteArrayOutputStream();
+	}
+
+	/**
+	 * Constructor, reading documents from a channel (e.g. a SocketChannel).
+	 * @param parser The parser to parse each document with.
+	 * @param channel The channel to read documents from.
+	 * @param framing How documents are delimited, one of FRAMING_LENGTH_PREFIXED or FRAMING_CONSECUTIVE.
+	 * @exception IllegalArgumentException Thrown if framing is not a legal framing.
+	 * @see #RTMLFramedParser(org.estar.rtml.RTMLParser,java.io.InputStream,int)
+	 */
+	public RTMLFramedParser(RTMLParser parser,ReadableByteChannel channel,int framing)
+		throws IllegalArgumentException
+	{
+		this(parser,Channels.newInputStream(channel),framing);
+	}
+
+	/**
+	 * Set the maximum length of a frame.
+	 * @param length The maximum length, in bytes.
+	 * @see #maxFrameLength
+	 */
+	public void setMaxFrameLength(int length)
+	{
+		maxFrameLength = length;
+	}
+
+	/**
+	 * Get the maximum length of a frame.
+	 * @return The maximum length, in bytes.
+	 * @see #maxFrameLength
+	 */
+	public int getMaxFrameLength()
+	{
+		return maxFrameLength;
+	}
+
+	/**
+	 * Get the number of documents read so far.
+	 * @return The number of documents.
+	 * @see #documentCount
+	 */
+	public int getDocumentCount()
+	{
+		return documentCount;
+	}
+
+	/**
+	 * Read and parse the next document in the stream. Blocks until the document is complete.
+	 * The parser is reset before each document.
+	 * @return The parsed document, or null if the end of the stream has been reached.
+	 * @exception RTMLException Thrown if reading the frame fails, the stream ends part way through
+	 *            a document, or the parse fails.
+	 * @exception ParseException Thrown if the parse fails.
+	 * @see #nextFrame
+	 * @see org.estar.rtml.RTMLParser#reset
+	 */
+	public RTMLDocument next() throws RTMLException, ParseException
+	{
+		byte frame[] = null;
+
+		frame = nextFrame();
+		if(frame == null)
+			return null;
+		parser.reset();
+		return parser.parse(new ByteArrayInputStream(frame));
+	}
+
+	/**
+	 * Read the next frame (the unparsed bytes of the next document) from the stream.
+	 * Blocks until the frame is complete.
+	 * @return A byte array containing the document, or null if the end of the stream has been reached.
+	 * @exception RTMLException Thrown if reading fails, the frame is too long, or the stream ends part way
+	 *            through a frame.
+	 * @see #nextLengthPrefixedFrame
+	 * @see #nextConsecutiveFrame
+	 */
+	public byte[] nextFrame() throws RTMLException
+	{
+		byte frame[] = null;
+
+		try
+		{
+			if(framing == FRAMING_LENGTH_PREFIXED)
+				frame = nextLengthPrefixedFrame();
+			else
+				frame = nextConsecutiveFrame();
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":nextFrame:Document "+documentCount+
+						":Read failed.",e);
+		}
+		if(frame != null)
+			documentCount++;
+		return frame;
+	}
+
+	/**
+	 * Close the underlying stream.
+	 * @exception IOException Thrown if the close fails.
+	 */
+	public void close() throws IOException
+	{
+		inputStream.close();
+	}
+
+	/**
+	 * Write a document to a stream as a length prefixed frame, for reading with FRAMING_LENGTH_PREFIXED.
+	 * @param outputStream The stream to write to.
+	 * @param document The bytes of the document, e.g. RTMLCreate.toXMLString().getBytes().
+	 * @exception IOException Thrown if the write fails.
+	 * @see #FRAMING_LENGTH_PREFIXED
+	 */
+	public static void writeFrame(OutputStream outputStream,byte document[]) throws IOException
+	{
+		DataOutputStream dos = null;
+
+		dos = new DataOutputStream(outputStream);
+		dos.writeInt(document.length);
+		dos.write(document);
+		dos.flush();
+	}
+
+	/**
+	 * Internal method to read a length prefixed frame.
+	 * @return The frame, or null if the end of the stream was reached before the length.
+	 * @exception RTMLException Thrown if the length is illegal, or the stream ends part way through the frame.
+	 * @exception IOException Thrown if a read fails.
+	 */
+	private byte[] nextLengthPrefixedFrame() throws RTMLException, IOException
+	{
+		byte lengthBytes[] = new byte[4];
+		byte frame[] = null;
+		int length,offset,count;
+
+		offset = 0;
+		while(offset < lengthBytes.length)
+		{
+			count = inputStream.read(lengthBytes,offset,lengthBytes.length-offset);
+			if(count < 0)
+			{
+				if(offset == 0)
+					return null;
+				throw new RTMLException(this.getClass().getName()+":nextLengthPrefixedFrame:Document "+
+							documentCount+":Stream ended in frame length.");
+			}
+			offset += count;
+		}
+		length = ((lengthBytes[0]&0xff)<<24)|((lengthBytes[1]&0xff)<<16)|((lengthBytes[2]&0xff)<<8)|
+			(lengthBytes[3]&0xff);
+		if((length < 0)||(length > maxFrameLength))
+		{
+			throw new RTMLException(this.getClass().getName()+":nextLengthPrefixedFrame:Document "+
+						documentCount+":Illegal frame length:"+length);
+		}
+		frame = new byte[length];
+		offset = 0;
+		while(offset < length)
+		{
+			count = inputStream.read(frame,offset,length-offset);
+			if(count < 0)
+			{
+				throw new RTMLException(this.getClass().getName()+":nextLengthPrefixedFrame:Document "+
+							documentCount+":Stream ended after "+offset+" of "+length+
+							" bytes.");
+			}
+			offset += count;
+		}
+		return frame;
+	}
+
+	/**
+	 * Internal method to read a consecutive frame. Bytes are read until the root element of the document
+	 * is closed. Any whitespace, comments and processing instructions following the previous document's root
+	 * element are skipped first (see skipTrailingMisc). Element nesting is tracked through start tags, end tags and empty element tags, skipping
+	 * the XML declaration, processing instructions, comments, CDATA sections, the DOCTYPE (including any
+	 * internal subset) and quoted attribute values, so markup characters within them are not mis-counted.
+	 * The document is not otherwise checked, that is done by the parser.
+	 * @return The frame, or null if the end of the stream was reached before any non-whitespace byte.
+	 * @exception RTMLException Thrown if the stream ends part way through the document, or the frame is too long.
+	 * @exception IOException Thrown if a read fails.
+	 * @see #frameBuffer
+	 * @see #readFrameByte
+	 * @see #skipUntil
+	 * @see #skipTrailingMisc
+	 */
+	private byte[] nextConsecutiveFrame() throws RTMLException, IOException
+	{
+		int depth,b,previous,quote;
+
+		if(skipTrailingMisc() == false)
+			return null;
+		frameBuffer.reset();
+		b = readFrameByte();
+		depth = 0;
+		while(true)
+		{
+			if(b != '<')
+			{
+				b = readFrameByte();
+				continue;
+			}
+			b = readFrameByte();
+			if(b == '?')
+			{
+				// XML declaration or processing instruction
+				skipUntil("?>");
+			}
+			else if(b == '!')
+			{
+				b = readFrameByte();
+				if(b == '-')
+				{
+					// comment
+					readFrameByte();
+					skipUntil("-->");
+				}
+				else if(b == '[')
+				{
+					// CDATA section
+					skipUntil("]]>");
+				}
+				else
+				{
+					// DOCTYPE, possibly with an internal subset
+					skipDoctype(b);
+				}
+			}
+			else if(b == '/')
+			{
+				// end tag
+				skipUntil(">");
+				depth--;
+				if(depth <= 0)
+					return frameBuffer.toByteArray();
+			}
+			else
+			{
+				// start tag, or empty element tag
+				quote = 0;
+				previous = b;
+				while((b != '>')||(quote != 0))
+				{
+					previous = b;
+					b = readFrameByte();
+					if(quote != 0)
+					{
+						if(b == quote)
+							quote = 0;
+					}
+					else if((b == '"')||(b == '\''))
+						quote = b;
+				}
+				if(previous != '/')
+					depth++;
+				else if(depth == 0)
+					return frameBuffer.toByteArray();
+			}
+			b = readFrameByte();
+		}
+	}
+
+	/**
+	 * Internal method to skip the whitespace, comments and processing instructions between the end of the
+	 * previous document's root element and the start of the next document (it's XML declaration,
+	 * DOCTYPE or root element), which are not part of either frame. They are skipped before reading the next
+	 * frame, rather than after the previous root element is closed, so that reading a frame does not block
+	 * waiting for the next document to arrive. The stream is left positioned at the start of the next
+	 * document. Comments and processing instructions before a document without an XML declaration are also
+	 * skipped, which does not change the document.
+	 * @return true if the stream is positioned at the next document, false if the end of the stream
+	 *         was reached.
+	 * @exception RTMLException Thrown if the stream ends part way through a comment or processing
+	 *            instruction.
+	 * @exception IOException Thrown if a read fails.
+	 * @see #XML_DECLARATION_START
+	 */
+	private boolean skipTrailingMisc() throws RTMLException, IOException
+	{
+		int b,previous,index;
+
+		while(true)
+		{
+			// the skipped markup is read into the frame buffer (and checked against maxFrameLength),
+			// which is reset before the next document is read
+			frameBuffer.reset();
+			inputStream.mark(XML_DECLARATION_START.length()+1);
+			b = inputStream.read();
+			if(b < 0)
+				return false;
+			if((b == ' ')||(b == '\t')||(b == '\r')||(b == '\n'))
+				continue;
+			if(b != '<')
+			{
+				inputStream.reset();
+				return true;
+			}
+			b = inputStream.read();
+			if(b == '?')
+			{
+				// the XML declaration starts the next document, any other processing instruction is skipped
+				index = 2;
+				while((index < XML_DECLARATION_START.length())&&
+				      ((b = inputStream.read()) == XML_DECLARATION_START.charAt(index)))
+				{
+					index++;
+				}
+				if(index == XML_DECLARATION_START.length())
+					b = inputStream.read();
+				if((index == XML_DECLARATION_START.length())&&
+				   ((b == ' ')||(b == '\t')||(b == '\r')||(b == '\n')))
+				{
+					inputStream.reset();
+					return true;
+				}
+				// skip the processing instruction, b is the last byte read (the terminator may have started)
+				previous = 0;
+				while((previous != '?')||(b != '>'))
+				{
+					previous = b;
+					b = readFrameByte();
+				}
+			}
+			else if(b == '!')
+			{
+				b = inputStream.read();
+				if(b != '-')
+				{
+					// DOCTYPE
+					inputStream.reset();
+					return true;
+				}
+				readFrameByte();
+				skipUntil("-->");
+			}
+			else
+			{
+				// root element (or end of stream, which the frame read reports)
+				inputStream.reset();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Internal method to read bytes into the frame until the specified terminator has been read.
+	 * @param terminator The terminating sequence, e.g. "-->".
+	 * @exception RTMLException Thrown if the stream ends, or the frame is too long.
+	 * @exception IOException Thrown if a read fails.
+	 * @see #readFrameByte
+	 */
+	private void skipUntil(String terminator) throws RTMLException, IOException
+	{
+		int window[] = null;
+		int length,count,index;
+		boolean matched = false;
+
+		// window holds the last length bytes read, as a circular buffer
+		length = terminator.length();
+		window = new int[length];
+		count = 0;
+		while(matched == false)
+		{
+			window[count%length] = readFrameByte();
+			count++;
+			if(count >= length)
+			{
+				matched = true;
+				for(int i = 0; (i < length) && matched; i++)
+				{
+					index = (count+i)%length;
+					matched = (window[index] == terminator.charAt(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal method to read a DOCTYPE declaration into the frame, up to and including the closing '>'.
+	 * Quoted strings and an internal subset ([...]) are skipped. Within the internal subset, comments and
+	 * processing instructions are skipped before looking for quotes, as they may contain unmatched quote
+	 * characters (e.g. "&lt;!-- it's --&gt;").
+	 * @param b The first byte after "&lt;!".
+	 * @exception RTMLException Thrown if the stream ends, or the frame is too long.
+	 * @exception IOException Thrown if a read fails.
+	 * @see #readFrameByte
+	 */
+	private void skipDoctype(int b) throws RTMLException, IOException
+	{
+		int quote = 0;
+		boolean inSubset = false;
+
+		while((b != '>')||(quote != 0)||inSubset)
+		{
+			b = readFrameByte();
+			if(quote != 0)
+			{
+				if(b == quote)
+					quote = 0;
+			}
+			else if((b == '"')||(b == '\''))
+				quote = b;
+			else if(b == '[')
+				inSubset = true;
+			else if(b == ']')
+				inSubset = false;
+			else if(inSubset && (b == '<'))
+			{
+				b = readFrameByte();
+				if(b == '?')
+					skipUntil("?>");
+				else if(b == '!')
+				{
+					b = readFrameByte();
+					if(b == '-')
+					{
+						readFrameByte();
+						skipUntil("-->");
+					}
+					else if((b == '"')||(b == '\''))
+						quote = b;
+				}
+				else if((b == '"')||(b == '\''))
+					quote = b;
+			}
+		}
+	}
+
+	/**
+	 * Internal method to read the next byte of the current frame, and add it to the frame buffer.
+	 * @return The byte read.
+	 * @exception RTMLException Thrown if the stream ends, or the frame is too long.
+	 * @exception IOException Thrown if the read fails.
+	 * @see #addFrameByte
+	 */
+	private int readFrameByte() throws RTMLException, IOException
+	{
+		int b;
+
+		b = inputStream.read();
+		if(b < 0)
+		{
+			throw new RTMLException(this.getClass().getName()+":readFrameByte:Document "+documentCount+
+						":Stream ended after "+frameBuffer.size()+" bytes.");
+		}
+		addFrameByte(b);
+		return b;
+	}
+
+	/**
+	 * Internal method to add a byte to the frame buffer.
+	 * @param b The byte.
+	 * @exception RTMLException Thrown if the frame is too long.
+	 * @see #frameBuffer
+	 * @see #maxFrameLength
+	 */
+	private void addFrameByte(int b) throws RTMLException
+	{
+		if(frameBuffer.size() >= maxFrameLength)
+		{
+			throw new RTMLException(this.getClass().getName()+":addFrameByte:Document "+documentCount+
+						":Frame longer than "+maxFrameLength+" bytes.");
+		}
+		frameBuffer.write(b);
+	}
+}
@@ -0,0 +1,372 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLGrammarCache.java
+package org.estar.rtml;
+
+import java.io.*;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.xml.sax.SAXException;
+
+/**
+ * This class is a process-wide cache of the grammars used to validate RTML documents, shared by all
+ * RTMLParser and RTMLCreate instances, so validation cost is paid per document rather than per grammar load.
+ * <ul>
+ * <li>RTML 3.1a: the RTML Schema (and the EphemerisTrack extension schema) is compiled once into a
+ *     (thread-safe) javax.xml.validation.Schema.
+ *     The schema is read from RTMLParser's schema source file if set, otherwise from RTML31Create's schema URL.
+ *     Documents are validated against this Schema, whatever their xsi:schemaLocation says.
+ * <li>RTML 2.2: JAXP has no public API for caching a compiled DTD, so the DTD is cached by
+ *     RTMLEntityResolver as a compact copy (compactDTD), with the 110 KB of comments removed.
+ *     The DTD grammar is rebuilt from the compact copy for each document, which costs about half as much
+ *     as rebuilding it from the original DTD. If the JAXP implementation is Xerces and it's
+ *     grammar pool class is accessible (Apache Xerces on the classpath, the JDK's internal Xerces before
+ *     Java 9, or later JDKs run with --add-exports java.xml/com.sun.org.apache.xerces.internal.util=ALL-UNNAMED)
+ *     a shared grammar pool is also created, so the DTD is compiled only once.
+ * </ul>
+ * Grammars are resolved through RTMLEntityResolver, so the schema (and the schemas it imports) are compiled
+ * from the copies bundled with this package, and are never fetched over the network.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParser
+ * @see org.estar.rtml.RTMLCreate
+ * @see org.estar.rtml.RTMLEntityResolver
+ */
+public class RTMLGrammarCache
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Xerces property used to set a grammar pool on a parser (DocumentBuilderFactory attribute).
+	 */
+	static final String XERCES_GRAMMAR_POOL = "http://apache.org/xml/properties/internal/grammar-pool";
+	/**
+	 * List of Xerces grammar pool implementation class names to try, in order.
+	 */
+	private final static String GRAMMAR_POOL_CLASS_NAME_LIST[] =
+	{
+		"org.apache.xerces.util.XMLGrammarPoolImpl",
+		"com.sun.org.apache.xerces.internal.util.XMLGrammarPoolImpl"
+	};
+	/**
+	 * The compiled RTML 3.1a Schema, or null if it has not been compiled yet.
+	 * @see #getSchema
+	 */
+	private static Schema schema = null;
+	/**
+	 * The Xerces grammar pool, or null if it has not been created, or no grammar pool is available.
+	 * @see #getGrammarPool
+	 */
+	private static Object grammarPool = null;
+	/**
+	 * Whether we have tried to create the grammar pool.
+	 * @see #getGrammarPool
+	 */
+	private static boolean grammarPoolCreated = false;
+
+	/**
+	 * Constructor. Private, all methods are static.
+	 */
+	private RTMLGrammarCache()
+	{
+		super();
+	}
+
+	/**
+	 * Return the compiled RTML 3.1a Schema, compiling it if this is the first call (or the cache has been cleared).
+	 * The schema is read from RTMLParser's schema source file if set, otherwise the copy of RTML31Create's
+	 * schema URL bundled with this package is used. The (bundled) EphemerisTrack schema is compiled into
+	 * the same Schema, as RTML 3.1a's Target element strictly validates elements from other namespaces.
+	 * Imported schemas are resolved by RTMLEntityResolver.
+	 * A Schema is immutable and thread-safe, and can be shared by all parsers.
+	 * @return The compiled schema.
+	 * @exception RTMLException Thrown if the schema cannot be read or compiled.
+	 * @see #schema
+	 * @see #getBundledSource
+	 * @see org.estar.rtml.RTMLParser#getSchemaSource
+	 * @see org.estar.rtml.RTML31Create#getSchemaURLString
+	 * @see org.estar.rtml.RTML31Create#EPHEMERIS_TRACK_SCHEMA_URL_STRING
+	 */
+	public static synchronized Schema getSchema() throws RTMLException
+	{
+		SchemaFactory schemaFactory = null;
+		StreamSource sourceList[] = null;
+		String filename = null;
+
+		if(schema == null)
+		{
+			sourceList = new StreamSource[2];
+			filename = RTMLParser.getSchemaSource();
+			if(filename != null)
+				sourceList[0] = new StreamSource(new File(filename));
+			else
+				sourceList[0] = getBundledSource(RTML31Create.getSchemaURLString());
+			sourceList[1] = getBundledSource(RTML31Create.EPHEMERIS_TRACK_SCHEMA_URL_STRING);
+			try
+			{
+				schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+				schemaFactory.setResourceResolver(RTMLEntityResolver.getInstance());
+				schema = schemaFactory.newSchema(sourceList);
+			}
+			catch(SAXException e)
+			{
+				throw new RTMLException("RTMLGrammarCache:getSchema:Failed to compile schema "+
+							sourceList[0].getSystemId()+":",e);
+			}
+			catch(IllegalStateException e)
+			{
+				// RTMLEntityResolver refused to resolve an imported schema
+				throw new RTMLException("RTMLGrammarCache:getSchema:Failed to compile schema "+
+							sourceList[0].getSystemId()+":",e);
+			}
+		}
+		return schema;
+	}
+
+	/**
+	 * Return a source for a schema in the RTMLEntityResolver catalog.
+	 * @param systemId The system ID (URL) of the schema.
+	 * @return A source, reading the (cached) contents of the schema, with it's system ID set.
+	 * @exception RTMLException Thrown if the schema is not in the catalog, or cannot be read.
+	 * @see org.estar.rtml.RTMLEntityResolver#getContents
+	 */
+	private static StreamSource getBundledSource(String systemId) throws RTMLException
+	{
+		byte contents[] = null;
+
+		try
+		{
+			contents = RTMLEntityResolver.getContents(systemId);
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException("RTMLGrammarCache:getBundledSource:Failed to read schema "+
+						systemId+":",e);
+		}
+		if(contents == null)
+		{
+			throw new RTMLException("RTMLGrammarCache:getBundledSource:Schema "+systemId+
+						" is not in the RTMLEntityResolver catalog.");
+		}
+		return new StreamSource(new ByteArrayInputStream(contents),systemId);
+	}
+
+	/**
+	 * Return the shared Xerces grammar pool, creating it if this is the first call. The grammar pool
+	 * is a Xerces internal class, so it is created using reflection, and may not be available: on Java 9
+	 * and later the JDK's internal Xerces package is not exported, so unless the JVM is run with
+	 * --add-exports java.xml/com.sun.org.apache.xerces.internal.util=ALL-UNNAMED (or Apache Xerces is on
+	 * the classpath) this returns null, and DTDs are recompiled for every document.
+	 * Xerces grammar pools are thread-safe.
+	 * @return The grammar pool, or null if one is not available.
+	 * @see #grammarPool
+	 * @see #grammarPoolCreated
+	 * @see #GRAMMAR_POOL_CLASS_NAME_LIST
+	 */
+	public static synchronized Object getGrammarPool()
+	{
+		if(grammarPoolCreated == false)
+		{
+			grammarPoolCreated = true;
+			for(int i = 0; (i < GRAMMAR_POOL_CLASS_NAME_LIST.length)&&(grammarPool == null); i++)
+			{
+				try
+				{
+					grammarPool = Class.forName(GRAMMAR_POOL_CLASS_NAME_LIST[i]).
+						getDeclaredConstructor().newInstance();
+				}
+				catch(Throwable t)
+				{
+					// not available (class not found, or not accessible), try next
+					grammarPool = null;
+				}
+			}
+		}
+		return grammarPool;
+	}
+
+	/**
+	 * Return a compact copy of a DTD, with the comments removed. The declarations (and any processing
+	 * instructions and conditional sections) are copied unchanged, quoted literals inside declarations are
+	 * copied without being searched for comments, and runs of blank lines are reduced to a single newline.
+	 * The RTML 2.2 DTD is 120 KB, of which about 110 KB is comments (documentation and examples),
+	 * and JAXP re-scans the whole DTD for every document validated against it. Without a grammar pool,
+	 * scanning the compact copy roughly halves the cost of a validated RTML 2.2 parse (RTMLParser.parse of
+	 * a typical document took about 2.4 ms with the original DTD, and 1.3 ms with the compact copy, on JDK 17).
+	 * The DTD is scanned byte by byte, so it must be in an encoding where the markup characters are single
+	 * ASCII bytes (e.g. ISO-8859-1, US-ASCII or UTF-8). DTDs starting with a UTF-16 or UTF-32 byte order
+	 * mark or a null byte are returned unchanged. Note line numbers in errors reported for the DTD itself
+	 * refer to the compact copy.
+	 * @param contents The DTD.
+	 * @return A new byte array containing the compact DTD, or contents if the DTD is not in a supported encoding.
+	 * @see org.estar.rtml.RTMLEntityResolver#getContents
+	 */
+	public static byte[] compactDTD(byte contents[])
+	{
+		ByteArrayOutputStream bos = null;
+		int index,endIndex,newlineCount;
+		byte quote;
+
+		if((contents.length > 0)&&((contents[0] == (byte)0xfe)||(contents[0] == (byte)0xff)||
+					   (contents[0] == 0)))
+			return contents;
+		bos = new ByteArrayOutputStream(contents.length);
+		index = 0;
+		newlineCount = 0;
+		while(index < contents.length)
+		{
+			if(startsWith(contents,index,"<!--"))
+			{
+				// comment, skip it
+				endIndex = indexOf(contents,index+4,"-->");
+				if(endIndex < 0)
+					return contents;
+				index = endIndex+3;
+			}
+			else if(startsWith(contents,index,"<?"))
+			{
+				// processing instruction (or the text declaration), copy it
+				endIndex = indexOf(contents,index+2,"?>");
+				if(endIndex < 0)
+					return contents;
+				bos.write(contents,index,endIndex+2-index);
+				index = endIndex+2;
+				newlineCount = 0;
+			}
+			else if(startsWith(contents,index,"<!")&&(startsWith(contents,index,"<![") == false))
+			{
+				// markup declaration, copy it up to the unquoted closing '>'
+				endIndex = index+2;
+				quote = 0;
+				while((endIndex < contents.length)&&((quote != 0)||(contents[endIndex] != '>')))
+				{
+					if(quote != 0)
+					{
+						if(contents[endIndex] == quote)
+							quote = 0;
+					}
+					else if((contents[endIndex] == '"')||(contents[endIndex] == '\''))
+						quote = contents[endIndex];
+					endIndex++;
+				}
+				if(endIndex >= contents.length)
+					return contents;
+				bos.write(contents,index,endIndex+1-index);
+				index = endIndex+1;
+				newlineCount = 0;
+			}
+			else if((contents[index] == '\n')||(contents[index] == '\r'))
+			{
+				// keep one newline between declarations
+				if(newlineCount == 0)
+					bos.write('\n');
+				newlineCount++;
+				index++;
+			}
+			else
+			{
+				// conditional section brackets, parameter entity references, and whitespace
+				bos.write(contents[index]);
+				index++;
+			}
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Return whether the byte array contains the specified (ASCII) string at the specified index.
+	 * @param contents The byte array.
+	 * @param index The index to look at.
+	 * @param s The string.
+	 * @return true if the string is at the index, false otherwise.
+	 * @see #compactDTD
+	 */
+	private static boolean startsWith(byte contents[],int index,String s)
+	{
+		if(index+s.length() > contents.length)
+			return false;
+		for(int i = 0; i < s.length(); i++)
+		{
+			if(contents[index+i] != (byte)(s.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the index of the first occurence of the specified (ASCII) string in the byte array,
+	 * starting at the specified index.
+	 * @param contents The byte array.
+	 * @param index The index to start looking at.
+	 * @param s The string.
+	 * @return The index of the string, or -1 if it was not found.
+	 * @see #compactDTD
+	 */
+	private static int indexOf(byte contents[],int index,String s)
+	{
+		for(int i = index; i+s.length() <= contents.length; i++)
+		{
+			if(startsWith(contents,i,s))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Clear the compiled Schema. The next call to getSchema recompiles the schema.
+	 * @see #schema
+	 */
+	public static synchronized void clearSchema()
+	{
+		schema = null;
+	}
+
+	/**
+	 * Clear the cache. The next call to getSchema recompiles the schema, and grammars are re-read.
+	 * The grammar pool is kept, but emptied.
+	 * @see #schema
+	 * @see #grammarPool
+	 * @see org.estar.rtml.RTMLEntityResolver#clear
+	 */
+	public static synchronized void clear()
+	{
+		schema = null;
+		RTMLEntityResolver.clear();
+		if(grammarPool != null)
+		{
+			try
+			{
+				grammarPool.getClass().getMethod("clear",new Class[0]).invoke(grammarPool,new Object[0]);
+			}
+			catch(Exception e)
+			{
+				// create a new pool on next use
+				grammarPool = null;
+				grammarPoolCreated = false;
+			}
+		}
+	}
+}
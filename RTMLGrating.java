@@ -68,6 +68,20 @@ public class RTMLGrating implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param grating The grating to copy.
+	 */
+	public RTMLGrating(RTMLGrating grating)
+	{
+		super();
+		name = grating.name;
+		wavelength = grating.wavelength;
+		wavelengthUnits = grating.wavelengthUnits;
+		resolution = grating.resolution;
+		angle = grating.angle;
+	}
+
 	/**
 	 * Set the name of the grating.
 	 * @param s The name.
@@ -327,6 +341,48 @@ public class RTMLGrating implements Serializable
 		return df.format(angle);
 	}
 
+	/**
+	 * Test whether one grating is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #name
+	 * @see #wavelength
+	 * @see #wavelengthUnits
+	 * @see #resolution
+	 * @see #angle
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLGrating other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLGrating) == false)
+			return false;
+		other = (RTMLGrating)obj;
+		return RTMLEquality.same(name,other.name)&&RTMLEquality.same(wavelength,other.wavelength)&&
+			RTMLEquality.same(wavelengthUnits,other.wavelengthUnits)&&
+			RTMLEquality.same(resolution,other.resolution)&&RTMLEquality.same(angle,other.angle);
+	}
+
+	/**
+	 * Return a hash code for the grating, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,name);
+		hash = RTMLEquality.hash(hash,wavelength);
+		hash = RTMLEquality.hash(hash,wavelengthUnits);
+		hash = RTMLEquality.hash(hash,resolution);
+		hash = RTMLEquality.hash(hash,angle);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @see #toString(java.lang.String)
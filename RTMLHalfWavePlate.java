@@ -75,6 +75,16 @@ public class RTMLHalfWavePlate implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param halfWavePlate The half-wave plate to copy.
+	 */
+	public RTMLHalfWavePlate(RTMLHalfWavePlate halfWavePlate)
+	{
+		super();
+		rotorSpeed = halfWavePlate.rotorSpeed;
+	}
+
 	/**
 	 * Set the rotator speed of the half-wave plate from a string..
 	 * @param s The rotator speed, one of "slow" or "fast".
@@ -150,6 +160,38 @@ public class RTMLHalfWavePlate implements Serializable
 		}
 	}
 	
+	/**
+	 * Test whether one half-wave plate is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #rotorSpeed
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLHalfWavePlate other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLHalfWavePlate) == false)
+			return false;
+		other = (RTMLHalfWavePlate)obj;
+		return (rotorSpeed == other.rotorSpeed);
+	}
+
+	/**
+	 * Return a hash code for the half-wave plate, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,rotorSpeed);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @see #toString(java.lang.String)
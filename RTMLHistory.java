@@ -55,6 +55,28 @@ public class RTMLHistory implements Serializable
 		entryList = new Vector();
 	}
 
+	/**
+	 * Copy constructor. The entries are also copied.
+	 * @param history The history to copy.
+	 */
+	public RTMLHistory(RTMLHistory history)
+	{
+		super();
+		RTMLHistoryEntry entry = null;
+
+		if(history.entryList != null)
+		{
+			entryList = new Vector(history.entryList.size());
+			for(int i = 0; i < history.entryList.size(); i++)
+			{
+				entry = (RTMLHistoryEntry)(history.entryList.get(i));
+				if(entry != null)
+					entry = new RTMLHistoryEntry(entry);
+				entryList.add(entry);
+			}
+		}
+	}
+
 	/**
 	 * Add an entry to the document.
 	 * @param e The entry to add.
@@ -95,6 +117,38 @@ public class RTMLHistory implements Serializable
 		return entryList.size();
 	}
 
+	/**
+	 * Test whether one history is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #entryList
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLHistory other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLHistory) == false)
+			return false;
+		other = (RTMLHistory)obj;
+		return RTMLEquality.same(entryList,other.entryList);
+	}
+
+	/**
+	 * Return a hash code for the history, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,entryList);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @see #toString(java.lang.String)
@@ -104,6 +104,24 @@ public class RTMLHistoryEntry implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor. The agent is also copied.
+	 * @param entry The history entry to copy.
+	 */
+	public RTMLHistoryEntry(RTMLHistoryEntry entry)
+	{
+		super();
+		if(entry.timeStamp != null)
+			timeStamp = new Date(entry.timeStamp.getTime());
+		if(entry.agent != null)
+			agent = new RTMLIntelligentAgent(entry.agent);
+		description = entry.description;
+		error = entry.error;
+		rejectionReason = entry.rejectionReason;
+		rejectionDescription = entry.rejectionDescription;
+		version = entry.version;
+	}
+
 	/**
 	 * Set the time stamp of the entry.
 	 * @param s The time stamp, as a string in the format "2005-07-20T12:34:56".
@@ -116,7 +134,7 @@ public class RTMLHistoryEntry implements Serializable
 	{
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		timeStamp = dateFormat.parse(s);
 	}
 
@@ -281,6 +299,55 @@ public class RTMLHistoryEntry implements Serializable
 		return version;
 	}
 
+	/**
+	 * Test whether one history entry is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #timeStamp
+	 * @see #agent
+	 * @see #description
+	 * @see #error
+	 * @see #rejectionReason
+	 * @see #rejectionDescription
+	 * @see #version
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLHistoryEntry other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLHistoryEntry) == false)
+			return false;
+		other = (RTMLHistoryEntry)obj;
+		return RTMLEquality.same(timeStamp,other.timeStamp)&&RTMLEquality.same(agent,other.agent)&&
+			RTMLEquality.same(description,other.description)&&
+			RTMLEquality.same(error,other.error)&&
+			RTMLEquality.same(rejectionReason,other.rejectionReason)&&
+			RTMLEquality.same(rejectionDescription,other.rejectionDescription)&&
+			(version == other.version);
+	}
+
+	/**
+	 * Return a hash code for the history entry, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,timeStamp);
+		hash = RTMLEquality.hash(hash,agent);
+		hash = RTMLEquality.hash(hash,description);
+		hash = RTMLEquality.hash(hash,error);
+		hash = RTMLEquality.hash(hash,rejectionReason);
+		hash = RTMLEquality.hash(hash,rejectionDescription);
+		hash = RTMLEquality.hash(hash,version);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @see #toString(java.lang.String)
@@ -73,6 +73,21 @@ public class RTMLImageData implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param imageData The image data to copy.
+	 */
+	public RTMLImageData(RTMLImageData imageData)
+	{
+		super();
+		objectListType = imageData.objectListType;
+		objectListClusterString = imageData.objectListClusterString;
+		objectListVOTableURL = imageData.objectListVOTableURL;
+		imageDataType = imageData.imageDataType;
+		imageDataURL = imageData.imageDataURL;
+		fitsHeader = imageData.fitsHeader;
+	}
+
 	/**
 	 * Set the object list type.
 	 * @param s The type of the object list. Should be either "cluster", "xml" or "votable-url". 
@@ -222,6 +237,53 @@ public class RTMLImageData implements Serializable
 		return fitsHeader;
 	}
 
+	/**
+	 * Test whether one image data is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #objectListType
+	 * @see #objectListClusterString
+	 * @see #objectListVOTableURL
+	 * @see #imageDataType
+	 * @see #imageDataURL
+	 * @see #fitsHeader
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLImageData other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLImageData) == false)
+			return false;
+		other = (RTMLImageData)obj;
+		return RTMLEquality.same(objectListType,other.objectListType)&&
+			RTMLEquality.same(objectListClusterString,other.objectListClusterString)&&
+			RTMLEquality.same(objectListVOTableURL,other.objectListVOTableURL)&&
+			RTMLEquality.same(imageDataType,other.imageDataType)&&
+			RTMLEquality.same(imageDataURL,other.imageDataURL)&&
+			RTMLEquality.same(fitsHeader,other.fitsHeader);
+	}
+
+	/**
+	 * Return a hash code for the image data, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,objectListType);
+		hash = RTMLEquality.hash(hash,objectListClusterString);
+		hash = RTMLEquality.hash(hash,objectListVOTableURL);
+		hash = RTMLEquality.hash(hash,imageDataType);
+		hash = RTMLEquality.hash(hash,imageDataURL);
+		hash = RTMLEquality.hash(hash,fitsHeader);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
@@ -64,6 +64,19 @@ public class RTMLIntelligentAgent implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param agent The intelligent agent to copy.
+	 */
+	public RTMLIntelligentAgent(RTMLIntelligentAgent agent)
+	{
+		super();
+		id = agent.id;
+		hostname = agent.hostname;
+		port = agent.port;
+		uri = agent.uri;
+	}
+
 	public void setId(String s)
 	{
 		id = s;
@@ -132,6 +145,45 @@ public class RTMLIntelligentAgent implements Serializable
 		return uri;
 	}
 
+	/**
+	 * Test whether one intelligent agent is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #id
+	 * @see #hostname
+	 * @see #port
+	 * @see #uri
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLIntelligentAgent other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLIntelligentAgent) == false)
+			return false;
+		other = (RTMLIntelligentAgent)obj;
+		return RTMLEquality.same(id,other.id)&&RTMLEquality.same(hostname,other.hostname)&&
+			(port == other.port)&&RTMLEquality.same(uri,other.uri);
+	}
+
+	/**
+	 * Return a hash code for the intelligent agent, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,id);
+		hash = RTMLEquality.hash(hash,hostname);
+		hash = RTMLEquality.hash(hash,port);
+		hash = RTMLEquality.hash(hash,uri);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
@@ -79,6 +79,19 @@ public class RTMLMoonConstraint implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param constraint The constraint to copy.
+	 */
+	public RTMLMoonConstraint(RTMLMoonConstraint constraint)
+	{
+		super();
+		maxPhase = constraint.maxPhase;
+		distance = constraint.distance;
+		units = constraint.units;
+		width = constraint.width;
+	}
+
 	/**
 	 * Set the minimum distance from the moon, in <i>units</i> angular units.. 
 	 * @param s The string, which should parse as a double.
@@ -232,6 +245,17 @@ public class RTMLMoonConstraint implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the moon constraint, consistent with equals.
+	 * The distance is compared with a tolerance, so is not used.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		return getClass().getName().hashCode();
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
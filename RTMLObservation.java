@@ -71,6 +71,34 @@ public class RTMLObservation implements Serializable, RTMLDeviceHolder, RTMLTarg
 		imageDataList = new Vector();
 	}
 
+	/**
+	 * Copy constructor. The device, target, schedule and image data are also copied.
+	 * @param observation The observation to copy.
+	 */
+	public RTMLObservation(RTMLObservation observation)
+	{
+		super();
+		RTMLImageData imageData = null;
+
+		if(observation.device != null)
+			device = new RTMLDevice(observation.device);
+		if(observation.target != null)
+			target = new RTMLTarget(observation.target);
+		if(observation.schedule != null)
+			schedule = new RTMLSchedule(observation.schedule);
+		if(observation.imageDataList != null)
+		{
+			imageDataList = new Vector(observation.imageDataList.size());
+			for(int i = 0; i < observation.imageDataList.size(); i++)
+			{
+				imageData = (RTMLImageData)(observation.imageDataList.get(i));
+				if(imageData != null)
+					imageData = new RTMLImageData(imageData);
+				imageDataList.add(imageData);
+			}
+		}
+	}
+
 	/**
 	 * Set the device.
 	 * @param d The device to set.
@@ -202,6 +230,46 @@ public class RTMLObservation implements Serializable, RTMLDeviceHolder, RTMLTarg
 			return 0;
 	}
 
+	/**
+	 * Test whether one observation is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #device
+	 * @see #target
+	 * @see #schedule
+	 * @see #imageDataList
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLObservation other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLObservation) == false)
+			return false;
+		other = (RTMLObservation)obj;
+		return RTMLEquality.same(device,other.device)&&RTMLEquality.same(target,other.target)&&
+			RTMLEquality.same(schedule,other.schedule)&&
+			RTMLEquality.same(imageDataList,other.imageDataList);
+	}
+
+	/**
+	 * Return a hash code for the observation, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,device);
+		hash = RTMLEquality.hash(hash,target);
+		hash = RTMLEquality.hash(hash,schedule);
+		hash = RTMLEquality.hash(hash,imageDataList);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
@@ -0,0 +1,613 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLParseCache.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * This class is a cache of parsed documents, in front of an RTMLParserPool, keyed by the bytes of the
+ * serialized document. Clients often resubmit the same document several times in quick succession; a
+ * resubmitted document is returned from the cache, without being parsed (or validated) again.
+ * <p>Entries are looked up by a hash of the input bytes, and the bytes are then compared with those the
+ * cached document was parsed from, so a hash collision can never return the wrong document. The cache is
+ * bounded by the number of entries, and by the total size of the input bytes held, evicting the least
+ * recently used entries first. Entries also expire a fixed time after they were parsed. Documents that
+ * fail to parse are not cached.
+ * <p>Cached documents are held as RTMLDocumentSnapshot s. parse returns a (mutable) deep copy of the
+ * cached document, which is much cheaper than parsing it, and parseSnapshot returns the (immutable)
+ * snapshot itself, which costs nothing. The cache counts hits, misses, evictions and expiries.
+ * <p>The cache is thread-safe, and can be shared between threads: documents are parsed (by the calling
+ * thread's parser from the pool) outside the cache's lock. If two threads miss on the same document at the
+ * same time, both parse it.
+ * <pre>
+ * RTMLParseCache cache = new RTMLParseCache(new RTMLParserPool(false));
+ * // in each worker thread
+ * RTMLDocument document = cache.parse(messageBytes);
+ * </pre>
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParserPool
+ * @see org.estar.rtml.RTMLDocumentSnapshot
+ */
+public class RTMLParseCache
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The default maximum number of entries in the cache.
+	 */
+	public final static int DEFAULT_MAX_ENTRY_COUNT = 256;
+	/**
+	 * The default maximum total number of input bytes held by the cache (16 Mb).
+	 */
+	public final static long DEFAULT_MAX_BYTE_COUNT = 16L*1024L*1024L;
+	/**
+	 * The default time an entry is kept for after it was parsed, in milliseconds (one minute).
+	 */
+	public final static long DEFAULT_TIME_TO_LIVE = 60L*1000L;
+	/**
+	 * The size of the buffer used to read documents from input streams.
+	 */
+	private final static int READ_BUFFER_SIZE = 8192;
+	/**
+	 * The parser pool used to parse documents not in the cache.
+	 */
+	private RTMLParserPool parserPool = null;
+	/**
+	 * The maximum number of entries in the cache.
+	 */
+	private int maxEntryCount = DEFAULT_MAX_ENTRY_COUNT;
+	/**
+	 * The maximum total number of input bytes held by the cache.
+	 */
+	private long maxByteCount = DEFAULT_MAX_BYTE_COUNT;
+	/**
+	 * The time an entry is kept for after it was parsed, in milliseconds.
+	 */
+	private long timeToLive = DEFAULT_TIME_TO_LIVE;
+	/**
+	 * The cache, a map from Key to Entry, in access order (least recently used first).
+	 */
+	private LinkedHashMap entryMap = null;
+	/**
+	 * The total number of input bytes held by the cache.
+	 */
+	private long byteCount = 0L;
+	/**
+	 * The time (milliseconds since the epoch) the cache is next purged of expired entries.
+	 * @see #purgeExpired
+	 */
+	private long purgeTime = 0L;
+	/**
+	 * The number of documents returned from the cache.
+	 */
+	private long hitCount = 0L;
+	/**
+	 * The number of documents not found in the cache (including expired entries), and so parsed.
+	 */
+	private long missCount = 0L;
+	/**
+	 * The number of entries evicted to keep the cache within it's bounds.
+	 */
+	private long evictionCount = 0L;
+	/**
+	 * The number of entries removed because they expired.
+	 */
+	private long expiryCount = 0L;
+
+	/**
+	 * Constructor. The cache is created with the default bounds and time to live.
+	 * @param pool The parser pool used to parse documents not in the cache.
+	 * @see #DEFAULT_MAX_ENTRY_COUNT
+	 * @see #DEFAULT_MAX_BYTE_COUNT
+	 * @see #DEFAULT_TIME_TO_LIVE
+	 */
+	public RTMLParseCache(RTMLParserPool pool)
+	{
+		this(pool,DEFAULT_MAX_ENTRY_COUNT,DEFAULT_MAX_BYTE_COUNT,DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Constructor.
+	 * @param pool The parser pool used to parse documents not in the cache.
+	 * @param maxEntryCount The maximum number of entries in the cache.
+	 * @param maxByteCount The maximum total number of input bytes held by the cache. Documents larger than
+	 *        this are never cached.
+	 * @param timeToLive The time an entry is kept for after it was parsed, in milliseconds.
+	 * @exception IllegalArgumentException Thrown if the pool is null, or a bound or the time to live is
+	 *            not positive.
+	 * @see #parserPool
+	 * @see #maxEntryCount
+	 * @see #maxByteCount
+	 * @see #timeToLive
+	 */
+	public RTMLParseCache(RTMLParserPool pool,int maxEntryCount,long maxByteCount,long timeToLive)
+		throws IllegalArgumentException
+	{
+		super();
+		if(pool == null)
+			throw new IllegalArgumentException(this.getClass().getName()+":Parser pool was null.");
+		if(maxEntryCount < 1)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":Illegal maximum entry count:"+
+							   maxEntryCount);
+		}
+		if(maxByteCount < 1)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":Illegal maximum byte count:"+
+							   maxByteCount);
+		}
+		if(timeToLive < 1)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":Illegal time to live:"+
+							   timeToLive);
+		}
+		this.parserPool = pool;
+		this.maxEntryCount = maxEntryCount;
+		this.maxByteCount = maxByteCount;
+		this.timeToLive = timeToLive;
+		entryMap = new LinkedHashMap(16,0.75f,true);
+	}
+
+	/**
+	 * Parse a document, returning it from the cache if the same bytes were parsed recently.
+	 * @param b The bytes of the serialized document.
+	 * @return A new document, which the caller can modify without affecting the cache.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #parse(byte[],int,int)
+	 */
+	public RTMLDocument parse(byte b[]) throws RTMLException, ParseException
+	{
+		return parse(b,0,b.length);
+	}
+
+	/**
+	 * Parse a document held in part of a byte array, returning it from the cache if the same bytes were
+	 * parsed recently.
+	 * @param b The array containing the bytes of the serialized document.
+	 * @param offset The index in the array the document starts at.
+	 * @param length The length of the document.
+	 * @return A new document, which the caller can modify without affecting the cache.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #lookup
+	 * @see #store
+	 */
+	public RTMLDocument parse(byte b[],int offset,int length) throws RTMLException, ParseException
+	{
+		RTMLDocumentSnapshot snapshot = null;
+		RTMLDocument document = null;
+		Key key = null;
+
+		key = new Key(b,offset,length);
+		snapshot = lookup(key);
+		if(snapshot != null)
+			return snapshot.toDocument();
+		document = parserPool.parse(ByteBuffer.wrap(b,offset,length));
+		// the cache keeps it's own copy, the caller may modify the parsed document
+		store(key,new RTMLDocumentSnapshot(new RTMLDocument(document)));
+		return document;
+	}
+
+	/**
+	 * Parse a document read from an input stream, returning it from the cache if the same bytes were parsed
+	 * recently. The stream is read to the end, but not closed.
+	 * @param i The input stream to read the document from.
+	 * @return A new document, which the caller can modify without affecting the cache.
+	 * @exception RTMLException Thrown if reading the stream, or the parsing, fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #readFully
+	 * @see #parse(byte[])
+	 */
+	public RTMLDocument parse(InputStream i) throws RTMLException, ParseException
+	{
+		return parse(readFully(i));
+	}
+
+	/**
+	 * Parse a document, returning the cached snapshot if the same bytes were parsed recently.
+	 * @param b The bytes of the serialized document.
+	 * @return An immutable snapshot of the document, which may be shared with other callers.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #parseSnapshot(byte[],int,int)
+	 */
+	public RTMLDocumentSnapshot parseSnapshot(byte b[]) throws RTMLException, ParseException
+	{
+		return parseSnapshot(b,0,b.length);
+	}
+
+	/**
+	 * Parse a document held in part of a byte array, returning the cached snapshot if the same bytes were
+	 * parsed recently. Unlike parse, no copy of the document is made.
+	 * @param b The array containing the bytes of the serialized document.
+	 * @param offset The index in the array the document starts at.
+	 * @param length The length of the document.
+	 * @return An immutable snapshot of the document, which may be shared with other callers.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #lookup
+	 * @see #store
+	 */
+	public RTMLDocumentSnapshot parseSnapshot(byte b[],int offset,int length) throws RTMLException,
+											  ParseException
+	{
+		RTMLDocumentSnapshot snapshot = null;
+		Key key = null;
+
+		key = new Key(b,offset,length);
+		snapshot = lookup(key);
+		if(snapshot != null)
+			return snapshot;
+		snapshot = new RTMLDocumentSnapshot(parserPool.parse(ByteBuffer.wrap(b,offset,length)));
+		store(key,snapshot);
+		return snapshot;
+	}
+
+	/**
+	 * Remove all the entries from the cache. The counters are not reset.
+	 */
+	public synchronized void clear()
+	{
+		entryMap.clear();
+		byteCount = 0L;
+	}
+
+	/**
+	 * Get the number of entries in the cache (which may include expired entries not yet removed).
+	 * @return The number of entries.
+	 */
+	public synchronized int getSize()
+	{
+		return entryMap.size();
+	}
+
+	/**
+	 * Get the total number of input bytes held by the cache.
+	 * @return The number of bytes.
+	 * @see #byteCount
+	 */
+	public synchronized long getByteCount()
+	{
+		return byteCount;
+	}
+
+	/**
+	 * Get the number of documents returned from the cache.
+	 * @return The number of hits.
+	 * @see #hitCount
+	 */
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * Get the number of documents not found in the cache, and so parsed.
+	 * @return The number of misses.
+	 * @see #missCount
+	 */
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * Get the number of entries evicted to keep the cache within it's bounds.
+	 * @return The number of evictions.
+	 * @see #evictionCount
+	 */
+	public synchronized long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
+	/**
+	 * Get the number of entries removed because they expired.
+	 * @return The number of expiries.
+	 * @see #expiryCount
+	 */
+	public synchronized long getExpiryCount()
+	{
+		return expiryCount;
+	}
+
+	/**
+	 * Reset the hit, miss, eviction and expiry counters to zero.
+	 */
+	public synchronized void resetCounters()
+	{
+		hitCount = 0L;
+		missCount = 0L;
+		evictionCount = 0L;
+		expiryCount = 0L;
+	}
+
+	/**
+	 * Method to print out a string representation of the cache's size and counters.
+	 */
+	public synchronized String toString()
+	{
+		return this.getClass().getName()+":entries:"+entryMap.size()+"/"+maxEntryCount+":bytes:"+byteCount+"/"+
+			maxByteCount+":hits:"+hitCount+":misses:"+missCount+":evictions:"+evictionCount+
+			":expiries:"+expiryCount;
+	}
+
+	/**
+	 * Look up a document in the cache. An expired entry is removed, and counts as a miss.
+	 * @param key The key of the document's bytes.
+	 * @return The cached snapshot, or null if the document is not in the cache.
+	 * @see #entryMap
+	 */
+	private synchronized RTMLDocumentSnapshot lookup(Key key)
+	{
+		Entry entry = null;
+
+		entry = (Entry)(entryMap.get(key));
+		if(entry == null)
+		{
+			missCount++;
+			return null;
+		}
+		if(System.currentTimeMillis() >= entry.expiryTime)
+		{
+			remove(key);
+			expiryCount++;
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		return entry.snapshot;
+	}
+
+	/**
+	 * Add a parsed document to the cache. The key's bytes are copied (they belong to the caller).
+	 * Expired entries are periodically purged, and least recently used entries evicted to keep the cache
+	 * within it's bounds. Documents larger than maxByteCount are not cached.
+	 * @param key The key of the document's bytes.
+	 * @param snapshot A snapshot of the parsed document.
+	 * @see #purgeExpired
+	 * @see #maxEntryCount
+	 * @see #maxByteCount
+	 */
+	private synchronized void store(Key key,RTMLDocumentSnapshot snapshot)
+	{
+		Entry entry = null;
+		Iterator iterator = null;
+		long now;
+
+		if(key.length > maxByteCount)
+			return;
+		now = System.currentTimeMillis();
+		if(now >= purgeTime)
+		{
+			purgeExpired(now);
+			purgeTime = now+(timeToLive/2);
+		}
+		// another thread may have parsed the same document
+		remove(key);
+		entry = new Entry();
+		entry.key = key.copy();
+		entry.snapshot = snapshot;
+		entry.expiryTime = now+timeToLive;
+		entryMap.put(entry.key,entry);
+		byteCount += key.length;
+		iterator = entryMap.values().iterator();
+		while((entryMap.size() > maxEntryCount)||(byteCount > maxByteCount))
+		{
+			entry = (Entry)(iterator.next());
+			iterator.remove();
+			byteCount -= entry.key.length;
+			evictionCount++;
+		}
+	}
+
+	/**
+	 * Remove an entry from the cache, if it is present.
+	 * @param key The key of the entry.
+	 */
+	private void remove(Key key)
+	{
+		Entry entry = null;
+
+		entry = (Entry)(entryMap.remove(key));
+		if(entry != null)
+			byteCount -= entry.key.length;
+	}
+
+	/**
+	 * Remove all expired entries from the cache.
+	 * @param now The current time, in milliseconds since the epoch.
+	 */
+	private void purgeExpired(long now)
+	{
+		Entry entry = null;
+		Iterator iterator = null;
+
+		iterator = entryMap.values().iterator();
+		while(iterator.hasNext())
+		{
+			entry = (Entry)(iterator.next());
+			if(now >= entry.expiryTime)
+			{
+				iterator.remove();
+				byteCount -= entry.key.length;
+				expiryCount++;
+			}
+		}
+	}
+
+	/**
+	 * Read an input stream to the end.
+	 * @param i The input stream.
+	 * @return A new byte array containing the bytes read.
+	 * @exception RTMLException Thrown if reading the stream fails.
+	 */
+	private byte[] readFully(InputStream i) throws RTMLException
+	{
+		ByteArrayOutputStream os = null;
+		byte buffer[] = null;
+		int count;
+
+		os = new ByteArrayOutputStream(READ_BUFFER_SIZE);
+		buffer = new byte[READ_BUFFER_SIZE];
+		try
+		{
+			while((count = i.read(buffer)) > -1)
+				os.write(buffer,0,count);
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":parse:Reading input stream failed:",e);
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * A cache key: the bytes of a serialized document (part of an array), and their hash code.
+	 * Keys used to look up documents refer to the caller's array, keys in the cache to a copy.
+	 */
+	private static class Key
+	{
+		/**
+		 * The array containing the bytes.
+		 */
+		byte data[] = null;
+		/**
+		 * The index in the array the bytes start at.
+		 */
+		int offset = 0;
+		/**
+		 * The number of bytes.
+		 */
+		int length = 0;
+		/**
+		 * The hash code of the bytes.
+		 */
+		int hash = 0;
+
+		/**
+		 * Constructor. The hash code of the bytes is computed.
+		 * @param data The array containing the bytes.
+		 * @param offset The index in the array the bytes start at.
+		 * @param length The number of bytes.
+		 * @exception IndexOutOfBoundsException Thrown if the offset and length are outside the array.
+		 */
+		Key(byte data[],int offset,int length) throws IndexOutOfBoundsException
+		{
+			super();
+			if((offset < 0)||(length < 0)||(offset+length > data.length))
+			{
+				throw new IndexOutOfBoundsException("RTMLParseCache:Key:offset "+offset+" length "+length+
+								    " outside array of length "+data.length+".");
+			}
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+			hash = length;
+			for(int i = offset; i < offset+length; i++)
+				hash = (31*hash)+data[i];
+		}
+
+		/**
+		 * Constructor, used by copy. The hash code is already known.
+		 * @param data The array containing (only) the bytes.
+		 * @param hash The hash code of the bytes.
+		 */
+		private Key(byte data[],int hash)
+		{
+			super();
+			this.data = data;
+			this.offset = 0;
+			this.length = data.length;
+			this.hash = hash;
+		}
+
+		/**
+		 * Return a key referring to a copy of the bytes.
+		 * @return A new key.
+		 */
+		Key copy()
+		{
+			byte copyData[] = null;
+
+			copyData = new byte[length];
+			System.arraycopy(data,offset,copyData,0,length);
+			return new Key(copyData,hash);
+		}
+
+		/**
+		 * Test whether one key is equal to another: the bytes are the same.
+		 * @param obj The other instance we are testing against.
+		 * @return Returns true if the bytes are the same, and false if they are not.
+		 */
+		public boolean equals(Object obj)
+		{
+			Key other = null;
+
+			if((obj instanceof Key) == false)
+				return false;
+			other = (Key)obj;
+			if((other.hash != hash)||(other.length != length))
+				return false;
+			for(int i = 0; i < length; i++)
+			{
+				if(data[offset+i] != other.data[other.offset+i])
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Return the hash code of the bytes.
+		 * @return The hash code.
+		 */
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+
+	/**
+	 * A cache entry.
+	 */
+	private static class Entry
+	{
+		/**
+		 * The key, referring to a copy of the document's bytes.
+		 */
+		Key key = null;
+		/**
+		 * A snapshot of the parsed document.
+		 */
+		RTMLDocumentSnapshot snapshot = null;
+		/**
+		 * The time the entry expires, in milliseconds since the epoch.
+		 */
+		long expiryTime = 0L;
+	}
+}
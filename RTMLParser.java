@@ -28,6 +28,12 @@ import java.util.*;
 import java.net.URL;
 import java.net.MalformedURLException;
 
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 import javax.xml.parsers.DocumentBuilder; 
 import javax.xml.parsers.DocumentBuilderFactory;  
 import javax.xml.parsers.FactoryConfigurationError;  
@@ -50,8 +56,19 @@ import org.estar.astrometry.*;
  * This class provides the capability of parsing an RTML document into a DOM tree, using JAXP.
  * The resultant DOM tree is traversed, and relevant eSTAR data extracted.
  * The <b>init</b> method must be called before <b>parse</b>.
+ * An instance of RTMLParser is not thread-safe, use RTMLParserPool to share parsers between threads.
+ * Alternatively, the parse engine can be set to PARSE_ENGINE_STREAM, in which case the document is
+ * parsed by a StAX stream parser (RTMLStreamParser) without building a DOM tree. The stream engine does not
+ * validate the document.
+ * The parse profile (setParseProfile) can be used to skip parts of the document that are not needed,
+ * e.g. History, ImageData and Scoring. Skipped elements are not traversed (DOM engine) or
+ * are read past without being processed (stream engine).
  * @see #init
  * @see #parse
+ * @see #setParseEngine
+ * @see #setParseProfile
+ * @see org.estar.rtml.RTMLStreamParser
+ * @see org.estar.rtml.RTMLParserPool
  * @author Chris Mottram
  * @version $Revision$
  */
@@ -73,11 +90,51 @@ public class RTMLParser
 	 * Constant used to set file RTML schema load.
 	 */
 	static final String JAXP_SCHEMA_SOURCE = "http://java.sun.com/xml/jaxp/properties/schemaSource";
+	/**
+	 * Parse engine constant. Parse the document into a DOM tree using JAXP, and then traverse the tree
+	 * (RTML22Parser/RTML31Parser). This is the default.
+	 * @see #parseEngine
+	 */
+	public final static int PARSE_ENGINE_DOM = 0;
+	/**
+	 * Parse engine constant. Parse the document using a StAX pull parser, without building a DOM tree
+	 * (RTMLStreamParser). The document is not validated.
+	 * @see #parseEngine
+	 * @see org.estar.rtml.RTMLStreamParser
+	 */
+	public final static int PARSE_ENGINE_STREAM = 1;
+	/**
+	 * Parse profile constant. The whole document is parsed. This is the default.
+	 * @see #parseProfile
+	 */
+	public final static int PARSE_PROFILE_FULL = 0;
+	/**
+	 * Parse profile constant. The History, ImageData (including SourceCatalogue, FITSHeader and ObjectList)
+	 * and Scoring (RTML 2.2 Scores) elements are not parsed, everything else is.
+	 * @see #parseProfile
+	 * @see #parseProfileIncludes
+	 */
+	public final static int PARSE_PROFILE_SCHEDULING = 1;
+	/**
+	 * Parse profile constant. Only the document header (root element attributes, and the RTML 2.2 error string),
+	 * Contact, Project, and IntelligentAgent (RTML 3.1a RespondTo) elements are parsed.
+	 * @see #parseProfile
+	 * @see #parseProfileIncludes
+	 */
+	public final static int PARSE_PROFILE_ROUTING = 2;
 	/**
 	 * String specifying a schema file .xsd to parse against, rather than rading the default web-based
 	 * xsi:schemaLocation. A class-wide (static) variable.
 	 */
 	protected static String schemaSource = null;
+	/**
+	 * Class-wide (static) cache of configured DocumentBuilderFactory instances, used by init to create builders
+	 * without a DocumentBuilderFactory.newInstance service lookup per parser. Index 0 is the factory
+	 * used when not parsing with Schema, index 1 the factory used when parsing with Schema.
+	 * Access is synchronized on the RTMLParser class.
+	 * @see #getDocumentBuilderFactory
+	 */
+	private static DocumentBuilderFactory factoryList[] = new DocumentBuilderFactory[2];
 	/**
 	 * Private reference to org.w3c.dom.Document, the head of the DOM tree.
 	 */
@@ -90,6 +147,21 @@ public class RTMLParser
 	 * The instance of RTMLErrorHandler, attached to the DocumentBuilder to handle DOM errors.
 	 */
 	RTMLErrorHandler errorHandler = null;
+	/**
+	 * Which engine to use to parse the document, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @see #PARSE_ENGINE_DOM
+	 * @see #PARSE_ENGINE_STREAM
+	 */
+	protected int parseEngine = PARSE_ENGINE_DOM;
+	/**
+	 * Which parts of the document to parse, one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or
+	 * PARSE_PROFILE_ROUTING. Elements excluded by the profile are skipped, and their data is not present
+	 * in the returned RTMLDocument.
+	 * @see #PARSE_PROFILE_FULL
+	 * @see #PARSE_PROFILE_SCHEDULING
+	 * @see #PARSE_PROFILE_ROUTING
+	 */
+	protected int parseProfile = PARSE_PROFILE_FULL;
 
 	/**
 	 * Default constructor.
@@ -102,50 +174,249 @@ public class RTMLParser
 	/**
 	 * Initialisation method. Must be called after the constructor, but before <b>parse</b>, to create the
 	 * <i>builder</i> used by <b>parse</b>.
+	 * <p>
+	 * If parseSchema is true, documents are validated against the Schema compiled once by RTMLGrammarCache:
+	 * the schema source file if one has been set (setSchemaSource), otherwise the copy of RTML31Create's schema
+	 * bundled with this package. The document's own xsi:schemaLocation is <b>not</b> used
+	 * (it is ignored, and never fetched), and the document's DTD (if any) is not validated as well.
+	 * Previously (using JAXP_SCHEMA_SOURCE) a document without a schema source file was validated against
+	 * the schema named by it's xsi:schemaLocation, which was fetched and compiled for every parser.
 	 * @param parseSchema Boolean. If true, set the parser to use Schema. Only works for RTML3.1a.
 	 * @exception ParserConfigurationException Thrown if DocumentBuilderFactory.newDocumentBuilder fails.
 	 * @exception IllegalArgumentException Thrown by factory.setAttribute if the parser does not support JAXP1.2.
 	 * @see #builder
 	 * @see #errorHandler
-	 * @see #JAXP_SCHEMA_LANGUAGE
-	 * @see #W3C_XML_SCHEMA
-	 * @see #JAXP_SCHEMA_SOURCE
-	 * @see #schemaSource
+	 * @see #getDocumentBuilderFactory
 	 */
 	public void init(boolean parseSchema) throws ParserConfigurationException
 	{
 		DocumentBuilderFactory factory = null;
 
-		// create factory
-		factory = DocumentBuilderFactory.newInstance();
-		factory.setValidating(true);   
-		factory.setNamespaceAware(true);
-		// set factory Schema if configured to do so.
-		if(parseSchema)
+		// get shared factory
+		factory = getDocumentBuilderFactory(parseSchema);
+		// create builder. DocumentBuilderFactory is not thread-safe, so lock it whilst we do so.
+		synchronized(factory)
 		{
-			factory.setAttribute(JAXP_SCHEMA_LANGUAGE, W3C_XML_SCHEMA);
-			if(schemaSource != null)
-				factory.setAttribute(JAXP_SCHEMA_SOURCE,new File(schemaSource));
+			builder = factory.newDocumentBuilder();
 		}
-		// create builder
-		builder = factory.newDocumentBuilder();
+		builder.setEntityResolver(RTMLEntityResolver.getInstance());
 		errorHandler = new RTMLErrorHandler();
 		builder.setErrorHandler(errorHandler);
 	}
 
 	/**
-	 * Method to a file schema to parse against. Must be set before the RTMLParser instance is created.
-	 * Only useful for parsing RTML 3.1a documents.
+	 * Method to reset this parser, so it can be re-used for another parse. The builder is reset
+	 * (DocumentBuilder.reset), the reference to the last parsed DOM tree is released,
+	 * and a new error handler is created so errors from previous parses are not reported.
+	 * Must be called after <b>init</b>.
+	 * @see #builder
+	 * @see #document
+	 * @see #errorHandler
+	 * @see RTMLParserPool
+	 * @see RTMLEntityResolver#getInstance
+	 */
+	public void reset()
+	{
+		document = null;
+		if(builder != null)
+		{
+			builder.reset();
+			builder.setEntityResolver(RTMLEntityResolver.getInstance());
+			errorHandler = new RTMLErrorHandler();
+			builder.setErrorHandler(errorHandler);
+		}
+	}
+
+	/**
+	 * Return a configured DocumentBuilderFactory, from the class-wide cache. The factory is created on first use,
+	 * and is namespace aware. If parseSchema is true, the factory validates against the compiled RTML Schema
+	 * held in RTMLGrammarCache, rather than the schema named by the document's xsi:schemaLocation (see init).
+	 * Otherwise the factory validates against the document's DTD, sharing RTMLGrammarCache's grammar pool
+	 * if one is available. If not (e.g. on Java 9 and later without --add-exports) the DTD grammar is rebuilt
+	 * for every document, from the compact copy of the DTD cached by RTMLEntityResolver.
+	 * Callers must synchronize on the returned factory when using it, as it is shared between threads.
+	 * @param parseSchema Boolean. If true, return a factory configured to use Schema.
+	 * @return The shared factory.
+	 * @exception ParserConfigurationException Thrown if the Schema cannot be compiled.
+	 * @see #init
+	 * @see #factoryList
+	 * @see RTMLGrammarCache#getSchema
+	 * @see RTMLGrammarCache#getGrammarPool
+	 * @see RTMLGrammarCache#XERCES_GRAMMAR_POOL
+	 */
+	protected static synchronized DocumentBuilderFactory getDocumentBuilderFactory(boolean parseSchema)
+		throws ParserConfigurationException
+	{
+		ParserConfigurationException pce = null;
+		DocumentBuilderFactory factory = null;
+		Object grammarPool = null;
+		int index;
+
+		if(parseSchema)
+			index = 1;
+		else
+			index = 0;
+		if(factoryList[index] == null)
+		{
+			// create factory
+			factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			// set factory Schema if configured to do so.
+			if(parseSchema)
+			{
+				// validate against the Schema only, not a DTD as well
+				factory.setValidating(false);
+				try
+				{
+					factory.setSchema(RTMLGrammarCache.getSchema());
+				}
+				catch(RTMLException e)
+				{
+					pce = new ParserConfigurationException("RTMLParser:getDocumentBuilderFactory:"+e);
+					pce.initCause(e);
+					throw pce;
+				}
+			}
+			else
+			{
+				factory.setValidating(true);
+				// share compiled DTD grammars between parsers, if supported
+				grammarPool = RTMLGrammarCache.getGrammarPool();
+				if(grammarPool != null)
+				{
+					try
+					{
+						factory.setAttribute(RTMLGrammarCache.XERCES_GRAMMAR_POOL,grammarPool);
+					}
+					catch(IllegalArgumentException e)
+					{
+						// parser is not Xerces, or does not support grammar pools
+					}
+				}
+			}
+			factoryList[index] = factory;
+		}
+		return factoryList[index];
+	}
+
+	/**
+	 * Method to a file schema to parse against. Must be set before the RTMLParser instance is initialised.
+	 * Only useful for parsing RTML 3.1a documents. The cached Schema factory and compiled Schema are discarded,
+	 * so parsers initialised after this call use the new schema.
 	 * @param filename A string representing a valid xsd file.
 	 * @see #schemaSource
+	 * @see #factoryList
+	 * @see RTMLGrammarCache#clearSchema
 	 */
-	public static void setSchemaSource(String filename)
+	public static synchronized void setSchemaSource(String filename)
 	{
 		schemaSource = filename;
+		factoryList[1] = null;
+		RTMLGrammarCache.clearSchema();
+	}
+
+	/**
+	 * Method to get the file schema to parse against.
+	 * @return A string representing an xsd file, or null if one has not been set.
+	 * @see #schemaSource
+	 */
+	public static synchronized String getSchemaSource()
+	{
+		return schemaSource;
+	}
+
+	/**
+	 * Method to set which engine is used to parse documents.
+	 * @param e The parse engine, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @exception IllegalArgumentException Thrown if e is not a legal parse engine.
+	 * @see #parseEngine
+	 * @see #PARSE_ENGINE_DOM
+	 * @see #PARSE_ENGINE_STREAM
+	 */
+	public void setParseEngine(int e) throws IllegalArgumentException
+	{
+		if((e != PARSE_ENGINE_DOM)&&(e != PARSE_ENGINE_STREAM))
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":setParseEngine:Illegal engine:"+e);
+		}
+		parseEngine = e;
+	}
+
+	/**
+	 * Method to get which engine is used to parse documents.
+	 * @return The parse engine, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @see #parseEngine
+	 */
+	public int getParseEngine()
+	{
+		return parseEngine;
+	}
+
+	/**
+	 * Set which parts of the document to parse.
+	 * @param p The parse profile, one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or PARSE_PROFILE_ROUTING.
+	 * @exception IllegalArgumentException Thrown if p is not a legal parse profile.
+	 * @see #parseProfile
+	 */
+	public void setParseProfile(int p) throws IllegalArgumentException
+	{
+		if(isParseProfile(p) == false)
+			throw new IllegalArgumentException(this.getClass().getName()+":setParseProfile:Illegal profile:"+p);
+		parseProfile = p;
+	}
+
+	/**
+	 * Get which parts of the document are parsed.
+	 * @return The parse profile, one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or PARSE_PROFILE_ROUTING.
+	 * @see #parseProfile
+	 */
+	public int getParseProfile()
+	{
+		return parseProfile;
+	}
+
+	/**
+	 * Return whether the specified number is a legal parse profile.
+	 * @param p The number to test.
+	 * @return true if p is one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or PARSE_PROFILE_ROUTING.
+	 */
+	public static boolean isParseProfile(int p)
+	{
+		return (p == PARSE_PROFILE_FULL)||(p == PARSE_PROFILE_SCHEDULING)||(p == PARSE_PROFILE_ROUTING);
+	}
+
+	/**
+	 * Return whether an element with the specified name is parsed using the specified profile.
+	 * Used by both the DOM and stream parse engines, for the children of the RTML element and the
+	 * children of Observation elements.
+	 * @param profile The parse profile.
+	 * @param elementName The element name.
+	 * @return true if the element should be parsed, false if it should be skipped.
+	 * @see #PARSE_PROFILE_FULL
+	 * @see #PARSE_PROFILE_SCHEDULING
+	 * @see #PARSE_PROFILE_ROUTING
+	 */
+	public static boolean parseProfileIncludes(int profile,String elementName)
+	{
+		switch(profile)
+		{
+			case PARSE_PROFILE_SCHEDULING:
+				return (elementName.equals("History") == false)&&
+					(elementName.equals("ImageData") == false)&&
+					(elementName.equals("SourceCatalogue") == false)&&
+					(elementName.equals("Scoring") == false)&&
+					(elementName.equals("Scores") == false);
+			case PARSE_PROFILE_ROUTING:
+				return elementName.equals("Contact")||elementName.equals("Project")||
+					elementName.equals("IntelligentAgent")||elementName.equals("RespondTo");
+			default:
+				return true;
+		}
 	}
 
 	/**
-	 * Method to parse an RTML document. Must be called after <b>init</b> so the builder exists.
+	 * Method to parse an RTML document. Must be called after <b>init</b> so the builder exists,
+	 * unless the parse engine is PARSE_ENGINE_STREAM.
 	 * @param f The file to parse from.
 	 * @return An instance of RTMLDocument, containing the data in the document.
 	 * @exception RTMLException Thrown if the parsing fails.
@@ -153,11 +424,39 @@ public class RTMLParser
 	 * @see #document
 	 * @see #builder
 	 * @see #parseDocument
+	 * @see #parseStream
 	 */
 	public RTMLDocument parse(File f) throws RTMLException, ParseException
 	{
 		RTMLDocument rtmlDocument = null;
+		InputStream i = null;
 
+		if(parseEngine == PARSE_ENGINE_STREAM)
+		{
+			try
+			{
+				i = new BufferedInputStream(new FileInputStream(f));
+			}
+			catch(IOException e)
+			{
+				throw new RTMLException(this.getClass().getName()+":parse:",e);
+			}
+			try
+			{
+				rtmlDocument = parseStream(i);
+			}
+			finally
+			{
+				try
+				{
+					i.close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+			return rtmlDocument;
+		}
 		if(builder == null)
 		{
 			throw new RTMLException(this.getClass().getName()+
@@ -177,7 +476,8 @@ public class RTMLParser
 	}
 
 	/**
-	 * Method to parse an RTML document. Must be called after <b>init</b> so the builder exists.
+	 * Method to parse an RTML document. Must be called after <b>init</b> so the builder exists,
+	 * unless the parse engine is PARSE_ENGINE_STREAM.
 	 * @param i The input stream to parse from.
 	 * @return An instance of RTMLDocument, containing the data in the document.
 	 * @exception RTMLException Thrown if the parsing fails.
@@ -185,11 +485,99 @@ public class RTMLParser
 	 * @see #document
 	 * @see #builder
 	 * @see #parseDocument
+	 * @see #parseStream
 	 */
 	public RTMLDocument parse(InputStream i) throws RTMLException, ParseException
+	{
+		return parse(i,null);
+	}
+
+	/**
+	 * Method to parse an RTML document held in a ByteBuffer, e.g. a direct buffer, or a
+	 * MappedByteBuffer. The document is read directly from the buffer (from it's position to it's limit)
+	 * using RTMLByteBufferInputStream, without being copied into an intermediate byte array.
+	 * The buffer's position is not changed. Must be called after <b>init</b> so the builder exists,
+	 * unless the parse engine is PARSE_ENGINE_STREAM.
+	 * @param b The buffer to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see org.estar.rtml.RTMLByteBufferInputStream
+	 */
+	public RTMLDocument parse(ByteBuffer b) throws RTMLException, ParseException
+	{
+		return parse(new RTMLByteBufferInputStream(b),null);
+	}
+
+	/**
+	 * Method to parse an RTML document from a file, by memory mapping the file (FileChannel.map) and
+	 * parsing the mapped buffer. This avoids the buffered stream copies of parse(File), and is intended
+	 * for scanning large numbers of archived documents. The file's URI is used as the document's system ID,
+	 * so relative DTD references are resolved as for parse(File). Must be called after <b>init</b>
+	 * so the builder exists, unless the parse engine is PARSE_ENGINE_STREAM.
+	 * @param path The path of the file to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the file cannot be mapped, or the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #parse(java.nio.ByteBuffer)
+	 */
+	public RTMLDocument parse(Path path) throws RTMLException, ParseException
+	{
+		FileChannel channel = null;
+		MappedByteBuffer buffer = null;
+
+		try
+		{
+			channel = FileChannel.open(path,StandardOpenOption.READ);
+			try
+			{
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+			}
+			finally
+			{
+				// the mapping remains valid after the channel is closed
+				channel.close();
+			}
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":parse:Failed to map "+path+":",e);
+		}
+		return parse(new RTMLByteBufferInputStream(buffer),path.toUri().toString());
+	}
+
+	/**
+	 * Method to parse an RTML document from a file, by memory mapping the file.
+	 * @param f The file to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the file cannot be mapped, or the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #parse(java.nio.file.Path)
+	 */
+	public RTMLDocument parseMapped(File f) throws RTMLException, ParseException
+	{
+		return parse(f.toPath());
+	}
+
+	/**
+	 * Internal method to parse an RTML document from an input stream.
+	 * @param i The input stream to parse from.
+	 * @param systemId The system ID (URL) of the document, used to resolve relative DTD references,
+	 *        or null if it is not known.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #document
+	 * @see #builder
+	 * @see #parseDocument
+	 * @see #parseStream
+	 */
+	private RTMLDocument parse(InputStream i,String systemId) throws RTMLException, ParseException
 	{
 		RTMLDocument rtmlDocument = null;
 
+		if(parseEngine == PARSE_ENGINE_STREAM)
+			return parseStream(i);
 		if(builder == null)
 		{
 			throw new RTMLException(this.getClass().getName()+
@@ -197,7 +585,10 @@ public class RTMLParser
 		}
 		try
 		{
-			document = builder.parse(i);
+			if(systemId != null)
+				document = builder.parse(i,systemId);
+			else
+				document = builder.parse(i);
 		}
 		catch(Exception e)
 		{
@@ -209,7 +600,8 @@ public class RTMLParser
 	}
 
 	/**
-	 * Method to parse an RTML document. Must be called after <b>init</b> so the builder exists.
+	 * Method to parse an RTML document. Must be called after <b>init</b> so the builder exists,
+	 * unless the parse engine is PARSE_ENGINE_STREAM.
 	 * @param s The string to parse from.
 	 * @return An instance of RTMLDocument, containing the data in the document.
 	 * @exception RTMLException Thrown if the parsing fails.
@@ -217,13 +609,21 @@ public class RTMLParser
 	 * @see #document
 	 * @see #builder
 	 * @see #parseDocument
+	 * @see #parseStream
 	 */
 	public RTMLDocument parse(String s) throws RTMLException, ParseException
 	{
 		RTMLDocument rtmlDocument = null;
+		RTMLStreamParser streamParser = null;
 		InputSource is = null;
 		StringReader sr = null;
 
+		if(parseEngine == PARSE_ENGINE_STREAM)
+		{
+			streamParser = new RTMLStreamParser();
+			streamParser.setParseProfile(parseProfile);
+			return streamParser.parse(streamParser.createReader(new StringReader(s)));
+		}
 		if(builder == null)
 		{
 			throw new RTMLException(this.getClass().getName()+
@@ -244,6 +644,39 @@ public class RTMLParser
 		return rtmlDocument;
 	}
 
+	/**
+	 * Method to read just the header of an RTML document (the root element's version, type, mode and uid
+	 * attributes), without parsing the rest of the document. A stream reader is used, which stops
+	 * reading at the end of the root element's start tag. This is much quicker than a full parse, and
+	 * is intended for routing documents and detecting duplicates. Does not need <b>init</b> to be called.
+	 * The input stream is not closed.
+	 * @param i The input stream to read from.
+	 * @return An instance of RTMLDocument, with only the version, type (RTML 2.2), mode and uid (RTML 3.1a)
+	 *         fields set.
+	 * @exception RTMLException Thrown if the document is not an RTML document, or the read fails.
+	 * @see org.estar.rtml.RTMLStreamParser#peekHeader
+	 */
+	public static RTMLDocument peekHeader(InputStream i) throws RTMLException
+	{
+		RTMLStreamParser streamParser = null;
+
+		streamParser = new RTMLStreamParser();
+		return streamParser.peekHeader(streamParser.createReader(i));
+	}
+
+	/**
+	 * Method to read just the header of an RTML document, held in a byte array.
+	 * @param b The byte array containing the document.
+	 * @return An instance of RTMLDocument, with only the version, type (RTML 2.2), mode and uid (RTML 3.1a)
+	 *         fields set.
+	 * @exception RTMLException Thrown if the document is not an RTML document, or the read fails.
+	 * @see #peekHeader(java.io.InputStream)
+	 */
+	public static RTMLDocument peekHeader(byte b[]) throws RTMLException
+	{
+		return peekHeader(new ByteArrayInputStream(b));
+	}
+
 	/**
 	 * Method to set a custom error handler. Should be called after init (constructor), before parse is called.
 	 * @param e The error handler to use. Must be a sub-class of RTMLErrorHandler, this
@@ -416,10 +849,9 @@ public class RTMLParser
 			if(childNode.getNodeType() == Node.TEXT_NODE)
 			{
 				s = childNode.getNodeValue();
-				period = new RTMLPeriodFormat();
 				try
 				{
-					period.parse(s);
+					period = RTMLPeriodFormat.valueOf(s);
 				}
 				catch(Exception e)
 				{
@@ -467,6 +899,23 @@ public class RTMLParser
 	}
 
 	// private methods
+	/**
+	 * Internal method to parse an RTML document from an input stream using the StAX stream parser.
+	 * @param i The input stream to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see org.estar.rtml.RTMLStreamParser
+	 */
+	private RTMLDocument parseStream(InputStream i) throws RTMLException, ParseException
+	{
+		RTMLStreamParser streamParser = null;
+
+		streamParser = new RTMLStreamParser();
+		streamParser.setParseProfile(parseProfile);
+		return streamParser.parse(streamParser.createReader(i));
+	}
+
 	/**
 	 * Internal method to parse the root document node.
 	 * @return An instance of RTMLDocument, containing the data in the document.
@@ -549,11 +998,13 @@ public class RTMLParser
 		if(version.equals(RTMLDocument.RTML_VERSION_22))
 		{
 			parser22 = new RTML22Parser();
+			parser22.setParseProfile(parseProfile);
 			parser22.parseRTMLNode(rtmlNode,rtmlDocument);
 		}
 		else if (version.equals(RTMLDocument.RTML_VERSION_31))
 		{
 			parser31 = new RTML31Parser();
+			parser31.setParseProfile(parseProfile);
 			parser31.parseRTMLNode(rtmlNode,rtmlDocument);
 		}
 		else
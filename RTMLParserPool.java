@@ -0,0 +1,296 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLParserPool.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * This class provides a thread-safe way of parsing RTML documents, that can be shared between many threads.
+ * An RTMLParser (and the DocumentBuilder it contains) is not thread-safe, so each thread that uses the pool is
+ * given it's own initialised RTMLParser, which is kept (thread-confined) and re-used for every subsequent
+ * parse by that thread. The parser is reset (DocumentBuilder.reset) before each re-use.
+ * Parsing threads therefore never contend for a lock, and no DocumentBuilderFactory lookup is done per parse.
+ * <pre>
+ * RTMLParserPool pool = new RTMLParserPool(false);
+ * // in each worker thread
+ * RTMLDocument document = pool.parse(inputStream);
+ * </pre>
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParser
+ * @see org.estar.rtml.RTMLParser#reset
+ */
+public class RTMLParserPool
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Whether parsers created by the pool parse using Schema.
+	 * @see org.estar.rtml.RTMLParser#init
+	 */
+	private boolean parseSchema = false;
+	/**
+	 * Which engine parsers created by the pool use to parse documents.
+	 * @see org.estar.rtml.RTMLParser#PARSE_ENGINE_DOM
+	 * @see org.estar.rtml.RTMLParser#PARSE_ENGINE_STREAM
+	 */
+	private int parseEngine = RTMLParser.PARSE_ENGINE_DOM;
+	/**
+	 * Which parts of the document parsers created by the pool parse.
+	 * @see org.estar.rtml.RTMLParser#setParseProfile
+	 */
+	private int parseProfile = RTMLParser.PARSE_PROFILE_FULL;
+	/**
+	 * Per-thread storage of each thread's instance of RTMLParser.
+	 */
+	private ThreadLocal threadParser = null;
+
+	/**
+	 * Default constructor. The parsers do not use Schema, and use the DOM parse engine.
+	 * @see #parseSchema
+	 * @see #parseEngine
+	 */
+	public RTMLParserPool()
+	{
+		this(false,RTMLParser.PARSE_ENGINE_DOM);
+	}
+
+	/**
+	 * Constructor. The parsers use the DOM parse engine.
+	 * @param parseSchema Boolean. If true, the parsers use Schema. Only works for RTML3.1a.
+	 * @see #parseSchema
+	 */
+	public RTMLParserPool(boolean parseSchema)
+	{
+		this(parseSchema,RTMLParser.PARSE_ENGINE_DOM);
+	}
+
+	/**
+	 * Constructor.
+	 * @param parseSchema Boolean. If true, the parsers use Schema. Only works for RTML3.1a.
+	 * @param parseEngine The parse engine, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @exception IllegalArgumentException Thrown if parseEngine is not a legal parse engine.
+	 * @see #parseSchema
+	 * @see #parseEngine
+	 * @see #threadParser
+	 */
+	public RTMLParserPool(boolean parseSchema,int parseEngine) throws IllegalArgumentException
+	{
+		this(parseSchema,parseEngine,RTMLParser.PARSE_PROFILE_FULL);
+	}
+
+	/**
+	 * Constructor.
+	 * @param parseSchema Boolean. If true, the parsers use Schema. Only works for RTML3.1a.
+	 * @param parseEngine The parse engine, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @param parseProfile The parse profile, one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or
+	 *        PARSE_PROFILE_ROUTING.
+	 * @exception IllegalArgumentException Thrown if parseEngine is not a legal parse engine, or
+	 *            parseProfile is not a legal parse profile.
+	 * @see #parseSchema
+	 * @see #parseEngine
+	 * @see #parseProfile
+	 * @see #threadParser
+	 */
+	public RTMLParserPool(boolean parseSchema,int parseEngine,int parseProfile) throws IllegalArgumentException
+	{
+		super();
+		if((parseEngine != RTMLParser.PARSE_ENGINE_DOM)&&(parseEngine != RTMLParser.PARSE_ENGINE_STREAM))
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":Illegal engine:"+parseEngine);
+		}
+		if(RTMLParser.isParseProfile(parseProfile) == false)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+":Illegal profile:"+parseProfile);
+		}
+		this.parseSchema = parseSchema;
+		this.parseEngine = parseEngine;
+		this.parseProfile = parseProfile;
+		threadParser = new ThreadLocal();
+	}
+
+	/**
+	 * Return the calling thread's parser, creating and initialising it if this is the first call from
+	 * this thread, or resetting it otherwise. The returned parser must only be used by the calling thread,
+	 * and only until the thread next calls a method of this pool.
+	 * @return An initialised parser, ready to parse a document.
+	 * @exception RTMLException Thrown if the parser cannot be initialised.
+	 * @see #threadParser
+	 * @see #parseSchema
+	 * @see #parseEngine
+	 * @see #parseProfile
+	 * @see org.estar.rtml.RTMLParser#init
+	 * @see org.estar.rtml.RTMLParser#reset
+	 */
+	public RTMLParser getParser() throws RTMLException
+	{
+		RTMLParser parser = null;
+
+		parser = (RTMLParser)(threadParser.get());
+		if(parser == null)
+		{
+			parser = new RTMLParser();
+			try
+			{
+				parser.init(parseSchema);
+			}
+			catch(ParserConfigurationException e)
+			{
+				throw new RTMLException(this.getClass().getName()+":getParser:",e);
+			}
+			parser.setParseEngine(parseEngine);
+			parser.setParseProfile(parseProfile);
+			threadParser.set(parser);
+		}
+		else
+			parser.reset();
+		return parser;
+	}
+
+	/**
+	 * Method to parse an RTML document, using the calling thread's parser.
+	 * @param f The file to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #getParser
+	 */
+	public RTMLDocument parse(File f) throws RTMLException, ParseException
+	{
+		return getParser().parse(f);
+	}
+
+	/**
+	 * Method to parse an RTML document, using the calling thread's parser.
+	 * @param i The input stream to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #getParser
+	 */
+	public RTMLDocument parse(InputStream i) throws RTMLException, ParseException
+	{
+		return getParser().parse(i);
+	}
+
+	/**
+	 * Method to parse an RTML document, using the calling thread's parser.
+	 * @param s The string to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #getParser
+	 */
+	public RTMLDocument parse(String s) throws RTMLException, ParseException
+	{
+		return getParser().parse(s);
+	}
+
+	/**
+	 * Method to parse an RTML document held in a ByteBuffer, using the calling thread's parser.
+	 * @param b The buffer to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #getParser
+	 * @see org.estar.rtml.RTMLParser#parse(java.nio.ByteBuffer)
+	 */
+	public RTMLDocument parse(ByteBuffer b) throws RTMLException, ParseException
+	{
+		return getParser().parse(b);
+	}
+
+	/**
+	 * Method to parse an RTML document from a memory mapped file, using the calling thread's parser.
+	 * @param path The path of the file to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the file cannot be mapped, or the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #getParser
+	 * @see org.estar.rtml.RTMLParser#parse(java.nio.file.Path)
+	 */
+	public RTMLDocument parse(Path path) throws RTMLException, ParseException
+	{
+		return getParser().parse(path);
+	}
+
+	/**
+	 * Method to parse an RTML document from a memory mapped file, using the calling thread's parser.
+	 * @param f The file to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the file cannot be mapped, or the parsing fails.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see #getParser
+	 * @see org.estar.rtml.RTMLParser#parseMapped
+	 */
+	public RTMLDocument parseMapped(File f) throws RTMLException, ParseException
+	{
+		return getParser().parseMapped(f);
+	}
+
+	/**
+	 * Release the calling thread's parser, if it has one. Should be called by threads that have finished
+	 * using the pool, but will continue to run (e.g. when a worker thread is returned to a thread pool).
+	 * @see #threadParser
+	 */
+	public void release()
+	{
+		threadParser.remove();
+	}
+
+	/**
+	 * Return whether parsers created by the pool use Schema.
+	 * @return true if the parsers use Schema.
+	 * @see #parseSchema
+	 */
+	public boolean getParseSchema()
+	{
+		return parseSchema;
+	}
+
+	/**
+	 * Return which engine parsers created by the pool use.
+	 * @return The parse engine, one of PARSE_ENGINE_DOM or PARSE_ENGINE_STREAM.
+	 * @see #parseEngine
+	 */
+	public int getParseEngine()
+	{
+		return parseEngine;
+	}
+
+	/**
+	 * Return which parts of the document parsers created by the pool parse.
+	 * @return The parse profile, one of PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or PARSE_PROFILE_ROUTING.
+	 * @see #parseProfile
+	 */
+	public int getParseProfile()
+	{
+		return parseProfile;
+	}
+}
@@ -31,6 +31,8 @@ import java.util.*;
  * P{(yyyy)Y{(mm)M}{(dd)D}{T{(hh)H}{(mm}M}{(ss.s..)S}
  * </code>
  * For the purposes of this implementation, we have assumed 30 days in 1 month, and 365 days in 1 year.
+ * The parsers use valueOf, which keeps a class-wide cache of the fields of recently parsed period strings,
+ * so commonly used periods are only scanned once. Instances are always modifiable, and never shared.
  * @author Chris Mottram
  * @version $Revision$
  */
@@ -68,6 +70,26 @@ public class RTMLPeriodFormat implements Serializable
 	 * Number of milliseconds in a year. We have assumed a year has 365 days for this implementation. 
 	 */
 	private final static long YEAR_MS = (365L*DAY_MS);
+	/**
+	 * The maximum number of period strings kept in the cache used by valueOf. When the cache is full,
+	 * the least recently used period string is evicted.
+	 * @see #cacheMap
+	 */
+	public final static int MAX_CACHE_SIZE = 1024;
+	/**
+	 * Exact powers of ten, used by parseDoubleValue.
+	 * @see #parseDoubleValue
+	 */
+	private final static double POWER_OF_TEN_LIST[] = {1.0,1.0e1,1.0e2,1.0e3,1.0e4,1.0e5,1.0e6,1.0e7,1.0e8,
+								1.0e9,1.0e10,1.0e11,1.0e12,1.0e13,1.0e14,1.0e15};
+	/**
+	 * Class-wide cache of parsed periods, a map from the period string to an instance holding the fields
+	 * parsed from it, in access order (least recently used first). The cached instances are never returned
+	 * to callers, valueOf returns a copy. Access is synchronized on the map.
+	 * @see #valueOf
+	 * @see #MAX_CACHE_SIZE
+	 */
+	private static LinkedHashMap cacheMap = new LinkedHashMap(16,0.75f,true);
 	/**
 	 * Part of the time period.
 	 */
@@ -92,6 +114,17 @@ public class RTMLPeriodFormat implements Serializable
 	 * Part of the time period.
 	 */
 	private double seconds = 0;
+	/**
+	 * The number of milliseconds represented by this period, if millisecondsValid is true.
+	 * @see #getMilliseconds
+	 */
+	private transient long milliseconds = 0;
+	/**
+	 * Whether milliseconds is up to date. Set false whenever the period changes.
+	 * Transient, so it is false in deserialized instances.
+	 * @see #getMilliseconds
+	 */
+	private transient boolean millisecondsValid = false;
 
 	/**
 	 * Default constructor.
@@ -101,16 +134,84 @@ public class RTMLPeriodFormat implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param period The period to copy.
+	 */
+	public RTMLPeriodFormat(RTMLPeriodFormat period)
+	{
+		super();
+		years = period.years;
+		months = period.months;
+		days = period.days;
+		hours = period.hours;
+		minutes = period.minutes;
+		seconds = period.seconds;
+		milliseconds = period.milliseconds;
+		millisecondsValid = period.millisecondsValid;
+	}
+
+	/**
+	 * Return an instance representing the period specified by a string of the form:
+	 * <code>
+	 * P{(yyyy)Y{(mm)M}{(dd)D}{T{(hh)H}{(mm}M}{(ss.s..)S}
+	 * </code>
+	 * A class-wide cache of the fields parsed from the most recently used period strings (up to
+	 * MAX_CACHE_SIZE of them) is kept, so commonly used periods (PT1H, P1D, PT30M etc) are only scanned once.
+	 * The returned instance is a new, modifiable instance, which the caller owns.
+	 * @param s The string to parse.
+	 * @return A new instance representing the period.
+	 * @exception RTMLException Thrown if the input string is not valid.
+	 * @exception NumberFormatException Thrown if parsing a numeric value within the period fails.
+	 * @see #parse
+	 * @see #cacheMap
+	 * @see #MAX_CACHE_SIZE
+	 */
+	public static RTMLPeriodFormat valueOf(String s) throws RTMLException, NumberFormatException
+	{
+		RTMLPeriodFormat cachedPeriod = null;
+		RTMLPeriodFormat period = null;
+		Iterator iterator = null;
+
+		synchronized(cacheMap)
+		{
+			cachedPeriod = (RTMLPeriodFormat)(cacheMap.get(s));
+			if(cachedPeriod != null)
+				return new RTMLPeriodFormat(cachedPeriod);
+		}
+		// parse outside the lock, invalid periods are not cached
+		period = new RTMLPeriodFormat();
+		period.parse(s);
+		period.getMilliseconds();
+		cachedPeriod = new RTMLPeriodFormat(period);
+		synchronized(cacheMap)
+		{
+			cacheMap.put(s,cachedPeriod);
+			// evict least recently used period strings
+			iterator = cacheMap.values().iterator();
+			while((cacheMap.size() > MAX_CACHE_SIZE)&&iterator.hasNext())
+			{
+				iterator.next();
+				iterator.remove();
+			}
+		}
+		return period;
+	}
+
 	/**
 	 * Parse a string of the form:
 	 * <code>
 	 * P{(yyyy)Y{(mm)M}{(dd)D}{T{(hh)H}{(mm}M}{(ss.s..)S}
 	 * </code>
-	 * into a time period.
+	 * into a time period. The string is scanned a character at a time, in a single pass, and
+	 * (for valid periods of up to 9 digit integers and 15 digit seconds) no objects are allocated.
+	 * Leading and trailing whitespace is ignored.
 	 * @param s The string to parse.
 	 * @exception RTMLException Thrown if the input string is not valid.
 	 * @exception NumberFormatException Thrown if parsing a numeric value within the period fails.
-	 * @see #removeWhitespace
+	 * @see #isDelimiter
+	 * @see #parseIntValue
+	 * @see #parseDoubleValue
 	 * @see #setYears
 	 * @see #setMonths
 	 * @see #setDays
@@ -120,129 +221,239 @@ public class RTMLPeriodFormat implements Serializable
 	 */
 	public void parse(String s) throws RTMLException, NumberFormatException
 	{
-		StringTokenizer st = null;
-		String tokenString = null;
-		String delimiterString = new String("PYMDTHS");
-		String valueString = null;
 		boolean inP = false;
 		boolean inT = false;
-		int i;
-		double d;
-
-		// remove whitespace from ends of string
-		s = removeWhitespace(s);
-		// return delimiters
-		st = new StringTokenizer(s,delimiterString,true);
-		while(st.hasMoreTokens())
+		int startIndex,endIndex,index,valueIndex,valueStartIndex,valueEndIndex;
+		char ch;
+
+		// remove whitespace from ends of string, by index
+		startIndex = 0;
+		while((startIndex < s.length()) && isWhitespace(s.charAt(startIndex)))
+			startIndex++;
+		endIndex = s.length()-1;
+		while((endIndex >= 0) && isWhitespace(s.charAt(endIndex)))
+			endIndex--;
+		// check if string all whitespace (as removeWhitespace)
+		if(endIndex <= startIndex)
+			return;
+		endIndex++;
+		// value waiting for a delimiter, or -1 if there isn't one
+		valueStartIndex = -1;
+		valueEndIndex = -1;
+		index = startIndex;
+		while(index < endIndex)
 		{
-			tokenString = st.nextToken();
+			ch = s.charAt(index);
+			if(isDelimiter(ch) == false)
+			{
+				// value, up to the next delimiter, to be associated with next parsed delimiter
+				valueIndex = index;
+				while((index < endIndex) && (isDelimiter(s.charAt(index)) == false))
+					index++;
+				if(inP == false)
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parse("+s.substring(startIndex,endIndex)+
+								"):P not parsed when received token "+
+								s.substring(valueIndex,index));
+				}
+				if(valueStartIndex != -1)
+				{
+					throw new RTMLException(this.getClass().getName()+
+								":parse("+s.substring(startIndex,endIndex)+
+								"):setting new value string to "+
+								s.substring(valueIndex,index)+" when old value string "+
+								s.substring(valueStartIndex,valueEndIndex)+" not used yet.");
+				}
+				valueStartIndex = valueIndex;
+				valueEndIndex = index;
+				continue;
+			}
 			// ensure P token is first token received
-			if(tokenString.equals("P") == true)
+			if(ch == 'P')
 				inP = true;
 			if(inP == false)
 			{
 				throw new RTMLException(this.getClass().getName()+
-							 ":parse("+s+"):P not parsed when received token "+
-							 tokenString);
+							":parse("+s.substring(startIndex,endIndex)+
+							"):P not parsed when received token "+ch);
 			}
-			// Is it a delimiter or a value?
-			if(delimiterString.indexOf(tokenString) > -1) // tokenString is in delimiterString
+			switch(ch)
 			{
-				if(tokenString.equals("P"))
-				{
-					inP = true;// no nothing, effectively - see above
-				}
-				else if(tokenString.equals("Y"))
-				{
+				case 'P':
+					break;
+				case 'Y':
 					if(inT)
 					{
 						throw new RTMLException(this.getClass().getName()+
-									 ":parse("+s+"):Y detected after T.");
+									":parse("+s.substring(startIndex,endIndex)+
+									"):Y detected after T.");
 					}
-					i = Integer.parseInt(valueString);
-					setYears(i);
-					valueString = null;
-				}
-				else if(tokenString.equals("M"))
-				{
-					i = Integer.parseInt(valueString);
+					setYears(parseIntValue(s,valueStartIndex,valueEndIndex));
+					valueStartIndex = -1;
+					break;
+				case 'M':
 					if(inT)
-						setMinutes(i);
+						setMinutes(parseIntValue(s,valueStartIndex,valueEndIndex));
 					else
-						setMonths(i);
-					valueString = null;
-				}
-				else if(tokenString.equals("D"))
-				{
+						setMonths(parseIntValue(s,valueStartIndex,valueEndIndex));
+					valueStartIndex = -1;
+					break;
+				case 'D':
 					if(inT)
 					{
 						throw new RTMLException(this.getClass().getName()+
-									 ":parse("+s+"):D detected after T.");
+									":parse("+s.substring(startIndex,endIndex)+
+									"):D detected after T.");
 					}
-					i = Integer.parseInt(valueString);
-					setDays(i);
-					valueString = null;
-				}
-				else if(tokenString.equals("T"))
-				{
+					setDays(parseIntValue(s,valueStartIndex,valueEndIndex));
+					valueStartIndex = -1;
+					break;
+				case 'T':
 					inT = true;
-					if(valueString != null)
+					if(valueStartIndex != -1)
 					{
 						throw new RTMLException(this.getClass().getName()+
-									 ":parse("+s+"):T detected when value string "+
-									 valueString+" not used yet.");
+									":parse("+s.substring(startIndex,endIndex)+
+									"):T detected when value string "+
+									s.substring(valueStartIndex,valueEndIndex)+
+									" not used yet.");
 					}
-				}
-				else if(tokenString.equals("H"))
-				{
+					break;
+				case 'H':
 					if(inT == false)
 					{
 						throw new RTMLException(this.getClass().getName()+
-									 ":parse("+s+"):H detected before T.");
+									":parse("+s.substring(startIndex,endIndex)+
+									"):H detected before T.");
 					}
-					i = Integer.parseInt(valueString);
-					setHours(i);
-					valueString = null;
-				}
-				else if(tokenString.equals("S"))
-				{
+					setHours(parseIntValue(s,valueStartIndex,valueEndIndex));
+					valueStartIndex = -1;
+					break;
+				case 'S':
 					if(inT == false)
 					{
 						throw new RTMLException(this.getClass().getName()+
-									 ":parse("+s+"):S detected before T.");
+									":parse("+s.substring(startIndex,endIndex)+
+									"):S detected before T.");
 					}
-					d = Double.parseDouble(valueString);
-					setSeconds(d);
-					valueString = null;
-				}
-				else
-				{
-					throw new RTMLException(this.getClass().getName()+
-							 ":parse("+s+"):Illegal delimiter "+tokenString+".");
-				}
+					setSeconds(parseDoubleValue(s,valueStartIndex,valueEndIndex));
+					valueStartIndex = -1;
+					break;
 			}
-			else
-			{
-				if(valueString != null)
-				{
-					throw new RTMLException(this.getClass().getName()+
-							 ":parse("+s+"):setting new value string to "+tokenString+
-							 " when old value string "+valueString+" not used yet.");
-				}
-				// string is value  - to be associated with next parsed delimiter
-				valueString = tokenString;
-			}// end else if not delimiter
-		}// end while tokens
-		if(valueString != null)
+			index++;
+		}// end while
+		if(valueStartIndex != -1)
 		{
 			throw new RTMLException(this.getClass().getName()+
-						 ":parse("+s+"):value string "+valueString+
-						 " detected without trailing delimiter.");
+						":parse("+s.substring(startIndex,endIndex)+"):value string "+
+						s.substring(valueStartIndex,valueEndIndex)+
+						" detected without trailing delimiter.");
+		}
+	}
+
+	/**
+	 * Internal method to parse an integer value in a period string.
+	 * Values of up to 9 digits are parsed in place, other values (e.g. with a sign) are passed to
+	 * Integer.parseInt, so the same values are accepted and rejected as Integer.parseInt.
+	 * @param s The period string.
+	 * @param startIndex The index of the first character of the value, or -1 if there is no value.
+	 * @param endIndex The index after the last character of the value.
+	 * @return The value.
+	 * @exception NumberFormatException Thrown if the value is not a valid integer, or there is no value.
+	 */
+	private static int parseIntValue(String s,int startIndex,int endIndex) throws NumberFormatException
+	{
+		int value;
+		char ch;
+
+		if(startIndex == -1)
+			return Integer.parseInt(null); // throws NumberFormatException
+		if((endIndex-startIndex) <= 9)
+		{
+			value = 0;
+			for(int i = startIndex; i < endIndex; i++)
+			{
+				ch = s.charAt(i);
+				if((ch < '0')||(ch > '9'))
+					return Integer.parseInt(s.substring(startIndex,endIndex));
+				value = (value*10)+(ch-'0');
+			}
+			return value;
+		}
+		return Integer.parseInt(s.substring(startIndex,endIndex));
+	}
+
+	/**
+	 * Internal method to parse a (seconds) double value in a period string.
+	 * Values of up to 15 digits, with an optional decimal point, are parsed in place: the digits are
+	 * accumulated exactly in a long, and divided by an exact power of ten, which gives the same (correctly
+	 * rounded) result as Double.parseDouble. Other values are passed to Double.parseDouble.
+	 * @param s The period string.
+	 * @param startIndex The index of the first character of the value, or -1 if there is no value.
+	 * @param endIndex The index after the last character of the value.
+	 * @return The value.
+	 * @exception NumberFormatException Thrown if the value is not a valid double.
+	 * @exception NullPointerException Thrown if there is no value (as Double.parseDouble(null)).
+	 * @see #POWER_OF_TEN_LIST
+	 */
+	private static double parseDoubleValue(String s,int startIndex,int endIndex) throws NumberFormatException
+	{
+		long mantissa;
+		int digitCount,fractionDigitCount;
+		boolean inFraction;
+		char ch;
+
+		if(startIndex == -1)
+			return Double.parseDouble(null); // throws NullPointerException
+		mantissa = 0;
+		digitCount = 0;
+		fractionDigitCount = 0;
+		inFraction = false;
+		for(int i = startIndex; i < endIndex; i++)
+		{
+			ch = s.charAt(i);
+			if((ch >= '0')&&(ch <= '9'))
+			{
+				mantissa = (mantissa*10)+(ch-'0');
+				digitCount++;
+				if(inFraction)
+					fractionDigitCount++;
+			}
+			else if((ch == '.')&&(inFraction == false))
+				inFraction = true;
+			else
+				return Double.parseDouble(s.substring(startIndex,endIndex));
 		}
+		if((digitCount == 0)||(digitCount > 15))
+			return Double.parseDouble(s.substring(startIndex,endIndex));
+		return ((double)mantissa)/POWER_OF_TEN_LIST[fractionDigitCount];
+	}
+
+	/**
+	 * Return whether a character is a period delimiter (one of "PYMDTHS").
+	 * @param ch The character.
+	 * @return true if the character is a delimiter.
+	 */
+	private static boolean isDelimiter(char ch)
+	{
+		return (ch == 'P')||(ch == 'Y')||(ch == 'M')||(ch == 'D')||(ch == 'T')||(ch == 'H')||(ch == 'S');
+	}
+
+	/**
+	 * Return whether a character is whitespace (one of "\n\t\r\f "), as used by removeWhitespace.
+	 * @param ch The character.
+	 * @return true if the character is whitespace.
+	 * @see #removeWhitespace
+	 */
+	private static boolean isWhitespace(char ch)
+	{
+		return (ch == '\n')||(ch == '\t')||(ch == '\r')||(ch == '\f')||(ch == ' ');
 	}
 
 	/**
-	 * Get the number of milliseconds represented by this period.
+	 * Get the number of milliseconds represented by this period. The value is computed on first use,
+	 * and kept until the period is changed.
 	 * @return The number of milliseconds as a long.
 	 * @see #years
 	 * @see #months
@@ -256,11 +467,18 @@ public class RTMLPeriodFormat implements Serializable
 	 * @see #DAY_MS
 	 * @see #MONTH_MS
 	 * @see #YEAR_MS
+	 * @see #milliseconds
+	 * @see #millisecondsValid
 	 */
 	public long getMilliseconds()
 	{
-		return (long)(years*YEAR_MS)+(months*MONTH_MS)+(days*DAY_MS)+
-			(hours*HOUR_MS)+(minutes*MINUTE_MS)+(long)(seconds*((double)SECOND_MS));
+		if(millisecondsValid == false)
+		{
+			milliseconds = (long)(years*YEAR_MS)+(months*MONTH_MS)+(days*DAY_MS)+
+				(hours*HOUR_MS)+(minutes*MINUTE_MS)+(long)(seconds*((double)SECOND_MS));
+			millisecondsValid = true;
+		}
+		return milliseconds;
 	}
 
 	/**
@@ -277,6 +495,7 @@ public class RTMLPeriodFormat implements Serializable
 							   " is not a legal number of years:It is negative.");
 		}
 		years = i;
+		millisecondsValid = false;
 	}
 
 	/**
@@ -303,6 +522,7 @@ public class RTMLPeriodFormat implements Serializable
 							   " is not a legal number of months:It is negative.");
 		}
 		months = i;
+		millisecondsValid = false;
 	}
 
 	/**
@@ -329,6 +549,7 @@ public class RTMLPeriodFormat implements Serializable
 							   " is not a legal number of days:It is negative.");
 		}
 		days = i;
+		millisecondsValid = false;
 	}
 
 	/**
@@ -355,6 +576,7 @@ public class RTMLPeriodFormat implements Serializable
 							   " is not a legal number of hours:It is negative.");
 		}
 		hours = i;
+		millisecondsValid = false;
 	}
 
 	/**
@@ -381,6 +603,7 @@ public class RTMLPeriodFormat implements Serializable
 							   " is not a legal number of minutes:It is negative.");
 		}
 		minutes = i;
+		millisecondsValid = false;
 	}
 
 	/**
@@ -407,6 +630,7 @@ public class RTMLPeriodFormat implements Serializable
 							   " is not a legal number of seconds:It is negative.");
 		}
 		seconds = d;
+		millisecondsValid = false;
 	}
 
 	/**
@@ -454,6 +678,25 @@ public class RTMLPeriodFormat implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the period format, consistent with equals.
+	 * The seconds are compared with a tolerance, so are not used.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,years);
+		hash = RTMLEquality.hash(hash,months);
+		hash = RTMLEquality.hash(hash,days);
+		hash = RTMLEquality.hash(hash,hours);
+		hash = RTMLEquality.hash(hash,minutes);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this period.
 	 * @return A string.
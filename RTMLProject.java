@@ -53,6 +53,16 @@ public class RTMLProject extends RTMLAttributes implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param project The project to copy.
+	 */
+	public RTMLProject(RTMLProject project)
+	{
+		super(project);
+		this.project = project.project;
+	}
+
 	/**
 	 * Method to set the Project.
 	 * @param p The project - currently the LT/FTN/FTS proposal ID.
@@ -72,6 +82,37 @@ public class RTMLProject extends RTMLAttributes implements Serializable
 		return project;
 	}
 
+	/**
+	 * Test whether one project is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #project
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLProject other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLProject)obj;
+		return RTMLEquality.same(project,other.project);
+	}
+
+	/**
+	 * Return a hash code for the project, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,project);
+		return hash;
+	}
+
 	/**
 	 * String representation of this Project.
 	 * @see #toString(java.lang.String)
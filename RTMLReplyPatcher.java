@@ -0,0 +1,1313 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLReplyPatcher.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * This class derives a reply from a serialized RTML document without parsing it. A reply usually differs from
+ * the document it answers by a few small edits: a new mode (RTML 3.1a) or type (RTML 2.2), an appended
+ * history entry, some scores, a completion time. Rather than parse the whole document, edit it and write it
+ * out again, the patcher scans the document's markup (without building a DOM tree or RTMLDocument) to find
+ * the root element's attributes and child elements, and copies the original bytes to the output, splicing in
+ * the changed attribute values and elements. The new elements are written by the same code RTMLCreate.write
+ * uses, in the document's encoding and indentation, so a document written by RTMLCreate.write and then
+ * patched is the same, byte for byte, as the edited document written by RTMLCreate.write.
+ * <p>
+ * Only the root element's start tag and it's child elements are located: the content of the other child
+ * elements (observations, targets, ephemeris tracks) is copied without being examined, which makes patching a
+ * large document much cheaper than a reparse. The document is not validated.
+ * <p>
+ * The edits that can be made are:
+ * <ul>
+ * <li>setMode: RTML 3.1a root mode attribute (ignored for RTML 2.2 documents).
+ * <li>setType: RTML 2.2 root type attribute (ignored for RTML 3.1a documents).
+ * <li>addHistoryEntry: append an entry to the History element (RTML 3.1a only).
+ * <li>addScore: append a score to the Scoring (RTML 3.1a) or Scores (RTML 2.2) element.
+ * <li>setScore: set the Score element (RTML 2.2 only).
+ * <li>setCompletionTime: set the CompletionTime element (RTML 2.2 only).
+ * </ul>
+ * The document must be encoded in ISO-8859-1 or UTF-8 (the encodings RTMLCreate writes).
+ * The edits are kept after patching, so the same patcher can be used to patch several documents.
+ * The state of each patch is kept in a separate object, so a patcher can be used by several threads at once,
+ * as long as the edits are not changed while a document is being patched. New lines are written with
+ * the document's own line separator.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLCreate#write(org.estar.rtml.RTMLDocument,java.io.OutputStream)
+ * @see org.estar.rtml.RTMLXMLWriter
+ * @see org.estar.rtml.RTML22StreamCreate
+ * @see org.estar.rtml.RTML31StreamCreate
+ */
+public class RTMLReplyPatcher
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The new RTML 3.1a mode, or null if the mode is unchanged.
+	 */
+	private String mode = null;
+	/**
+	 * The new RTML 2.2 type, or null if the type is unchanged.
+	 */
+	private String type = null;
+	/**
+	 * The list of RTMLHistoryEntry s to append to the document's history.
+	 */
+	private List historyEntryList = new Vector();
+	/**
+	 * The list of RTMLScore s to append to the document's scores.
+	 */
+	private List scoreList = new Vector();
+	/**
+	 * The new RTML 2.2 document score, or null if the score is unchanged.
+	 */
+	private Double score = null;
+	/**
+	 * The new RTML 2.2 completion time, or null if the completion time is unchanged.
+	 */
+	private Date completionTime = null;
+	/**
+	 * Default constructor. There are no edits.
+	 */
+	public RTMLReplyPatcher()
+	{
+		super();
+	}
+
+	/**
+	 * Set the new RTML 3.1a document mode. This is ignored when patching RTML 2.2 documents.
+	 * @param s The mode, or null to leave the mode unchanged.
+	 * @see #mode
+	 * @see org.estar.rtml.RTMLDocument#setMode
+	 */
+	public void setMode(String s)
+	{
+		mode = s;
+	}
+
+	/**
+	 * Get the new RTML 3.1a document mode.
+	 * @return The mode, or null if the mode is unchanged.
+	 * @see #mode
+	 */
+	public String getMode()
+	{
+		return mode;
+	}
+
+	/**
+	 * Set the new RTML 2.2 document type. This is ignored when patching RTML 3.1a documents.
+	 * @param s The type, or null to leave the type unchanged.
+	 * @see #type
+	 * @see org.estar.rtml.RTMLDocument#setType
+	 */
+	public void setType(String s)
+	{
+		type = s;
+	}
+
+	/**
+	 * Get the new RTML 2.2 document type.
+	 * @return The type, or null if the type is unchanged.
+	 * @see #type
+	 */
+	public String getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Add an entry to append to the document's history (RTML 3.1a only).
+	 * The entry is copied, so it can be changed afterwards.
+	 * @param entry The history entry.
+	 * @see #historyEntryList
+	 */
+	public void addHistoryEntry(RTMLHistoryEntry entry)
+	{
+		historyEntryList.add(new RTMLHistoryEntry(entry));
+	}
+
+	/**
+	 * Convenience method to add a normal history entry, as RTMLDocument.addHistoryEntry does.
+	 * The entry timestamp is set to now.
+	 * @param agentName The name of the agent adding the history.
+	 * @param agentUri The agent URI.
+	 * @param description A description of the changes made to the document.
+	 * @see #historyEntryList
+	 * @see org.estar.rtml.RTMLDocument#addHistoryEntry(java.lang.String,java.lang.String,java.lang.String)
+	 */
+	public void addHistoryEntry(String agentName,String agentUri,String description)
+	{
+		RTMLHistoryEntry entry = null;
+		RTMLIntelligentAgent ia = null;
+
+		ia = new RTMLIntelligentAgent();
+		ia.setId(agentName);
+		ia.setUri(agentUri);
+		entry = new RTMLHistoryEntry();
+		entry.setTimeStamp(new Date());
+		entry.setAgent(ia);
+		entry.setDescription(description);
+		historyEntryList.add(entry);
+	}
+
+	/**
+	 * Get the number of history entries to append.
+	 * @return The number of history entries.
+	 * @see #historyEntryList
+	 */
+	public int getHistoryEntryCount()
+	{
+		return historyEntryList.size();
+	}
+
+	/**
+	 * Add a score to append to the document's scores (the Scoring element in RTML 3.1a, the Scores element
+	 * in RTML 2.2). The score is copied, so it can be changed afterwards.
+	 * @param sc The score.
+	 * @see #scoreList
+	 * @see org.estar.rtml.RTMLDocument#addScore(org.estar.rtml.RTMLScore)
+	 */
+	public void addScore(RTMLScore sc)
+	{
+		scoreList.add(new RTMLScore(sc));
+	}
+
+	/**
+	 * Get the number of scores to append.
+	 * @return The number of scores.
+	 * @see #scoreList
+	 */
+	public int getScoresListCount()
+	{
+		return scoreList.size();
+	}
+
+	/**
+	 * Set the new RTML 2.2 document score. Patching an RTML 3.1a document fails if this is set.
+	 * @param s The score.
+	 * @see #score
+	 * @see org.estar.rtml.RTMLDocument#setScore(double)
+	 */
+	public void setScore(double s)
+	{
+		score = Double.valueOf(s);
+	}
+
+	/**
+	 * Get the new RTML 2.2 document score.
+	 * @return The score, or null if the score is unchanged.
+	 * @see #score
+	 */
+	public Double getScore()
+	{
+		return score;
+	}
+
+	/**
+	 * Set the new RTML 2.2 completion time. Patching an RTML 3.1a document fails if this is set.
+	 * @param t The completion time, or null to leave the completion time unchanged.
+	 * @see #completionTime
+	 * @see org.estar.rtml.RTMLDocument#setCompletionTime(java.util.Date)
+	 */
+	public void setCompletionTime(Date t)
+	{
+		if(t != null)
+			completionTime = new Date(t.getTime());
+		else
+			completionTime = null;
+	}
+
+	/**
+	 * Get the new RTML 2.2 completion time.
+	 * @return The completion time, or null if the completion time is unchanged.
+	 * @see #completionTime
+	 */
+	public Date getCompletionTime()
+	{
+		return completionTime;
+	}
+
+	/**
+	 * Remove all the edits.
+	 */
+	public void clear()
+	{
+		mode = null;
+		type = null;
+		historyEntryList.clear();
+		scoreList.clear();
+		score = null;
+		completionTime = null;
+	}
+
+	/**
+	 * Patch a serialized RTML document.
+	 * @param b The document.
+	 * @return The patched document.
+	 * @exception RTMLException Thrown if the document is malformed or not supported, or an edit does not
+	 *            apply to the document's version.
+	 * @see #patch(byte[],int,int,java.io.OutputStream)
+	 */
+	public byte[] patch(byte b[]) throws RTMLException
+	{
+		ByteArrayOutputStream os = null;
+
+		os = new ByteArrayOutputStream(b.length+1024);
+		patch(b,0,b.length,os);
+		return os.toByteArray();
+	}
+
+	/**
+	 * Patch a serialized RTML document, and write the result to an output stream. Nothing is written if
+	 * the document cannot be patched.
+	 * @param b The buffer containing the document.
+	 * @param off The index of the start of the document in the buffer.
+	 * @param len The length of the document.
+	 * @param os The output stream to write the patched document to. The stream is not flushed or closed.
+	 * @exception RTMLException Thrown if the document is malformed or not supported, an edit does not
+	 *            apply to the document's version, or writing fails.
+	 * @see Patch
+	 */
+	public void patch(byte b[],int off,int len,OutputStream os) throws RTMLException
+	{
+		Patch patch = null;
+
+		if((off < 0)||(len < 0)||(off+len > b.length)||(off+len < 0))
+		{
+			throw new RTMLException(this.getClass().getName()+":patch:Illegal offset "+off+
+						" or length "+len+" for buffer of length "+b.length+".");
+		}
+		patch = new Patch(b,off,len);
+		try
+		{
+			patch.scan();
+			patch.createSplices();
+			patch.writeSplices(os);
+		}
+		catch(IOException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":patch:Failed.",e);
+		}
+	}
+
+	/**
+	 * The state of one patch: the document being patched, the positions found by scanning it, and the
+	 * splices made to it. A new instance is created for each document, so a patcher can patch several
+	 * documents at once (in different threads), as long as it's edits are not changed while it does.
+	 * The edits are read from the enclosing patcher.
+	 */
+	private class Patch
+	{
+		/**
+		 * The document being patched.
+		 */
+		private byte data[] = null;
+		/**
+		 * The index of the start of the document in data.
+		 */
+		private int offset = 0;
+		/**
+		 * The index of the end of the document in data.
+		 */
+		private int end = 0;
+		/**
+		 * The document's encoding, from the XML declaration (UTF-8 if there is none).
+		 */
+		private String encoding = null;
+		/**
+		 * Whether the document is indented (the root element's first child is on a new line).
+		 */
+		private boolean indent = true;
+		/**
+		 * The index of the end of the root element's start tag (just after the '&gt;').
+		 */
+		private int rootStartTagEnd = -1;
+		/**
+		 * The index of the start of the root element's end tag.
+		 */
+		private int rootEndTagStart = -1;
+		/**
+		 * The root element's attributes (Attribute s), in document order.
+		 */
+		private List rootAttributeList = new Vector();
+		/**
+		 * The root element's child elements (Element s), in document order.
+		 */
+		private List rootChildList = new Vector();
+		/**
+		 * The splices (Splice s) to make to the document.
+		 */
+		private List spliceList = new Vector();
+		/**
+		 * The name of the last start tag scanned, if it's name was wanted.
+		 * @see #scanStartTag
+		 */
+		private String tagName = null;
+		/**
+		 * Whether the last start tag scanned was an empty element tag.
+		 * @see #scanStartTag
+		 */
+		private boolean tagEmpty = false;
+		/**
+		 * The writer fragments are written into.
+		 * @see #beginFragment
+		 */
+		private StringWriter fragmentWriter = null;
+		/**
+		 * The XML writer fragments are written with.
+		 * @see #beginFragment
+		 */
+		private RTMLXMLWriter xmlWriter = null;
+		/**
+		 * The length of the fragment writer's buffer when the fragment's content started.
+		 * @see #beginFragment
+		 */
+		private int fragmentStart = 0;
+		/**
+		 * The document's line separator, "\r\n" if the document's first line ends with one, and "\n" otherwise.
+		 * Fragments are written with it.
+		 */
+		private String lineSeparator = null;
+		/**
+		 * Used to write RTML 2.2 elements.
+		 */
+		private RTML22StreamCreate create22 = null;
+		/**
+		 * Used to write RTML 3.1a elements.
+		 */
+		private RTML31StreamCreate create31 = null;
+
+		/**
+		 * Constructor.
+		 * @param b The buffer containing the document.
+		 * @param off The index of the start of the document in the buffer.
+		 * @param len The length of the document.
+		 */
+		Patch(byte b[],int off,int len)
+		{
+			super();
+			data = b;
+			offset = off;
+			end = off+len;
+		}
+
+		/**
+		 * Scan the document's markup, to find it's encoding, the root element's attributes and child elements,
+		 * the end of the root element, and the document's line separator.
+		 * @exception RTMLException Thrown if the document is malformed.
+		 * @see #scanEncoding
+		 * @see #scanStartTag
+		 * @see #scanEndTag
+		 * @see #rootAttributeList
+		 * @see #rootChildList
+		 * @see #lineSeparator
+		 */
+		private void scan() throws RTMLException
+		{
+			Element child = null;
+			int i,depth,start;
+			boolean rootFound;
+
+			rootStartTagEnd = -1;
+			rootEndTagStart = -1;
+			rootFound = false;
+			depth = 0;
+			i = scanEncoding();
+			while(i < end)
+			{
+				if(data[i] != '<')
+				{
+					i++;
+					continue;
+				}
+				start = i;
+				if(startsWith(i,"<?"))
+					i = skipPast(i+2,"?>");
+				else if(startsWith(i,"<!--"))
+					i = skipPast(i+4,"-->");
+				else if(startsWith(i,"<![CDATA["))
+					i = skipPast(i+9,"]]>");
+				else if(startsWith(i,"<!"))
+					i = skipDeclaration(i+2);
+				else if(startsWith(i,"</"))
+				{
+					i = scanEndTag(i+2);
+					depth--;
+					if(depth == 1)
+					{
+						child.endTagStart = start;
+						child.end = i;
+						rootChildList.add(child);
+						child = null;
+					}
+					else if(depth == 0)
+						rootEndTagStart = start;
+					else if(depth < 0)
+					{
+						throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+									":scan:Unexpected end tag at "+
+									(start-offset)+".");
+					}
+				}
+				else if(depth == 0)
+				{
+					if(rootFound)
+					{
+						throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+									":scan:Element after the root element at "+
+									(start-offset)+".");
+					}
+					rootFound = true;
+					i = scanStartTag(i+1,true,true);
+					if(tagName.equals("RTML") == false)
+					{
+						throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+									":scan:Root element "+tagName+
+									" is not RTML.");
+					}
+					if(tagEmpty)
+					{
+						throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+									":scan:Root element has no content.");
+					}
+					rootStartTagEnd = i;
+					depth++;
+				}
+				else if(depth == 1)
+				{
+					i = scanStartTag(i+1,true,false);
+					child = new Element();
+					child.name = tagName;
+					child.start = start;
+					child.startTagEnd = i;
+					if(tagEmpty)
+					{
+						child.endTagStart = -1;
+						child.end = i;
+						rootChildList.add(child);
+						child = null;
+					}
+					else
+						depth++;
+				}
+				else
+				{
+					i = scanStartTag(i+1,false,false);
+					if(tagEmpty == false)
+						depth++;
+				}
+			}
+			if(rootFound == false)
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":scan:No root element found.");
+			if(depth != 0)
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":scan:Document is truncated.");
+			lineSeparator = "\n";
+			for(i = offset; i < end; i++)
+			{
+				if(data[i] == '\n')
+				{
+					if((i > offset)&&(data[i-1] == '\r'))
+						lineSeparator = "\r\n";
+					break;
+				}
+			}
+			indent = false;
+			if(rootChildList.size() > 0)
+			{
+				child = (Element)(rootChildList.get(0));
+				for(i = rootStartTagEnd; i < child.start; i++)
+				{
+					if(data[i] == '\n')
+						indent = true;
+				}
+			}
+		}
+
+		/**
+		 * Find the document's encoding, from the XML declaration at the start of the document.
+		 * If there is no XML declaration, or it has no encoding, the encoding is UTF-8. A UTF-8 byte order mark
+		 * is skipped.
+		 * @return The index to start scanning the document's markup from.
+		 * @exception RTMLException Thrown if the encoding is not ISO-8859-1 or UTF-8.
+		 * @see #encoding
+		 */
+		private int scanEncoding() throws RTMLException
+		{
+			int i,declarationEnd,quote;
+
+			i = offset;
+			encoding = RTMLXMLWriter.ENCODING_UTF_8;
+			// UTF-8 byte order mark
+			if((end-i >= 3)&&(data[i] == (byte)0xEF)&&(data[i+1] == (byte)0xBB)&&(data[i+2] == (byte)0xBF))
+				i += 3;
+			if(startsWith(i,"<?xml") == false)
+				return i;
+			declarationEnd = skipPast(i+5,"?>");
+			for(int j = i+5; j < declarationEnd-8; j++)
+			{
+				if(startsWith(j,"encoding"))
+				{
+					j = skipWhitespace(j+8);
+					if((j < declarationEnd)&&(data[j] == '='))
+						j = skipWhitespace(j+1);
+					if((j < declarationEnd)&&((data[j] == '"')||(data[j] == '\'')))
+					{
+						quote = j;
+						for(j = quote+1; (j < declarationEnd)&&(data[j] != data[quote]); j++)
+							;
+						encoding = toString(quote+1,j);
+					}
+					break;
+				}
+			}
+			if(RTMLXMLWriter.ENCODING_ISO_8859_1.equalsIgnoreCase(encoding))
+				encoding = RTMLXMLWriter.ENCODING_ISO_8859_1;
+			else if(RTMLXMLWriter.ENCODING_UTF_8.equalsIgnoreCase(encoding))
+				encoding = RTMLXMLWriter.ENCODING_UTF_8;
+			else
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":scanEncoding:Unsupported encoding:"+encoding);
+			}
+			return declarationEnd;
+		}
+
+		/**
+		 * Scan a start tag.
+		 * @param i The index just after the '&lt;'.
+		 * @param wantName Whether to set tagName to the element's name.
+		 * @param wantAttributes Whether to add the tag's attributes to rootAttributeList.
+		 * @return The index just after the end of the tag.
+		 * @exception RTMLException Thrown if the tag is malformed.
+		 * @see #tagName
+		 * @see #tagEmpty
+		 * @see #rootAttributeList
+		 */
+		private int scanStartTag(int i,boolean wantName,boolean wantAttributes) throws RTMLException
+		{
+			Attribute attribute = null;
+			int nameStart,nameEnd,valueStart;
+
+			nameStart = i;
+			i = scanName(i);
+			if(i == nameStart)
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":scanStartTag:Malformed start tag at "+
+							(nameStart-1-offset)+".");
+			}
+			if(wantName)
+				tagName = toString(nameStart,i);
+			while(true)
+			{
+				i = skipWhitespace(i);
+				if(i >= end)
+					break;
+				if(data[i] == '>')
+				{
+					tagEmpty = false;
+					return i+1;
+				}
+				if((data[i] == '/')&&(i+1 < end)&&(data[i+1] == '>'))
+				{
+					tagEmpty = true;
+					return i+2;
+				}
+				nameStart = i;
+				i = scanName(i);
+				nameEnd = i;
+				i = skipWhitespace(i);
+				if((nameEnd == nameStart)||(i >= end)||(data[i] != '='))
+					break;
+				i = skipWhitespace(i+1);
+				if((i >= end)||((data[i] != '"')&&(data[i] != '\'')))
+					break;
+				valueStart = i;
+				for(i = valueStart+1; (i < end)&&(data[i] != data[valueStart]); i++)
+					;
+				if(i >= end)
+					break;
+				i++;
+				if(wantAttributes)
+				{
+					attribute = new Attribute();
+					attribute.name = toString(nameStart,nameEnd);
+					attribute.nameStart = nameStart;
+					attribute.valueStart = valueStart;
+					attribute.valueEnd = i;
+					rootAttributeList.add(attribute);
+				}
+			}
+			throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+						":scanStartTag:Malformed start tag at "+(i-offset)+".");
+		}
+
+		/**
+		 * Scan an end tag.
+		 * @param i The index just after the '&lt;/'.
+		 * @return The index just after the end of the tag.
+		 * @exception RTMLException Thrown if the tag is malformed.
+		 */
+		private int scanEndTag(int i) throws RTMLException
+		{
+			i = skipWhitespace(scanName(i));
+			if((i >= end)||(data[i] != '>'))
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":scanEndTag:Malformed end tag at "+(i-offset)+".");
+			}
+			return i+1;
+		}
+
+		/**
+		 * Skip a markup declaration (DOCTYPE), including any quoted strings and internal subset. Comments and
+		 * processing instructions in the internal subset are skipped whole, so quotes and brackets in them
+		 * are ignored.
+		 * @param i The index just after the '&lt;!'.
+		 * @return The index just after the end of the declaration.
+		 * @exception RTMLException Thrown if the declaration is not terminated.
+		 */
+		private int skipDeclaration(int i) throws RTMLException
+		{
+			byte quote;
+			boolean subset;
+
+			quote = 0;
+			subset = false;
+			for(; i < end; i++)
+			{
+				if(quote != 0)
+				{
+					if(data[i] == quote)
+						quote = 0;
+				}
+				else if((data[i] == '"')||(data[i] == '\''))
+					quote = data[i];
+				else if(subset && startsWith(i,"<!--"))
+					i = skipPast(i+4,"-->")-1;
+				else if(subset && startsWith(i,"<?"))
+					i = skipPast(i+2,"?>")-1;
+				else if(data[i] == '[')
+					subset = true;
+				else if(data[i] == ']')
+					subset = false;
+				else if((data[i] == '>')&&(subset == false))
+					return i+1;
+			}
+			throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+						":skipDeclaration:Unterminated declaration.");
+		}
+
+		/**
+		 * Skip to just after the next occurence of a string.
+		 * @param i The index to start searching from.
+		 * @param s The string (ASCII).
+		 * @return The index just after the string.
+		 * @exception RTMLException Thrown if the string is not found.
+		 */
+		private int skipPast(int i,String s) throws RTMLException
+		{
+			for(; i <= end-s.length(); i++)
+			{
+				if(startsWith(i,s))
+					return i+s.length();
+			}
+			throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+":skipPast:Unterminated markup, "+s+
+						" not found.");
+		}
+
+		/**
+		 * Return whether the document contains a string at an index.
+		 * @param i The index.
+		 * @param s The string (ASCII).
+		 * @return true if the string is at the index.
+		 */
+		private boolean startsWith(int i,String s)
+		{
+			if(i+s.length() > end)
+				return false;
+			for(int j = 0; j < s.length(); j++)
+			{
+				if(data[i+j] != s.charAt(j))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Skip an element or attribute name.
+		 * @param i The index of the start of the name.
+		 * @return The index just after the name.
+		 */
+		private int scanName(int i)
+		{
+			while((i < end)&&(isWhitespace(data[i]) == false)&&(data[i] != '>')&&(data[i] != '/')&&
+			      (data[i] != '='))
+				i++;
+			return i;
+		}
+
+		/**
+		 * Skip whitespace.
+		 * @param i The index to start from.
+		 * @return The index of the first non-whitespace character, or the end of the document.
+		 */
+		private int skipWhitespace(int i)
+		{
+			while((i < end)&&isWhitespace(data[i]))
+				i++;
+			return i;
+		}
+
+		/**
+		 * Find the start of the whitespace before an index.
+		 * @param i The index.
+		 * @return The index of the start of the run of whitespace ending just before i.
+		 */
+		private int whitespaceStart(int i)
+		{
+			while((i > offset)&&isWhitespace(data[i-1]))
+				i--;
+			return i;
+		}
+
+		/**
+		 * Return whether a byte is XML whitespace.
+		 * @param b The byte.
+		 * @return true if the byte is a space, tab, carriage return or newline.
+		 */
+		private boolean isWhitespace(byte b)
+		{
+			return (b == ' ')||(b == '\t')||(b == '\r')||(b == '\n');
+		}
+
+		/**
+		 * Return a string containing the specified bytes of the document, one character per byte.
+		 * Only used for names and values that are expected to be ASCII.
+		 * @param start The index of the first byte.
+		 * @param stop The index just after the last byte.
+		 * @return The string.
+		 */
+		private String toString(int start,int stop)
+		{
+			StringBuffer sb = null;
+
+			sb = new StringBuffer(stop-start);
+			for(int i = start; i < stop; i++)
+				sb.append((char)(data[i]&0xFF));
+			return sb.toString();
+		}
+
+		/**
+		 * Find a root element attribute.
+		 * @param name The attribute name.
+		 * @return The attribute, or null if the root element does not have the attribute.
+		 * @see #rootAttributeList
+		 */
+		private Attribute getRootAttribute(String name)
+		{
+			Attribute attribute = null;
+
+			for(int i = 0; i < rootAttributeList.size(); i++)
+			{
+				attribute = (Attribute)(rootAttributeList.get(i));
+				if(attribute.name.equals(name))
+					return attribute;
+			}
+			return null;
+		}
+
+		/**
+		 * Find a child element of the root element.
+		 * @param name The element name.
+		 * @return The first child element with that name, or null if there is none.
+		 * @see #rootChildList
+		 */
+		private Element getRootChild(String name)
+		{
+			Element child = null;
+
+			for(int i = 0; i < rootChildList.size(); i++)
+			{
+				child = (Element)(rootChildList.get(i));
+				if(child.name.equals(name))
+					return child;
+			}
+			return null;
+		}
+
+		/**
+		 * Get the index just after the last child element of the root element.
+		 * @return The index.
+		 * @exception RTMLException Thrown if the root element has no child elements.
+		 * @see #rootChildList
+		 */
+		private int getRootChildrenEnd() throws RTMLException
+		{
+			if(rootChildList.size() == 0)
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":getRootChildrenEnd:Root element has no child elements.");
+			}
+			return ((Element)(rootChildList.get(rootChildList.size()-1))).end;
+		}
+
+		/**
+		 * Create the splices that make the edits.
+		 * @exception RTMLException Thrown if the document's version is not supported, or an edit does not apply
+		 *            to the document's version.
+		 * @exception IOException Thrown if writing a fragment fails.
+		 * @see #createRTML22Splices
+		 * @see #createRTML31Splices
+		 */
+		private void createSplices() throws RTMLException, IOException
+		{
+			Attribute versionAttribute = null;
+			String version = null;
+
+			versionAttribute = getRootAttribute("version");
+			if(versionAttribute == null)
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":createSplices:Root element has no version attribute.");
+			}
+			version = toString(versionAttribute.valueStart+1,versionAttribute.valueEnd-1);
+			if(version.equals(RTMLDocument.RTML_VERSION_22))
+				createRTML22Splices();
+			else if(version.equals(RTMLDocument.RTML_VERSION_31))
+				createRTML31Splices();
+			else
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":createSplices:Unsupported document version:"+version);
+			}
+		}
+
+		/**
+		 * Create the splices that make the edits to an RTML 2.2 document. The root element's Score, Scores and
+		 * CompletionTime elements are kept in the order RTML22StreamCreate writes them: after the other elements,
+		 * and before any error text. The error text is removed if the type is changed to one other than
+		 * reject, fail or abort, as RTML22StreamCreate does not write it for other types.
+		 * @exception RTMLException Thrown if history entries are to be added.
+		 * @exception IOException Thrown if writing a fragment fails.
+		 * @see #type
+		 * @see #score
+		 * @see #scoreList
+		 * @see #completionTime
+		 */
+		private void createRTML22Splices() throws RTMLException, IOException
+		{
+			Element scoreElement = null;
+			Element scoresElement = null;
+			Element completionTimeElement = null;
+			int start,position;
+
+			if(historyEntryList.size() > 0)
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":createRTML22Splices:RTML 2.2 documents have no history.");
+			}
+			if(create22 == null)
+				create22 = new RTML22StreamCreate();
+			if(type != null)
+				createAttributeSplice("type",type);
+			scoreElement = getRootChild("Score");
+			scoresElement = getRootChild("Scores");
+			completionTimeElement = getRootChild("CompletionTime");
+			// Score
+			if(score != null)
+			{
+				beginFragment(new String[] {"RTML"});
+				create22.createScore(score);
+				if(scoreElement != null)
+					addSplice(whitespaceStart(scoreElement.start),scoreElement.end,endFragment());
+				else
+				{
+					if(scoresElement != null)
+						position = whitespaceStart(scoresElement.start);
+					else if(completionTimeElement != null)
+						position = whitespaceStart(completionTimeElement.start);
+					else
+						position = getRootChildrenEnd();
+					addSplice(position,position,endFragment());
+				}
+			}
+			// Scores
+			if(scoreList.size() > 0)
+			{
+				if((scoresElement != null)&&(scoresElement.endTagStart > -1))
+				{
+					beginFragment(new String[] {"RTML","Scores"});
+					for(int i = 0; i < scoreList.size(); i++)
+						create22.createScore((RTMLScore)(scoreList.get(i)));
+					position = whitespaceStart(scoresElement.endTagStart);
+					addSplice(position,position,endFragment());
+				}
+				else
+				{
+					beginFragment(new String[] {"RTML"});
+					xmlWriter.writeStartElement("Scores");
+					for(int i = 0; i < scoreList.size(); i++)
+						create22.createScore((RTMLScore)(scoreList.get(i)));
+					xmlWriter.writeEndElement();
+					if(scoresElement != null)
+						addSplice(whitespaceStart(scoresElement.start),scoresElement.end,endFragment());
+					else
+					{
+						if(completionTimeElement != null)
+							position = whitespaceStart(completionTimeElement.start);
+						else
+							position = getRootChildrenEnd();
+						addSplice(position,position,endFragment());
+					}
+				}
+			}
+			// CompletionTime
+			if(completionTime != null)
+			{
+				beginFragment(new String[] {"RTML"});
+				create22.createCompletionTime(completionTime);
+				if(completionTimeElement != null)
+				{
+					addSplice(whitespaceStart(completionTimeElement.start),completionTimeElement.end,
+						  endFragment());
+				}
+				else
+				{
+					position = getRootChildrenEnd();
+					addSplice(position,position,endFragment());
+				}
+			}
+			// error text (after the last child element) is only written for reject, fail and abort documents.
+			// This splice is added last, so any elements inserted at the same position are written first
+			if((type != null)&&(type.equals("reject") == false)&&(type.equals("fail") == false)&&
+			   (type.equals("abort") == false))
+			{
+				if(rootChildList.size() > 0)
+					start = getRootChildrenEnd();
+				else
+					start = rootStartTagEnd;
+				// replaced by what RTMLXMLWriter writes before the root end tag
+				if(whitespaceStart(rootEndTagStart) > start)
+				{
+					if(indent)
+						addSplice(start,rootEndTagStart,lineSeparator);
+					else
+						addSplice(start,rootEndTagStart,"");
+				}
+			}
+		}
+
+		/**
+		 * Create the splices that make the edits to an RTML 3.1a document. A History element is the first child
+		 * of the root element, and a Scoring element the last, as RTML31StreamCreate writes them.
+		 * @exception RTMLException Thrown if a score or completion time is to be set.
+		 * @exception IOException Thrown if writing a fragment fails.
+		 * @see #mode
+		 * @see #historyEntryList
+		 * @see #scoreList
+		 */
+		private void createRTML31Splices() throws RTMLException, IOException
+		{
+			Element historyElement = null;
+			Element scoringElement = null;
+			int position;
+
+			if((score != null)||(completionTime != null))
+			{
+				throw new RTMLException(RTMLReplyPatcher.this.getClass().getName()+
+							":createRTML31Splices:RTML 3.1a documents have no Score or "+
+							"CompletionTime.");
+			}
+			if(create31 == null)
+				create31 = new RTML31StreamCreate();
+			if(mode != null)
+				createAttributeSplice("mode",mode);
+			// History
+			if(historyEntryList.size() > 0)
+			{
+				historyElement = getRootChild("History");
+				if((historyElement != null)&&(historyElement.endTagStart > -1))
+				{
+					beginFragment(new String[] {"RTML","History"});
+					for(int i = 0; i < historyEntryList.size(); i++)
+						create31.createHistoryEntry((RTMLHistoryEntry)(historyEntryList.get(i)));
+					position = whitespaceStart(historyElement.endTagStart);
+					addSplice(position,position,endFragment());
+				}
+				else
+				{
+					beginFragment(new String[] {"RTML"});
+					xmlWriter.writeStartElement("History");
+					for(int i = 0; i < historyEntryList.size(); i++)
+						create31.createHistoryEntry((RTMLHistoryEntry)(historyEntryList.get(i)));
+					xmlWriter.writeEndElement();
+					if(historyElement != null)
+						addSplice(whitespaceStart(historyElement.start),historyElement.end,endFragment());
+					else
+						addSplice(rootStartTagEnd,rootStartTagEnd,endFragment());
+				}
+			}
+			// Scoring
+			if(scoreList.size() > 0)
+			{
+				scoringElement = getRootChild("Scoring");
+				if((scoringElement != null)&&(scoringElement.endTagStart > -1))
+				{
+					beginFragment(new String[] {"RTML","Scoring"});
+					for(int i = 0; i < scoreList.size(); i++)
+						create31.createScore((RTMLScore)(scoreList.get(i)));
+					position = whitespaceStart(scoringElement.endTagStart);
+					addSplice(position,position,endFragment());
+				}
+				else
+				{
+					beginFragment(new String[] {"RTML"});
+					xmlWriter.writeStartElement("Scoring");
+					for(int i = 0; i < scoreList.size(); i++)
+						create31.createScore((RTMLScore)(scoreList.get(i)));
+					xmlWriter.writeEndElement();
+					if(scoringElement != null)
+						addSplice(whitespaceStart(scoringElement.start),scoringElement.end,endFragment());
+					else
+					{
+						position = getRootChildrenEnd();
+						addSplice(position,position,endFragment());
+					}
+				}
+			}
+		}
+
+		/**
+		 * Create a splice that sets a root element attribute. An existing value is replaced. A new attribute is
+		 * inserted where RTMLXMLWriter would write it: before the first attribute (other than a namespace
+		 * declaration) whose name sorts after it, or else after the last attribute.
+		 * @param name The attribute name.
+		 * @param value The attribute value.
+		 * @exception IOException Thrown if escaping the value fails.
+		 * @see #rootAttributeList
+		 * @see org.estar.rtml.RTMLXMLWriter#writeAttributeValue
+		 */
+		private void createAttributeSplice(String name,String value) throws IOException
+		{
+			Attribute attribute = null;
+			String escapedValue = null;
+			int position;
+
+			fragmentWriter = new StringWriter();
+			xmlWriter = new RTMLXMLWriter(fragmentWriter);
+			xmlWriter.setEncoding(encoding);
+			xmlWriter.writeAttributeValue(value);
+			xmlWriter.flush();
+			escapedValue = fragmentWriter.toString();
+			attribute = getRootAttribute(name);
+			if(attribute != null)
+			{
+				addSplice(attribute.valueStart,attribute.valueEnd,"\""+escapedValue+"\"");
+				return;
+			}
+			for(int i = 0; i < rootAttributeList.size(); i++)
+			{
+				attribute = (Attribute)(rootAttributeList.get(i));
+				if((attribute.name.equals("xmlns") == false)&&(attribute.name.startsWith("xmlns:") == false)&&
+				   (attribute.name.compareTo(name) > 0))
+				{
+					addSplice(attribute.nameStart,attribute.nameStart,name+"=\""+escapedValue+"\" ");
+					return;
+				}
+			}
+			if(rootAttributeList.size() > 0)
+				position = ((Attribute)(rootAttributeList.get(rootAttributeList.size()-1))).valueEnd;
+			else
+			{
+				// just after the root element's name
+				position = rootStartTagEnd-1;
+				while(isWhitespace(data[position-1]))
+					position--;
+			}
+			addSplice(position,position," "+name+"=\""+escapedValue+"\"");
+		}
+
+		/**
+		 * Start writing a fragment of the document. A new XML writer is created, with the document's encoding
+		 * and indentation, and the start tags of the enclosing elements are written to it, so the fragment's
+		 * content is indented by the right amount. The stream create objects are set to write to the new writer.
+		 * @param parentNameList The names of the elements enclosing the fragment, starting with the root element.
+		 * @exception IOException Thrown if writing fails.
+		 * @see #fragmentWriter
+		 * @see #xmlWriter
+		 * @see #fragmentStart
+		 * @see #endFragment
+		 */
+		private void beginFragment(String parentNameList[]) throws IOException
+		{
+			fragmentWriter = new StringWriter();
+			xmlWriter = new RTMLXMLWriter(fragmentWriter);
+			xmlWriter.setEncoding(encoding);
+			xmlWriter.setIndent(indent);
+			xmlWriter.setLineSeparator(lineSeparator);
+			for(int i = 0; i < parentNameList.length; i++)
+				xmlWriter.writeStartElement(parentNameList[i]);
+			fragmentStart = fragmentWriter.getBuffer().length();
+			if(create22 != null)
+				create22.setWriter(xmlWriter);
+			if(create31 != null)
+				create31.setWriter(xmlWriter);
+		}
+
+		/**
+		 * Finish writing a fragment of the document.
+		 * @return The fragment: everything written after the enclosing start tags, less the '&gt;' that closes
+		 *         the innermost one.
+		 * @exception IOException Thrown if writing fails.
+		 * @see #beginFragment
+		 */
+		private String endFragment() throws IOException
+		{
+			xmlWriter.flush();
+			return fragmentWriter.getBuffer().substring(fragmentStart+1);
+		}
+
+		/**
+		 * Add a splice.
+		 * @param start The index of the start of the bytes to replace.
+		 * @param stop The index just after the end of the bytes to replace (the same as start for an insert).
+		 * @param text The text to replace them with.
+		 * @see #spliceList
+		 */
+		private void addSplice(int start,int stop,String text)
+		{
+			Splice splice = null;
+
+			splice = new Splice();
+			splice.start = start;
+			splice.end = stop;
+			splice.text = text;
+			spliceList.add(splice);
+		}
+
+		/**
+		 * Write the patched document: the original document, with the splices made. The splices are sorted by
+		 * position. Splices at the same position are made in the order they were added.
+		 * @param os The output stream to write to.
+		 * @exception IOException Thrown if writing fails.
+		 * @see #spliceList
+		 */
+		private void writeSplices(OutputStream os) throws IOException
+		{
+			Splice splice = null;
+			int position;
+
+			Collections.sort(spliceList,new Comparator()
+				{
+					public int compare(Object o1,Object o2)
+					{
+						return ((Splice)o1).start-((Splice)o2).start;
+					}
+				});
+			position = offset;
+			for(int i = 0; i < spliceList.size(); i++)
+			{
+				splice = (Splice)(spliceList.get(i));
+				os.write(data,position,splice.start-position);
+				os.write(splice.text.getBytes(encoding));
+				position = splice.end;
+			}
+			os.write(data,position,end-position);
+		}
+	}
+
+	/**
+	 * The position of an attribute of the root element.
+	 */
+	private static class Attribute
+	{
+		/**
+		 * The attribute name.
+		 */
+		String name = null;
+		/**
+		 * The index of the start of the attribute name.
+		 */
+		int nameStart = 0;
+		/**
+		 * The index of the opening quote of the value.
+		 */
+		int valueStart = 0;
+		/**
+		 * The index just after the closing quote of the value.
+		 */
+		int valueEnd = 0;
+	}
+
+	/**
+	 * The position of a child element of the root element.
+	 */
+	private static class Element
+	{
+		/**
+		 * The element name.
+		 */
+		String name = null;
+		/**
+		 * The index of the start of the start tag.
+		 */
+		int start = 0;
+		/**
+		 * The index just after the end of the start tag.
+		 */
+		int startTagEnd = 0;
+		/**
+		 * The index of the start of the end tag, or -1 for an empty element tag.
+		 */
+		int endTagStart = -1;
+		/**
+		 * The index just after the end of the element.
+		 */
+		int end = 0;
+	}
+
+	/**
+	 * A change to the document: the bytes from start to end are replaced by the text.
+	 */
+	private static class Splice
+	{
+		/**
+		 * The index of the start of the bytes to replace.
+		 */
+		int start = 0;
+		/**
+		 * The index just after the end of the bytes to replace.
+		 */
+		int end = 0;
+		/**
+		 * The replacement text.
+		 */
+		String text = null;
+	}
+}
@@ -157,6 +157,36 @@ public class RTMLSchedule extends RTMLAttributes implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor. The constraints are also copied.
+	 * @param schedule The schedule to copy.
+	 */
+	public RTMLSchedule(RTMLSchedule schedule)
+	{
+		super(schedule);
+		priority = schedule.priority;
+		exposureType = schedule.exposureType;
+		exposureUnits = schedule.exposureUnits;
+		exposureLength = schedule.exposureLength;
+		exposureCount = schedule.exposureCount;
+		if(schedule.startDate != null)
+			startDate = new Date(schedule.startDate.getTime());
+		if(schedule.endDate != null)
+			endDate = new Date(schedule.endDate.getTime());
+		if(schedule.airmassConstraint != null)
+			airmassConstraint = new RTMLAirmassConstraint(schedule.airmassConstraint);
+		if(schedule.extinctionConstraint != null)
+			extinctionConstraint = new RTMLExtinctionConstraint(schedule.extinctionConstraint);
+		if(schedule.seriesConstraint != null)
+			seriesConstraint = new RTMLSeriesConstraint(schedule.seriesConstraint);
+		if(schedule.seeingConstraint != null)
+			seeingConstraint = new RTMLSeeingConstraint(schedule.seeingConstraint);
+		if(schedule.moonConstraint != null)
+			moonConstraint = new RTMLMoonConstraint(schedule.moonConstraint);
+		if(schedule.skyConstraint != null)
+			skyConstraint = new RTMLSkyConstraint(schedule.skyConstraint);
+	}
+
 	/**
 	 * Set the schedule priority.
 	 * @param i The priority.
@@ -487,7 +517,7 @@ public class RTMLSchedule extends RTMLAttributes implements Serializable
 	{
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		try
 		{
 			startDate = dateFormat.parse(s);
@@ -530,7 +560,7 @@ public class RTMLSchedule extends RTMLAttributes implements Serializable
 	{
 		RTMLDateFormat dateFormat = null;
 
-		dateFormat = new RTMLDateFormat();
+		dateFormat = RTMLDateFormat.getInstance();
 		try
 		{
 			endDate = dateFormat.parse(s);
@@ -695,6 +725,71 @@ public class RTMLSchedule extends RTMLAttributes implements Serializable
 		return false;
 	}
 
+	/**
+	 * Test whether one schedule is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #priority
+	 * @see #exposureType
+	 * @see #exposureUnits
+	 * @see #exposureLength
+	 * @see #exposureCount
+	 * @see #startDate
+	 * @see #endDate
+	 * @see #airmassConstraint
+	 * @see #extinctionConstraint
+	 * @see #seriesConstraint
+	 * @see #seeingConstraint
+	 * @see #moonConstraint
+	 * @see #skyConstraint
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLSchedule other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLSchedule)obj;
+		return (priority == other.priority)&&RTMLEquality.same(exposureType,other.exposureType)&&
+			RTMLEquality.same(exposureUnits,other.exposureUnits)&&
+			RTMLEquality.same(exposureLength,other.exposureLength)&&
+			(exposureCount == other.exposureCount)&&RTMLEquality.same(startDate,other.startDate)&&
+			RTMLEquality.same(endDate,other.endDate)&&
+			RTMLEquality.same(airmassConstraint,other.airmassConstraint)&&
+			RTMLEquality.same(extinctionConstraint,other.extinctionConstraint)&&
+			RTMLEquality.same(seriesConstraint,other.seriesConstraint)&&
+			RTMLEquality.same(seeingConstraint,other.seeingConstraint)&&
+			RTMLEquality.same(moonConstraint,other.moonConstraint)&&
+			RTMLEquality.same(skyConstraint,other.skyConstraint);
+	}
+
+	/**
+	 * Return a hash code for the schedule, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,priority);
+		hash = RTMLEquality.hash(hash,exposureType);
+		hash = RTMLEquality.hash(hash,exposureUnits);
+		hash = RTMLEquality.hash(hash,exposureLength);
+		hash = RTMLEquality.hash(hash,exposureCount);
+		hash = RTMLEquality.hash(hash,startDate);
+		hash = RTMLEquality.hash(hash,endDate);
+		hash = RTMLEquality.hash(hash,airmassConstraint);
+		hash = RTMLEquality.hash(hash,extinctionConstraint);
+		hash = RTMLEquality.hash(hash,seriesConstraint);
+		hash = RTMLEquality.hash(hash,seeingConstraint);
+		hash = RTMLEquality.hash(hash,moonConstraint);
+		hash = RTMLEquality.hash(hash,skyConstraint);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
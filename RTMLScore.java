@@ -71,6 +71,20 @@ public class RTMLScore implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor. The delay is also copied.
+	 * @param score The score to copy.
+	 */
+	public RTMLScore(RTMLScore score)
+	{
+		super();
+		if(score.delay != null)
+			delay = new RTMLPeriodFormat(score.delay);
+		probability = score.probability;
+		cumulative = score.cumulative;
+		this.score = score.score;
+	}
+
 	/**
 	 * Set the score to be a simple number. The delay is set to null by this method.
 	 * @param s The score, a double normally between 0 and 1.
@@ -175,6 +189,46 @@ public class RTMLScore implements Serializable
 		return cumulative;
 	}
 
+	/**
+	 * Test whether one score is equal to another: the contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #delay
+	 * @see #probability
+	 * @see #cumulative
+	 * @see #score
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLScore other = null;
+
+		if(obj == this)
+			return true;
+		if((obj instanceof RTMLScore) == false)
+			return false;
+		other = (RTMLScore)obj;
+		return RTMLEquality.same(delay,other.delay)&&
+			RTMLEquality.same(probability,other.probability)&&
+			RTMLEquality.same(cumulative,other.cumulative)&&RTMLEquality.same(score,other.score);
+	}
+
+	/**
+	 * Return a hash code for the score, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,delay);
+		hash = RTMLEquality.hash(hash,probability);
+		hash = RTMLEquality.hash(hash,cumulative);
+		hash = RTMLEquality.hash(hash,score);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 * @return A string representation of this object.
@@ -67,6 +67,17 @@ public class RTMLSeeingConstraint implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param constraint The constraint to copy.
+	 */
+	public RTMLSeeingConstraint(RTMLSeeingConstraint constraint)
+	{
+		super();
+		minimum = constraint.minimum;
+		maximum = constraint.maximum;
+	}
+
 	/**
 	 * Set the minimum (best) required seeing in arcseconds.
 	 * @param s The minimum seeing, specified as a string representation of a double.
@@ -150,6 +161,17 @@ public class RTMLSeeingConstraint implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the seeing constraint, consistent with equals.
+	 * The limits are compared with a tolerance, so are not used.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		return getClass().getName().hashCode();
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
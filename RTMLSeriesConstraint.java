@@ -44,6 +44,12 @@ public class RTMLSeriesConstraint implements Serializable
 	 * Revision control system version id.
 	 */
 	public final static String RCSID = "$Id$";
+	/**
+	 * Serial version ID. Fixed as these documents can be used as parameters in RMI calls across JVMs.
+	 * This is the value computed for the class before the ID was fixed, so previously serialized constraints
+	 * can still be deserialized.
+	 */
+	static final long serialVersionUID = 8357458137933203214L;
 	/**
 	 * The number of times the observation associated wit this SeriesConstraint should be executed.
 	 */
@@ -66,6 +72,20 @@ public class RTMLSeriesConstraint implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor. The interval and tolerance are also copied.
+	 * @param constraint The constraint to copy.
+	 */
+	public RTMLSeriesConstraint(RTMLSeriesConstraint constraint)
+	{
+		super();
+		count = constraint.count;
+		if(constraint.interval != null)
+			interval = new RTMLPeriodFormat(constraint.interval);
+		if(constraint.tolerance != null)
+			tolerance = new RTMLPeriodFormat(constraint.tolerance);
+	}
+
 
 	/**
 	 * Set the count
@@ -212,6 +232,22 @@ public class RTMLSeriesConstraint implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the series constraint, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,count);
+		hash = RTMLEquality.hash(hash,interval);
+		hash = RTMLEquality.hash(hash,tolerance);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
@@ -84,6 +84,19 @@ public class RTMLSkyConstraint implements Serializable
 		useValue = false;
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param constraint The constraint to copy.
+	 */
+	public RTMLSkyConstraint(RTMLSkyConstraint constraint)
+	{
+		super();
+		sky = constraint.sky;
+		useValue = constraint.useValue;
+		value = constraint.value;
+		units = constraint.units;
+	}
+
 	/**
 	 * Set the value.
 	 * @param s The value specified as a string representation of a double.
@@ -300,6 +313,24 @@ public class RTMLSkyConstraint implements Serializable
 		return true;
 	}
 
+	/**
+	 * Return a hash code for the sky constraint, consistent with equals.
+	 * The value is compared with a tolerance, so is not used.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = 0;
+		hash = RTMLEquality.hash(hash,sky);
+		hash = RTMLEquality.hash(hash,useValue);
+		if(useValue)
+			hash = RTMLEquality.hash(hash,units);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
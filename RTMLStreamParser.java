@@ -0,0 +1,970 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLStreamParser.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * This class provides the capability of parsing an RTML document using a StAX (javax.xml.stream) pull parser,
+ * rather than building a DOM tree. The stream is walked once, and the relevant eSTAR data extracted
+ * directly into an RTMLDocument. The resultant RTMLDocument should be identical to the one produced by
+ * the DOM based parsers (RTML22Parser/RTML31Parser).
+ * This class contains the methods common to the version specific stream parsers (parseStringElement etc),
+ * in the same way RTMLParser does for the DOM parsers.
+ * The stream parser does not validate the document. Entities declared in the DOCTYPE's internal subset are
+ * expanded, and external entities are resolved offline by RTMLEntityResolver. The external DTD is not read,
+ * where the StAX implementation supports IGNORE_EXTERNAL_DTD.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLParser
+ * @see org.estar.rtml.RTML22StreamParser
+ * @see org.estar.rtml.RTML31StreamParser
+ */
+public class RTMLStreamParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Implementation specific (JDK/SJSXP) StAX property, which when set reports CDATA sections as CDATA events
+	 * rather than CHARACTERS. This allows text nodes to be separated at CDATA sections, as in the DOM.
+	 */
+	static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+	/**
+	 * Implementation specific (JDK/SJSXP) StAX property, which when set stops the parser reading the
+	 * external DTD subset. The internal subset is still processed.
+	 */
+	static final String IGNORE_EXTERNAL_DTD = "http://java.sun.com/xml/stream/properties/ignore-external-dtd";
+	/**
+	 * The StAX input factory used to create stream readers. A class-wide (static) variable,
+	 * created on first use by getInputFactory, and configured to resolve external entities using RTMLEntityResolver.
+	 * Volatile, so once created the factory can be read by any thread without locking.
+	 * @see #getInputFactory
+	 */
+	private static volatile XMLInputFactory inputFactory = null;
+	/**
+	 * Return value from nextChildNode, the end element of the parent was reached.
+	 * @see #nextChildNode
+	 */
+	protected final static int CHILD_END = 0;
+	/**
+	 * Return value from nextChildNode, the reader is positioned at a child start element.
+	 * @see #nextChildNode
+	 */
+	protected final static int CHILD_ELEMENT = 1;
+	/**
+	 * Return value from nextChildNode, a child text node was read into childText.
+	 * @see #nextChildNode
+	 * @see #childText
+	 */
+	protected final static int CHILD_TEXT = 2;
+	/**
+	 * The value of the last text node read by nextChildNode.
+	 * @see #nextChildNode
+	 */
+	protected String childText = null;
+	/**
+	 * Whether the reader's current event has already been read by nextChildNode (to terminate a text node),
+	 * but not yet returned.
+	 * @see #nextChildNode
+	 */
+	private boolean pendingEvent = false;
+	/**
+	 * Which parts of the document to parse.
+	 * @see org.estar.rtml.RTMLParser#PARSE_PROFILE_FULL
+	 * @see org.estar.rtml.RTMLParser#PARSE_PROFILE_SCHEDULING
+	 * @see org.estar.rtml.RTMLParser#PARSE_PROFILE_ROUTING
+	 * @see org.estar.rtml.RTMLParser#parseProfileIncludes
+	 */
+	protected int parseProfile = RTMLParser.PARSE_PROFILE_FULL;
+
+	/**
+	 * Default constructor.
+	 */
+	public RTMLStreamParser()
+	{
+		super();
+	}
+
+	/**
+	 * Set which parts of the document to parse. Elements excluded by the profile are skipped
+	 * by the reader without being processed.
+	 * @param p The parse profile, one of RTMLParser's PARSE_PROFILE_FULL, PARSE_PROFILE_SCHEDULING or
+	 *        PARSE_PROFILE_ROUTING.
+	 * @exception IllegalArgumentException Thrown if p is not a legal parse profile.
+	 * @see #parseProfile
+	 * @see org.estar.rtml.RTMLParser#isParseProfile
+	 */
+	public void setParseProfile(int p) throws IllegalArgumentException
+	{
+		if(RTMLParser.isParseProfile(p) == false)
+			throw new IllegalArgumentException(this.getClass().getName()+":setParseProfile:Illegal profile:"+p);
+		parseProfile = p;
+	}
+
+	/**
+	 * Get which parts of the document are parsed.
+	 * @return The parse profile.
+	 * @see #parseProfile
+	 */
+	public int getParseProfile()
+	{
+		return parseProfile;
+	}
+
+	/**
+	 * Return the class-wide StAX input factory, creating and configuring it if this is the first call.
+	 * The factory is configured to be namespace aware, and to support DTDs, so entities declared in the
+	 * DOCTYPE's internal subset are expanded, as they are by the DOM engine. External entities are resolved by
+	 * RTMLEntityResolver, so nothing is ever fetched over the network whilst parsing.
+	 * The external DTD is not read if the StAX implementation supports IGNORE_EXTERNAL_DTD (the JDK's does):
+	 * the stream engine does not validate, and reading the RTML 2.2 DTD would cost more than parsing the document.
+	 * Otherwise the external DTD is read through RTMLEntityResolver, so it must be in the catalog, or local.
+	 * Only creation is synchronized, so concurrent parsing threads do not contend for a lock
+	 * once the factory exists. The factory is not re-configured after creation, and is then only used
+	 * to create readers.
+	 * @return The configured input factory.
+	 * @see #inputFactory
+	 * @see #REPORT_CDATA_EVENT
+	 * @see #IGNORE_EXTERNAL_DTD
+	 * @see RTMLEntityResolver#resolveEntity(java.lang.String,java.lang.String,java.lang.String,java.lang.String)
+	 */
+	public static XMLInputFactory getInputFactory()
+	{
+		XMLInputFactory factory = null;
+
+		factory = inputFactory;
+		if(factory != null)
+			return factory;
+		synchronized(RTMLStreamParser.class)
+		{
+			if(inputFactory == null)
+			{
+				factory = XMLInputFactory.newInstance();
+				factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,Boolean.TRUE);
+				factory.setProperty(XMLInputFactory.IS_COALESCING,Boolean.FALSE);
+				factory.setProperty(XMLInputFactory.SUPPORT_DTD,Boolean.TRUE);
+				factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES,Boolean.TRUE);
+				factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,Boolean.TRUE);
+				factory.setXMLResolver(RTMLEntityResolver.getInstance());
+				if(factory.isPropertySupported(IGNORE_EXTERNAL_DTD))
+					factory.setProperty(IGNORE_EXTERNAL_DTD,Boolean.TRUE);
+				if(factory.isPropertySupported(REPORT_CDATA_EVENT))
+					factory.setProperty(REPORT_CDATA_EVENT,Boolean.TRUE);
+				inputFactory = factory;
+			}
+			return inputFactory;
+		}
+	}
+
+	/**
+	 * Method to create a stream reader for the specified input stream. The encoding is detected from the
+	 * XML declaration.
+	 * @param i The input stream to read from.
+	 * @return A stream reader positioned at the start of the document.
+	 * @exception RTMLException Thrown if the reader cannot be created.
+	 * @see #getInputFactory
+	 */
+	public XMLStreamReader createReader(InputStream i) throws RTMLException
+	{
+		try
+		{
+			return getInputFactory().createXMLStreamReader(i);
+		}
+		catch(XMLStreamException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":createReader:",e);
+		}
+	}
+
+	/**
+	 * Method to create a stream reader for the specified character reader.
+	 * @param r The reader to read from.
+	 * @return A stream reader positioned at the start of the document.
+	 * @exception RTMLException Thrown if the reader cannot be created.
+	 * @see #getInputFactory
+	 */
+	public XMLStreamReader createReader(Reader r) throws RTMLException
+	{
+		try
+		{
+			return getInputFactory().createXMLStreamReader(r);
+		}
+		catch(XMLStreamException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":createReader:",e);
+		}
+	}
+
+	/**
+	 * Method to parse an RTML document from the specified stream reader. The reader should be positioned at the
+	 * start of the document. The root RTML element is located, the version attribute extracted, and the
+	 * version specific stream parser called to parse the rest of the document. The reader is closed
+	 * before this method returns.
+	 * @param reader The stream reader to parse from.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if the document is not an RTML document, the version is not supported,
+	 *            or a parse error occurs.
+	 * @exception ParseException Thrown if parsing a date fails.
+	 * @see #skipProlog
+	 * @see #parseRTMLElement
+	 */
+	public RTMLDocument parse(XMLStreamReader reader) throws RTMLException, ParseException
+	{
+		RTMLDocument rtmlDocument = null;
+
+		try
+		{
+			skipProlog("parse",reader);
+			rtmlDocument = parseRTMLElement(reader);
+		}
+		finally
+		{
+			try
+			{
+				reader.close();
+			}
+			catch(XMLStreamException e)
+			{
+			}
+		}
+		return rtmlDocument;
+	}
+
+	/**
+	 * Method to read just the header of an RTML document, i.e. the attributes of the root RTML element,
+	 * from the specified stream reader. The reader should be positioned at the start of the document.
+	 * Reading stops at the end of the root element's start tag, the rest of the document is not read
+	 * (or checked for well-formedness). The reader is closed before this method returns.
+	 * The returned document has only the header fields set:
+	 * <ul>
+	 * <li>version - all versions.
+	 * <li>type - RTML 2.2 documents.
+	 * <li>mode and uid - RTML 3.1a documents.
+	 * </ul>
+	 * Note the uid of an RTML 2.2 document is held in it's IntelligentAgent element, not the root element,
+	 * and so is not returned (getUId returns null). The version is not checked for support.
+	 * @param reader The stream reader to read from.
+	 * @return An instance of RTMLDocument, containing the header data of the document.
+	 * @exception RTMLException Thrown if the document is not an RTML document, it has no version,
+	 *            or a parse error occurs.
+	 * @see #skipProlog
+	 */
+	public RTMLDocument peekHeader(XMLStreamReader reader) throws RTMLException
+	{
+		RTMLDocument rtmlDocument = null;
+		String version = null;
+		String s = null;
+
+		try
+		{
+			skipProlog("peekHeader",reader);
+			checkElement("peekHeader",reader,"RTML");
+			version = reader.getAttributeValue(null,"version");
+			if(version == null)
+				throw new RTMLException(this.getClass().getName()+":peekHeader:Version was null.");
+			rtmlDocument = new RTMLDocument();
+			rtmlDocument.setVersion(version);
+			s = reader.getAttributeValue(null,"type");
+			if(s != null)
+				rtmlDocument.setType(s);
+			s = reader.getAttributeValue(null,"mode");
+			if(s != null)
+				rtmlDocument.setMode(s);
+			s = reader.getAttributeValue(null,"uid");
+			if(s != null)
+				rtmlDocument.setUId(s);
+		}
+		finally
+		{
+			try
+			{
+				reader.close();
+			}
+			catch(XMLStreamException e)
+			{
+			}
+		}
+		return rtmlDocument;
+	}
+
+	/**
+	 * Internal method to move the reader past the document prolog (XML declaration, DOCTYPE, comments
+	 * and whitespace), to the root element's start tag.
+	 * @param methodName The name of the calling method, used in exception messages.
+	 * @param reader The stream reader, positioned at the start of the document.
+	 * @exception RTMLException Thrown if there is illegal content before the root element, or there is no
+	 *            root element.
+	 */
+	private void skipProlog(String methodName,XMLStreamReader reader) throws RTMLException
+	{
+		int event;
+
+		event = reader.getEventType();
+		while(event != XMLStreamConstants.START_ELEMENT)
+		{
+			switch(event)
+			{
+				case XMLStreamConstants.START_DOCUMENT:
+				case XMLStreamConstants.DTD:
+				case XMLStreamConstants.COMMENT:
+				case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				case XMLStreamConstants.SPACE:
+					break;
+				case XMLStreamConstants.CHARACTERS:
+					if(reader.isWhiteSpace() == false)
+					{
+						throw new RTMLException(this.getClass().getName()+
+									":"+methodName+":Illegal text before root element.");
+					}
+					break;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new RTMLException(this.getClass().getName()+
+								":"+methodName+":No root element found.");
+				default:
+					throw new RTMLException(this.getClass().getName()+
+								":"+methodName+":Illegal Child:"+event);
+			}
+			event = nextEvent(reader);
+		}
+	}
+
+	/**
+	 * Internal method to parse the RTML element. This checks the element is correct, extracts the version
+	 * attribute, and creates and calls the RTML22StreamParser or RTML31StreamParser parseRTMLElement method
+	 * as appropriate.
+	 * @param reader The stream reader, positioned at the RTML start element.
+	 * @return An instance of RTMLDocument, containing the data in the document.
+	 * @exception RTMLException Thrown if a strange child is in the element, or the version is not supported.
+	 * @exception ParseException Thrown if the parsing fails.
+	 * @see org.estar.rtml.RTML22StreamParser#parseRTMLElement(javax.xml.stream.XMLStreamReader,org.estar.rtml.RTMLDocument)
+	 * @see org.estar.rtml.RTML31StreamParser#parseRTMLElement(javax.xml.stream.XMLStreamReader,org.estar.rtml.RTMLDocument)
+	 */
+	private RTMLDocument parseRTMLElement(XMLStreamReader reader) throws RTMLException, ParseException
+	{
+		RTML22StreamParser parser22 = null;
+		RTML31StreamParser parser31 = null;
+		RTMLDocument rtmlDocument = null;
+		String version = null;
+
+		// create document to return
+		rtmlDocument = new RTMLDocument();
+		// check current element is correct
+		checkElement("parseRTMLElement",reader,"RTML");
+		// version
+		version = reader.getAttributeValue(null,"version");
+		if(version == null)
+			throw new RTMLException(this.getClass().getName()+":parseRTMLElement:Version was null.");
+		rtmlDocument.setVersion(version);
+		// depending on version, call required parser.
+		if(version.equals(RTMLDocument.RTML_VERSION_22))
+		{
+			parser22 = new RTML22StreamParser();
+			parser22.setParseProfile(parseProfile);
+			parser22.parseRTMLElement(reader,rtmlDocument);
+		}
+		else if(version.equals(RTMLDocument.RTML_VERSION_31))
+		{
+			parser31 = new RTML31StreamParser();
+			parser31.setParseProfile(parseProfile);
+			parser31.parseRTMLElement(reader,rtmlDocument);
+		}
+		else
+		{
+			throw new RTMLException(this.getClass().getName()+":parseRTMLElement:Unsupported version:"+
+						version);
+		}
+		// return created document
+		return rtmlDocument;
+	}
+
+	// protected methods (used by sub-parsers etc)
+	/**
+	 * Internal method to move the reader on to the next event, wrapping any stream exception.
+	 * @param reader The stream reader.
+	 * @return The type of the next event.
+	 * @exception RTMLException Thrown if the underlying reader fails.
+	 */
+	protected int nextEvent(XMLStreamReader reader) throws RTMLException
+	{
+		try
+		{
+			return reader.next();
+		}
+		catch(XMLStreamException e)
+		{
+			throw new RTMLException(this.getClass().getName()+":nextEvent:",e);
+		}
+	}
+
+	/**
+	 * Return the qualified name of the element the reader is positioned at, in the same form
+	 * as the DOM node name (prefix:localName, or just localName if there is no prefix).
+	 * @param reader The stream reader, positioned at a start or end element.
+	 * @return The element name.
+	 */
+	protected String getElementName(XMLStreamReader reader)
+	{
+		String prefix = null;
+
+		prefix = reader.getPrefix();
+		if((prefix == null)||(prefix.length() == 0))
+			return reader.getLocalName();
+		return prefix+":"+reader.getLocalName();
+	}
+
+	/**
+	 * Internal method to check the reader is positioned at a start element of the specified name.
+	 * @param methodName The name of the calling method, used in the exception message.
+	 * @param reader The stream reader.
+	 * @param elementName The expected element name.
+	 * @exception RTMLException Thrown if the reader is not positioned at the expected start element.
+	 * @see #getElementName
+	 */
+	protected void checkElement(String methodName,XMLStreamReader reader,String elementName) throws RTMLException
+	{
+		if(reader.getEventType() != XMLStreamConstants.START_ELEMENT)
+		{
+			throw new RTMLException(this.getClass().getName()+":"+methodName+":Illegal Event:"+
+						reader.getEventType());
+		}
+		if(getElementName(reader).equals(elementName) == false)
+		{
+			throw new RTMLException(this.getClass().getName()+":"+methodName+":Illegal Element Name:"+
+						getElementName(reader)+" did not match expected name "+elementName);
+		}
+	}
+
+	/**
+	 * Move the reader on to the next child start element of the current element. Text, comments and
+	 * processing instructions are skipped. The reader must be positioned either at the start element of the
+	 * parent, or at the end element of the previous child.
+	 * @param reader The stream reader.
+	 * @return true if the reader is now positioned at a child start element, false if the end element
+	 *         of the parent was reached.
+	 * @exception RTMLException Thrown if the underlying reader fails, or the document ends.
+	 */
+	protected boolean nextChildElement(XMLStreamReader reader) throws RTMLException
+	{
+		int event;
+
+		while(true)
+		{
+			event = nextEvent(reader);
+			if(event == XMLStreamConstants.START_ELEMENT)
+				return true;
+			else if(event == XMLStreamConstants.END_ELEMENT)
+				return false;
+			else if(event == XMLStreamConstants.END_DOCUMENT)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":nextChildElement:Document ended inside element.");
+			}
+		}
+	}
+
+	/**
+	 * Move the reader on to the next child node of the current element, for elements with mixed content.
+	 * This is equivalent to iterating over the DOM child nodes of the element, skipping comments and
+	 * processing instructions: adjacent character events are joined into one text node, which is terminated by
+	 * a comment, CDATA section, processing instruction, or element. The reader must be positioned either at the
+	 * start element of the parent, at the end element of the previous child element, or have just returned
+	 * a text node.
+	 * @param reader The stream reader.
+	 * @return CHILD_ELEMENT if the reader is now positioned at a child start element,
+	 *         CHILD_TEXT if a text node was read (the text is in childText),
+	 *         or CHILD_END if the end element of the parent was reached.
+	 * @exception RTMLException Thrown if the underlying reader fails, or the document ends.
+	 * @see #CHILD_END
+	 * @see #CHILD_ELEMENT
+	 * @see #CHILD_TEXT
+	 * @see #childText
+	 * @see #pendingEvent
+	 */
+	protected int nextChildNode(XMLStreamReader reader) throws RTMLException
+	{
+		StringBuffer sb = null;
+		int event;
+
+		childText = null;
+		while(true)
+		{
+			if(pendingEvent)
+			{
+				event = reader.getEventType();
+				pendingEvent = false;
+			}
+			else
+				event = nextEvent(reader);
+			switch(event)
+			{
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					if(sb == null)
+						sb = new StringBuffer();
+					sb.append(reader.getTextCharacters(),reader.getTextStart(),reader.getTextLength());
+					break;
+				case XMLStreamConstants.START_ELEMENT:
+				case XMLStreamConstants.END_ELEMENT:
+					if(sb != null)
+					{
+						// return the text node, and this event on the next call
+						pendingEvent = true;
+						childText = sb.toString();
+						return CHILD_TEXT;
+					}
+					if(event == XMLStreamConstants.START_ELEMENT)
+						return CHILD_ELEMENT;
+					return CHILD_END;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new RTMLException(this.getClass().getName()+
+								":nextChildNode:Document ended inside element.");
+				default:
+					// comments, CDATA, processing instructions end the current text node
+					if(sb != null)
+					{
+						childText = sb.toString();
+						return CHILD_TEXT;
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Skip the current element and all it's children. The reader must be positioned at the start element,
+	 * and is left positioned at the matching end element.
+	 * @param reader The stream reader.
+	 * @exception RTMLException Thrown if the underlying reader fails, or the document ends.
+	 */
+	protected void skipElement(XMLStreamReader reader) throws RTMLException
+	{
+		int depth = 1;
+		int event;
+
+		while(depth > 0)
+		{
+			event = nextEvent(reader);
+			if(event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if(event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if(event == XMLStreamConstants.END_DOCUMENT)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":skipElement:Document ended inside element.");
+			}
+		}
+	}
+
+	/**
+	 * Read the text children of the current element. The reader must be positioned at the start element, and is
+	 * left positioned at the matching end element. Each entry in the returned list is equivalent to one DOM text
+	 * node child of the element, i.e. adjacent character events are joined, and comments, CDATA sections,
+	 * processing instructions and child elements separate text nodes. Child elements are skipped.
+	 * @param reader The stream reader.
+	 * @return A list of strings, one per text node, in document order. The list is empty if the element
+	 *         contains no text.
+	 * @exception RTMLException Thrown if the underlying reader fails, or the document ends.
+	 * @see #skipElement
+	 */
+	protected List parseTextNodes(XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		StringBuffer sb = null;
+		int event;
+
+		textList = new Vector();
+		while(true)
+		{
+			event = nextEvent(reader);
+			switch(event)
+			{
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.SPACE:
+					if(sb == null)
+						sb = new StringBuffer();
+					sb.append(reader.getTextCharacters(),reader.getTextStart(),reader.getTextLength());
+					break;
+				case XMLStreamConstants.START_ELEMENT:
+					if(sb != null)
+					{
+						textList.add(sb.toString());
+						sb = null;
+					}
+					skipElement(reader);
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					if(sb != null)
+						textList.add(sb.toString());
+					return textList;
+				case XMLStreamConstants.END_DOCUMENT:
+					throw new RTMLException(this.getClass().getName()+
+								":parseTextNodes:Document ended inside element.");
+				default:
+					// comments, CDATA, processing instructions end the current text node
+					if(sb != null)
+					{
+						textList.add(sb.toString());
+						sb = null;
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Internal method to parse an element containing a String. The same rules as RTMLParser.parseStringNode
+	 * are used: the value of the last text node is returned trimmed, or the empty string if it is all whitespace.
+	 * @param elementName The name of the element.
+	 * @param reader The stream reader, positioned at the start element. Left at the matching end element.
+	 * @return The string, or null if the element contains no text.
+	 * @exception RTMLException Thrown if the element is not the expected one, or a parse error occurs.
+	 * @see #parseTextNodes
+	 * @see org.estar.rtml.RTMLParser#parseStringNode
+	 */
+	protected String parseStringElement(String elementName,XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String s = null;
+		String valueString = null;
+
+		checkElement("parseStringElement",reader,elementName);
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			// ensure it is not all whitespace
+			if(s.trim().length() > 0)
+				valueString = s.trim();
+			else
+				valueString = new String("");
+		}
+		return valueString;
+	}
+
+	/**
+	 * Parse an element, containing text with an integer number.
+	 * @param reader The stream reader, positioned at the start element. Left at the matching end element.
+	 * @return The parsed integer is returned. Note if no text is found in the element, 0 is returned.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see #parseTextNodes
+	 * @see org.estar.rtml.RTMLParser#parseIntegerNode
+	 */
+	protected int parseIntegerElement(XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String s = null;
+		int number = 0;
+
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			try
+			{
+				number = Integer.parseInt(s);
+			}
+			catch(NumberFormatException e)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":parseIntegerElement:Illegal integer:"+s+":",e);
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Parse an element, containing text with a double number.
+	 * @param reader The stream reader, positioned at the start element. Left at the matching end element.
+	 * @return The parsed double is returned. Note if no text is found in the element, 0 is returned.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see #parseTextNodes
+	 * @see org.estar.rtml.RTMLParser#parseDoubleNode
+	 */
+	protected double parseDoubleElement(XMLStreamReader reader) throws RTMLException
+	{
+		List textList = null;
+		String s = null;
+		double number = 0;
+
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			try
+			{
+				number = Double.parseDouble(s);
+			}
+			catch(NumberFormatException e)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":parseDoubleElement:Illegal double:"+s+":",e);
+			}
+		}
+		return number;
+	}
+
+	/**
+	 * Parse an element, containing text with a period specification of the form:
+	 * <code>
+	 * P{(yyyy)Y{(mm)M}{(dd)D}{T{(hh)H}{(mm}M}{(ss.s..)S}
+	 * </code>
+	 * @param reader The stream reader, positioned at the start element. Left at the matching end element.
+	 * @return The parsed period is returned. Note if no text is found in the element, null is returned.
+	 * @exception RTMLException Thrown if a parse error occurs.
+	 * @see #parseTextNodes
+	 * @see org.estar.rtml.RTMLParser#parsePeriodNode
+	 */
+	protected RTMLPeriodFormat parsePeriodElement(XMLStreamReader reader) throws RTMLException
+	{
+		RTMLPeriodFormat period = null;
+		List textList = null;
+		String s = null;
+
+		textList = parseTextNodes(reader);
+		for(int i = 0; i < textList.size(); i++)
+		{
+			s = (String)(textList.get(i));
+			try
+			{
+				period = RTMLPeriodFormat.valueOf(s);
+			}
+			catch(Exception e)
+			{
+				throw new RTMLException(this.getClass().getName()+
+							":parsePeriodElement:Illegal period:"+s+":",e);
+			}
+		}
+		return period;
+	}
+
+	/**
+	 * Internal method to return an attribute of the current element.
+	 * @param elementName The name of the element.
+	 * @param reader The stream reader, positioned at the start element.
+	 * @param attributeName The name of an attribute set in that element.
+	 * @return The value of the specified attribute, or null if the attribute is not present.
+	 * @exception RTMLException Thrown if the element is not the expected one.
+	 */
+	protected String parseElementAttribute(String elementName,XMLStreamReader reader,String attributeName)
+		throws RTMLException
+	{
+		checkElement("parseElementAttribute",reader,elementName);
+		return reader.getAttributeValue(null,attributeName);
+	}
+
+	/**
+	 * Internal method to return a required attribute of the current element.
+	 * @param methodName The name of the calling method, used in the exception message.
+	 * @param reader The stream reader, positioned at the start element.
+	 * @param attributeName The name of an attribute set in that element.
+	 * @return The value of the specified attribute.
+	 * @exception RTMLException Thrown if the attribute is not present.
+	 */
+	protected String getRequiredAttribute(String methodName,XMLStreamReader reader,String attributeName)
+		throws RTMLException
+	{
+		String s = null;
+
+		s = reader.getAttributeValue(null,attributeName);
+		if(s == null)
+		{
+			throw new RTMLException(this.getClass().getName()+":"+methodName+":"+getElementName(reader)+
+						" has no "+attributeName+" attribute.");
+		}
+		return s;
+	}
+
+	/**
+	 * Internal method to parse the standard RTML attributes (id, ref, uref) of the current element.
+	 * @param attributes The instance of RTMLAttributes to fill in.
+	 * @param reader The stream reader, positioned at the start element.
+	 * @exception RTMLException Thrown if attributes was null.
+	 * @see org.estar.rtml.RTMLAttributes
+	 */
+	protected void parseRTMLAttributes(RTMLAttributes attributes,XMLStreamReader reader) throws RTMLException
+	{
+		String s = null;
+
+		if(attributes == null)
+		{
+			throw new RTMLException(this.getClass().getName()+":parseRTMLAttributes:Attributes was null.");
+		}
+		// id
+		s = reader.getAttributeValue(null,"id");
+		if(s != null)
+			attributes.setId(s);
+		// ref
+		s = reader.getAttributeValue(null,"ref");
+		if(s != null)
+			attributes.setRef(s);
+		// uref
+		s = reader.getAttributeValue(null,"uref");
+		if(s != null)
+			attributes.setURef(s);
+	}
+
+	/**
+	 * A Reader over the text content of the element the stream reader is positioned at. This allows large
+	 * text content (an ephemeris track, for instance) to be consumed a buffer at a time, straight from the
+	 * stream reader's character events, without building a String of the whole content.
+	 * The stream reader must be positioned at the element's start element. Character, whitespace and
+	 * CDATA events are returned, comments and processing instructions are ignored, and child elements
+	 * (and their content) are skipped. Once the end of the content has been read (or the Reader has been closed),
+	 * the stream reader is left positioned at the element's end element.
+	 * @see #nextEvent
+	 * @see #skipElement
+	 */
+	protected class ElementTextReader extends Reader
+	{
+		/**
+		 * The stream reader.
+		 */
+		private XMLStreamReader reader = null;
+		/**
+		 * Whether the stream reader is positioned at a text event, with characters still to be read.
+		 */
+		private boolean inText = false;
+		/**
+		 * The index of the next character to read in the current text event.
+		 */
+		private int textIndex = 0;
+		/**
+		 * Whether the element's end element has been reached.
+		 */
+		private boolean ended = false;
+
+		/**
+		 * Constructor.
+		 * @param r The stream reader, positioned at the element's start element.
+		 */
+		public ElementTextReader(XMLStreamReader r)
+		{
+			super();
+			reader = r;
+		}
+
+		/**
+		 * Read characters of the element's text content into an array.
+		 * @param buffer The array to read into.
+		 * @param offset The index in the array to start storing characters at.
+		 * @param length The maximum number of characters to read.
+		 * @return The number of characters read, or -1 if the end of the element has been reached.
+		 * @exception IOException Thrown if the underlying stream reader fails, or the document ends.
+		 */
+		public int read(char buffer[],int offset,int length) throws IOException
+		{
+			int count,event;
+
+			if(length == 0)
+				return 0;
+			while(ended == false)
+			{
+				if(inText)
+				{
+					try
+					{
+						count = reader.getTextCharacters(textIndex,buffer,offset,length);
+					}
+					catch(XMLStreamException e)
+					{
+						throw new IOException(this.getClass().getName()+":read:"+e,e);
+					}
+					if(count > 0)
+					{
+						textIndex += count;
+						return count;
+					}
+					inText = false;
+				}
+				event = next();
+				switch(event)
+				{
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.SPACE:
+					case XMLStreamConstants.CDATA:
+						inText = true;
+						textIndex = 0;
+						break;
+					case XMLStreamConstants.START_ELEMENT:
+						try
+						{
+							skipElement(reader);
+						}
+						catch(RTMLException e)
+						{
+							throw new IOException(this.getClass().getName()+":read:"+e,e);
+						}
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						ended = true;
+						break;
+					case XMLStreamConstants.END_DOCUMENT:
+						throw new IOException(this.getClass().getName()+
+								      ":read:Document ended inside element.");
+					default:
+						break;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Skip any unread content, leaving the stream reader positioned at the element's end element.
+		 * The stream reader itself is not closed.
+		 * @exception IOException Thrown if the underlying stream reader fails, or the document ends.
+		 */
+		public void close() throws IOException
+		{
+			char buffer[] = new char[1024];
+
+			while(read(buffer,0,buffer.length) >= 0)
+				;
+		}
+
+		/**
+		 * Move the stream reader on to the next event.
+		 * @return The type of the next event.
+		 * @exception IOException Thrown if the underlying stream reader fails.
+		 * @see RTMLStreamParser#nextEvent
+		 */
+		private int next() throws IOException
+		{
+			try
+			{
+				return nextEvent(reader);
+			}
+			catch(RTMLException e)
+			{
+				throw new IOException(this.getClass().getName()+":next:"+e,e);
+			}
+		}
+	}
+}
@@ -45,6 +45,28 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 	 * Serial version ID. Fixed as these documents can be used as parameters in RMI calls across JVMs.
 	 */
 	static final long serialVersionUID = -4226657892010129299L;
+	/**
+	 * The serialized fields. The ephemeris track is serialized as a SortedSet, as it was before
+	 * RTMLEphemerisTrack was introduced, so targets serialized by older versions (holding a TreeSet)
+	 * can still be deserialized, and older versions can deserialize targets serialized by this one.
+	 * @see #writeObject
+	 * @see #readObject
+	 */
+	private static final ObjectStreamField serialPersistentFields[] =
+	{
+		new ObjectStreamField("type",String.class),
+		new ObjectStreamField("ident",String.class),
+		new ObjectStreamField("name",String.class),
+		new ObjectStreamField("ra",RA.class),
+		new ObjectStreamField("dec",Dec.class),
+		new ObjectStreamField("equinox",String.class),
+		new ObjectStreamField("ephemerisTargetTrack",SortedSet.class),
+		new ObjectStreamField("raOffset",Double.TYPE),
+		new ObjectStreamField("decOffset",Double.TYPE),
+		new ObjectStreamField("magnitude",Double.TYPE),
+		new ObjectStreamField("magnitudeFilterType",String.class),
+		new ObjectStreamField("magnitudeError",Double.TYPE)
+	};
 	/**
 	 * The type of the Target, the type attribute in the Target tag. Should be either "normal" or
 	 * "toop".
@@ -71,11 +93,13 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 	 */
 	private String equinox = null;
 	/**
-	 * If the target is an ephemeris target rather than an extra solar target, this set will contain a 
-	 * sorted (in time) list of RTMLEphemerisTargetTrackNode s.
+	 * If the target is an ephemeris target rather than an extra solar target, this track will contain a 
+	 * sorted (in time) list of RTMLEphemerisTargetTrackNode s. It is serialized as a SortedSet.
+	 * @see org.estar.rtml.RTMLEphemerisTrack
 	 * @see org.estar.rtml.RTMLEphemerisTargetTrackNode
+	 * @see #serialPersistentFields
 	 */
-	private SortedSet ephemerisTargetTrack = null;
+	private RTMLEphemerisTrack ephemerisTargetTrack = null;
 	/**
 	 * An offset to be applied to the Right Ascension.
 	 */
@@ -106,6 +130,30 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 		type = new String("normal");
 	}
 
+	/**
+	 * Copy constructor. The RA, Dec and ephemeris track are also copied.
+	 * @param target The target to copy.
+	 * @see #copyRA
+	 * @see #copyDec
+	 */
+	public RTMLTarget(RTMLTarget target)
+	{
+		super(target);
+		type = target.type;
+		ident = target.ident;
+		name = target.name;
+		ra = copyRA(target.ra);
+		dec = copyDec(target.dec);
+		equinox = target.equinox;
+		if(target.ephemerisTargetTrack != null)
+			ephemerisTargetTrack = new RTMLEphemerisTrack(target.ephemerisTargetTrack);
+		raOffset = target.raOffset;
+		decOffset = target.decOffset;
+		magnitude = target.magnitude;
+		magnitudeFilterType = target.magnitudeFilterType;
+		magnitudeError = target.magnitudeError;
+	}
+
 	/**
 	 * Set the target type.
 	 * @param s The type of the target. Should be either "normal", or "toop". See DTD, %targetType;.
@@ -285,23 +333,37 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 
 	/**
 	 * Set the ephemeris target track to the specified set of RTMLEphemerisTargetTrackNode s.
+	 * If the set is an RTMLEphemerisTrack, the target uses it (changes to the set change the target's track).
+	 * Otherwise (e.g. a TreeSet), the nodes are <b>copied</b> into a new RTMLEphemerisTrack, so later changes
+	 * to the specified set do <b>not</b> change the target's track (previously the target kept a reference
+	 * to the set). Use getEphemerisTrack (or addEphemerisTrackNode) to change the target's track.
 	 * @param track A SortedSet containing elements of RTMLEphemerisTargetTrackNode, sorted in timestamp order.
+	 * @exception IllegalArgumentException Thrown if a node has no timestamp, RA or Dec. The target's
+	 *            track is then unchanged.
 	 * @see #ephemerisTargetTrack
+	 * @see #getEphemerisTrack
+	 * @see org.estar.rtml.RTMLEphemerisTrack
 	 * @see org.estar.rtml.RTMLEphemerisTargetTrackNode
 	 */
-	public void setEphemerisTrack(SortedSet track)
+	public void setEphemerisTrack(SortedSet track) throws IllegalArgumentException
 	{
-		ephemerisTargetTrack = track;
+		if(track == null)
+			ephemerisTargetTrack = null;
+		else if(track instanceof RTMLEphemerisTrack)
+			ephemerisTargetTrack = (RTMLEphemerisTrack)track;
+		else
+			ephemerisTargetTrack = new RTMLEphemerisTrack(track);
 	}
 
 	/**
 	 * Get the ephemeris target track.
-	 * @return The ephemeris target track, A SortedSet containing elements of RTMLEphemerisTargetTrackNode, 
-	 *         sorted in timestamp order.
+	 * @return The ephemeris target track, containing elements of RTMLEphemerisTargetTrackNode, 
+	 *         sorted in timestamp order, or null if the target is not an ephemeris target.
 	 * @see #ephemerisTargetTrack
+	 * @see org.estar.rtml.RTMLEphemerisTrack
 	 * @see org.estar.rtml.RTMLEphemerisTargetTrackNode
 	 */
-	public SortedSet getEphemerisTrack()
+	public RTMLEphemerisTrack getEphemerisTrack()
 	{
 		return ephemerisTargetTrack;
 	}
@@ -309,17 +371,48 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 	/**
 	 * Add the specified ephemeris target track node to the list of ephemeris target track nodes.
 	 * @param node An instance of RTMLEphemerisTargetTrackNode to add to the list.
+	 * @exception IllegalArgumentException Thrown if the node has no timestamp, RA or Dec. The target's
+	 *            track is then unchanged.
 	 * @see #ephemerisTargetTrack
 	 * @see org.estar.rtml.RTMLEphemerisTargetTrackNode
+	 * @see org.estar.rtml.RTMLEphemerisTrack#add
 	 */
-	public void addEphemerisTrackNode(RTMLEphemerisTargetTrackNode node)
+	public void addEphemerisTrackNode(RTMLEphemerisTargetTrackNode node) throws IllegalArgumentException
 	{
+		RTMLEphemerisTrack track = null;
+
 		if(ephemerisTargetTrack == null)
-			ephemerisTargetTrack = new TreeSet(new NodeComparator());
-		if(ephemerisTargetTrack.contains(node) == false)
+		{
+			track = new RTMLEphemerisTrack();
+			track.add(node);
+			ephemerisTargetTrack = track;
+		}
+		else if(ephemerisTargetTrack.contains(node) == false)
 			ephemerisTargetTrack.add(node);
 	}
 
+	/**
+	 * Get the position of the (ephemeris) target at the specified time, interpolated from the ephemeris
+	 * target track.
+	 * @param d The time.
+	 * @param method The interpolation method, RTMLEphemerisTrack.INTERPOLATE_LINEAR or
+	 *        RTMLEphemerisTrack.INTERPOLATE_RATE.
+	 * @return A new RTMLEphemerisTargetTrackNode, containing the position at the specified time.
+	 * @exception IllegalArgumentException Thrown if the target has no ephemeris track, or the time is
+	 *            outside the track.
+	 * @see #ephemerisTargetTrack
+	 * @see org.estar.rtml.RTMLEphemerisTrack#getPosition
+	 */
+	public RTMLEphemerisTargetTrackNode getEphemerisPosition(Date d,int method) throws IllegalArgumentException
+	{
+		if(ephemerisTargetTrack == null)
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":getEphemerisPosition:Target has no ephemeris track.");
+		}
+		return ephemerisTargetTrack.getPosition(d,method);
+	}
+
 	/**
 	 * Remove the list of ephemeris target track nodes.
 	 * ephemerisTargetTrack is set to null, which effectively makes this target an extra solar target
@@ -476,6 +569,85 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 		return magnitudeError;
 	}
 
+	/**
+	 * Test whether one target is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #type
+	 * @see #ident
+	 * @see #name
+	 * @see #ra
+	 * @see #dec
+	 * @see #equinox
+	 * @see #ephemerisTargetTrack
+	 * @see #raOffset
+	 * @see #decOffset
+	 * @see #magnitude
+	 * @see #magnitudeFilterType
+	 * @see #magnitudeError
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLTarget other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLTarget)obj;
+		return RTMLEquality.same(type,other.type)&&RTMLEquality.same(ident,other.ident)&&
+			RTMLEquality.same(name,other.name)&&RTMLEquality.same(ra,other.ra)&&
+			RTMLEquality.same(dec,other.dec)&&RTMLEquality.same(equinox,other.equinox)&&
+			sameTrack(other)&&
+			RTMLEquality.same(raOffset,other.raOffset)&&
+			RTMLEquality.same(decOffset,other.decOffset)&&
+			RTMLEquality.same(magnitude,other.magnitude)&&
+			RTMLEquality.same(magnitudeFilterType,other.magnitudeFilterType)&&
+			RTMLEquality.same(magnitudeError,other.magnitudeError);
+	}
+
+	/**
+	 * Return whether this target's ephemeris track is the same as another target's: both null, or with
+	 * the same nodes, positions and track rates.
+	 * @param other The other target.
+	 * @return true if the tracks are the same.
+	 * @see #ephemerisTargetTrack
+	 * @see org.estar.rtml.RTMLEphemerisTrack#sameTrack
+	 */
+	private boolean sameTrack(RTMLTarget other)
+	{
+		if(ephemerisTargetTrack == null)
+			return (other.ephemerisTargetTrack == null);
+		return ephemerisTargetTrack.sameTrack(other.ephemerisTargetTrack);
+	}
+
+	/**
+	 * Return a hash code for the target, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,type);
+		hash = RTMLEquality.hash(hash,ident);
+		hash = RTMLEquality.hash(hash,name);
+		hash = RTMLEquality.hash(hash,ra);
+		hash = RTMLEquality.hash(hash,dec);
+		hash = RTMLEquality.hash(hash,equinox);
+		if(ephemerisTargetTrack != null)
+			hash = RTMLEquality.hash(hash,ephemerisTargetTrack.trackHashCode());
+		else
+			hash = RTMLEquality.hash(hash,0);
+		hash = RTMLEquality.hash(hash,raOffset);
+		hash = RTMLEquality.hash(hash,decOffset);
+		hash = RTMLEquality.hash(hash,magnitude);
+		hash = RTMLEquality.hash(hash,magnitudeFilterType);
+		hash = RTMLEquality.hash(hash,magnitudeError);
+		return hash;
+	}
+
 	/**
 	 * Method to print out a string representation of this node.
 	 */
@@ -541,6 +713,123 @@ public class RTMLTarget extends RTMLAttributes implements Serializable
 		return sb.toString();
 	}
 
+	/**
+	 * Return a copy of an RA (org.estar.astrometry.RA has no copy constructor).
+	 * @param r The RA to copy, or null.
+	 * @return A new RA with the same hours, minutes and seconds, or null if r was null.
+	 */
+	static RA copyRA(RA r)
+	{
+		RA ra = null;
+
+		if(r == null)
+			return null;
+		ra = new RA();
+		ra.setHours(r.getHours());
+		ra.setMinutes(r.getMinutes());
+		ra.setSeconds(r.getSeconds());
+		return ra;
+	}
+
+	/**
+	 * Return a copy of a Dec (org.estar.astrometry.Dec has no copy constructor).
+	 * @param d The Dec to copy, or null.
+	 * @return A new Dec with the same sign, degrees, minutes and seconds, or null if d was null.
+	 */
+	static Dec copyDec(Dec d)
+	{
+		Dec dec = null;
+
+		if(d == null)
+			return null;
+		dec = new Dec();
+		dec.setNegative(d.getNegative());
+		dec.setDegrees(d.getDegrees());
+		dec.setMinutes(d.getMinutes());
+		dec.setSeconds(d.getSeconds());
+		return dec;
+	}
+
+	/**
+	 * Serialize the target, writing the fields in serialPersistentFields.
+	 * @param out The stream to write the target to.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #serialPersistentFields
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		ObjectOutputStream.PutField fields = null;
+
+		fields = out.putFields();
+		fields.put("type",type);
+		fields.put("ident",ident);
+		fields.put("name",name);
+		fields.put("ra",ra);
+		fields.put("dec",dec);
+		fields.put("equinox",equinox);
+		fields.put("ephemerisTargetTrack",ephemerisTargetTrack);
+		fields.put("raOffset",raOffset);
+		fields.put("decOffset",decOffset);
+		fields.put("magnitude",magnitude);
+		fields.put("magnitudeFilterType",magnitudeFilterType);
+		fields.put("magnitudeError",magnitudeError);
+		out.writeFields();
+	}
+
+	/**
+	 * Deserialize the target, reading the fields in serialPersistentFields. A target serialized before
+	 * RTMLEphemerisTrack was introduced holds it's ephemeris track as a TreeSet of
+	 * RTMLEphemerisTargetTrackNode s, which is converted into an RTMLEphemerisTrack.
+	 * @param in The stream to read the target from.
+	 * @exception IOException Thrown if reading fails.
+	 * @exception ClassNotFoundException Thrown if a serialized class cannot be found.
+	 * @exception InvalidObjectException Thrown if the serialized track is not a SortedSet, or contains a
+	 *            node without a timestamp, RA or Dec, which an RTMLEphemerisTrack cannot hold.
+	 * @see #serialPersistentFields
+	 * @see #ephemerisTargetTrack
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream.GetField fields = null;
+		Object track = null;
+
+		fields = in.readFields();
+		type = (String)(fields.get("type",null));
+		ident = (String)(fields.get("ident",null));
+		name = (String)(fields.get("name",null));
+		ra = (RA)(fields.get("ra",null));
+		dec = (Dec)(fields.get("dec",null));
+		equinox = (String)(fields.get("equinox",null));
+		raOffset = fields.get("raOffset",0.0);
+		decOffset = fields.get("decOffset",0.0);
+		magnitude = fields.get("magnitude",0.0);
+		magnitudeFilterType = (String)(fields.get("magnitudeFilterType",null));
+		magnitudeError = fields.get("magnitudeError",0.0);
+		track = fields.get("ephemerisTargetTrack",null);
+		if(track == null)
+			ephemerisTargetTrack = null;
+		else if(track instanceof RTMLEphemerisTrack)
+			ephemerisTargetTrack = (RTMLEphemerisTrack)track;
+		else if(track instanceof SortedSet)
+		{
+			try
+			{
+				ephemerisTargetTrack = new RTMLEphemerisTrack((SortedSet)track);
+			}
+			catch(IllegalArgumentException e)
+			{
+				throw new InvalidObjectException(this.getClass().getName()+
+								 ":readObject:Illegal ephemeris track:"+e.getMessage());
+			}
+		}
+		else
+		{
+			throw new InvalidObjectException(this.getClass().getName()+
+							 ":readObject:Ephemeris track is not a SortedSet:"+
+							 track.getClass().getName());
+		}
+	}
+
 	/** 
 	 * Internal Comparator class for testing order of track anchor points (track nodes).
 	 * @see org.estar.rtml.RTMLEphemerisTargetTrackNode
@@ -90,6 +90,24 @@ public class RTMLTelescope extends RTMLAttributes implements Serializable
 		super();
 	}
 
+	/**
+	 * Copy constructor. The location is also copied.
+	 * @param telescope The telescope to copy.
+	 */
+	public RTMLTelescope(RTMLTelescope telescope)
+	{
+		super(telescope);
+		name = telescope.name;
+		aperture = telescope.aperture;
+		apertureUnits = telescope.apertureUnits;
+		apertureType = telescope.apertureType;
+		focalRatio = telescope.focalRatio;
+		focalLength = telescope.focalLength;
+		focalLengthUnits = telescope.focalLengthUnits;
+		if(telescope.location != null)
+			location = new RTMLTelescopeLocation(telescope.location);
+	}
+
 	/**
 	 * Method to set the name.
 	 * @param s The name.
@@ -315,6 +333,57 @@ public class RTMLTelescope extends RTMLAttributes implements Serializable
 		return location;
 	}
 
+	/**
+	 * Test whether one telescope is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #name
+	 * @see #aperture
+	 * @see #apertureUnits
+	 * @see #apertureType
+	 * @see #focalRatio
+	 * @see #focalLength
+	 * @see #focalLengthUnits
+	 * @see #location
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLTelescope other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLTelescope)obj;
+		return RTMLEquality.same(name,other.name)&&RTMLEquality.same(aperture,other.aperture)&&
+			RTMLEquality.same(apertureUnits,other.apertureUnits)&&
+			RTMLEquality.same(apertureType,other.apertureType)&&
+			RTMLEquality.same(focalRatio,other.focalRatio)&&
+			RTMLEquality.same(focalLength,other.focalLength)&&
+			RTMLEquality.same(focalLengthUnits,other.focalLengthUnits)&&
+			RTMLEquality.same(location,other.location);
+	}
+
+	/**
+	 * Return a hash code for the telescope, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,name);
+		hash = RTMLEquality.hash(hash,aperture);
+		hash = RTMLEquality.hash(hash,apertureUnits);
+		hash = RTMLEquality.hash(hash,apertureType);
+		hash = RTMLEquality.hash(hash,focalRatio);
+		hash = RTMLEquality.hash(hash,focalLength);
+		hash = RTMLEquality.hash(hash,focalLengthUnits);
+		hash = RTMLEquality.hash(hash,location);
+		return hash;
+	}
+
 	/**
 	 * String representation of this Telescope.
 	 * @see #toString(java.lang.String)
@@ -67,6 +67,19 @@ public class RTMLTelescopeLocation extends RTMLAttributes implements Serializabl
 		super();
 	}
 
+	/**
+	 * Copy constructor.
+	 * @param location The location to copy.
+	 */
+	public RTMLTelescopeLocation(RTMLTelescopeLocation location)
+	{
+		super(location);
+		name = location.name;
+		longitude = location.longitude;
+		latitude = location.latitude;
+		altitude = location.altitude;
+	}
+
 	/**
 	 * Method to set the name.
 	 * @param s The name.
@@ -204,6 +217,45 @@ public class RTMLTelescopeLocation extends RTMLAttributes implements Serializabl
 		return altitude;
 	}
 
+	/**
+	 * Test whether one telescope location is equal to another: the attributes and contents are the same.
+	 * @param obj The other instance we are testing against.
+	 * @return Returns true if the contents are the same, and false if they are not.
+	 * @see #name
+	 * @see #longitude
+	 * @see #latitude
+	 * @see #altitude
+	 * @see org.estar.rtml.RTMLAttributes#equals
+	 */
+	public boolean equals(Object obj)
+	{
+		RTMLTelescopeLocation other = null;
+
+		if(super.equals(obj) == false)
+			return false;
+		other = (RTMLTelescopeLocation)obj;
+		return RTMLEquality.same(name,other.name)&&RTMLEquality.same(longitude,other.longitude)&&
+			RTMLEquality.same(latitude,other.latitude)&&
+			RTMLEquality.same(altitude,other.altitude);
+	}
+
+	/**
+	 * Return a hash code for the telescope location, consistent with equals.
+	 * @return The hash code.
+	 * @see #equals
+	 */
+	public int hashCode()
+	{
+		int hash;
+
+		hash = super.hashCode();
+		hash = RTMLEquality.hash(hash,name);
+		hash = RTMLEquality.hash(hash,longitude);
+		hash = RTMLEquality.hash(hash,latitude);
+		hash = RTMLEquality.hash(hash,altitude);
+		return hash;
+	}
+
 	/**
 	 * String representation of this Telescope Location.
 	 * @see #toString(java.lang.String)
@@ -0,0 +1,740 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.
+
+    org.estar.rtml is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// RTMLXMLWriter.java
+package org.estar.rtml;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A streaming XML writer, used to serialize RTML documents in one pass without building a DOM tree.
+ * The output is the same, character for character, as the JAXP Transformer output RTMLCreate produces from
+ * a DOM tree. By default (encoding ISO-8859-1, indent 2):
+ * <ul>
+ * <li>The XML declaration has standalone="no", and is followed by a line separator.
+ * <li>Attributes are written in DOM order: namespace declarations (xmlns, xmlns:*) first, then the rest
+ *     in name order.
+ * <li>Elements with no content are written as &lt;Name/&gt;. Elements containing only text are written on one
+ *     line. The children of elements with child elements are indented, one per line. Text in such mixed content
+ *     is also put on it's own (indented) line, less any leading newlines.
+ * <li>Characters that cannot be represented in ISO-8859-1, and control characters, are written as decimal
+ *     character references. Newlines in text are written as the line separator.
+ * </ul>
+ * The output can instead be compact (setIndent(false)), matching the Transformer with indent "no": no whitespace
+ * is added, text is written as is, and there is no line separator after the XML declaration or at the end.
+ * With UTF-8 encoding (setEncoding), characters beyond ISO-8859-1 in the Basic Multilingual Plane are written
+ * unescaped, as the Transformer does.
+ * <p>
+ * The writer methods are modelled on javax.xml.stream.XMLStreamWriter. The StAX writer itself is not used,
+ * as it does not offer control over escaping, attribute order or indentation, and so cannot produce
+ * the same output as the Transformer.
+ * <p>
+ * Instances are not thread-safe.
+ * @author Chris Mottram
+ * @version $Revision$
+ * @see org.estar.rtml.RTMLCreate
+ */
+public class RTMLXMLWriter
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The ISO-8859-1 character encoding name.
+	 */
+	public final static String ENCODING_ISO_8859_1 = "ISO-8859-1";
+	/**
+	 * The UTF-8 character encoding name.
+	 */
+	public final static String ENCODING_UTF_8 = "UTF-8";
+	/**
+	 * The default character encoding declared in the XML declaration.
+	 */
+	public final static String DEFAULT_ENCODING = ENCODING_ISO_8859_1;
+	/**
+	 * The number of spaces to indent each level of child elements by.
+	 */
+	private final static int INDENT_AMOUNT = 2;
+	/**
+	 * The writer the XML is written to.
+	 */
+	private Writer out = null;
+	/**
+	 * The line separator.
+	 */
+	private String lineSeparator = null;
+	/**
+	 * The character encoding declared in the XML declaration, ISO-8859-1 or UTF-8.
+	 * @see #DEFAULT_ENCODING
+	 */
+	private String encoding = DEFAULT_ENCODING;
+	/**
+	 * The highest character written unescaped (other escaping rules allowing), 0xFF for ISO-8859-1,
+	 * and the end of the Basic Multilingual Plane for UTF-8.
+	 */
+	private char maxCharacter = 0xFF;
+	/**
+	 * Whether to indent child elements, or write compact output.
+	 */
+	private boolean indent = true;
+	/**
+	 * The names of the open elements. Index 0 is the root element.
+	 */
+	private String elementNameList[] = new String[16];
+	/**
+	 * For each open element, whether it has had a child element (or mixed text) written.
+	 */
+	private boolean childElementList[] = new boolean[16];
+	/**
+	 * The number of open elements.
+	 */
+	private int depth = 0;
+	/**
+	 * Whether the start tag of the current element has not been closed yet.
+	 */
+	private boolean startTagOpen = false;
+	/**
+	 * The names of the attributes of the current (open) start tag.
+	 */
+	private List attributeNameList = new ArrayList();
+	/**
+	 * The values of the attributes of the current (open) start tag.
+	 */
+	private List attributeValueList = new ArrayList();
+	/**
+	 * Text written to the current element since it's last child event, which is not written until we know
+	 * whether the element has mixed content.
+	 */
+	private StringBuffer pendingText = new StringBuffer();
+	/**
+	 * Whether the current element's content is being written by the characters writer.
+	 * @see #getCharactersWriter
+	 */
+	private boolean charactersWriterActive = false;
+	/**
+	 * A buffer used when escaping strings.
+	 */
+	private char buffer[] = new char[256];
+
+	/**
+	 * Constructor. The line separator is the system line separator.
+	 * @param w The writer to write the XML to.
+	 */
+	public RTMLXMLWriter(Writer w)
+	{
+		super();
+		out = w;
+		lineSeparator = System.getProperty("line.separator");
+	}
+
+	/**
+	 * Set the character encoding declared in the XML declaration. This also determines which characters are
+	 * written as character references. The writer passed to the constructor must use the same encoding.
+	 * Must be called before writing starts.
+	 * @param s The encoding, ISO-8859-1 or UTF-8.
+	 * @exception IllegalArgumentException Thrown if the encoding is not supported.
+	 * @see #encoding
+	 * @see #maxCharacter
+	 */
+	public void setEncoding(String s) throws IllegalArgumentException
+	{
+		if(ENCODING_ISO_8859_1.equalsIgnoreCase(s))
+		{
+			encoding = ENCODING_ISO_8859_1;
+			maxCharacter = 0xFF;
+		}
+		else if(ENCODING_UTF_8.equalsIgnoreCase(s))
+		{
+			encoding = ENCODING_UTF_8;
+			maxCharacter = 0xFFFF;
+		}
+		else
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":setEncoding:Unsupported encoding:"+s);
+		}
+	}
+
+	/**
+	 * Get the character encoding declared in the XML declaration.
+	 * @return The encoding.
+	 * @see #encoding
+	 */
+	public String getEncoding()
+	{
+		return encoding;
+	}
+
+	/**
+	 * Set whether to indent child elements (the default), or write compact output.
+	 * Must be called before writing starts.
+	 * @param b true to indent, false to write compact output.
+	 * @see #indent
+	 */
+	public void setIndent(boolean b)
+	{
+		indent = b;
+	}
+
+	/**
+	 * Get whether child elements are indented.
+	 * @return true if child elements are indented, false if the output is compact.
+	 * @see #indent
+	 */
+	public boolean getIndent()
+	{
+		return indent;
+	}
+
+	/**
+	 * Set the line separator written between lines (the default is the system line separator).
+	 * Must be called before writing starts.
+	 * @param s The line separator, "\n" or "\r\n".
+	 * @exception IllegalArgumentException Thrown if the line separator is not "\n" or "\r\n".
+	 * @see #lineSeparator
+	 */
+	public void setLineSeparator(String s) throws IllegalArgumentException
+	{
+		if((s == null)||((s.equals("\n") == false)&&(s.equals("\r\n") == false)))
+		{
+			throw new IllegalArgumentException(this.getClass().getName()+
+							   ":setLineSeparator:Illegal line separator.");
+		}
+		lineSeparator = s;
+	}
+
+	/**
+	 * Get the line separator written between lines.
+	 * @return The line separator.
+	 * @see #lineSeparator
+	 */
+	public String getLineSeparator()
+	{
+		return lineSeparator;
+	}
+
+	/**
+	 * Write the XML declaration. When indenting, it is followed by a line separator.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #encoding
+	 * @see #indent
+	 */
+	public void writeStartDocument() throws IOException
+	{
+		out.write("<?xml version=\"1.0\" encoding=\""+encoding+"\" standalone=\"no\"?>");
+		if(indent)
+			out.write(lineSeparator);
+	}
+
+	/**
+	 * Write a DOCTYPE declaration with a system identifier (e.g. the RTML 2.2 DTD URL), followed by a line
+	 * separator. Must be called after writeStartDocument and before the root element is started.
+	 * As with the Transformer, the system identifier is quoted with apostrophes if it contains a quote.
+	 * @param rootName The name of the root element.
+	 * @param systemId The system identifier.
+	 * @exception IOException Thrown if writing fails.
+	 * @exception IllegalStateException Thrown if an element has already been started.
+	 * @see #writeStartDocument
+	 */
+	public void writeDoctype(String rootName,String systemId) throws IOException, IllegalStateException
+	{
+		char quote;
+
+		if((depth > 0)||(startTagOpen))
+		{
+			throw new IllegalStateException(this.getClass().getName()+
+							":writeDoctype:The root element has already been started.");
+		}
+		if(systemId.indexOf('"') > -1)
+			quote = '\'';
+		else
+			quote = '"';
+		out.write("<!DOCTYPE "+rootName+" SYSTEM "+quote+systemId+quote+">");
+		out.write(lineSeparator);
+	}
+
+	/**
+	 * Write the start tag of an element. The start tag is not closed until the element's first content
+	 * (or it's end), so attributes can be added with writeAttribute.
+	 * @param name The element name.
+	 * @exception IOException Thrown if writing fails.
+	 * @exception IllegalStateException Thrown if the current element's content is being written by a
+	 *            characters writer.
+	 * @see #writeAttribute
+	 */
+	public void writeStartElement(String name) throws IOException, IllegalStateException
+	{
+		if(charactersWriterActive)
+		{
+			throw new IllegalStateException(this.getClass().getName()+":writeStartElement:"+name+
+							":Element "+elementNameList[depth-1]+" has text content only.");
+		}
+		if(depth > 0)
+		{
+			closeStartTag();
+			if(indent)
+			{
+				if(pendingText.length() > 0)
+					writeMixedText();
+				out.write(lineSeparator);
+				writeIndent(depth);
+			}
+			else
+				writePendingText();
+			childElementList[depth-1] = true;
+		}
+		if(depth == elementNameList.length)
+		{
+			String newNameList[] = new String[depth*2];
+			boolean newChildElementList[] = new boolean[depth*2];
+
+			System.arraycopy(elementNameList,0,newNameList,0,depth);
+			System.arraycopy(childElementList,0,newChildElementList,0,depth);
+			elementNameList = newNameList;
+			childElementList = newChildElementList;
+		}
+		elementNameList[depth] = name;
+		childElementList[depth] = false;
+		depth++;
+		out.write('<');
+		out.write(name);
+		startTagOpen = true;
+	}
+
+	/**
+	 * Add an attribute to the current start tag. If the attribute has already been added, it's value is replaced.
+	 * @param name The attribute name.
+	 * @param value The attribute value.
+	 * @exception IllegalStateException Thrown if the current start tag has been closed.
+	 */
+	public void writeAttribute(String name,String value) throws IllegalStateException
+	{
+		int index;
+
+		if(startTagOpen == false)
+		{
+			throw new IllegalStateException(this.getClass().getName()+":writeAttribute:"+name+
+							":No start tag is open.");
+		}
+		index = attributeNameList.indexOf(name);
+		if(index > -1)
+			attributeValueList.set(index,value);
+		else
+		{
+			attributeNameList.add(name);
+			attributeValueList.add(value);
+		}
+	}
+
+	/**
+	 * Write text content of the current element. Adjacent text is joined. Empty (or null) text is ignored.
+	 * @param s The text.
+	 * @exception IOException Thrown if writing fails.
+	 * @exception IllegalStateException Thrown if no element is open.
+	 */
+	public void writeCharacters(String s) throws IOException, IllegalStateException
+	{
+		if(depth == 0)
+		{
+			throw new IllegalStateException(this.getClass().getName()+":writeCharacters:No element is open.");
+		}
+		if((s == null)||(s.length() == 0))
+			return;
+		if(charactersWriterActive)
+		{
+			beginCharacters();
+			writeEscaped(s,false);
+		}
+		else
+			pendingText.append(s);
+	}
+
+	/**
+	 * Write a simple element, containing only the specified text.
+	 * @param name The element name.
+	 * @param s The text.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #writeStartElement
+	 * @see #writeCharacters
+	 * @see #writeEndElement
+	 */
+	public void writeTextElement(String name,String s) throws IOException
+	{
+		writeStartElement(name);
+		writeCharacters(s);
+		writeEndElement();
+	}
+
+	/**
+	 * Return a Writer that writes the text content of the current element straight to the output, without
+	 * buffering it. The current element must contain only text (writeStartElement cannot be called until the
+	 * element has been ended). This allows a large amount of text to be streamed into an element.
+	 * @return A writer. Closing the writer has no effect.
+	 * @exception IllegalStateException Thrown if no element is open, or the current element already has child
+	 *            elements.
+	 */
+	public Writer getCharactersWriter() throws IllegalStateException
+	{
+		if(depth == 0)
+		{
+			throw new IllegalStateException(this.getClass().getName()+
+							":getCharactersWriter:No element is open.");
+		}
+		if(childElementList[depth-1])
+		{
+			throw new IllegalStateException(this.getClass().getName()+":getCharactersWriter:Element "+
+							elementNameList[depth-1]+" has child elements.");
+		}
+		charactersWriterActive = true;
+		return new CharactersWriter();
+	}
+
+	/**
+	 * Write the end tag of the current element.
+	 * @exception IOException Thrown if writing fails.
+	 * @exception IllegalStateException Thrown if no element is open.
+	 */
+	public void writeEndElement() throws IOException, IllegalStateException
+	{
+		if(depth == 0)
+		{
+			throw new IllegalStateException(this.getClass().getName()+":writeEndElement:No element is open.");
+		}
+		charactersWriterActive = false;
+		if(startTagOpen && (pendingText.length() == 0))
+		{
+			writeAttributes();
+			out.write("/>");
+			startTagOpen = false;
+		}
+		else
+		{
+			closeStartTag();
+			if(indent && childElementList[depth-1])
+			{
+				if(pendingText.length() > 0)
+					writeMixedText();
+			}
+			else
+				writePendingText();
+			if(indent && childElementList[depth-1])
+			{
+				out.write(lineSeparator);
+				writeIndent(depth-1);
+			}
+			out.write("</");
+			out.write(elementNameList[depth-1]);
+			out.write('>');
+		}
+		depth--;
+		elementNameList[depth] = null;
+	}
+
+	/**
+	 * End the document. Any open elements are ended, and (when indenting) a final line separator written.
+	 * The writer is flushed, but not closed.
+	 * @exception IOException Thrown if writing fails.
+	 */
+	public void writeEndDocument() throws IOException
+	{
+		while(depth > 0)
+			writeEndElement();
+		if(indent)
+			out.write(lineSeparator);
+		out.flush();
+	}
+
+	/**
+	 * Flush the underlying writer.
+	 * @exception IOException Thrown if flushing fails.
+	 */
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	/**
+	 * Close the current start tag, if it is open, writing it's attributes.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #writeAttributes
+	 */
+	private void closeStartTag() throws IOException
+	{
+		if(startTagOpen)
+		{
+			writeAttributes();
+			out.write('>');
+			startTagOpen = false;
+		}
+	}
+
+	/**
+	 * Prepare to write text straight to the output, for an element with text content only. The start tag is
+	 * closed, and any pending text written.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #closeStartTag
+	 * @see #pendingText
+	 */
+	private void beginCharacters() throws IOException
+	{
+		closeStartTag();
+		writePendingText();
+	}
+
+	/**
+	 * Write any pending text as is (escaped), and clear it.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #pendingText
+	 */
+	private void writePendingText() throws IOException
+	{
+		if(pendingText.length() > 0)
+		{
+			writeEscaped(pendingText.toString(),false);
+			pendingText.setLength(0);
+		}
+	}
+
+	/**
+	 * Write the attributes of the current start tag, in DOM order: namespace declarations first,
+	 * then the rest in name order. The attribute lists are then cleared.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #attributeNameList
+	 * @see #attributeValueList
+	 */
+	private void writeAttributes() throws IOException
+	{
+		String nameList[] = null;
+		String name = null;
+		int count;
+
+		count = attributeNameList.size();
+		if(count == 0)
+			return;
+		nameList = (String[])attributeNameList.toArray(new String[count]);
+		Arrays.sort(nameList);
+		// namespace declarations
+		for(int i = 0; i < count; i++)
+		{
+			if(isNamespaceDeclaration(nameList[i]))
+				writeAttribute(nameList[i]);
+		}
+		// other attributes
+		for(int i = 0; i < count; i++)
+		{
+			if(isNamespaceDeclaration(nameList[i]) == false)
+				writeAttribute(nameList[i]);
+		}
+		attributeNameList.clear();
+		attributeValueList.clear();
+	}
+
+	/**
+	 * Write a single attribute of the current start tag, preceded by a space.
+	 * @param name The attribute's name.
+	 * @exception IOException Thrown if writing fails.
+	 */
+	private void writeAttribute(String name) throws IOException
+	{
+		String value = null;
+
+		value = (String)(attributeValueList.get(attributeNameList.indexOf(name)));
+		out.write(' ');
+		out.write(name);
+		out.write("=\"");
+		if(value != null)
+			writeEscaped(value,true);
+		out.write('"');
+	}
+
+	/**
+	 * Return whether an attribute name is a namespace declaration (xmlns or xmlns:prefix).
+	 * @param name The attribute name.
+	 * @return true if the attribute is a namespace declaration.
+	 */
+	private boolean isNamespaceDeclaration(String name)
+	{
+		return name.equals("xmlns")||name.startsWith("xmlns:");
+	}
+
+	/**
+	 * Write the pending text of an element with mixed content, on a new indented line, less any leading newlines.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #pendingText
+	 */
+	private void writeMixedText() throws IOException
+	{
+		int start;
+
+		start = 0;
+		while((start < pendingText.length()) && (pendingText.charAt(start) == '\n'))
+			start++;
+		childElementList[depth-1] = true;
+		out.write(lineSeparator);
+		writeIndent(depth);
+		writeEscaped(pendingText.substring(start),false);
+		pendingText.setLength(0);
+	}
+
+	/**
+	 * Write the indentation for the specified element depth.
+	 * @param level The depth (0 for the root element).
+	 * @exception IOException Thrown if writing fails.
+	 * @see #INDENT_AMOUNT
+	 */
+	private void writeIndent(int level) throws IOException
+	{
+		for(int i = 0; i < level*INDENT_AMOUNT; i++)
+			out.write(' ');
+	}
+
+	/**
+	 * Write a string escaped for use as an attribute value (without the surrounding quotes). This is used
+	 * by RTMLReplyPatcher to replace attribute values in an existing document.
+	 * @param s The attribute value.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #writeEscaped(java.lang.String,boolean)
+	 * @see org.estar.rtml.RTMLReplyPatcher
+	 */
+	void writeAttributeValue(String s) throws IOException
+	{
+		writeEscaped(s,true);
+	}
+
+	/**
+	 * Write a string, escaped for use as text or an attribute value.
+	 * @param s The string.
+	 * @param attribute Whether the string is an attribute value.
+	 * @exception IOException Thrown if writing fails.
+	 * @see #writeEscaped(char[],int,int,boolean)
+	 */
+	private void writeEscaped(String s,boolean attribute) throws IOException
+	{
+		int length;
+
+		length = s.length();
+		if(length > buffer.length)
+			buffer = new char[Math.max(length,buffer.length*2)];
+		s.getChars(0,length,buffer,0);
+		writeEscaped(buffer,0,length,attribute);
+	}
+
+	/**
+	 * Write characters, escaped for use as text or an attribute value. Runs of characters that need no escaping
+	 * are written unchanged. Otherwise:
+	 * <ul>
+	 * <li>&amp;, &lt;, &gt; (and &quot; in attributes) are written as entity references.
+	 * <li>In text, a newline is written as the line separator. In attributes, newlines and tabs are written as
+	 *     character references.
+	 * <li>Carriage returns, control characters, characters 0x7F to 0x9F (in text only) and characters beyond
+	 *     maxCharacter are written as decimal character references (surrogate pairs as one reference).
+	 * </ul>
+	 * @param cbuf The characters.
+	 * @param offset The index of the first character to write.
+	 * @param length The number of characters to write.
+	 * @param attribute Whether the characters are (part of) an attribute value.
+	 * @exception IOException Thrown if writing fails.
+	 */
+	private void writeEscaped(char cbuf[],int offset,int length,boolean attribute) throws IOException
+	{
+		int start,end,codePoint;
+		char ch;
+
+		start = offset;
+		end = offset+length;
+		for(int i = offset; i < end; i++)
+		{
+			ch = cbuf[i];
+			if(((ch >= 0x20)&&(ch < 0x7F)&&(ch != '&')&&(ch != '<')&&(ch != '>')&&
+			    ((ch != '"')||(attribute == false)))||
+			   ((ch >= 0xA0)&&(ch <= maxCharacter)&&(Character.isSurrogate(ch) == false))||
+			   ((ch == '\t')&&(attribute == false))||
+			   ((ch >= 0x7F)&&(ch <= 0x9F)&&attribute))
+			{
+				continue;
+			}
+			if(i > start)
+				out.write(cbuf,start,i-start);
+			start = i+1;
+			if(ch == '&')
+				out.write("&amp;");
+			else if(ch == '<')
+				out.write("&lt;");
+			else if(ch == '>')
+				out.write("&gt;");
+			else if(ch == '"')
+				out.write("&quot;");
+			else if((ch == '\n')&&(attribute == false))
+				out.write(lineSeparator);
+			else if(Character.isHighSurrogate(ch)&&((i+1) < end)&&Character.isLowSurrogate(cbuf[i+1]))
+			{
+				codePoint = Character.toCodePoint(ch,cbuf[i+1]);
+				out.write("&#"+codePoint+";");
+				i++;
+				start = i+1;
+			}
+			else
+				out.write("&#"+((int)ch)+";");
+		}
+		if(end > start)
+			out.write(cbuf,start,end-start);
+	}
+
+	/**
+	 * The Writer returned by getCharactersWriter, which writes escaped text straight to the output.
+	 * The start tag of the element is closed on the first (non-empty) write.
+	 * @see #getCharactersWriter
+	 * @see #beginCharacters
+	 */
+	private class CharactersWriter extends Writer
+	{
+		/**
+		 * Write characters to the current element's text content.
+		 * @param cbuf The characters.
+		 * @param offset The index of the first character to write.
+		 * @param length The number of characters to write.
+		 * @exception IOException Thrown if writing fails.
+		 */
+		public void write(char cbuf[],int offset,int length) throws IOException
+		{
+			if(length == 0)
+				return;
+			beginCharacters();
+			writeEscaped(cbuf,offset,length,false);
+		}
+
+		/**
+		 * Flush the underlying writer.
+		 * @exception IOException Thrown if flushing fails.
+		 */
+		public void flush() throws IOException
+		{
+			out.flush();
+		}
+
+		/**
+		 * Does nothing, the underlying writer is not closed.
+		 */
+		public void close()
+		{
+		}
+	}
+}
@@ -0,0 +1,377 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestBatchParser.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLBatchParser, by parsing a directory of files, or a list of files, as a batch,
+ * and printing the result for each file. The files are then parsed (repeatedly) as a batch of input streams,
+ * opened by the iterator as the batch asks for them, checking the results are in order and the same as
+ * parsing the files, and that the number of streams open at once is bounded.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestBatchParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * Directory to parse, or null.
+	 */
+	protected File directory = null;
+	/**
+	 * List of files to parse, used if directory is null.
+	 */
+	protected List fileList = new Vector();
+	/**
+	 * The batch parser.
+	 */
+	protected RTMLBatchParser batchParser = new RTMLBatchParser();
+	/**
+	 * Whether to print each parsed document.
+	 */
+	protected boolean printDocuments = false;
+	/**
+	 * The number of times the files are repeated in the batch of input streams.
+	 */
+	protected int streamRepeatCount = 20;
+	/**
+	 * The number of streams currently open, in the batch of input streams.
+	 */
+	protected int openCount = 0;
+	/**
+	 * The maximum number of streams open at once, in the batch of input streams.
+	 */
+	protected int maxOpenCount = 0;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestBatchParser()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #directory
+	 * @see #fileList
+	 * @see #batchParser
+	 * @see #printDocuments
+	 * @see #streamRepeatCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-directory")||args[i].equals("-d"))
+			{
+				if((i+1) < args.length)
+				{
+					directory = new File(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No directory specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					fileList.add(new File(args[i+1]));
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-print"))
+			{
+				printDocuments = true;
+			}
+			else if(args[i].equals("-schema"))
+			{
+				batchParser.setParseSchema(true);
+			}
+			else if(args[i].equals("-stream"))
+			{
+				batchParser.setParseEngine(RTMLParser.PARSE_ENGINE_STREAM);
+			}
+			else if(args[i].equals("-stream_repeat"))
+			{
+				if((i+1) < args.length)
+				{
+					streamRepeatCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No stream repeat count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-threads"))
+			{
+				if((i+1) < args.length)
+				{
+					batchParser.setParallelism(Integer.parseInt(args[i+1]));
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No thread count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. The directory or list of files is parsed as one batch, and the results printed.
+	 * The files are then parsed as a batch of input streams.
+	 * @return true if all the documents parsed successfully, and the batch of input streams passed,
+	 *         false otherwise.
+	 * @see #batchParser
+	 * @see #testStreams
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLBatchParser.Result result = null;
+		List resultList = null;
+		long startTime,endTime;
+		int errorCount = 0;
+
+		startTime = System.currentTimeMillis();
+		if(directory != null)
+			resultList = batchParser.parse(directory);
+		else
+			resultList = batchParser.parseFiles(fileList);
+		endTime = System.currentTimeMillis();
+		for(int i = 0; i < resultList.size(); i++)
+		{
+			result = (RTMLBatchParser.Result)(resultList.get(i));
+			System.out.println(result);
+			if(result.isSuccess() == false)
+				errorCount++;
+			else if(printDocuments)
+				System.out.println(result.getDocument());
+		}
+		System.out.println(batchParser.getParallelism()+" threads parsed "+resultList.size()+
+				   " documents in "+(endTime-startTime)+" ms.");
+		System.out.println("Error count:"+errorCount);
+		return testStreams(resultList)&&(errorCount == 0);
+	}
+
+	/**
+	 * Parse the files as a batch of input streams, repeated streamRepeatCount times. The iterator opens
+	 * each stream when it is asked for it, and counts the streams open at once. The results are checked to
+	 * be in order, and the same as parsing the files, and the maximum number of open streams to be within
+	 * RTMLBatchParser.MAX_QUEUED_PER_THREAD times the parallelism.
+	 * @param fileResultList The results of parsing the files, whose sources are the files.
+	 * @return true if the test passed.
+	 * @see #streamRepeatCount
+	 * @see #maxOpenCount
+	 */
+	protected boolean testStreams(final List fileResultList) throws Exception
+	{
+		RTMLBatchParser.Result fileResult = null;
+		RTMLBatchParser.Result result = null;
+		Iterator iterator = null;
+		List resultList = null;
+		long startTime,endTime;
+		final int count = fileResultList.size()*streamRepeatCount;
+		int errorCount = 0;
+
+		openCount = 0;
+		maxOpenCount = 0;
+		iterator = new Iterator()
+		{
+			private int index = 0;
+
+			public boolean hasNext()
+			{
+				return (index < count);
+			}
+
+			public Object next()
+			{
+				File file = null;
+
+				file = (File)(((RTMLBatchParser.Result)(fileResultList.get(index%fileResultList.size()))).
+					      getSource());
+				index++;
+				try
+				{
+					return new CountedInputStream(new FileInputStream(file));
+				}
+				catch(IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+		startTime = System.currentTimeMillis();
+		resultList = batchParser.parseStreams(iterator);
+		endTime = System.currentTimeMillis();
+		if(resultList.size() != count)
+		{
+			System.out.println("Streams:FAILED:"+resultList.size()+" results, expected "+count+".");
+			return false;
+		}
+		for(int i = 0; i < resultList.size(); i++)
+		{
+			result = (RTMLBatchParser.Result)(resultList.get(i));
+			fileResult = (RTMLBatchParser.Result)(fileResultList.get(i%fileResultList.size()));
+			if((result.getIndex() != i)||(result.isSuccess() != fileResult.isSuccess())||
+			   (result.isSuccess() &&
+			    (result.getDocument().toString().equals(fileResult.getDocument().toString()) == false)))
+			{
+				System.out.println("Streams:FAILED:Result "+i+" differs from "+fileResult+".");
+				errorCount++;
+			}
+		}
+		System.out.println(batchParser.getParallelism()+" threads parsed "+resultList.size()+" streams in "+
+				   (endTime-startTime)+" ms, at most "+maxOpenCount+" open at once.");
+		if(maxOpenCount > (RTMLBatchParser.MAX_QUEUED_PER_THREAD*batchParser.getParallelism()))
+		{
+			System.out.println("Streams:FAILED:"+maxOpenCount+" streams open at once.");
+			errorCount++;
+		}
+		if(openCount != 0)
+		{
+			System.out.println("Streams:FAILED:"+openCount+" streams not closed.");
+			errorCount++;
+		}
+		return (errorCount == 0);
+	}
+
+	/**
+	 * Input stream counting the number of streams open at once.
+	 * @see #openCount
+	 * @see #maxOpenCount
+	 */
+	protected class CountedInputStream extends FilterInputStream
+	{
+		/**
+		 * Whether the stream has been closed.
+		 */
+		private boolean closed = false;
+
+		/**
+		 * Constructor. The open count is incremented.
+		 * @param is The stream to read from.
+		 */
+		public CountedInputStream(InputStream is)
+		{
+			super(is);
+			synchronized(TestBatchParser.this)
+			{
+				openCount++;
+				maxOpenCount = Math.max(maxOpenCount,openCount);
+			}
+		}
+
+		/**
+		 * Close the stream. The open count is decremented, the first time the stream is closed.
+		 */
+		public void close() throws IOException
+		{
+			super.close();
+			synchronized(TestBatchParser.this)
+			{
+				if(closed == false)
+					openCount--;
+				closed = true;
+			}
+		}
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestBatchParser [-help] [-threads <n>] [-schema] [-stream] "+
+				   "[-print] [-stream_repeat <n>] -d[irectory] <directory> | -f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestBatchParser testBatchParser = null;
+		boolean retval;
+
+		try
+		{
+			testBatchParser = new TestBatchParser();
+			testBatchParser.parseArguments(args);
+			retval = testBatchParser.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestBatchParser:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
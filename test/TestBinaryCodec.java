@@ -0,0 +1,270 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestBinaryCodec.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLBinaryCodec, by parsing each specified file, encoding and decoding the resultant
+ * document, and checking the decoded document is the same as the original (by comparing their toString
+ * output). The encoded size and round trip time is also compared with the XML path (RTMLCreate write
+ * and RTMLParser parse) and Java serialization.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestBinaryCodec
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to round trip each document with each method, used for timing.
+	 */
+	protected int loopCount = 1;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestBinaryCodec()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed, then round tripped with each method, and the binary codec's
+	 * decoded document compared with the original.
+	 * @return true if the binary codec round tripped all the files, false otherwise.
+	 * @see #filenameList
+	 * @see #roundTripBinary
+	 * @see #roundTripXML
+	 * @see #roundTripSerialization
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLDocument document = null;
+		RTMLDocument binaryDocument = null;
+		String filename = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			document = parser.parse(new File(filename));
+			binaryDocument = roundTripBinary(filename,document);
+			roundTripXML(filename,document,parser);
+			roundTripSerialization(filename,document);
+			if(document.toString().equals(binaryDocument.toString()))
+				System.out.println(filename+":Decoded document is the same as the original.");
+			else
+			{
+				System.out.println(filename+":Decoded document DIFFERS:");
+				System.out.println("Original:\n"+document);
+				System.out.println("Decoded:\n"+binaryDocument);
+				retval = false;
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Encode and decode the document loopCount times using RTMLBinaryCodec.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to round trip.
+	 * @return The last decoded document.
+	 * @see #loopCount
+	 */
+	protected RTMLDocument roundTripBinary(String filename,RTMLDocument document) throws Exception
+	{
+		RTMLBinaryCodec codec = null;
+		RTMLDocument d = null;
+		byte data[] = null;
+		long startTime,endTime;
+
+		codec = new RTMLBinaryCodec();
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			data = codec.encode(document);
+			d = codec.decode(data);
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":binary:"+data.length+" bytes, round tripped "+loopCount+" times in "+
+				   (endTime-startTime)+" ms.");
+		return d;
+	}
+
+	/**
+	 * Write and parse the document loopCount times using RTMLCreate write and RTMLParser parse.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to round trip.
+	 * @param parser The parser to use.
+	 * @see #loopCount
+	 */
+	protected void roundTripXML(String filename,RTMLDocument document,RTMLParser parser) throws Exception
+	{
+		RTMLCreate create = null;
+		ByteArrayOutputStream os = null;
+		long startTime,endTime;
+
+		create = new RTMLCreate();
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			os = new ByteArrayOutputStream();
+			create.write(document,os);
+			parser.parse(new ByteArrayInputStream(os.toByteArray()));
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":XML:"+os.size()+" bytes, round tripped "+loopCount+" times in "+
+				   (endTime-startTime)+" ms.");
+	}
+
+	/**
+	 * Serialize and deserialize the document loopCount times using Java serialization.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to round trip.
+	 * @see #loopCount
+	 */
+	protected void roundTripSerialization(String filename,RTMLDocument document) throws Exception
+	{
+		ByteArrayOutputStream os = null;
+		ObjectOutputStream oos = null;
+		ObjectInputStream ois = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			os = new ByteArrayOutputStream();
+			oos = new ObjectOutputStream(os);
+			oos.writeObject(document);
+			oos.close();
+			ois = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()));
+			ois.readObject();
+			ois.close();
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":serialization:"+os.size()+" bytes, round tripped "+loopCount+
+				   " times in "+(endTime-startTime)+" ms.");
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestBinaryCodec [-help] [-loop_count <n>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestBinaryCodec testBinaryCodec = null;
+		boolean retval;
+
+		try
+		{
+			testBinaryCodec = new TestBinaryCodec();
+			testBinaryCodec.parseArguments(args);
+			retval = testBinaryCodec.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestBinaryCodec:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,324 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestCopy.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests the RTMLDocument copy constructor, by parsing each specified file, copying the resultant
+ * document, and checking the copy is the same as the original (by comparing their toString output), and
+ * that modifying the copy does not change the original. The parsed document itself is then modified, to
+ * check parsed documents are modifiable (e.g. their periods are not shared read-only instances). The copy time is compared with copying the
+ * document using Java serialization (the old deepClone implementation).
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestCopy
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to copy each document with each method, used for timing.
+	 */
+	protected int loopCount = 1;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestCopy()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed, then copied with each method, and the copy compared with the
+	 * original. The copy is then modified, and the original checked to see it has not changed.
+	 * @return true if all the documents were copied correctly, false otherwise.
+	 * @see #filenameList
+	 * @see #copyConstructor
+	 * @see #copySerialization
+	 * @see #modify
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLDocument document = null;
+		RTMLDocument copy = null;
+		String filename = null;
+		String originalString = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			document = parser.parse(new File(filename));
+			originalString = document.toString();
+			copy = copyConstructor(filename,document);
+			copySerialization(filename,document);
+			if(originalString.equals(copy.toString()))
+				System.out.println(filename+":Copy is the same as the original.");
+			else
+			{
+				System.out.println(filename+":Copy DIFFERS:");
+				System.out.println("Original:\n"+originalString);
+				System.out.println("Copy:\n"+copy);
+				retval = false;
+			}
+			modify(copy);
+			if(originalString.equals(document.toString()))
+				System.out.println(filename+":Modifying the copy did not change the original.");
+			else
+			{
+				System.out.println(filename+":Modifying the copy CHANGED the original:");
+				System.out.println("Original:\n"+document);
+				retval = false;
+			}
+			try
+			{
+				modify(document);
+				System.out.println(filename+":Modified the parsed document.");
+			}
+			catch(Exception e)
+			{
+				System.out.println(filename+":Modifying the parsed document FAILED:"+e);
+				retval = false;
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Copy the document loopCount times using the RTMLDocument copy constructor.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to copy.
+	 * @return The last copy.
+	 * @see #loopCount
+	 */
+	protected RTMLDocument copyConstructor(String filename,RTMLDocument document) throws Exception
+	{
+		RTMLDocument copy = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			copy = new RTMLDocument(document);
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":copy constructor:copied "+loopCount+" times in "+
+				   (endTime-startTime)+" ms.");
+		return copy;
+	}
+
+	/**
+	 * Copy the document loopCount times using Java serialization.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to copy.
+	 * @see #loopCount
+	 */
+	protected void copySerialization(String filename,RTMLDocument document) throws Exception
+	{
+		ByteArrayOutputStream os = null;
+		ObjectOutputStream oos = null;
+		ObjectInputStream ois = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			os = new ByteArrayOutputStream();
+			oos = new ObjectOutputStream(os);
+			oos.writeObject(document);
+			oos.close();
+			ois = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()));
+			ois.readObject();
+			ois.close();
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":serialization:copied "+loopCount+" times in "+
+				   (endTime-startTime)+" ms.");
+	}
+
+	/**
+	 * Modify a document, changing (where present) the history, the contact, the observation's target,
+	 * schedule (including the series constraint's periods) and device, and the scores (including their delays).
+	 * @param d The document to modify.
+	 */
+	protected void modify(RTMLDocument d) throws Exception
+	{
+		RTMLObservation ob = null;
+		RTMLTarget target = null;
+		RTMLSchedule schedule = null;
+		RTMLDevice device = null;
+
+		d.setUId("modified");
+		d.addHistoryEntry("TestCopy",null,"Modified copy.");
+		if(d.getContact() != null)
+			d.getContact().setName("modified");
+		if(d.getIntelligentAgent() != null)
+			d.getIntelligentAgent().setHostname("modified");
+		for(int i = 0; i < d.getObservationListCount(); i++)
+		{
+			ob = d.getObservation(i);
+			target = ob.getTarget();
+			if(target != null)
+			{
+				target.setName("modified");
+				if(target.getRA() != null)
+					target.getRA().setHours(target.getRA().getHours()+1);
+				if(target.getDec() != null)
+					target.getDec().setNegative(!target.getDec().getNegative());
+				if((target.getEphemerisTrack() != null)&&(target.getEphemerisTrack().size() > 0))
+				{
+					target.removeEphemerisTrackNode((RTMLEphemerisTargetTrackNode)
+									(target.getEphemerisTrack().first()));
+				}
+			}
+			schedule = ob.getSchedule();
+			if(schedule != null)
+			{
+				schedule.setPriority(schedule.getPriority()+1);
+				if(schedule.getStartDate() != null)
+					schedule.getStartDate().setTime(0);
+				if(schedule.getSeriesConstraint() != null)
+				{
+					schedule.getSeriesConstraint().setCount(schedule.getSeriesConstraint().getCount()+1);
+					if(schedule.getSeriesConstraint().getInterval() != null)
+						schedule.getSeriesConstraint().getInterval().setHours(3);
+					if(schedule.getSeriesConstraint().getTolerance() != null)
+						schedule.getSeriesConstraint().getTolerance().setMinutes(7);
+				}
+				if(schedule.getSeeingConstraint() != null)
+					schedule.getSeeingConstraint().setMaximum(99.0);
+			}
+			device = ob.getDevice();
+			if((device != null)&&(device.getDetector() != null))
+				device.getDetector().setRowBinning(device.getDetector().getRowBinning()+1);
+			ob.clearImageDataList();
+		}
+		for(int i = 0; i < d.getScoresListCount(); i++)
+		{
+			d.getScore(i).setProbability(-1.0);
+			if(d.getScore(i).getDelay() != null)
+				d.getScore(i).getDelay().setDays(2);
+		}
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestCopy [-help] [-loop_count <n>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestCopy testCopy = null;
+		boolean retval;
+
+		try
+		{
+			testCopy = new TestCopy();
+			testCopy.parseArguments(args);
+			retval = testCopy.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestCopy:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,373 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestDateFormat.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLDateFormat. A list of date strings is parsed in the Europe/London timezone, and
+ * each result compared with the expected instant (or ParseException error offset). The list includes the
+ * strings parsed the same way as by the SimpleDateFormat s RTMLDateFormat used to wrap, and (marked as changed)
+ * those that are now parsed differently. Formatting, formatted dates parsing back to the same date in another
+ * timezone, and sharing an instance between threads are also tested.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestDateFormat
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The timezone the parse tests are run in.
+	 */
+	public final static String TIMEZONE_ID = "Europe/London";
+	/**
+	 * The list of parse tests. Each is the string to parse, the expected result (the instant as returned by
+	 * Instant.toString, or "ParseException@" followed by the error offset), and a comment. Comments starting with
+	 * "changed:" are for strings parsed differently by SimpleDateFormat, with it's result.
+	 */
+	public final static String PARSE_TEST_LIST[][] =
+	{
+		{"2006-02-28T18:00:00+1100","2006-02-28T07:00:00Z","timezone"},
+		{"2006-02-28T18:00:00-0130","2006-02-28T19:30:00Z","negative timezone"},
+		{"2006-02-28T18:00:00","2006-02-28T18:00:00Z","local time, GMT"},
+		{"2006-07-28T18:00:00","2006-07-28T17:00:00Z","local time, BST"},
+		{"2006-03-26T01:30:00","2006-03-26T01:30:00Z","local time in the daylight saving time gap"},
+		{"2006-10-29T01:30:00","2006-10-29T01:30:00Z","local time occuring twice, later one used"},
+		{"2006-02-28T18:00:00GMT+11:00","2006-02-28T07:00:00Z","GMT offset timezone"},
+		{"2006-02-28T18:00:00GMT-1:30","2006-02-28T19:30:00Z","GMT offset timezone, one digit hour"},
+		{"2006-07-28T18:00:00GMT","2006-07-28T18:00:00Z","GMT timezone"},
+		{"2006-07-28T18:00:00UTC","2006-07-28T18:00:00Z","UTC timezone"},
+		{"2006-07-28T18:00:00UTC+01:00","2006-07-28T18:00:00Z","UTC timezone, following offset ignored"},
+		{"2006-02-28T18:00:00PST","2006-03-01T02:00:00Z","timezone name"},
+		{"2006-02-28T18:00:00 +1100","2006-02-28T07:00:00Z","whitespace before timezone"},
+		{"2006-02-28T18:00:00\t+0100","2006-02-28T17:00:00Z","tab before timezone"},
+		{" 2006-02-28T18:00:00 ","2006-02-28T18:00:00Z","leading and trailing whitespace"},
+		{"2006-02-28T18:00:00xyz","2006-02-28T18:00:00Z","trailing text ignored"},
+		{"2006-02-28T18:00:00+1100xyz","2006-02-28T07:00:00Z","trailing text after timezone ignored"},
+		{"2006-02-28T18:00:00+11","2006-02-28T18:00:00Z","incomplete timezone ignored"},
+		{"2006-02-28T18:00:00+110","2006-02-28T18:00:00Z","incomplete timezone ignored"},
+		{"2006-02-28T18:00:00+","2006-02-28T18:00:00Z","incomplete timezone ignored"},
+		{"2006-07-28T18:00:00GMT+","2006-07-28T17:00:00Z","incomplete GMT offset timezone ignored"},
+		{"2006-02-28T18:00:00GMT+1100","2006-02-28T18:00:00Z","GMT offset timezone without colon ignored"},
+		{"2006-07-28T18:00:00z","2006-07-28T17:00:00Z","lower case z ignored"},
+		{"2006-02-28T18:00:00,5","2006-02-28T18:00:00Z","comma fraction ignored"},
+		{"2006-13-45T25:61:61","2007-02-15T02:02:01Z","out of range fields roll over"},
+		{"2006-00-00T00:00:00","2005-11-30T00:00:00Z","zero fields roll over"},
+		{"2006-02-28T-1:00:00","2006-02-27T23:00:00Z","negative field rolls over"},
+		{"2006-2-3T4:5:6","2006-02-03T04:05:06Z","one digit fields"},
+		{"02006-02-28T18:00:00","2006-02-28T18:00:00Z","five digit year"},
+		{"2006-02-28 18:00:00","ParseException@10","no T separator"},
+		{"2006-02-28t18:00:00","ParseException@10","lower case t separator"},
+		{"2006-02-28T18:00","ParseException@16","no seconds"},
+		{"2006-02-28","ParseException@10","no time"},
+		{"","ParseException@0","empty string"},
+		{"garbage","ParseException@0","not a date"},
+		{"2006-02-28T18:00:00+11:00","2006-02-28T07:00:00Z",
+		 "changed:colon timezone used, was 2006-02-28T18:00:00Z (read as local time)"},
+		{"2006-07-28T18:00:00-00:00","2006-07-28T18:00:00Z",
+		 "changed:colon timezone used, was 2006-07-28T17:00:00Z (read as local time)"},
+		{"2006-07-28T18:00:00Z","2006-07-28T18:00:00Z",
+		 "changed:Z timezone used, was 2006-07-28T17:00:00Z (read as local time)"},
+		{"2006-02-28T18:00:00.5","2006-02-28T18:00:00.500Z",
+		 "changed:fractional seconds used, was 2006-02-28T18:00:00Z"},
+		{"2006-02-28T18:00:00.123+0100","2006-02-28T17:00:00.123Z",
+		 "changed:fractional seconds and timezone used, was 2006-02-28T18:00:00Z"},
+		{"2006-02-28T 18:00:00","ParseException@11",
+		 "changed:whitespace within the time rejected, was 2006-02-28T18:00:00Z"},
+		{"2006-02-28T18:00:00+1900","2006-02-28T18:00:00Z",
+		 "changed:offset of more than 18 hours ignored, was 2006-02-27T23:00:00Z"},
+		{"2006-02-28T18:00:00America/Los_Angeles","2006-03-01T02:00:00Z",
+		 "changed:zone id used, was 2006-02-28T18:00:00Z (read as local time)"},
+		{"1582-10-10T00:00:00","1582-10-10T00:01:15Z",
+		 "changed:proleptic Gregorian calendar and local mean time, was 1582-10-20T00:00:00Z"}
+	};
+	/**
+	 * The number of threads used to test sharing an instance.
+	 */
+	protected int threadCount = 4;
+	/**
+	 * The number of dates each thread parses and formats.
+	 */
+	protected int loopCount = 10000;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestDateFormat()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #threadCount
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-threads"))
+			{
+				if((i+1) < args.length)
+				{
+					threadCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No thread count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method.
+	 * @return true if all the tests passed, false otherwise.
+	 * @see #testParse
+	 * @see #testFormat
+	 * @see #testThreads
+	 */
+	public boolean run() throws Exception
+	{
+		boolean retval = true;
+
+		retval &= testParse();
+		retval &= testFormat();
+		retval &= testThreads();
+		return retval;
+	}
+
+	/**
+	 * Parse each string in PARSE_TEST_LIST in the TIMEZONE_ID timezone, and check the result.
+	 * @return true if the tests passed.
+	 * @see #PARSE_TEST_LIST
+	 * @see #TIMEZONE_ID
+	 */
+	protected boolean testParse()
+	{
+		RTMLDateFormat dateFormat = null;
+		String result = null;
+		boolean retval = true;
+
+		dateFormat = new RTMLDateFormat(TimeZone.getTimeZone(TIMEZONE_ID));
+		for(int i = 0; i < PARSE_TEST_LIST.length; i++)
+		{
+			try
+			{
+				result = dateFormat.parse(PARSE_TEST_LIST[i][0]).toInstant().toString();
+			}
+			catch(ParseException e)
+			{
+				result = "ParseException@"+e.getErrorOffset();
+			}
+			retval &= check("parse:'"+PARSE_TEST_LIST[i][0]+"':"+PARSE_TEST_LIST[i][2]+":"+result,
+					result.equals(PARSE_TEST_LIST[i][1]));
+		}
+		return retval;
+	}
+
+	/**
+	 * Test formatting, and that formatted dates parse back to the same date in another timezone.
+	 * @return true if the tests passed.
+	 * @see #TIMEZONE_ID
+	 */
+	protected boolean testFormat() throws Exception
+	{
+		RTMLDateFormat dateFormat = null;
+		RTMLDateFormat otherDateFormat = null;
+		Date winterDate = null;
+		Date summerDate = null;
+		Date date = null;
+		boolean roundTrip = true;
+		boolean retval = true;
+
+		dateFormat = new RTMLDateFormat(TimeZone.getTimeZone(TIMEZONE_ID));
+		otherDateFormat = new RTMLDateFormat(TimeZone.getTimeZone("Australia/Sydney"));
+		winterDate = new Date(1141149600000L);
+		summerDate = new Date(1154106000000L);
+		retval &= check("format:winter",dateFormat.format(winterDate).equals("2006-02-28T18:00:00+0000"));
+		retval &= check("format:summer",dateFormat.format(summerDate).equals("2006-07-28T18:00:00+0100"));
+		retval &= check("format:colon timezone:winter",
+				dateFormat.formatWithColonTimezone(winterDate).equals("2006-02-28T18:00:00+00:00"));
+		retval &= check("format:colon timezone:summer",
+				dateFormat.formatWithColonTimezone(summerDate).equals("2006-07-28T18:00:00+01:00"));
+		retval &= check("format:other timezone",
+				otherDateFormat.formatWithColonTimezone(summerDate).equals("2006-07-29T03:00:00+10:00"));
+		// java.sql.Date does not support toInstant
+		retval &= check("format:java.sql.Date",
+				dateFormat.format(new java.sql.Date(1141149600000L)).equals("2006-02-28T18:00:00+0000"));
+		for(int i = 0; i < 24; i++)
+		{
+			date = new Date(1141149600000L+(i*15L*24L*3600L*1000L)+(i*3600L*1000L));
+			if((dateFormat.parse(otherDateFormat.format(date)).equals(date) == false)||
+			   (dateFormat.parse(otherDateFormat.formatWithColonTimezone(date)).equals(date) == false))
+			{
+				System.out.println("format:parse in other timezone:"+
+						   otherDateFormat.formatWithColonTimezone(date)+":FAILED.");
+				roundTrip = false;
+			}
+		}
+		retval &= check("format:parse in other timezone",roundTrip);
+		return retval;
+	}
+
+	/**
+	 * Test sharing the instance returned by getInstance between threads. Each thread formats and parses
+	 * loopCount different dates, and checks they parse back to the formatted date.
+	 * @return true if the tests passed.
+	 * @see #threadCount
+	 * @see #loopCount
+	 */
+	protected boolean testThreads() throws Exception
+	{
+		Thread threadList[] = null;
+		final boolean resultList[] = new boolean[threadCount];
+
+		threadList = new Thread[threadCount];
+		for(int i = 0; i < threadCount; i++)
+		{
+			final int threadIndex = i;
+
+			resultList[i] = true;
+			threadList[i] = new Thread()
+			{
+				public void run()
+				{
+					RTMLDateFormat dateFormat = RTMLDateFormat.getInstance();
+					Date date = null;
+
+					try
+					{
+						for(int j = 0; j < loopCount; j++)
+						{
+							date = new Date((1000000000L+(threadIndex*7919L)+(j*86399L))*1000L);
+							if((dateFormat.parse(dateFormat.format(date)).equals(date) == false)||
+							   (dateFormat.parse(dateFormat.formatWithColonTimezone(date)).
+							    equals(date) == false))
+							{
+								resultList[threadIndex] = false;
+							}
+						}
+					}
+					catch(Exception e)
+					{
+						System.err.println("TestDateFormat:thread "+threadIndex+":"+e);
+						resultList[threadIndex] = false;
+					}
+				}
+			};
+			threadList[i].start();
+		}
+		for(int i = 0; i < threadCount; i++)
+			threadList[i].join();
+		for(int i = 0; i < threadCount; i++)
+		{
+			if(resultList[i] == false)
+				return check("threads:"+threadCount+" threads sharing an instance",false);
+		}
+		return check("threads:"+threadCount+" threads sharing an instance",true);
+	}
+
+	/**
+	 * Print the result of a check.
+	 * @param name The name of the check.
+	 * @param result The result of the check.
+	 * @return The result.
+	 */
+	protected boolean check(String name,boolean result)
+	{
+		if(result)
+			System.out.println(name+":OK.");
+		else
+			System.out.println(name+":FAILED.");
+		return result;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestDateFormat [-help] [-threads <n>] [-loop_count <n>]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestDateFormat testDateFormat = null;
+		boolean retval;
+
+		try
+		{
+			testDateFormat = new TestDateFormat();
+			testDateFormat.parseArguments(args);
+			retval = testDateFormat.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestDateFormat:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,332 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestDocumentPatch.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLDocumentPatch. Each specified file is parsed, and an update derived from it
+ * (the mode/type changed, image data added to the first observation, it's schedule priority changed, a history
+ * entry (RTML 3.1a) and scores added). The patch between the document and the update is created, and
+ * applied to a copy of the document directly, after encoding/decoding with RTMLBinaryCodec, and after Java
+ * serialization. Each result is compared with the update (by their RTMLBinaryCodec encodings).
+ * The reverse patch (update to document) is also tested, as is an empty patch, and applying the patch to
+ * the wrong document. The size of the encoded patch is printed, along with the size of the
+ * update encoded with RTMLBinaryCodec and written as RTML.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestDocumentPatch
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * The codec used to encode and compare documents, and encode patches.
+	 */
+	protected RTMLBinaryCodec codec = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestDocumentPatch()
+	{
+		super();
+		codec = new RTMLBinaryCodec();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed, an update derived from it, and the patches between them tested.
+	 * @return true if all the tests passed for all the files, false otherwise.
+	 * @see #filenameList
+	 * @see #edit
+	 * @see #test
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLCreate create = null;
+		RTMLDocument document = null;
+		RTMLDocument update = null;
+		RTMLDocumentPatch patch = null;
+		ByteArrayOutputStream os = null;
+		String filename = null;
+		byte documentEncoding[] = null;
+		byte patchEncoding[] = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		create = new RTMLCreate();
+		create.setIndent(false);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			document = parser.parse(new File(filename));
+			documentEncoding = codec.encode(document);
+			update = new RTMLDocument(document);
+			edit(update);
+			patch = RTMLDocumentPatch.diff(document,update);
+			System.out.print(filename+":"+patch);
+			retval &= check(filename+":diff left document unchanged",documentEncoding,document);
+			retval &= test(filename+":patch",document,update,patch);
+			// encoded patch
+			patchEncoding = codec.encode(patch);
+			retval &= test(filename+":encoded patch",document,update,codec.decodePatch(patchEncoding));
+			// serialized patch
+			retval &= test(filename+":serialized patch",document,update,(RTMLDocumentPatch)serialize(patch));
+			// reverse patch, removes entries from the end of lists
+			retval &= test(filename+":reverse patch",update,document,RTMLDocumentPatch.diff(update,document));
+			// empty patch
+			patch = RTMLDocumentPatch.diff(document,new RTMLDocument(document));
+			if(patch.isEmpty() == false)
+			{
+				System.out.println(filename+":empty patch:FAILED:Patch not empty:"+patch);
+				retval = false;
+			}
+			else
+				System.out.println(filename+":empty patch:OK.");
+			retval &= testWrongDocument(filename,document,update);
+			os = new ByteArrayOutputStream();
+			create.write(update,os);
+			System.out.println(filename+":Patch "+patchEncoding.length+" bytes, update encoded "+
+					   codec.encode(update).length+" bytes, update RTML "+os.size()+" bytes.");
+		}
+		return retval;
+	}
+
+	/**
+	 * Apply a patch to a copy of a base document, and check the result is the same as the target document,
+	 * and that the base document and patch are unchanged (by applying the patch again).
+	 * @param name The name of the test, used for logging.
+	 * @param base The base document.
+	 * @param target The target document.
+	 * @param patch The patch from the base document to the target document.
+	 * @return true if the test passed.
+	 */
+	protected boolean test(String name,RTMLDocument base,RTMLDocument target,RTMLDocumentPatch patch)
+		throws Exception
+	{
+		RTMLDocument document = null;
+		byte baseEncoding[] = null;
+		byte targetEncoding[] = null;
+
+		baseEncoding = codec.encode(base);
+		targetEncoding = codec.encode(target);
+		for(int i = 0; i < 2; i++)
+		{
+			document = new RTMLDocument(base);
+			patch.apply(document);
+			if(check(name+":apply "+i,targetEncoding,document) == false)
+				return false;
+		}
+		return check(name+":base document unchanged",baseEncoding,base);
+	}
+
+	/**
+	 * Check applying a patch to the wrong document (the patch's target document) throws an exception,
+	 * and leaves the document unchanged.
+	 * @param name The name of the document, used for logging.
+	 * @param document The base document.
+	 * @param update The target document.
+	 * @return true if the test passed.
+	 */
+	protected boolean testWrongDocument(String name,RTMLDocument document,RTMLDocument update)
+		throws Exception
+	{
+		RTMLDocumentPatch patch = null;
+		RTMLDocument wrongDocument = null;
+		byte wrongEncoding[] = null;
+
+		patch = RTMLDocumentPatch.diff(document,update);
+		wrongDocument = new RTMLDocument(update);
+		wrongEncoding = codec.encode(wrongDocument);
+		try
+		{
+			patch.apply(wrongDocument);
+			System.out.println(name+":wrong document:FAILED:No exception thrown.");
+			return false;
+		}
+		catch(RTMLException e)
+		{
+			System.out.println(name+":wrong document:Exception thrown:"+e.getMessage());
+		}
+		return check(name+":wrong document unchanged",wrongEncoding,wrongDocument);
+	}
+
+	/**
+	 * Check a document has the specified RTMLBinaryCodec encoding.
+	 * @param name The name of the check, used for logging.
+	 * @param expected The expected encoding.
+	 * @param document The document.
+	 * @return true if the document's encoding is the expected one.
+	 */
+	protected boolean check(String name,byte expected[],RTMLDocument document) throws Exception
+	{
+		if(Arrays.equals(expected,codec.encode(document)))
+		{
+			System.out.println(name+":OK.");
+			return true;
+		}
+		System.out.println(name+":FAILED:Documents DIFFER:\n"+document);
+		return false;
+	}
+
+	/**
+	 * Make the update edits to a document. The mode (RTML 3.1a) or type (RTML 2.2) is set to update,
+	 * image data is added to the first observation (adding one if necessary) and it's schedule priority
+	 * increased, a history entry (RTML 3.1a) and two scores are added.
+	 * @param document The document.
+	 */
+	protected void edit(RTMLDocument document) throws Exception
+	{
+		RTMLObservation observation = null;
+		RTMLImageData imageData = null;
+		RTMLScore score = null;
+
+		document.setUpdate();
+		if(document.getObservationListCount() == 0)
+			document.addObservation(new RTMLObservation());
+		observation = document.getObservation(0);
+		imageData = new RTMLImageData();
+		imageData.setImageDataType("FITS16");
+		imageData.setImageDataURL("http://localhost/TestDocumentPatch/image.fits");
+		imageData.setFITSHeader("SIMPLE  =                    T");
+		observation.addImageData(imageData);
+		if(observation.getSchedule() == null)
+			observation.setSchedule(new RTMLSchedule());
+		observation.getSchedule().setPriority(observation.getSchedule().getPriority()+1);
+		if(document.getVersion().equals(RTMLDocument.RTML_VERSION_31))
+			document.addHistoryEntry("TestDocumentPatch","http://localhost/TestDocumentPatch","Update.");
+		for(int i = 0; i < 2; i++)
+		{
+			score = new RTMLScore();
+			score.setDelay(new RTMLPeriodFormat());
+			score.getDelay().setHours(i+1);
+			score.setProbability(0.5/(i+1));
+			score.setCumulative(0.25*(i+1));
+			document.addScore(score);
+		}
+	}
+
+	/**
+	 * Serialize and deserialize an object.
+	 * @param o The object.
+	 * @return A new object, deserialized from the serialized object.
+	 */
+	protected Object serialize(Object o) throws Exception
+	{
+		ByteArrayOutputStream bos = null;
+		ObjectOutputStream oos = null;
+		ObjectInputStream ois = null;
+
+		bos = new ByteArrayOutputStream();
+		oos = new ObjectOutputStream(bos);
+		oos.writeObject(o);
+		oos.close();
+		ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		return ois.readObject();
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestDocumentPatch [-help] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestDocumentPatch testDocumentPatch = null;
+		boolean retval;
+
+		try
+		{
+			testDocumentPatch = new TestDocumentPatch();
+			testDocumentPatch.parseArguments(args);
+			retval = testDocumentPatch.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestDocumentPatch:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,687 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestEphemerisTrackParser.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLEphemerisTrackParser. An ephemeris file (or a generated ephemeris) is parsed with
+ * RTMLEphemerisTrackParser, and also a line at a time with RTMLEphemerisTargetTrackNode.parse and
+ * RTMLTarget.addEphemerisTrackNode, and the two tracks compared. Optionally the interpolated position
+ * at a specified time is printed, using RTMLEphemerisTrack.getPosition. Optionally the track is added to the
+ * target of an RTML 3.1a document, which is created and parsed (with both parse engines) to check the
+ * track survives the round trip. Adding a node without a position is checked to fail, leaving the
+ * track unchanged. The track is checked to follow the Set equals and hashCode contract, when compared
+ * with a TreeSet of the same nodes.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestEphemerisTrackParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The ephemeris file to parse, or null.
+	 */
+	protected File file = null;
+	/**
+	 * The number of lines to generate, if file is null.
+	 */
+	protected int generateCount = 0;
+	/**
+	 * Whether to print the parsed track.
+	 */
+	protected boolean printTrack = false;
+	/**
+	 * A time to print the interpolated position at, or null.
+	 */
+	protected Date positionDate = null;
+	/**
+	 * An RTML 3.1a document to round trip the track through, or null.
+	 */
+	protected File documentFile = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestEphemerisTrackParser()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #file
+	 * @see #generateCount
+	 * @see #printTrack
+	 * @see #positionDate
+	 * @see #documentFile
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					file = new File(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-document"))
+			{
+				if((i+1) < args.length)
+				{
+					documentFile = new File(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No document filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-generate"))
+			{
+				if((i+1) < args.length)
+				{
+					generateCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No line count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-position"))
+			{
+				if((i+1) < args.length)
+				{
+					try
+					{
+						positionDate = RTMLDateFormat.getInstance().parse(args[i+1]);
+					}
+					catch(java.text.ParseException e)
+					{
+						System.err.println(this.getClass().getName()+
+								   ":parseArguments:Illegal position date:"+args[i+1]+":"+e);
+						System.exit(3);
+					}
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No position date specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-print"))
+			{
+				printTrack = true;
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method.
+	 * @return true if the tracks are the same, false otherwise.
+	 * @see #generate
+	 * @see #roundTrip
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLEphemerisTrackParser trackParser = null;
+		RTMLEphemerisTargetTrackNode node = null;
+		RTMLTarget target = null;
+		SortedSet track = null;
+		BufferedReader reader = null;
+		String ephemeris = null;
+		String line = null;
+		long startTime,endTime;
+		int errorCount;
+
+		if(file != null)
+			ephemeris = readFile(file);
+		else
+			ephemeris = generate(generateCount);
+		// bulk parse
+		trackParser = new RTMLEphemerisTrackParser();
+		startTime = System.currentTimeMillis();
+		track = trackParser.parse(ephemeris);
+		endTime = System.currentTimeMillis();
+		System.out.println("RTMLEphemerisTrackParser:parsed "+trackParser.getLineCount()+" lines into "+
+				   track.size()+" nodes ("+trackParser.getDuplicateCount()+" duplicates) in "+
+				   (endTime-startTime)+" ms.");
+		for(int i = 0; i < trackParser.getErrorList().size(); i++)
+			System.out.println(trackParser.getErrorList().get(i));
+		// line by line parse
+		target = new RTMLTarget();
+		errorCount = 0;
+		reader = new BufferedReader(new StringReader(ephemeris));
+		startTime = System.currentTimeMillis();
+		while((line = reader.readLine()) != null)
+		{
+			if(line.trim().length() == 0)
+				continue;
+			node = new RTMLEphemerisTargetTrackNode();
+			try
+			{
+				node.parse(line);
+				target.addEphemerisTrackNode(node);
+			}
+			catch(Exception e)
+			{
+				errorCount++;
+			}
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println("RTMLEphemerisTargetTrackNode:parsed "+
+				   ((target.getEphemerisTrack() != null) ? target.getEphemerisTrack().size() : 0)+
+				   " nodes with "+errorCount+" errors in "+(endTime-startTime)+" ms.");
+		if(printTrack)
+		{
+			for(Iterator i = track.iterator(); i.hasNext();)
+				System.out.println(i.next());
+		}
+		if(positionDate != null)
+		{
+			System.out.println("Linear position:"+((RTMLEphemerisTrack)track).
+					   getPosition(positionDate,RTMLEphemerisTrack.INTERPOLATE_LINEAR));
+			System.out.println("Rate position:"+((RTMLEphemerisTrack)track).
+					   getPosition(positionDate,RTMLEphemerisTrack.INTERPOLATE_RATE));
+		}
+		if(errorCount != trackParser.getErrorList().size())
+		{
+			System.err.println("Error counts differ.");
+			return false;
+		}
+		if(toStringList(track).equals(toStringList(target.getEphemerisTrack())) == false)
+		{
+			System.err.println("Tracks differ.");
+			return false;
+		}
+		System.out.println("Tracks are the same.");
+		if(testPath(ephemeris,track) == false)
+			return false;
+		if(testIllegalNode() == false)
+			return false;
+		if(testSetContract((RTMLEphemerisTrack)track) == false)
+			return false;
+		if(documentFile != null)
+			return roundTrip(track);
+		return true;
+	}
+
+	/**
+	 * Test parsing the ephemeris from a path gives the same track as parsing it from a string.
+	 * The ephemeris file is used if one was specified, otherwise the generated ephemeris is written
+	 * to a temporary file.
+	 * @param ephemeris The ephemeris lines.
+	 * @param track The track parsed from the ephemeris lines.
+	 * @return true if the test passed, false otherwise.
+	 * @see #file
+	 */
+	protected boolean testPath(String ephemeris,SortedSet track) throws Exception
+	{
+		RTMLEphemerisTrackParser trackParser = null;
+		SortedSet pathTrack = null;
+		Path path = null;
+
+		trackParser = new RTMLEphemerisTrackParser();
+		if(file != null)
+			pathTrack = trackParser.parse(file.toPath());
+		else
+		{
+			path = Files.createTempFile("TestEphemerisTrackParser",".txt");
+			try
+			{
+				Files.write(path,ephemeris.getBytes(StandardCharsets.ISO_8859_1));
+				pathTrack = trackParser.parse(path);
+			}
+			finally
+			{
+				Files.delete(path);
+			}
+		}
+		if(toStringList(pathTrack).equals(toStringList(track)) == false)
+		{
+			System.err.println("Track parsed from path differs.");
+			return false;
+		}
+		System.out.println("Track parsed from path is the same.");
+		return true;
+	}
+
+	/**
+	 * Test the track follows the Set equals and hashCode contract, compared with a TreeSet
+	 * (ordered by RTMLTarget.NodeComparator) containing the same nodes, and that equals and sameTrack
+	 * compare the node positions. The track's views are then tested.
+	 * @param track The track.
+	 * @return true if the test passed, false otherwise.
+	 * @see #testViews
+	 */
+	protected boolean testSetContract(RTMLEphemerisTrack track) throws Exception
+	{
+		RTMLEphemerisTrack copy = null;
+		RTMLEphemerisTargetTrackNode node = null;
+		SortedSet treeSet = null;
+
+		treeSet = new TreeSet(new RTMLTarget.NodeComparator());
+		treeSet.addAll(track);
+		if((treeSet.equals(track) == false)||(track.equals(treeSet) == false))
+		{
+			System.err.println("Track and TreeSet not equal.");
+			return false;
+		}
+		if(treeSet.hashCode() != track.hashCode())
+		{
+			System.err.println("Track and TreeSet hash codes differ:"+track.hashCode()+" "+
+					   treeSet.hashCode()+".");
+			return false;
+		}
+		copy = new RTMLEphemerisTrack(track);
+		if((copy.sameTrack(track) == false)||(copy.trackHashCode() != track.trackHashCode())||
+		   (copy.equals(track) == false)||(copy.hashCode() != track.hashCode()))
+		{
+			System.err.println("Copy of track not the same track.");
+			return false;
+		}
+		if(track.size() > 0)
+		{
+			node = (RTMLEphemerisTargetTrackNode)(copy.first());
+			copy.remove(node);
+			node.getRA().setSeconds(node.getRA().getSeconds()+1.0);
+			copy.add(node);
+			if(copy.sameTrack(track)||copy.equals(track)||track.equals(copy)||copy.equals(treeSet))
+			{
+				System.err.println("Track with a moved node is the same track.");
+				return false;
+			}
+		}
+		System.out.println("Set contract test passed.");
+		return testViews(new RTMLEphemerisTrack(track));
+	}
+
+	/**
+	 * Test the track's subSet, headSet and tailSet views: they should contain the same nodes as the
+	 * equivalent TreeSet views, be backed by the track (so nodes added to or removed from the track are seen
+	 * in the view and vice versa), and reject out of range nodes and reversed ranges with an
+	 * IllegalArgumentException.
+	 * @param track A copy of the track, which is changed by the test.
+	 * @return true if the test passed, false otherwise.
+	 */
+	protected boolean testViews(RTMLEphemerisTrack track) throws Exception
+	{
+		RTMLEphemerisTargetTrackNode fromNode = null;
+		RTMLEphemerisTargetTrackNode toNode = null;
+		RTMLEphemerisTargetTrackNode node = null;
+		SortedSet treeSet = null;
+		SortedSet view = null;
+		Iterator iterator = null;
+		int size;
+
+		if(track.size() < 4)
+		{
+			System.out.println("View test skipped, track too short.");
+			return true;
+		}
+		treeSet = new TreeSet(new RTMLTarget.NodeComparator());
+		treeSet.addAll(track);
+		fromNode = track.getNode(track.size()/4);
+		toNode = track.getNode((3*track.size())/4);
+		if((track.subSet(fromNode,toNode).equals(treeSet.subSet(fromNode,toNode)) == false)||
+		   (track.headSet(toNode).equals(treeSet.headSet(toNode)) == false)||
+		   (track.tailSet(fromNode).equals(treeSet.tailSet(fromNode)) == false)||
+		   (track.subSet(fromNode,toNode).hashCode() != treeSet.subSet(fromNode,toNode).hashCode()))
+		{
+			System.err.println("Track views differ from TreeSet views.");
+			return false;
+		}
+		view = track.subSet(fromNode,toNode);
+		size = view.size();
+		// a node removed from the track is removed from the view
+		node = track.getNode(track.size()/4+1);
+		track.remove(node);
+		if((view.size() != size-1)||view.contains(node))
+		{
+			System.err.println("Node removed from the track still in the view.");
+			return false;
+		}
+		// a node added to the view is added to the track
+		view.add(node);
+		if((view.size() != size)||(track.contains(node) == false)||(view.first().equals(fromNode) == false))
+		{
+			System.err.println("Node added to the view not in the track.");
+			return false;
+		}
+		// removing through the view's iterator removes from the track
+		size = track.size();
+		iterator = view.iterator();
+		iterator.next();
+		iterator.remove();
+		if((track.size() != size-1)||track.contains(fromNode)||view.contains(fromNode))
+		{
+			System.err.println("Node removed by the view's iterator still in the track.");
+			return false;
+		}
+		track.add(fromNode);
+		try
+		{
+			view.add(toNode);
+			System.err.println("Node outside the view was added.");
+			return false;
+		}
+		catch(IllegalArgumentException e)
+		{
+		}
+		try
+		{
+			track.subSet(toNode,fromNode);
+			System.err.println("Reversed subSet was created.");
+			return false;
+		}
+		catch(IllegalArgumentException e)
+		{
+		}
+		try
+		{
+			view.headSet(track.last());
+			System.err.println("headSet outside the view was created.");
+			return false;
+		}
+		catch(IllegalArgumentException e)
+		{
+		}
+		// clearing the view removes it's nodes from the track
+		size = view.size();
+		view.clear();
+		if((view.size() != 0)||(track.size() != treeSet.size()-size)||track.contains(fromNode)||
+		   (track.contains(toNode) == false))
+		{
+			System.err.println("Clearing the view did not remove it's nodes from the track.");
+			return false;
+		}
+		System.out.println("View test passed.");
+		return true;
+	}
+
+	/**
+	 * Test adding a node without an RA between two nodes of a target's track fails with an
+	 * IllegalArgumentException, and leaves the track unchanged.
+	 * @return true if the test passed, false otherwise.
+	 */
+	protected boolean testIllegalNode() throws Exception
+	{
+		RTMLEphemerisTargetTrackNode node = null;
+		RTMLTarget target = null;
+		List beforeList = null;
+
+		target = new RTMLTarget();
+		node = new RTMLEphemerisTargetTrackNode();
+		node.parse("2018-Sep-26 00:10 00 43 56.61 +11 08 37.2 -78.155203 65.006315");
+		target.addEphemerisTrackNode(node);
+		node = new RTMLEphemerisTargetTrackNode();
+		node.parse("2018-Sep-26 00:30 00 43 55.93 +11 08 59.0 -78.178491 65.042131");
+		target.addEphemerisTrackNode(node);
+		beforeList = toStringList(target.getEphemerisTrack());
+		node = new RTMLEphemerisTargetTrackNode();
+		node.parse("2018-Sep-26 00:20 00 43 56.27 +11 08 48.1 -78.166847 65.024223");
+		node.setRA(null);
+		try
+		{
+			target.addEphemerisTrackNode(node);
+			System.err.println("Node without an RA was added.");
+			return false;
+		}
+		catch(IllegalArgumentException e)
+		{
+			System.out.println("Node without an RA rejected:"+e.getMessage());
+		}
+		if(toStringList(target.getEphemerisTrack()).equals(beforeList) == false)
+		{
+			System.err.println("Track changed by rejected node:"+target.getEphemerisTrack());
+			return false;
+		}
+		target = new RTMLTarget();
+		try
+		{
+			target.addEphemerisTrackNode(node);
+			System.err.println("Node without an RA was added to an empty track.");
+			return false;
+		}
+		catch(IllegalArgumentException e)
+		{
+		}
+		if(target.getEphemerisTrack() != null)
+		{
+			System.err.println("Empty track created by rejected node.");
+			return false;
+		}
+		System.out.println("Illegal node test passed.");
+		return true;
+	}
+
+	/**
+	 * Add the track to the target of the RTML 3.1a document in documentFile, create the document,
+	 * and parse it with the DOM and stream parse engines, checking the track is unchanged.
+	 * @param track The track.
+	 * @return true if the parsed tracks are the same as the original, false otherwise.
+	 * @see #documentFile
+	 */
+	protected boolean roundTrip(SortedSet track) throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLCreate create = null;
+		RTMLDocument document = null;
+		RTMLTarget target = null;
+		byte xml[] = null;
+		int engineList[] = {RTMLParser.PARSE_ENGINE_DOM,RTMLParser.PARSE_ENGINE_STREAM};
+
+		parser = new RTMLParser();
+		parser.init(false);
+		document = parser.parse(documentFile);
+		target = document.getTarget();
+		if((target == null)&&(document.getObservationListCount() > 0))
+			target = document.getObservation(0).getTarget();
+		if(target == null)
+		{
+			System.err.println("Document "+documentFile+" has no target.");
+			return false;
+		}
+		target.setEphemerisTrack(track);
+		create = new RTMLCreate();
+		create.create(document);
+		xml = create.toXMLString().getBytes("UTF-8");
+		System.out.println("Created document of "+xml.length+" bytes.");
+		for(int i = 0; i < engineList.length; i++)
+		{
+			parser = new RTMLParser();
+			parser.init(true);
+			parser.setParseEngine(engineList[i]);
+			document = parser.parse(new ByteArrayInputStream(xml));
+			target = document.getTarget();
+			if(target == null)
+				target = document.getObservation(0).getTarget();
+			if(toStringList(track).equals(toStringList(target.getEphemerisTrack())) == false)
+			{
+				System.err.println("Parse engine "+engineList[i]+":Round trip tracks differ.");
+				return false;
+			}
+		}
+		System.out.println("Round trip tracks are the same.");
+		return true;
+	}
+
+	/**
+	 * Return a list of the string representation of each node in a track.
+	 * @param track The track, or null.
+	 * @return A list of strings.
+	 */
+	protected List toStringList(SortedSet track)
+	{
+		List list = null;
+
+		list = new Vector();
+		if(track != null)
+		{
+			for(Iterator i = track.iterator(); i.hasNext();)
+				list.add(i.next().toString());
+		}
+		return list;
+	}
+
+	/**
+	 * Generate an ephemeris, at 1 minute intervals, with a few lines out of order, duplicated and illegal.
+	 * @param count The number of lines to generate.
+	 * @return The ephemeris.
+	 */
+	protected String generate(int count)
+	{
+		StringBuffer sb = null;
+		Random random = null;
+		String monthList[] = {"Jan","Feb","Mar","Apr","May","Jun","Jul","Aug","Sep","Oct","Nov","Dec"};
+		int minute;
+
+		sb = new StringBuffer();
+		random = new Random(count);
+		for(int i = 0; i < count; i++)
+		{
+			minute = i;
+			if((i % 1000) == 999)
+				minute = i-500; // out of order
+			if((i % 1000) == 998)
+				minute = i-1; // duplicate
+			sb.append(2018+(minute/(60*24*360))).append('-');
+			sb.append(monthList[(minute/(60*24*30))%12]).append('-');
+			sb.append(1+((minute/(60*24))%30)).append(' ');
+			sb.append((minute/60)%24).append(':').append(minute%60).append(' ');
+			sb.append(random.nextInt(24)).append(' ').append(random.nextInt(60)).append(' ');
+			sb.append(random.nextInt(6000)/100.0).append(' ');
+			sb.append((random.nextBoolean() ? '+' : '-')).append(random.nextInt(90)).append(' ');
+			sb.append(random.nextInt(60)).append(' ').append(random.nextInt(600)/10.0);
+			if((i % 1000) == 997)
+				sb.append(" x.y"); // 9 fields, no track rates
+			else if((i % 1000) == 996)
+				sb.append(" x.y 1.0"); // illegal RA track rate
+			else if((i % 2) == 0)
+				sb.append("     ").append(random.nextDouble()*200.0-100.0).append("      ").
+					append(random.nextDouble()*200.0-100.0);
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Read the contents of a file.
+	 * @param f The file.
+	 * @return The contents.
+	 */
+	protected String readFile(File f) throws IOException
+	{
+		StringBuffer sb = null;
+		Reader reader = null;
+		char buffer[] = new char[8192];
+		int length;
+
+		sb = new StringBuffer();
+		reader = new FileReader(f);
+		try
+		{
+			while((length = reader.read(buffer)) > 0)
+				sb.append(buffer,0,length);
+		}
+		finally
+		{
+			reader.close();
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestEphemerisTrackParser [-help] [-print] [-position <date>] "+
+				   "[-document <RTML 3.1a filename>] -f[ilename] <filename> | -generate <line count>");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestEphemerisTrackParser testEphemerisTrackParser = null;
+		boolean retval;
+
+		try
+		{
+			testEphemerisTrackParser = new TestEphemerisTrackParser();
+			testEphemerisTrackParser.parseArguments(args);
+			retval = testEphemerisTrackParser.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestEphemerisTrackParser:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
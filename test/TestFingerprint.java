@@ -0,0 +1,324 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestFingerprint.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLDocument's equals, hashCode and fingerprint. Each specified file is parsed, and the
+ * document is checked to be equal to (with the same hash code and fingerprint as) a copy, the file
+ * parsed again, the document decoded from it's RTMLBinaryCodec encoding, and the document deserialized
+ * after Java serialization. Copies with small changes (the mode, a schedule's priority, a target's magnitude,
+ * an image data's FITS header, a history entry or score appended) are checked to be not equal, with
+ * different fingerprints. The time taken to fingerprint, hash and compare the document is printed.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestFingerprint
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to fingerprint each document, used for timing.
+	 */
+	protected int loopCount = 1000;
+	/**
+	 * The codec used to fingerprint documents.
+	 */
+	protected RTMLBinaryCodec codec = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestFingerprint()
+	{
+		super();
+		codec = new RTMLBinaryCodec();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed, and compared with copies of the document, and changed copies.
+	 * @return true if all the tests passed for all the files, false otherwise.
+	 * @see #filenameList
+	 * @see #checkSame
+	 * @see #checkDifferent
+	 * @see #time
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLDocument document = null;
+		RTMLDocument copy = null;
+		RTMLDocumentFingerprint fingerprint = null;
+		String filename = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			document = parser.parse(new File(filename));
+			fingerprint = codec.fingerprint(document);
+			System.out.println(filename+":Fingerprint:"+fingerprint);
+			if(fingerprint.equals(RTMLDocumentFingerprint.valueOf(fingerprint.toString())) == false)
+			{
+				System.out.println(filename+":FAILED:Fingerprint string did not parse back to the fingerprint.");
+				retval = false;
+			}
+			// same contents
+			retval &= checkSame(filename+":copy",document,new RTMLDocument(document));
+			retval &= checkSame(filename+":reparse",document,parser.parse(new File(filename)));
+			retval &= checkSame(filename+":decode",document,codec.decode(codec.encode(document)));
+			retval &= checkSame(filename+":serialize",document,(RTMLDocument)serialize(document));
+			retval &= checkSame(filename+":snapshot",document,RTMLDocumentSnapshot.valueOf(document).toDocument());
+			// changed contents
+			copy = new RTMLDocument(document);
+			copy.setMode(copy.getMode()+"x");
+			retval &= checkDifferent(filename+":mode",document,copy);
+			if((document.getObservationListCount() > 0)&&(document.getObservation(0).getSchedule() != null))
+			{
+				copy = new RTMLDocument(document);
+				copy.getObservation(0).getSchedule().setPriority(
+					copy.getObservation(0).getSchedule().getPriority()+1);
+				retval &= checkDifferent(filename+":schedule priority",document,copy);
+			}
+			if((document.getObservationListCount() > 0)&&(document.getObservation(0).getTarget() != null))
+			{
+				copy = new RTMLDocument(document);
+				copy.getObservation(0).getTarget().setMagnitude(
+					copy.getObservation(0).getTarget().getMagnitude()+0.001);
+				retval &= checkDifferent(filename+":target magnitude",document,copy);
+			}
+			if((document.getObservationListCount() > 0)&&(document.getObservation(0).getImageDataCount() > 0))
+			{
+				copy = new RTMLDocument(document);
+				copy.getObservation(0).getImageData(0).setFITSHeader("SIMPLE  =                    T");
+				retval &= checkDifferent(filename+":image data FITS header",document,copy);
+			}
+			copy = new RTMLDocument(document);
+			copy.addHistoryEntry("TestFingerprint","http://localhost/TestFingerprint","Changed.");
+			retval &= checkDifferent(filename+":history entry",document,copy);
+			copy = new RTMLDocument(document);
+			copy.addScore(new RTMLScore());
+			retval &= checkDifferent(filename+":score",document,copy);
+			time(filename,document);
+		}
+		return retval;
+	}
+
+	/**
+	 * Check two documents are equal, and have the same hash code and fingerprint.
+	 * @param name The name of the check, used for logging.
+	 * @param d1 The first document.
+	 * @param d2 The second document.
+	 * @return true if the check passed.
+	 */
+	protected boolean checkSame(String name,RTMLDocument d1,RTMLDocument d2) throws Exception
+	{
+		if((d1.equals(d2) == false)||(d2.equals(d1) == false))
+		{
+			System.out.println(name+":FAILED:Documents not equal.");
+			return false;
+		}
+		if(d1.hashCode() != d2.hashCode())
+		{
+			System.out.println(name+":FAILED:Hash codes differ:"+d1.hashCode()+" "+d2.hashCode()+".");
+			return false;
+		}
+		if(codec.fingerprint(d1).equals(codec.fingerprint(d2)) == false)
+		{
+			System.out.println(name+":FAILED:Fingerprints differ:"+codec.fingerprint(d1)+" "+
+					   codec.fingerprint(d2)+".");
+			return false;
+		}
+		System.out.println(name+":Same:OK.");
+		return true;
+	}
+
+	/**
+	 * Check two documents are not equal, and have different fingerprints.
+	 * @param name The name of the check, used for logging.
+	 * @param d1 The first document.
+	 * @param d2 The second document.
+	 * @return true if the check passed.
+	 */
+	protected boolean checkDifferent(String name,RTMLDocument d1,RTMLDocument d2) throws Exception
+	{
+		if(d1.equals(d2)||d2.equals(d1))
+		{
+			System.out.println(name+":FAILED:Documents equal.");
+			return false;
+		}
+		if(codec.fingerprint(d1).equals(codec.fingerprint(d2)))
+		{
+			System.out.println(name+":FAILED:Fingerprints the same:"+codec.fingerprint(d1)+".");
+			return false;
+		}
+		System.out.println(name+":Different:OK.");
+		return true;
+	}
+
+	/**
+	 * Time fingerprinting, hashing and comparing (with a copy) the document loopCount times.
+	 * @param name The name of the document, used for logging.
+	 * @param document The document.
+	 * @see #loopCount
+	 */
+	protected void time(String name,RTMLDocument document) throws Exception
+	{
+		RTMLDocument copy = null;
+		long startTime,fingerprintTime,hashTime,equalsTime;
+
+		copy = new RTMLDocument(document);
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			codec.fingerprint(document);
+		fingerprintTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			document.hashCode();
+		hashTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			document.equals(copy);
+		equalsTime = System.currentTimeMillis();
+		System.out.println(name+":"+loopCount+" fingerprints in "+(fingerprintTime-startTime)+" ms, hash codes in "+
+				   (hashTime-fingerprintTime)+" ms, equals in "+(equalsTime-hashTime)+" ms.");
+	}
+
+	/**
+	 * Serialize and deserialize an object.
+	 * @param o The object.
+	 * @return A new object, deserialized from the serialized object.
+	 */
+	protected Object serialize(Object o) throws Exception
+	{
+		ByteArrayOutputStream bos = null;
+		ObjectOutputStream oos = null;
+		ObjectInputStream ois = null;
+
+		bos = new ByteArrayOutputStream();
+		oos = new ObjectOutputStream(bos);
+		oos.writeObject(o);
+		oos.close();
+		ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		return ois.readObject();
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestFingerprint [-help] [-loop_count <n>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestFingerprint testFingerprint = null;
+		boolean retval;
+
+		try
+		{
+			testFingerprint = new TestFingerprint();
+			testFingerprint.parseArguments(args);
+			retval = testFingerprint.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestFingerprint:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
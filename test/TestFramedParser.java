@@ -0,0 +1,301 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestFramedParser.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLFramedParser. The specified files are written one after another into a single stream,
+ * using both framings, and the stream read back with RTMLFramedParser. Each document read is compared with the
+ * document produced by parsing the file on it's own. The consecutive framing is also tested with a comment and
+ * processing instruction after each document, and with a comment containing a quote in the internal subset
+ * of each DOCTYPE.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestFramedParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to put in the stream.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times the list of files is repeated in the stream.
+	 */
+	protected int loopCount = 1;
+	/**
+	 * Which parse engine to use.
+	 */
+	protected int parseEngine = RTMLParser.PARSE_ENGINE_DOM;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestFramedParser()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 * @see #parseEngine
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-stream"))
+			{
+				parseEngine = RTMLParser.PARSE_ENGINE_STREAM;
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is read and parsed on it's own, then the framed streams are built and tested.
+	 * @return true if all the documents read from the framed streams were the expected ones.
+	 * @see #test
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		ByteArrayOutputStream lengthPrefixedStream = null;
+		ByteArrayOutputStream consecutiveStream = null;
+		ByteArrayOutputStream miscStream = null;
+		List contentsList = null;
+		List expectedList = null;
+		byte contents[] = null;
+		boolean retval;
+
+		contentsList = new Vector();
+		expectedList = new Vector();
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			contents = readFile((String)(filenameList.get(i)));
+			contentsList.add(contents);
+			parser = new RTMLParser();
+			parser.init(false);
+			parser.setParseEngine(parseEngine);
+			expectedList.add(parser.parse(new ByteArrayInputStream(contents)).toString());
+		}
+		lengthPrefixedStream = new ByteArrayOutputStream();
+		consecutiveStream = new ByteArrayOutputStream();
+		miscStream = new ByteArrayOutputStream();
+		for(int l = 0; l < loopCount; l++)
+		{
+			for(int i = 0; i < contentsList.size(); i++)
+			{
+				contents = (byte[])(contentsList.get(i));
+				RTMLFramedParser.writeFrame(lengthPrefixedStream,contents);
+				consecutiveStream.write(contents);
+				consecutiveStream.write('\n');
+				miscStream.write(addInternalSubset(contents));
+				miscStream.write("<!-- end of document -->\n<?end x?>\n".getBytes("ISO-8859-1"));
+			}
+		}
+		retval = test("length prefixed",lengthPrefixedStream.toByteArray(),
+			      RTMLFramedParser.FRAMING_LENGTH_PREFIXED,expectedList);
+		retval &= test("consecutive",consecutiveStream.toByteArray(),RTMLFramedParser.FRAMING_CONSECUTIVE,
+			       expectedList);
+		retval &= test("consecutive with comments",miscStream.toByteArray(),
+			       RTMLFramedParser.FRAMING_CONSECUTIVE,expectedList);
+		return retval;
+	}
+
+	/**
+	 * Add an internal subset, containing a comment and processing instruction with unmatched quotes,
+	 * to a document's DOCTYPE.
+	 * @param contents The document.
+	 * @return The changed document, or the document if it has no DOCTYPE with a system identifier.
+	 */
+	protected byte[] addInternalSubset(byte contents[]) throws IOException
+	{
+		String document = null;
+		int index;
+
+		document = new String(contents,"ISO-8859-1");
+		index = document.indexOf("<!DOCTYPE");
+		if(index < 0)
+			return contents;
+		index = document.indexOf('>',index);
+		if(document.charAt(index-1) == ']')
+			return contents;
+		document = document.substring(0,index)+" [ <!-- it's --> <?subset \"?> ]"+document.substring(index);
+		return document.getBytes("ISO-8859-1");
+	}
+
+	/**
+	 * Read all the documents from a framed stream, and compare them with the expected documents.
+	 * @param name The name of the framing, for printing.
+	 * @param stream The framed stream.
+	 * @param framing The framing used.
+	 * @param expectedList The string representation of each file's document, parsed on it's own.
+	 * @return true if the right number of documents was read, and each was the expected one.
+	 */
+	protected boolean test(String name,byte stream[],int framing,List expectedList) throws Exception
+	{
+		RTMLFramedParser framedParser = null;
+		RTMLParser parser = null;
+		RTMLDocument document = null;
+		long startTime,endTime;
+		int index,errorCount;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		parser.setParseEngine(parseEngine);
+		framedParser = new RTMLFramedParser(parser,new ByteArrayInputStream(stream),framing);
+		index = 0;
+		errorCount = 0;
+		startTime = System.currentTimeMillis();
+		while((document = framedParser.next()) != null)
+		{
+			if(document.toString().equals(expectedList.get(index%expectedList.size())) == false)
+			{
+				System.err.println(name+":document "+index+" DIFFERS:\n"+document);
+				errorCount++;
+			}
+			index++;
+		}
+		endTime = System.currentTimeMillis();
+		if(index != (expectedList.size()*loopCount))
+		{
+			System.err.println(name+":read "+index+" documents, expected "+(expectedList.size()*loopCount));
+			errorCount++;
+		}
+		System.out.println(name+":read "+index+" documents ("+stream.length+" bytes) in "+
+				   (endTime-startTime)+" ms, error count:"+errorCount);
+		return (errorCount == 0);
+	}
+
+	/**
+	 * Read the contents of a file.
+	 * @param filename The file.
+	 * @return The contents.
+	 */
+	protected byte[] readFile(String filename) throws IOException
+	{
+		ByteArrayOutputStream bos = null;
+		InputStream is = null;
+		byte buffer[] = new byte[8192];
+		int length;
+
+		bos = new ByteArrayOutputStream();
+		is = new FileInputStream(filename);
+		try
+		{
+			while((length = is.read(buffer)) > 0)
+				bos.write(buffer,0,length);
+		}
+		finally
+		{
+			is.close();
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestFramedParser [-help] [-loop_count <n>] [-stream] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestFramedParser testFramedParser = null;
+		boolean retval;
+
+		try
+		{
+			testFramedParser = new TestFramedParser();
+			testFramedParser.parseArguments(args);
+			retval = testFramedParser.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestFramedParser:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,347 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestGrammarCache.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLGrammarCache. RTMLGrammarCache.compactDTD is tested on a small DTD, and the compact
+ * copy of the RTML 2.2 DTD served by RTMLEntityResolver is checked to contain no comments.
+ * Each specified file is then validated: RTML 2.2 documents against their DTD, and RTML 3.1a documents
+ * against the cached Schema. RTML 3.1a documents are checked to give the same errors when their
+ * xsi:schemaLocation is changed to a URL that is not in the catalog (the cached Schema is used, the
+ * document's xsi:schemaLocation is ignored), and each document is checked to report an error when an
+ * undeclared element is inserted. Finally a schema source file set with RTMLParser.setSchemaSource is
+ * checked to be used in place of the bundled schema.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestGrammarCache
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * The xsi:schemaLocation used to check the document's schema location is ignored. It is not in the
+	 * RTMLEntityResolver catalog, so it cannot be read.
+	 */
+	protected final static String OTHER_SCHEMA_LOCATION = "http://www.rtml.org/v3.1a http://example.invalid/not-rtml.xsd";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+
+	/**
+	 * Default constructor.
+	 */
+	public TestGrammarCache()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 */
+	public void parseArguments(String args[])
+	{
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method.
+	 * @return true if all the tests passed, false otherwise.
+	 * @see #filenameList
+	 * @see #testCompactDTD
+	 * @see #testDocument
+	 * @see #testSchemaSource
+	 */
+	public boolean run() throws Exception
+	{
+		boolean retval = true;
+
+		if(testCompactDTD() == false)
+			retval = false;
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			if(testDocument((String)(filenameList.get(i))) == false)
+				retval = false;
+		}
+		if(testSchemaSource() == false)
+			retval = false;
+		return retval;
+	}
+
+	/**
+	 * Test RTMLGrammarCache.compactDTD removes comments (but not comment-like text in quoted literals),
+	 * keeps declarations and processing instructions, and leaves DTDs it cannot scan unchanged.
+	 * The compact RTML 2.2 DTD served by RTMLEntityResolver is checked to contain no comments.
+	 * @return true if the test passed, false otherwise.
+	 */
+	protected boolean testCompactDTD() throws Exception
+	{
+		String dtd = null;
+		String expected = null;
+		String result = null;
+		byte utf16[] = null;
+		byte contents[] = null;
+		boolean retval = true;
+
+		dtd = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<!-- c1 -->\n\n<!ENTITY % a \"(x|y)\">\r\n"+
+			"<!-- c2 <!ELEMENT no (#PCDATA)> -->\n<!ATTLIST e t CDATA \"<!-- not a comment -->\">\n"+
+			"<?pi data?>\n";
+		expected = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<!ENTITY % a \"(x|y)\">\n"+
+			"<!ATTLIST e t CDATA \"<!-- not a comment -->\">\n<?pi data?>\n";
+		result = new String(RTMLGrammarCache.compactDTD(dtd.getBytes("ISO-8859-1")),"ISO-8859-1");
+		retval &= check("compactDTD",result.equals(expected));
+		utf16 = dtd.getBytes("UTF-16");
+		retval &= check("compactDTD UTF-16",RTMLGrammarCache.compactDTD(utf16) == utf16);
+		contents = RTMLEntityResolver.getContents(RTMLCreate.DEFAULT_DOCTYPE_SYSTEM_ID);
+		result = new String(contents,"ISO-8859-1");
+		System.out.println("Compact RTML 2.2 DTD is "+contents.length+" bytes.");
+		retval &= check("RTML 2.2 DTD compact",(result.indexOf("<!--") < 0)&&(result.indexOf("<!ELEMENT RTML") > -1));
+		return retval;
+	}
+
+	/**
+	 * Test validating a document. An RTML 2.2 document (one with a DOCTYPE) is validated against it's DTD,
+	 * an RTML 3.1a document against the cached Schema. An RTML 3.1a document with an xsi:schemaLocation
+	 * is also validated with it's xsi:schemaLocation changed to OTHER_SCHEMA_LOCATION, which should give
+	 * the same errors. The document is then validated with an undeclared element inserted after the root element's start tag,
+	 * which should report an error.
+	 * @param filename The filename of the document.
+	 * @return true if the test passed, false otherwise.
+	 * @see #validate
+	 * @see #OTHER_SCHEMA_LOCATION
+	 */
+	protected boolean testDocument(String filename) throws Exception
+	{
+		String xml = null;
+		String otherXML = null;
+		String errorString = null;
+		String otherErrorString = null;
+		boolean parseSchema,retval = true;
+		int index;
+
+		xml = readFile(filename);
+		parseSchema = (xml.indexOf("<!DOCTYPE") < 0);
+		errorString = validate(xml,parseSchema);
+		System.out.println(filename+":"+(parseSchema ? "Schema" : "DTD")+" errors:"+
+				   ((errorString.length() == 0) ? "none" : errorString.trim()));
+		if(parseSchema&&(xml.indexOf("xsi:schemaLocation") > -1))
+		{
+			otherXML = xml.replaceFirst("xsi:schemaLocation=\"[^\"]*\"",
+						    "xsi:schemaLocation=\""+OTHER_SCHEMA_LOCATION+"\"");
+			otherErrorString = validate(otherXML,parseSchema);
+			retval &= check(filename+":schemaLocation ignored",otherErrorString.equals(errorString));
+		}
+		index = xml.indexOf('>',xml.indexOf("<RTML"))+1;
+		otherXML = xml.substring(0,index)+"<Bogus/>"+xml.substring(index);
+		otherErrorString = validate(otherXML,parseSchema);
+		retval &= check(filename+":undeclared element reported",otherErrorString.indexOf("Bogus") > -1);
+		return retval;
+	}
+
+	/**
+	 * Test a schema source set with RTMLParser.setSchemaSource is used instead of the bundled schema.
+	 * A schema declaring the RTML element's uid as an integer is written to a temporary file, and documents
+	 * with integer and non-integer uids validated against it. The schema source is then cleared, and the
+	 * non-integer uid document validated against the bundled schema.
+	 * @return true if the test passed, false otherwise.
+	 * @see #validate
+	 */
+	protected boolean testSchemaSource() throws Exception
+	{
+		File schemaFile = null;
+		Writer writer = null;
+		String xml = null;
+		String errorString = null;
+		boolean retval = true;
+
+		schemaFile = File.createTempFile("TestGrammarCache",".xsd");
+		try
+		{
+			writer = new OutputStreamWriter(new FileOutputStream(schemaFile),"UTF-8");
+			writer.write("<?xml version=\"1.0\"?>\n"+
+				     "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" "+
+				     "targetNamespace=\"http://www.rtml.org/v3.1a\" elementFormDefault=\"qualified\">\n"+
+				     "<xs:element name=\"RTML\"><xs:complexType>\n"+
+				     "<xs:attribute name=\"version\" type=\"xs:string\"/>\n"+
+				     "<xs:attribute name=\"mode\" type=\"xs:string\"/>\n"+
+				     "<xs:attribute name=\"uid\" type=\"xs:int\"/>\n"+
+				     "</xs:complexType></xs:element>\n</xs:schema>\n");
+			writer.close();
+			RTMLParser.setSchemaSource(schemaFile.getPath());
+			try
+			{
+				xml = "<?xml version=\"1.0\"?>\n<RTML xmlns=\"http://www.rtml.org/v3.1a\" "+
+					"mode=\"inquiry\" uid=\"1234\" version=\"3.1a\"/>\n";
+				errorString = validate(xml,true);
+				retval &= check("schema source:valid",errorString.length() == 0);
+				xml = xml.replaceFirst("1234","rtml://1234");
+				errorString = validate(xml,true);
+				retval &= check("schema source:invalid uid",errorString.indexOf("rtml://1234") > -1);
+			}
+			finally
+			{
+				RTMLParser.setSchemaSource(null);
+			}
+			errorString = validate(xml,true);
+			retval &= check("bundled schema:uid",errorString.indexOf("rtml://1234") < 0);
+		}
+		finally
+		{
+			schemaFile.delete();
+		}
+		return retval;
+	}
+
+	/**
+	 * Validate a document, by parsing it with a new RTMLParser.
+	 * @param xml The document.
+	 * @param parseSchema Whether to validate against the Schema (true) or DTD (false).
+	 * @return The errors reported, an empty string if the document is valid.
+	 */
+	protected String validate(String xml,boolean parseSchema) throws Exception
+	{
+		RTMLParser parser = null;
+
+		parser = new RTMLParser();
+		parser.init(parseSchema);
+		try
+		{
+			parser.parse(xml);
+		}
+		catch(Exception e)
+		{
+			// the errors are in the error handler, the document may not convert
+		}
+		return parser.getErrorHandler().getErrorString();
+	}
+
+	/**
+	 * Read the contents of a file.
+	 * @param filename The filename.
+	 * @return A string containing the file's contents.
+	 */
+	protected String readFile(String filename) throws IOException
+	{
+		Reader reader = null;
+		StringBuffer sb = null;
+		char buffer[] = null;
+		int length;
+
+		reader = new InputStreamReader(new FileInputStream(filename),"ISO-8859-1");
+		sb = new StringBuffer();
+		buffer = new char[8192];
+		try
+		{
+			while((length = reader.read(buffer)) > 0)
+				sb.append(buffer,0,length);
+		}
+		finally
+		{
+			reader.close();
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Print the result of a check.
+	 * @param name The name of the check.
+	 * @param result The result of the check.
+	 * @return The result.
+	 */
+	protected boolean check(String name,boolean result)
+	{
+		if(result)
+			System.out.println(name+":OK.");
+		else
+			System.out.println(name+":FAILED.");
+		return result;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestGrammarCache [-help] "+
+				   "[-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestGrammarCache testGrammarCache = null;
+		boolean retval;
+
+		try
+		{
+			testGrammarCache = new TestGrammarCache();
+			testGrammarCache.parseArguments(args);
+			retval = testGrammarCache.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestGrammarCache:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
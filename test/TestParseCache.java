@@ -0,0 +1,376 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestParseCache.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLParseCache. Each specified file is read, and parsed repeatedly through a cache:
+ * the first parse should miss and later ones hit, each returning a document equal to the one parsed
+ * without the cache, which can be modified without affecting the cache. Snapshots, documents held
+ * in part of a larger array, eviction (entry count and byte count bounds), expiry, and documents that fail
+ * to parse are also tested. The time taken to parse each file loopCount times with and without the
+ * cache is printed.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestParseCache
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to parse each document, used for timing.
+	 */
+	protected int loopCount = 5;
+	/**
+	 * The parser pool, used with and without the cache.
+	 */
+	protected RTMLParserPool pool = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestParseCache()
+	{
+		super();
+		pool = new RTMLParserPool(false);
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method.
+	 * @return true if all the tests passed, false otherwise.
+	 * @see #filenameList
+	 * @see #testFile
+	 * @see #testEviction
+	 * @see #testExpiry
+	 * @see #testParseFailure
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParseCache cache = null;
+		List dataList = null;
+		byte data[] = null;
+		boolean retval = true;
+
+		cache = new RTMLParseCache(pool);
+		dataList = new Vector();
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			data = readFile((String)(filenameList.get(i)));
+			dataList.add(data);
+			retval &= testFile((String)(filenameList.get(i)),cache,data);
+		}
+		System.out.println(cache);
+		retval &= testEviction(dataList);
+		retval &= testExpiry((byte[])(dataList.get(0)));
+		retval &= testParseFailure();
+		return retval;
+	}
+
+	/**
+	 * Test parsing a document through the cache.
+	 * @param name The name of the document, used for logging.
+	 * @param cache The cache.
+	 * @param data The bytes of the document.
+	 * @return true if the tests passed.
+	 */
+	protected boolean testFile(String name,RTMLParseCache cache,byte data[]) throws Exception
+	{
+		RTMLDocument expected = null;
+		RTMLDocument document = null;
+		RTMLDocumentSnapshot snapshot = null;
+		byte embeddedData[] = null;
+		long hitCount,missCount,startTime,uncachedTime,cachedTime,snapshotTime;
+		boolean retval = true;
+
+		expected = pool.parse(new ByteArrayInputStream(data));
+		hitCount = cache.getHitCount();
+		missCount = cache.getMissCount();
+		document = cache.parse(data);
+		retval &= check(name+":first parse is a miss",(cache.getMissCount() == missCount+1)&&
+				(cache.getHitCount() == hitCount));
+		retval &= check(name+":first parse equals uncached parse",expected.equals(document));
+		// the caller may modify the document it is given
+		document.setMode("modified");
+		document = cache.parse(data);
+		retval &= check(name+":second parse is a hit",cache.getHitCount() == hitCount+1);
+		retval &= check(name+":second parse equals uncached parse",expected.equals(document));
+		document.getObservation(0).setSchedule(null);
+		document = cache.parse(new ByteArrayInputStream(data));
+		retval &= check(name+":input stream parse is a hit",cache.getHitCount() == hitCount+2);
+		retval &= check(name+":input stream parse equals uncached parse",expected.equals(document));
+		// the document in the middle of a larger array
+		embeddedData = new byte[data.length+20];
+		System.arraycopy(data,0,embeddedData,10,data.length);
+		document = cache.parse(embeddedData,10,data.length);
+		retval &= check(name+":offset parse is a hit",cache.getHitCount() == hitCount+3);
+		retval &= check(name+":offset parse equals uncached parse",expected.equals(document));
+		snapshot = cache.parseSnapshot(data);
+		retval &= check(name+":snapshot parse is a hit",cache.getHitCount() == hitCount+4);
+		retval &= check(name+":snapshot equals uncached parse",expected.equals(snapshot.toDocument()));
+		retval &= check(name+":snapshot is shared",snapshot == cache.parseSnapshot(data));
+		// timing
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			pool.parse(new ByteArrayInputStream(data));
+		uncachedTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			cache.parse(data);
+		cachedTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			cache.parseSnapshot(data);
+		snapshotTime = System.currentTimeMillis();
+		System.out.println(name+":"+loopCount+" parses:uncached "+(uncachedTime-startTime)+" ms, cached "+
+				   (cachedTime-uncachedTime)+" ms, cached snapshot "+(snapshotTime-cachedTime)+" ms.");
+		return retval;
+	}
+
+	/**
+	 * Test entries are evicted to keep the cache within it's entry count and byte count bounds.
+	 * @param dataList The list of document bytes. If it has only one document, the entry count bound
+	 *        is not tested.
+	 * @return true if the tests passed.
+	 */
+	protected boolean testEviction(List dataList) throws Exception
+	{
+		RTMLParseCache cache = null;
+		byte data1[] = null;
+		byte data2[] = null;
+		boolean retval = true;
+
+		data1 = (byte[])(dataList.get(0));
+		data2 = (byte[])(dataList.get(dataList.size()-1));
+		if(Arrays.equals(data1,data2) == false)
+		{
+			cache = new RTMLParseCache(pool,1,RTMLParseCache.DEFAULT_MAX_BYTE_COUNT,
+						   RTMLParseCache.DEFAULT_TIME_TO_LIVE);
+			cache.parse(data1);
+			cache.parse(data2);
+			cache.parse(data1);
+			retval &= check("eviction:entry count bound",(cache.getMissCount() == 3)&&
+					(cache.getEvictionCount() == 2)&&(cache.getSize() == 1));
+		}
+		cache = new RTMLParseCache(pool,RTMLParseCache.DEFAULT_MAX_ENTRY_COUNT,data1.length-1,
+					   RTMLParseCache.DEFAULT_TIME_TO_LIVE);
+		cache.parse(data1);
+		cache.parse(data1);
+		retval &= check("eviction:document larger than byte count bound not cached",(cache.getMissCount() == 2)&&
+				(cache.getSize() == 0)&&(cache.getByteCount() == 0));
+		cache = new RTMLParseCache(pool,RTMLParseCache.DEFAULT_MAX_ENTRY_COUNT,
+					   data1.length+data2.length-1,RTMLParseCache.DEFAULT_TIME_TO_LIVE);
+		cache.parse(data1);
+		cache.parse(data2);
+		if(Arrays.equals(data1,data2) == false)
+		{
+			retval &= check("eviction:byte count bound",(cache.getEvictionCount() == 1)&&
+					(cache.getSize() == 1)&&(cache.getByteCount() == data2.length));
+		}
+		return retval;
+	}
+
+	/**
+	 * Test entries expire.
+	 * @param data The bytes of a document.
+	 * @return true if the tests passed.
+	 */
+	protected boolean testExpiry(byte data[]) throws Exception
+	{
+		RTMLParseCache cache = null;
+		boolean retval = true;
+
+		cache = new RTMLParseCache(pool,RTMLParseCache.DEFAULT_MAX_ENTRY_COUNT,
+					   RTMLParseCache.DEFAULT_MAX_BYTE_COUNT,100L);
+		cache.parse(data);
+		cache.parse(data);
+		retval &= check("expiry:hit before expiry",cache.getHitCount() == 1);
+		Thread.sleep(200L);
+		cache.parse(data);
+		retval &= check("expiry:miss after expiry",(cache.getMissCount() == 2)&&(cache.getExpiryCount() == 1)&&
+				(cache.getSize() == 1));
+		return retval;
+	}
+
+	/**
+	 * Test documents that fail to parse are not cached.
+	 * @return true if the tests passed.
+	 */
+	protected boolean testParseFailure() throws Exception
+	{
+		RTMLParseCache cache = null;
+		byte data[] = null;
+		int exceptionCount;
+
+		cache = new RTMLParseCache(pool);
+		data = "<?xml version=\"1.0\"?><RTML".getBytes("UTF-8");
+		exceptionCount = 0;
+		for(int i = 0; i < 2; i++)
+		{
+			try
+			{
+				cache.parse(data);
+			}
+			catch(Exception e)
+			{
+				exceptionCount++;
+			}
+		}
+		return check("parse failure:not cached",(exceptionCount == 2)&&(cache.getMissCount() == 2)&&
+			     (cache.getSize() == 0));
+	}
+
+	/**
+	 * Print the result of a check.
+	 * @param name The name of the check.
+	 * @param result The result of the check.
+	 * @return The result.
+	 */
+	protected boolean check(String name,boolean result)
+	{
+		if(result)
+			System.out.println(name+":OK.");
+		else
+			System.out.println(name+":FAILED.");
+		return result;
+	}
+
+	/**
+	 * Read a file.
+	 * @param filename The name of the file.
+	 * @return A new byte array containing the file's contents.
+	 */
+	protected byte[] readFile(String filename) throws Exception
+	{
+		DataInputStream is = null;
+		byte data[] = null;
+
+		data = new byte[(int)(new File(filename).length())];
+		is = new DataInputStream(new FileInputStream(filename));
+		try
+		{
+			is.readFully(data);
+		}
+		finally
+		{
+			is.close();
+		}
+		return data;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestParseCache [-help] [-loop_count <n>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestParseCache testParseCache = null;
+		boolean retval;
+
+		try
+		{
+			testParseCache = new TestParseCache();
+			testParseCache.parseArguments(args);
+			retval = testParseCache.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestParseCache:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
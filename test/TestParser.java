@@ -23,6 +23,7 @@ package org.estar.rtml.test;
 
 import java.io.*;
 import java.util.*;
+import java.nio.file.Paths;
 
 import org.estar.astrometry.*;
 import org.estar.rtml.*;
@@ -55,6 +56,22 @@ public class TestParser
 	 * set to use false if you <i>may</i> be parsing RTML v2.2.
 	 */
 	protected boolean parseSchema = false;
+	/**
+	 * Which engine the parser uses to parse the document.
+	 * @see org.estar.rtml.RTMLParser#PARSE_ENGINE_DOM
+	 * @see org.estar.rtml.RTMLParser#PARSE_ENGINE_STREAM
+	 */
+	protected int parseEngine = RTMLParser.PARSE_ENGINE_DOM;
+	/**
+	 * Do we want to read only the document header (RTMLParser.peekHeader), rather than parse the whole document?
+	 * @see org.estar.rtml.RTMLParser#peekHeader(java.io.InputStream)
+	 */
+	protected boolean peekHeader = false;
+	/**
+	 * Do we want to parse the file by memory mapping it (RTMLParser.parse(Path))?
+	 * @see org.estar.rtml.RTMLParser#parse(java.nio.file.Path)
+	 */
+	protected boolean parseMapped = false;
 
 	/**
 	 * Default constructor.
@@ -68,6 +85,8 @@ public class TestParser
 	 * Parse arguments.
 	 * @see #filename
 	 * @see #parseSchema
+	 * @see #parseEngine
+	 * @see #peekHeader
 	 */
 	public void parseArguments(String args[])
 	{
@@ -103,6 +122,12 @@ public class TestParser
 					System.exit(3);
 				}
 			}
+			else if(args[i].equals("-stream"))
+				parseEngine = RTMLParser.PARSE_ENGINE_STREAM;
+			else if(args[i].equals("-peek"))
+				peekHeader = true;
+			else if(args[i].equals("-mapped"))
+				parseMapped = true;
 			else if(args[i].equals("-help"))
 			{
 				help();
@@ -139,7 +164,11 @@ public class TestParser
 	 * @see #parseSchema
 	 * @see #document
 	 * @see #filename
+	 * @see #parseEngine
+	 * @see #peekHeader
+	 * @see #parseMapped
 	 * @see org.estar.rtml.RTMLParser#init(boolean)
+	 * @see org.estar.rtml.RTMLParser#setParseEngine
 	 */
 	public void run() throws Exception
 	{
@@ -149,9 +178,29 @@ public class TestParser
 			help();
 			return;
 		}
+		if(peekHeader)
+		{
+			InputStream is = new FileInputStream(filename);
+
+			try
+			{
+				document = RTMLParser.peekHeader(is);
+			}
+			finally
+			{
+				is.close();
+			}
+			System.out.println("Version:"+document.getVersion()+" UId:"+document.getUId()+
+					   " Mode:"+document.getMode()+" Type:"+document.getType());
+			return;
+		}
 		parser = new RTMLParser();
 		parser.init(parseSchema);
-		document = parser.parse(new File(filename));
+		parser.setParseEngine(parseEngine);
+		if(parseMapped)
+			document = parser.parse(Paths.get(filename));
+		else
+			document = parser.parse(new File(filename));
 		System.out.println(document);
 	}
 
@@ -160,7 +209,7 @@ public class TestParser
 	 */
 	public void help()
 	{
-			System.err.println("java -Dhttp.proxyHost=wwwcache.livjm.ac.uk -Dhttp.proxyPort=8080 org.estar.rtml.test.TestParser [-parse_schema] [-help] [-schema_source <filename>] -f[ilename] <filename>");
+			System.err.println("java -Dhttp.proxyHost=wwwcache.livjm.ac.uk -Dhttp.proxyPort=8080 org.estar.rtml.test.TestParser [-parse_schema] [-stream] [-peek] [-mapped] [-help] [-schema_source <filename>] -f[ilename] <filename>");
 	}
 
 	/**
@@ -0,0 +1,285 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestParserPool.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLParserPool, by parsing the specified files concurrently from a number of threads
+ * sharing one pool. Each parsed document is compared with the document produced by a single threaded parse.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestParserPool
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * The string representation of each file's document, parsed single threaded.
+	 */
+	protected List expectedList = new Vector();
+	/**
+	 * Number of threads to parse with.
+	 */
+	protected int threadCount = 4;
+	/**
+	 * Number of times each thread parses each file.
+	 */
+	protected int loopCount = 100;
+	/**
+	 * Whether to parse using Schema.
+	 */
+	protected boolean parseSchema = false;
+	/**
+	 * Which parse engine to use.
+	 */
+	protected int parseEngine = RTMLParser.PARSE_ENGINE_DOM;
+	/**
+	 * The pool shared by all the threads.
+	 */
+	protected RTMLParserPool pool = null;
+	/**
+	 * The number of parse failures or differences found by all the threads.
+	 */
+	protected int errorCount = 0;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestParserPool()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #threadCount
+	 * @see #loopCount
+	 * @see #parseSchema
+	 * @see #parseEngine
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-schema"))
+			{
+				parseSchema = true;
+			}
+			else if(args[i].equals("-stream"))
+			{
+				parseEngine = RTMLParser.PARSE_ENGINE_STREAM;
+			}
+			else if(args[i].equals("-threads"))
+			{
+				if((i+1) < args.length)
+				{
+					threadCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No thread count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. The files are parsed single threaded to get the expected documents, then threadCount
+	 * threads are started, each of which parses every file loopCount times using the shared pool.
+	 * @return true if all the parses succeeded and produced the expected documents, false otherwise.
+	 * @see #pool
+	 * @see #expectedList
+	 * @see #parseFiles
+	 */
+	public boolean run() throws Exception
+	{
+		Thread threadList[] = null;
+		String filename = null;
+		long startTime,endTime;
+
+		pool = new RTMLParserPool(parseSchema,parseEngine);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			expectedList.add(pool.parse(new File(filename)).toString());
+		}
+		threadList = new Thread[threadCount];
+		for(int i = 0; i < threadCount; i++)
+		{
+			threadList[i] = new Thread(new Runnable()
+			{
+				public void run()
+				{
+					parseFiles();
+				}
+			},"TestParserPool-"+i);
+		}
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < threadCount; i++)
+			threadList[i].start();
+		for(int i = 0; i < threadCount; i++)
+			threadList[i].join();
+		endTime = System.currentTimeMillis();
+		System.out.println(threadCount+" threads parsed "+(threadCount*loopCount*filenameList.size())+
+				   " documents in "+(endTime-startTime)+" ms.");
+		System.out.println("Error count:"+errorCount);
+		return (errorCount == 0);
+	}
+
+	/**
+	 * Parse each file loopCount times using the pool, comparing each resultant document with the expected one.
+	 * Called by each thread.
+	 * @see #pool
+	 * @see #expectedList
+	 * @see #addError
+	 */
+	protected void parseFiles()
+	{
+		RTMLDocument document = null;
+		String filename = null;
+
+		for(int l = 0; l < loopCount; l++)
+		{
+			for(int i = 0; i < filenameList.size(); i++)
+			{
+				filename = (String)(filenameList.get(i));
+				try
+				{
+					document = pool.parse(new File(filename));
+					if(document.toString().equals(expectedList.get(i)) == false)
+					{
+						System.err.println(Thread.currentThread().getName()+":"+filename+
+								   ":document DIFFERS:\n"+document);
+						addError();
+					}
+				}
+				catch(Exception e)
+				{
+					System.err.println(Thread.currentThread().getName()+":"+filename+":"+e);
+					addError();
+				}
+			}
+		}
+		pool.release();
+	}
+
+	/**
+	 * Increment the error count.
+	 * @see #errorCount
+	 */
+	protected synchronized void addError()
+	{
+		errorCount++;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestParserPool [-help] [-threads <n>] [-loop_count <n>] "+
+				   "[-schema] [-stream] -f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestParserPool testParserPool = null;
+		boolean retval;
+
+		try
+		{
+			testParserPool = new TestParserPool();
+			testParserPool.parseArguments(args);
+			retval = testParserPool.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestParserPool:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -86,6 +86,36 @@ public class TestPeriodFormatParser
 		System.out.println("Minutes:"+periodFormat.getMinutes());
 		System.out.println("Seconds:"+periodFormat.getSeconds());
 		System.out.println("Period in milliseconds:"+periodFormat.getMilliseconds());
+		testValueOf();
+	}
+
+	/**
+	 * Test RTMLPeriodFormat.valueOf returns a modifiable period equal to the parsed one, that does not share
+	 * state with the periods returned by later calls.
+	 * @see #inputString
+	 * @see #periodFormat
+	 */
+	public void testValueOf() throws Exception
+	{
+		RTMLPeriodFormat period1 = null;
+		RTMLPeriodFormat period2 = null;
+
+		period1 = RTMLPeriodFormat.valueOf(inputString);
+		period2 = RTMLPeriodFormat.valueOf(inputString);
+		if((period1 == period2)||(periodFormat.equals(period1) == false)||(periodFormat.equals(period2) == false)||
+		   (period1.getMilliseconds() != periodFormat.getMilliseconds()))
+		{
+			throw new Exception(this.getClass().getName()+":testValueOf:valueOf("+inputString+") returned "+
+					    period1+" and "+period2+", expected "+periodFormat+".");
+		}
+		period1.setHours(period1.getHours()+1);
+		period2 = RTMLPeriodFormat.valueOf(inputString);
+		if((periodFormat.equals(period2) == false)||(period2.getMilliseconds() != periodFormat.getMilliseconds()))
+		{
+			throw new Exception(this.getClass().getName()+":testValueOf:Modifying "+period1+
+					    " changed the period later returned by valueOf("+inputString+"):"+period2+".");
+		}
+		System.out.println("valueOf:OK.");
 	}
 
 	/**
@@ -0,0 +1,520 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestReplyPatcher.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLReplyPatcher. Each specified file is parsed, and written out (with RTMLCreate.write)
+ * both indented and compact. A reply is derived from the written bytes with an RTMLReplyPatcher
+ * (the document made a request reply, a history entry (RTML 3.1a), scores, a score and completion time
+ * (RTML 2.2) added). The patched reply is compared byte for byte with the edited document written out.
+ * The time taken to patch is printed, along with the time taken to derive the reply by reparsing the bytes,
+ * editing the document and writing it out again. The written documents are also patched with "\r\n" line
+ * separators, and (RTML 2.2) with an internal subset containing a comment and processing instruction, and
+ * all of them are patched at once by several threads sharing one patcher.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestReplyPatcher
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to derive a reply with each method, used for timing.
+	 */
+	protected int loopCount = 1;
+	/**
+	 * The history entry added to each reply. The timestamp is fixed, so replies derived with each method
+	 * can be compared.
+	 */
+	protected RTMLHistoryEntry entry = null;
+	/**
+	 * The scores added to each reply.
+	 */
+	protected RTMLScore scoreList[] = null;
+	/**
+	 * The completion time set in each RTML 2.2 reply.
+	 */
+	protected Date completionTime = null;
+	/**
+	 * The number of threads used to test patching documents at once with the same patcher.
+	 */
+	protected int threadCount = 4;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestReplyPatcher()
+	{
+		super();
+		RTMLIntelligentAgent agent = null;
+
+		agent = new RTMLIntelligentAgent();
+		agent.setId("TestReplyPatcher");
+		agent.setUri("http://localhost/TestReplyPatcher?a=1&b=<2>");
+		entry = new RTMLHistoryEntry();
+		entry.setTimeStamp(new Date(0L));
+		entry.setAgent(agent);
+		entry.setDescription("Reply derived by TestReplyPatcher \u00e9\u2013.");
+		scoreList = new RTMLScore[2];
+		for(int i = 0; i < scoreList.length; i++)
+		{
+			scoreList[i] = new RTMLScore();
+			scoreList[i].setDelay(new RTMLPeriodFormat());
+			scoreList[i].getDelay().setHours(i+1);
+			scoreList[i].setProbability(0.5/(i+1));
+			scoreList[i].setCumulative(0.25*(i+1));
+		}
+		completionTime = new Date(86400000L);
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed and written out indented and compact, and for each a reply derived
+	 * with a patcher, and compared with the edited document written out.
+	 * @return true if the replies were the same for all the files, false otherwise.
+	 * @see #filenameList
+	 * @see #derivePatcher
+	 * @see #deriveReparse
+	 * @see #edit
+	 * @see #testLineSeparator
+	 * @see #testInternalSubset
+	 * @see #testThreads
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLCreate create = null;
+		RTMLDocument document = null;
+		RTMLDocument reply = null;
+		ByteArrayOutputStream os = null;
+		String filename = null;
+		String name = null;
+		byte original[] = null;
+		byte patchReply[] = null;
+		byte expectedReply[] = null;
+		List originalList = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		create = new RTMLCreate();
+		originalList = new Vector();
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			document = parser.parse(new File(filename));
+			for(int j = 0; j < 2; j++)
+			{
+				create.setIndent(j == 0);
+				name = filename+(create.getIndent() ? ":indent" : ":compact");
+				os = new ByteArrayOutputStream();
+				create.write(document,os);
+				original = os.toByteArray();
+				originalList.add(original);
+				patchReply = derivePatcher(name,original);
+				deriveReparse(name,parser,create,original);
+				// the expected reply is the edited document written out, reparsing the written document
+				// does not always give back the same document (whitespace in mixed content)
+				reply = (RTMLDocument)(document.deepClone());
+				edit(reply);
+				os = new ByteArrayOutputStream();
+				create.write(reply,os);
+				expectedReply = os.toByteArray();
+				if(Arrays.equals(patchReply,expectedReply))
+					System.out.println(name+":Patched and rewritten replies are the same.");
+				else
+				{
+					System.out.println(name+":Patched and rewritten replies DIFFER:");
+					System.out.println("Patched:\n"+new String(patchReply,create.getEncoding()));
+					System.out.println("Rewritten:\n"+new String(expectedReply,create.getEncoding()));
+					retval = false;
+				}
+				if(create.getIndent())
+				{
+					if(testLineSeparator(name,original,patchReply) == false)
+						retval = false;
+					if(isRTML22(original)&&(testInternalSubset(name,original) == false))
+						retval = false;
+				}
+			}
+		}
+		if(testThreads(originalList) == false)
+			retval = false;
+		return retval;
+	}
+
+	/**
+	 * Test patching a document with "\r\n" line separators: the reply should be the reply to the document
+	 * with "\n" line separators, with "\r\n" line separators.
+	 * @param name The name of the document, used for logging.
+	 * @param original The serialized document, with "\n" line separators.
+	 * @param reply The reply derived from original by derivePatcher.
+	 * @return true if the test passed, false otherwise.
+	 * @see #derivePatcher
+	 */
+	protected boolean testLineSeparator(String name,byte original[],byte reply[]) throws Exception
+	{
+		byte crlfReply[] = null;
+		boolean retval;
+
+		crlfReply = derivePatcher(name+":CRLF",toCRLF(original));
+		retval = Arrays.equals(crlfReply,toCRLF(reply));
+		System.out.println(name+":CRLF reply:"+(retval ? "OK." : "FAILED."));
+		return retval;
+	}
+
+	/**
+	 * Test patching an RTML 2.2 document whose DOCTYPE has an internal subset containing a comment and a
+	 * processing instruction, with quotes and brackets in them. The reply should be the reply to the document
+	 * without an internal subset, with the same internal subset.
+	 * @param name The name of the document, used for logging.
+	 * @param original The serialized document, without an internal subset.
+	 * @return true if the test passed, false otherwise.
+	 * @see #derivePatcher
+	 */
+	protected boolean testInternalSubset(String name,byte original[]) throws Exception
+	{
+		String subset = null;
+		String reply = null;
+		String subsetReply = null;
+		boolean retval;
+
+		subset = " [\n<!-- a comment with a ] and a \" -->\n<?pi it's not ]> the end ?>\n"+
+			"<!ENTITY subset \"a ' quote\">\n]";
+		reply = new String(derivePatcher(name+":subset",original),"ISO-8859-1");
+		try
+		{
+			subsetReply = new String(derivePatcher(name+":subset",insertSubset(original,subset)),
+						 "ISO-8859-1");
+			retval = subsetReply.equals(new String(insertSubset(reply.getBytes("ISO-8859-1"),subset),
+							       "ISO-8859-1"));
+		}
+		catch(RTMLException e)
+		{
+			System.out.println(name+":internal subset:"+e);
+			retval = false;
+		}
+		System.out.println(name+":internal subset reply:"+(retval ? "OK." : "FAILED."));
+		return retval;
+	}
+
+	/**
+	 * Test patching documents at once with one patcher. Each document is patched with a patcher changing
+	 * the mode, type and scores (edits that apply to both RTML versions), and then threadCount threads
+	 * patch all the documents with the same patcher, comparing each reply with the first.
+	 * @param originalList A list of serialized documents (byte arrays).
+	 * @return true if all the threads derived the same replies, false otherwise.
+	 * @see #threadCount
+	 */
+	protected boolean testThreads(final List originalList) throws Exception
+	{
+		final RTMLReplyPatcher patcher = new RTMLReplyPatcher();
+		final List replyList = new Vector();
+		final boolean resultList[] = new boolean[threadCount];
+		Thread threadList[] = null;
+		boolean retval = true;
+
+		patcher.setMode("confirm");
+		patcher.setType("confirmation");
+		for(int i = 0; i < scoreList.length; i++)
+			patcher.addScore(scoreList[i]);
+		for(int i = 0; i < originalList.size(); i++)
+			replyList.add(patcher.patch((byte[])(originalList.get(i))));
+		threadList = new Thread[threadCount];
+		for(int i = 0; i < threadList.length; i++)
+		{
+			final int threadIndex = i;
+
+			threadList[i] = new Thread(new Runnable()
+				{
+					public void run()
+					{
+						resultList[threadIndex] = true;
+						try
+						{
+							for(int j = 0; j < 20; j++)
+							{
+								for(int k = 0; k < originalList.size(); k++)
+								{
+									if(Arrays.equals(patcher.patch((byte[])(originalList.get(k))),
+											 (byte[])(replyList.get(k))) == false)
+										resultList[threadIndex] = false;
+								}
+							}
+						}
+						catch(Exception e)
+						{
+							System.out.println("Thread "+threadIndex+":"+e);
+							resultList[threadIndex] = false;
+						}
+					}
+				});
+			threadList[i].start();
+		}
+		for(int i = 0; i < threadList.length; i++)
+		{
+			threadList[i].join();
+			if(resultList[i] == false)
+				retval = false;
+		}
+		System.out.println("Patching with "+threadCount+" threads:"+(retval ? "OK." : "FAILED."));
+		return retval;
+	}
+
+	/**
+	 * Convert the "\n" line separators in a serialized document to "\r\n".
+	 * @param b The serialized document.
+	 * @return A new array, containing the document with "\r\n" line separators.
+	 */
+	protected byte[] toCRLF(byte b[])
+	{
+		ByteArrayOutputStream os = null;
+
+		os = new ByteArrayOutputStream(b.length+1024);
+		for(int i = 0; i < b.length; i++)
+		{
+			if(b[i] == '\n')
+				os.write('\r');
+			os.write(b[i]);
+		}
+		return os.toByteArray();
+	}
+
+	/**
+	 * Insert an internal subset into a serialized document's DOCTYPE, just before the '&gt;' that ends it.
+	 * @param b The serialized document, which must have a DOCTYPE without an internal subset.
+	 * @param subset The internal subset, including the brackets.
+	 * @return A new array, containing the document with the internal subset.
+	 */
+	protected byte[] insertSubset(byte b[],String subset) throws Exception
+	{
+		String s = null;
+		int index;
+
+		s = new String(b,"ISO-8859-1");
+		index = s.indexOf('>',s.indexOf("<!DOCTYPE"));
+		return (s.substring(0,index)+subset+s.substring(index)).getBytes("ISO-8859-1");
+	}
+
+	/**
+	 * Derive a reply loopCount times using an RTMLReplyPatcher.
+	 * @param name The name of the document, used for logging.
+	 * @param original The serialized document to derive the reply from.
+	 * @return The last reply.
+	 * @see #loopCount
+	 */
+	protected byte[] derivePatcher(String name,byte original[]) throws Exception
+	{
+		RTMLReplyPatcher patcher = null;
+		byte reply[] = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			patcher = new RTMLReplyPatcher();
+			patcher.setMode("confirm");
+			patcher.setType("confirmation");
+			for(int j = 0; j < scoreList.length; j++)
+				patcher.addScore(scoreList[j]);
+			if(isRTML22(original))
+			{
+				patcher.setScore(0.75);
+				patcher.setCompletionTime(completionTime);
+			}
+			else
+				patcher.addHistoryEntry(entry);
+			reply = patcher.patch(original);
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(name+":patcher:derived "+loopCount+" times in "+(endTime-startTime)+" ms.");
+		return reply;
+	}
+
+	/**
+	 * Derive a reply loopCount times by reparsing the document, editing it, and writing it out again.
+	 * @param name The name of the document, used for logging.
+	 * @param parser The parser to use.
+	 * @param create The create to write the reply with.
+	 * @param original The serialized document to derive the reply from.
+	 * @return The last reply.
+	 * @see #loopCount
+	 * @see #edit
+	 */
+	protected byte[] deriveReparse(String name,RTMLParser parser,RTMLCreate create,byte original[])
+		throws Exception
+	{
+		RTMLDocument document = null;
+		ByteArrayOutputStream os = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			document = parser.parse(new ByteArrayInputStream(original));
+			edit(document);
+			os = new ByteArrayOutputStream(original.length+1024);
+			create.write(document,os);
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(name+":reparse:derived "+loopCount+" times in "+(endTime-startTime)+" ms.");
+		return os.toByteArray();
+	}
+
+	/**
+	 * Make the reply edits to a document.
+	 * @param document The document.
+	 * @see #entry
+	 * @see #scoreList
+	 * @see #completionTime
+	 */
+	protected void edit(RTMLDocument document) throws Exception
+	{
+		document.setRequestReply();
+		for(int j = 0; j < scoreList.length; j++)
+			document.addScore(new RTMLScore(scoreList[j]));
+		if(document.getVersion().equals(RTMLDocument.RTML_VERSION_22))
+		{
+			document.setScore(0.75);
+			document.setCompletionTime(completionTime);
+		}
+		else
+		{
+			if(document.getHistory() == null)
+				document.setHistory(new RTMLHistory());
+			document.getHistory().addEntry(new RTMLHistoryEntry(entry));
+		}
+	}
+
+	/**
+	 * Return whether a serialized document is RTML 2.2 (contains the RTML 2.2 DOCTYPE).
+	 * @param b The serialized document.
+	 * @return true if the document is RTML 2.2.
+	 */
+	protected boolean isRTML22(byte b[]) throws Exception
+	{
+		String s = null;
+
+		s = new String(b,0,Math.min(b.length,512),"ISO-8859-1");
+		return s.indexOf("<!DOCTYPE") > -1;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestReplyPatcher [-help] [-loop_count <n>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestReplyPatcher testReplyPatcher = null;
+		boolean retval;
+
+		try
+		{
+			testReplyPatcher = new TestReplyPatcher();
+			testReplyPatcher.parseArguments(args);
+			retval = testReplyPatcher.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestReplyPatcher:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,268 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestSnapshot.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests RTMLDocumentSnapshot and RTMLDocumentBuilder. Each specified file is parsed, and a reply
+ * derived from it (a history entry added and the document made a reply) both with a builder, and by copying
+ * the document and modifying the copy. The two replies are compared, and the original snapshot checked to see
+ * it has not changed. The time taken by each method is printed.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestSnapshot
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to derive a reply with each method, used for timing.
+	 */
+	protected int loopCount = 1;
+	/**
+	 * The history entry added to each reply. The timestamp is fixed, so replies derived with each method
+	 * can be compared.
+	 */
+	protected RTMLHistoryEntry entry = null;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestSnapshot()
+	{
+		super();
+		RTMLIntelligentAgent agent = null;
+
+		agent = new RTMLIntelligentAgent();
+		agent.setId("TestSnapshot");
+		agent.setUri("http://localhost/TestSnapshot");
+		entry = new RTMLHistoryEntry();
+		entry.setTimeStamp(new Date(0L));
+		entry.setAgent(agent);
+		entry.setDescription("Reply derived by TestSnapshot.");
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed, and a reply derived from it with each method, and compared.
+	 * @return true if the replies were the same, and the original snapshot unchanged, for all the files,
+	 *         false otherwise.
+	 * @see #filenameList
+	 * @see #deriveBuilder
+	 * @see #deriveCopy
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLDocumentSnapshot snapshot = null;
+		RTMLDocumentSnapshot builderReply = null;
+		RTMLDocument copyReply = null;
+		RTMLDocument document = null;
+		String filename = null;
+		String originalString = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			snapshot = RTMLDocumentSnapshot.valueOf(parser.parse(new File(filename)));
+			originalString = snapshot.toString();
+			builderReply = deriveBuilder(filename,snapshot);
+			copyReply = deriveCopy(filename,snapshot.toDocument());
+			if(builderReply.toString().equals(copyReply.toString()))
+				System.out.println(filename+":Builder and copy replies are the same.");
+			else
+			{
+				System.out.println(filename+":Builder and copy replies DIFFER:");
+				System.out.println("Builder:\n"+builderReply);
+				System.out.println("Copy:\n"+copyReply);
+				retval = false;
+			}
+			// modify a document obtained from the reply, the reply and original should not change
+			document = builderReply.toDocument();
+			new TestCopy().modify(document);
+			document = builderReply.builder().withUId("modified").withoutObservations().
+				withHistoryEntry("TestSnapshot",null,"Modified.").build().toDocument();
+			new TestCopy().modify(document);
+			if(originalString.equals(snapshot.toString())&&
+			   builderReply.toString().equals(copyReply.toString()))
+				System.out.println(filename+":Original snapshot and reply unchanged.");
+			else
+			{
+				System.out.println(filename+":Original snapshot or reply CHANGED:");
+				System.out.println("Original:\n"+snapshot);
+				System.out.println("Reply:\n"+builderReply);
+				retval = false;
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Derive a reply loopCount times using an RTMLDocumentBuilder.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param snapshot The snapshot to derive the reply from.
+	 * @return The last reply.
+	 * @see #loopCount
+	 * @see #entry
+	 */
+	protected RTMLDocumentSnapshot deriveBuilder(String filename,RTMLDocumentSnapshot snapshot) throws Exception
+	{
+		RTMLDocumentSnapshot reply = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			reply = snapshot.builder().withHistoryEntry(entry).withRequestReply().build();
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":builder:derived "+loopCount+" times in "+(endTime-startTime)+" ms.");
+		return reply;
+	}
+
+	/**
+	 * Derive a reply loopCount times by copying the document (using deepClone) and modifying the copy.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to derive the reply from.
+	 * @return The last reply.
+	 * @see #loopCount
+	 * @see #entry
+	 */
+	protected RTMLDocument deriveCopy(String filename,RTMLDocument document) throws Exception
+	{
+		RTMLDocument reply = null;
+		long startTime,endTime;
+
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			reply = (RTMLDocument)(document.deepClone());
+			if(reply.getHistory() == null)
+				reply.setHistory(new RTMLHistory());
+			reply.getHistory().addEntry(new RTMLHistoryEntry(entry));
+			reply.setRequestReply();
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":copy:derived "+loopCount+" times in "+(endTime-startTime)+" ms.");
+		return reply;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestSnapshot [-help] [-loop_count <n>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestSnapshot testSnapshot = null;
+		boolean retval;
+
+		try
+		{
+			testSnapshot = new TestSnapshot();
+			testSnapshot.parseArguments(args);
+			retval = testSnapshot.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestSnapshot:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
@@ -0,0 +1,296 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestStreamCreate.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests the RTMLCreate streaming writer, by parsing each specified file and then serializing
+ * the resultant document both through a DOM tree (create and toXMLString) and with RTMLCreate.write,
+ * and comparing the two outputs.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestStreamCreate
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to serialize each document with each method, used for timing.
+	 */
+	protected int loopCount = 1;
+	/**
+	 * Whether the output is indented.
+	 * @see org.estar.rtml.RTMLCreate#setIndent
+	 */
+	protected boolean indent = true;
+	/**
+	 * The output encoding.
+	 * @see org.estar.rtml.RTMLCreate#setEncoding
+	 */
+	protected String encoding = RTMLXMLWriter.DEFAULT_ENCODING;
+	/**
+	 * Whether the output starts with an XML declaration.
+	 * @see org.estar.rtml.RTMLCreate#setXMLDeclaration
+	 */
+	protected boolean xmlDeclaration = true;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestStreamCreate()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 * @see #indent
+	 * @see #encoding
+	 * @see #xmlDeclaration
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-compact"))
+			{
+				indent = false;
+			}
+			else if(args[i].equals("-encoding"))
+			{
+				if((i+1) < args.length)
+				{
+					encoding = args[i+1];
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No encoding specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-no_xml_declaration"))
+			{
+				xmlDeclaration = false;
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed, then serialized with both methods, and the results compared.
+	 * @return true if both methods produced the same output for all the files, false otherwise.
+	 * @see #filenameList
+	 * @see #createDOM
+	 * @see #createStream
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLDocument document = null;
+		String filename = null;
+		String domString = null;
+		String streamString = null;
+		boolean retval = true;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			document = parser.parse(new File(filename));
+			domString = createDOM(filename,document);
+			streamString = createStream(filename,document);
+			if(domString.equals(streamString))
+				System.out.println(filename+":DOM and stream output are the same.");
+			else
+			{
+				System.out.println(filename+":DOM and stream output DIFFER:");
+				System.out.println("DOM:\n"+domString);
+				System.out.println("Stream:\n"+streamString);
+				retval = false;
+			}
+		}
+		return retval;
+	}
+
+	/**
+	 * Serialize the document loopCount times via a DOM tree, using RTMLCreate create and toXMLString.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to serialize.
+	 * @return The last serialized document.
+	 * @see #loopCount
+	 * @see #createInstance
+	 */
+	protected String createDOM(String filename,RTMLDocument document) throws Exception
+	{
+		RTMLCreate create = null;
+		String s = null;
+		long startTime,endTime;
+
+		create = createInstance();
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			create.create(document);
+			s = create.toXMLString();
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":DOM:created "+loopCount+" times in "+(endTime-startTime)+" ms.");
+		return s;
+	}
+
+	/**
+	 * Serialize the document loopCount times using RTMLCreate write.
+	 * @param filename The file the document was parsed from, used for logging.
+	 * @param document The document to serialize.
+	 * @return The last serialized document.
+	 * @see #loopCount
+	 * @see #createInstance
+	 */
+	protected String createStream(String filename,RTMLDocument document) throws Exception
+	{
+		RTMLCreate create = null;
+		StringWriter stringWriter = null;
+		long startTime,endTime;
+
+		create = createInstance();
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+		{
+			stringWriter = new StringWriter();
+			create.write(document,stringWriter);
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":stream:created "+loopCount+" times in "+(endTime-startTime)+" ms.");
+		return stringWriter.toString();
+	}
+
+	/**
+	 * Create an RTMLCreate instance, configured with the output options.
+	 * @return The RTMLCreate instance.
+	 * @see #indent
+	 * @see #encoding
+	 * @see #xmlDeclaration
+	 */
+	protected RTMLCreate createInstance() throws Exception
+	{
+		RTMLCreate create = null;
+
+		create = new RTMLCreate();
+		create.setIndent(indent);
+		create.setEncoding(encoding);
+		create.setXMLDeclaration(xmlDeclaration);
+		return create;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestStreamCreate [-help] [-loop_count <n>] "+
+				   "[-compact] [-encoding <ISO-8859-1|UTF-8>] [-no_xml_declaration] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestStreamCreate testStreamCreate = null;
+		boolean retval;
+
+		try
+		{
+			testStreamCreate = new TestStreamCreate();
+			testStreamCreate.parseArguments(args);
+			retval = testStreamCreate.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestStreamCreate:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}
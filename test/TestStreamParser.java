@@ -0,0 +1,297 @@
+/*
+    Copyright 2026, Astrophysics Research Institute, Liverpool John Moores University.
+
+    This file is part of org.estar.rtml.test.
+
+    org.estar.rtml.test is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    org.estar.rtml.test is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with org.estar.rtml.test; if not, write to the Free Software
+    Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+*/
+// TestStreamParser.java
+package org.estar.rtml.test;
+
+import java.io.*;
+import java.util.*;
+
+import org.estar.rtml.*;
+
+/**
+ * This class tests the RTMLParser stream engine, by parsing each specified file using both the DOM and
+ * stream parse engines, and comparing the string representation of the resultant documents.
+ * An RTML 2.2 document declaring entities in it's internal subset is also parsed with both engines.
+ * @author Chris Mottram
+ * @version $Revision$
+ */
+public class TestStreamParser
+{
+	/**
+	 * Revision control system version id.
+	 */
+	public final static String RCSID = "$Id$";
+	/**
+	 * List of filenames to parse.
+	 */
+	protected List filenameList = new Vector();
+	/**
+	 * Number of times to parse each file with each engine, used for timing.
+	 */
+	protected int loopCount = 1;
+	/**
+	 * Which parts of each document to parse, used with both engines.
+	 * @see org.estar.rtml.RTMLParser#setParseProfile
+	 */
+	protected int parseProfile = RTMLParser.PARSE_PROFILE_FULL;
+
+	/**
+	 * Default constructor.
+	 */
+	public TestStreamParser()
+	{
+		super();
+	}
+
+	/**
+	 * Parse arguments.
+	 * @see #filenameList
+	 * @see #loopCount
+	 * @see #parseProfile
+	 */
+	public void parseArguments(String args[])
+	{
+		if(args.length == 0)
+		{
+			help();
+			System.exit(2);
+		}
+		for(int i = 0; i < args.length; i++)
+		{
+			if(args[i].equals("-filename")||args[i].equals("-f"))
+			{
+				if((i+1) < args.length)
+				{
+					filenameList.add(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No filename specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-help"))
+			{
+				help();
+				System.exit(2);
+			}
+			else if(args[i].equals("-loop_count"))
+			{
+				if((i+1) < args.length)
+				{
+					loopCount = Integer.parseInt(args[i+1]);
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No loop count specified.");
+					System.exit(3);
+				}
+			}
+			else if(args[i].equals("-profile"))
+			{
+				if((i+1) < args.length)
+				{
+					if(args[i+1].equals("full"))
+						parseProfile = RTMLParser.PARSE_PROFILE_FULL;
+					else if(args[i+1].equals("scheduling"))
+						parseProfile = RTMLParser.PARSE_PROFILE_SCHEDULING;
+					else if(args[i+1].equals("routing"))
+						parseProfile = RTMLParser.PARSE_PROFILE_ROUTING;
+					else
+					{
+						System.err.println(this.getClass().getName()+
+								   ":parseArguments:Unknown profile "+args[i+1]+".");
+						System.exit(3);
+					}
+					i++;
+				}
+				else
+				{
+					System.err.println(this.getClass().getName()+
+							   ":parseArguments:No profile specified.");
+					System.exit(3);
+				}
+			}
+			else
+			{
+				System.err.println(this.getClass().getName()+
+						   ":parseArguments:Unknown argument "+args[i]+".");
+				System.exit(3);
+			}
+		}
+	}
+
+	/**
+	 * run method. Each file is parsed with both engines, and the results compared.
+	 * @return true if all the files parsed to the same document with both engines, false otherwise.
+	 * @see #filenameList
+	 * @see #parse
+	 */
+	public boolean run() throws Exception
+	{
+		RTMLDocument domDocument = null;
+		RTMLDocument streamDocument = null;
+		String filename = null;
+		boolean retval = true;
+
+		for(int i = 0; i < filenameList.size(); i++)
+		{
+			filename = (String)(filenameList.get(i));
+			domDocument = parse(filename,RTMLParser.PARSE_ENGINE_DOM);
+			streamDocument = parse(filename,RTMLParser.PARSE_ENGINE_STREAM);
+			if(domDocument.toString().equals(streamDocument.toString()))
+				System.out.println(filename+":DOM and stream documents are the same.");
+			else
+			{
+				System.out.println(filename+":DOM and stream documents DIFFER:");
+				System.out.println("DOM:\n"+domDocument);
+				System.out.println("Stream:\n"+streamDocument);
+				retval = false;
+			}
+		}
+		if(testInternalSubset() == false)
+			retval = false;
+		return retval;
+	}
+
+	/**
+	 * Test an RTML 2.2 document with entities declared in the DOCTYPE's internal subset parses to the same
+	 * document with both engines, with the entities expanded.
+	 * The document is written to a temporary file, and parsed with each engine.
+	 * @return true if the documents are the same, and the entities were expanded, false otherwise.
+	 * @see #parse
+	 */
+	protected boolean testInternalSubset() throws Exception
+	{
+		RTMLDocument domDocument = null;
+		RTMLDocument streamDocument = null;
+		File file = null;
+		Writer writer = null;
+		boolean retval;
+
+		file = File.createTempFile("TestStreamParser",".rtml");
+		try
+		{
+			writer = new OutputStreamWriter(new FileOutputStream(file),"ISO-8859-1");
+			writer.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n"+
+				     "<!DOCTYPE RTML SYSTEM \""+RTMLCreate.DEFAULT_DOCTYPE_SYSTEM_ID+"\" [\n"+
+				     "<!-- entities used below -->\n"+
+				     "<!ENTITY me \"Chris Mottram\">\n"+
+				     "<!ENTITY email \"cjm@astro.livjm.ac.uk\">\n"+
+				     "]>\n"+
+				     "<RTML type=\"request\" version=\"2.2\">\n"+
+				     "  <Contact PI=\"true\">\n"+
+				     "    <Name>&me;</Name>\n"+
+				     "    <Email>mailto:&email;</Email>\n"+
+				     "  </Contact>\n"+
+				     "  <Project>Project of &me;</Project>\n"+
+				     "</RTML>\n");
+			writer.close();
+			domDocument = parse(file.getPath(),RTMLParser.PARSE_ENGINE_DOM);
+			streamDocument = parse(file.getPath(),RTMLParser.PARSE_ENGINE_STREAM);
+		}
+		finally
+		{
+			file.delete();
+		}
+		retval = domDocument.toString().equals(streamDocument.toString())&&
+			"Chris Mottram".equals(streamDocument.getContact().getName())&&
+			"mailto:cjm@astro.livjm.ac.uk".equals(streamDocument.getContact().getEmail())&&
+			"Project of Chris Mottram".equals(streamDocument.getProject().getProject());
+		if(retval)
+			System.out.println("Internal subset:DOM and stream documents are the same.");
+		else
+		{
+			System.out.println("Internal subset:DOM and stream documents DIFFER:");
+			System.out.println("DOM:\n"+domDocument);
+			System.out.println("Stream:\n"+streamDocument);
+		}
+		return retval;
+	}
+
+	/**
+	 * Parse the specified file loopCount times, with the specified engine.
+	 * @param filename The file to parse.
+	 * @param parseEngine The parse engine to use.
+	 * @return The last parsed document.
+	 * @see #loopCount
+	 * @see #parseProfile
+	 * @see org.estar.rtml.RTMLParser#setParseEngine
+	 * @see org.estar.rtml.RTMLParser#setParseProfile
+	 */
+	protected RTMLDocument parse(String filename,int parseEngine) throws Exception
+	{
+		RTMLParser parser = null;
+		RTMLDocument document = null;
+		long startTime,endTime;
+
+		parser = new RTMLParser();
+		parser.init(false);
+		parser.setParseEngine(parseEngine);
+		parser.setParseProfile(parseProfile);
+		startTime = System.currentTimeMillis();
+		for(int i = 0; i < loopCount; i++)
+			document = parser.parse(new File(filename));
+		endTime = System.currentTimeMillis();
+		System.out.println(filename+":engine "+parseEngine+":parsed "+loopCount+" times in "+
+				   (endTime-startTime)+" ms.");
+		return document;
+	}
+
+	/**
+	 * Print help message.
+	 */
+	public void help()
+	{
+		System.err.println("java org.estar.rtml.test.TestStreamParser [-help] [-loop_count <n>] "+
+				   "[-profile <full|scheduling|routing>] "+
+				   "-f[ilename] <filename> [-f[ilename] <filename> ...]");
+	}
+
+	/**
+	 * main method of test program.
+	 */
+	public static void main(String args[])
+	{
+		TestStreamParser testStreamParser = null;
+		boolean retval;
+
+		try
+		{
+			testStreamParser = new TestStreamParser();
+			testStreamParser.parseArguments(args);
+			retval = testStreamParser.run();
+		}
+		catch(Exception e)
+		{
+			System.err.println("TestStreamParser:main:"+e);
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		if(retval == false)
+			System.exit(4);
+		System.exit(0);
+	}
+}